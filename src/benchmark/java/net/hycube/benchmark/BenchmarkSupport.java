@@ -0,0 +1,175 @@
+package net.hycube.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.Random;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.HyCubeRoutingTable;
+import net.hycube.core.HyCubeRoutingTableImpl;
+import net.hycube.core.HyCubeSnapshotRoutingTableImpl;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeAccessor;
+import net.hycube.core.NodeParameterSet;
+import net.hycube.core.NodePointer;
+import net.hycube.dht.HyCubeDHTManager;
+import net.hycube.dht.HyCubeResourceAccessController;
+import net.hycube.dht.HyCubeSimpleResourceAccessController;
+import net.hycube.environment.Environment;
+import net.hycube.environment.FileNodePropertiesReader;
+import net.hycube.environment.NodeProperties;
+import net.hycube.environment.NodePropertiesInitializationException;
+import net.hycube.maintenance.HyCubeNotifyProcessor;
+import net.hycube.transport.UDPNodePointer;
+
+/**
+ * Helper methods shared by the benchmarks - builds node properties, node ids, routing tables and
+ * a minimal node accessor without starting a node (no network adapter, no event processing).
+ *
+ * All random values are generated from fixed seeds, so that the results of consecutive runs are comparable.
+ *
+ * @author Artur Olszak
+ *
+ */
+final class BenchmarkSupport {
+
+	static final long SEED = 0x48794375626542L;
+
+	static final String HYCUBE_EXTENSION_PROPS_PREFIX = "node.extensions.HyCube.";
+
+	static final String PROP_KEY_DHT_STORAGE_MANAGER = "DHTStorageManager";
+
+	static final String ROUTING_TABLE_KEY = "HyCubeRoutingTable";
+	static final String NEXT_HOP_SELECTOR_KEY = "HyCubeNextHopSelector";
+	static final String MESSAGE_FACTORY_KEY = "HyCubeMessageFactory";
+	static final String NOTIFY_PROCESSOR_KEY = "HyCubeNotifyProcessor";
+	static final String DHT_STORAGE_MANAGER_KEY = "HyCubeSimpleDHTStorageManager";
+
+
+	private BenchmarkSupport() {
+	}
+
+
+	/**
+	 * Loads the default configuration and overrides the HyCube geometry parameters.
+	 */
+	static FileNodePropertiesReader loadProperties(int dimensions, int levels, int nsSize, int routingTableSlotSize) throws NodePropertiesInitializationException {
+
+		FileNodePropertiesReader reader = FileNodePropertiesReader.loadProperties();
+
+		reader.setProperty(HYCUBE_EXTENSION_PROPS_PREFIX + "Dimensions", Integer.toString(dimensions));
+		reader.setProperty(HYCUBE_EXTENSION_PROPS_PREFIX + "Levels", Integer.toString(levels));
+		reader.setProperty(HYCUBE_EXTENSION_PROPS_PREFIX + "NSSize", Integer.toString(nsSize));
+		reader.setProperty(HYCUBE_EXTENSION_PROPS_PREFIX + "RoutingTableSlotSize", Integer.toString(routingTableSlotSize));
+
+		//the routing table is filled directly by the notify processor - node selectors depending on other node components (keep-alive) are replaced:
+		String notifyProcessorPrefix = "node.main." + NodeParameterSet.PROP_KEY_NOTIFY_PROCESSOR + "[" + NOTIFY_PROCESSOR_KEY + "].";
+		reader.setProperty(notifyProcessorPrefix + "RTNodeSelector", "HyCubeSimpleRTNodeSelector");
+		reader.setProperty(notifyProcessorPrefix + "RecentlyProcessedNodesRetentionTime", "0");
+
+		return reader;
+
+	}
+
+
+	static HyCubeNodeId randomNodeId(Random random, int dimensions, int levels) {
+		return HyCubeNodeId.fromBigInteger(new BigInteger(dimensions * levels, random), dimensions, levels);
+	}
+
+	static HyCubeNodeId[] randomNodeIds(Random random, int dimensions, int levels, int num) {
+		HyCubeNodeId[] ids = new HyCubeNodeId[num];
+		for (int i = 0; i < num; i++) {
+			ids[i] = randomNodeId(random, dimensions, levels);
+		}
+		return ids;
+	}
+
+
+	static NodePointer createNodePointer(HyCubeNodeId nodeId, int nodeIndex) {
+		NodePointer np = new NodePointer();
+		np.setNodeId(nodeId);
+		np.setNetworkNodePointer(new UDPNodePointer("10." + ((nodeIndex >> 16) & 0xFF) + "." + ((nodeIndex >> 8) & 0xFF) + "." + (nodeIndex & 0xFF) + ":5000"));
+		return np;
+	}
+
+
+	static HyCubeRoutingTableImpl createRoutingTable(NodeProperties properties) throws InitializationException {
+		return createRoutingTable(properties, false);
+	}
+
+	/**
+	 * Creates a HyCubeRoutingTableImpl or (snapshot = true) a copy-on-write HyCubeSnapshotRoutingTableImpl.
+	 */
+	static HyCubeRoutingTableImpl createRoutingTable(NodeProperties properties, boolean snapshot) throws InitializationException {
+		HyCubeRoutingTableImpl routingTable = (snapshot ? new HyCubeSnapshotRoutingTableImpl() : new HyCubeRoutingTableImpl());
+		routingTable.initialize(properties.getNestedProperty(NodeParameterSet.PROP_KEY_ROUTING_TABLE, ROUTING_TABLE_KEY));
+		return routingTable;
+	}
+
+
+	/**
+	 * Fills the routing table with nodesNum random nodes (and nodes from sibling hypercubes of the node) passing them through the notify processor,
+	 * which places them in NS, RT1 and RT2 slots the same way as a running node does.
+	 */
+	static void populateRoutingTable(HyCubeNodeId nodeId, HyCubeRoutingTable routingTable, NodeProperties properties, int nodesNum, Random random) throws InitializationException {
+
+		HyCubeNotifyProcessor notifyProcessor = new HyCubeNotifyProcessor();
+		notifyProcessor.initialize(nodeId, routingTable, properties.getNestedProperty(NodeParameterSet.PROP_KEY_NOTIFY_PROCESSOR, NOTIFY_PROCESSOR_KEY));
+
+		int dimensions = routingTable.getDimensions();
+		int levels = routingTable.getDigitsCount();
+
+		int nodeIndex = 1;
+
+		for (int i = 0; i < nodesNum; i++) {
+			HyCubeNodeId newNodeId = randomNodeId(random, dimensions, levels);
+			notifyProcessor.processNotify(createNodePointer(newNodeId, nodeIndex++), 0);
+		}
+
+		//nodes close to the node (in sibling hypercubes at all levels but the lowest one) - random ids hardly ever hit the lower levels:
+		for (int digit = 0; digit < levels - 1; digit++) {
+			for (int dim = 0; dim < dimensions; dim++) {
+				notifyProcessor.processNotify(createNodePointer(nodeId.addBitInDimension(dim, digit), nodeIndex++), 0);
+				notifyProcessor.processNotify(createNodePointer(nodeId.subBitInDimension(dim, digit), nodeIndex++), 0);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Creates a node accessor exposing only the node id, the environment and a DHT manager allowing all operations on resources.
+	 * Calls to any other methods return null.
+	 */
+	static NodeAccessor createNodeAccessor(final HyCubeNodeId nodeId, final Environment environment) {
+
+		final HyCubeResourceAccessController resourceAccessController = new HyCubeSimpleResourceAccessController();
+
+		final HyCubeDHTManager dhtManager = (HyCubeDHTManager) Proxy.newProxyInstance(HyCubeDHTManager.class.getClassLoader(), new Class<?>[] {HyCubeDHTManager.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getResourceAccessController")) return resourceAccessController;
+				return null;
+			}
+		});
+
+		NodeAccessor nodeAccessor = (NodeAccessor) Proxy.newProxyInstance(NodeAccessor.class.getClassLoader(), new Class<?>[] {NodeAccessor.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getNodeId")) return nodeId;
+				else if (method.getName().equals("getEnvironment")) return environment;
+				else if (method.getName().equals("getDHTManager")) return dhtManager;
+				return null;
+			}
+		});
+
+		resourceAccessController.initialize(nodeAccessor, null);
+
+		return nodeAccessor;
+
+	}
+
+
+}
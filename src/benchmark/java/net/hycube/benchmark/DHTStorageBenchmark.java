@@ -0,0 +1,183 @@
+package net.hycube.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.dht.HyCubeConcurrentDHTStorageManager;
+import net.hycube.dht.HyCubeDHTStorageManager;
+import net.hycube.dht.HyCubeMappedDHTStorageManager;
+import net.hycube.dht.HyCubeOffHeapDHTStorageManager;
+import net.hycube.dht.HyCubeResource;
+import net.hycube.dht.HyCubeResourceDescriptor;
+import net.hycube.dht.HyCubeResourceEntry;
+import net.hycube.dht.HyCubeSimpleDHTStorageManager;
+import net.hycube.environment.DirectEnvironment;
+import net.hycube.environment.FileNodePropertiesReader;
+import net.hycube.environment.NodePropertiesInitializationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HyCubeSimpleDHTStorageManager, HyCubeConcurrentDHTStorageManager, HyCubeMappedDHTStorageManager and HyCubeOffHeapDHTStorageManager put/get for a storage filled with keysNum keys (resourcesPerKey resources each).
+ * Puts replace existing resources, so the number of stored resources does not change during the measurement. Gets look up the resources by the resource id, or by the url only (criteria-based gets).
+ *
+ * @author Artur Olszak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DHTStorageBenchmark {
+
+	@Param({"HyCubeSimpleDHTStorageManager", "HyCubeConcurrentDHTStorageManager", "HyCubeMappedDHTStorageManager", "HyCubeOffHeapDHTStorageManager"})
+	public String storageManagerKey;
+
+	@Param({"4"})
+	public int dimensions;
+
+	@Param({"32"})
+	public int levels;
+
+	@Param({"1000", "10000"})
+	public int keysNum;
+
+	@Param({"1", "4", "32"})
+	public int resourcesPerKey;
+
+
+	protected DirectEnvironment environment;
+	protected FileNodePropertiesReader propertiesReader;
+	protected HyCubeNodeId nodeId;
+	protected HyCubeNodeId senderId;
+	protected BigInteger[] keys;
+	protected HyCubeResource[] resources;
+	protected HyCubeResourceDescriptor[] criteria;
+	protected HyCubeResourceDescriptor[] urlCriteria;
+	protected HyCubeDHTStorageManager storageManager;
+	protected File storageDirectory;
+	protected int index;
+
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws NodePropertiesInitializationException, InitializationException, IOException {
+
+		environment = DirectEnvironment.initialize();
+
+		propertiesReader = BenchmarkSupport.loadProperties(dimensions, levels, 1, 1);
+		String storageManagerPrefix = "node.main." + BenchmarkSupport.PROP_KEY_DHT_STORAGE_MANAGER + "[" + storageManagerKey + "].";
+		propertiesReader.setProperty(storageManagerPrefix + "MaxResourcesNum", Integer.toString(keysNum * resourcesPerKey));
+		propertiesReader.setProperty(storageManagerPrefix + "MaxKeySlotSize", Integer.toString(resourcesPerKey));
+		storageDirectory = Files.createTempDirectory("hycube-benchmark").toFile();
+		propertiesReader.setProperty(storageManagerPrefix + "StorageDirectory", storageDirectory.getPath());
+
+		Random random = new Random(BenchmarkSupport.SEED);
+
+		nodeId = BenchmarkSupport.randomNodeId(random, dimensions, levels);
+		senderId = BenchmarkSupport.randomNodeId(random, dimensions, levels);
+
+		int resourcesNum = keysNum * resourcesPerKey;
+		keys = new BigInteger[resourcesNum];
+		resources = new HyCubeResource[resourcesNum];
+		criteria = new HyCubeResourceDescriptor[resourcesNum];
+		urlCriteria = new HyCubeResourceDescriptor[resourcesNum];
+		for (int k = 0; k < keysNum; k++) {
+			BigInteger key = BenchmarkSupport.randomNodeId(random, dimensions, levels).getBigInteger();
+			for (int r = 0; r < resourcesPerKey; r++) {
+				int i = k * resourcesPerKey + r;
+				String resourceId = "res-" + k + "-" + r;
+				keys[i] = key;
+				byte[] data = new byte[64];
+				random.nextBytes(data);
+				resources[i] = new HyCubeResource(new HyCubeResourceDescriptor(resourceId, resourceId, "benchmark", "hycube://" + resourceId), data);
+				criteria[i] = new HyCubeResourceDescriptor(resourceId, null, null, null);
+				urlCriteria[i] = new HyCubeResourceDescriptor(null, null, null, "hycube://" + resourceId);
+			}
+		}
+
+	}
+
+
+	@Setup(Level.Iteration)
+	public void setupIteration() throws InitializationException {
+
+		//the storage is recreated for every iteration - replaced entries are only discarded in the background process
+		//(the segments of the mapped storage manager are deleted, so that the storage is not reopened)
+		if (storageManager != null) storageManager.discard();
+		deleteDirectory(storageDirectory, false);
+		if (storageManagerKey.equals("HyCubeConcurrentDHTStorageManager")) storageManager = new HyCubeConcurrentDHTStorageManager();
+		else if (storageManagerKey.equals("HyCubeMappedDHTStorageManager")) storageManager = new HyCubeMappedDHTStorageManager();
+		else if (storageManagerKey.equals("HyCubeOffHeapDHTStorageManager")) storageManager = new HyCubeOffHeapDHTStorageManager();
+		else storageManager = new HyCubeSimpleDHTStorageManager();
+		storageManager.initialize(BenchmarkSupport.createNodeAccessor(nodeId, environment), propertiesReader.getNodeProperties().getNestedProperty(BenchmarkSupport.PROP_KEY_DHT_STORAGE_MANAGER, storageManagerKey));
+
+		long currTime = environment.getTimeProvider().getCurrentTime();
+		for (int i = 0; i < resources.length; i++) {
+			storageManager.putToStorage(keys[i], senderId, resources[i], currTime);
+		}
+
+		index = 0;
+
+	}
+
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		storageManager.discard();
+		deleteDirectory(storageDirectory, true);
+		environment.discard();
+	}
+
+
+	protected static void deleteDirectory(File directory, boolean deleteRoot) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory()) deleteDirectory(file, true);
+				else file.delete();
+			}
+		}
+		if (deleteRoot) directory.delete();
+	}
+
+
+	@Benchmark
+	public boolean putToStorage() {
+		int i = (index++) % resources.length;
+		return storageManager.putToStorage(keys[i], senderId, resources[i], environment.getTimeProvider().getCurrentTime());
+	}
+
+	@Benchmark
+	public HyCubeResourceEntry[] getFromStorage() {
+		int i = (index++) % resources.length;
+		return storageManager.getFromStorage(keys[i], senderId, criteria[i]);
+	}
+
+	@Benchmark
+	public HyCubeResourceEntry[] getFromStorageByUrl() {
+		int i = (index++) % resources.length;
+		return storageManager.getFromStorage(keys[i], senderId, urlCriteria[i]);
+	}
+
+
+}
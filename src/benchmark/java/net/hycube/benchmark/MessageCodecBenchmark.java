@@ -0,0 +1,135 @@
+package net.hycube.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeParameterSet;
+import net.hycube.environment.NodePropertiesInitializationException;
+import net.hycube.environment.NodeProperties;
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.HyCubeMessageFactory;
+import net.hycube.messaging.messages.MessageByteConversionException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HyCubeMessage serialization (getBytes, writeTo heap/direct buffer) and deserialization (fromBytes) of data messages.
+ *
+ * @author Artur Olszak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+	@Param({"4", "8"})
+	public int dimensions;
+
+	@Param({"32"})
+	public int levels;
+
+	@Param({"0", "256", "1024"})
+	public int payloadSize;
+
+
+	protected HyCubeMessage message;
+	protected byte[] messageBytes;
+	protected HyCubeMessageFactory messageFactory;
+	protected ByteBuffer heapBuffer;
+	protected ByteBuffer directBuffer;
+	protected ByteBuffer messageBuffer;
+
+
+	@Setup
+	public void setup() throws NodePropertiesInitializationException, InitializationException {
+
+		NodeProperties properties = BenchmarkSupport.loadProperties(dimensions, levels, 1, 1).getNodeProperties();
+
+		messageFactory = new HyCubeMessageFactory();
+		messageFactory.initialize(properties.getNestedProperty(NodeParameterSet.PROP_KEY_MESSAGE_FACTORY, BenchmarkSupport.MESSAGE_FACTORY_KEY));
+
+		Random random = new Random(BenchmarkSupport.SEED);
+
+		HyCubeNodeId senderId = BenchmarkSupport.randomNodeId(random, dimensions, levels);
+		HyCubeNodeId recipientId = BenchmarkSupport.randomNodeId(random, dimensions, levels);
+		byte[] senderNetworkAddress = BenchmarkSupport.createNodePointer(senderId, 1).getNetworkNodePointer().getAddressBytes();
+
+		byte[] data = new byte[payloadSize];
+		random.nextBytes(data);
+
+		message = messageFactory.newDataMessage(1, senderId, recipientId, senderNetworkAddress, (short) 32, (short) 0, (short) 1, (short) 1, data);
+		messageBytes = message.getBytes();
+
+		heapBuffer = ByteBuffer.allocate(messageBytes.length);
+		directBuffer = ByteBuffer.allocateDirect(messageBytes.length);
+		messageBuffer = ByteBuffer.wrap(messageBytes);
+
+	}
+
+
+	@Benchmark
+	public byte[] getBytes() {
+		return message.getBytes();
+	}
+
+	@Benchmark
+	public ByteBuffer writeToHeapBuffer() {
+		heapBuffer.clear();
+		message.writeTo(heapBuffer);
+		return heapBuffer;
+	}
+
+	@Benchmark
+	public ByteBuffer writeToDirectBuffer() {
+		directBuffer.clear();
+		message.writeTo(directBuffer);
+		return directBuffer;
+	}
+
+	@Benchmark
+	public HyCubeMessage fromBytes() throws MessageByteConversionException {
+		return messageFactory.fromBytes(messageBytes);
+	}
+
+	/**
+	 * Creates the (lazily decoded) view of the received message
+	 */
+	@Benchmark
+	public HyCubeMessage fromBuffer() throws MessageByteConversionException {
+		messageBuffer.rewind();
+		return messageFactory.fromBuffer(messageBuffer);
+	}
+
+	/**
+	 * Forwarding of a received message - decodes the recipient id, updates the header and writes the message to the send buffer
+	 */
+	@Benchmark
+	public ByteBuffer fromBufferAndForward() throws MessageByteConversionException {
+		messageBuffer.rewind();
+		HyCubeMessage received = messageFactory.fromBuffer(messageBuffer);
+		received.getRecipientId();
+		received.setHopCount((short) (received.getHopCount() + 1));
+		directBuffer.clear();
+		received.writeTo(directBuffer, true);
+		return directBuffer;
+	}
+
+
+}
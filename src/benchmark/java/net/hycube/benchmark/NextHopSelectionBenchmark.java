@@ -0,0 +1,122 @@
+package net.hycube.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.HyCubeRoutingTableImpl;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeParameterSet;
+import net.hycube.core.NodePointer;
+import net.hycube.environment.NodePropertiesInitializationException;
+import net.hycube.environment.NodeProperties;
+import net.hycube.nexthopselection.HyCubeNextHopSelectionParameters;
+import net.hycube.nexthopselection.HyCubeNextHopSelector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-hop cost of HyCubeNextHopSelector.findNextHops for a populated routing table.
+ *
+ * @author Artur Olszak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NextHopSelectionBenchmark {
+
+	protected static final int RECIPIENTS_NUM = 1024;
+
+
+	@Param({"4"})
+	public int dimensions;
+
+	@Param({"32"})
+	public int levels;
+
+	@Param({"16"})
+	public int nsSize;
+
+	@Param({"1", "4"})
+	public int routingTableSlotSize;
+
+	@Param({"10000"})
+	public int nodesNum;
+
+	@Param({"false", "true"})
+	public boolean snapshotRoutingTable;
+
+
+	protected HyCubeNodeId nodeId;
+	protected HyCubeRoutingTableImpl routingTable;
+	protected HyCubeNextHopSelector nextHopSelector;
+	protected HyCubeNodeId[] recipients;
+	protected int index;
+
+
+	@Setup
+	public void setup() throws NodePropertiesInitializationException, InitializationException {
+
+		NodeProperties properties = BenchmarkSupport.loadProperties(dimensions, levels, nsSize, routingTableSlotSize).getNodeProperties();
+
+		Random random = new Random(BenchmarkSupport.SEED);
+
+		nodeId = BenchmarkSupport.randomNodeId(random, dimensions, levels);
+		NodePointer selfNodePointer = BenchmarkSupport.createNodePointer(nodeId, 0);
+
+		routingTable = BenchmarkSupport.createRoutingTable(properties, snapshotRoutingTable);
+		BenchmarkSupport.populateRoutingTable(nodeId, routingTable, properties, nodesNum, random);
+
+		nextHopSelector = new HyCubeNextHopSelector();
+		nextHopSelector.initialize(nodeId, routingTable, selfNodePointer, properties.getNestedProperty(NodeParameterSet.PROP_KEY_NEXT_HOP_SELECTORS, BenchmarkSupport.NEXT_HOP_SELECTOR_KEY));
+
+		recipients = BenchmarkSupport.randomNodeIds(random, dimensions, levels, RECIPIENTS_NUM);
+		index = 0;
+
+	}
+
+
+	@Benchmark
+	public NodePointer[] findNextHop() {
+		HyCubeNextHopSelectionParameters parameters = new HyCubeNextHopSelectionParameters();
+		return nextHopSelector.findNextHops(recipients[(index++) & (RECIPIENTS_NUM - 1)], parameters, 1);
+	}
+
+	@Benchmark
+	public NodePointer[] findNextHopSteinhaus() {
+		HyCubeNextHopSelectionParameters parameters = new HyCubeNextHopSelectionParameters();
+		parameters.setSteinhausTransformApplied(true);
+		parameters.setSteinhausPoint(nodeId);
+		return nextHopSelector.findNextHops(recipients[(index++) & (RECIPIENTS_NUM - 1)], parameters, 1);
+	}
+
+	@Benchmark
+	public NodePointer[] findNextHopSecure() {
+		HyCubeNextHopSelectionParameters parameters = new HyCubeNextHopSelectionParameters();
+		parameters.setSecureRoutingApplied(true);
+		return nextHopSelector.findNextHops(recipients[(index++) & (RECIPIENTS_NUM - 1)], parameters, 1);
+	}
+
+	@Benchmark
+	public NodePointer[] findClosestNodes() {
+		HyCubeNextHopSelectionParameters parameters = new HyCubeNextHopSelectionParameters();
+		parameters.setIncludeMoreDistantNodes(true);
+		return nextHopSelector.findNextHops(recipients[(index++) & (RECIPIENTS_NUM - 1)], parameters, nsSize);
+	}
+
+
+}
@@ -0,0 +1,75 @@
+package net.hycube.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.metric.Metric;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Node id distance calculation (regular metrics and the Steinhaus transform) for random pairs of ids.
+ *
+ * @author Artur Olszak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeIdDistanceBenchmark {
+
+	protected static final int IDS_NUM = 1024;
+
+
+	@Param({"4", "8"})
+	public int dimensions;
+
+	@Param({"32"})
+	public int levels;
+
+	@Param({"EUCLIDEAN", "MANHATTAN", "CHEBYSHEV", "RING"})
+	public Metric metric;
+
+
+	protected HyCubeNodeId[] ids;
+	protected HyCubeNodeId steinhausPoint;
+	protected int index;
+
+
+	@Setup
+	public void setup() {
+		Random random = new Random(BenchmarkSupport.SEED);
+		ids = BenchmarkSupport.randomNodeIds(random, dimensions, levels, IDS_NUM);
+		steinhausPoint = BenchmarkSupport.randomNodeId(random, dimensions, levels);
+		index = 0;
+	}
+
+
+	@Benchmark
+	public double calculateDistance() {
+		int i = (index++) & (IDS_NUM - 1);
+		return HyCubeNodeId.calculateDistance(ids[i], ids[(i + 1) & (IDS_NUM - 1)], metric);
+	}
+
+	@Benchmark
+	public double calculateSteinhausDistance() {
+		int i = (index++) & (IDS_NUM - 1);
+		return HyCubeNodeId.calculateSteinhausDistance(ids[i], ids[(i + 1) & (IDS_NUM - 1)], steinhausPoint, metric);
+	}
+
+
+}
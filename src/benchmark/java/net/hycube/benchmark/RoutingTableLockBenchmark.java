@@ -0,0 +1,216 @@
+package net.hycube.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.HyCubeRoutingTableImpl;
+import net.hycube.core.HyCubeSnapshotRoutingTableImpl;
+import net.hycube.core.InitializationException;
+import net.hycube.core.RoutingTableEntry;
+import net.hycube.environment.NodePropertiesInitializationException;
+import net.hycube.environment.NodeProperties;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The routing table access pattern of the next hop selection: taking the read lock and copying the neighborhood set or a RT1 slot,
+ * alone and concurrently with a writer updating the routing table (notify processing) under the write lock,
+ * compared with reading the slots of the snapshot published by HyCubeSnapshotRoutingTableImpl.
+ *
+ * @author Artur Olszak
+ *
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingTableLockBenchmark {
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		protected List<RoutingTableEntry> copy = new ArrayList<RoutingTableEntry>();
+		protected int index;
+
+	}
+
+
+	@Param({"4"})
+	public int dimensions;
+
+	@Param({"32"})
+	public int levels;
+
+	@Param({"16"})
+	public int nsSize;
+
+	@Param({"1", "4"})
+	public int routingTableSlotSize;
+
+	@Param({"10000"})
+	public int nodesNum;
+
+
+	protected HyCubeRoutingTableImpl routingTable;
+
+	//the same routing table (populated with the same nodes) publishing snapshots:
+	protected HyCubeSnapshotRoutingTableImpl snapshotRoutingTable;
+
+	protected List<RoutingTableEntry> ns;
+	protected List<RoutingTableEntry>[][] rt1;
+	protected ReentrantReadWriteLock nsLock;
+	protected ReentrantReadWriteLock rt1Lock;
+
+	//non-empty RT1 slots - {level, hypercube}:
+	protected int[][] rt1Slots;
+
+
+	@Setup
+	public void setup() throws NodePropertiesInitializationException, InitializationException {
+
+		NodeProperties properties = BenchmarkSupport.loadProperties(dimensions, levels, nsSize, routingTableSlotSize).getNodeProperties();
+
+		Random random = new Random(BenchmarkSupport.SEED);
+		HyCubeNodeId nodeId = BenchmarkSupport.randomNodeId(random, dimensions, levels);
+		routingTable = BenchmarkSupport.createRoutingTable(properties, false);
+		BenchmarkSupport.populateRoutingTable(nodeId, routingTable, properties, nodesNum, random);
+
+		random = new Random(BenchmarkSupport.SEED);
+		nodeId = BenchmarkSupport.randomNodeId(random, dimensions, levels);
+		snapshotRoutingTable = (HyCubeSnapshotRoutingTableImpl) BenchmarkSupport.createRoutingTable(properties, true);
+		BenchmarkSupport.populateRoutingTable(nodeId, snapshotRoutingTable, properties, nodesNum, random);
+
+		ns = routingTable.getNeighborhoodSet();
+		rt1 = routingTable.getRoutingTable1();
+		nsLock = routingTable.getNsLock();
+		rt1Lock = routingTable.getRt1Lock();
+
+		List<int[]> slots = new ArrayList<int[]>();
+		for (int l = 0; l < rt1.length; l++) {
+			for (int s = 0; s < rt1[l].length; s++) {
+				if (! rt1[l][s].isEmpty()) slots.add(new int[] {l, s});
+			}
+		}
+		rt1Slots = slots.toArray(new int[slots.size()][]);
+
+	}
+
+
+	protected int copyNs(ThreadState ts) {
+		nsLock.readLock().lock();
+		try {
+			ts.copy.clear();
+			ts.copy.addAll(ns);
+		}
+		finally {
+			nsLock.readLock().unlock();
+		}
+		return ts.copy.size();
+	}
+
+	protected int copyRt1Slot(ThreadState ts) {
+		int[] slot = rt1Slots[(ts.index++) % rt1Slots.length];
+		rt1Lock.readLock().lock();
+		try {
+			ts.copy.clear();
+			ts.copy.addAll(rt1[slot[0]][slot[1]]);
+		}
+		finally {
+			rt1Lock.readLock().unlock();
+		}
+		return ts.copy.size();
+	}
+
+	protected int readSnapshotRt1Slot(ThreadState ts) {
+		int[] slot = rt1Slots[(ts.index++) % rt1Slots.length];
+		int size = 0;
+		for (RoutingTableEntry rte : snapshotRoutingTable.getSnapshot().getRoutingTable1()[slot[0]][slot[1]]) {
+			if (rte.isEnabled()) size++;
+		}
+		return size;
+	}
+
+	protected void updateRt1Slot(ThreadState ts, HyCubeRoutingTableImpl rt) {
+		int[] slot = rt1Slots[(ts.index++) % rt1Slots.length];
+		rt.getRt1Lock().writeLock().lock();
+		try {
+			//move the first entry to the end of the slot (the slot size does not change):
+			List<RoutingTableEntry> rtSlot = rt.getRoutingTable1()[slot[0]][slot[1]];
+			rtSlot.add(rtSlot.remove(0));
+		}
+		finally {
+			//for the snapshot routing table, a new snapshot is published (the order of the entries in the slot changed):
+			rt.getRt1Lock().writeLock().unlock();
+		}
+	}
+
+
+	@Benchmark
+	@Group("copyNeighborhoodSet")
+	public int copyNeighborhoodSet(ThreadState ts) {
+		return copyNs(ts);
+	}
+
+	@Benchmark
+	@Group("copyRoutingTableSlot")
+	public int copyRoutingTableSlot(ThreadState ts) {
+		return copyRt1Slot(ts);
+	}
+
+
+	@Benchmark
+	@Group("snapshotRoutingTableSlot")
+	public int snapshotRoutingTableSlot(ThreadState ts) {
+		return readSnapshotRt1Slot(ts);
+	}
+
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(3)
+	public int readRoutingTableSlot(ThreadState ts) {
+		return copyRt1Slot(ts);
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public void writeRoutingTableSlot(ThreadState ts) {
+		updateRt1Slot(ts, routingTable);
+	}
+
+
+	@Benchmark
+	@Group("snapshotReadWrite")
+	@GroupThreads(3)
+	public int readSnapshotRoutingTableSlot(ThreadState ts) {
+		return readSnapshotRt1Slot(ts);
+	}
+
+	@Benchmark
+	@Group("snapshotReadWrite")
+	@GroupThreads(1)
+	public void writeSnapshotRoutingTableSlot(ThreadState ts) {
+		updateRt1Slot(ts, snapshotRoutingTable);
+	}
+
+
+}
@@ -0,0 +1,86 @@
+package net.hycube.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.hycube.environment.RunnableScheduledTask;
+import net.hycube.environment.SystemTimeProvider;
+import net.hycube.environment.TimeProvider;
+import net.hycube.environment.TimeProviderType;
+import net.hycube.environment.TimingWheelTimeProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scheduling request timeouts (most of which would be ignored when they fire) with the ScheduledThreadPoolExecutor based SystemTimeProvider
+ * and with the hashed timing wheel (TimingWheelTimeProvider), by one and by several threads.
+ *
+ * @author Artur Olszak
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeProviderScheduleBenchmark {
+
+	@Param({"SYSTEM", "TIMING_WHEEL"})
+	public TimeProviderType timeProviderType;
+
+	@Param({"1000"})
+	public long delay;
+
+
+	protected TimeProvider timeProvider;
+
+	protected Runnable timeoutRunnable = new Runnable() {
+		public void run() {
+		}
+	};
+
+
+	@Setup
+	public void setup() {
+		switch (timeProviderType) {
+			case TIMING_WHEEL:
+				timeProvider = new TimingWheelTimeProvider();
+				break;
+			case SYSTEM:
+			default:
+				timeProvider = new SystemTimeProvider(2);
+				break;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		timeProvider.discard();
+	}
+
+
+	@Benchmark
+	public void schedule() {
+		timeProvider.scheduleWithDelay(new RunnableScheduledTask(timeoutRunnable), delay);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void scheduleConcurrently() {
+		timeProvider.scheduleWithDelay(new RunnableScheduledTask(timeoutRunnable), delay);
+	}
+
+
+}
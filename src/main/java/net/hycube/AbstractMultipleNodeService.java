@@ -3,7 +3,7 @@ package net.hycube;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.InitializationException;
@@ -42,16 +42,19 @@ public abstract class AbstractMultipleNodeService implements MultipleNodeService
 	public static final String PROP_KEY_THREAD_POOL = "ThreadPool";
 	public static final String PROP_KEY_CORE_POOL_SIZE = "PoolSize";
 	public static final String PROP_KEY_KEEP_ALIVE_TIME_SEC = "KeepAliveTimeSec";
+	public static final String PROP_KEY_VIRTUAL_THREADS = "VirtualThreads";
 	public static final String PROP_KEY_EVENT_TYPES = "EventTypes";
 	public static final String PROP_KEY_EVENT_CATEGORY = "EventCategory";
 	public static final String PROP_KEY_EVENT_TYPE_KEY = "EventTypeKey";
 	public static final String PROP_KEY_WAKEABLE = "Wakeable";
+	public static final String PROP_KEY_QUEUE_TYPE = "QueueType";
+	public static final String PROP_KEY_QUEUE_CAPACITY = "QueueCapacity";
 	
 	
 
 	protected EventQueueProcessor eventProcessor;
 	
-	protected Map<EventType, LinkedBlockingQueue<Event>> eventQueues;
+	protected Map<EventType, BlockingQueue<Event>> eventQueues;
 	protected Map<EventType, WakeableManager> wakeableManagers;
 	
 	protected boolean initialized = false;
@@ -73,7 +76,7 @@ public abstract class AbstractMultipleNodeService implements MultipleNodeService
 	 * @see net.hycube.MultipleNodeService#getEventQueues()
 	 */
 	@Override
-	public Map<EventType, LinkedBlockingQueue<Event>> getEventQueues() {
+	public Map<EventType, BlockingQueue<Event>> getEventQueues() {
 		return eventQueues;
 	}
 	
@@ -274,7 +277,7 @@ public abstract class AbstractMultipleNodeService implements MultipleNodeService
 	protected abstract NodeProxyService initializeNodeProxyService(NodeId nodeId,
 			String nodeIdString, String networkAddress,
 			Environment environment,
-			Map<EventType, LinkedBlockingQueue<Event>> eventQueues,
+			Map<EventType, ? extends BlockingQueue<Event>> eventQueues,
 			EventScheduler eventScheduler)
 			throws InitializationException;
 	
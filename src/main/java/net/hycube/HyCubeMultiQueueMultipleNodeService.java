@@ -1,7 +1,7 @@
 package net.hycube;
 
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeId;
@@ -113,7 +113,7 @@ public class HyCubeMultiQueueMultipleNodeService extends MultiQueueMultipleNodeS
 	protected HyCubeNodeProxyService initializeNodeProxyService(NodeId nodeId,
 			String nodeIdString, String networkAddress,
 			Environment environment,
-			Map<EventType, LinkedBlockingQueue<Event>> eventQueues,
+			Map<EventType, ? extends BlockingQueue<Event>> eventQueues,
 			EventScheduler eventScheduler)
 			throws InitializationException {
 		
@@ -2,7 +2,7 @@ package net.hycube;
 
 import java.math.BigInteger;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import net.hycube.common.EntryPoint;
 import net.hycube.core.InitializationException;
@@ -38,19 +38,19 @@ public class HyCubeNodeProxyService extends NodeProxyService implements HyCubeNo
 	
 	
 	
-	public static HyCubeNodeProxyService initialize(String networkAddress, Environment environment, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static HyCubeNodeProxyService initialize(String networkAddress, Environment environment, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initialize(null, null, null, networkAddress, environment, eventQueues, eventScheduler);
 	}
 	
-	public static HyCubeNodeProxyService initialize(NodeId nodeId, String networkAddress, Environment environment, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static HyCubeNodeProxyService initialize(NodeId nodeId, String networkAddress, Environment environment, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initialize(null, nodeId, null, networkAddress, environment, eventQueues, eventScheduler);
 	}
 	
-	public static HyCubeNodeProxyService initialize(String nodeIdString, String networkAddress, Environment environment, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static HyCubeNodeProxyService initialize(String nodeIdString, String networkAddress, Environment environment, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initialize(null, null, nodeIdString, networkAddress, environment, eventQueues, eventScheduler);
 	}
 	
-	protected static HyCubeNodeProxyService initialize(HyCubeNodeProxyService nodeProxy, NodeId nodeId, String nodeIdString, String networkAddress, Environment environment, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	protected static HyCubeNodeProxyService initialize(HyCubeNodeProxyService nodeProxy, NodeId nodeId, String nodeIdString, String networkAddress, Environment environment, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		if (nodeProxy == null) {
 			nodeProxy = new HyCubeNodeProxyService();
 		}
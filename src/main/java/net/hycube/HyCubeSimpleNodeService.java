@@ -2,12 +2,15 @@ package net.hycube;
 
 import java.math.BigInteger;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import net.hycube.core.InitializationException;
 import net.hycube.core.Node;
 import net.hycube.core.NodeId;
 import net.hycube.core.NodePointer;
+import net.hycube.dht.BatchCallback;
 import net.hycube.dht.DeleteCallback;
 import net.hycube.dht.GetCallback;
 import net.hycube.dht.HyCubeResource;
@@ -135,7 +138,7 @@ public class HyCubeSimpleNodeService extends SimpleNodeService implements HyCube
 	protected NodeProxyService initializeNodeProxyService(NodeId nodeId,
 			String nodeIdString, String networkAddress,
 			Environment environment,
-			Map<EventType, LinkedBlockingQueue<Event>> eventQueues,
+			Map<EventType, ? extends BlockingQueue<Event>> eventQueues,
 			EventScheduler eventScheduler)
 			throws InitializationException {
 		
@@ -542,6 +545,102 @@ public class HyCubeSimpleNodeService extends SimpleNodeService implements HyCube
 		else return null;
 	}
 	
+	@Override
+	public BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).putAll(values, batchCallback, batchCallbackArg);
+		else return null;
+	}
+	
+	@Override
+	public BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).getAll(details, batchCallback, batchCallbackArg);
+		else return null;
+	}
+	
+	@Override
+	public BatchCallback deleteAll(NodePointer np, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).deleteAll(np, details, batchCallback, batchCallbackArg);
+		else return null;
+	}
+	
+	@Override
+	public BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).putAll(values, batchCallback, batchCallbackArg, parameters);
+		else return null;
+	}
+	
+	@Override
+	public BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).getAll(details, batchCallback, batchCallbackArg, parameters);
+		else return null;
+	}
+	
+	@Override
+	public BatchCallback deleteAll(NodePointer np, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).deleteAll(np, details, batchCallback, batchCallbackArg, parameters);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<Void> joinAsync(String bootstrapNodeAddress, Object[] joinParameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).joinAsync(bootstrapNodeAddress, joinParameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<NodePointer> lookupAsync(NodeId lookupNodeId, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).lookupAsync(lookupNodeId, parameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<NodePointer[]> searchAsync(NodeId seachNodeId, NodePointer[] initialNodes, short k, boolean ignoreTargetNode, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).searchAsync(seachNodeId, initialNodes, k, ignoreTargetNode, parameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<Object> putAsync(NodePointer np, BigInteger key, Object value, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).putAsync(np, key, value, parameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<Object> refreshPutAsync(NodePointer np, BigInteger key, Object value, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).refreshPutAsync(np, key, value, parameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<Object> getAsync(NodePointer np, BigInteger key, Object detail, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).getAsync(np, key, detail, parameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<Object> deleteAsync(NodePointer np, BigInteger key, Object detail, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).deleteAsync(np, key, detail, parameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<Map<BigInteger, Object>> putAllAsync(Map<BigInteger, ?> values, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).putAllAsync(values, parameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<Map<BigInteger, Object>> getAllAsync(Map<BigInteger, ?> details, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).getAllAsync(details, parameters, timeout);
+		else return null;
+	}
+	
+	@Override
+	public CompletableFuture<Map<BigInteger, Object>> deleteAllAsync(NodePointer np, Map<BigInteger, ?> details, Object[] parameters, long timeout) {
+		if (nodeProxyService != null) return ((NodeProxyService)nodeProxyService).deleteAllAsync(np, details, parameters, timeout);
+		else return null;
+	}
+	
 	
 	
 	
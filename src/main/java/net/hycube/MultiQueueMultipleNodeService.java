@@ -6,7 +6,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.InitializationException;
@@ -16,10 +15,13 @@ import net.hycube.environment.NodeProperties;
 import net.hycube.eventprocessing.Event;
 import net.hycube.eventprocessing.EventCategory;
 import net.hycube.eventprocessing.EventProcessingErrorCallback;
+import net.hycube.eventprocessing.EventProcessingExecutors;
+import net.hycube.eventprocessing.EventQueueFactory;
 import net.hycube.eventprocessing.EventQueueProcessingInfo;
+import net.hycube.eventprocessing.EventQueueType;
 import net.hycube.eventprocessing.EventQueueWakeableManager;
 import net.hycube.eventprocessing.EventType;
-import net.hycube.eventprocessing.NotifyingLinkedBlockingQueue;
+import net.hycube.eventprocessing.NotifyingBlockingQueue;
 import net.hycube.eventprocessing.NotifyingQueue;
 import net.hycube.eventprocessing.ThreadPoolEventQueueProcessor;
 import net.hycube.eventprocessing.ThreadPoolInfo;
@@ -83,7 +85,9 @@ public abstract class MultiQueueMultipleNodeService extends AbstractMultipleNode
 				//read thread pool parameters for the queue:
 				int poolSize = (Integer) threadPoolProperties.getProperty(PROP_KEY_CORE_POOL_SIZE, MappedType.INT);
 				int keepAliveTimeSec = (Integer) threadPoolProperties.getProperty(PROP_KEY_KEEP_ALIVE_TIME_SEC, MappedType.INT);
-				ThreadPoolInfo threadPoolInfo = new ThreadPoolInfo(poolSize, keepAliveTimeSec);
+				boolean virtualThreads = (Boolean) threadPoolProperties.getProperty(PROP_KEY_VIRTUAL_THREADS, MappedType.BOOLEAN);
+				if (poolSize < 0 || (poolSize == 0 && ((! virtualThreads) || (! EventProcessingExecutors.isVirtualThreadsSupported())))) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, threadPoolProperties.getAbsoluteKey(PROP_KEY_CORE_POOL_SIZE), "Invalid parameter value: " + threadPoolProperties.getAbsoluteKey(PROP_KEY_CORE_POOL_SIZE) + ".");
+				ThreadPoolInfo threadPoolInfo = new ThreadPoolInfo(poolSize, keepAliveTimeSec, virtualThreads);
 
 				//get the event types for the queue:
 				List<String> eventTypeKeys = queueProperties.getStringListProperty(PROP_KEY_EVENT_TYPES);
@@ -102,7 +106,13 @@ public abstract class MultiQueueMultipleNodeService extends AbstractMultipleNode
 				//get the wakeable parameter for the queue
 				boolean wakeable = (Boolean) queueProperties.getProperty(PROP_KEY_WAKEABLE, MappedType.BOOLEAN);
 				
-				EventQueueProcessingInfo eqpi = new EventQueueProcessingInfo(threadPoolInfo, eventTypes, wakeable);
+				//get the queue type and capacity:
+				EventQueueType queueType = (EventQueueType) queueProperties.getEnumProperty(PROP_KEY_QUEUE_TYPE, EventQueueType.class);
+				if (queueType == null) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_TYPE), "Invalid parameter value: " + queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_TYPE) + ".");
+				int queueCapacity = (Integer) queueProperties.getProperty(PROP_KEY_QUEUE_CAPACITY, MappedType.INT);
+				if (queueCapacity < 0 || (queueType == EventQueueType.LOCK_FREE_ARRAY && queueCapacity == 0) || (queueType == EventQueueType.LINKED && queueCapacity != 0)) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_CAPACITY), "Invalid parameter value: " + queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_CAPACITY) + ".");
+				
+				EventQueueProcessingInfo eqpi = new EventQueueProcessingInfo(threadPoolInfo, eventTypes, wakeable, queueType, queueCapacity);
 				eventQueuesProcessingInfo[queueIndex] = eqpi;
 
 				
@@ -159,24 +169,24 @@ public abstract class MultiQueueMultipleNodeService extends AbstractMultipleNode
 		devLog.info("Initializing event queues...");
 		userLog.info("Initializing event queues...");
 		
-		ArrayList<LinkedBlockingQueue<Event>> queues = new ArrayList<LinkedBlockingQueue<Event>>(eventQueuesProcessingInfo.length);
+		ArrayList<BlockingQueue<Event>> queues = new ArrayList<BlockingQueue<Event>>(eventQueuesProcessingInfo.length);
 		ArrayList<ThreadPoolInfo> threadPoolInfos = new ArrayList<ThreadPoolInfo>(eventQueuesProcessingInfo.length);
 		Set<EventType> eventTypesSet = new HashSet<EventType>();
-		multiNodeService.eventQueues = new HashMap<EventType, LinkedBlockingQueue<Event>>();
+		multiNodeService.eventQueues = new HashMap<EventType, BlockingQueue<Event>>();
 		multiNodeService.wakeableManagers = new HashMap<EventType, WakeableManager>();
 		for (EventQueueProcessingInfo eqpi : eventQueuesProcessingInfo) {
 			if (eqpi == null) continue;
 			
-			LinkedBlockingQueue<Event> queue;
+			BlockingQueue<Event> queue;
 			WakeableManager wakeableManager;
 			if (eqpi.getWakeable()) {
 				wakeableManager = new EventQueueWakeableManager(eqpi.getThreadPoolInfo().getPoolSize());
-				queue = new NotifyingLinkedBlockingQueue<Event>(wakeableManager.getWakeableManagerLock());
+				queue = EventQueueFactory.createNotifyingQueue(eqpi.getQueueType(), eqpi.getQueueCapacity(), wakeableManager.getWakeableManagerLock());
 				WakeableManagerQueueListener<Event> wakeupQueueListener = new WakeableManagerQueueListener<Event>(wakeableManager);
-				((NotifyingLinkedBlockingQueue<Event>)queue).addListener(wakeupQueueListener);
+				((NotifyingBlockingQueue<Event>)queue).addListener(wakeupQueueListener);
 			}
 			else {
-				queue = new LinkedBlockingQueue<Event>();
+				queue = EventQueueFactory.createQueue(eqpi.getQueueType(), eqpi.getQueueCapacity());
 				wakeableManager = null;
 			}
 			
@@ -254,7 +264,7 @@ public abstract class MultiQueueMultipleNodeService extends AbstractMultipleNode
 		userLog.info("Discarding MultipleNodeService.");
 		
 		//discard the notifying queues
-		for (LinkedBlockingQueue<Event> q : eventQueues.values()) {
+		for (BlockingQueue<Event> q : eventQueues.values()) {
 			if (q instanceof NotifyingQueue) ((NotifyingQueue<Event>)q).discard();
 		}
 
@@ -7,7 +7,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.InitializationException;
@@ -18,8 +17,11 @@ import net.hycube.environment.NodeProperties;
 import net.hycube.eventprocessing.Event;
 import net.hycube.eventprocessing.EventCategory;
 import net.hycube.eventprocessing.EventProcessingErrorCallback;
+import net.hycube.eventprocessing.EventProcessingExecutors;
+import net.hycube.eventprocessing.EventQueueFactory;
 import net.hycube.eventprocessing.EventQueueProcessingInfoNonWakeable;
 import net.hycube.eventprocessing.EventQueueProcessor;
+import net.hycube.eventprocessing.EventQueueType;
 import net.hycube.eventprocessing.EventScheduler;
 import net.hycube.eventprocessing.EventType;
 import net.hycube.eventprocessing.NotifyingBlockingQueue;
@@ -43,9 +45,12 @@ public abstract class MultiQueueNodeServiceNonWakeable implements NodeService {
 	public static final String PROP_KEY_THREAD_POOL = "ThreadPool";
 	public static final String PROP_KEY_CORE_POOL_SIZE = "PoolSize";
 	public static final String PROP_KEY_KEEP_ALIVE_TIME_SEC = "KeepAliveTimeSec";
+	public static final String PROP_KEY_VIRTUAL_THREADS = "VirtualThreads";
 	public static final String PROP_KEY_EVENT_TYPES = "EventTypes";
 	public static final String PROP_KEY_EVENT_CATEGORY = "EventCategory";
 	public static final String PROP_KEY_EVENT_TYPE_KEY = "EventTypeKey";
+	public static final String PROP_KEY_QUEUE_TYPE = "QueueType";
+	public static final String PROP_KEY_QUEUE_CAPACITY = "QueueCapacity";
 	
 	
 	protected NodeProxyService nodeProxyService;
@@ -53,7 +58,7 @@ public abstract class MultiQueueNodeServiceNonWakeable implements NodeService {
 	protected EventQueueProcessor eventProcessor;
 	protected MessageReceiver messageReceiver;
 	
-	protected Map<EventType, LinkedBlockingQueue<Event>> eventQueues;
+	protected Map<EventType, BlockingQueue<Event>> eventQueues;
 	
 	protected EventScheduler eventScheduler;
 	
@@ -107,12 +112,14 @@ public abstract class MultiQueueNodeServiceNonWakeable implements NodeService {
 				
 				if (queueKeys.get(queueIndex) == null || queueKeys.get(queueIndex).trim().isEmpty()) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, nodeServiceProperties.getAbsoluteKey(PROP_KEY_QUEUES), "Invalid parameter value: " + nodeServiceProperties.getAbsoluteKey(PROP_KEY_QUEUES));
 				NodeProperties queueProperties = nodeServiceProperties.getNestedProperty(PROP_KEY_QUEUES, queueKeys.get(queueIndex));
-				NodeProperties threadPoolProperties = nodeServiceProperties.getNestedProperty(PROP_KEY_THREAD_POOL, queueKeys.get(queueIndex));
+				NodeProperties threadPoolProperties = queueProperties.getNestedProperty(PROP_KEY_THREAD_POOL);
 				
 				//read thread pool parameters for the queue:
 				int poolSize = (Integer) threadPoolProperties.getProperty(PROP_KEY_CORE_POOL_SIZE, MappedType.INT);
 				int keepAliveTimeSec = (Integer) threadPoolProperties.getProperty(PROP_KEY_KEEP_ALIVE_TIME_SEC, MappedType.INT);
-				ThreadPoolInfo threadPoolInfo = new ThreadPoolInfo(poolSize, keepAliveTimeSec);
+				boolean virtualThreads = (Boolean) threadPoolProperties.getProperty(PROP_KEY_VIRTUAL_THREADS, MappedType.BOOLEAN);
+				if (poolSize < 0 || (poolSize == 0 && ((! virtualThreads) || (! EventProcessingExecutors.isVirtualThreadsSupported())))) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, threadPoolProperties.getAbsoluteKey(PROP_KEY_CORE_POOL_SIZE), "Invalid parameter value: " + threadPoolProperties.getAbsoluteKey(PROP_KEY_CORE_POOL_SIZE) + ".");
+				ThreadPoolInfo threadPoolInfo = new ThreadPoolInfo(poolSize, keepAliveTimeSec, virtualThreads);
 
 				//get the event types for the queue:
 				List<String> eventTypeKeys = queueProperties.getStringListProperty(PROP_KEY_EVENT_TYPES);
@@ -128,7 +135,13 @@ public abstract class MultiQueueNodeServiceNonWakeable implements NodeService {
 				}
 				
 				
-				EventQueueProcessingInfoNonWakeable eqpi = new EventQueueProcessingInfoNonWakeable(threadPoolInfo, eventTypes);
+				//get the queue type and capacity:
+				EventQueueType queueType = (EventQueueType) queueProperties.getEnumProperty(PROP_KEY_QUEUE_TYPE, EventQueueType.class);
+				if (queueType == null) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_TYPE), "Invalid parameter value: " + queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_TYPE) + ".");
+				int queueCapacity = (Integer) queueProperties.getProperty(PROP_KEY_QUEUE_CAPACITY, MappedType.INT);
+				if (queueCapacity < 0 || (queueType == EventQueueType.LOCK_FREE_ARRAY && queueCapacity == 0) || (queueType == EventQueueType.LINKED && queueCapacity != 0)) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_CAPACITY), "Invalid parameter value: " + queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_CAPACITY) + ".");
+				
+				EventQueueProcessingInfoNonWakeable eqpi = new EventQueueProcessingInfoNonWakeable(threadPoolInfo, eventTypes, queueType, queueCapacity);
 				eventQueuesProcessingInfo[queueIndex] = eqpi;
 				
 			}
@@ -180,15 +193,15 @@ public abstract class MultiQueueNodeServiceNonWakeable implements NodeService {
 		devLog.info("Initializing event queues.");
 		userLog.info("Initializing event queues.");
 		
-		ArrayList<LinkedBlockingQueue<Event>> queues = new ArrayList<LinkedBlockingQueue<Event>>(eventQueuesProcessingInfo.length);
+		ArrayList<BlockingQueue<Event>> queues = new ArrayList<BlockingQueue<Event>>(eventQueuesProcessingInfo.length);
 		ArrayList<ThreadPoolInfo> threadPoolInfos = new ArrayList<ThreadPoolInfo>(eventQueuesProcessingInfo.length);
 		Set<EventType> eventTypeSet = new HashSet<EventType>();
-		nodeService.eventQueues = new HashMap<EventType, LinkedBlockingQueue<Event>>();
+		nodeService.eventQueues = new HashMap<EventType, BlockingQueue<Event>>();
 		for (EventQueueProcessingInfoNonWakeable eqpi : eventQueuesProcessingInfo) {
 			if (eqpi == null) continue;
 			
-			LinkedBlockingQueue<Event> queue;
-			queue = new LinkedBlockingQueue<Event>();
+			BlockingQueue<Event> queue;
+			queue = EventQueueFactory.createQueue(eqpi.getQueueType(), eqpi.getQueueCapacity());
 			
 			for (EventType et : eqpi.getEventTypes()) {
 				if (eventTypeSet.contains(et)) {
@@ -314,7 +327,7 @@ public abstract class MultiQueueNodeServiceNonWakeable implements NodeService {
 	protected abstract NodeProxyService initializeNodeProxyService(
 			NodeId nodeId, String nodeIdString, String networkAddress,
 			Environment environment,
-			Map<EventType, LinkedBlockingQueue<Event>> eventQueues,
+			Map<EventType, ? extends BlockingQueue<Event>> eventQueues,
 			EventScheduler eventScheduler) 
 					throws InitializationException;
 	
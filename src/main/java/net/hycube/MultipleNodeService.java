@@ -1,7 +1,7 @@
 package net.hycube;
 
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeId;
@@ -13,7 +13,7 @@ import net.hycube.transport.MessageReceiverException;
 
 public interface MultipleNodeService {
 
-	public Map<EventType, LinkedBlockingQueue<Event>> getEventQueues();
+	public Map<EventType, BlockingQueue<Event>> getEventQueues();
 
 	public MessageReceiver initializeMessageReceiver()
 			throws InitializationException;
@@ -2,12 +2,15 @@ package net.hycube;
 
 import java.math.BigInteger;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import net.hycube.core.InitializationException;
 import net.hycube.core.Node;
 import net.hycube.core.NodeId;
 import net.hycube.core.NodePointer;
+import net.hycube.dht.BatchCallback;
 import net.hycube.dht.DeleteCallback;
 import net.hycube.dht.GetCallback;
 import net.hycube.dht.PutCallback;
@@ -48,19 +51,19 @@ public class NodeProxyService implements NodeService {
 	
 	
 	
-	public static NodeProxyService initialize(String networkAddress, Environment environment, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static NodeProxyService initialize(String networkAddress, Environment environment, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initialize(null, null, null, networkAddress, environment, eventQueues, eventScheduler);
 	}
 	
-	public static NodeProxyService initialize(NodeId nodeId, String networkAddress, Environment environment, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static NodeProxyService initialize(NodeId nodeId, String networkAddress, Environment environment, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initialize(null, nodeId, null, networkAddress, environment, eventQueues, eventScheduler);
 	}
 	
-	public static NodeProxyService initialize(String nodeIdString, String networkAddress, Environment environment, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static NodeProxyService initialize(String nodeIdString, String networkAddress, Environment environment, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initialize(null, null, nodeIdString, networkAddress, environment, eventQueues, eventScheduler);
 	}
 	
-	protected static NodeProxyService initialize(NodeProxyService nodeProxy, NodeId nodeId, String nodeIdString, String networkAddress, Environment environment, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	protected static NodeProxyService initialize(NodeProxyService nodeProxy, NodeId nodeId, String nodeIdString, String networkAddress, Environment environment, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		
 		userLog.info("Initializing Node Service...");
 		devLog.info("Initializing Node Service...");
@@ -567,6 +570,86 @@ public class NodeProxyService implements NodeService {
 		return node.delete(np, key, detail, deleteCallback, deleteCallbackArg, parameters);
 	}
 	
+	@Override
+	public BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg) {
+		return node.putAll(values, batchCallback, batchCallbackArg);
+	}
+	
+	@Override
+	public BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		return node.getAll(details, batchCallback, batchCallbackArg);
+	}
+	
+	@Override
+	public BatchCallback deleteAll(NodePointer np, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		return node.deleteAll(np, details, batchCallback, batchCallbackArg);
+	}
+	
+	@Override
+	public BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		return node.putAll(values, batchCallback, batchCallbackArg, parameters);
+	}
+	
+	@Override
+	public BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		return node.getAll(details, batchCallback, batchCallbackArg, parameters);
+	}
+	
+	@Override
+	public BatchCallback deleteAll(NodePointer np, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		return node.deleteAll(np, details, batchCallback, batchCallbackArg, parameters);
+	}
+	
+	@Override
+	public CompletableFuture<Void> joinAsync(String bootstrapNodeAddress, Object[] joinParameters, long timeout) {
+		return node.joinAsync(bootstrapNodeAddress, joinParameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<NodePointer> lookupAsync(NodeId lookupNodeId, Object[] parameters, long timeout) {
+		return node.lookupAsync(lookupNodeId, parameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<NodePointer[]> searchAsync(NodeId seachNodeId, NodePointer[] initialNodes, short k, boolean ignoreTargetNode, Object[] parameters, long timeout) {
+		return node.searchAsync(seachNodeId, initialNodes, k, ignoreTargetNode, parameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<Object> putAsync(NodePointer np, BigInteger key, Object value, Object[] parameters, long timeout) {
+		return node.putAsync(np, key, value, parameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<Object> refreshPutAsync(NodePointer np, BigInteger key, Object value, Object[] parameters, long timeout) {
+		return node.refreshPutAsync(np, key, value, parameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<Object> getAsync(NodePointer np, BigInteger key, Object detail, Object[] parameters, long timeout) {
+		return node.getAsync(np, key, detail, parameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<Object> deleteAsync(NodePointer np, BigInteger key, Object detail, Object[] parameters, long timeout) {
+		return node.deleteAsync(np, key, detail, parameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<Map<BigInteger, Object>> putAllAsync(Map<BigInteger, ?> values, Object[] parameters, long timeout) {
+		return node.putAllAsync(values, parameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<Map<BigInteger, Object>> getAllAsync(Map<BigInteger, ?> details, Object[] parameters, long timeout) {
+		return node.getAllAsync(details, parameters, timeout);
+	}
+	
+	@Override
+	public CompletableFuture<Map<BigInteger, Object>> deleteAllAsync(NodePointer np, Map<BigInteger, ?> details, Object[] parameters, long timeout) {
+		return node.deleteAllAsync(np, details, parameters, timeout);
+	}
+	
 	
 	
 	
@@ -8,7 +8,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.InitializationException;
@@ -19,12 +18,14 @@ import net.hycube.environment.NodeProperties;
 import net.hycube.eventprocessing.Event;
 import net.hycube.eventprocessing.EventCategory;
 import net.hycube.eventprocessing.EventProcessingErrorCallback;
+import net.hycube.eventprocessing.EventProcessingExecutors;
+import net.hycube.eventprocessing.EventQueueFactory;
 import net.hycube.eventprocessing.EventQueueProcessingInfo;
 import net.hycube.eventprocessing.EventQueueSchedulerProcessor;
+import net.hycube.eventprocessing.EventQueueType;
 import net.hycube.eventprocessing.EventScheduler;
 import net.hycube.eventprocessing.EventType;
 import net.hycube.eventprocessing.NotifyingBlockingQueue;
-import net.hycube.eventprocessing.NotifyingLinkedBlockingQueue;
 import net.hycube.eventprocessing.ThreadPoolInfo;
 import net.hycube.eventprocessing.WakeableManager;
 import net.hycube.join.JoinCallback;
@@ -46,10 +47,13 @@ public abstract class SchedulingMultiQueueNodeService implements NodeService {
 	public static final String PROP_KEY_THREAD_POOL = "ThreadPool";
 	public static final String PROP_KEY_CORE_POOL_SIZE = "PoolSize";
 	public static final String PROP_KEY_KEEP_ALIVE_TIME_SEC = "KeepAliveTimeSec";
+	public static final String PROP_KEY_VIRTUAL_THREADS = "VirtualThreads";
 	public static final String PROP_KEY_EVENT_TYPES = "EventTypes";
 	public static final String PROP_KEY_EVENT_CATEGORY = "EventCategory";
 	public static final String PROP_KEY_EVENT_TYPE_KEY = "EventTypeKey";
 	public static final String PROP_KEY_WAKEABLE = "Wakeable";
+	public static final String PROP_KEY_QUEUE_TYPE = "QueueType";
+	public static final String PROP_KEY_QUEUE_CAPACITY = "QueueCapacity";
 	
 	
 	protected NodeProxyService nodeProxyService;
@@ -57,9 +61,9 @@ public abstract class SchedulingMultiQueueNodeService implements NodeService {
 	protected EventQueueSchedulerProcessor eventProcessor;
 	protected MessageReceiver messageReceiver;
 	
-	protected Map<EventType, LinkedBlockingQueue<Event>> eventQueues;
+	protected Map<EventType, BlockingQueue<Event>> eventQueues;
 	protected Map<EventType, WakeableManager> wakeableManagersByEventType;
-	protected List<NotifyingLinkedBlockingQueue<Event>> notifyingQueuesList;
+	protected List<NotifyingBlockingQueue<Event>> notifyingQueuesList;
 	
 	protected boolean initialized = false;
 	protected boolean discarded = false;
@@ -110,12 +114,14 @@ public abstract class SchedulingMultiQueueNodeService implements NodeService {
 	
 				if (queueKeys.get(queueIndex) == null || queueKeys.get(queueIndex).trim().isEmpty()) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, nodeServiceProperties.getAbsoluteKey(PROP_KEY_QUEUES), "Invalid parameter value: " + nodeServiceProperties.getAbsoluteKey(PROP_KEY_QUEUES));
 				NodeProperties queueProperties = nodeServiceProperties.getNestedProperty(PROP_KEY_QUEUES, queueKeys.get(queueIndex));
-				NodeProperties threadPoolProperties = nodeServiceProperties.getNestedProperty(PROP_KEY_THREAD_POOL, queueKeys.get(queueIndex));
+				NodeProperties threadPoolProperties = queueProperties.getNestedProperty(PROP_KEY_THREAD_POOL);
 				
 				//read thread pool parameters for the queue:
 				int poolSize = (Integer) threadPoolProperties.getProperty(PROP_KEY_CORE_POOL_SIZE, MappedType.INT);
 				int keepAliveTimeSec = (Integer) threadPoolProperties.getProperty(PROP_KEY_KEEP_ALIVE_TIME_SEC, MappedType.INT);
-				ThreadPoolInfo threadPoolInfo = new ThreadPoolInfo(poolSize, keepAliveTimeSec);
+				boolean virtualThreads = (Boolean) threadPoolProperties.getProperty(PROP_KEY_VIRTUAL_THREADS, MappedType.BOOLEAN);
+				if (poolSize < 0 || (poolSize == 0 && ((! virtualThreads) || (! EventProcessingExecutors.isVirtualThreadsSupported())))) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, threadPoolProperties.getAbsoluteKey(PROP_KEY_CORE_POOL_SIZE), "Invalid parameter value: " + threadPoolProperties.getAbsoluteKey(PROP_KEY_CORE_POOL_SIZE) + ".");
+				ThreadPoolInfo threadPoolInfo = new ThreadPoolInfo(poolSize, keepAliveTimeSec, virtualThreads);
 
 				//get the event types for the queue:
 				List<String> eventTypeKeys = queueProperties.getStringListProperty(PROP_KEY_EVENT_TYPES);
@@ -134,7 +140,13 @@ public abstract class SchedulingMultiQueueNodeService implements NodeService {
 				//get the wakeable parameter for the queue
 				boolean wakeable = (Boolean) queueProperties.getProperty(PROP_KEY_WAKEABLE, MappedType.BOOLEAN);
 				
-				EventQueueProcessingInfo eqpi = new EventQueueProcessingInfo(threadPoolInfo, eventTypes, wakeable);
+				//get the queue type and capacity:
+				EventQueueType queueType = (EventQueueType) queueProperties.getEnumProperty(PROP_KEY_QUEUE_TYPE, EventQueueType.class);
+				if (queueType == null) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_TYPE), "Invalid parameter value: " + queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_TYPE) + ".");
+				int queueCapacity = (Integer) queueProperties.getProperty(PROP_KEY_QUEUE_CAPACITY, MappedType.INT);
+				if (queueCapacity < 0 || (queueType == EventQueueType.LOCK_FREE_ARRAY && queueCapacity == 0) || (queueType == EventQueueType.LINKED && queueCapacity != 0)) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_CAPACITY), "Invalid parameter value: " + queueProperties.getAbsoluteKey(PROP_KEY_QUEUE_CAPACITY) + ".");
+				
+				EventQueueProcessingInfo eqpi = new EventQueueProcessingInfo(threadPoolInfo, eventTypes, wakeable, queueType, queueCapacity);
 				eventQueuesProcessingInfo[queueIndex] = eqpi;
 				
 			}
@@ -186,23 +198,24 @@ public abstract class SchedulingMultiQueueNodeService implements NodeService {
 		devLog.info("Initializing event queues.");
 		userLog.info("Initializing event queues.");
 		
-		ArrayList<LinkedBlockingQueue<Event>> queues = new ArrayList<LinkedBlockingQueue<Event>>(eventQueuesProcessingInfo.length);
+		ArrayList<BlockingQueue<Event>> queues = new ArrayList<BlockingQueue<Event>>(eventQueuesProcessingInfo.length);
 		ArrayList<ThreadPoolInfo> threadPoolInfos = new ArrayList<ThreadPoolInfo>(eventQueuesProcessingInfo.length);
 		Set<EventType> eventTypeSet = new HashSet<EventType>();
-		nodeService.eventQueues = new HashMap<EventType, LinkedBlockingQueue<Event>>();
+		nodeService.eventQueues = new HashMap<EventType, BlockingQueue<Event>>();
 		nodeService.wakeableManagersByEventType = new HashMap<EventType, WakeableManager>();
-		nodeService.notifyingQueuesList = new ArrayList<NotifyingLinkedBlockingQueue<Event>>();
+		nodeService.notifyingQueuesList = new ArrayList<NotifyingBlockingQueue<Event>>();
 		for (EventQueueProcessingInfo eqpi : eventQueuesProcessingInfo) {
 			if (eqpi == null) continue;
 			
-			LinkedBlockingQueue<Event> queue;
+			BlockingQueue<Event> queue;
 			
 			if (eqpi.getWakeable()) {
-				queue = new NotifyingLinkedBlockingQueue<Event>();
-				nodeService.notifyingQueuesList.add((NotifyingLinkedBlockingQueue<Event>) queue);
+				//the insert notify lock and the listener are set by the event processor
+				queue = EventQueueFactory.createNotifyingQueue(eqpi.getQueueType(), eqpi.getQueueCapacity(), null);
+				nodeService.notifyingQueuesList.add((NotifyingBlockingQueue<Event>) queue);
 			}
 			else {
-				queue = new LinkedBlockingQueue<Event>();
+				queue = EventQueueFactory.createQueue(eqpi.getQueueType(), eqpi.getQueueCapacity());
 			}
 			
 			for (EventType et : eqpi.getEventTypes()) {
@@ -233,7 +246,7 @@ public abstract class SchedulingMultiQueueNodeService implements NodeService {
 		//(ThreadPoolInfo[])(threadPoolInfos.toArray(new ThreadPoolInfo[0]))
 		nodeService.eventProcessor = eventProcessor;
 		
-		for (Entry<EventType, LinkedBlockingQueue<Event>> entry : nodeService.eventQueues.entrySet()) {
+		for (Entry<EventType, BlockingQueue<Event>> entry : nodeService.eventQueues.entrySet()) {
 			nodeService.wakeableManagersByEventType.put(entry.getKey(), eventProcessor.getWakeableManagerByQueue(entry.getValue()));
 
 		}
@@ -313,7 +326,7 @@ public abstract class SchedulingMultiQueueNodeService implements NodeService {
 		userLog.info("Discarding multiple queue node service.");
 		
 		//discard the notifying queues
-		for (NotifyingLinkedBlockingQueue<Event> q : notifyingQueuesList) {
+		for (NotifyingBlockingQueue<Event> q : notifyingQueuesList) {
 			q.discard();
 		}
 		
@@ -349,7 +362,7 @@ public abstract class SchedulingMultiQueueNodeService implements NodeService {
 	protected abstract NodeProxyService initializeNodeProxyService(
 			NodeId nodeId, String nodeIdString, String networkAddress,
 			Environment environment,
-			Map<EventType, LinkedBlockingQueue<Event>> eventQueues,
+			Map<EventType, ? extends BlockingQueue<Event>> eventQueues,
 			EventScheduler eventScheduler) 
 					throws InitializationException;
 	
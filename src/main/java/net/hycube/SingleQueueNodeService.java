@@ -2,7 +2,7 @@ package net.hycube;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.InitializationException;
@@ -149,10 +149,10 @@ public abstract class SingleQueueNodeService implements NodeService {
 		
 		
 		@SuppressWarnings("unchecked")
-		LinkedBlockingQueue<Event>[] queues = (LinkedBlockingQueue<Event>[]) new LinkedBlockingQueue<?>[] {queue};
+		BlockingQueue<Event>[] queues = (BlockingQueue<Event>[]) new BlockingQueue<?>[] {queue};
 		
 		
-		Map<EventType, LinkedBlockingQueue<Event>> queuesMap = new HashMap<EventType, LinkedBlockingQueue<Event>>();
+		Map<EventType, BlockingQueue<Event>> queuesMap = new HashMap<EventType, BlockingQueue<Event>>();
 		
 		queuesMap.put(new EventType(EventCategory.receiveMessageEvent), queue);
 		queuesMap.put(new EventType(EventCategory.processReceivedMessageEvent), queue);
@@ -285,7 +285,7 @@ public abstract class SingleQueueNodeService implements NodeService {
 	protected abstract NodeProxyService initializeNodeProxyService(
 			NodeId nodeId, String nodeIdString, String networkAddress,
 			Environment environment,
-			Map<EventType, LinkedBlockingQueue<Event>> eventQueues,
+			Map<EventType, ? extends BlockingQueue<Event>> eventQueues,
 			EventScheduler eventScheduler) 
 					throws InitializationException;
 	
@@ -2,6 +2,7 @@ package net.hycube;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import net.hycube.configuration.GlobalConstants;
@@ -40,7 +41,7 @@ public abstract class SingleQueueNodeServiceNonWakeable implements NodeService {
 	protected NodeProxyService nodeProxyService;
 	protected EventQueueProcessor eventProcessor;
 	protected MessageReceiver messageReceiver;
-	protected LinkedBlockingQueue<Event> queue;
+	protected BlockingQueue<Event> queue;
 	
 	protected EventScheduler eventScheduler;
 	
@@ -135,13 +136,13 @@ public abstract class SingleQueueNodeServiceNonWakeable implements NodeService {
 		
 		//queue:
 		
-		LinkedBlockingQueue<Event> queue = new LinkedBlockingQueue<Event>();
+		BlockingQueue<Event> queue = new LinkedBlockingQueue<Event>();
 		
 		@SuppressWarnings("unchecked")
-		LinkedBlockingQueue<Event>[] queues = (LinkedBlockingQueue<Event>[]) new LinkedBlockingQueue<?>[] {queue};
+		BlockingQueue<Event>[] queues = (BlockingQueue<Event>[]) new BlockingQueue<?>[] {queue};
 
 		
-		Map<EventType, LinkedBlockingQueue<Event>> queuesMap = new HashMap<EventType, LinkedBlockingQueue<Event>>();
+		Map<EventType, BlockingQueue<Event>> queuesMap = new HashMap<EventType, BlockingQueue<Event>>();
 		
 		queuesMap.put(new EventType(EventCategory.receiveMessageEvent), queue);
 		queuesMap.put(new EventType(EventCategory.processReceivedMessageEvent), queue);
@@ -266,7 +267,7 @@ public abstract class SingleQueueNodeServiceNonWakeable implements NodeService {
 	protected abstract NodeProxyService initializeNodeProxyService(
 			NodeId nodeId, String nodeIdString, String networkAddress,
 			Environment environment,
-			Map<EventType, LinkedBlockingQueue<Event>> eventQueues,
+			Map<EventType, ? extends BlockingQueue<Event>> eventQueues,
 			EventScheduler eventScheduler) 
 					throws InitializationException;
 	
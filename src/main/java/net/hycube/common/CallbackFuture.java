@@ -0,0 +1,131 @@
+package net.hycube.common;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import net.hycube.environment.TimeProvider;
+import net.hycube.environment.TimingWheelTimeProvider;
+import net.hycube.eventprocessing.Event;
+import net.hycube.eventprocessing.EventProcessException;
+import net.hycube.eventprocessing.EventType;
+import net.hycube.eventprocessing.ProcessEventProxy;
+import net.hycube.eventprocessing.ScheduledEvent;
+
+/**
+ * Base class for the futures used as callbacks of the asynchronous node operations.
+ * The future is completed directly by the callback method (called by the thread processing the callback event), so no thread is blocked waiting for the result.
+ * When the future is cancelled or times out, the ongoing request is removed from the manager (cancelRequest()), and the callback is not called afterwards.
+ * The managers set the id of the request (setRequestId()) when the request is started, so that the request may be removed from the pending requests by its id.
+ *
+ * @author Artur Olszak
+ *
+ */
+public abstract class CallbackFuture<T> extends CompletableFuture<T> {
+
+
+	protected volatile int requestId;
+	protected volatile boolean requestIdSet;
+
+
+	/**
+	 * Removes the request from the manager's pending requests (called when the future is cancelled or timed out)
+	 */
+	protected abstract void cancelRequest();
+
+
+	/**
+	 * Sets the id of the request (lookup id, search id, DHT command id). Called by the manager when the request is started.
+	 */
+	public void setRequestId(int requestId) {
+		this.requestId = requestId;
+		this.requestIdSet = true;
+	}
+
+	public int getRequestId() {
+		return requestId;
+	}
+
+	public boolean isRequestIdSet() {
+		return requestIdSet;
+	}
+
+
+	/**
+	 * Schedules the timeout of the future. If the future is not completed within the timeout, the timeout event is inserted to the event queue,
+	 * and the thread processing the event completes the future exceptionally with a TimeoutException and cancels the request.
+	 * When the future is completed before the timeout elapses, the scheduled timeout is cancelled (if the time provider supports cancelling the scheduled tasks),
+	 * or the timeout event releases the reference to the future.
+	 * A timeout value of 0 means that no timeout is scheduled (the request is still subject to the timeout of the manager).
+	 */
+	public CallbackFuture<T> scheduleTimeout(TimeProvider timeProvider, Queue<Event> queue, EventType eventType, final long timeout) {
+		if (timeout < 0) throw new IllegalArgumentException("The timeout should be a non-negative number.");
+		if (timeout == 0) return this;
+
+		final TimeoutEventProxy proxy = new TimeoutEventProxy(this, timeout);
+		Event event = new Event(timeProvider.getCurrentTime(), eventType, proxy, new Object[0]);
+		ScheduledEvent scheduledEvent = new ScheduledEvent(event, queue);
+		if (timeProvider instanceof TimingWheelTimeProvider) {
+			proxy.scheduledTimeout = ((TimingWheelTimeProvider) timeProvider).scheduleWithDelayCancellable(scheduledEvent, timeout);
+		}
+		else {
+			timeProvider.scheduleWithDelay(scheduledEvent, timeout);
+		}
+
+		//called immediately if the future is already completed:
+		whenComplete(new BiConsumer<T, Throwable>() {
+			@Override
+			public void accept(T result, Throwable e) {
+				proxy.release();
+			}
+		});
+
+		return this;
+
+	}
+
+
+	/**
+	 * Processes the timeout event of the future (by the thread processing the event queue)
+	 */
+	protected static class TimeoutEventProxy implements ProcessEventProxy {
+
+		protected volatile CallbackFuture<?> future;
+		protected final long timeout;
+		protected volatile TimingWheelTimeProvider.Timeout scheduledTimeout;
+
+		protected TimeoutEventProxy(CallbackFuture<?> future, long timeout) {
+			this.future = future;
+			this.timeout = timeout;
+		}
+
+		@Override
+		public void processEvent(Event event) throws EventProcessException {
+			CallbackFuture<?> future = this.future;
+			if (future != null && future.completeExceptionally(new TimeoutException("The operation did not complete within " + timeout + " ms."))) {
+				future.cancelRequest();
+			}
+		}
+
+		//called when the future is completed:
+		protected void release() {
+			future = null;
+			TimingWheelTimeProvider.Timeout scheduledTimeout = this.scheduledTimeout;
+			if (scheduledTimeout != null) scheduledTimeout.cancel();
+		}
+
+	}
+
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		if (cancelled) {
+			cancelRequest();
+		}
+		return cancelled;
+	}
+
+
+}
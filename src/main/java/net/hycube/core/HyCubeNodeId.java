@@ -5,6 +5,7 @@ package net.hycube.core;
 
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.text.ParseException;
 import java.util.Arrays;
@@ -43,8 +44,8 @@ public class HyCubeNodeId extends NodeId implements Serializable {
 	
 	
 	protected static final int storeVarSize = Integer.SIZE;    //coords and digits are stored in long variables
-	protected static final long max = 0x00000000FFFFFFFF;
-	protected static final long intMask = 0x00000000FFFFFFFF;
+	protected static final long max = 0x00000000FFFFFFFFL;
+	protected static final long intMask = 0x00000000FFFFFFFFL;
 	protected int numBits;
 	protected int dimensions;
 	protected int digitsCount;
@@ -54,6 +55,15 @@ public class HyCubeNodeId extends NodeId implements Serializable {
 	protected int digitElemCount;
 	protected int coordElemCount;
 	
+	//values of the coordinates, digits and the whole ID (as a one-dimensional number) converted to double values,
+	//calculated when needed and reset whenever the ID is modified (the arrays themselves are never modified after being set):
+	protected transient volatile double[] dimensionNums;
+	protected transient volatile double[] digitNums;
+	protected transient volatile double[] ringNum;
+	
+	//big endian byte representation of the ID (written to messages), calculated when needed and reset whenever the ID is modified:
+	protected transient volatile byte[] bigEndianBytes;
+	
 
 
     public int getNumBits() {
@@ -135,6 +145,7 @@ public class HyCubeNodeId extends NodeId implements Serializable {
         coords = null;
         digitElemCount = 0;
         coordElemCount = 0;
+        resetNums();
         
     }
     
@@ -173,6 +184,9 @@ public class HyCubeNodeId extends NodeId implements Serializable {
             }
 
         }
+        
+        resetNums();
+        
     }
 
 
@@ -191,6 +205,7 @@ public class HyCubeNodeId extends NodeId implements Serializable {
     protected void allocateMemForDigits() {
         digits = new long[digitsCount * ((dimensions - 1) / storeVarSize + 1)];
         digitElemCount = ((dimensions - 1) / storeVarSize + 1);
+        resetNums();
     }
 
     /**
@@ -199,6 +214,17 @@ public class HyCubeNodeId extends NodeId implements Serializable {
     protected void allocateMemForCoords() {
         coords = new long[dimensions * ((digitsCount - 1) / storeVarSize + 1)];
         coordElemCount = ((digitsCount - 1) / storeVarSize + 1);
+        resetNums();
+    }
+
+    /**
+     * Resets the cached double values of the coordinates and digits (and the cached byte representation). Should be called whenever the coords or digits tables are modified
+     */
+    protected void resetNums() {
+        dimensionNums = null;
+        digitNums = null;
+        ringNum = null;
+        bigEndianBytes = null;
     }
 
     /**
@@ -255,6 +281,14 @@ public class HyCubeNodeId extends NodeId implements Serializable {
     protected void actualizeDigitsFromCoord(int dimension) {
         if (digits == null) allocateMemForDigits();
 
+        //zero the bits exceeding the coordinate length (left by overflows in arithmetic operations), so that the coordinate value is always less than 2^digitsCount:
+        for (int i = 0; i < coordElemCount; i++) {
+            coords[coordElemCount * dimension + i] &= intMask;
+        }
+        if (digitsCount % storeVarSize != 0) {
+            coords[coordElemCount * dimension] &= (((long)1 << (digitsCount % storeVarSize)) - 1);
+        }
+
         for (int d = 0; d < digitsCount; d++) {
             if ((coords[coordElemCount * (dimension) + ((digitsCount - 1) / storeVarSize - (digitsCount - 1 - d) / storeVarSize)] & ((long)1 << ((digitsCount - 1 - d) % storeVarSize))) != 0) {
                 digits[digitElemCount * (d) + ((dimensions - 1) / storeVarSize - (dimensions - 1 - dimension) / storeVarSize)] |= (long)((long)1 << ((dimensions - 1 - dimension) % storeVarSize));
@@ -263,6 +297,7 @@ public class HyCubeNodeId extends NodeId implements Serializable {
                 digits[digitElemCount * (d) + ((dimensions - 1) / storeVarSize - (dimensions - 1 - dimension) / storeVarSize)] &= (~(long)((long)1 << ((dimensions - 1 - dimension) % storeVarSize)));
             }
         }
+        resetNums();
     }
 
     /**
@@ -290,6 +325,7 @@ public class HyCubeNodeId extends NodeId implements Serializable {
                 coords[coordElemCount * (d) + ((digitsCount - 1) / storeVarSize - (digitsCount - 1 - digit) / storeVarSize)] &= (~(long)((long)1 << ((digitsCount - 1 - digit) % storeVarSize)));
             }
         }
+        resetNums();
     }
 
     /**
@@ -755,6 +791,35 @@ public class HyCubeNodeId extends NodeId implements Serializable {
     public double getNumByDimension(int dimension) {
         if (dimension >= dimensions) return 0;
 
+        return getNumsByDimension()[dimension];
+    }
+
+    /**
+     * Gets the numbers representing the coordinates of the identifier in all dimensions.
+     * The values are calculated once and cached until the ID is modified. The returned array is shared and should not be modified
+     * @return
+     */
+    public double[] getNumsByDimension() {
+        double[] nums = dimensionNums;
+        if (nums == null) {
+            nums = new double[dimensions];
+            //for IDs with no digits (e.g. zero-length prefixes), all coordinates are 0:
+            if (digitsCount > 0) {
+                for (int dim = 0; dim < dimensions; dim++) {
+                    nums[dim] = calculateNumByDimension(dim);
+                }
+            }
+            dimensionNums = nums;
+        }
+        return nums;
+    }
+
+    /**
+     * Calculates the number representing the coordinate of the identifier in given dimension from the coords table
+     * @param dimension Dimension
+     * @return
+     */
+    protected double calculateNumByDimension(int dimension) {
         double result = 0;
         for (int i = 0; i < (digitsCount - 1) / storeVarSize + 1; i++) {
             //result = result * Math.pow(2, storeVarSize);
@@ -776,6 +841,34 @@ public class HyCubeNodeId extends NodeId implements Serializable {
     public double getDigit(int d) {
         if (d >= digitsCount) return 0;
 
+        return getDigits()[d];
+    }
+
+    /**
+     * Gets the numbers representing all digits of the identifier.
+     * The values are calculated once and cached until the ID is modified. The returned array is shared and should not be modified
+     * @return
+     */
+    public double[] getDigits() {
+        double[] nums = digitNums;
+        if (nums == null) {
+            nums = new double[digitsCount];
+            if (dimensions > 0) {
+                for (int d = 0; d < digitsCount; d++) {
+                    nums[d] = calculateDigit(d);
+                }
+            }
+            digitNums = nums;
+        }
+        return nums;
+    }
+
+    /**
+     * Calculates the number representing the digit at position d from the digits table
+     * @param d Digit index
+     * @return
+     */
+    protected double calculateDigit(int d) {
         double result = 0;
         for (int i = 0; i < (dimensions - 1) / storeVarSize + 1; i++) {
             //result = result * Math.pow(2, storeVarSize);
@@ -888,19 +981,23 @@ public class HyCubeNodeId extends NodeId implements Serializable {
         int dimensions = point.dimensions;
         int result = 0;
 
+        double[] numsCenter = center.getNumsByDimension();
+        double[] nums1 = point.getNumsByDimension();
+        double range = quickPow2(digitsCount);
+
         for (int i = 0; i < dimensions; i++) {
             boolean dimResult;
 
-            double numCenterDim = center.getNumByDimension(i);
-            double num1Dim = point.getNumByDimension(i);
+            double numCenterDim = numsCenter[i];
+            double num1Dim = nums1[i];
 
             if (num1Dim > numCenterDim)
-                if (num1Dim - numCenterDim < numCenterDim + quickPow2(digitsCount) - num1Dim)
+                if (num1Dim - numCenterDim < numCenterDim + range - num1Dim)
                     dimResult = true;
                 else
                     dimResult = false;
             else
-                if (numCenterDim - num1Dim < num1Dim + quickPow2(digitsCount) - numCenterDim)
+                if (numCenterDim - num1Dim < num1Dim + range - numCenterDim)
                     dimResult = false;
                 else
                     dimResult = true;
@@ -966,10 +1063,6 @@ public class HyCubeNodeId extends NodeId implements Serializable {
      */
     public static double calculateDistance(HyCubeNodeId id1, HyCubeNodeId id2, Metric metric) {
         if (id1.numBits != id2.numBits || id1.dimensions != id2.dimensions) throw new NodeIdOperationException("IDs should have the same lengths and numbers of dimensions");
-        int dimensions = id1.dimensions;
-        int numDigits = id1.digitsCount;
-
-        double dist = 0;
 
         switch (metric) {
         	case RING:
@@ -978,42 +1071,63 @@ public class HyCubeNodeId extends NodeId implements Serializable {
         	case EUCLIDEAN:
         	case CHEBYSHEV:
 	        default:
-		        for (int i = 0; i < dimensions; i++) {
-		            double num1Dim = id1.getNumByDimension(i);
-		            double num2Dim = id2.getNumByDimension(i);
-		
-		            double temp1 = (num1Dim <= num2Dim ? num1Dim : num2Dim); 	//min
-		            double temp2 = (num1Dim >= num2Dim ? num1Dim : num2Dim);    //max
-		
-		            switch (metric) {
-		                case MANHATTAN:
-		                    dist += Math.min(temp2 - temp1, temp1 + quickPow2(numDigits) - temp2);
-		                    break;
-		                case EUCLIDEAN:
-		                    dist += Math.pow(Math.min(temp2 - temp1, temp1 + quickPow2(numDigits) - temp2), 2);
-		                    break;
-		                case CHEBYSHEV:
-		                    if (dist < Math.min(temp2 - temp1, temp1 + quickPow2(numDigits) - temp2)) dist = Math.min(temp2 - temp1, temp1 + quickPow2(numDigits) - temp2);
-		                    break;
-		                default:
-		                    dist += Math.pow(Math.min(temp2 - temp1, temp1 + quickPow2(numDigits) - temp2), 2);
-		                    break;
-		            }
-		        }
-		        switch (metric) {
-		            case MANHATTAN:
-		                return dist;
-		            case EUCLIDEAN:
-		                return Math.pow(dist, 0.5);
-		            case CHEBYSHEV:
-		                return dist;
-		            default:
-		                return Math.pow(dist, 0.5);
-		        }
+	        	return calculateDistance(id1.getNumsByDimension(), id2.getNumsByDimension(), quickPow2(id1.digitsCount), metric);
         }
         
     }
 
+    /**
+     * Calculates the distance between two points given by their coordinates (with double floating point presision).
+     * The space is treated as a torus - in every dimension, the coordinates are in the range [0, range).
+     * This method does not allocate any memory, and may be called directly for coordinates returned by getNumsByDimension()
+     * @param nums1 Coordinates of the first point
+     * @param nums2 Coordinates of the second point
+     * @param range Size of the space in every dimension (2^digitsCount)
+     * @param metric Metric used to calculate the distance (RING is treated like EUCLIDEAN, as the coordinates do not determine the position on the ring)
+     * @return
+     */
+    public static double calculateDistance(double[] nums1, double[] nums2, double range, Metric metric) {
+        int dimensions = nums1.length;
+
+        double dist = 0;
+
+        switch (metric) {
+            case MANHATTAN:
+                for (int i = 0; i < dimensions; i++) {
+                    dist += calculateDistanceInDimension(nums1[i], nums2[i], range);
+                }
+                return dist;
+            case CHEBYSHEV:
+                for (int i = 0; i < dimensions; i++) {
+                    double distDim = calculateDistanceInDimension(nums1[i], nums2[i], range);
+                    if (dist < distDim) dist = distDim;
+                }
+                return dist;
+            case EUCLIDEAN:
+            default:
+                for (int i = 0; i < dimensions; i++) {
+                    double distDim = calculateDistanceInDimension(nums1[i], nums2[i], range);
+                    dist += distDim * distDim;
+                }
+                return Math.sqrt(dist);
+        }
+
+    }
+
+    /**
+     * Calculates the distance between two coordinates in one dimension (treating the dimension as a ring of the given size)
+     * @param num1Dim Coordinate 1
+     * @param num2Dim Coordinate 2
+     * @param range Size of the dimension (2^digitsCount)
+     * @return
+     */
+    public static double calculateDistanceInDimension(double num1Dim, double num2Dim, double range) {
+        double temp1 = (num1Dim <= num2Dim ? num1Dim : num2Dim);    //min
+        double temp2 = (num1Dim >= num2Dim ? num1Dim : num2Dim);    //max
+
+        return Math.min(temp2 - temp1, temp1 + range - temp2);
+    }
+
     /**
      * Calculated the distance between two identifiers, applying Steinhaus transform
      * @param id1 ID1
@@ -1035,16 +1149,27 @@ public class HyCubeNodeId extends NodeId implements Serializable {
             steinhausPoint = steinhausPoint.getSubID(0, id1.digitsCount);
         }
 
-        //calculate distances for Steinhaus transform
-        double distXY = calculateDistance(id1, id2, metric);
+        if (metric == Metric.RING) {
+            double distXY = calculateRingDistance(id1, id2);
+            if (distXY == 0) return 0;
+            return 2 * distXY / (calculateRingDistance(steinhausPoint, id1) + calculateRingDistance(steinhausPoint, id2) + distXY);
+        }
+
+        //calculate distances for Steinhaus transform (directly on the cached coordinates)
+        double[] nums1 = id1.getNumsByDimension();
+        double[] nums2 = id2.getNumsByDimension();
+        double range = quickPow2(id1.digitsCount);
+
+        double distXY = calculateDistance(nums1, nums2, range, metric);
         
         //return 0 when distXY = 0. otherwise, when steinhausPoint equals X=Y,  the denominator in the Steinhaus transform would be zero
         if (distXY == 0) {
         	return 0;
         }
         
-        double distXA = calculateDistance(steinhausPoint, id1, metric);
-        double distYA = calculateDistance(steinhausPoint, id2, metric);
+        double[] numsA = steinhausPoint.getNumsByDimension();
+        double distXA = calculateDistance(numsA, nums1, range, metric);
+        double distYA = calculateDistance(numsA, nums2, range, metric);
 
         //calculate the value of Steinhaus transform:
         double dist = 2 * distXY / (distXA + distYA + distXY);
@@ -1066,19 +1191,7 @@ public class HyCubeNodeId extends NodeId implements Serializable {
         if (dim < 0 || dim >= id1.dimensions)
             throw new NodeIdOperationException("Invalid value of parameter dim");
 
-        int digitsCount = id1.digitsCount;
-
-        double dist = 0;
-
-        double num1Dim = id1.getNumByDimension(dim);
-        double num2Dim = id2.getNumByDimension(dim);
-
-        double temp1 = (num1Dim <= num2Dim ? num1Dim : num2Dim);    //min
-        double temp2 = (num1Dim >= num2Dim ? num1Dim : num2Dim);    //max
-
-        dist = Math.min(temp2 - temp1, temp1 + quickPow2(digitsCount) - temp2);
-
-        return dist;
+        return calculateDistanceInDimension(id1.getNumByDimension(dim), id2.getNumByDimension(dim), quickPow2(id1.digitsCount));
     }
 
 
@@ -1325,14 +1438,46 @@ public class HyCubeNodeId extends NodeId implements Serializable {
      * @return
      */
     public static double calculateRingDistance(HyCubeNodeId id1, HyCubeNodeId id2) {
-        HyCubeNodeId temp1 = new HyCubeNodeId(1, id1.numBits, id1.getId());
-        HyCubeNodeId temp2 = new HyCubeNodeId(1, id2.numBits, id2.getId());
-        return calculateDistance(temp1, temp2, Metric.MANHATTAN);
+        if (id1.numBits != id2.numBits) throw new NodeIdOperationException("IDs should have the same lengths");
+        return calculateDistanceInDimension(id1.getRingNum(), id2.getRingNum(), quickPow2(id1.numBits));
+    }
+
+    /**
+     * Gets the number representing the position of the ID on a one-dimensional torus (ring) - the coordinate of the ID treated as a one-dimensional ID.
+     * The value is calculated once and cached until the ID is modified
+     * @return
+     */
+    protected double getRingNum() {
+        double[] num = ringNum;
+        if (num == null) {
+            num = new double[] { (numBits > 0 ? new HyCubeNodeId(1, numBits, this.getId()).getNumByDimension(0) : 0) };
+            ringNum = num;
+        }
+        return num[0];
     }
 
     
     
     
+    /**
+     * Writes the byte representation of the ID to the buffer. The big endian representation (used in messages) is calculated once and cached until the ID is modified
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, ByteOrder byteOrder) {
+        if (byteOrder == ByteOrder.BIG_ENDIAN) {
+            byte[] b = bigEndianBytes;
+            if (b == null) {
+                b = getBytes(byteOrder);
+                bigEndianBytes = b;
+            }
+            buffer.put(b);
+        }
+        else {
+            buffer.put(getBytes(byteOrder));
+        }
+    }
+    
+    
     public byte[] getBytes(ByteOrder byteOrder) {
     	byte[] b = new byte[getByteLength(dimensions, digitsCount)];
     	int index;
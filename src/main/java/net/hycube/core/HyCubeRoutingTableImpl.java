@@ -84,15 +84,25 @@ public class HyCubeRoutingTableImpl implements RoutingTable, HyCubeRoutingTable
     
     
     //locks
-    protected final ReentrantReadWriteLock nsLock = new ReentrantReadWriteLock(false);
-    protected final ReentrantReadWriteLock rt1Lock = new ReentrantReadWriteLock(false);
-    protected final ReentrantReadWriteLock rt2Lock = new ReentrantReadWriteLock(false);
-    protected final ReentrantReadWriteLock secRt1Lock = new ReentrantReadWriteLock(false);
-    protected final ReentrantReadWriteLock secRt2Lock = new ReentrantReadWriteLock(false);
+    protected final ReentrantReadWriteLock nsLock = createLock(HyCubeRoutingTableType.NS);
+    protected final ReentrantReadWriteLock rt1Lock = createLock(HyCubeRoutingTableType.RT1);
+    protected final ReentrantReadWriteLock rt2Lock = createLock(HyCubeRoutingTableType.RT2);
+    protected final ReentrantReadWriteLock secRt1Lock = createLock(HyCubeRoutingTableType.SecureRT1);
+    protected final ReentrantReadWriteLock secRt2Lock = createLock(HyCubeRoutingTableType.SecureRT2);
     
     
     
     
+    /**
+     * Creates the lock guarding the routing table of the given type. Called while the object is being constructed
+     * @param type Routing table type
+     * @return
+     */
+    protected ReentrantReadWriteLock createLock(HyCubeRoutingTableType type) {
+    	return new ReentrantReadWriteLock(false);
+    }
+    
+    
 	/* (non-Javadoc)
 	 * @see net.hycube.core.HyCubeRoutingTableI#getRoutingTable1()
 	 */
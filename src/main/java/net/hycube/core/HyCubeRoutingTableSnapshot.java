@@ -0,0 +1,98 @@
+package net.hycube.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, versioned snapshot of the HyCube routing tables (NS, RT1, RT2 and the secure routing tables).
+ * The lists (and arrays) returned by the getters must not be modified. Slots that did not change are shared between consecutive snapshots.
+ * Routing table entries are not copied - entries' properties (enabled flag, data) may change after the snapshot is taken,
+ * the same way as for the entries copied from the routing tables under the read locks.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeRoutingTableSnapshot {
+
+	protected final long version;
+
+	protected final List<RoutingTableEntry> neighborhoodSet;
+	protected final List<RoutingTableEntry>[][] routingTable1;
+	protected final List<RoutingTableEntry>[][] routingTable2;
+	protected final List<RoutingTableEntry>[][] secRoutingTable1;
+	protected final List<RoutingTableEntry>[][] secRoutingTable2;
+
+	//all entries, created when requested:
+	protected volatile List<RoutingTableEntry> allEntries;
+
+
+	public HyCubeRoutingTableSnapshot(long version, List<RoutingTableEntry> neighborhoodSet, List<RoutingTableEntry>[][] routingTable1, List<RoutingTableEntry>[][] routingTable2, List<RoutingTableEntry>[][] secRoutingTable1, List<RoutingTableEntry>[][] secRoutingTable2) {
+		this.version = version;
+		this.neighborhoodSet = neighborhoodSet;
+		this.routingTable1 = routingTable1;
+		this.routingTable2 = routingTable2;
+		this.secRoutingTable1 = secRoutingTable1;
+		this.secRoutingTable2 = secRoutingTable2;
+	}
+
+
+	/**
+	 * Version of the snapshot. Every published snapshot has a greater version than the previous one
+	 * @return
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	public List<RoutingTableEntry> getNeighborhoodSet() {
+		return neighborhoodSet;
+	}
+
+	public List<RoutingTableEntry>[][] getRoutingTable1() {
+		return routingTable1;
+	}
+
+	public List<RoutingTableEntry>[][] getRoutingTable2() {
+		return routingTable2;
+	}
+
+	public List<RoutingTableEntry>[][] getSecRoutingTable1() {
+		return secRoutingTable1;
+	}
+
+	public List<RoutingTableEntry>[][] getSecRoutingTable2() {
+		return secRoutingTable2;
+	}
+
+
+	/**
+	 * Returns all routing table entries (from all routing tables) of the snapshot
+	 * @return
+	 */
+	public List<RoutingTableEntry> getAllRoutingTableEntries() {
+		List<RoutingTableEntry> entries = allEntries;
+		if (entries == null) {
+			entries = new ArrayList<RoutingTableEntry>();
+			entries.addAll(neighborhoodSet);
+			addAllEntries(entries, routingTable1);
+			addAllEntries(entries, routingTable2);
+			addAllEntries(entries, secRoutingTable1);
+			addAllEntries(entries, secRoutingTable2);
+			entries = Collections.unmodifiableList(entries);
+			allEntries = entries;
+		}
+		return entries;
+	}
+
+	protected static void addAllEntries(List<RoutingTableEntry> entries, List<RoutingTableEntry>[][] rt) {
+		if (rt == null) return;
+		for (List<RoutingTableEntry>[] level : rt) {
+			for (List<RoutingTableEntry> slot : level) {
+				entries.addAll(slot);
+			}
+		}
+	}
+
+
+}
@@ -0,0 +1,18 @@
+package net.hycube.core;
+
+/**
+ * HyCube routing table publishing immutable snapshots of the routing tables.
+ * Readers may take the current snapshot and operate on it without acquiring the routing table locks.
+ *
+ * @author Artur Olszak
+ *
+ */
+public interface HyCubeSnapshotRoutingTable extends HyCubeRoutingTable {
+
+	/**
+	 * Returns the most recently published snapshot of the routing tables
+	 * @return
+	 */
+	public HyCubeRoutingTableSnapshot getSnapshot();
+
+}
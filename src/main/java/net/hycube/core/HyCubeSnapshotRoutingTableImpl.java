@@ -0,0 +1,348 @@
+package net.hycube.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import net.hycube.environment.NodeProperties;
+
+/**
+ * Copy-on-write HyCube routing table. The routing tables are modified the same way as in HyCubeRoutingTableImpl (under the write locks),
+ * and whenever the write lock of a routing table is released, an immutable snapshot of the modified routing table is published (volatile reference).
+ * Readers may operate on the snapshot (getSnapshot()) without any locking and copying.
+ * Only the slots that were modified are copied (the routing table lists register their modifications) - the remaining slots are shared with the previous snapshot,
+ * and releasing the write lock without any changes to the routing table (e.g. after updating the entries' data) does not create a new snapshot.
+ * The routing table lists created by initialize() should not be replaced with the setters (modifications of other lists would not be published).
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeSnapshotRoutingTableImpl extends HyCubeRoutingTableImpl implements HyCubeSnapshotRoutingTable {
+
+	/**
+	 * Read-write lock that publishes a new snapshot of the routing table before the write lock is released by the writer
+	 */
+	protected class SnapshotPublishingReadWriteLock extends ReentrantReadWriteLock {
+
+		private static final long serialVersionUID = 6153780460137361245L;
+
+		protected final HyCubeRoutingTableType type;
+		protected final SnapshotPublishingWriteLock snapshotPublishingWriteLock;
+
+		protected SnapshotPublishingReadWriteLock(HyCubeRoutingTableType type) {
+			super(false);
+			this.type = type;
+			this.snapshotPublishingWriteLock = new SnapshotPublishingWriteLock(this);
+		}
+
+		@Override
+		public ReentrantReadWriteLock.WriteLock writeLock() {
+			return snapshotPublishingWriteLock;
+		}
+
+	}
+
+	protected class SnapshotPublishingWriteLock extends ReentrantReadWriteLock.WriteLock {
+
+		private static final long serialVersionUID = -2807217561036919364L;
+
+		protected final SnapshotPublishingReadWriteLock lock;
+
+		protected SnapshotPublishingWriteLock(SnapshotPublishingReadWriteLock lock) {
+			super(lock);
+			this.lock = lock;
+		}
+
+		@Override
+		public void unlock() {
+			try {
+				//publish only when the outermost write lock is released (the routing table is still guarded by the lock):
+				if (lock.getWriteHoldCount() == 1) publishSnapshot(lock.type);
+			}
+			finally {
+				super.unlock();
+			}
+		}
+
+	}
+
+
+
+	/**
+	 * Routing table slot (or neighborhood set) list registering itself as modified (since the last published snapshot) when it is changed.
+	 * Modifications are made under the write lock of the routing table, so the registration does not need to be synchronized
+	 */
+	protected class SlotList extends ArrayList<RoutingTableEntry> {
+
+		private static final long serialVersionUID = -4164960440640802123L;
+
+		protected final HyCubeRoutingTableType type;
+		protected final int level;
+		protected final int slot;
+		protected boolean modified;
+
+		protected SlotList(HyCubeRoutingTableType type, int level, int slot, int initialCapacity) {
+			super(initialCapacity);
+			this.type = type;
+			this.level = level;
+			this.slot = slot;
+			this.modified = false;
+		}
+
+		protected void markModified() {
+			if (! modified) {
+				modified = true;
+				modifiedSlots.get(type).add(this);
+			}
+		}
+
+		@Override
+		public boolean add(RoutingTableEntry e) {
+			markModified();
+			return super.add(e);
+		}
+
+		@Override
+		public void add(int index, RoutingTableEntry element) {
+			markModified();
+			super.add(index, element);
+		}
+
+		@Override
+		public boolean addAll(Collection<? extends RoutingTableEntry> c) {
+			markModified();
+			return super.addAll(c);
+		}
+
+		@Override
+		public boolean addAll(int index, Collection<? extends RoutingTableEntry> c) {
+			markModified();
+			return super.addAll(index, c);
+		}
+
+		@Override
+		public RoutingTableEntry set(int index, RoutingTableEntry element) {
+			markModified();
+			return super.set(index, element);
+		}
+
+		@Override
+		public RoutingTableEntry remove(int index) {
+			markModified();
+			return super.remove(index);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			markModified();
+			return super.remove(o);
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> c) {
+			markModified();
+			return super.removeAll(c);
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> c) {
+			markModified();
+			return super.retainAll(c);
+		}
+
+		@Override
+		public boolean removeIf(Predicate<? super RoutingTableEntry> filter) {
+			markModified();
+			return super.removeIf(filter);
+		}
+
+		@Override
+		protected void removeRange(int fromIndex, int toIndex) {
+			markModified();
+			super.removeRange(fromIndex, toIndex);
+		}
+
+		@Override
+		public void replaceAll(UnaryOperator<RoutingTableEntry> operator) {
+			markModified();
+			super.replaceAll(operator);
+		}
+
+		@Override
+		public void sort(Comparator<? super RoutingTableEntry> c) {
+			markModified();
+			super.sort(c);
+		}
+
+		@Override
+		public void clear() {
+			markModified();
+			super.clear();
+		}
+
+	}
+
+
+
+	protected final Object publishLock = new Object();
+
+	protected volatile HyCubeRoutingTableSnapshot snapshot;
+
+	//slots modified since the last snapshot was published, by routing table type (each list is guarded by the write lock of the routing table):
+	protected EnumMap<HyCubeRoutingTableType, List<SlotList>> modifiedSlots;
+
+
+
+	@Override
+	protected ReentrantReadWriteLock createLock(HyCubeRoutingTableType type) {
+		return new SnapshotPublishingReadWriteLock(type);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see net.hycube.core.HyCubeSnapshotRoutingTable#getSnapshot()
+	 */
+	@Override
+	public HyCubeRoutingTableSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+
+
+	@Override
+	public void initialize(NodeProperties properties) throws InitializationException {
+
+		super.initialize(properties);
+
+		modifiedSlots = new EnumMap<HyCubeRoutingTableType, List<SlotList>>(HyCubeRoutingTableType.class);
+		for (HyCubeRoutingTableType type : HyCubeRoutingTableType.values()) {
+			modifiedSlots.put(type, new ArrayList<SlotList>());
+		}
+
+		//replace the routing table lists with lists registering their modifications (the routing table is not used yet):
+		neighborhoodSet = new SlotList(HyCubeRoutingTableType.NS, 0, 0, nsSize);
+		replaceSlots(routingTable1, HyCubeRoutingTableType.RT1);
+		replaceSlots(routingTable2, HyCubeRoutingTableType.RT2);
+		replaceSlots(secRoutingTable1, HyCubeRoutingTableType.SecureRT1);
+		replaceSlots(secRoutingTable2, HyCubeRoutingTableType.SecureRT2);
+
+		synchronized (publishLock) {
+			snapshot = new HyCubeRoutingTableSnapshot(0,
+					copySlot(neighborhoodSet),
+					copyRoutingTable(routingTable1),
+					copyRoutingTable(routingTable2),
+					copyRoutingTable(secRoutingTable1),
+					copyRoutingTable(secRoutingTable2));
+		}
+
+	}
+
+	protected void replaceSlots(List<RoutingTableEntry>[][] rt, HyCubeRoutingTableType type) {
+		if (rt == null) return;
+		for (int level = 0; level < rt.length; level++) {
+			for (int slot = 0; slot < rt[level].length; slot++) {
+				rt[level][slot] = new SlotList(type, level, slot, routingTableSlotSize);
+			}
+		}
+	}
+
+
+
+	/**
+	 * Publishes a new snapshot if the routing table of the given type was modified since the last snapshot was published.
+	 * Should be called by the thread holding the write lock of the routing table
+	 * @param type Routing table type
+	 */
+	protected void publishSnapshot(HyCubeRoutingTableType type) {
+
+		List<SlotList> modified = modifiedSlots.get(type);
+		if (modified.isEmpty()) return;
+
+		synchronized (publishLock) {
+
+			HyCubeRoutingTableSnapshot current = snapshot;
+
+			List<RoutingTableEntry> ns = current.getNeighborhoodSet();
+			List<RoutingTableEntry>[][] rt1 = current.getRoutingTable1();
+			List<RoutingTableEntry>[][] rt2 = current.getRoutingTable2();
+			List<RoutingTableEntry>[][] secRt1 = current.getSecRoutingTable1();
+			List<RoutingTableEntry>[][] secRt2 = current.getSecRoutingTable2();
+
+			switch (type) {
+				case NS:
+					ns = copySlot(neighborhoodSet);
+					break;
+				case RT1:
+					rt1 = copyModifiedSlots(rt1, modified);
+					break;
+				case RT2:
+					rt2 = copyModifiedSlots(rt2, modified);
+					break;
+				case SecureRT1:
+					secRt1 = copyModifiedSlots(secRt1, modified);
+					break;
+				case SecureRT2:
+					secRt2 = copyModifiedSlots(secRt2, modified);
+					break;
+			}
+
+			for (SlotList slotList : modified) {
+				slotList.modified = false;
+			}
+			modified.clear();
+
+			snapshot = new HyCubeRoutingTableSnapshot(current.getVersion() + 1, ns, rt1, rt2, secRt1, secRt2);
+
+		}
+
+	}
+
+
+
+	/**
+	 * Returns an immutable copy of the routing table (the arrays should not be modified)
+	 */
+	@SuppressWarnings("unchecked")
+	protected static List<RoutingTableEntry>[][] copyRoutingTable(List<RoutingTableEntry>[][] rt) {
+		if (rt == null) return null;
+		List<RoutingTableEntry>[][] copy = (List<RoutingTableEntry>[][]) new List<?>[rt.length][];
+		for (int level = 0; level < rt.length; level++) {
+			copy[level] = (List<RoutingTableEntry>[]) new List<?>[rt[level].length];
+			for (int slot = 0; slot < rt[level].length; slot++) {
+				copy[level][slot] = copySlot(rt[level][slot]);
+			}
+		}
+		return copy;
+	}
+
+
+	/**
+	 * Returns a copy of the snapshot routing table prevCopy with the modified slots replaced by their immutable copies.
+	 * The slots and levels that were not modified are shared with prevCopy
+	 */
+	protected static List<RoutingTableEntry>[][] copyModifiedSlots(List<RoutingTableEntry>[][] prevCopy, List<SlotList> modified) {
+		List<RoutingTableEntry>[][] copy = prevCopy.clone();
+		for (SlotList slotList : modified) {
+			if (copy[slotList.level] == prevCopy[slotList.level]) copy[slotList.level] = prevCopy[slotList.level].clone();
+			copy[slotList.level][slotList.slot] = copySlot(slotList);
+		}
+		return copy;
+	}
+
+
+	/**
+	 * Returns an immutable copy of the slot
+	 */
+	protected static List<RoutingTableEntry> copySlot(List<RoutingTableEntry> slot) {
+		if (slot.isEmpty()) return Collections.emptyList();
+		else return Collections.unmodifiableList(new ArrayList<RoutingTableEntry>(slot));
+	}
+
+
+}
@@ -10,6 +10,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -18,11 +19,17 @@ import net.hycube.backgroundprocessing.BackgroundProcessEntryPoint;
 import net.hycube.backgroundprocessing.BackgroundProcessException;
 import net.hycube.common.EntryPoint;
 import net.hycube.configuration.GlobalConstants;
+import net.hycube.dht.BatchCallback;
+import net.hycube.dht.BatchFuture;
 import net.hycube.dht.DHTManager;
 import net.hycube.dht.DeleteCallback;
+import net.hycube.dht.DeleteFuture;
 import net.hycube.dht.GetCallback;
+import net.hycube.dht.GetFuture;
 import net.hycube.dht.PutCallback;
+import net.hycube.dht.PutFuture;
 import net.hycube.dht.RefreshPutCallback;
+import net.hycube.dht.RefreshPutFuture;
 import net.hycube.environment.Environment;
 import net.hycube.environment.NodeProperties;
 import net.hycube.environment.NodePropertiesConversionException;
@@ -36,10 +43,12 @@ import net.hycube.eventprocessing.EventType;
 import net.hycube.eventprocessing.ProcessEventProxy;
 import net.hycube.extensions.Extension;
 import net.hycube.join.JoinCallback;
+import net.hycube.join.JoinFuture;
 import net.hycube.join.JoinManager;
 import net.hycube.leave.LeaveManager;
 import net.hycube.logging.LogHelper;
 import net.hycube.lookup.LookupCallback;
+import net.hycube.lookup.LookupFuture;
 import net.hycube.lookup.LookupManager;
 import net.hycube.maintenance.NotifyProcessor;
 import net.hycube.messaging.ack.AckProcessInfo;
@@ -58,11 +67,13 @@ import net.hycube.messaging.processing.MessageSendProcessInfo;
 import net.hycube.messaging.processing.MessageSendProcessor;
 import net.hycube.messaging.processing.ProcessMessageException;
 import net.hycube.messaging.processing.ProcessReceivedMessageEvent;
+import net.hycube.messaging.processing.ProcessReceivedMessagesEvent;
 import net.hycube.messaging.processing.PushMessageEvent;
 import net.hycube.messaging.processing.ReceivedMessageProcessor;
 import net.hycube.nexthopselection.NextHopSelector;
 import net.hycube.routing.RoutingManager;
 import net.hycube.search.SearchCallback;
+import net.hycube.search.SearchFuture;
 import net.hycube.search.SearchManager;
 import net.hycube.transport.NetworkAdapter;
 import net.hycube.transport.NetworkAdapterException;
@@ -124,17 +135,18 @@ public class Node {
     
 	
 	
-    protected LinkedBlockingQueue<Event>[] eventQueues;
-    protected HashMap<EventCategory, LinkedBlockingQueue<Event>> eventCategoryQueueMap;
-    protected HashMap<String, LinkedBlockingQueue<Event>> backgroundEventQueueMap;
-	protected HashMap<String, LinkedBlockingQueue<Event>> extEventQueueMap;
+    protected BlockingQueue<Event>[] eventQueues;
+    protected HashMap<EventCategory, BlockingQueue<Event>> eventCategoryQueueMap;
+    protected HashMap<String, BlockingQueue<Event>> backgroundEventQueueMap;
+	protected HashMap<String, BlockingQueue<Event>> extEventQueueMap;
     
-    protected LinkedBlockingQueue<Event> retrieveMessageEventQueue;
-    protected LinkedBlockingQueue<Event> processReceivedMessageEventQueue;
-    protected LinkedBlockingQueue<Event> pushMessageEventQueue;
-    protected LinkedBlockingQueue<Event> pushSystemMessageEventQueue;
-    protected LinkedBlockingQueue<Event> processAckCallbackEventQueue;
-    protected LinkedBlockingQueue<Event> processMsgReceivedCallbackEventQueue;
+    protected BlockingQueue<Event> retrieveMessageEventQueue;
+    protected BlockingQueue<Event> processReceivedMessageEventQueue;
+    protected BlockingQueue<Event>[] channelProcessReceivedMessageEventQueues;		//the queues of the messages received by the receiving channels (indexed by the channel index - event type keys), null elements -> processReceivedMessageEventQueue
+    protected BlockingQueue<Event> pushMessageEventQueue;
+    protected BlockingQueue<Event> pushSystemMessageEventQueue;
+    protected BlockingQueue<Event> processAckCallbackEventQueue;
+    protected BlockingQueue<Event> processMsgReceivedCallbackEventQueue;
 
     protected EventScheduler eventScheduler;
     
@@ -240,11 +252,18 @@ public class Node {
 	}
 	
     
-	protected LinkedBlockingQueue<Event> getEventQueue(EventType eventType) {
+	protected BlockingQueue<Event> getEventQueue(EventType eventType) {
 		switch (eventType.getEventCategory()) {
 			case executeBackgroundProcessEvent:
 				if (backgroundEventQueueMap.containsKey(eventType.getEventTypeKey())) return backgroundEventQueueMap.get(eventType.getEventTypeKey());
 				else return backgroundEventQueueMap.get("");
+			case processReceivedMessageEvent:
+				try {
+					return getProcessReceivedMessageEventQueue(Integer.parseInt(eventType.getEventTypeKey()));
+				}
+				catch (NumberFormatException e) {
+					return processReceivedMessageEventQueue;
+				}
 			case extEvent:
 				if (extEventQueueMap.containsKey(eventType.getEventTypeKey())) return extEventQueueMap.get(eventType.getEventTypeKey());
 				else return extEventQueueMap.get("");
@@ -253,7 +272,7 @@ public class Node {
 		}
 	}
 	
-	protected LinkedBlockingQueue<Event> getEventQueue(EventCategory eventCategory) {
+	protected BlockingQueue<Event> getEventQueue(EventCategory eventCategory) {
 		return eventCategoryQueueMap.get(eventCategory);
 	}
 	
@@ -285,20 +304,20 @@ public class Node {
 
 	//initialization:
 	
-	public static Node initializeNode(Environment environment, String networkAddress, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static Node initializeNode(Environment environment, String networkAddress, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initializeNode(environment, null, null, networkAddress, eventQueues, eventScheduler);
 	}
 	
-	public static Node initializeNode(Environment environment, NodeId id, String networkAddress, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static Node initializeNode(Environment environment, NodeId id, String networkAddress, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initializeNode(environment, id, null, networkAddress, eventQueues, eventScheduler);
 	}
 	
-	public static Node initializeNode(Environment environment, String idString, String networkAddress, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	public static Node initializeNode(Environment environment, String idString, String networkAddress, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 		return initializeNode(environment, null, idString, networkAddress, eventQueues, eventScheduler);
 	}
 	
 	
-	protected static Node initializeNode(Environment environment, NodeId id, String idString, String networkAddress, Map<EventType, LinkedBlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
+	protected static Node initializeNode(Environment environment, NodeId id, String idString, String networkAddress, Map<EventType, ? extends BlockingQueue<Event>> eventQueues, EventScheduler eventScheduler) throws InitializationException {
 
 		if (userLog.isInfoEnabled()) {
 			userLog.info("Initializing node. Node id: " + id.toHexString() + ", Network address: " + networkAddress + ".");
@@ -822,21 +841,38 @@ public class Node {
 	
    
     
-	protected void initializeEventQueues(Map<EventType, LinkedBlockingQueue<Event>> eventQueues) {
+	protected void initializeEventQueues(Map<EventType, ? extends BlockingQueue<Event>> eventQueues) {
 
 		if (devLog.isDebugEnabled()) {
 			devLog.debug("Initializing event queues.");
 		}
 		
 		
-		eventCategoryQueueMap = new HashMap<EventCategory, LinkedBlockingQueue<Event>>();
-		backgroundEventQueueMap = new HashMap<String, LinkedBlockingQueue<Event>>();
-		extEventQueueMap = new HashMap<String, LinkedBlockingQueue<Event>>();
+		eventCategoryQueueMap = new HashMap<EventCategory, BlockingQueue<Event>>();
+		backgroundEventQueueMap = new HashMap<String, BlockingQueue<Event>>();
+		extEventQueueMap = new HashMap<String, BlockingQueue<Event>>();
+		HashMap<Integer, BlockingQueue<Event>> channelQueueMap = new HashMap<Integer, BlockingQueue<Event>>();
 		
 		for (EventType et : eventQueues.keySet()) {
-			LinkedBlockingQueue<Event> queue = eventQueues.get(et);
+			BlockingQueue<Event> queue = eventQueues.get(et);
 			EventCategory ec = et.getEventCategory();
 
+			//the received messages processing events with a key (receiving channel index) are inserted to separate queues (the messages received by different channels are processed independently):
+			if (ec == EventCategory.processReceivedMessageEvent && et.getEventTypeKey() != null && ! et.getEventTypeKey().isEmpty()) {
+				int channelIndex;
+				try {
+					channelIndex = Integer.parseInt(et.getEventTypeKey());
+				}
+				catch (NumberFormatException e) {
+					throw new EventQueuesInitializationException("The key of the received message processing event type should be the index of the receiving channel: " + et.getEventTypeKey());
+				}
+				if (channelIndex < 0 || channelQueueMap.containsKey(channelIndex)) {
+					throw new EventQueuesInitializationException("Invalid receiving channel index (or the channel index assigned to more than one queue): " + et.getEventTypeKey());
+				}
+				channelQueueMap.put(channelIndex, queue);
+				continue;
+			}
+			
 			if (eventCategoryQueueMap.containsKey(ec)) {
 				throw new EventQueuesInitializationException("Every event type should be assigned to just one queue.");
 			}
@@ -883,6 +919,13 @@ public class Node {
 	
 		}
 		
+		int channelQueuesNum = 0;
+		for (int channelIndex : channelQueueMap.keySet()) channelQueuesNum = Math.max(channelQueuesNum, channelIndex + 1);
+		@SuppressWarnings("unchecked")
+		BlockingQueue<Event>[] channelQueues = (BlockingQueue<Event>[]) new BlockingQueue<?>[channelQueuesNum];
+		for (int channelIndex : channelQueueMap.keySet()) channelQueues[channelIndex] = channelQueueMap.get(channelIndex);
+		channelProcessReceivedMessageEventQueues = channelQueues;
+		
 		
 	}
 	
@@ -900,6 +943,7 @@ public class Node {
 
 
 		processReceivedMessageEventQueue = null;
+		channelProcessReceivedMessageEventQueues = null;
 		retrieveMessageEventQueue = null;
 		pushMessageEventQueue = null;
 		pushSystemMessageEventQueue = null;
@@ -1079,6 +1123,119 @@ public class Node {
 		return dhtManager.delete(np, key, detail, deleteCallback, deleteCallbackArg, parameters);
 	}
 	
+	
+	public BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg) {
+		return dhtManager.putAll(values, batchCallback, batchCallbackArg);
+	}
+	
+	
+	public BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		return dhtManager.getAll(details, batchCallback, batchCallbackArg);
+	}
+	
+	
+	public BatchCallback deleteAll(NodePointer np, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		return dhtManager.deleteAll(np, details, batchCallback, batchCallbackArg);
+	}
+	
+	public BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		return dhtManager.putAll(values, batchCallback, batchCallbackArg, parameters);
+	}
+	
+	
+	public BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		return dhtManager.getAll(details, batchCallback, batchCallbackArg, parameters);
+	}
+	
+	
+	public BatchCallback deleteAll(NodePointer np, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		return dhtManager.deleteAll(np, details, batchCallback, batchCallbackArg, parameters);
+	}
+	
+	
+	
+	//asynchronous operations returning futures (completed by the callbacks, the timeout values of 0 mean that only the timeouts of the managers apply,
+	//the timeouts of the futures are processed in the callback event queues of the managers):
+	
+	public CompletableFuture<Void> joinAsync(String bootstrapNodeAddress, Object[] joinParameters, long timeout) {
+		JoinFuture future = new JoinFuture();
+		joinManager.join(bootstrapNodeAddress, future, null, joinParameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(joinManager.getJoinCallbackEventType()), joinManager.getJoinCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<NodePointer> lookupAsync(NodeId lookupNodeId, Object[] parameters, long timeout) {
+		LookupFuture future = new LookupFuture(lookupManager);
+		lookupManager.lookup(lookupNodeId, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(lookupManager.getLookupCallbackEventType()), lookupManager.getLookupCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<NodePointer[]> searchAsync(NodeId seachNodeId, NodePointer[] initialNodes, short k, boolean ignoreTargetNode, Object[] parameters, long timeout) {
+		SearchFuture future = new SearchFuture(searchManager);
+		searchManager.search(seachNodeId, initialNodes, k, ignoreTargetNode, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(searchManager.getSearchCallbackEventType()), searchManager.getSearchCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<Object> putAsync(NodePointer np, BigInteger key, Object value, Object[] parameters, long timeout) {
+		PutFuture future = new PutFuture(dhtManager);
+		dhtManager.put(np, key, value, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(dhtManager.getPutCallbackEventType()), dhtManager.getPutCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<Object> refreshPutAsync(NodePointer np, BigInteger key, Object value, Object[] parameters, long timeout) {
+		RefreshPutFuture future = new RefreshPutFuture(dhtManager);
+		dhtManager.refreshPut(np, key, value, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(dhtManager.getRefreshPutCallbackEventType()), dhtManager.getRefreshPutCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<Object> getAsync(NodePointer np, BigInteger key, Object detail, Object[] parameters, long timeout) {
+		GetFuture future = new GetFuture(dhtManager);
+		dhtManager.get(np, key, detail, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(dhtManager.getGetCallbackEventType()), dhtManager.getGetCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<Object> deleteAsync(NodePointer np, BigInteger key, Object detail, Object[] parameters, long timeout) {
+		DeleteFuture future = new DeleteFuture(dhtManager);
+		dhtManager.delete(np, key, detail, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(dhtManager.getDeleteCallbackEventType()), dhtManager.getDeleteCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<Map<BigInteger, Object>> putAllAsync(Map<BigInteger, ?> values, Object[] parameters, long timeout) {
+		BatchFuture future = new BatchFuture(dhtManager);
+		dhtManager.putAll(values, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(dhtManager.getPutCallbackEventType()), dhtManager.getPutCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<Map<BigInteger, Object>> getAllAsync(Map<BigInteger, ?> details, Object[] parameters, long timeout) {
+		BatchFuture future = new BatchFuture(dhtManager);
+		dhtManager.getAll(details, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(dhtManager.getGetCallbackEventType()), dhtManager.getGetCallbackEventType(), timeout);
+		return future;
+	}
+	
+	
+	public CompletableFuture<Map<BigInteger, Object>> deleteAllAsync(NodePointer np, Map<BigInteger, ?> details, Object[] parameters, long timeout) {
+		BatchFuture future = new BatchFuture(dhtManager);
+		dhtManager.deleteAll(np, details, future, null, parameters);
+		future.scheduleTimeout(environment.getTimeProvider(), getEventQueue(dhtManager.getDeleteCallbackEventType()), dhtManager.getDeleteCallbackEventType(), timeout);
+		return future;
+	}
+	
 
     
 
@@ -1404,11 +1561,21 @@ public class Node {
 			msgLog.info("Enqueueing pushMessage event #" + info.getMsg().getSerialNoAndSenderString() + ".");
 		}
 		
+		//if the queue is bounded and full, the message is dropped (as if it was lost by the network), so that the node is not overloaded:
+		boolean enqueued;
     	if (info.getMsg().isSystemMessage()) {	
-    		pushSystemMessageEventQueue.add(new PushMessageEvent(timeProvider.getCurrentTime(), this.nodeProcessEventProxy, (MessageSendProcessInfo) info, true));
+    		enqueued = pushSystemMessageEventQueue.offer(new PushMessageEvent(timeProvider.getCurrentTime(), this.nodeProcessEventProxy, (MessageSendProcessInfo) info, true));
     	}
     	else {
-    		pushMessageEventQueue.add(new PushMessageEvent(timeProvider.getCurrentTime(), this.nodeProcessEventProxy, (MessageSendProcessInfo) info, false));
+    		enqueued = pushMessageEventQueue.offer(new PushMessageEvent(timeProvider.getCurrentTime(), this.nodeProcessEventProxy, (MessageSendProcessInfo) info, false));
+    	}
+    	if (! enqueued) {
+    		if (devLog.isWarnEnabled()) {
+    			devLog.warn("The push message event queue is full. Dropping message #" + info.getMsg().getSerialNoAndSenderString() + ".");
+    		}
+    		if (msgLog.isInfoEnabled()) {
+    			msgLog.info("The push message event queue is full. Dropping message #" + info.getMsg().getSerialNoAndSenderString() + ".");
+    		}
     	}
     	
     }
@@ -1581,11 +1748,47 @@ public class Node {
     //method called by networkAdapter when a message is received:
     
 	protected void messageReceived(Message msg, NetworkNodePointer directSender) {
+		messageReceived(msg, directSender, 0);
+	}
+	
+	protected void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders) {
+		messagesReceived(msgs, directSenders, 0);
+	}
+	
+	/**
+	 * Returns the queue of the messages received by the receiving channel (the queue configured for the channel index, or the queue of all received messages)
+	 */
+	protected BlockingQueue<Event> getProcessReceivedMessageEventQueue(int channelIndex) {
+		BlockingQueue<Event>[] channelQueues = channelProcessReceivedMessageEventQueues;
+		if (channelQueues != null && channelIndex >= 0 && channelIndex < channelQueues.length && channelQueues[channelIndex] != null) return channelQueues[channelIndex];
+		else return processReceivedMessageEventQueue;
+	}
+	
+	protected void messageReceived(Message msg, NetworkNodePointer directSender, int channelIndex) {
 		if (devLog.isDebugEnabled()) {
 			devLog.debug("Enqueue the received message for processing.");
 		}
 
-		processReceivedMessageEventQueue.add(new ProcessReceivedMessageEvent(environment.getTimeProvider().getCurrentTime(), this.nodeProcessEventProxy, msg, directSender));
+		//if the queue is bounded and full, the message is dropped (as if it was lost by the network):
+		if (! getProcessReceivedMessageEventQueue(channelIndex).offer(new ProcessReceivedMessageEvent(environment.getTimeProvider().getCurrentTime(), this.nodeProcessEventProxy, msg, directSender))) {
+			if (devLog.isWarnEnabled()) {
+				devLog.warn("The received message event queue is full. Dropping the received message.");
+			}
+		}
+		
+	}
+	
+	protected void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders, int channelIndex) {
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("Enqueue the received messages (" + msgs.length + ") for processing.");
+		}
+		
+		//one event for the whole batch:
+		if (! getProcessReceivedMessageEventQueue(channelIndex).offer(new ProcessReceivedMessagesEvent(environment.getTimeProvider().getCurrentTime(), this.nodeProcessEventProxy, msgs, directSenders))) {
+			if (devLog.isWarnEnabled()) {
+				devLog.warn("The received message event queue is full. Dropping the received messages (" + msgs.length + ").");
+			}
+		}
 		
 	}
     
@@ -1630,8 +1833,14 @@ public class Node {
 			   		//this event type will not be executed in the node context, such events will be processed directly by MessageReceiver instances
 					break;
 				case processReceivedMessageEvent:
-					ProcessReceivedMessageEvent prme = (ProcessReceivedMessageEvent) event;
-					processReceivedMessage(prme.getMessage(), prme.getDirectSender());
+					if (event instanceof ProcessReceivedMessagesEvent) {
+						ProcessReceivedMessagesEvent prmse = (ProcessReceivedMessagesEvent) event;
+						processReceivedMessages(prmse.getMessages(), prmse.getDirectSenders());
+					}
+					else {
+						ProcessReceivedMessageEvent prme = (ProcessReceivedMessageEvent) event;
+						processReceivedMessage(prme.getMessage(), prme.getDirectSender());
+					}
 					break;
 			   	case pushMessageEvent:
 			   		PushMessageEvent pme = (PushMessageEvent) event;
@@ -1714,6 +1923,25 @@ public class Node {
     	}
     	
     }
+	
+	/**
+	 * processes a batch of messages received from the network layer (in the order of the messages in the array).
+	 * An exception thrown while processing a message does not prevent processing the remaining messages - the first exception is rethrown after the whole batch is processed
+	 * @param msgs
+	 * @param directSenders
+	 * @throws ProcessMessageException
+	 */
+	protected void processReceivedMessages(Message[] msgs, NetworkNodePointer[] directSenders) throws ProcessMessageException {
+		ProcessMessageException exception = null;
+		for (int i = 0; i < msgs.length; i++) {
+			try {
+				processReceivedMessage(msgs[i], directSenders[i]);
+			} catch (ProcessMessageException e) {
+				if (exception == null) exception = e;
+			}
+		}
+		if (exception != null) throw exception;
+	}
     
     
     
@@ -2196,6 +2424,24 @@ public class Node {
 			
 		}
 		
+		@Override
+		public void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders) {
+			Node.this.messagesReceived(msgs, directSenders);
+			
+		}
+		
+		@Override
+		public void messageReceived(Message msg, NetworkNodePointer directSender, int channelIndex) {
+			Node.this.messageReceived(msg, directSender, channelIndex);
+			
+		}
+		
+		@Override
+		public void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders, int channelIndex) {
+			Node.this.messagesReceived(msgs, directSenders, channelIndex);
+			
+		}
+		
 	}
 
 
@@ -2,6 +2,7 @@ package net.hycube.core;
 
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 public abstract class NodeId implements Serializable {
@@ -21,6 +22,11 @@ public abstract class NodeId implements Serializable {
 	public abstract long calculateHash();
 	public abstract double getNum();
 	public abstract byte[] getBytes(ByteOrder byteOrder);
+	
+	public void writeTo(ByteBuffer buffer, ByteOrder byteOrder) {
+		buffer.put(getBytes(byteOrder));
+	}
+	
 	public abstract int getByteLength();
     public abstract BigInteger getBigInteger();
 	
@@ -6,6 +6,7 @@ package net.hycube.core;
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.environment.NodePropertiesConversionException;
 import net.hycube.environment.NodeProperties;
+import net.hycube.transport.RttEstimate;
 import net.hycube.utils.ObjectToStringConverter.MappedType;
 
 
@@ -56,6 +57,16 @@ public class NodeParameterSet {
 	public static final String PROP_KEY_PROCESS_ACK_INTERVAL = "ProcessAckInterval"; 
 	public static final String PROP_KEY_RESEND_IF_NO_ACK = "ResendIfNoAck";
 	public static final String PROP_KEY_SEND_RETRIES = "SendRetries";
+	public static final String PROP_KEY_ADAPTIVE_TIMEOUTS = "AdaptiveTimeouts";
+	public static final String PROP_KEY_MIN_ADAPTIVE_TIMEOUT = "MinAdaptiveTimeout";
+	public static final String PROP_KEY_MAX_ADAPTIVE_TIMEOUT = "MaxAdaptiveTimeout";
+	public static final String PROP_KEY_TIMEOUT_BACKOFF_FACTOR = "TimeoutBackoffFactor";
+	public static final String PROP_KEY_REQUEST_PROCESSING_ALLOWANCE = "RequestProcessingAllowance";
+	
+	public static final int DEFAULT_MIN_ADAPTIVE_TIMEOUT = 100;
+	public static final int DEFAULT_MAX_ADAPTIVE_TIMEOUT = 10000;
+	public static final double DEFAULT_TIMEOUT_BACKOFF_FACTOR = 2;
+	public static final int DEFAULT_REQUEST_PROCESSING_ALLOWANCE = 100;
 
 
 	
@@ -70,6 +81,11 @@ public class NodeParameterSet {
 	protected int processAckInterval;
 	protected boolean resendIfNoAck;
 	protected int sendRetries;
+	protected boolean adaptiveTimeouts;
+	protected int minAdaptiveTimeout;
+	protected int maxAdaptiveTimeout;
+	protected double timeoutBackoffFactor;
+	protected int requestProcessingAllowance;
 	
 	
 	
@@ -145,6 +161,94 @@ public class NodeParameterSet {
 	public void setSendRetries(int sendRetries) {
 		this.sendRetries = sendRetries;
 	}
+
+	public boolean isAdaptiveTimeouts() {
+		return adaptiveTimeouts;
+	}
+
+	public void setAdaptiveTimeouts(boolean adaptiveTimeouts) {
+		this.adaptiveTimeouts = adaptiveTimeouts;
+	}
+
+	public int getMinAdaptiveTimeout() {
+		return minAdaptiveTimeout;
+	}
+
+	public void setMinAdaptiveTimeout(int minAdaptiveTimeout) {
+		this.minAdaptiveTimeout = minAdaptiveTimeout;
+	}
+
+	public int getMaxAdaptiveTimeout() {
+		return maxAdaptiveTimeout;
+	}
+
+	public void setMaxAdaptiveTimeout(int maxAdaptiveTimeout) {
+		this.maxAdaptiveTimeout = maxAdaptiveTimeout;
+	}
+
+	public double getTimeoutBackoffFactor() {
+		return timeoutBackoffFactor;
+	}
+
+	public void setTimeoutBackoffFactor(double timeoutBackoffFactor) {
+		this.timeoutBackoffFactor = timeoutBackoffFactor;
+	}
+
+	public int getRequestProcessingAllowance() {
+		return requestProcessingAllowance;
+	}
+
+	public void setRequestProcessingAllowance(int requestProcessingAllowance) {
+		this.requestProcessingAllowance = requestProcessingAllowance;
+	}
+	
+	/**
+	 * The number of times a message is sent if it is not acknowledged (1 + SendRetries if ResendIfNoAck is set, 1 otherwise)
+	 */
+	public int getSendAttempts() {
+		return (resendIfNoAck ? 1 + sendRetries : 1);
+	}
+	
+	
+	/**
+	 * Returns the timeout of a request sent to a node with the specified RTT estimate: the retransmission timeout (RFC 6298) calculated from the estimate,
+	 * limited to [MinAdaptiveTimeout, MaxAdaptiveTimeout], or the default (static) timeout if the adaptive timeouts are disabled or the RTT was not measured.
+	 * @param attempt The number of the request attempt (starting from 1), the timeout is multiplied by TimeoutBackoffFactor for every previous attempt (up to MaxAdaptiveTimeout)
+	 */
+	public long getAdaptiveTimeout(RttEstimate rttEstimate, long defaultTimeout, int attempt) {
+		long timeout;
+		if (adaptiveTimeouts && rttEstimate != null && rttEstimate.isMeasured()) {
+			timeout = rttEstimate.getTimeout(minAdaptiveTimeout, maxAdaptiveTimeout);
+		}
+		else {
+			timeout = defaultTimeout;
+		}
+		if (adaptiveTimeouts && attempt > 1) {
+			timeout = (long) Math.min(timeout * Math.pow(timeoutBackoffFactor, attempt - 1), Math.max(maxAdaptiveTimeout, defaultTimeout));
+		}
+		return timeout;
+	}
+	
+	public long getAdaptiveTimeout(RttEstimate rttEstimate, long defaultTimeout) {
+		return getAdaptiveTimeout(rttEstimate, defaultTimeout, 1);
+	}
+	
+	
+	/**
+	 * Returns the timeout of a request (waiting for the response) sent to a node with the specified RTT estimate.
+	 * The timeout covers the whole retransmission schedule - the sum of the backed off retransmission timeouts of all send attempts (getSendAttempts()) - and RequestProcessingAllowance (the time of processing the request by the recipient),
+	 * so that the request does not time out before the last retransmission could be answered. It is not longer than the default (static) timeout,
+	 * which is also returned if the adaptive timeouts are disabled or the RTT was not measured.
+	 */
+	public long getAdaptiveRequestTimeout(RttEstimate rttEstimate, long defaultTimeout) {
+		if ((! adaptiveTimeouts) || rttEstimate == null || (! rttEstimate.isMeasured())) return defaultTimeout;
+		long timeout = requestProcessingAllowance;
+		int sendAttempts = getSendAttempts();
+		for (int attempt = 1; attempt <= sendAttempts; attempt++) {
+			timeout += getAdaptiveTimeout(rttEstimate, defaultTimeout, attempt);
+		}
+		return Math.min(timeout, defaultTimeout);
+	}
 	
 	
 	
@@ -179,6 +283,53 @@ public class NodeParameterSet {
 				throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, NodeParameterSet.PROP_KEY_SEND_RETRIES, "Invalid parameter value: " + properties.getAbsoluteKey(NodeParameterSet.PROP_KEY_SEND_RETRIES));
 			}
 			
+			if (properties.containsKey(NodeParameterSet.PROP_KEY_ADAPTIVE_TIMEOUTS)) {
+				this.adaptiveTimeouts = (Boolean) properties.getProperty(NodeParameterSet.PROP_KEY_ADAPTIVE_TIMEOUTS, MappedType.BOOLEAN);
+			}
+			else {
+				this.adaptiveTimeouts = false;
+			}
+			
+			if (properties.containsKey(NodeParameterSet.PROP_KEY_MIN_ADAPTIVE_TIMEOUT)) {
+				this.minAdaptiveTimeout = (Integer) properties.getProperty(NodeParameterSet.PROP_KEY_MIN_ADAPTIVE_TIMEOUT, MappedType.INT);
+				if (this.minAdaptiveTimeout <= 0) {
+					throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, NodeParameterSet.PROP_KEY_MIN_ADAPTIVE_TIMEOUT, "Invalid parameter value: " + properties.getAbsoluteKey(NodeParameterSet.PROP_KEY_MIN_ADAPTIVE_TIMEOUT));
+				}
+			}
+			else {
+				this.minAdaptiveTimeout = DEFAULT_MIN_ADAPTIVE_TIMEOUT;
+			}
+			
+			if (properties.containsKey(NodeParameterSet.PROP_KEY_MAX_ADAPTIVE_TIMEOUT)) {
+				this.maxAdaptiveTimeout = (Integer) properties.getProperty(NodeParameterSet.PROP_KEY_MAX_ADAPTIVE_TIMEOUT, MappedType.INT);
+				if (this.maxAdaptiveTimeout < this.minAdaptiveTimeout) {
+					throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, NodeParameterSet.PROP_KEY_MAX_ADAPTIVE_TIMEOUT, "Invalid parameter value: " + properties.getAbsoluteKey(NodeParameterSet.PROP_KEY_MAX_ADAPTIVE_TIMEOUT));
+				}
+			}
+			else {
+				this.maxAdaptiveTimeout = Math.max(DEFAULT_MAX_ADAPTIVE_TIMEOUT, this.minAdaptiveTimeout);
+			}
+			
+			if (properties.containsKey(NodeParameterSet.PROP_KEY_TIMEOUT_BACKOFF_FACTOR)) {
+				this.timeoutBackoffFactor = (Double) properties.getProperty(NodeParameterSet.PROP_KEY_TIMEOUT_BACKOFF_FACTOR, MappedType.DOUBLE);
+				if (this.timeoutBackoffFactor < 1) {
+					throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, NodeParameterSet.PROP_KEY_TIMEOUT_BACKOFF_FACTOR, "Invalid parameter value: " + properties.getAbsoluteKey(NodeParameterSet.PROP_KEY_TIMEOUT_BACKOFF_FACTOR));
+				}
+			}
+			else {
+				this.timeoutBackoffFactor = DEFAULT_TIMEOUT_BACKOFF_FACTOR;
+			}
+			
+			if (properties.containsKey(NodeParameterSet.PROP_KEY_REQUEST_PROCESSING_ALLOWANCE)) {
+				this.requestProcessingAllowance = (Integer) properties.getProperty(NodeParameterSet.PROP_KEY_REQUEST_PROCESSING_ALLOWANCE, MappedType.INT);
+				if (this.requestProcessingAllowance < 0) {
+					throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, NodeParameterSet.PROP_KEY_REQUEST_PROCESSING_ALLOWANCE, "Invalid parameter value: " + properties.getAbsoluteKey(NodeParameterSet.PROP_KEY_REQUEST_PROCESSING_ALLOWANCE));
+				}
+			}
+			else {
+				this.requestProcessingAllowance = DEFAULT_REQUEST_PROCESSING_ALLOWANCE;
+			}
+			
 			
 			
 
@@ -0,0 +1,16 @@
+package net.hycube.dht;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+
+public interface BatchCallback {
+
+	/**
+	 * Called when all operations of a batch (putAll, getAll, deleteAll) returned. The results of the individual operations are mapped to the keys
+	 */
+	public void batchReturned(Object callbackArg, Map<BigInteger, Object> batchResults);
+	
+	
+	
+}
@@ -0,0 +1,56 @@
+package net.hycube.dht;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import net.hycube.common.CallbackFuture;
+
+/**
+ * Batch callback completing the future with the results of the batch (mapped to the keys). Cancelling the future removes the pending requests of the batch from the DHT manager.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class BatchFuture extends CallbackFuture<Map<BigInteger, Object>> implements BatchCallback {
+
+	protected DHTManager dhtManager;
+	protected volatile DHTBatchRequest batchRequest;
+	
+	
+	public BatchFuture(DHTManager dhtManager) {
+		this.dhtManager = dhtManager;
+	}
+	
+	
+	/**
+	 * Sets the batch request aggregating the results of the operations of the batch (the callback of the individual requests). Called when the batch request is created
+	 */
+	public void setBatchRequest(DHTBatchRequest batchRequest) {
+		this.batchRequest = batchRequest;
+	}
+	
+	public DHTBatchRequest getBatchRequest() {
+		return batchRequest;
+	}
+	
+	
+	@Override
+	public void batchReturned(Object callbackArg, Map<BigInteger, Object> batchResults) {
+		complete(batchResults);
+		
+	}
+
+	
+	@Override
+	protected void cancelRequest() {
+		DHTBatchRequest batchRequest = this.batchRequest;
+		if (batchRequest == null) return;
+		//the batch request is the callback of all requests of the batch:
+		dhtManager.cancelPut(batchRequest);
+		dhtManager.cancelGet(batchRequest);
+		dhtManager.cancelDelete(batchRequest);
+		
+	}
+	
+	
+}
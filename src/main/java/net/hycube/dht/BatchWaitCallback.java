@@ -0,0 +1,43 @@
+package net.hycube.dht;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+public class BatchWaitCallback implements BatchCallback {
+
+	protected Map<BigInteger, Object> result;
+	protected boolean returned;
+	
+	
+	public BatchWaitCallback() {
+		returned = false;
+	}
+	
+	@Override
+	public synchronized void batchReturned(Object callbackArg, Map<BigInteger, Object> batchResults) {
+		this.result = batchResults;
+		this.returned = true;
+		notify();
+	}
+
+	
+	public synchronized boolean hasReturned() {
+		return returned;
+	}
+	
+	public synchronized Map<BigInteger, Object> waitBatch() throws InterruptedException {
+		return waitBatch(0);
+	}
+	
+	public synchronized Map<BigInteger, Object> waitBatch(long timeout) throws InterruptedException {
+		if (returned) return result;
+		try {
+			wait(timeout);
+		} catch (InterruptedException e) {
+			throw e;
+		}
+		return result;
+	}
+	
+	
+}
@@ -0,0 +1,108 @@
+package net.hycube.dht;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregates the results of the individual PUT, GET and DELETE operations of a batch (putAll, getAll, deleteAll).
+ * The object is passed as the callback of every operation of the batch (with the key as the callback argument), and calls the batch callback once all operations returned
+ *
+ * @author Artur Olszak
+ *
+ */
+public class DHTBatchRequest implements PutCallback, GetCallback, DeleteCallback {
+
+	protected BatchCallback batchCallback;
+	protected Object batchCallbackArg;
+	
+	protected Map<BigInteger, Object> results;
+	protected int pendingOperationsNum;
+	protected boolean started;
+	protected boolean returned;
+	
+	
+	public DHTBatchRequest(BatchCallback batchCallback, Object batchCallbackArg, Collection<BigInteger> keys) {
+		this.batchCallback = batchCallback;
+		this.batchCallbackArg = batchCallbackArg;
+		
+		//the results are ordered as the keys of the batch
+		this.results = new LinkedHashMap<BigInteger, Object>(keys.size() * 4 / 3 + 1);
+		for (BigInteger key : keys) {
+			results.put(key, null);
+		}
+		this.pendingOperationsNum = results.size();
+		this.started = false;
+		this.returned = false;
+		
+		if (batchCallback instanceof BatchFuture) ((BatchFuture) batchCallback).setBatchRequest(this);
+	}
+	
+	
+	public BatchCallback getBatchCallback() {
+		return batchCallback;
+	}
+	
+	public Object getBatchCallbackArg() {
+		return batchCallbackArg;
+	}
+	
+	
+	/**
+	 * Should be called after all operations of the batch have been started - the batch callback is not called before that (the operations may return while the remaining ones are still being started)
+	 */
+	public void started() {
+		boolean finished;
+		synchronized (this) {
+			started = true;
+			finished = checkReturned();
+		}
+		if (finished) callBatchCallback();
+	}
+	
+	
+	@Override
+	public void putReturned(Object callbackArg, Object putResult) {
+		operationReturned(callbackArg, putResult);
+	}
+
+	@Override
+	public void getReturned(Object callbackArg, Object getResult) {
+		operationReturned(callbackArg, getResult);
+	}
+	
+	@Override
+	public void deleteReturned(Object callbackArg, Object deleteResult) {
+		operationReturned(callbackArg, deleteResult);
+	}
+	
+	
+	protected void operationReturned(Object callbackArg, Object result) {
+		boolean finished;
+		synchronized (this) {
+			if (returned) return;
+			results.put((BigInteger) callbackArg, result);
+			pendingOperationsNum--;
+			finished = checkReturned();
+		}
+		if (finished) callBatchCallback();
+	}
+	
+	
+	protected boolean checkReturned() {
+		if (started && pendingOperationsNum <= 0 && (! returned)) {
+			returned = true;
+			return true;
+		}
+		else return false;
+	}
+	
+	protected void callBatchCallback() {
+		if (batchCallback != null) {
+			batchCallback.batchReturned(batchCallbackArg, results);
+		}
+	}
+	
+	
+}
@@ -1,6 +1,7 @@
 package net.hycube.dht;
 
 import java.math.BigInteger;
+import java.util.Map;
 
 import net.hycube.common.EntryPoint;
 import net.hycube.core.InitializationException;
@@ -42,6 +43,71 @@ public interface DHTManager {
 
 	public DeleteCallback delete(NodePointer np, BigInteger key, Object detail, DeleteCallback deleteCallback, Object deleteCallbackArg, Object[] parameters);
 	
+	
+	public int cancelPut(PutCallback putCallback);
+	public int cancelRefreshPut(RefreshPutCallback refreshPutCallback);
+	public int cancelGet(GetCallback getCallback);
+	public int cancelDelete(DeleteCallback deleteCallback);
+	
+	public boolean cancelPut(int commandId);
+	public boolean cancelRefreshPut(int commandId);
+	public boolean cancelGet(int commandId);
+	public boolean cancelDelete(int commandId);
+	
+	
+	/**
+	 * The batch operations (putAll, getAll, deleteAll) by default start the single-key operation for every key, and the batch callback is called when all of them returned.
+	 * The DHT managers may override the methods to send the keys of the batch in multi-key messages
+	 */
+	public default BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg) {
+		return putAll(values, batchCallback, batchCallbackArg, null);
+	}
+	
+	public default BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		return getAll(details, batchCallback, batchCallbackArg, null);
+	}
+	
+	public default BatchCallback deleteAll(NodePointer np, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		return deleteAll(np, details, batchCallback, batchCallbackArg, null);
+	}
+	
+	public default BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		if (values == null) {
+			throw new IllegalArgumentException("Values must be not null.");
+		}
+		//the individual requests return their results to the batch request (the key is passed as the callback argument)
+		DHTBatchRequest batchRequest = new DHTBatchRequest(batchCallback, batchCallbackArg, values.keySet());
+		for (Map.Entry<BigInteger, ?> entry : values.entrySet()) {
+			put(null, entry.getKey(), entry.getValue(), batchRequest, entry.getKey(), parameters);
+		}
+		batchRequest.started();
+		return batchCallback;
+	}
+	
+	public default BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		if (details == null) {
+			throw new IllegalArgumentException("Details must be not null.");
+		}
+		DHTBatchRequest batchRequest = new DHTBatchRequest(batchCallback, batchCallbackArg, details.keySet());
+		for (Map.Entry<BigInteger, ?> entry : details.entrySet()) {
+			get(null, entry.getKey(), entry.getValue(), batchRequest, entry.getKey(), parameters);
+		}
+		batchRequest.started();
+		return batchCallback;
+	}
+	
+	public default BatchCallback deleteAll(NodePointer np, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+		if (details == null) {
+			throw new IllegalArgumentException("Details must be not null.");
+		}
+		DHTBatchRequest batchRequest = new DHTBatchRequest(batchCallback, batchCallbackArg, details.keySet());
+		for (Map.Entry<BigInteger, ?> entry : details.entrySet()) {
+			delete(np, entry.getKey(), entry.getValue(), batchRequest, entry.getKey(), parameters);
+		}
+		batchRequest.started();
+		return batchCallback;
+	}
+	
 	public Object putToStorage(BigInteger key, NodeId sender, Object value, Object[] parameters);
 	public Object refreshPutToStorage(BigInteger key, NodeId senderNodeId, Object value, Object[] parameters);
 	public Object[] getFromStorage(BigInteger key, NodeId senderNodeId, Object detail, Object[] parameters);
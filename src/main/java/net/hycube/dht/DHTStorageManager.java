@@ -24,5 +24,12 @@ public interface DHTStorageManager {
 	
 	public void discardOutdatedEntries(long discardTime);
 	
+	/**
+	 * Releases the resources held by the storage manager (e.g. closes the files). Called when the node is discarded. Does nothing by default
+	 */
+	public default void discard() {
+		
+	}
+	
 	
 }
@@ -0,0 +1,36 @@
+package net.hycube.dht;
+
+import net.hycube.common.CallbackFuture;
+
+/**
+ * Delete callback completing the future with the delete result. Cancelling the future removes the request from the DHT manager.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class DeleteFuture extends CallbackFuture<Object> implements DeleteCallback {
+
+	protected DHTManager dhtManager;
+	
+	
+	public DeleteFuture(DHTManager dhtManager) {
+		this.dhtManager = dhtManager;
+	}
+	
+	
+	@Override
+	public void deleteReturned(Object callbackArg, Object deleteResult) {
+		complete(deleteResult);
+		
+	}
+
+	
+	@Override
+	protected void cancelRequest() {
+		if (isRequestIdSet()) dhtManager.cancelDelete(getRequestId());
+		else dhtManager.cancelDelete(this);
+		
+	}
+	
+	
+}
@@ -0,0 +1,36 @@
+package net.hycube.dht;
+
+import net.hycube.common.CallbackFuture;
+
+/**
+ * Get callback completing the future with the get result. Cancelling the future removes the request from the DHT manager.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class GetFuture extends CallbackFuture<Object> implements GetCallback {
+
+	protected DHTManager dhtManager;
+	
+	
+	public GetFuture(DHTManager dhtManager) {
+		this.dhtManager = dhtManager;
+	}
+	
+	
+	@Override
+	public void getReturned(Object callbackArg, Object getResult) {
+		complete(getResult);
+		
+	}
+
+	
+	@Override
+	protected void cancelRequest() {
+		if (isRequestIdSet()) dhtManager.cancelGet(getRequestId());
+		else dhtManager.cancelGet(this);
+		
+	}
+	
+	
+}
@@ -0,0 +1,662 @@
+package net.hycube.dht;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.hycube.configuration.GlobalConstants;
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeAccessor;
+import net.hycube.core.NodeId;
+import net.hycube.environment.NodeProperties;
+import net.hycube.environment.NodePropertiesConversionException;
+import net.hycube.logging.LogHelper;
+import net.hycube.utils.HashMapUtils;
+import net.hycube.utils.ObjectToStringConverter.MappedType;
+
+/**
+ * DHT storage manager allowing concurrent access to the storage (the same storage rules as HyCubeSimpleDHTStorageManager).
+ * The resources stored for every key are kept in an immutable array (replaced on every modification) in a concurrent hash map, so gets and the replication scan never block.
+ * Modifications of the resources stored for a key are synchronized with a lock selected (striped) by the key, so modifications of different keys proceed in parallel.
+ * The entries are additionally kept in a separate expiry index (HyCubeResourceExpiryIndex, ordered by the refresh time), from which outdated entries are discarded.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeConcurrentDHTStorageManager implements HyCubeDHTStorageManager {
+
+
+	private static org.apache.commons.logging.Log devLog = LogHelper.getDevLog(HyCubeConcurrentDHTStorageManager.class);
+
+
+	protected static final String PROP_KEY_STORE_MULTIPLE_COPIES = "StoreMultipleCopies";
+	protected static final String PROP_KEY_MAX_RESOURCES_NUM = "MaxResourcesNum";
+	protected static final String PROP_KEY_MAX_KEY_SLOT_SIZE = "MaxKeySlotSize";
+	protected static final String PROP_KEY_MAX_RESOURCE_SLOT_SIZE = "MaxResourceSlotSize";
+	protected static final String PROP_KEY_LOCK_STRIPES_NUM = "LockStripesNum";
+	protected static final String PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION = "ExpiryIndexBucketDuration";
+
+
+	protected static final int INITIAL_HASH_TABLE_SIZE = 16;
+
+	protected static final HyCubeResourceEntry[] EMPTY_ENTRIES = new HyCubeResourceEntry[0];
+
+
+	protected NodeAccessor nodeAccessor;
+	protected NodeProperties properties;
+
+	protected HyCubeDHTManager dhtManager;
+
+
+	//key -> resource entries stored for the key (immutable arrays, replaced on every modification):
+	protected ConcurrentHashMap<BigInteger, HyCubeResourceEntry[]> resources;
+
+	//locks synchronizing modifications of the resources stored for the keys:
+	protected ReentrantLock[] locks;
+	protected int locksMask;
+
+	//expiry index - all stored entries, ordered by the refresh time (replaced and deleted entries are removed lazily):
+	protected HyCubeResourceExpiryIndex resourceEntries;
+	protected ReentrantLock discardLock;
+
+	protected AtomicInteger resourcesNum;
+
+
+	protected boolean storeMultipleCopies;
+	protected int maxResourcesNum;
+	protected int maxKeySlotSize;
+	protected int maxResourceSlotSize;
+	protected int lockStripesNum;
+	protected long expiryIndexBucketDuration;
+
+
+
+
+	@Override
+	public void initialize(NodeAccessor nodeAccessor, NodeProperties properties) throws InitializationException {
+
+		this.nodeAccessor = nodeAccessor;
+		this.properties = properties;
+
+		this.dhtManager = (HyCubeDHTManager) nodeAccessor.getDHTManager();
+
+		try {
+
+			storeMultipleCopies = (Boolean) properties.getProperty(PROP_KEY_STORE_MULTIPLE_COPIES, MappedType.BOOLEAN);
+
+			maxResourcesNum = (Integer) properties.getProperty(PROP_KEY_MAX_RESOURCES_NUM, MappedType.INT);
+
+			maxKeySlotSize = (Integer) properties.getProperty(PROP_KEY_MAX_KEY_SLOT_SIZE, MappedType.INT);
+
+			maxResourceSlotSize = (Integer) properties.getProperty(PROP_KEY_MAX_RESOURCE_SLOT_SIZE, MappedType.INT);
+
+			lockStripesNum = (Integer) properties.getProperty(PROP_KEY_LOCK_STRIPES_NUM, MappedType.INT);
+			if (lockStripesNum <= 0 || lockStripesNum > (1 << 16)) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_LOCK_STRIPES_NUM), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_LOCK_STRIPES_NUM) + ".");
+
+			if (properties.containsKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION)) {
+				expiryIndexBucketDuration = (Long) properties.getProperty(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION, MappedType.LONG);
+				if (expiryIndexBucketDuration <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION) + ".");
+			}
+			else expiryIndexBucketDuration = HyCubeResourceExpiryIndex.DEFAULT_BUCKET_DURATION;
+
+
+		} catch (NodePropertiesConversionException e) {
+			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize the DHT storage manager instance. Invalid parameter value: " + e.getKey() + ".", e);
+		}
+
+
+		this.resources = new ConcurrentHashMap<BigInteger, HyCubeResourceEntry[]>(INITIAL_HASH_TABLE_SIZE);
+
+		//the number of stripes is rounded up to a power of 2:
+		int stripes = (lockStripesNum == 1 ? 1 : Integer.highestOneBit(lockStripesNum - 1) << 1);
+		this.locks = new ReentrantLock[stripes];
+		for (int i = 0; i < stripes; i++) {
+			this.locks[i] = new ReentrantLock();
+		}
+		this.locksMask = stripes - 1;
+
+		this.resourceEntries = new HyCubeResourceExpiryIndex(expiryIndexBucketDuration);
+		this.discardLock = new ReentrantLock();
+
+		this.resourcesNum = new AtomicInteger(0);
+
+	}
+
+
+	protected ReentrantLock getLock(BigInteger key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return locks[h & locksMask];
+	}
+
+
+	protected static boolean equal(String s1, String s2) {
+		return (s1 == null ? s2 == null : s1.equals(s2));
+	}
+
+
+	/**
+	 * Returns the number of distinct resource ids of the entries (the number of resource slots of the key)
+	 */
+	protected static int countResourceIds(HyCubeResourceEntry[] entries) {
+		HashSet<String> resourceIds = new HashSet<String>(HashMapUtils.getHashMapCapacityForElementsNum(entries.length, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+		for (int i = 0; i < entries.length; i++) {
+			resourceIds.add(entries[i].getResource().getResourceDescriptor().getResourceId());
+		}
+		return resourceIds.size();
+	}
+
+
+	/**
+	 * Reserves a place for a new resource, respecting the maximum number of resources stored
+	 */
+	protected boolean reserveResource() {
+		if (maxResourcesNum == 0) {
+			resourcesNum.incrementAndGet();
+			return true;
+		}
+		while (true) {
+			int num = resourcesNum.get();
+			if (num >= maxResourcesNum) return false;
+			if (resourcesNum.compareAndSet(num, num + 1)) return true;
+		}
+	}
+
+
+	/**
+	 * Creates a copy of the entries array, replacing the entry (identity) "previous" with the entry "replacement".
+	 * If replacement is null, the previous entry is removed. If previous is null, the replacement entry is appended.
+	 */
+	protected static HyCubeResourceEntry[] replaceEntry(HyCubeResourceEntry[] entries, HyCubeResourceEntry previous, HyCubeResourceEntry replacement) {
+		int size = entries.length;
+		if (previous == null) {
+			HyCubeResourceEntry[] newEntries = new HyCubeResourceEntry[size + 1];
+			System.arraycopy(entries, 0, newEntries, 0, size);
+			newEntries[size] = replacement;
+			return newEntries;
+		}
+		else if (replacement == null) {
+			HyCubeResourceEntry[] newEntries = new HyCubeResourceEntry[size - 1];
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				if (entries[i] != previous) newEntries[j++] = entries[i];
+			}
+			return newEntries;
+		}
+		else {
+			HyCubeResourceEntry[] newEntries = new HyCubeResourceEntry[size];
+			for (int i = 0; i < size; i++) {
+				newEntries[i] = (entries[i] == previous ? replacement : entries[i]);
+			}
+			return newEntries;
+		}
+	}
+
+
+	protected static int indexOf(HyCubeResourceEntry[] entries, HyCubeResourceEntry entry) {
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i] == entry) return i;
+		}
+		return -1;
+	}
+
+
+
+	@Override
+	public Object putToStorage(BigInteger key, NodeId senderNodeId, Object value) {
+		return putToStorage(key, senderNodeId, value, null);
+	}
+
+	@Override
+	public Object putToStorage(BigInteger key, NodeId senderNodeId, Object value, Object[] parameters) {
+
+		if ( ! (value instanceof HyCubeResource)) throw new IllegalArgumentException("The value is expected to be an instance of: " + HyCubeResource.class.getName());
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		return putToStorage(key, senderNodeId, (HyCubeResource)value, currTime, parameters);
+
+	}
+
+	@Override
+	public boolean putToStorage(BigInteger key, NodeId senderNodeId, HyCubeResource r, long refreshTime) {
+		return putToStorage(key, senderNodeId, r, refreshTime, false, null);
+	}
+
+	@Override
+	public boolean putToStorage(BigInteger key, NodeId senderNodeId, HyCubeResource r, long refreshTime, boolean replication) {
+		return putToStorage(key, senderNodeId, r, refreshTime, replication, null);
+	}
+
+	@Override
+	public boolean putToStorage(BigInteger key, NodeId senderNodeId, HyCubeResource r, long refreshTime, Object[] parameters) {
+		return putToStorage(key, senderNodeId, r, refreshTime, false, parameters);
+	}
+
+	@Override
+	public boolean putToStorage(BigInteger key, NodeId senderNodeId, HyCubeResource r, long refreshTime, boolean replication, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Putting to storage...");
+		}
+
+		if (! dhtManager.getResourceAccessController().checkPutAccess((HyCubeNodeId) senderNodeId, r.getResourceDescriptor(), replication)) {
+			return false;
+		}
+
+		String resourceId = r.getResourceDescriptor().getResourceId();
+		String resourceUrl = r.getResourceDescriptor().getResourceUrl();
+		if (resourceUrl == null || resourceUrl.isEmpty()) {
+			return false;
+		}
+
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		if (refreshTime > currTime) refreshTime = currTime;
+
+
+		HyCubeResourceEntry re = new HyCubeResourceEntry(key, r, refreshTime);
+
+		ReentrantLock lock = getLock(key);
+		lock.lock();
+		try {
+
+			HyCubeResourceEntry[] entries = resources.get(key);
+			if (entries == null) entries = EMPTY_ENTRIES;
+
+			//find the entries for the resource id, and the entry with the same resource url:
+			int resSlotSize = 0;
+			HyCubeResourceEntry resSlotFirst = null;
+			HyCubeResourceEntry sameUrl = null;
+			for (int i = 0; i < entries.length; i++) {
+				HyCubeResourceDescriptor rd = entries[i].getResource().getResourceDescriptor();
+				if (equal(rd.getResourceId(), resourceId)) {
+					resSlotSize++;
+					if (resSlotFirst == null) resSlotFirst = entries[i];
+					if (equal(rd.getResourceUrl(), resourceUrl)) sameUrl = entries[i];
+				}
+			}
+
+			if (resSlotSize == 0) {
+				//if the slot doesn't contain the new resource (resource id), check if the limit would not be exceeded
+				if (maxKeySlotSize > 0 && countResourceIds(entries) >= maxKeySlotSize) {
+					return false;
+				}
+			}
+
+
+			//previous (if exists) will be replaced by the new entry
+			HyCubeResourceEntry previous;
+
+			if (storeMultipleCopies || resSlotSize == 0) {
+
+				if (sameUrl == null) {
+					//if resSlot doesn't contain the resource url, check if the limit would not be exceeded
+					if (maxResourceSlotSize > 0 && resSlotSize >= maxResourceSlotSize) {
+						return false;
+					}
+				}
+
+				previous = sameUrl;
+
+			}
+			else {
+				//it is assumed here that resSlot contains at most one entry (according to this logic)
+				if (sameUrl != null) {
+					//this is the resource from the same node, just replace it
+					previous = sameUrl;
+				}
+				else {
+					//and replace the previous resource entry for that resource id (different resource url):
+					previous = resSlotFirst;
+				}
+
+			}
+
+
+			if (previous == null) {
+				//a new resource - check the limit of stored resources
+				if (! reserveResource()) {
+					return false;
+				}
+			}
+			//else - the previous entry is replaced, there will always be a free space for the new entry
+
+
+			//save the resource
+			resources.put(key, replaceEntry(entries, previous, re));
+
+			if (previous != null) {
+				//mark as deleted - will be removed from the expiry index
+				previous.setDeleted(true);
+			}
+
+			//insert the resource to the expiry index
+			resourceEntries.add(re);
+
+		}
+		finally {
+			lock.unlock();
+		}
+
+		return true;
+
+	}
+
+
+
+
+	@Override
+	public Object refreshPutToStorage(BigInteger key, NodeId senderNodeId, Object value) {
+		return refreshPutToStorage(key, senderNodeId, value, null);
+	}
+
+
+	@Override
+	public Object refreshPutToStorage(BigInteger key, NodeId senderNodeId, Object value, Object[] parameters) {
+		if ( ! (value instanceof HyCubeResourceDescriptor)) throw new IllegalArgumentException("The value is expected to be an instance of: " + HyCubeResourceDescriptor.class.getName());
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		return refreshPutToStorage(key, senderNodeId, (HyCubeResourceDescriptor)value, currTime, parameters);
+
+	}
+
+	@Override
+	public boolean refreshPutToStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor rd, long refreshTime) {
+		return refreshPutToStorage(key, senderNodeId, rd, refreshTime, false, null);
+	}
+
+	@Override
+	public boolean refreshPutToStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor rd, long refreshTime, boolean replication) {
+		return refreshPutToStorage(key, senderNodeId, rd, refreshTime, replication, null);
+	}
+
+	@Override
+	public boolean refreshPutToStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor rd, long refreshTime, Object[] parameters) {
+		return refreshPutToStorage(key, senderNodeId, rd, refreshTime, false, parameters);
+	}
+
+	@Override
+	public boolean refreshPutToStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor rd, long refreshTime, boolean replication, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Refreshing put to storage...");
+		}
+
+		if (! dhtManager.getResourceAccessController().checkRefreshPutAccess((HyCubeNodeId) senderNodeId, rd, replication)) {
+			return false;
+		}
+
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		if (refreshTime > currTime) refreshTime = currTime;
+
+
+		ReentrantLock lock = getLock(key);
+		lock.lock();
+		try {
+
+			HyCubeResourceEntry[] entries = resources.get(key);
+			if (entries == null) {
+				return false;
+			}
+
+			boolean resSlotExists = false;
+			HyCubeResourceEntry re = null;
+			for (int i = 0; i < entries.length; i++) {
+				HyCubeResourceDescriptor entryRd = entries[i].getResource().getResourceDescriptor();
+				if (equal(entryRd.getResourceId(), rd.getResourceId())) {
+					resSlotExists = true;
+					if (equal(entryRd.getResourceUrl(), rd.getResourceUrl())) {
+						re = entries[i];
+						break;
+					}
+				}
+			}
+
+			if (! resSlotExists) {
+				return false;
+			}
+
+
+			if (re != null && refreshTime > re.getRefreshTime()) {
+
+				String resourceUrl = rd.getResourceUrl();
+				if (resourceUrl == null || resourceUrl.isEmpty()) {
+					return false;
+				}
+
+				//replace the entry with the refreshed one, and insert the refreshed entry to the expiry index
+				HyCubeResourceEntry reRefreshed = new HyCubeResourceEntry(re.getKey(), re.getResource(), refreshTime);
+
+				resources.put(key, replaceEntry(entries, re, reRefreshed));
+
+				//mark as deleted - will be removed from the expiry index
+				re.setDeleted(true);
+
+				resourceEntries.add(reRefreshed);
+
+			}
+
+		}
+		finally {
+			lock.unlock();
+		}
+
+		return true;
+
+	}
+
+
+
+
+
+
+	@Override
+	public Object[] getFromStorage(BigInteger key, NodeId senderNodeId, Object detail) {
+		return getFromStorage(key, senderNodeId, detail, null);
+	}
+
+	@Override
+	public Object[] getFromStorage(BigInteger key, NodeId senderNodeId, Object detail, Object[] parameters) {
+		if ( ! (detail instanceof HyCubeResourceDescriptor)) throw new IllegalArgumentException("The detail is expected to be an instance of: " + HyCubeResourceDescriptor.class.getName());
+		return getFromStorage(key, senderNodeId, (HyCubeResourceDescriptor)detail, parameters);
+
+	}
+
+
+	@Override
+	public HyCubeResourceEntry[] getFromStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor criteria) {
+		return getFromStorage(key, senderNodeId, criteria, null);
+	}
+
+	@Override
+	public HyCubeResourceEntry[] getFromStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor criteria, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Getting from storage...");
+		}
+
+		//no locking - the array is never modified
+		HyCubeResourceEntry[] entries = resources.get(key);
+		if (entries == null) {
+			return EMPTY_ENTRIES;
+		}
+
+		List<HyCubeResourceEntry> res = new ArrayList<HyCubeResourceEntry>(entries.length);
+		for (HyCubeResourceEntry re : entries) {
+			HyCubeResourceDescriptor rd = re.getResource().getResourceDescriptor();
+			if (rd.matches(criteria)) {
+				if (dhtManager.getResourceAccessController().checkGetAccess((HyCubeNodeId) senderNodeId, rd)) {
+					res.add(re);
+				}
+			}
+		}
+
+		return res.toArray(new HyCubeResourceEntry[res.size()]);
+
+	}
+
+
+
+	@Override
+	public Object deleteFromStorage(BigInteger key, NodeId senderNodeId, Object detail) {
+		return deleteFromStorage(key, senderNodeId, detail, null);
+	}
+
+	@Override
+	public Object deleteFromStorage(BigInteger key, NodeId senderNodeId, Object detail, Object[] parameters) {
+		if ( ! (detail instanceof HyCubeResourceDescriptor)) throw new IllegalArgumentException("The detail is expected to be an instance of: " + HyCubeResourceDescriptor.class.getName());
+		return deleteFromStorage(key, senderNodeId, (HyCubeResourceDescriptor)detail, parameters);
+	}
+
+
+	@Override
+	public boolean deleteFromStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor criteria) {
+		return deleteFromStorage(key, senderNodeId, criteria, null);
+	}
+
+	@Override
+	public boolean deleteFromStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor criteria, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Deleting from storage...");
+		}
+
+		if (! dhtManager.getResourceAccessController().checkDeleteAccess((HyCubeNodeId) senderNodeId, criteria)) {
+			return false;
+		}
+
+		String resourceUrl = criteria.getResourceUrl();
+		if (criteria.getResourceId() == null || resourceUrl == null || resourceUrl.isEmpty()) {
+			return false;
+		}
+
+		ReentrantLock lock = getLock(key);
+		lock.lock();
+		try {
+
+			HyCubeResourceEntry[] entries = resources.get(key);
+			if (entries == null) {
+				return false;
+			}
+
+			HyCubeResourceEntry re = null;
+			for (int i = 0; i < entries.length; i++) {
+				HyCubeResourceDescriptor rd = entries[i].getResource().getResourceDescriptor();
+				if (equal(rd.getResourceId(), criteria.getResourceId()) && equal(rd.getResourceUrl(), resourceUrl)) {
+					re = entries[i];
+					break;
+				}
+			}
+
+			if (re != null && re.getResource().getResourceDescriptor().matches(criteria)) {
+
+				removeEntry(key, entries, re);
+
+				return true;
+
+			}
+			else return false;
+
+		}
+		finally {
+			lock.unlock();
+		}
+
+	}
+
+
+	/**
+	 * Removes the entry from the entries stored for the key. Should be called when holding the lock for the key
+	 */
+	protected void removeEntry(BigInteger key, HyCubeResourceEntry[] entries, HyCubeResourceEntry re) {
+
+		if (entries.length == 1) {
+			resources.remove(key);
+		}
+		else {
+			resources.put(key, replaceEntry(entries, re, null));
+		}
+
+		//mark as deleted - will be removed from the expiry index
+		re.setDeleted(true);
+
+		resourcesNum.decrementAndGet();
+
+	}
+
+
+
+	public void discardOutdatedEntries(long discardTime) {
+		discardOutdatedEntries(discardTime, 0);
+	}
+
+	public boolean discardOutdatedEntries(long discardTime, int maxEntriesNum) {
+
+		//only one thread discards the entries at a time, puts, gets and deletes are not blocked
+		discardLock.lock();
+		try {
+
+			//the entries marked as deleted are removed from the index and not returned
+			List<HyCubeResourceEntry> outdated = new ArrayList<HyCubeResourceEntry>();
+			boolean completed = resourceEntries.pollOutdated(discardTime, maxEntriesNum, outdated);
+
+			for (HyCubeResourceEntry re : outdated) {
+
+				ReentrantLock lock = getLock(re.getKey());
+				lock.lock();
+				try {
+					//the entry might have been replaced or deleted in the meantime:
+					HyCubeResourceEntry[] entries = resources.get(re.getKey());
+					if (entries != null && indexOf(entries, re) != -1) {
+						removeEntry(re.getKey(), entries, re);
+					}
+				}
+				finally {
+					lock.unlock();
+				}
+
+			}
+
+			return completed;
+
+		}
+		finally {
+			discardLock.unlock();
+		}
+
+	}
+
+
+
+
+	@Override
+	public Map<BigInteger, HyCubeResourceReplicationEntry[]> getResourcesInfoForReplication() {
+
+		//no locking - weakly consistent view of the storage
+		Map<BigInteger, HyCubeResourceReplicationEntry[]> resourceInfos = new HashMap<BigInteger, HyCubeResourceReplicationEntry[]>(HashMapUtils.getHashMapCapacityForElementsNum(resources.size(), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+
+		for (Map.Entry<BigInteger, HyCubeResourceEntry[]> keyEntries : resources.entrySet()) {
+
+			HyCubeResourceEntry[] entries = keyEntries.getValue();
+
+			HyCubeResourceReplicationEntry[] replicationInfo = new HyCubeResourceReplicationEntry[entries.length];
+			for (int i = 0; i < entries.length; i++) {
+				HyCubeResourceEntry resourceEntry = entries[i];
+				replicationInfo[i] = new HyCubeResourceReplicationEntry(resourceEntry.getKey(), resourceEntry.getResource().getResourceDescriptor(), resourceEntry.getRefreshTime());
+			}
+
+			resourceInfos.put(keyEntries.getKey(), replicationInfo);
+
+		}
+
+		return resourceInfos;
+
+	}
+
+
+
+}
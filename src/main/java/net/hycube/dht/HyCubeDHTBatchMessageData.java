@@ -0,0 +1,296 @@
+package net.hycube.dht;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import net.hycube.messaging.messages.MessageByteConversionRuntimeException;
+
+/**
+ * PUT_BATCH, GET_BATCH and DELETE_BATCH message data - the requests of many keys sent to the same next hop in one message.
+ * Every entry contains the message data of the single-key request (PUT, GET, DELETE) and the routing state of the key (the keys of one message are routed independently),
+ * so every node on the path splits the entries among the next hops of their keys. The message data also contains the node id and the network address of the node that started the batch,
+ * to which the responses are sent (the nodes forwarding the entries send them in their own messages).
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeDHTBatchMessageData {
+
+
+	protected static final int OPTION_BIT_NO_PMH_APPLIED = 0;
+	protected static final int OPTION_BIT_NO_STEINHAUS_TRANSFORM_APPLIED = 1;
+
+
+
+	protected int calculateMessageDataLength() {
+
+		int dataLength = calculateMessageDataHeaderLength(originId, originNetworkAddress);
+
+		for (int i = 0; i < entriesNum; i++) {
+			dataLength += calculateEntryDataLength(entriesData[i], steinhausPoints[i]);
+		}
+
+		return dataLength;
+
+	}
+
+
+	public static int calculateMessageDataHeaderLength(BigInteger originId, byte[] originNetworkAddress) {
+
+		int dataLength;
+
+		dataLength =
+
+			+ Short.SIZE/8								//origin id length
+			+ Short.SIZE/8								//origin network address length
+			+ originId.toByteArray().length				//origin id
+			+ originNetworkAddress.length				//origin network address
+
+			+ Integer.SIZE/8							//entries number
+
+			;
+
+		return dataLength;
+
+	}
+
+
+	public static int calculateEntryDataLength(byte[] entryData, BigInteger steinhausPoint) {
+
+		int dataLength;
+
+		dataLength =
+
+			+ Byte.SIZE/8								//routing options
+			+ Short.SIZE/8								//steinhaus point length
+			+ (steinhausPoint != null ? steinhausPoint.toByteArray().length : 0)		//steinhaus point
+
+			+ Integer.SIZE/8							//entry data length
+			+ entryData.length							//entry data
+
+			;
+
+		return dataLength;
+
+	}
+
+
+
+	protected HyCubeDHTBatchMessageData() {
+
+	}
+
+	public HyCubeDHTBatchMessageData(BigInteger originId, byte[] originNetworkAddress, int entriesNum, boolean[] pmhApplied, boolean[] steinhausTransformApplied, BigInteger[] steinhausPoints, byte[][] entriesData) {
+		this.originId = originId;
+		this.originNetworkAddress = originNetworkAddress;
+		this.entriesNum = entriesNum;
+		this.pmhApplied = pmhApplied;
+		this.steinhausTransformApplied = steinhausTransformApplied;
+		this.steinhausPoints = steinhausPoints;
+		this.entriesData = entriesData;
+
+	}
+
+
+	protected BigInteger originId;
+	protected byte[] originNetworkAddress;
+	protected int entriesNum;
+	protected boolean[] pmhApplied;
+	protected boolean[] steinhausTransformApplied;
+	protected BigInteger[] steinhausPoints;
+	protected byte[][] entriesData;
+
+
+
+
+	public BigInteger getOriginId() {
+		return originId;
+	}
+
+	public void setOriginId(BigInteger originId) {
+		this.originId = originId;
+	}
+
+	public byte[] getOriginNetworkAddress() {
+		return originNetworkAddress;
+	}
+
+	public void setOriginNetworkAddress(byte[] originNetworkAddress) {
+		this.originNetworkAddress = originNetworkAddress;
+	}
+
+	public int getEntriesNum() {
+		return entriesNum;
+	}
+
+	public void setEntriesNum(int entriesNum) {
+		this.entriesNum = entriesNum;
+	}
+
+	public boolean[] getPMHApplied() {
+		return pmhApplied;
+	}
+
+	public void setPMHApplied(boolean[] pmhApplied) {
+		this.pmhApplied = pmhApplied;
+	}
+
+	public boolean[] getSteinhausTransformApplied() {
+		return steinhausTransformApplied;
+	}
+
+	public void setSteinhausTransformApplied(boolean[] steinhausTransformApplied) {
+		this.steinhausTransformApplied = steinhausTransformApplied;
+	}
+
+	public BigInteger[] getSteinhausPoints() {
+		return steinhausPoints;
+	}
+
+	public void setSteinhausPoints(BigInteger[] steinhausPoints) {
+		this.steinhausPoints = steinhausPoints;
+	}
+
+	public byte[][] getEntriesData() {
+		return entriesData;
+	}
+
+	public void setEntriesData(byte[][] entriesData) {
+		this.entriesData = entriesData;
+	}
+
+
+
+
+	public byte[] getBytes() {
+
+		ByteBuffer b = ByteBuffer.allocate(calculateMessageDataLength());
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		byte[] originIdB = originId.toByteArray();
+		if (originIdB.length > Short.MAX_VALUE || originNetworkAddress.length > Short.MAX_VALUE) {
+			throw new MessageByteConversionRuntimeException("The length of the origin id or network address exceeds Short.MAX_VALUE.");
+		}
+		b.putShort((short) originIdB.length);
+		b.putShort((short) originNetworkAddress.length);
+		b.put(originIdB);
+		b.put(originNetworkAddress);
+
+		b.putInt(entriesNum);
+
+		for (int i = 0; i < entriesNum; i++) {
+
+			byte options = 0;
+			if (pmhApplied[i]) options = (byte) (options | (1 << OPTION_BIT_NO_PMH_APPLIED));
+			if (steinhausTransformApplied[i]) options = (byte) (options | (1 << OPTION_BIT_NO_STEINHAUS_TRANSFORM_APPLIED));
+			b.put(options);
+
+			byte[] steinhausPointB = (steinhausPoints[i] != null ? steinhausPoints[i].toByteArray() : new byte[0]);
+			if (steinhausPointB.length > Short.MAX_VALUE) {
+				throw new MessageByteConversionRuntimeException("The length of the Steinhaus point exceeds Short.MAX_VALUE.");
+			}
+			b.putShort((short) steinhausPointB.length);
+			b.put(steinhausPointB);
+
+			b.putInt(entriesData[i].length);
+			b.put(entriesData[i]);
+
+		}
+
+
+		byte[] bytes = b.array();
+		return bytes;
+
+	}
+
+
+
+	public static HyCubeDHTBatchMessageData fromBytes(byte[] bytes) throws MessageByteConversionException {
+
+		HyCubeDHTBatchMessageData msgData = new HyCubeDHTBatchMessageData();
+
+		if (bytes == null) {
+			throw new MessageByteConversionRuntimeException("Could not convert the byte array to the message object. The byte array passed to the method is null.");
+		}
+
+		ByteBuffer b = ByteBuffer.wrap(bytes);
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		try {
+
+			int originIdLength = b.getShort();
+			if (originIdLength <= 0) {
+				throw new MessageByteConversionException("Could not convert the byte array to the message data object. The origin id length is invalid.");
+			}
+			int originNetworkAddressLength = b.getShort();
+			if (originNetworkAddressLength < 0) {
+				throw new MessageByteConversionException("Could not convert the byte array to the message data object. The origin network address length is negative.");
+			}
+			byte[] originIdB = new byte[originIdLength];
+			b.get(originIdB);
+			msgData.originId = new BigInteger(originIdB);
+			msgData.originNetworkAddress = new byte[originNetworkAddressLength];
+			b.get(msgData.originNetworkAddress);
+
+			int entriesNum = b.getInt();
+			if (entriesNum < 0 || entriesNum > bytes.length) {
+				throw new MessageByteConversionException("Invalid entries number value.");
+			}
+			msgData.setEntriesNum(entriesNum);
+
+			msgData.pmhApplied = new boolean[entriesNum];
+			msgData.steinhausTransformApplied = new boolean[entriesNum];
+			msgData.steinhausPoints = new BigInteger[entriesNum];
+			msgData.entriesData = new byte[entriesNum][];
+
+			for (int i = 0; i < entriesNum; i++) {
+
+				//routing options:
+				byte options = b.get();
+				msgData.pmhApplied[i] = ((options & (1 << OPTION_BIT_NO_PMH_APPLIED)) != 0);
+				msgData.steinhausTransformApplied[i] = ((options & (1 << OPTION_BIT_NO_STEINHAUS_TRANSFORM_APPLIED)) != 0);
+
+				//steinhaus point:
+				int steinhausPointLength = b.getShort();
+				if (steinhausPointLength < 0) {
+					throw new MessageByteConversionException("Could not convert the byte array to the message data object. The Steinhaus point length is negative.");
+				}
+				if (steinhausPointLength > 0) {
+					byte[] steinhausPointB = new byte[steinhausPointLength];
+					b.get(steinhausPointB);
+					msgData.steinhausPoints[i] = new BigInteger(steinhausPointB);
+				}
+
+				//entry data:
+				int entryDataLength = b.getInt();
+				if (entryDataLength < 0 || entryDataLength > bytes.length) {
+					throw new MessageByteConversionException("Could not convert the byte array to the message data object. The entry data length is invalid.");
+				}
+				msgData.entriesData[i] = new byte[entryDataLength];
+				b.get(msgData.entriesData[i]);
+
+			}
+
+		}
+		catch (BufferUnderflowException e) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		if (msgData.calculateMessageDataLength() != bytes.length) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		return msgData;
+
+
+	}
+
+
+
+
+}
@@ -0,0 +1,171 @@
+package net.hycube.dht;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import net.hycube.messaging.messages.MessageByteConversionRuntimeException;
+
+/**
+ * PUT_BATCH_REPLY, GET_BATCH_REPLY and DELETE_BATCH_REPLY message data - the responses to the requests of many keys of a batch, processed by the same node, sent to the requesting node in one message.
+ * Every entry contains the message data of the single-key response (PUT_REPLY, GET_REPLY, DELETE_REPLY)
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeDHTBatchReplyMessageData {
+
+
+
+	protected int calculateMessageDataLength() {
+
+		int dataLength = calculateMessageDataHeaderLength();
+
+		for (int i = 0; i < entriesNum; i++) {
+			dataLength += calculateEntryDataLength(entriesData[i]);
+		}
+
+		return dataLength;
+
+	}
+
+
+	public static int calculateMessageDataHeaderLength() {
+
+		int dataLength;
+
+		dataLength =
+
+			+ Integer.SIZE/8							//entries number
+
+			;
+
+		return dataLength;
+
+	}
+
+
+	public static int calculateEntryDataLength(byte[] entryData) {
+
+		int dataLength;
+
+		dataLength =
+
+			+ Integer.SIZE/8							//entry data length
+			+ entryData.length							//entry data
+
+			;
+
+		return dataLength;
+
+	}
+
+
+
+	protected HyCubeDHTBatchReplyMessageData() {
+
+	}
+
+	public HyCubeDHTBatchReplyMessageData(int entriesNum, byte[][] entriesData) {
+		this.entriesNum = entriesNum;
+		this.entriesData = entriesData;
+
+	}
+
+
+	protected int entriesNum;
+	protected byte[][] entriesData;
+
+
+
+
+	public int getEntriesNum() {
+		return entriesNum;
+	}
+
+	public void setEntriesNum(int entriesNum) {
+		this.entriesNum = entriesNum;
+	}
+
+	public byte[][] getEntriesData() {
+		return entriesData;
+	}
+
+	public void setEntriesData(byte[][] entriesData) {
+		this.entriesData = entriesData;
+	}
+
+
+
+
+	public byte[] getBytes() {
+
+		ByteBuffer b = ByteBuffer.allocate(calculateMessageDataLength());
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		b.putInt(entriesNum);
+
+		for (int i = 0; i < entriesNum; i++) {
+			b.putInt(entriesData[i].length);
+			b.put(entriesData[i]);
+		}
+
+
+		byte[] bytes = b.array();
+		return bytes;
+
+	}
+
+
+
+	public static HyCubeDHTBatchReplyMessageData fromBytes(byte[] bytes) throws MessageByteConversionException {
+
+		HyCubeDHTBatchReplyMessageData msgData = new HyCubeDHTBatchReplyMessageData();
+
+		if (bytes == null) {
+			throw new MessageByteConversionRuntimeException("Could not convert the byte array to the message object. The byte array passed to the method is null.");
+		}
+
+		ByteBuffer b = ByteBuffer.wrap(bytes);
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		try {
+
+			int entriesNum = b.getInt();
+			if (entriesNum < 0 || entriesNum > bytes.length) {
+				throw new MessageByteConversionException("Invalid entries number value.");
+			}
+			msgData.setEntriesNum(entriesNum);
+
+			msgData.entriesData = new byte[entriesNum][];
+
+			for (int i = 0; i < entriesNum; i++) {
+				int entryDataLength = b.getInt();
+				if (entryDataLength < 0 || entryDataLength > bytes.length) {
+					throw new MessageByteConversionException("Could not convert the byte array to the message data object. The entry data length is invalid.");
+				}
+				msgData.entriesData[i] = new byte[entryDataLength];
+				b.get(msgData.entriesData[i]);
+			}
+
+		}
+		catch (BufferUnderflowException e) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		if (msgData.calculateMessageDataLength() != bytes.length) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		return msgData;
+
+
+	}
+
+
+
+
+}
@@ -0,0 +1,266 @@
+package net.hycube.dht;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the results of DHT get requests (kept by the requesting node), with segmented LRU eviction.
+ * New entries are added to the probationary segment and are moved to the protected segment when they are read again,
+ * so that keys read once do not evict the frequently read keys. The least recently used entries of the protected segment are moved back to the probationary segment,
+ * and the entries are evicted from the probationary segment first.
+ * Every entry has an expiration time (based on the validity times of the resources returned), after which it is not returned.
+ * Every invalidation of a key increases the invalidation generation of the key. The generation is recorded when the get request is sent,
+ * and the result is not cached if the key was invalidated in the meantime (the result returned might be older than the local put or delete).
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeDHTGetCache {
+
+	public static final double PROTECTED_SEGMENT_RATIO = 0.8;
+
+
+	protected static class CacheKey {
+
+		protected BigInteger key;
+		protected String criteriaString;
+
+		public CacheKey(BigInteger key, String criteriaString) {
+			this.key = key;
+			this.criteriaString = criteriaString;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * key.hashCode() + criteriaString.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof CacheKey)) return false;
+			CacheKey other = (CacheKey) obj;
+			return key.equals(other.key) && criteriaString.equals(other.criteriaString);
+		}
+
+	}
+
+	public static class CacheEntry {
+
+		protected HyCubeResource[] resources;
+		protected long expiryTime;
+
+		public CacheEntry(HyCubeResource[] resources, long expiryTime) {
+			this.resources = resources;
+			this.expiryTime = expiryTime;
+		}
+
+		public HyCubeResource[] getResources() {
+			return resources;
+		}
+
+		public long getExpiryTime() {
+			return expiryTime;
+		}
+
+	}
+
+
+	protected int capacity;
+	protected int protectedCapacity;
+
+	//access ordered maps (the first entry is the least recently used one):
+	protected LinkedHashMap<CacheKey, CacheEntry> probationSegment;
+	protected LinkedHashMap<CacheKey, CacheEntry> protectedSegment;
+
+	//criteria strings cached for the keys (used for the invalidation of all entries of a key):
+	protected HashMap<BigInteger, HashSet<String>> keyCriteria;
+
+	//the generations of the last invalidations of the keys (bounded, the generation of the keys whose generations were removed is evictedGeneration):
+	protected LinkedHashMap<BigInteger, Long> keyGenerations;
+	protected long generation;
+	protected long evictedGeneration;
+
+	protected long hits;
+	protected long misses;
+
+
+	public HyCubeDHTGetCache(int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("The cache capacity should be a positive number.");
+
+		this.capacity = capacity;
+		this.protectedCapacity = (int) (capacity * PROTECTED_SEGMENT_RATIO);
+
+		this.probationSegment = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true);
+		this.protectedSegment = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true);
+		this.keyCriteria = new HashMap<BigInteger, HashSet<String>>();
+		this.keyGenerations = new LinkedHashMap<BigInteger, Long>(16, 0.75f, false);
+
+	}
+
+
+	/**
+	 * Returns the cached resources, or null if there is no valid entry for the key and criteria
+	 */
+	public HyCubeResource[] get(BigInteger key, String criteriaString, long currentTime) {
+		CacheEntry entry = getEntry(key, criteriaString, currentTime);
+		return (entry != null ? entry.resources : null);
+	}
+
+
+	/**
+	 * Returns the cached resources with their expiration time, or null if there is no valid entry for the key and criteria
+	 */
+	public synchronized CacheEntry getEntry(BigInteger key, String criteriaString, long currentTime) {
+
+		CacheKey cacheKey = new CacheKey(key, criteriaString);
+
+		CacheEntry entry = protectedSegment.get(cacheKey);
+		if (entry == null) {
+			entry = probationSegment.remove(cacheKey);
+			if (entry != null) {
+				//read again -> promote to the protected segment
+				if (entry.expiryTime > currentTime) addProtected(cacheKey, entry);
+				else removeKeyCriteria(key, criteriaString);
+			}
+		}
+		else if (entry.expiryTime <= currentTime) {
+			protectedSegment.remove(cacheKey);
+			removeKeyCriteria(key, criteriaString);
+		}
+
+		if (entry == null || entry.expiryTime <= currentTime) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return new CacheEntry(entry.resources.clone(), entry.expiryTime);
+
+	}
+
+
+	/**
+	 * Returns the invalidation generation of the key (to be passed to put() when the result of the get request is returned)
+	 */
+	public synchronized long getGeneration(BigInteger key) {
+		Long keyGeneration = keyGenerations.get(key);
+		return (keyGeneration != null ? keyGeneration : evictedGeneration);
+	}
+
+
+	/**
+	 * Caches the result of the get request, unless the key was invalidated after the get request was sent (after the generation was returned by getGeneration())
+	 * @return true if the result was cached
+	 */
+	public synchronized boolean put(BigInteger key, String criteriaString, HyCubeResource[] resources, long expiryTime, long generation) {
+		if (getGeneration(key) != generation) return false;
+		put(key, criteriaString, resources, expiryTime);
+		return true;
+	}
+
+
+	public synchronized void put(BigInteger key, String criteriaString, HyCubeResource[] resources, long expiryTime) {
+
+		CacheKey cacheKey = new CacheKey(key, criteriaString);
+		CacheEntry entry = new CacheEntry(resources.clone(), expiryTime);
+
+		if (protectedSegment.containsKey(cacheKey)) {
+			protectedSegment.put(cacheKey, entry);
+			return;
+		}
+
+		probationSegment.put(cacheKey, entry);
+
+		HashSet<String> criteria = keyCriteria.get(key);
+		if (criteria == null) {
+			criteria = new HashSet<String>();
+			keyCriteria.put(key, criteria);
+		}
+		criteria.add(criteriaString);
+
+		while (probationSegment.size() + protectedSegment.size() > capacity) {
+			Iterator<CacheKey> iter = (! probationSegment.isEmpty() ? probationSegment.keySet().iterator() : protectedSegment.keySet().iterator());
+			CacheKey evicted = iter.next();
+			iter.remove();
+			removeKeyCriteria(evicted.key, evicted.criteriaString);
+		}
+
+	}
+
+
+	/**
+	 * Removes all entries of the key (for any criteria)
+	 */
+	public synchronized void invalidate(BigInteger key) {
+
+		generation++;
+		keyGenerations.remove(key);
+		keyGenerations.put(key, generation);
+		while (keyGenerations.size() > capacity) {
+			Iterator<Map.Entry<BigInteger, Long>> iter = keyGenerations.entrySet().iterator();
+			evictedGeneration = iter.next().getValue();
+			iter.remove();
+		}
+
+		HashSet<String> criteria = keyCriteria.remove(key);
+		if (criteria == null) return;
+
+		for (String criteriaString : criteria) {
+			CacheKey cacheKey = new CacheKey(key, criteriaString);
+			if (probationSegment.remove(cacheKey) == null) protectedSegment.remove(cacheKey);
+		}
+
+	}
+
+
+	public synchronized void clear() {
+		probationSegment.clear();
+		protectedSegment.clear();
+		keyCriteria.clear();
+		//the results of the requests sent before are not cached:
+		generation++;
+		keyGenerations.clear();
+		evictedGeneration = generation;
+	}
+
+
+	public synchronized int size() {
+		return probationSegment.size() + protectedSegment.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+
+
+	protected void addProtected(CacheKey cacheKey, CacheEntry entry) {
+		protectedSegment.put(cacheKey, entry);
+		while (protectedSegment.size() > protectedCapacity) {
+			//demote the least recently used entry of the protected segment to the probationary segment
+			Iterator<Map.Entry<CacheKey, CacheEntry>> iter = protectedSegment.entrySet().iterator();
+			Map.Entry<CacheKey, CacheEntry> demoted = iter.next();
+			iter.remove();
+			probationSegment.put(demoted.getKey(), demoted.getValue());
+		}
+	}
+
+
+	protected void removeKeyCriteria(BigInteger key, String criteriaString) {
+		HashSet<String> criteria = keyCriteria.get(key);
+		if (criteria == null) return;
+		criteria.remove(criteriaString);
+		if (criteria.isEmpty()) keyCriteria.remove(key);
+	}
+
+
+}
@@ -46,19 +46,61 @@ public interface HyCubeDHTManager extends DHTManager {
 	
 	
 	public void processPutRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, String resourceDescriptorString, byte[] resourceData, long refreshTime) throws ProcessMessageException;
+	
+	/**
+	 * Processes the PUT request with the already parsed resource descriptor. By default, the descriptor is converted to its string form and the String variant is called
+	 */
+	public default void processPutRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, HyCubeResourceDescriptor resourceDescriptor, byte[] resourceData, long refreshTime) throws ProcessMessageException {
+		processPutRequest(sender, msg, commandId, key, (resourceDescriptor != null ? resourceDescriptor.getDescriptorString() : null), resourceData, refreshTime);
+	}
+	
 	public void processPutResponse(NodePointer sender, HyCubeMessage msg, int commandId, boolean putStatus) throws ProcessMessageException;
 
 	public void processRefreshPutRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, String resourceDescriptorString, long refreshTime) throws ProcessMessageException;
 	public void processRefreshPutResponse(NodePointer sender, HyCubeMessage msg, int commandId, boolean refreshStatus) throws ProcessMessageException;
 	
-	public void processGetRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, String criteriaString, boolean getFromClosestNode) throws ProcessMessageException;
-	public void processGetResponse(NodePointer sender, HyCubeMessage msg, int commandId, String[] resourceDescriptorStrings, byte[][] resourcesData) throws ProcessMessageException;
+	public void processGetRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, String criteriaString, boolean getFromClosestNode, boolean allowPathCache, boolean returnValidityTimes) throws ProcessMessageException;
+	public void processGetResponse(NodePointer sender, HyCubeMessage msg, int commandId, String[] resourceDescriptorStrings, byte[][] resourcesData, long[] validityTimes) throws ProcessMessageException;
+	
+	/**
+	 * Processes the GET request with the already parsed criteria. By default, the criteria are converted to their string form and the String variant is called
+	 */
+	public default void processGetRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, HyCubeResourceDescriptor criteria, boolean getFromClosestNode, boolean allowPathCache, boolean returnValidityTimes) throws ProcessMessageException {
+		processGetRequest(sender, msg, commandId, key, (criteria != null ? criteria.getDescriptorString() : null), getFromClosestNode, allowPathCache, returnValidityTimes);
+	}
+	
+	/**
+	 * Processes the GET response with the already parsed resource descriptors. By default, the descriptors are converted to their string forms and the String variant is called
+	 */
+	public default void processGetResponse(NodePointer sender, HyCubeMessage msg, int commandId, HyCubeResourceDescriptor[] resourceDescriptors, byte[][] resourcesData, long[] validityTimes) throws ProcessMessageException {
+		processGetResponse(sender, msg, commandId, HyCubeResourceDescriptor.toDescriptorStrings(resourceDescriptors), resourcesData, validityTimes);
+	}
+	
 
 	public void processDeleteRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, String resourceDescriptorString) throws ProcessMessageException;
 	public void processDeleteResponse(NodePointer sender, HyCubeMessage msg, int commandId, boolean deleteStatus) throws ProcessMessageException;
 	
+	/**
+	 * Process the batch requests (PUT_BATCH, GET_BATCH, DELETE_BATCH). The origin is the node that started the batch, to which the responses to the entries are sent in the batch replies (processed by the single-key response methods)
+	 */
+	public void processPutBatchRequest(NodePointer origin, HyCubeMessage msg, HyCubeDHTBatchMessageData batchData) throws ProcessMessageException;
+	public void processGetBatchRequest(NodePointer origin, HyCubeMessage msg, HyCubeDHTBatchMessageData batchData) throws ProcessMessageException;
+	public void processDeleteBatchRequest(NodePointer origin, HyCubeMessage msg, HyCubeDHTBatchMessageData batchData) throws ProcessMessageException;
+	
 	public void processReplicateMessage(NodePointer sender, HyCubeMessage msg, int resourcesNum, BigInteger[] keys, String[] resourceDescriptorStrings, long[] refreshTimes, int[] replicationSpreadNodesNums) throws ProcessMessageException;
 	
+	/**
+	 * Processes the REPLICATE message with the already parsed resource descriptors. By default, the descriptors are converted to their string forms and the String variant is called
+	 */
+	public default void processReplicateMessage(NodePointer sender, HyCubeMessage msg, int resourcesNum, BigInteger[] keys, HyCubeResourceDescriptor[] resourceDescriptors, long[] refreshTimes, int[] replicationSpreadNodesNums) throws ProcessMessageException {
+		processReplicateMessage(sender, msg, resourcesNum, keys, HyCubeResourceDescriptor.toDescriptorStrings(resourceDescriptors), refreshTimes, replicationSpreadNodesNums);
+	}
+	
+	public void processReplicateDigestMessage(NodePointer sender, HyCubeMessage msg, double density, int rangesNum, long[] digests, int[] resourcesNums) throws ProcessMessageException;
+	public void processReplicateDigestReplyMessage(NodePointer sender, HyCubeMessage msg, double density, int rangesNum, int[] mismatchedRanges) throws ProcessMessageException;
+	public void processReplicateFetchMessage(NodePointer sender, HyCubeMessage msg, int resourcesNum, BigInteger[] keys, String[] resourceDescriptorStrings, int[] replicationSpreadNodesNums) throws ProcessMessageException;
+	public void processReplicateFetchReplyMessage(NodePointer sender, HyCubeMessage msg, int resourcesNum, BigInteger[] keys, String[] resourceDescriptorStrings, byte[][] resourcesData, long[] refreshTimes, int[] replicationSpreadNodesNums) throws ProcessMessageException;
+	
 	
 	public void processDHT();
 	
@@ -0,0 +1,140 @@
+package net.hycube.dht;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Path cache of the DHT resources - kept by the nodes routing get requests.
+ * The node counts the get requests routed for every key (and criteria). When the number of requests within the popularity window reaches the threshold,
+ * the node fetches the resources itself and answers the following get requests (allowing path caching) from the cache, until the cached entry expires.
+ * The nodes closest to a popular key (the last nodes of the routes) route most of the requests for the key, so they cache it first, which spreads the load of the replicas.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeDHTPathCache {
+
+	protected static class PopularityCounter {
+
+		protected long windowStart;
+		protected int requestsNum;
+		protected long fetchTime;
+
+		public PopularityCounter(long windowStart) {
+			this.windowStart = windowStart;
+			this.requestsNum = 0;
+			this.fetchTime = Long.MIN_VALUE;
+		}
+
+	}
+
+
+	protected HyCubeDHTGetCache cache;
+
+	protected int popularityThreshold;
+	protected int popularityWindow;
+	protected int fetchRetryTime;
+
+	//access ordered, bounded map of the popularity counters (the least recently requested keys are removed):
+	protected LinkedHashMap<HyCubeDHTGetCache.CacheKey, PopularityCounter> popularityCounters;
+
+
+	public HyCubeDHTPathCache(final int capacity, int popularityThreshold, int popularityWindow, int fetchRetryTime) {
+		if (popularityThreshold <= 0) throw new IllegalArgumentException("The popularity threshold should be a positive number.");
+		if (popularityWindow <= 0) throw new IllegalArgumentException("The popularity window should be a positive number.");
+
+		this.cache = new HyCubeDHTGetCache(capacity);
+
+		this.popularityThreshold = popularityThreshold;
+		this.popularityWindow = popularityWindow;
+		this.fetchRetryTime = fetchRetryTime;
+
+		this.popularityCounters = new LinkedHashMap<HyCubeDHTGetCache.CacheKey, PopularityCounter>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<HyCubeDHTGetCache.CacheKey, PopularityCounter> eldest) {
+				return size() > capacity;
+			}
+		};
+
+	}
+
+
+	public HyCubeDHTGetCache.CacheEntry get(BigInteger key, String criteriaString, long currentTime) {
+		return cache.getEntry(key, criteriaString, currentTime);
+	}
+
+
+	public void put(BigInteger key, String criteriaString, HyCubeResource[] resources, long expiryTime) {
+		cache.put(key, criteriaString, resources, expiryTime);
+	}
+
+
+	public long getGeneration(BigInteger key) {
+		return cache.getGeneration(key);
+	}
+
+
+	/**
+	 * Caches the fetched resources, unless the key was invalidated after the fetch request was sent
+	 */
+	public boolean put(BigInteger key, String criteriaString, HyCubeResource[] resources, long expiryTime, long generation) {
+		return cache.put(key, criteriaString, resources, expiryTime, generation);
+	}
+
+
+	/**
+	 * Records the get request routed for the key and criteria.
+	 * @return true if the key became popular and the resources should be fetched to the cache (returned once per fetch retry time)
+	 */
+	public synchronized boolean recordRequest(BigInteger key, String criteriaString, long currentTime) {
+
+		HyCubeDHTGetCache.CacheKey cacheKey = new HyCubeDHTGetCache.CacheKey(key, criteriaString);
+
+		PopularityCounter counter = popularityCounters.get(cacheKey);
+		if (counter == null) {
+			counter = new PopularityCounter(currentTime);
+			popularityCounters.put(cacheKey, counter);
+		}
+		else if (currentTime - counter.windowStart > popularityWindow) {
+			counter.windowStart = currentTime;
+			counter.requestsNum = 0;
+		}
+
+		counter.requestsNum++;
+
+		if (counter.requestsNum >= popularityThreshold && (counter.fetchTime == Long.MIN_VALUE || currentTime - counter.fetchTime >= fetchRetryTime)) {
+			counter.fetchTime = currentTime;
+			return true;
+		}
+		else return false;
+
+	}
+
+
+	public void invalidate(BigInteger key) {
+		cache.invalidate(key);
+	}
+
+
+	public synchronized void clear() {
+		cache.clear();
+		popularityCounters.clear();
+	}
+
+
+	public int size() {
+		return cache.size();
+	}
+
+	public long getHits() {
+		return cache.getHits();
+	}
+
+	public long getMisses() {
+		return cache.getMisses();
+	}
+
+
+}
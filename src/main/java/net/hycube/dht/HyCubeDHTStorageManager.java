@@ -23,4 +23,16 @@ public interface HyCubeDHTStorageManager extends DHTStorageManager {
 	
 	public Map<BigInteger, HyCubeResourceReplicationEntry[]> getResourcesInfoForReplication();
 	
+	/**
+	 * Discards up to maxEntriesNum outdated entries (refreshed not later than discardTime), starting from the oldest ones.
+	 * By default, the limit is ignored and all outdated entries are discarded (discardOutdatedEntries(discardTime) is called)
+	 * @param discardTime
+	 * @param maxEntriesNum The maximum number of entries processed, 0 - no limit
+	 * @return true if all outdated entries were discarded, false if the limit was reached
+	 */
+	public default boolean discardOutdatedEntries(long discardTime, int maxEntriesNum) {
+		discardOutdatedEntries(discardTime);
+		return true;
+	}
+	
 }
@@ -22,17 +22,14 @@ public class HyCubeGetMessageData {
 			;
 	
 	protected static final int OPTION_BIT_NO_GET_FROM_CLOSEST_NODE = 0;
+	protected static final int OPTION_BIT_NO_ALLOW_PATH_CACHE = 1;
+	protected static final int OPTION_BIT_NO_RETURN_VALIDITY_TIMES = 2;
 	
 	
 	protected int calculateMessageDataLength() {
 		int dataLength;
 		
-		int criteriaSize;
-		try {
-			criteriaSize = criteriaString.getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET).length;
-		} catch (UnsupportedEncodingException e) {
-			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
-		}
+		int criteriaSize = getCriteriaBytes().length;
 		
 		dataLength = 
 			
@@ -62,10 +59,32 @@ public class HyCubeGetMessageData {
 	}
 	
 	public HyCubeGetMessageData(int commandId, BigInteger key, String criteriaString, boolean getFromClosestNode) {
+		this(commandId, key, criteriaString, getFromClosestNode, false);
+	
+	}
+	
+	public HyCubeGetMessageData(int commandId, BigInteger key, String criteriaString, boolean getFromClosestNode, boolean allowPathCache) {
 		this.commandId = commandId;
 		this.key = key;
 		this.criteriaString = criteriaString;
 		this.getFromClosestNode = getFromClosestNode;
+		this.allowPathCache = allowPathCache;
+	
+	}
+	
+	public HyCubeGetMessageData(int commandId, BigInteger key, HyCubeResourceDescriptor criteria, boolean getFromClosestNode, boolean allowPathCache, boolean binaryCriteria) {
+		this(commandId, key, criteria, getFromClosestNode, allowPathCache, false, binaryCriteria);
+	
+	}
+	
+	public HyCubeGetMessageData(int commandId, BigInteger key, HyCubeResourceDescriptor criteria, boolean getFromClosestNode, boolean allowPathCache, boolean returnValidityTimes, boolean binaryCriteria) {
+		this.commandId = commandId;
+		this.key = key;
+		this.criteria = criteria;
+		this.getFromClosestNode = getFromClosestNode;
+		this.allowPathCache = allowPathCache;
+		this.returnValidityTimes = returnValidityTimes;
+		this.binaryCriteria = binaryCriteria;
 	
 	}
 	
@@ -73,7 +92,12 @@ public class HyCubeGetMessageData {
 	protected int commandId;
 	protected BigInteger key;
 	protected String criteriaString;
+	protected HyCubeResourceDescriptor criteria;		//parsed once, when needed
+	protected byte[] criteriaB;							//encoded form (as in the message)
+	protected boolean binaryCriteria;					//the criteria are sent in the binary form
 	protected boolean getFromClosestNode;
+	protected boolean allowPathCache;		//nodes on the route may return the result from their path caches
+	protected boolean returnValidityTimes;	//the reply should contain the validity times of the resources (set by the nodes caching the results)
 	
 	
 
@@ -95,11 +119,44 @@ public class HyCubeGetMessageData {
 	}
 	
 	public String getCriteriaString() {
+		if (criteriaString == null) {
+			if (criteria != null) criteriaString = criteria.getDescriptorString();
+			else if (criteriaB != null) criteriaString = new String(criteriaB, HyCubeResourceDescriptor.DESCRIPTOR_STRING_CHARSET);		//the binary forms are parsed in fromBytes
+		}
 		return criteriaString;
 	}
 	
 	public void setCriteriaString(String criteriaString) {
 		this.criteriaString = criteriaString;
+		this.criteria = null;
+		this.criteriaB = null;
+	}
+	
+	public HyCubeResourceDescriptor getCriteria() {
+		if (criteria == null) {
+			if (criteriaB != null) criteria = HyCubeResourceDescriptor.fromEncodedDescriptor(criteriaB);
+			else if (criteriaString != null) criteria = new HyCubeResourceDescriptor(criteriaString);
+		}
+		return criteria;
+	}
+	
+	public void setCriteria(HyCubeResourceDescriptor criteria) {
+		this.criteria = criteria;
+		this.criteriaString = null;
+		this.criteriaB = null;
+	}
+	
+	public boolean isBinaryCriteria() {
+		return binaryCriteria;
+	}
+	
+	public void setBinaryCriteria(boolean binaryCriteria) {
+		if (binaryCriteria != this.binaryCriteria) {
+			//the criteria will be encoded again
+			getCriteria();
+			criteriaB = null;
+		}
+		this.binaryCriteria = binaryCriteria;
 	}
 	
 	public boolean isGetFromClosestNode() {
@@ -110,6 +167,42 @@ public class HyCubeGetMessageData {
 		this.getFromClosestNode = getFromClosestNode;
 	}
 	
+	public boolean isAllowPathCache() {
+		return allowPathCache;
+	}
+	
+	public void setAllowPathCache(boolean allowPathCache) {
+		this.allowPathCache = allowPathCache;
+	}
+	
+	public boolean isReturnValidityTimes() {
+		return returnValidityTimes;
+	}
+	
+	public void setReturnValidityTimes(boolean returnValidityTimes) {
+		this.returnValidityTimes = returnValidityTimes;
+	}
+	
+	
+	protected byte[] getCriteriaBytes() {
+		if (criteriaB == null) {
+			if (criteria != null) {
+				criteriaB = criteria.getEncodedDescriptor(binaryCriteria);
+			}
+			else if (binaryCriteria) {
+				criteriaB = getCriteria().getDescriptorBytes();
+			}
+			else {
+				try {
+					criteriaB = criteriaString.getBytes(MSG_RESOURCE_CRITERIA_STRING_CHARSET);
+				} catch (UnsupportedEncodingException e) {
+					throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+				}
+			}
+		}
+		return criteriaB;
+	}
+	
 	
 	
 	public byte[] getBytes() {
@@ -125,6 +218,12 @@ public class HyCubeGetMessageData {
 		if (getFromClosestNode) {
 			options = options | (1 << OPTION_BIT_NO_GET_FROM_CLOSEST_NODE);
 		}
+		if (allowPathCache) {
+			options = options | (1 << OPTION_BIT_NO_ALLOW_PATH_CACHE);
+		}
+		if (returnValidityTimes) {
+			options = options | (1 << OPTION_BIT_NO_RETURN_VALIDITY_TIMES);
+		}
 		b.putInt(options);					//options
 		
 		
@@ -135,12 +234,7 @@ public class HyCubeGetMessageData {
 		b.putShort((short) keyB.length);
 		
 		
-		byte[] criteriaB;
-		try {
-			criteriaB = criteriaString.getBytes(MSG_RESOURCE_CRITERIA_STRING_CHARSET);
-		} catch (UnsupportedEncodingException e) {
-			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
-		}
+		byte[] criteriaB = getCriteriaBytes();
 		if (criteriaB.length > Short.MAX_VALUE) {
 			throw new MessageByteConversionRuntimeException("The length of the criteria string byte representation exceeds Short.MAX_VALUE.");
 		}
@@ -193,6 +287,20 @@ public class HyCubeGetMessageData {
 				msgData.getFromClosestNode = false;
 			}
 			
+			if ((options & (1 << OPTION_BIT_NO_ALLOW_PATH_CACHE)) != 0) {
+				msgData.allowPathCache = true;
+			}
+			else {
+				msgData.allowPathCache = false;
+			}
+			
+			if ((options & (1 << OPTION_BIT_NO_RETURN_VALIDITY_TIMES)) != 0) {
+				msgData.returnValidityTimes = true;
+			}
+			else {
+				msgData.returnValidityTimes = false;
+			}
+			
 
 			int keyLength = b.getShort();
 			if (keyLength < 0) {
@@ -217,16 +325,18 @@ public class HyCubeGetMessageData {
 			
 			
 			
-			//resource descriptor string:
+			//criteria (string or binary form - converted to the string/parsed when needed):
 			byte[] criteriaB = new byte[criteriaLength];
 			b.get(criteriaB);
-			String criteria;
-			try {
-				criteria = new String(criteriaB, MSG_RESOURCE_CRITERIA_STRING_CHARSET);
-			} catch (UnsupportedEncodingException e) {
-				throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+			msgData.criteriaB = criteriaB;
+			if (HyCubeResourceDescriptor.isBinaryDescriptor(criteriaB)) {
+				msgData.binaryCriteria = true;
+				try {
+					msgData.criteria = HyCubeResourceDescriptor.fromDescriptorBytes(criteriaB);
+				} catch (IllegalArgumentException e) {
+					throw new MessageByteConversionException("Could not convert the byte array to the message data object. The binary criteria are invalid.", e);
+				}
 			}
-			msgData.criteriaString = criteria;
 			
 
 						
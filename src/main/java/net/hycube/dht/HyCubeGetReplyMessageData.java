@@ -13,6 +13,9 @@ public class HyCubeGetReplyMessageData {
 
 	
 	public static final String MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET = "UTF-8";
+	
+	//set in the resources count field if the validity times are included (only if requested by the GET message, so the nodes not supporting the field never receive it):
+	protected static final int RESOURCES_COUNT_FLAG_VALIDITY_TIMES = 1 << 30;
 
 	
 	
@@ -27,24 +30,21 @@ public class HyCubeGetReplyMessageData {
 			
 			;
 
-		if (resourceDescriptorStrings == null || resourcesData == null || resourceDescriptorStrings.length != resourcesData.length) {
-			throw new UnrecoverableRuntimeException("Resource descriptor string and data tables should not be not null and should have the same lengths.");
-		}
+		checkTables();
 		
-		for (int i = 0; i < resourceDescriptorStrings.length; i++) {
+		byte[][] resourceDescriptorsB = getResourceDescriptorsBytes();
+		
+		for (int i = 0; i < resourceDescriptorsB.length; i++) {
 			
-			int resourceDescriptorSize;
-			try {
-				resourceDescriptorSize = resourceDescriptorStrings[i].getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET).length;
-			} catch (UnsupportedEncodingException e) {
-				throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
-			}
+			int resourceDescriptorSize = resourceDescriptorsB[i].length;
 			
 			dataLength += Short.SIZE/ 8;					//resource descriptor length			
 			dataLength += Integer.SIZE/ 8;					//resource data length
 
-			dataLength += resourceDescriptorSize;			//resource descriptor (String)
-			dataLength += resourcesData[i].length;				//resource data
+			dataLength += resourceDescriptorSize;			//resource descriptor (String or binary form)
+			dataLength += getResourceDataLength(i);				//resource data
+			
+			if (validityTimes != null) dataLength += Long.SIZE/ 8;		//validity time
 			
 		}
 
@@ -60,17 +60,50 @@ public class HyCubeGetReplyMessageData {
 		
 	}
 	
-	public HyCubeGetReplyMessageData(int commandId, String[] resourceDescriptorStrings, byte[][] resourcesData) {
+	public HyCubeGetReplyMessageData(int commandId, String[] resourceDescriptorStrings, byte[][] resourcesData, long[] validityTimes) {
 		this.commandId = commandId;
 		this.resourceDescriptorStrings = resourceDescriptorStrings;
 		this.resourcesData = resourcesData;
+		this.validityTimes = validityTimes;
+	
+	}
+	
+
+	public HyCubeGetReplyMessageData(int commandId, String[] resourceDescriptorStrings, ByteBuffer[] resourcesDataBuffers, long[] validityTimes) {
+		this.commandId = commandId;
+		this.resourceDescriptorStrings = resourceDescriptorStrings;
+		this.resourcesDataBuffers = resourcesDataBuffers;
+		this.validityTimes = validityTimes;
+	
+	}
+	
+	public HyCubeGetReplyMessageData(int commandId, HyCubeResourceDescriptor[] resourceDescriptors, byte[][] resourcesData, long[] validityTimes, boolean binaryResourceDescriptors) {
+		this.commandId = commandId;
+		this.resourceDescriptors = resourceDescriptors;
+		this.resourcesData = resourcesData;
+		this.validityTimes = validityTimes;
+		this.binaryResourceDescriptors = binaryResourceDescriptors;
+	
+	}
+	
+	public HyCubeGetReplyMessageData(int commandId, HyCubeResourceDescriptor[] resourceDescriptors, ByteBuffer[] resourcesDataBuffers, long[] validityTimes, boolean binaryResourceDescriptors) {
+		this.commandId = commandId;
+		this.resourceDescriptors = resourceDescriptors;
+		this.resourcesDataBuffers = resourcesDataBuffers;
+		this.validityTimes = validityTimes;
+		this.binaryResourceDescriptors = binaryResourceDescriptors;
 	
 	}
 	
 
 	protected int commandId;
 	protected String[] resourceDescriptorStrings;
+	protected HyCubeResourceDescriptor[] resourceDescriptors;		//parsed once, when needed
+	protected byte[][] resourceDescriptorsB;						//encoded forms (as in the message)
+	protected boolean binaryResourceDescriptors;					//the descriptors are sent in the binary form
 	protected byte[][] resourcesData;
+	protected ByteBuffer[] resourcesDataBuffers;	//the data (between the positions and the limits) written to the message instead of resourcesData (not copied to intermediate arrays)
+	protected long[] validityTimes;		//the times (ms) for which the resources will remain stored by the sender (unless refreshed), null if not included in the message
 	
 	
 
@@ -84,11 +117,57 @@ public class HyCubeGetReplyMessageData {
 	}
 	
 	public String[] getResourceDescriptorStrings() {
+		if (resourceDescriptorStrings == null) {
+			if (resourceDescriptors != null) {
+				resourceDescriptorStrings = new String[resourceDescriptors.length];
+				for (int i = 0; i < resourceDescriptors.length; i++) resourceDescriptorStrings[i] = resourceDescriptors[i].getDescriptorString();
+			}
+			else if (resourceDescriptorsB != null) {
+				//the binary forms are parsed in fromBytes
+				resourceDescriptorStrings = new String[resourceDescriptorsB.length];
+				for (int i = 0; i < resourceDescriptorsB.length; i++) resourceDescriptorStrings[i] = new String(resourceDescriptorsB[i], HyCubeResourceDescriptor.DESCRIPTOR_STRING_CHARSET);
+			}
+		}
 		return resourceDescriptorStrings;
 	}
 
 	public void setResourceDescriptorStrings(String[] resourceDescriptorStrings) {
 		this.resourceDescriptorStrings = resourceDescriptorStrings;
+		this.resourceDescriptors = null;
+		this.resourceDescriptorsB = null;
+	}
+	
+	public HyCubeResourceDescriptor[] getResourceDescriptors() {
+		if (resourceDescriptors == null) {
+			if (resourceDescriptorsB != null) {
+				resourceDescriptors = new HyCubeResourceDescriptor[resourceDescriptorsB.length];
+				for (int i = 0; i < resourceDescriptorsB.length; i++) resourceDescriptors[i] = HyCubeResourceDescriptor.fromEncodedDescriptor(resourceDescriptorsB[i]);
+			}
+			else if (resourceDescriptorStrings != null) {
+				resourceDescriptors = new HyCubeResourceDescriptor[resourceDescriptorStrings.length];
+				for (int i = 0; i < resourceDescriptorStrings.length; i++) resourceDescriptors[i] = new HyCubeResourceDescriptor(resourceDescriptorStrings[i]);
+			}
+		}
+		return resourceDescriptors;
+	}
+	
+	public void setResourceDescriptors(HyCubeResourceDescriptor[] resourceDescriptors) {
+		this.resourceDescriptors = resourceDescriptors;
+		this.resourceDescriptorStrings = null;
+		this.resourceDescriptorsB = null;
+	}
+	
+	public boolean isBinaryResourceDescriptors() {
+		return binaryResourceDescriptors;
+	}
+	
+	public void setBinaryResourceDescriptors(boolean binaryResourceDescriptors) {
+		if (binaryResourceDescriptors != this.binaryResourceDescriptors) {
+			//the descriptors will be encoded again
+			getResourceDescriptors();
+			resourceDescriptorsB = null;
+		}
+		this.binaryResourceDescriptors = binaryResourceDescriptors;
 	}
 	
 	public byte[][] getResourcesData() {
@@ -99,13 +178,56 @@ public class HyCubeGetReplyMessageData {
 		this.resourcesData = resourcesData;
 	}
 	
+	public long[] getValidityTimes() {
+		return validityTimes;
+	}
+	
+	public void setValidityTimes(long[] validityTimes) {
+		this.validityTimes = validityTimes;
+	}
+	
+	
+	
+	protected void checkTables() {
+		int resourcesNum = (resourcesDataBuffers != null ? resourcesDataBuffers.length : (resourcesData != null ? resourcesData.length : -1));
+		int descriptorsNum = (resourceDescriptorsB != null ? resourceDescriptorsB.length : (resourceDescriptors != null ? resourceDescriptors.length : (resourceDescriptorStrings != null ? resourceDescriptorStrings.length : -1)));
+		if (descriptorsNum == -1 || resourcesNum == -1 || descriptorsNum != resourcesNum || (validityTimes != null && descriptorsNum != validityTimes.length)) {
+			throw new UnrecoverableRuntimeException("Resource descriptor string and data tables should not be not null, and the resource descriptor string, data and validity time (if not null) tables should have the same lengths.");
+		}
+	}
+	
+	protected byte[][] getResourceDescriptorsBytes() {
+		if (resourceDescriptorsB == null) {
+			HyCubeResourceDescriptor[] rds = resourceDescriptors;
+			if (rds == null && binaryResourceDescriptors) rds = getResourceDescriptors();
+			if (rds != null) {
+				resourceDescriptorsB = new byte[rds.length][];
+				for (int i = 0; i < rds.length; i++) resourceDescriptorsB[i] = rds[i].getEncodedDescriptor(binaryResourceDescriptors);
+			}
+			else {
+				resourceDescriptorsB = new byte[resourceDescriptorStrings.length][];
+				for (int i = 0; i < resourceDescriptorStrings.length; i++) {
+					try {
+						resourceDescriptorsB[i] = resourceDescriptorStrings[i].getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
+					} catch (UnsupportedEncodingException e) {
+						throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+					}
+				}
+			}
+		}
+		return resourceDescriptorsB;
+	}
+	
+	protected int getResourceDataLength(int i) {
+		if (resourcesDataBuffers != null) return (resourcesDataBuffers[i] != null ? resourcesDataBuffers[i].remaining() : 0);
+		else return (resourcesData[i] != null ? resourcesData[i].length : 0);
+	}
+	
 	
 	
 	public byte[] getBytes() {
 		
-		if (resourceDescriptorStrings == null || resourcesData == null || resourceDescriptorStrings.length != resourcesData.length) {
-			throw new UnrecoverableRuntimeException("Resource descriptor string and data tables should not be not null and should have the same lengths.");
-		}
+		checkTables();
 		
 		ByteBuffer b = ByteBuffer.allocate(calculateMessageDataLength());
 		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
@@ -114,32 +236,35 @@ public class HyCubeGetReplyMessageData {
 		b.putInt(commandId);
 		
 		
-		b.putInt(resourceDescriptorStrings.length);
+		byte[][] resourceDescriptorsB = getResourceDescriptorsBytes();
 		
+		if (validityTimes != null) b.putInt(resourceDescriptorsB.length | RESOURCES_COUNT_FLAG_VALIDITY_TIMES);
+		else b.putInt(resourceDescriptorsB.length);
 		
 		
 		
-		for (int i = 0; i < resourceDescriptorStrings.length; i++) {
 		
-			byte[] resourceDescriptorStringB;
-			try {
-				resourceDescriptorStringB = resourceDescriptorStrings[i].getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
-			} catch (UnsupportedEncodingException e) {
-				throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
-			}
+		for (int i = 0; i < resourceDescriptorsB.length; i++) {
+		
+			byte[] resourceDescriptorStringB = resourceDescriptorsB[i];
 			if (resourceDescriptorStringB.length > Short.MAX_VALUE) {
 				throw new MessageByteConversionRuntimeException("The length of the descriptor string byte representation length exceeds Short.MAX_VALUE.");
 			}
 			b.putShort((short) resourceDescriptorStringB.length);
 			
 			
-			b.putInt(resourcesData[i] != null ? resourcesData[i].length : 0);
+			b.putInt(getResourceDataLength(i));
 			
 	
 			
 			b.put(resourceDescriptorStringB);
 			
-			if (resourcesData[i] != null && resourcesData[i].length > 0) b.put(resourcesData[i]);
+			if (resourcesDataBuffers != null) {
+				if (resourcesDataBuffers[i] != null) b.put(resourcesDataBuffers[i].duplicate());
+			}
+			else if (resourcesData[i] != null && resourcesData[i].length > 0) b.put(resourcesData[i]);
+			
+			if (validityTimes != null) b.putLong(validityTimes[i]);
 			
 			
 		}
@@ -174,6 +299,9 @@ public class HyCubeGetReplyMessageData {
 
 			int resourceDescriptorsCount = b.getInt();
 			
+			boolean validityTimesIncluded = ((resourceDescriptorsCount & RESOURCES_COUNT_FLAG_VALIDITY_TIMES) != 0);
+			resourceDescriptorsCount = resourceDescriptorsCount & (~RESOURCES_COUNT_FLAG_VALIDITY_TIMES);
+			
 			if (resourceDescriptorsCount < 0) {
 				throw new MessageByteConversionException("Could not convert the byte array to the message data object. The descriptors count is negative.");
 			}
@@ -181,8 +309,10 @@ public class HyCubeGetReplyMessageData {
 			
 			
 			
-			String[] resourceDescriptorStrings = new String[resourceDescriptorsCount];
+			byte[][] resourceDescriptorsB = new byte[resourceDescriptorsCount][];
+			HyCubeResourceDescriptor[] resourceDescriptors = null;
 			byte[][] resourcesData = new byte[resourceDescriptorsCount][];
+			long[] validityTimes = (validityTimesIncluded ? new long[resourceDescriptorsCount] : null);
 
 			
 			for (int i = 0; i < resourceDescriptorsCount; i++) {
@@ -200,16 +330,18 @@ public class HyCubeGetReplyMessageData {
 				
 				
 	
-				//resource descriptor string:
+				//resource descriptor (string or binary form - converted to the string/parsed when needed):
 				byte[] resourceDescriptorStringB = new byte[resourceDescriptorLength];
 				b.get(resourceDescriptorStringB);
-				String resourceDescriptorString;
-				try {
-					resourceDescriptorString = new String(resourceDescriptorStringB, MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
-				} catch (UnsupportedEncodingException e) {
-					throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+				resourceDescriptorsB[i] = resourceDescriptorStringB;
+				if (HyCubeResourceDescriptor.isBinaryDescriptor(resourceDescriptorStringB)) {
+					if (resourceDescriptors == null) resourceDescriptors = new HyCubeResourceDescriptor[resourceDescriptorsCount];
+					try {
+						resourceDescriptors[i] = HyCubeResourceDescriptor.fromDescriptorBytes(resourceDescriptorStringB);
+					} catch (IllegalArgumentException e) {
+						throw new MessageByteConversionException("Could not convert the byte array to the message data object. The binary resource descriptor is invalid.", e);
+					}
 				}
-				resourceDescriptorStrings[i] = resourceDescriptorString;
 				
 				
 				
@@ -219,12 +351,24 @@ public class HyCubeGetReplyMessageData {
 					b.get(resourceData);
 					resourcesData[i] = resourceData;
 				}
+				
+				//validity time:
+				if (validityTimesIncluded) validityTimes[i] = b.getLong();
 			
 
 			}
 			
 			msgData.resourcesData = resourcesData;
-			msgData.resourceDescriptorStrings = resourceDescriptorStrings;
+			msgData.resourceDescriptorsB = resourceDescriptorsB;
+			if (resourceDescriptors != null) {
+				//parse the remaining (text) descriptors
+				msgData.binaryResourceDescriptors = true;
+				for (int i = 0; i < resourceDescriptorsCount; i++) {
+					if (resourceDescriptors[i] == null) resourceDescriptors[i] = HyCubeResourceDescriptor.fromEncodedDescriptor(resourceDescriptorsB[i]);
+				}
+				msgData.resourceDescriptors = resourceDescriptors;
+			}
+			msgData.validityTimes = validityTimes;
 			
 						
 		}
@@ -1,5 +1,7 @@
 package net.hycube.dht;
 
+import java.math.BigInteger;
+
 public class HyCubeGetRequestData {
 
 	protected int commandId;
@@ -7,6 +9,12 @@ public class HyCubeGetRequestData {
 	protected GetCallback getCallback;
 	protected Object getCallbackArg;
 	
+	protected BigInteger key;
+	protected HyCubeResourceDescriptor criteria;
+	protected boolean cacheResult;
+	protected boolean pathCacheFetch;
+	protected long cacheGeneration;
+	
 	
 	
 	public int getCommandId() {
@@ -27,6 +35,36 @@ public class HyCubeGetRequestData {
 	public void setGetCallbackArg(Object getCallbackArg) {
 		this.getCallbackArg = getCallbackArg;
 	}
+	public BigInteger getKey() {
+		return key;
+	}
+	public void setKey(BigInteger key) {
+		this.key = key;
+	}
+	public HyCubeResourceDescriptor getCriteria() {
+		return criteria;
+	}
+	public void setCriteria(HyCubeResourceDescriptor criteria) {
+		this.criteria = criteria;
+	}
+	public boolean isCacheResult() {
+		return cacheResult;
+	}
+	public void setCacheResult(boolean cacheResult) {
+		this.cacheResult = cacheResult;
+	}
+	public boolean isPathCacheFetch() {
+		return pathCacheFetch;
+	}
+	public void setPathCacheFetch(boolean pathCacheFetch) {
+		this.pathCacheFetch = pathCacheFetch;
+	}
+	public long getCacheGeneration() {
+		return cacheGeneration;
+	}
+	public void setCacheGeneration(long cacheGeneration) {
+		this.cacheGeneration = cacheGeneration;
+	}
 	
 	
 	
@@ -0,0 +1,1106 @@
+package net.hycube.dht;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import net.hycube.configuration.GlobalConstants;
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeAccessor;
+import net.hycube.core.NodeId;
+import net.hycube.core.UnrecoverableRuntimeException;
+import net.hycube.environment.NodeProperties;
+import net.hycube.environment.NodePropertiesConversionException;
+import net.hycube.logging.LogHelper;
+import net.hycube.utils.HashMapUtils;
+import net.hycube.utils.ObjectToStringConverter.MappedType;
+
+/**
+ * Persistent DHT storage manager (the same storage rules as HyCubeSimpleDHTStorageManager) keeping the resources in append-only, memory-mapped segment files.
+ * Only the index (keys, resource descriptors, refresh times and the record locations) is kept on heap - the resource data is read from the segments when the resources are returned.
+ * Every put appends a record to the active segment, deletes append tombstone records, and refreshes update the refresh time of the record in place.
+ * When the storage is opened, the segments are replayed in order to rebuild the index (only the records of the last segment, which might have been interrupted, are verified with the checksums).
+ * Sealed segments in which the share of the records no longer stored reaches the compaction threshold are compacted (the live records are copied to the active segment and the segment file is deleted)
+ * when the outdated entries are discarded. Discarding outdated entries does not write any records - the entries discarded and not yet compacted are restored when the storage is opened again,
+ * and are discarded by the next discard of outdated entries.
+ * Unless SyncWrites is set, the segments are only flushed to the disk by the operating system (and when the storage is discarded), so the records written recently
+ * may be lost if the operating system fails (they are not lost if only the node process fails).
+ * The storage directory (StorageDirectory) has no default value and must be set explicitly - every node keeps its segments in the subdirectory named after its node id (hex),
+ * and a relative path is resolved against the working directory of the process.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeMappedDHTStorageManager implements HyCubeDHTStorageManager {
+
+
+	private static org.apache.commons.logging.Log devLog = LogHelper.getDevLog(HyCubeMappedDHTStorageManager.class);
+
+
+	protected static final String PROP_KEY_STORE_MULTIPLE_COPIES = "StoreMultipleCopies";
+	protected static final String PROP_KEY_MAX_RESOURCES_NUM = "MaxResourcesNum";
+	protected static final String PROP_KEY_MAX_KEY_SLOT_SIZE = "MaxKeySlotSize";
+	protected static final String PROP_KEY_MAX_RESOURCE_SLOT_SIZE = "MaxResourceSlotSize";
+	protected static final String PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION = "ExpiryIndexBucketDuration";
+	protected static final String PROP_KEY_STORAGE_DIRECTORY = "StorageDirectory";
+	protected static final String PROP_KEY_SEGMENT_SIZE = "SegmentSize";
+	protected static final String PROP_KEY_COMPACTION_THRESHOLD = "CompactionThreshold";
+	protected static final String PROP_KEY_SYNC_WRITES = "SyncWrites";
+
+
+	protected static final int INITIAL_HASH_TABLE_SIZE = 10;
+	protected static final int INITIAL_HASH_TABLE_SLOT_SIZE = 1;
+	protected static final int INITIAL_HASH_TABLE_RES_SLOT_SIZE = 1;
+
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
+
+	public static final String SEGMENT_FILE_NAME_FORMAT = "segment-%016d.dat";
+	public static final Pattern SEGMENT_FILE_NAME_PATTERN = Pattern.compile("segment-(\\d{16})\\.dat");
+
+	public static final String RESOURCE_DESCRIPTOR_STRING_CHARSET = "UTF-8";
+
+
+	//segment header: magic number, version
+	protected static final int SEGMENT_MAGIC = 0x48435347;
+	protected static final int SEGMENT_VERSION = 1;
+	protected static final int SEGMENT_HEADER_LENGTH = 2 * Integer.SIZE/8;
+
+	//record: record length (0 - end of the records), record type, refresh time, checksum, key length, resource descriptor length, data length, key, resource descriptor, data
+	//the checksum covers the record from the key length to the end of the record (the refresh time is updated in place)
+	protected static final byte RECORD_TYPE_PUT = 1;
+	protected static final byte RECORD_TYPE_DELETE = 2;
+
+	protected static final int RECORD_TYPE_OFFSET = Integer.SIZE/8;
+	protected static final int RECORD_REFRESH_TIME_OFFSET = RECORD_TYPE_OFFSET + Byte.SIZE/8;
+	protected static final int RECORD_CHECKSUM_OFFSET = RECORD_REFRESH_TIME_OFFSET + Long.SIZE/8;
+	protected static final int RECORD_CHECKSUM_START = RECORD_CHECKSUM_OFFSET + Integer.SIZE/8;
+	protected static final int RECORD_HEADER_LENGTH = RECORD_CHECKSUM_START + Short.SIZE/8 + Short.SIZE/8 + Integer.SIZE/8;
+
+
+
+	/**
+	 * Segment file, mapped to memory
+	 */
+	protected static class Segment {
+
+		protected long id;
+		protected File file;
+		protected RandomAccessFile randomAccessFile;
+		protected FileChannel channel;
+		protected MappedByteBuffer buffer;
+
+		protected int writePosition;
+		protected int liveBytes;
+
+
+		protected Segment(long id, File file) {
+			this.id = id;
+			this.file = file;
+		}
+
+		protected void map(int size) throws IOException {
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			if (randomAccessFile.length() < size) randomAccessFile.setLength(size);
+			channel = randomAccessFile.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length());
+		}
+
+		protected int capacity() {
+			return buffer.capacity();
+		}
+
+		protected int freeSpace() {
+			return buffer.capacity() - writePosition;
+		}
+
+		protected int append(byte[] record) {
+			int offset = writePosition;
+			ByteBuffer b = buffer.duplicate();
+			b.position(offset);
+			b.put(record);
+			writePosition += record.length;
+			//end of the records marker:
+			if (freeSpace() >= Integer.SIZE/8) buffer.putInt(writePosition, 0);
+			return offset;
+		}
+
+		protected byte[] read(int offset, int length) {
+			byte[] bytes = new byte[length];
+			ByteBuffer b = buffer.duplicate();
+			b.position(offset);
+			b.get(bytes);
+			return bytes;
+		}
+
+		protected void close() {
+			try {
+				buffer.force();
+				channel.close();
+				randomAccessFile.close();
+			} catch (IOException e) {
+				devLog.warn("IOException thrown while closing the segment file: " + file.getPath(), e);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Index entry of a resource stored in a segment (the resource data is not kept in memory)
+	 */
+	protected static class MappedResourceEntry extends HyCubeResourceEntry {
+
+		protected Segment segment;
+		protected int offset;
+		protected int length;
+
+		public MappedResourceEntry(BigInteger key, HyCubeResourceDescriptor rd, long time, Segment segment, int offset, int length) {
+			super(key, new HyCubeResource(rd), time);
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+
+	}
+
+
+	/**
+	 * Record read from a segment
+	 */
+	protected static class Record {
+
+		protected byte type;
+		protected long refreshTime;
+		protected BigInteger key;
+		protected String resourceDescriptorString;
+		protected int dataOffset;
+		protected int dataLength;
+		protected int length;
+
+	}
+
+
+
+	protected NodeAccessor nodeAccessor;
+	protected NodeProperties properties;
+
+	protected HyCubeDHTManager dhtManager;
+
+
+	protected HashMap<BigInteger, HashMap<String, HashMap<String, MappedResourceEntry>>> resources;
+	protected HyCubeResourceExpiryIndex resourceEntries;	//ordered by refresh time
+	protected int resourcesNum;
+
+	protected File storageDirectory;
+	protected TreeMap<Long, Segment> segments;
+	protected Segment activeSegment;
+
+
+	protected boolean storeMultipleCopies;
+	protected int maxResourcesNum;
+	protected int maxKeySlotSize;
+	protected int maxResourceSlotSize;
+	protected long expiryIndexBucketDuration;
+	protected int segmentSize;
+	protected double compactionThreshold;
+	protected boolean syncWrites;
+
+
+
+
+	@Override
+	public void initialize(NodeAccessor nodeAccessor, NodeProperties properties) throws InitializationException {
+
+		this.nodeAccessor = nodeAccessor;
+		this.properties = properties;
+
+		this.dhtManager = (HyCubeDHTManager) nodeAccessor.getDHTManager();
+
+
+		int initialHashTableSize = INITIAL_HASH_TABLE_SIZE;
+		this.resources = new HashMap<BigInteger, HashMap<String, HashMap<String, MappedResourceEntry>>>(HashMapUtils.getHashMapCapacityForElementsNum(initialHashTableSize, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+
+		this.resourcesNum = 0;
+
+		String storageDirectoryPath;
+
+		try {
+
+			storeMultipleCopies = (Boolean) properties.getProperty(PROP_KEY_STORE_MULTIPLE_COPIES, MappedType.BOOLEAN);
+
+			maxResourcesNum = (Integer) properties.getProperty(PROP_KEY_MAX_RESOURCES_NUM, MappedType.INT);
+
+			maxKeySlotSize = (Integer) properties.getProperty(PROP_KEY_MAX_KEY_SLOT_SIZE, MappedType.INT);
+
+			maxResourceSlotSize = (Integer) properties.getProperty(PROP_KEY_MAX_RESOURCE_SLOT_SIZE, MappedType.INT);
+
+			if (properties.containsKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION)) {
+				expiryIndexBucketDuration = (Long) properties.getProperty(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION, MappedType.LONG);
+				if (expiryIndexBucketDuration <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION) + ".");
+			}
+			else expiryIndexBucketDuration = HyCubeResourceExpiryIndex.DEFAULT_BUCKET_DURATION;
+
+			storageDirectoryPath = properties.getProperty(PROP_KEY_STORAGE_DIRECTORY);
+			if (storageDirectoryPath == null || storageDirectoryPath.trim().isEmpty()) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_STORAGE_DIRECTORY), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_STORAGE_DIRECTORY) + ".");
+
+			if (properties.containsKey(PROP_KEY_SEGMENT_SIZE)) {
+				segmentSize = (Integer) properties.getProperty(PROP_KEY_SEGMENT_SIZE, MappedType.INT);
+				if (segmentSize <= SEGMENT_HEADER_LENGTH + RECORD_HEADER_LENGTH) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_SEGMENT_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_SEGMENT_SIZE) + ".");
+			}
+			else segmentSize = DEFAULT_SEGMENT_SIZE;
+
+			if (properties.containsKey(PROP_KEY_COMPACTION_THRESHOLD)) {
+				compactionThreshold = (Double) properties.getProperty(PROP_KEY_COMPACTION_THRESHOLD, MappedType.DOUBLE);
+				if (compactionThreshold <= 0 || compactionThreshold > 1) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_COMPACTION_THRESHOLD), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_COMPACTION_THRESHOLD) + ".");
+			}
+			else compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+			if (properties.containsKey(PROP_KEY_SYNC_WRITES)) {
+				syncWrites = (Boolean) properties.getProperty(PROP_KEY_SYNC_WRITES, MappedType.BOOLEAN);
+			}
+			else syncWrites = false;
+
+
+		} catch (NodePropertiesConversionException e) {
+			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize the DHT storage manager instance. Invalid parameter value: " + e.getKey() + ".", e);
+		}
+
+		this.resourceEntries = new HyCubeResourceExpiryIndex(expiryIndexBucketDuration);
+
+
+		//every node stores the segments in its own subdirectory:
+		this.storageDirectory = new File(storageDirectoryPath, nodeAccessor.getNodeId().toHexString());
+		if ((! storageDirectory.isDirectory()) && (! storageDirectory.mkdirs())) {
+			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize the DHT storage manager instance. Could not create the storage directory: " + storageDirectory.getPath() + ".");
+		}
+
+		this.segments = new TreeMap<Long, Segment>();
+
+		try {
+			openSegments();
+		} catch (IOException e) {
+			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize the DHT storage manager instance. Could not open the storage segments.", e);
+		}
+
+
+	}
+
+
+
+	/**
+	 * Opens the segments existing in the storage directory and rebuilds the index by replaying their records
+	 */
+	protected void openSegments() throws IOException {
+
+		TreeMap<Long, File> segmentFiles = new TreeMap<Long, File>();
+		File[] files = storageDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				Matcher m = SEGMENT_FILE_NAME_PATTERN.matcher(file.getName());
+				if (m.matches()) segmentFiles.put(Long.parseLong(m.group(1)), file);
+			}
+		}
+
+		for (Map.Entry<Long, File> segmentFile : segmentFiles.entrySet()) {
+
+			Segment segment = new Segment(segmentFile.getKey(), segmentFile.getValue());
+			segment.map(0);
+
+			if (segment.capacity() < SEGMENT_HEADER_LENGTH || segment.buffer.getInt(0) != SEGMENT_MAGIC || segment.buffer.getInt(Integer.SIZE/8) != SEGMENT_VERSION) {
+				devLog.warn("Skipping invalid segment file: " + segment.file.getPath());
+				segment.close();
+				continue;
+			}
+
+			//only the last segment might have been interrupted while being written:
+			boolean verify = (segmentFile.getKey().equals(segmentFiles.lastKey()));
+			replaySegment(segment, verify);
+
+			segments.put(segment.id, segment);
+
+		}
+
+		if (! segments.isEmpty()) activeSegment = segments.lastEntry().getValue();
+		else activeSegment = createSegment(0, segmentSize);
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Opened the DHT storage: " + segments.size() + " segments, " + resourcesNum + " resources.");
+		}
+
+	}
+
+
+	protected void replaySegment(Segment segment, boolean verify) {
+
+		int position = SEGMENT_HEADER_LENGTH;
+
+		while (true) {
+			Record record = readRecord(segment, position, verify);
+			if (record == null) break;
+
+			if (record.type == RECORD_TYPE_PUT) {
+				HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor(record.resourceDescriptorString);
+				MappedResourceEntry re = new MappedResourceEntry(record.key, rd, record.refreshTime, segment, position, record.length);
+				replayPut(re);
+			}
+			else if (record.type == RECORD_TYPE_DELETE) {
+				HyCubeResourceDescriptor criteria = new HyCubeResourceDescriptor(record.resourceDescriptorString);
+				MappedResourceEntry re = getEntry(record.key, criteria.getResourceId(), criteria.getResourceUrl());
+				if (re != null) removeEntry(re);
+			}
+
+			position += record.length;
+		}
+
+		segment.writePosition = position;
+		if (segment.freeSpace() >= Integer.SIZE/8) segment.buffer.putInt(position, 0);
+
+	}
+
+
+	protected void replayPut(MappedResourceEntry re) {
+
+		String resourceId = re.getResource().getResourceDescriptor().getResourceId();
+		String resourceUrl = re.getResource().getResourceDescriptor().getResourceUrl();
+
+		HashMap<String, HashMap<String, MappedResourceEntry>> slot = resources.get(re.getKey());
+		if (slot == null) {
+			slot = new HashMap<String, HashMap<String, MappedResourceEntry>>(HashMapUtils.getHashMapCapacityForElementsNum(INITIAL_HASH_TABLE_SLOT_SIZE, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+			resources.put(re.getKey(), slot);
+		}
+		HashMap<String, MappedResourceEntry> resSlot = slot.get(resourceId);
+		if (resSlot == null) {
+			resSlot = new HashMap<String, MappedResourceEntry>(HashMapUtils.getHashMapCapacityForElementsNum(INITIAL_HASH_TABLE_RES_SLOT_SIZE, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+			slot.put(resourceId, resSlot);
+		}
+
+		//the same replacement rules as for puts (the limits are not checked - the records were accepted when they were written):
+		MappedResourceEntry previous;
+		if (storeMultipleCopies || resSlot.isEmpty() || resSlot.containsKey(resourceUrl)) previous = resSlot.remove(resourceUrl);
+		else previous = resSlot.remove(resSlot.keySet().iterator().next());
+		if (previous != null) releaseEntry(previous);
+
+		resSlot.put(resourceUrl, re);
+		resourceEntries.add(re);
+		re.segment.liveBytes += re.length;
+		resourcesNum++;
+
+	}
+
+
+
+	/**
+	 * Reads the record at the specified position of the segment
+	 * @return The record read, or null if there are no more (valid) records in the segment
+	 */
+	protected Record readRecord(Segment segment, int position, boolean verify) {
+
+		MappedByteBuffer buffer = segment.buffer;
+
+		if (segment.capacity() - position < RECORD_HEADER_LENGTH) return null;
+
+		int length = buffer.getInt(position);
+		if (length < RECORD_HEADER_LENGTH || length > segment.capacity() - position) return null;
+
+		Record record = new Record();
+		record.length = length;
+		record.type = buffer.get(position + RECORD_TYPE_OFFSET);
+		record.refreshTime = buffer.getLong(position + RECORD_REFRESH_TIME_OFFSET);
+
+		int keyLength = buffer.getShort(position + RECORD_CHECKSUM_START);
+		int rdLength = buffer.getShort(position + RECORD_CHECKSUM_START + Short.SIZE/8);
+		int dataLength = buffer.getInt(position + RECORD_CHECKSUM_START + 2 * Short.SIZE/8);
+		if (keyLength <= 0 || rdLength < 0 || dataLength < 0 || RECORD_HEADER_LENGTH + keyLength + rdLength + dataLength != length) return null;
+		if (record.type != RECORD_TYPE_PUT && record.type != RECORD_TYPE_DELETE) return null;
+
+		if (verify) {
+			CRC32 crc = new CRC32();
+			crc.update(segment.read(position + RECORD_CHECKSUM_START, length - RECORD_CHECKSUM_START));
+			if ((int) crc.getValue() != buffer.getInt(position + RECORD_CHECKSUM_OFFSET)) return null;
+		}
+
+		record.key = new BigInteger(segment.read(position + RECORD_HEADER_LENGTH, keyLength));
+		try {
+			record.resourceDescriptorString = new String(segment.read(position + RECORD_HEADER_LENGTH + keyLength, rdLength), RESOURCE_DESCRIPTOR_STRING_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+		}
+		record.dataOffset = position + RECORD_HEADER_LENGTH + keyLength + rdLength;
+		record.dataLength = dataLength;
+
+		return record;
+
+	}
+
+
+	protected static byte[] createRecord(byte type, BigInteger key, String resourceDescriptorString, byte[] data, long refreshTime) {
+
+		byte[] keyB = key.toByteArray();
+		if (keyB.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("The length of the key exceeds Short.MAX_VALUE.");
+		}
+
+		byte[] rdB;
+		try {
+			rdB = resourceDescriptorString.getBytes(RESOURCE_DESCRIPTOR_STRING_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+		}
+		if (rdB.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("The length of the descriptor string byte representation length exceeds Short.MAX_VALUE.");
+		}
+
+		if (data == null) data = new byte[0];
+
+		int length = RECORD_HEADER_LENGTH + keyB.length + rdB.length + data.length;
+
+		ByteBuffer b = ByteBuffer.allocate(length);
+		b.putInt(length);
+		b.put(type);
+		b.putLong(refreshTime);
+		b.putInt(0);	//checksum
+		b.putShort((short) keyB.length);
+		b.putShort((short) rdB.length);
+		b.putInt(data.length);
+		b.put(keyB);
+		b.put(rdB);
+		b.put(data);
+
+		byte[] record = b.array();
+
+		CRC32 crc = new CRC32();
+		crc.update(record, RECORD_CHECKSUM_START, length - RECORD_CHECKSUM_START);
+		b.putInt(RECORD_CHECKSUM_OFFSET, (int) crc.getValue());
+
+		return record;
+
+	}
+
+
+
+	protected Segment createSegment(long id, int size) throws IOException {
+		Segment segment = new Segment(id, new File(storageDirectory, String.format(SEGMENT_FILE_NAME_FORMAT, id)));
+		segment.map(size);
+		segment.buffer.putInt(0, SEGMENT_MAGIC);
+		segment.buffer.putInt(Integer.SIZE/8, SEGMENT_VERSION);
+		segment.writePosition = SEGMENT_HEADER_LENGTH;
+		segment.buffer.putInt(segment.writePosition, 0);
+		segments.put(id, segment);
+		return segment;
+	}
+
+
+	/**
+	 * Appends the record to the active segment (a new segment is created if the record does not fit in the active segment)
+	 * @return The segment to which the record was written, the offset of the record is returned in the array offset
+	 */
+	protected Segment appendRecord(byte[] record, int[] offset) {
+
+		if (activeSegment.freeSpace() < record.length) {
+			//seal the active segment and create a new one (records larger than the segment size are written to segments of the record size):
+			if (syncWrites) activeSegment.buffer.force();
+			try {
+				activeSegment = createSegment(activeSegment.id + 1, Math.max(segmentSize, SEGMENT_HEADER_LENGTH + record.length));
+			} catch (IOException e) {
+				throw new UnrecoverableRuntimeException("Could not create a new DHT storage segment.", e);
+			}
+		}
+
+		offset[0] = activeSegment.append(record);
+		if (syncWrites) activeSegment.buffer.force();
+
+		return activeSegment;
+
+	}
+
+
+	protected byte[] readData(MappedResourceEntry re) {
+		MappedByteBuffer buffer = re.segment.buffer;
+		int keyLength = buffer.getShort(re.offset + RECORD_CHECKSUM_START);
+		int rdLength = buffer.getShort(re.offset + RECORD_CHECKSUM_START + Short.SIZE/8);
+		int dataLength = buffer.getInt(re.offset + RECORD_CHECKSUM_START + 2 * Short.SIZE/8);
+		return re.segment.read(re.offset + RECORD_HEADER_LENGTH + keyLength + rdLength, dataLength);
+	}
+
+
+	protected MappedResourceEntry getEntry(BigInteger key, String resourceId, String resourceUrl) {
+		HashMap<String, HashMap<String, MappedResourceEntry>> slot = resources.get(key);
+		if (slot == null || resourceId == null) return null;
+		HashMap<String, MappedResourceEntry> resSlot = slot.get(resourceId);
+		if (resSlot == null || resourceUrl == null) return null;
+		return resSlot.get(resourceUrl);
+	}
+
+
+	/**
+	 * Marks the entry (already removed from the index) as no longer stored
+	 */
+	protected void releaseEntry(MappedResourceEntry re) {
+		re.setDeleted(true);
+		re.segment.liveBytes -= re.length;
+		resourcesNum--;
+	}
+
+
+	/**
+	 * Removes the entry from the index
+	 */
+	protected void removeEntry(MappedResourceEntry re) {
+
+		HashMap<String, HashMap<String, MappedResourceEntry>> slot = resources.get(re.getKey());
+		if (slot == null) return;
+		HashMap<String, MappedResourceEntry> resSlot = slot.get(re.getResource().getResourceDescriptor().getResourceId());
+		if (resSlot == null) return;
+		if (resSlot.get(re.getResource().getResourceDescriptor().getResourceUrl()) != re) return;
+
+		resSlot.remove(re.getResource().getResourceDescriptor().getResourceUrl());
+		releaseEntry(re);
+
+		if (resSlot.isEmpty()) {
+			slot.remove(re.getResource().getResourceDescriptor().getResourceId());
+		}
+		if (slot.isEmpty()) {
+			resources.remove(re.getKey());
+		}
+
+	}
+
+
+
+
+	@Override
+	public Object putToStorage(BigInteger key, NodeId senderNodeId, Object value) {
+		return putToStorage(key, senderNodeId, value, null);
+	}
+
+	@Override
+	public Object putToStorage(BigInteger key, NodeId senderNodeId, Object value, Object[] parameters) {
+
+		if ( ! (value instanceof HyCubeResource)) throw new IllegalArgumentException("The value is expected to be an instance of: " + HyCubeResource.class.getName());
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		return putToStorage(key, senderNodeId, (HyCubeResource)value, currTime, parameters);
+
+	}
+
+	@Override
+	public boolean putToStorage(BigInteger key, NodeId senderNodeId, HyCubeResource r, long refreshTime) {
+		return putToStorage(key, senderNodeId, r, refreshTime, false, null);
+	}
+
+	@Override
+	public boolean putToStorage(BigInteger key, NodeId senderNodeId, HyCubeResource r, long refreshTime, boolean replication) {
+		return putToStorage(key, senderNodeId, r, refreshTime, replication, null);
+	}
+
+	@Override
+	public boolean putToStorage(BigInteger key, NodeId senderNodeId, HyCubeResource r, long refreshTime, Object[] parameters) {
+		return putToStorage(key, senderNodeId, r, refreshTime, false, parameters);
+	}
+
+	@Override
+	public boolean putToStorage(BigInteger key, NodeId senderNodeId, HyCubeResource r, long refreshTime, boolean replication, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Putting to storage...");
+		}
+
+		if (! dhtManager.getResourceAccessController().checkPutAccess((HyCubeNodeId) senderNodeId, r.getResourceDescriptor(), replication)) {
+			return false;
+		}
+
+		String resourceId = r.getResourceDescriptor().getResourceId();
+		String resourceUrl = r.getResourceDescriptor().getResourceUrl();
+		if (resourceUrl == null || resourceUrl.isEmpty()) {
+			return false;
+		}
+
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		if (refreshTime > currTime) refreshTime = currTime;
+
+		byte[] record = createRecord(RECORD_TYPE_PUT, key, r.getResourceDescriptor().getDescriptorString(), r.getData(), refreshTime);
+
+		synchronized (resources) {
+
+			HashMap<String, HashMap<String, MappedResourceEntry>> slot = resources.get(key);
+			HashMap<String, MappedResourceEntry> resSlot = (slot != null ? slot.get(resourceId) : null);
+
+			//check the limits before writing the record:
+			if (resSlot == null) {
+				//if the slot doesn't contain the new resource (resource id), check if the limit would not be exceeded
+				if (maxKeySlotSize > 0 && slot != null && slot.size() >= maxKeySlotSize) {
+					return false;
+				}
+			}
+
+			//the previous entry (if exists) will be replaced:
+			MappedResourceEntry previous = null;
+			if (resSlot != null && (! resSlot.isEmpty())) {
+				if (storeMultipleCopies) {
+					if (! resSlot.containsKey(resourceUrl)) {
+						//if resSlot doesn't contain the resource url, check if the limit would not be exceeded
+						if (maxResourceSlotSize > 0 && resSlot.size() >= maxResourceSlotSize) {
+							return false;
+						}
+					}
+					previous = resSlot.get(resourceUrl);
+				}
+				else {
+					//it is assumed here that resSlot contains at most one entry (according to this logic)
+					if (resSlot.containsKey(resourceUrl)) previous = resSlot.get(resourceUrl);
+					else previous = resSlot.values().iterator().next();
+				}
+			}
+
+			//if the previous entry is replaced, there will always be a free space for the new entry
+			if (previous == null && maxResourcesNum != 0 && resourcesNum >= maxResourcesNum) {
+				return false;
+			}
+
+
+			//a previous entry with another url is not replaced by the new record when the segments are replayed (the new record might be deleted,
+			//and its segment compacted) - write the tombstone for the previous entry:
+			if (previous != null && (! previous.getResource().getResourceDescriptor().getResourceUrl().equals(resourceUrl))) {
+				HyCubeResourceDescriptor replaced = new HyCubeResourceDescriptor(resourceId, null, null, previous.getResource().getResourceDescriptor().getResourceUrl());
+				appendRecord(createRecord(RECORD_TYPE_DELETE, key, replaced.getDescriptorString(), null, 0), new int[1]);
+			}
+
+			//write the record:
+			int[] offset = new int[1];
+			Segment segment = appendRecord(record, offset);
+
+
+			if (slot == null) {
+				slot = new HashMap<String, HashMap<String, MappedResourceEntry>>(HashMapUtils.getHashMapCapacityForElementsNum(INITIAL_HASH_TABLE_SLOT_SIZE, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+				resources.put(key, slot);
+			}
+			if (resSlot == null) {
+				resSlot = new HashMap<String, MappedResourceEntry>(HashMapUtils.getHashMapCapacityForElementsNum(INITIAL_HASH_TABLE_RES_SLOT_SIZE, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+				slot.put(resourceId, resSlot);
+			}
+
+			if (previous != null) {
+				//mark as deleted and respect that flag (the entry is removed from the expiry index lazily)
+				resSlot.remove(previous.getResource().getResourceDescriptor().getResourceUrl());
+				releaseEntry(previous);
+			}
+
+			MappedResourceEntry re = new MappedResourceEntry(key, r.getResourceDescriptor(), refreshTime, segment, offset[0], record.length);
+
+			//save the resource
+			resSlot.put(resourceUrl, re);
+			segment.liveBytes += re.length;
+
+			//insert the resource to the expiry index ordered by the refresh time
+			resourceEntries.add(re);
+			resourcesNum++;
+
+		}
+
+		return true;
+
+	}
+
+
+
+
+	@Override
+	public Object refreshPutToStorage(BigInteger key, NodeId senderNodeId, Object value) {
+		return refreshPutToStorage(key, senderNodeId, value, null);
+	}
+
+
+	@Override
+	public Object refreshPutToStorage(BigInteger key, NodeId senderNodeId, Object value, Object[] parameters) {
+		if ( ! (value instanceof HyCubeResourceDescriptor)) throw new IllegalArgumentException("The value is expected to be an instance of: " + HyCubeResourceDescriptor.class.getName());
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		return refreshPutToStorage(key, senderNodeId, (HyCubeResourceDescriptor)value, currTime, parameters);
+
+	}
+
+	@Override
+	public boolean refreshPutToStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor rd, long refreshTime) {
+		return refreshPutToStorage(key, senderNodeId, rd, refreshTime, false, null);
+	}
+
+	@Override
+	public boolean refreshPutToStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor rd, long refreshTime, boolean replication) {
+		return refreshPutToStorage(key, senderNodeId, rd, refreshTime, replication, null);
+	}
+
+	@Override
+	public boolean refreshPutToStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor rd, long refreshTime, Object[] parameters) {
+		return refreshPutToStorage(key, senderNodeId, rd, refreshTime, false, parameters);
+	}
+
+	@Override
+	public boolean refreshPutToStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor rd, long refreshTime, boolean replication, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Refreshing put to storage...");
+		}
+
+		if (! dhtManager.getResourceAccessController().checkRefreshPutAccess((HyCubeNodeId) senderNodeId, rd, replication)) {
+			return false;
+		}
+
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		if (refreshTime > currTime) refreshTime = currTime;
+
+
+		synchronized (resources) {
+
+			HashMap<String, HashMap<String, MappedResourceEntry>> slot = resources.get(key);
+			if (slot == null) {
+				return false;
+			}
+
+			HashMap<String, MappedResourceEntry> resSlot = slot.get(rd.getResourceId());
+			if (resSlot == null) {
+				return false;
+			}
+
+			MappedResourceEntry re = resSlot.get(rd.getResourceUrl());
+
+			if (re != null && refreshTime > re.getRefreshTime()) {
+
+				//update the refresh time of the record in place:
+				re.segment.buffer.putLong(re.offset + RECORD_REFRESH_TIME_OFFSET, refreshTime);
+				if (syncWrites) re.segment.buffer.force();
+
+				//mark as deleted and respect that flag
+				re.setDeleted(true);
+
+				//insert the resource to the expiry index ordered by the refresh time
+				MappedResourceEntry reRefreshed = new MappedResourceEntry(re.getKey(), re.getResource().getResourceDescriptor(), refreshTime, re.segment, re.offset, re.length);
+				resourceEntries.add(reRefreshed);
+				resSlot.put(rd.getResourceUrl(), reRefreshed);
+
+			}
+
+		}
+
+		return true;
+
+	}
+
+
+
+
+
+
+	@Override
+	public Object[] getFromStorage(BigInteger key, NodeId senderNodeId, Object detail) {
+		return getFromStorage(key, senderNodeId, detail, null);
+	}
+
+	@Override
+	public Object[] getFromStorage(BigInteger key, NodeId senderNodeId, Object detail, Object[] parameters) {
+		if ( ! (detail instanceof HyCubeResourceDescriptor)) throw new IllegalArgumentException("The detail is expected to be an instance of: " + HyCubeResourceDescriptor.class.getName());
+		return getFromStorage(key, senderNodeId, (HyCubeResourceDescriptor)detail, parameters);
+
+	}
+
+
+	@Override
+	public HyCubeResourceEntry[] getFromStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor criteria) {
+		return getFromStorage(key, senderNodeId, criteria, null);
+	}
+
+	@Override
+	public HyCubeResourceEntry[] getFromStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor criteria, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Getting from storage...");
+		}
+
+		List<HyCubeResourceEntry> res = new ArrayList<HyCubeResourceEntry>();
+
+		synchronized (resources) {
+
+			HashMap<String, HashMap<String, MappedResourceEntry>> slot = resources.get(key);
+			if (slot != null) {
+				for (HashMap<String, MappedResourceEntry> resSlot : slot.values()) {
+					for (MappedResourceEntry re : resSlot.values()) {
+						HyCubeResourceDescriptor rd = re.getResource().getResourceDescriptor();
+						if (rd.matches(criteria)) {
+							if (dhtManager.getResourceAccessController().checkGetAccess((HyCubeNodeId) senderNodeId, rd)) {
+								//the data is read from the segment:
+								res.add(new HyCubeResourceEntry(re.getKey(), new HyCubeResource(rd, readData(re)), re.getRefreshTime()));
+							}
+						}
+					}
+				}
+			}
+
+		}
+
+		return res.toArray(new HyCubeResourceEntry[res.size()]);
+
+	}
+
+
+
+	@Override
+	public Object deleteFromStorage(BigInteger key, NodeId senderNodeId, Object detail) {
+		return deleteFromStorage(key, senderNodeId, detail, null);
+	}
+
+	@Override
+	public Object deleteFromStorage(BigInteger key, NodeId senderNodeId, Object detail, Object[] parameters) {
+		if ( ! (detail instanceof HyCubeResourceDescriptor)) throw new IllegalArgumentException("The detail is expected to be an instance of: " + HyCubeResourceDescriptor.class.getName());
+		return deleteFromStorage(key, senderNodeId, (HyCubeResourceDescriptor)detail, parameters);
+	}
+
+
+	@Override
+	public boolean deleteFromStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor criteria) {
+		return deleteFromStorage(key, senderNodeId, criteria, null);
+	}
+
+	@Override
+	public boolean deleteFromStorage(BigInteger key, NodeId senderNodeId, HyCubeResourceDescriptor criteria, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Deleting from storage...");
+		}
+
+		if (! dhtManager.getResourceAccessController().checkDeleteAccess((HyCubeNodeId) senderNodeId, criteria)) {
+			return false;
+		}
+
+		String resourceUrl = criteria.getResourceUrl();
+		if (resourceUrl == null || resourceUrl.isEmpty()) {
+			return false;
+		}
+
+		synchronized (resources) {
+
+			MappedResourceEntry re = getEntry(key, criteria.getResourceId(), resourceUrl);
+
+			if (re != null && re.getResource().getResourceDescriptor().matches(criteria)) {
+
+				//write the tombstone record (the deleted resource is identified by the resource id and url):
+				HyCubeResourceDescriptor deleted = new HyCubeResourceDescriptor(criteria.getResourceId(), null, null, resourceUrl);
+				byte[] record = createRecord(RECORD_TYPE_DELETE, key, deleted.getDescriptorString(), null, 0);
+				appendRecord(record, new int[1]);
+
+				//set deleted and respect that flag
+				removeEntry(re);
+
+				return true;
+
+			}
+			else return false;
+
+		}
+
+
+	}
+
+
+	public void discardOutdatedEntries(long discardTime) {
+		discardOutdatedEntries(discardTime, 0);
+	}
+
+	public boolean discardOutdatedEntries(long discardTime, int maxEntriesNum) {
+
+		synchronized (resources) {
+
+			//the entries marked as deleted are removed from the index and not returned
+			List<HyCubeResourceEntry> outdated = new ArrayList<HyCubeResourceEntry>();
+			boolean completed = resourceEntries.pollOutdated(discardTime, maxEntriesNum, outdated);
+
+			for (HyCubeResourceEntry re : outdated) {
+				//discard (if the entry is still stored)
+				removeEntry((MappedResourceEntry) re);
+			}
+
+			//the segments with no stored records and at most one partially stored segment are compacted per call:
+			compact();
+
+			return completed;
+
+		}
+
+	}
+
+
+
+	/**
+	 * Compacts the sealed segments: all segments in which no records are stored any more, and the sealed segment with the largest share of records no longer stored
+	 * (if the share reaches the compaction threshold)
+	 * @return true if any segment was compacted
+	 */
+	protected boolean compact() {
+
+		boolean compactedAny = false;
+
+		Segment compacted = null;
+		double compactedGarbageRatio = 0;
+		for (Segment segment : new ArrayList<Segment>(segments.values())) {
+			if (segment == activeSegment) continue;
+			if (segment.liveBytes == 0) {
+				//only tombstones might have to be copied:
+				compactSegment(segment);
+				compactedAny = true;
+				continue;
+			}
+			int recordsBytes = segment.writePosition - SEGMENT_HEADER_LENGTH;
+			double garbageRatio = 1 - ((double) segment.liveBytes) / recordsBytes;
+			if (garbageRatio >= compactionThreshold && garbageRatio > compactedGarbageRatio) {
+				compacted = segment;
+				compactedGarbageRatio = garbageRatio;
+			}
+		}
+
+		if (compacted != null) {
+			compactSegment(compacted);
+			compactedAny = true;
+		}
+
+		return compactedAny;
+
+	}
+
+
+	/**
+	 * Copies the records still stored to the active segment, and deletes the segment file.
+	 * Tombstone records are copied as well if older segments (possibly containing the deleted records) exist.
+	 */
+	protected void compactSegment(Segment compacted) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Compacting DHT storage segment " + compacted.id + "...");
+		}
+
+		boolean oldest = (compacted.id == segments.firstKey());
+
+		int position = SEGMENT_HEADER_LENGTH;
+		while (position < compacted.writePosition) {
+			Record record = readRecord(compacted, position, false);
+			if (record == null) break;
+
+			HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor(record.resourceDescriptorString);
+			MappedResourceEntry re = getEntry(record.key, rd.getResourceId(), rd.getResourceUrl());
+
+			if (record.type == RECORD_TYPE_PUT) {
+				if (re != null && re.segment == compacted && re.offset == position) {
+					//live record - move it to the active segment (with the current refresh time):
+					int[] offset = new int[1];
+					Segment segment = appendRecord(compacted.read(position, record.length), offset);
+					re.segment = segment;
+					re.offset = offset[0];
+					segment.liveBytes += re.length;
+					compacted.liveBytes -= re.length;
+				}
+			}
+			else if (record.type == RECORD_TYPE_DELETE) {
+				//the tombstone is no longer needed if there are no older segments, or if the resource was stored again after the deletion
+				if (! oldest && re == null) {
+					appendRecord(compacted.read(position, record.length), new int[1]);
+				}
+			}
+
+			position += record.length;
+		}
+
+		segments.remove(compacted.id);
+		compacted.close();
+		if (! compacted.file.delete()) {
+			devLog.warn("Could not delete the compacted segment file: " + compacted.file.getPath());
+		}
+
+	}
+
+
+
+
+	@Override
+	public Map<BigInteger, HyCubeResourceReplicationEntry[]> getResourcesInfoForReplication() {
+
+		synchronized (resources) {
+
+			Map<BigInteger, HyCubeResourceReplicationEntry[]> resourceInfos = new HashMap<BigInteger, HyCubeResourceReplicationEntry[]>(HashMapUtils.getHashMapCapacityForElementsNum(resources.keySet().size(), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+
+			for (BigInteger key : resources.keySet()) {
+
+				LinkedList<HyCubeResourceEntry> resEntriesForKey = new LinkedList<HyCubeResourceEntry>();
+
+				HashMap<String, HashMap<String, MappedResourceEntry>> keyResources = resources.get(key);
+				for (HashMap<String, MappedResourceEntry> resIdResources : keyResources.values()) {
+					for (HyCubeResourceEntry res : resIdResources.values()) {
+						resEntriesForKey.add(res);
+					}
+				}
+
+				ArrayList<HyCubeResourceReplicationEntry> replicationInfo = new ArrayList<HyCubeResourceReplicationEntry>(resEntriesForKey.size());
+				for (HyCubeResourceEntry resourceEntry : resEntriesForKey) {
+					if (! resourceEntry.isDeleted()) {
+						HyCubeResourceReplicationEntry repEntry = new HyCubeResourceReplicationEntry(resourceEntry.getKey(), resourceEntry.getResource().getResourceDescriptor(), resourceEntry.getRefreshTime());
+						replicationInfo.add(repEntry);
+					}
+				}
+
+				resourceInfos.put(key, replicationInfo.toArray(new HyCubeResourceReplicationEntry[replicationInfo.size()]));
+
+			}
+
+			return resourceInfos;
+
+		}
+
+
+
+	}
+
+
+
+	public int getSegmentsNum() {
+		synchronized (resources) {
+			return segments.size();
+		}
+	}
+
+
+
+	@Override
+	public void discard() {
+
+		synchronized (resources) {
+
+			//the segments are flushed and closed (the stored resources are available when the storage is opened again)
+			Iterator<Segment> iter = segments.values().iterator();
+			while (iter.hasNext()) {
+				iter.next().close();
+				iter.remove();
+			}
+
+			resources.clear();
+			resourceEntries.clear();
+			resourcesNum = 0;
+
+		}
+
+	}
+
+
+
+}
@@ -0,0 +1,396 @@
+package net.hycube.dht;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeAccessor;
+import net.hycube.environment.NodeProperties;
+import net.hycube.environment.NodePropertiesConversionException;
+import net.hycube.logging.LogHelper;
+import net.hycube.utils.ObjectToStringConverter.MappedType;
+
+/**
+ * DHT storage manager (the same storage rules as HyCubeSimpleDHTStorageManager) keeping the resource data outside of the heap, in chunks allocated by HyCubeOffHeapSlabAllocator.
+ * Only the index entries (keys, resource descriptors, refresh times and the chunk addresses) are kept on heap. Data larger than the largest chunk is kept in dedicated direct buffers.
+ * The entries returned by getFromStorage expose the data as read-only views of the chunks and of the large buffers (getDataBuffer), which are written to the get replies without copying the data
+ * to intermediate arrays (the data is copied to a byte array only when the resource of such an entry is requested). Every entry returned for a chunk pins the chunk - the chunk of an entry
+ * no longer stored is freed (and may be reused) only after all entries pinning it are released (HyCubeResourceEntry.release()). The entries that are not released explicitly are released
+ * when they are garbage-collected. The large data buffers are never reused (they are freed by the garbage collector after the views are no longer used).
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeOffHeapDHTStorageManager extends HyCubeSimpleDHTStorageManager {
+
+
+	private static org.apache.commons.logging.Log devLog = LogHelper.getDevLog(HyCubeOffHeapDHTStorageManager.class);
+
+
+	protected static final String PROP_KEY_ARENA_SIZE = "ArenaSize";
+	protected static final String PROP_KEY_SLAB_SIZE = "SlabSize";
+	protected static final String PROP_KEY_MIN_CHUNK_SIZE = "MinChunkSize";
+	protected static final String PROP_KEY_CHUNK_SIZE_GROWTH_FACTOR = "ChunkSizeGrowthFactor";
+	protected static final String PROP_KEY_MAX_OFF_HEAP_SIZE = "MaxOffHeapSize";
+
+
+	public static final int DEFAULT_ARENA_SIZE = 4 * 1024 * 1024;
+	public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+	public static final int DEFAULT_MIN_CHUNK_SIZE = 64;
+	public static final double DEFAULT_CHUNK_SIZE_GROWTH_FACTOR = 1.25;
+	public static final long DEFAULT_MAX_OFF_HEAP_SIZE = 0;
+
+
+
+	/**
+	 * Chunk containing the data of a resource (shared by the entry and the entries replacing it when the resource is refreshed)
+	 */
+	protected static class OffHeapChunk {
+
+		protected long address;
+		protected int length;
+		protected int pins;				//the number of the entries returned (views of the chunk) not released yet
+		protected boolean freePending;	//the resource is no longer stored - the chunk is freed when the last pin is released
+
+		public OffHeapChunk(long address, int length) {
+			this.address = address;
+			this.length = length;
+		}
+
+	}
+
+
+	/**
+	 * Index entry of a resource stored off-heap (the resource of the entry does not contain the data)
+	 */
+	protected static class OffHeapResourceEntry extends HyCubeResourceEntry {
+
+		protected OffHeapChunk chunk;
+		protected int length;
+		protected ByteBuffer largeBuffer;		//direct buffer containing the data larger than the maximum chunk size
+
+		public OffHeapResourceEntry(BigInteger key, HyCubeResourceDescriptor rd, long time, OffHeapChunk chunk, int length, ByteBuffer largeBuffer) {
+			super(key, new HyCubeResource(rd), time);
+			this.chunk = chunk;
+			this.length = length;
+			this.largeBuffer = largeBuffer;
+		}
+
+	}
+
+
+	/**
+	 * Entry returned by getFromStorage for the data kept in a large buffer - the data is copied from the view to a byte array when the resource is requested
+	 */
+	protected static class OffHeapResultEntry extends HyCubeResourceEntry {
+
+		protected ByteBuffer data;
+
+		public OffHeapResultEntry(BigInteger key, HyCubeResourceDescriptor rd, long time, ByteBuffer data) {
+			super(key, new HyCubeResource(rd), time);
+			this.data = data;
+		}
+
+		@Override
+		public HyCubeResource getResource() {
+			if (resource.getData() == null) {
+				byte[] dataB = new byte[data.remaining()];
+				data.duplicate().get(dataB);
+				resource.setData(dataB);
+			}
+			return resource;
+		}
+
+		@Override
+		public ByteBuffer getDataBuffer() {
+			return data.duplicate();
+		}
+
+	}
+
+
+	/**
+	 * Entry returned by getFromStorage for the data kept in a chunk. The entry pins the chunk until it is released - the data is copied from the view to a byte array
+	 * when the resource is requested (which releases the pin, as the view is no longer needed)
+	 */
+	protected static class OffHeapChunkResultEntry extends OffHeapResultEntry {
+
+		protected ChunkPin pin;
+
+		public OffHeapChunkResultEntry(BigInteger key, HyCubeResourceDescriptor rd, long time, ByteBuffer data) {
+			super(key, rd, time, data);
+		}
+
+		@Override
+		public HyCubeResource getResource() {
+			synchronized (pin.manager.resources) {
+				if (resource.getData() == null) {
+					if (pin.released) throw new IllegalStateException("The entry was released before the data was read.");
+					super.getResource();
+				}
+				pin.manager.unpin(pin);
+			}
+			return resource;
+		}
+
+		@Override
+		public ByteBuffer getDataBuffer() {
+			synchronized (pin.manager.resources) {
+				if (pin.released) {
+					if (resource.getData() == null) throw new IllegalStateException("The entry was released before the data was read.");
+					return ByteBuffer.wrap(resource.getData());
+				}
+				return data.duplicate();
+			}
+		}
+
+		@Override
+		public void release() {
+			synchronized (pin.manager.resources) {
+				pin.manager.unpin(pin);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Pin of a chunk held by a result entry. The pins of the entries garbage-collected without being released are released by the storage manager (polling the reference queue)
+	 */
+	protected static class ChunkPin extends WeakReference<OffHeapChunkResultEntry> {
+
+		protected final HyCubeOffHeapDHTStorageManager manager;
+		protected final OffHeapChunk chunk;
+		protected boolean released;
+
+		public ChunkPin(OffHeapChunkResultEntry entry, ReferenceQueue<OffHeapChunkResultEntry> queue, HyCubeOffHeapDHTStorageManager manager, OffHeapChunk chunk) {
+			super(entry, queue);
+			this.manager = manager;
+			this.chunk = chunk;
+		}
+
+	}
+
+
+	protected HyCubeOffHeapSlabAllocator allocator;
+	protected long largeBuffersSize;
+
+	protected ReferenceQueue<OffHeapChunkResultEntry> collectedPins;
+	protected HashSet<ChunkPin> pins;		//keeps the pins (weak references) reachable until they are released
+
+
+	protected int arenaSize;
+	protected int slabSize;
+	protected int minChunkSize;
+	protected double chunkSizeGrowthFactor;
+	protected long maxOffHeapSize;
+
+
+
+
+	@Override
+	public void initialize(NodeAccessor nodeAccessor, NodeProperties properties) throws InitializationException {
+
+		super.initialize(nodeAccessor, properties);
+
+		try {
+
+			if (properties.containsKey(PROP_KEY_ARENA_SIZE)) {
+				arenaSize = (Integer) properties.getProperty(PROP_KEY_ARENA_SIZE, MappedType.INT);
+				if (arenaSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_ARENA_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_ARENA_SIZE) + ".");
+			}
+			else arenaSize = DEFAULT_ARENA_SIZE;
+
+			if (properties.containsKey(PROP_KEY_SLAB_SIZE)) {
+				slabSize = (Integer) properties.getProperty(PROP_KEY_SLAB_SIZE, MappedType.INT);
+				if (slabSize <= 0 || slabSize > arenaSize) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_SLAB_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_SLAB_SIZE) + ".");
+			}
+			else slabSize = Math.min(DEFAULT_SLAB_SIZE, arenaSize);
+
+			if (properties.containsKey(PROP_KEY_MIN_CHUNK_SIZE)) {
+				minChunkSize = (Integer) properties.getProperty(PROP_KEY_MIN_CHUNK_SIZE, MappedType.INT);
+				if (minChunkSize <= 0 || minChunkSize > slabSize) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_MIN_CHUNK_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_MIN_CHUNK_SIZE) + ".");
+			}
+			else minChunkSize = Math.min(DEFAULT_MIN_CHUNK_SIZE, slabSize);
+
+			if (properties.containsKey(PROP_KEY_CHUNK_SIZE_GROWTH_FACTOR)) {
+				chunkSizeGrowthFactor = (Double) properties.getProperty(PROP_KEY_CHUNK_SIZE_GROWTH_FACTOR, MappedType.DOUBLE);
+				if (chunkSizeGrowthFactor <= 1) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_CHUNK_SIZE_GROWTH_FACTOR), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_CHUNK_SIZE_GROWTH_FACTOR) + ".");
+			}
+			else chunkSizeGrowthFactor = DEFAULT_CHUNK_SIZE_GROWTH_FACTOR;
+
+			if (properties.containsKey(PROP_KEY_MAX_OFF_HEAP_SIZE)) {
+				maxOffHeapSize = (Long) properties.getProperty(PROP_KEY_MAX_OFF_HEAP_SIZE, MappedType.LONG);
+				if (maxOffHeapSize < 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_MAX_OFF_HEAP_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_MAX_OFF_HEAP_SIZE) + ".");
+			}
+			else maxOffHeapSize = DEFAULT_MAX_OFF_HEAP_SIZE;
+
+		} catch (NodePropertiesConversionException e) {
+			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize the DHT storage manager instance. Invalid parameter value: " + e.getKey() + ".", e);
+		}
+
+		//the large buffers are only created if the total size (with the arenas) does not exceed the limit, and their size is reserved in the allocator, which does not allocate new arenas exceeding the limit:
+		this.allocator = new HyCubeOffHeapSlabAllocator(arenaSize, slabSize, minChunkSize, chunkSizeGrowthFactor, maxOffHeapSize);
+		this.largeBuffersSize = 0;
+
+		this.collectedPins = new ReferenceQueue<OffHeapChunkResultEntry>();
+		this.pins = new HashSet<ChunkPin>();
+
+	}
+
+
+
+	@Override
+	protected HyCubeResourceEntry createResourceEntry(BigInteger key, HyCubeResource r, long refreshTime) {
+
+		byte[] data = (r.getData() != null ? r.getData() : new byte[0]);
+
+		synchronized (resources) {
+
+			releaseCollectedPins();
+
+			if (data.length > allocator.getMaxChunkSize()) {
+				if (maxOffHeapSize > 0 && allocator.getAllocatedSize() + largeBuffersSize + data.length > maxOffHeapSize) {
+					return null;
+				}
+				ByteBuffer largeBuffer = ByteBuffer.allocateDirect(data.length);
+				largeBuffer.put(data);
+				largeBuffer.flip();
+				largeBuffersSize += data.length;
+				allocator.setReservedSize(largeBuffersSize);
+				return new OffHeapResourceEntry(key, r.getResourceDescriptor(), refreshTime, null, data.length, largeBuffer);
+			}
+
+			long address = allocator.allocate(data.length);
+			if (address == HyCubeOffHeapSlabAllocator.NO_ADDRESS) {
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "The off-heap storage limit was reached. The resource will not be stored.");
+				}
+				return null;
+			}
+			allocator.write(address, data);
+
+			return new OffHeapResourceEntry(key, r.getResourceDescriptor(), refreshTime, new OffHeapChunk(address, data.length), data.length, null);
+
+		}
+
+	}
+
+
+	@Override
+	protected HyCubeResourceEntry createRefreshedResourceEntry(HyCubeResourceEntry re, long refreshTime) {
+		//the data is kept in the same chunk (the pins of the chunk are shared by the entries):
+		OffHeapResourceEntry ore = (OffHeapResourceEntry) re;
+		return new OffHeapResourceEntry(ore.getKey(), ore.getResource().getResourceDescriptor(), refreshTime, ore.chunk, ore.length, ore.largeBuffer);
+	}
+
+
+	@Override
+	protected void releaseResourceEntry(HyCubeResourceEntry re) {
+
+		OffHeapResourceEntry ore = (OffHeapResourceEntry) re;
+
+		synchronized (resources) {
+			releaseCollectedPins();
+			if (ore.largeBuffer != null) {
+				//freed by the garbage collector (after the views are no longer used)
+				largeBuffersSize -= ore.length;
+				allocator.setReservedSize(largeBuffersSize);
+			}
+			else if (ore.chunk.pins > 0) {
+				//views of the chunk are still in use (e.g. written to the get replies) - the chunk is freed when the last of them is released
+				ore.chunk.freePending = true;
+			}
+			else {
+				allocator.free(ore.chunk.address);
+			}
+		}
+
+	}
+
+
+	@Override
+	protected HyCubeResourceEntry createResultEntry(HyCubeResourceEntry re) {
+		//called by getFromStorage under the storage lock
+		OffHeapResourceEntry ore = (OffHeapResourceEntry) re;
+		if (ore.largeBuffer != null) {
+			return new OffHeapResultEntry(ore.getKey(), ore.getResource().getResourceDescriptor(), ore.getRefreshTime(), ore.largeBuffer.asReadOnlyBuffer());
+		}
+		else {
+			//the chunk is pinned (not reused even if the entry is no longer stored) until the entry returned is released:
+			OffHeapChunkResultEntry result = new OffHeapChunkResultEntry(ore.getKey(), ore.getResource().getResourceDescriptor(), ore.getRefreshTime(), allocator.view(ore.chunk.address, ore.chunk.length));
+			result.pin = new ChunkPin(result, collectedPins, this, ore.chunk);
+			pins.add(result.pin);
+			ore.chunk.pins++;
+			return result;
+		}
+	}
+
+
+	/**
+	 * Releases the pin of the chunk (called under the storage lock). The chunk of the entry no longer stored is freed when the last pin is released
+	 */
+	protected void unpin(ChunkPin pin) {
+		if (pin.released) return;
+		pin.released = true;
+		pins.remove(pin);
+		OffHeapChunk chunk = pin.chunk;
+		chunk.pins--;
+		if (chunk.pins == 0 && chunk.freePending) {
+			chunk.freePending = false;
+			allocator.free(chunk.address);
+		}
+	}
+
+
+	/**
+	 * Releases the pins of the entries garbage-collected without being released (called under the storage lock)
+	 */
+	protected void releaseCollectedPins() {
+		ChunkPin pin;
+		while ((pin = (ChunkPin) collectedPins.poll()) != null) {
+			unpin(pin);
+		}
+	}
+
+
+
+	/**
+	 * The total size of the off-heap memory allocated (arenas and large buffers)
+	 */
+	public long getOffHeapSize() {
+		synchronized (resources) {
+			return allocator.getAllocatedSize() + largeBuffersSize;
+		}
+	}
+
+
+
+	@Override
+	public void discard() {
+
+		synchronized (resources) {
+
+			resources.clear();
+			resourceIndexes.clear();
+			resourceEntries.clear();
+			resourcesNum = 0;
+
+			//the views of the chunks still pinned remain readable (the arenas are released by the garbage collector after the views are no longer used), but the chunks are not freed when the pins are released:
+			for (ChunkPin pin : pins) pin.chunk.freePending = false;
+			pins.clear();
+			collectedPins = new ReferenceQueue<OffHeapChunkResultEntry>();
+
+			allocator.clear();
+			largeBuffersSize = 0;
+			allocator.setReservedSize(0);
+
+		}
+
+	}
+
+
+}
@@ -0,0 +1,232 @@
+package net.hycube.dht;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Allocator of off-heap memory chunks (used for storing the resource data outside of the heap).
+ * The memory is allocated from the system in arenas (direct byte buffers), which are divided into slabs. Every slab is assigned to one size class
+ * and is divided into chunks of the size of the class (the sizes of the classes grow by the growth factor). A chunk of the smallest class not smaller than the requested length is allocated,
+ * and freed chunks are reused by the allocations of the same class. The memory is never returned to the system (until the allocator is discarded).
+ * The chunks are identified by addresses (slab index and offset within the slab). The allocator is not thread-safe.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeOffHeapSlabAllocator {
+
+	public static final int ADDRESS_OFFSET_BITS = 32;
+	public static final long ADDRESS_OFFSET_MASK = 0xFFFFFFFFL;
+
+	public static final long NO_ADDRESS = -1;
+
+
+	protected int arenaSize;
+	protected int slabSize;
+	protected long maxSize;
+
+	protected int[] classSizes;
+	protected long[][] freeChunks;		//stacks of the free chunks of the classes
+	protected int[] freeChunksNums;
+
+	protected ArrayList<ByteBuffer> slabs;
+	protected ArrayList<Integer> slabClasses;
+
+	protected ByteBuffer arena;
+	protected int arenaPosition;
+	protected long allocatedSize;
+	protected long reservedSize;
+
+
+	/**
+	 * @param arenaSize The size of the memory blocks allocated from the system
+	 * @param slabSize The size of the slabs (not greater than arenaSize), the size of the largest class
+	 * @param minChunkSize The size of the smallest class
+	 * @param growthFactor The factor by which the sizes of the classes grow
+	 * @param maxSize The maximum total size of the arenas, 0 - no limit
+	 */
+	public HyCubeOffHeapSlabAllocator(int arenaSize, int slabSize, int minChunkSize, double growthFactor, long maxSize) {
+		if (slabSize <= 0 || arenaSize < slabSize) throw new IllegalArgumentException("The slab size should be a positive number not greater than the arena size.");
+		if (minChunkSize <= 0 || minChunkSize > slabSize) throw new IllegalArgumentException("The minimum chunk size should be a positive number not greater than the slab size.");
+		if (growthFactor <= 1) throw new IllegalArgumentException("The growth factor should be greater than 1.");
+		if (maxSize < 0) throw new IllegalArgumentException("The maximum size should be a non-negative number.");
+
+		this.arenaSize = arenaSize;
+		this.slabSize = slabSize;
+		this.maxSize = maxSize;
+
+		//class sizes (multiples of 8 bytes, the last class - the slab size):
+		ArrayList<Integer> sizes = new ArrayList<Integer>();
+		double size = minChunkSize;
+		while (true) {
+			int classSize = (int) Math.min(((((long) Math.ceil(size)) + 7) / 8) * 8, slabSize);
+			if (sizes.isEmpty() || classSize > sizes.get(sizes.size() - 1)) sizes.add(classSize);
+			if (classSize >= slabSize) break;
+			size = size * growthFactor;
+		}
+		this.classSizes = new int[sizes.size()];
+		for (int i = 0; i < classSizes.length; i++) classSizes[i] = sizes.get(i);
+
+		this.freeChunks = new long[classSizes.length][];
+		this.freeChunksNums = new int[classSizes.length];
+		for (int i = 0; i < classSizes.length; i++) freeChunks[i] = new long[16];
+
+		this.slabs = new ArrayList<ByteBuffer>();
+		this.slabClasses = new ArrayList<Integer>();
+
+		this.allocatedSize = 0;
+
+	}
+
+
+	/**
+	 * The maximum length of the data that can be stored in a chunk
+	 */
+	public int getMaxChunkSize() {
+		return classSizes[classSizes.length - 1];
+	}
+
+	/**
+	 * The total size of the arenas allocated from the system
+	 */
+	public long getAllocatedSize() {
+		return allocatedSize;
+	}
+
+	/**
+	 * The size of the memory allocated outside of the allocator, counted towards the maximum size (no new arenas are allocated if the total size would exceed the maximum size)
+	 */
+	public long getReservedSize() {
+		return reservedSize;
+	}
+
+	public void setReservedSize(long reservedSize) {
+		this.reservedSize = reservedSize;
+	}
+
+	public int getChunkSize(long address) {
+		return classSizes[slabClasses.get((int) (address >>> ADDRESS_OFFSET_BITS))];
+	}
+
+
+	/**
+	 * Allocates a chunk for the data of the specified length
+	 * @return The address of the chunk, or NO_ADDRESS if the memory limit was reached
+	 */
+	public long allocate(int length) {
+
+		if (length > getMaxChunkSize()) throw new IllegalArgumentException("The length exceeds the maximum chunk size.");
+
+		int sizeClass = getSizeClass(length);
+
+		if (freeChunksNums[sizeClass] == 0) {
+			if (! allocateSlab(sizeClass)) return NO_ADDRESS;
+		}
+
+		freeChunksNums[sizeClass]--;
+		return freeChunks[sizeClass][freeChunksNums[sizeClass]];
+
+	}
+
+
+	public void free(long address) {
+		int sizeClass = slabClasses.get((int) (address >>> ADDRESS_OFFSET_BITS));
+		if (freeChunksNums[sizeClass] == freeChunks[sizeClass].length) {
+			long[] chunks = new long[freeChunks[sizeClass].length * 2];
+			System.arraycopy(freeChunks[sizeClass], 0, chunks, 0, freeChunksNums[sizeClass]);
+			freeChunks[sizeClass] = chunks;
+		}
+		freeChunks[sizeClass][freeChunksNums[sizeClass]] = address;
+		freeChunksNums[sizeClass]++;
+	}
+
+
+	public void write(long address, byte[] data) {
+		ByteBuffer b = slabs.get((int) (address >>> ADDRESS_OFFSET_BITS)).duplicate();
+		b.position((int) (address & ADDRESS_OFFSET_MASK));
+		b.put(data);
+	}
+
+
+	/**
+	 * Copies the data stored in the chunk to a new byte array
+	 */
+	public byte[] read(long address, int length) {
+		ByteBuffer b = slabs.get((int) (address >>> ADDRESS_OFFSET_BITS)).duplicate();
+		b.position((int) (address & ADDRESS_OFFSET_MASK));
+		byte[] data = new byte[length];
+		b.get(data);
+		return data;
+	}
+
+
+	/**
+	 * Returns a read-only view of the data stored in the chunk (the view remains valid until the chunk is reused)
+	 */
+	public ByteBuffer view(long address, int length) {
+		ByteBuffer b = slabs.get((int) (address >>> ADDRESS_OFFSET_BITS)).duplicate();
+		int offset = (int) (address & ADDRESS_OFFSET_MASK);
+		b.limit(offset + length);
+		b.position(offset);
+		return b.slice().asReadOnlyBuffer();
+	}
+
+
+	/**
+	 * Releases all arenas (they are freed by the garbage collector)
+	 */
+	public void clear() {
+		slabs.clear();
+		slabClasses.clear();
+		for (int i = 0; i < classSizes.length; i++) freeChunksNums[i] = 0;
+		arena = null;
+		allocatedSize = 0;
+	}
+
+
+
+	protected int getSizeClass(int length) {
+		//binary search for the smallest class not smaller than the length:
+		int low = 0;
+		int high = classSizes.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (classSizes[mid] < length) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+
+	protected boolean allocateSlab(int sizeClass) {
+
+		if (arena == null || arenaSize - arenaPosition < slabSize) {
+			if (maxSize > 0 && allocatedSize + reservedSize + arenaSize > maxSize) return false;
+			arena = ByteBuffer.allocateDirect(arenaSize);
+			arenaPosition = 0;
+			allocatedSize += arenaSize;
+		}
+
+		ByteBuffer b = arena.duplicate();
+		b.limit(arenaPosition + slabSize);
+		b.position(arenaPosition);
+		ByteBuffer slab = b.slice();
+		arenaPosition += slabSize;
+
+		int slabIndex = slabs.size();
+		slabs.add(slab);
+		slabClasses.add(sizeClass);
+
+		//divide the slab into chunks (the chunks are allocated starting from the beginning of the slab):
+		int chunkSize = classSizes[sizeClass];
+		int chunksNum = slabSize / chunkSize;
+		for (int i = chunksNum - 1; i >= 0; i--) {
+			free((((long) slabIndex) << ADDRESS_OFFSET_BITS) | (((long) i) * chunkSize));
+		}
+
+		return true;
+
+	}
+
+
+}
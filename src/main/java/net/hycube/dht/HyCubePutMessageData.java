@@ -20,12 +20,7 @@ public class HyCubePutMessageData {
 	protected int calculateMessageDataLength() {
 		int dataLength;
 		
-		int resourceDescriptorSize;
-		try {
-			resourceDescriptorSize = resourceDescriptorString.getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET).length;
-		} catch (UnsupportedEncodingException e) {
-			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
-		}
+		int resourceDescriptorSize = getResourceDescriptorBytes().length;
 		
 		
 		
@@ -38,8 +33,8 @@ public class HyCubePutMessageData {
 			+ Integer.SIZE/ 8								//resource data length
 
 			+ (int) Math.ceil((key.bitLength() + 1)/8) + 1	//key
-			+ resourceDescriptorSize					//resource descriptor (String)
-			+ resourceData.length						//resource data
+			+ resourceDescriptorSize					//resource descriptor (String or binary form)
+			+ (resourceData != null ? resourceData.length : 0)		//resource data
 
 			+ Long.SIZE/8								//refresh time
 			
@@ -65,10 +60,23 @@ public class HyCubePutMessageData {
 	
 	}
 	
+	public HyCubePutMessageData(int commandId, BigInteger key, HyCubeResourceDescriptor resourceDescriptor, byte[] resourceData, long refreshTime, boolean binaryResourceDescriptor) {
+		this.commandId = commandId;
+		this.key = key;
+		this.resourceDescriptor = resourceDescriptor;
+		this.resourceData = resourceData;
+		this.refreshTime = refreshTime;
+		this.binaryResourceDescriptor = binaryResourceDescriptor;
+	
+	}
+	
 
 	protected int commandId;
 	protected BigInteger key;
 	protected String resourceDescriptorString;
+	protected HyCubeResourceDescriptor resourceDescriptor;		//parsed once, when needed
+	protected byte[] resourceDescriptorB;						//encoded form (as in the message)
+	protected boolean binaryResourceDescriptor;					//the descriptor is sent in the binary form
 	protected byte[] resourceData;
 	protected long refreshTime;
 	
@@ -92,11 +100,64 @@ public class HyCubePutMessageData {
 	}
 	
 	public String getResourceDescriptorString() {
+		if (resourceDescriptorString == null) {
+			if (resourceDescriptor != null) resourceDescriptorString = resourceDescriptor.getDescriptorString();
+			else if (resourceDescriptorB != null) resourceDescriptorString = new String(resourceDescriptorB, HyCubeResourceDescriptor.DESCRIPTOR_STRING_CHARSET);		//the binary forms are parsed in fromBytes
+		}
 		return resourceDescriptorString;
 	}
 
 	public void setResourceDescriptorString(String resourceDescriptorString) {
 		this.resourceDescriptorString = resourceDescriptorString;
+		this.resourceDescriptor = null;
+		this.resourceDescriptorB = null;
+	}
+	
+	public HyCubeResourceDescriptor getResourceDescriptor() {
+		if (resourceDescriptor == null) {
+			if (resourceDescriptorB != null) resourceDescriptor = HyCubeResourceDescriptor.fromEncodedDescriptor(resourceDescriptorB);
+			else if (resourceDescriptorString != null) resourceDescriptor = new HyCubeResourceDescriptor(resourceDescriptorString);
+		}
+		return resourceDescriptor;
+	}
+	
+	public void setResourceDescriptor(HyCubeResourceDescriptor resourceDescriptor) {
+		this.resourceDescriptor = resourceDescriptor;
+		this.resourceDescriptorString = null;
+		this.resourceDescriptorB = null;
+	}
+	
+	public boolean isBinaryResourceDescriptor() {
+		return binaryResourceDescriptor;
+	}
+	
+	public void setBinaryResourceDescriptor(boolean binaryResourceDescriptor) {
+		if (binaryResourceDescriptor != this.binaryResourceDescriptor) {
+			//the descriptor will be encoded again
+			getResourceDescriptor();
+			resourceDescriptorB = null;
+		}
+		this.binaryResourceDescriptor = binaryResourceDescriptor;
+	}
+	
+	
+	protected byte[] getResourceDescriptorBytes() {
+		if (resourceDescriptorB == null) {
+			if (resourceDescriptor != null) {
+				resourceDescriptorB = resourceDescriptor.getEncodedDescriptor(binaryResourceDescriptor);
+			}
+			else if (binaryResourceDescriptor) {
+				resourceDescriptorB = getResourceDescriptor().getDescriptorBytes();
+			}
+			else {
+				try {
+					resourceDescriptorB = resourceDescriptorString.getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
+				} catch (UnsupportedEncodingException e) {
+					throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+				}
+			}
+		}
+		return resourceDescriptorB;
 	}
 	
 	public byte[] getResourceData() {
@@ -135,12 +196,7 @@ public class HyCubePutMessageData {
 		
 		
 		
-		byte[] resourceDescriptorStringB;
-		try {
-			resourceDescriptorStringB = resourceDescriptorString.getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
-		} catch (UnsupportedEncodingException e) {
-			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
-		}
+		byte[] resourceDescriptorStringB = getResourceDescriptorBytes();
 		if (resourceDescriptorStringB.length > Short.MAX_VALUE) {
 			throw new MessageByteConversionRuntimeException("The length of the descriptor string byte representation length exceeds Short.MAX_VALUE.");
 		}
@@ -220,16 +276,18 @@ public class HyCubePutMessageData {
 			msgData.key = key;
 			
 
-			//resource descriptor string:
+			//resource descriptor (string or binary form - converted to the string/parsed when needed):
 			byte[] resourceDescriptorStringB = new byte[resourceDescriptorLength];
 			b.get(resourceDescriptorStringB);
-			String resourceDescriptorString;
-			try {
-				resourceDescriptorString = new String(resourceDescriptorStringB, MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
-			} catch (UnsupportedEncodingException e) {
-				throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+			msgData.resourceDescriptorB = resourceDescriptorStringB;
+			if (HyCubeResourceDescriptor.isBinaryDescriptor(resourceDescriptorStringB)) {
+				msgData.binaryResourceDescriptor = true;
+				try {
+					msgData.resourceDescriptor = HyCubeResourceDescriptor.fromDescriptorBytes(resourceDescriptorStringB);
+				} catch (IllegalArgumentException e) {
+					throw new MessageByteConversionException("Could not convert the byte array to the message data object. The binary resource descriptor is invalid.", e);
+				}
 			}
-			msgData.resourceDescriptorString = resourceDescriptorString;
 			
 			
 			
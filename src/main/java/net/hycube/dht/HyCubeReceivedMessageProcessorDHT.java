@@ -125,7 +125,29 @@ public class HyCubeReceivedMessageProcessorDHT implements ReceivedMessageProcess
 						break;
 					case REPLICATE:
 						processReplicateMessage(msg);
-						
+						break;
+					case REPLICATE_DIGEST:
+						processReplicateDigestMessage(msg);
+						break;
+					case REPLICATE_DIGEST_REPLY:
+						processReplicateDigestReplyMessage(msg);
+						break;
+					case REPLICATE_FETCH:
+						processReplicateFetchMessage(msg);
+						break;
+					case REPLICATE_FETCH_REPLY:
+						processReplicateFetchReplyMessage(msg);
+						break;
+					case PUT_BATCH:
+					case GET_BATCH:
+					case DELETE_BATCH:
+						processBatchMessage(msg);
+						break;
+					case PUT_BATCH_REPLY:
+					case GET_BATCH_REPLY:
+					case DELETE_BATCH_REPLY:
+						processBatchReplyMessage(msg);
+						break;
 					default:
 						break;
 				}
@@ -175,7 +197,7 @@ public class HyCubeReceivedMessageProcessorDHT implements ReceivedMessageProcess
 		
 		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
 		
-		this.dhtManager.processPutRequest(sender, msg, msgData.getCommandId(), msgData.getKey(), msgData.getResourceDescriptorString(), msgData.getResourceData(), msgData.getRefreshTime());
+		this.dhtManager.processPutRequest(sender, msg, msgData.getCommandId(), msgData.getKey(), msgData.getResourceDescriptor(), msgData.getResourceData(), msgData.getRefreshTime());
 		
 		
 	}
@@ -234,7 +256,7 @@ public class HyCubeReceivedMessageProcessorDHT implements ReceivedMessageProcess
 		
 		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
 		
-		this.dhtManager.processGetRequest(sender, msg, msgData.getCommandId(), msgData.getKey(), msgData.getCriteriaString(), msgData.isGetFromClosestNode());
+		this.dhtManager.processGetRequest(sender, msg, msgData.getCommandId(), msgData.getKey(), msgData.getCriteria(), msgData.isGetFromClosestNode(), msgData.isAllowPathCache(), msgData.isReturnValidityTimes());
 		
 		
 	}
@@ -263,7 +285,7 @@ public class HyCubeReceivedMessageProcessorDHT implements ReceivedMessageProcess
 		
 		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
 		
-		this.dhtManager.processGetResponse(sender, msg, msgData.getCommandId(), msgData.getResourceDescriptorStrings(), msgData.getResourcesData());
+		this.dhtManager.processGetResponse(sender, msg, msgData.getCommandId(), msgData.getResourceDescriptors(), msgData.getResourcesData(), msgData.getValidityTimes());
 		
 		
 	}
@@ -327,6 +349,101 @@ public class HyCubeReceivedMessageProcessorDHT implements ReceivedMessageProcess
 	}
 
 	
+	protected void processBatchMessage(HyCubeMessage msg) throws ProcessMessageException {
+		
+		if (devLog.isTraceEnabled()) {
+			devLog.trace("Processing " + msg.getType() + " message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		if (msgLog.isInfoEnabled()) {
+			msgLog.info("Processing " + msg.getType() + " message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		
+		HyCubeDHTBatchMessageData msgData = null;
+		try {
+			msgData = HyCubeDHTBatchMessageData.fromBytes(msg.getData());
+		} catch (MessageByteConversionException e) {
+			if (devLog.isDebugEnabled()) {
+				devLog.debug(msg.getType() + " message #" + msg.getSerialNoAndSenderString() + " is corrupted.", e);
+			}
+			if (msgLog.isInfoEnabled()) {
+				msgLog.info(msg.getType() + " message #" + msg.getSerialNoAndSenderString() + "is corrupted.");
+			}
+			return;
+		}
+		
+		//the responses are sent to the node that started the batch (the message may be sent by a node forwarding the entries):
+		NodePointer origin = new NodePointer(nodeAccessor.getNetworkAdapter(), msgData.getOriginNetworkAddress(), nodeAccessor.getNodeIdFactory().fromBigInteger(msgData.getOriginId()));
+		
+		switch (msg.getType()) {
+			case PUT_BATCH:
+				this.dhtManager.processPutBatchRequest(origin, msg, msgData);
+				break;
+			case GET_BATCH:
+				this.dhtManager.processGetBatchRequest(origin, msg, msgData);
+				break;
+			case DELETE_BATCH:
+				this.dhtManager.processDeleteBatchRequest(origin, msg, msgData);
+				break;
+			default:
+				break;
+		}
+		
+	}
+	
+	
+	protected void processBatchReplyMessage(HyCubeMessage msg) throws ProcessMessageException {
+		
+		if (devLog.isTraceEnabled()) {
+			devLog.trace("Processing " + msg.getType() + " message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		if (msgLog.isInfoEnabled()) {
+			msgLog.info("Processing " + msg.getType() + " message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		
+		HyCubeDHTBatchReplyMessageData msgData = null;
+		try {
+			msgData = HyCubeDHTBatchReplyMessageData.fromBytes(msg.getData());
+		} catch (MessageByteConversionException e) {
+			if (devLog.isDebugEnabled()) {
+				devLog.debug(msg.getType() + " message #" + msg.getSerialNoAndSenderString() + " is corrupted.", e);
+			}
+			if (msgLog.isInfoEnabled()) {
+				msgLog.info(msg.getType() + " message #" + msg.getSerialNoAndSenderString() + "is corrupted.");
+			}
+			return;
+		}
+		
+		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
+		
+		//every entry is the response to one request of the batch:
+		for (byte[] entryData : msgData.getEntriesData()) {
+			try {
+				switch (msg.getType()) {
+					case PUT_BATCH_REPLY:
+						HyCubePutReplyMessageData putReplyData = HyCubePutReplyMessageData.fromBytes(entryData);
+						this.dhtManager.processPutResponse(sender, msg, putReplyData.getCommandId(), putReplyData.getPutStatus());
+						break;
+					case GET_BATCH_REPLY:
+						HyCubeGetReplyMessageData getReplyData = HyCubeGetReplyMessageData.fromBytes(entryData);
+						this.dhtManager.processGetResponse(sender, msg, getReplyData.getCommandId(), getReplyData.getResourceDescriptors(), getReplyData.getResourcesData(), getReplyData.getValidityTimes());
+						break;
+					case DELETE_BATCH_REPLY:
+						HyCubeDeleteReplyMessageData deleteReplyData = HyCubeDeleteReplyMessageData.fromBytes(entryData);
+						this.dhtManager.processDeleteResponse(sender, msg, deleteReplyData.getCommandId(), deleteReplyData.getDeleteStatus());
+						break;
+					default:
+						break;
+				}
+			} catch (MessageByteConversionException e) {
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("An entry of " + msg.getType() + " message #" + msg.getSerialNoAndSenderString() + " is corrupted.", e);
+				}
+			}
+		}
+		
+	}
+	
+	
 	protected void processRefreshPutMessage(HyCubeMessage msg) throws ProcessMessageException {
 		
 		if (devLog.isTraceEnabled()) {
@@ -410,7 +527,123 @@ public class HyCubeReceivedMessageProcessorDHT implements ReceivedMessageProcess
 		
 		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
 		
-		this.dhtManager.processReplicateMessage(sender, msg, msgData.getResourcesNum(), msgData.getKeys(), msgData.getResourceDescriptorStrings(), msgData.getRefreshTimes(), msgData.getReplicationSpreadNodesNums());
+		this.dhtManager.processReplicateMessage(sender, msg, msgData.getResourcesNum(), msgData.getKeys(), msgData.getResourceDescriptors(), msgData.getRefreshTimes(), msgData.getReplicationSpreadNodesNums());
+		
+		
+	}
+	
+	protected void processReplicateDigestMessage(HyCubeMessage msg) throws ProcessMessageException {
+		
+		if (devLog.isTraceEnabled()) {
+			devLog.trace("Processing REPLICATE_DIGEST message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		if (msgLog.isInfoEnabled()) {
+			msgLog.info("Processing REPLICATE_DIGEST message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		
+		HyCubeReplicateDigestMessageData msgData = null;
+		try {
+			msgData = HyCubeReplicateDigestMessageData.fromBytes(msg.getData());
+		} catch (MessageByteConversionException e) {
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("REPLICATE_DIGEST message #" + msg.getSerialNoAndSenderString() + " is corrupted.", e);
+			}
+			if (msgLog.isInfoEnabled()) {
+				msgLog.info("REPLICATE_DIGEST message #" + msg.getSerialNoAndSenderString() + "is corrupted.");
+			}
+			return;
+		}
+		
+		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
+		
+		this.dhtManager.processReplicateDigestMessage(sender, msg, msgData.getDensity(), msgData.getRangesNum(), msgData.getDigests(), msgData.getResourcesNums());
+		
+		
+	}
+	
+	protected void processReplicateDigestReplyMessage(HyCubeMessage msg) throws ProcessMessageException {
+		
+		if (devLog.isTraceEnabled()) {
+			devLog.trace("Processing REPLICATE_DIGEST_REPLY message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		if (msgLog.isInfoEnabled()) {
+			msgLog.info("Processing REPLICATE_DIGEST_REPLY message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		
+		HyCubeReplicateDigestReplyMessageData msgData = null;
+		try {
+			msgData = HyCubeReplicateDigestReplyMessageData.fromBytes(msg.getData());
+		} catch (MessageByteConversionException e) {
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("REPLICATE_DIGEST_REPLY message #" + msg.getSerialNoAndSenderString() + " is corrupted.", e);
+			}
+			if (msgLog.isInfoEnabled()) {
+				msgLog.info("REPLICATE_DIGEST_REPLY message #" + msg.getSerialNoAndSenderString() + "is corrupted.");
+			}
+			return;
+		}
+		
+		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
+		
+		this.dhtManager.processReplicateDigestReplyMessage(sender, msg, msgData.getDensity(), msgData.getRangesNum(), msgData.getMismatchedRanges());
+		
+		
+	}
+	
+	protected void processReplicateFetchMessage(HyCubeMessage msg) throws ProcessMessageException {
+		
+		if (devLog.isTraceEnabled()) {
+			devLog.trace("Processing REPLICATE_FETCH message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		if (msgLog.isInfoEnabled()) {
+			msgLog.info("Processing REPLICATE_FETCH message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		
+		HyCubeReplicateFetchMessageData msgData = null;
+		try {
+			msgData = HyCubeReplicateFetchMessageData.fromBytes(msg.getData());
+		} catch (MessageByteConversionException e) {
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("REPLICATE_FETCH message #" + msg.getSerialNoAndSenderString() + " is corrupted.", e);
+			}
+			if (msgLog.isInfoEnabled()) {
+				msgLog.info("REPLICATE_FETCH message #" + msg.getSerialNoAndSenderString() + "is corrupted.");
+			}
+			return;
+		}
+		
+		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
+		
+		this.dhtManager.processReplicateFetchMessage(sender, msg, msgData.getResourcesNum(), msgData.getKeys(), msgData.getResourceDescriptorStrings(), msgData.getReplicationSpreadNodesNums());
+		
+		
+	}
+	
+	protected void processReplicateFetchReplyMessage(HyCubeMessage msg) throws ProcessMessageException {
+		
+		if (devLog.isTraceEnabled()) {
+			devLog.trace("Processing REPLICATE_FETCH_REPLY message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		if (msgLog.isInfoEnabled()) {
+			msgLog.info("Processing REPLICATE_FETCH_REPLY message #" + msg.getSerialNoAndSenderString() + ".");
+		}
+		
+		HyCubeReplicateFetchReplyMessageData msgData = null;
+		try {
+			msgData = HyCubeReplicateFetchReplyMessageData.fromBytes(msg.getData());
+		} catch (MessageByteConversionException e) {
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("REPLICATE_FETCH_REPLY message #" + msg.getSerialNoAndSenderString() + " is corrupted.", e);
+			}
+			if (msgLog.isInfoEnabled()) {
+				msgLog.info("REPLICATE_FETCH_REPLY message #" + msg.getSerialNoAndSenderString() + "is corrupted.");
+			}
+			return;
+		}
+		
+		NodePointer sender = new NodePointer(nodeAccessor.getNetworkAdapter(), msg.getSenderNetworkAddress(), msg.getSenderId());
+		
+		this.dhtManager.processReplicateFetchReplyMessage(sender, msg, msgData.getResourcesNum(), msgData.getKeys(), msgData.getResourceDescriptorStrings(), msgData.getResourcesData(), msgData.getRefreshTimes(), msgData.getReplicationSpreadNodesNums());
 		
 		
 	}
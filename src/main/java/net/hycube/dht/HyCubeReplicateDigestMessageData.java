@@ -0,0 +1,173 @@
+package net.hycube.dht;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import net.hycube.messaging.messages.MessageByteConversionRuntimeException;
+
+/**
+ * REPLICATE_DIGEST message data - digests (HyCubeReplicationDigest) of the resources stored by the sender in the consecutive ranges of the (hashed) key space.
+ * The message contains the node density estimated by the sender - the recipient determines the resources for which both nodes are replicas using the same density
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeReplicateDigestMessageData {
+
+
+	protected int calculateMessageDataLength() {
+
+		int dataLength;
+
+		dataLength =
+
+			+ Long.SIZE/8								//density (the bits of the double value)
+
+			+ Integer.SIZE/8							//ranges number
+
+			+ rangesNum * (
+				+ Long.SIZE/8							//digest
+				+ Integer.SIZE/8						//resources number
+				)
+
+			;
+
+		return dataLength;
+
+	}
+
+
+
+	protected HyCubeReplicateDigestMessageData() {
+
+	}
+
+	public HyCubeReplicateDigestMessageData(double density, int rangesNum, long[] digests, int[] resourcesNums) {
+		this.density = density;
+		this.rangesNum = rangesNum;
+		this.digests = digests;
+		this.resourcesNums = resourcesNums;
+
+	}
+
+
+	protected double density;
+	protected int rangesNum;
+	protected long[] digests;
+	protected int[] resourcesNums;
+
+
+
+
+	public double getDensity() {
+		return density;
+	}
+
+	public void setDensity(double density) {
+		this.density = density;
+	}
+
+	public int getRangesNum() {
+		return rangesNum;
+	}
+
+	public void setRangesNum(int rangesNum) {
+		this.rangesNum = rangesNum;
+	}
+
+	public long[] getDigests() {
+		return digests;
+	}
+
+	public void setDigests(long[] digests) {
+		this.digests = digests;
+	}
+
+	public int[] getResourcesNums() {
+		return resourcesNums;
+	}
+
+	public void setResourcesNums(int[] resourcesNums) {
+		this.resourcesNums = resourcesNums;
+	}
+
+
+
+
+	public byte[] getBytes() {
+
+		ByteBuffer b = ByteBuffer.allocate(calculateMessageDataLength());
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		b.putDouble(density);
+
+		b.putInt(rangesNum);
+
+		for (int i = 0; i < rangesNum; i++) {
+			b.putLong(digests[i]);
+			b.putInt(resourcesNums[i]);
+		}
+
+
+		byte[] bytes = b.array();
+		return bytes;
+
+	}
+
+
+
+	public static HyCubeReplicateDigestMessageData fromBytes(byte[] bytes) throws MessageByteConversionException {
+
+		HyCubeReplicateDigestMessageData msgData = new HyCubeReplicateDigestMessageData();
+
+		if (bytes == null) {
+			throw new MessageByteConversionRuntimeException("Could not convert the byte array to the message object. The byte array passed to the method is null.");
+		}
+
+		ByteBuffer b = ByteBuffer.wrap(bytes);
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		try {
+
+			double density = b.getDouble();
+			if (Double.isNaN(density) || density < 0) {
+				throw new MessageByteConversionException("Invalid density value.");
+			}
+			msgData.setDensity(density);
+
+			int rangesNum = b.getInt();
+			if (rangesNum <= 0 || rangesNum > (bytes.length - Long.SIZE/8 - Integer.SIZE/8) / (Long.SIZE/8 + Integer.SIZE/8)) {
+				throw new MessageByteConversionException("Invalid ranges number value.");
+			}
+			msgData.setRangesNum(rangesNum);
+
+			msgData.digests = new long[rangesNum];
+			msgData.resourcesNums = new int[rangesNum];
+
+			for (int i = 0; i < rangesNum; i++) {
+				msgData.digests[i] = b.getLong();
+				msgData.resourcesNums[i] = b.getInt();
+			}
+
+		}
+		catch (BufferUnderflowException e) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		if (msgData.calculateMessageDataLength() != bytes.length) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		return msgData;
+
+
+	}
+
+
+
+
+}
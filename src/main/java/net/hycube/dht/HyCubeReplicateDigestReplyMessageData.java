@@ -0,0 +1,180 @@
+package net.hycube.dht;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import net.hycube.messaging.messages.MessageByteConversionRuntimeException;
+
+/**
+ * REPLICATE_DIGEST_REPLY message data - the indexes of the key ranges for which the digests received in the REPLICATE_DIGEST message differ from the local digests.
+ * The density received in the REPLICATE_DIGEST message is returned, so that the node sending the resources uses the density for which the digests were compared
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeReplicateDigestReplyMessageData {
+
+
+	protected int calculateMessageDataLength() {
+
+		int dataLength;
+
+		dataLength =
+
+			+ Long.SIZE/8								//density (received in the REPLICATE_DIGEST message)
+
+			+ Integer.SIZE/8							//ranges number (the number of ranges of the digest)
+
+			+ Integer.SIZE/8							//mismatched ranges number
+
+			+ mismatchedRangesNum * Integer.SIZE/8		//mismatched ranges
+
+			;
+
+		return dataLength;
+
+	}
+
+
+
+	protected HyCubeReplicateDigestReplyMessageData() {
+
+	}
+
+	public HyCubeReplicateDigestReplyMessageData(double density, int rangesNum, int mismatchedRangesNum, int[] mismatchedRanges) {
+		this.density = density;
+		this.rangesNum = rangesNum;
+		this.mismatchedRangesNum = mismatchedRangesNum;
+		this.mismatchedRanges = mismatchedRanges;
+
+	}
+
+
+	protected double density;
+	protected int rangesNum;
+	protected int mismatchedRangesNum;
+	protected int[] mismatchedRanges;
+
+
+
+
+	public double getDensity() {
+		return density;
+	}
+
+	public void setDensity(double density) {
+		this.density = density;
+	}
+
+	public int getRangesNum() {
+		return rangesNum;
+	}
+
+	public void setRangesNum(int rangesNum) {
+		this.rangesNum = rangesNum;
+	}
+
+	public int getMismatchedRangesNum() {
+		return mismatchedRangesNum;
+	}
+
+	public void setMismatchedRangesNum(int mismatchedRangesNum) {
+		this.mismatchedRangesNum = mismatchedRangesNum;
+	}
+
+	public int[] getMismatchedRanges() {
+		return mismatchedRanges;
+	}
+
+	public void setMismatchedRanges(int[] mismatchedRanges) {
+		this.mismatchedRanges = mismatchedRanges;
+	}
+
+
+
+
+	public byte[] getBytes() {
+
+		ByteBuffer b = ByteBuffer.allocate(calculateMessageDataLength());
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		b.putDouble(density);
+
+		b.putInt(rangesNum);
+
+		b.putInt(mismatchedRangesNum);
+
+		for (int i = 0; i < mismatchedRangesNum; i++) {
+			b.putInt(mismatchedRanges[i]);
+		}
+
+
+		byte[] bytes = b.array();
+		return bytes;
+
+	}
+
+
+
+	public static HyCubeReplicateDigestReplyMessageData fromBytes(byte[] bytes) throws MessageByteConversionException {
+
+		HyCubeReplicateDigestReplyMessageData msgData = new HyCubeReplicateDigestReplyMessageData();
+
+		if (bytes == null) {
+			throw new MessageByteConversionRuntimeException("Could not convert the byte array to the message object. The byte array passed to the method is null.");
+		}
+
+		ByteBuffer b = ByteBuffer.wrap(bytes);
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		try {
+
+			double density = b.getDouble();
+			if (Double.isNaN(density) || density < 0) {
+				throw new MessageByteConversionException("Invalid density value.");
+			}
+			msgData.setDensity(density);
+
+			int rangesNum = b.getInt();
+			if (rangesNum <= 0) {
+				throw new MessageByteConversionException("Invalid ranges number value.");
+			}
+			msgData.setRangesNum(rangesNum);
+
+			int mismatchedRangesNum = b.getInt();
+			if (mismatchedRangesNum < 0 || mismatchedRangesNum > rangesNum) {
+				throw new MessageByteConversionException("Invalid mismatched ranges number value.");
+			}
+			msgData.setMismatchedRangesNum(mismatchedRangesNum);
+
+			msgData.mismatchedRanges = new int[mismatchedRangesNum];
+			for (int i = 0; i < mismatchedRangesNum; i++) {
+				int range = b.getInt();
+				if (range < 0 || range >= rangesNum) {
+					throw new MessageByteConversionException("Invalid range index value.");
+				}
+				msgData.mismatchedRanges[i] = range;
+			}
+
+		}
+		catch (BufferUnderflowException e) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		if (msgData.calculateMessageDataLength() != bytes.length) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		return msgData;
+
+
+	}
+
+
+
+
+}
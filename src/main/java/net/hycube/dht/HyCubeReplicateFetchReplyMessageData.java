@@ -0,0 +1,297 @@
+package net.hycube.dht;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import net.hycube.core.UnrecoverableRuntimeException;
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import net.hycube.messaging.messages.MessageByteConversionRuntimeException;
+
+/**
+ * REPLICATE_FETCH_REPLY message data - the resources (with the data) requested in a REPLICATE_FETCH message, with their refresh times
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeReplicateFetchReplyMessageData {
+
+
+	public static final String MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET = "UTF-8";
+
+
+
+	protected int calculateMessageDataLength() {
+
+		int dataLength = calculateMessageDataHeaderLength();
+
+		for (int i = 0; i < resourcesNum; i++) {
+			dataLength += calculateResourceDataLength(keys[i], resourceDescriptorStrings[i], resourcesData[i]);
+		}
+
+		return dataLength;
+
+	}
+
+
+	public static int calculateMessageDataHeaderLength() {
+
+		int dataLength;
+
+		dataLength =
+
+			+ Integer.SIZE/8							//resources number
+
+			;
+
+		return dataLength;
+
+	}
+
+
+	public static int calculateResourceDataLength(BigInteger key, String resourceDescriptorString, byte[] resourceData) {
+
+		int resourceDescriptorSize;
+		try {
+			resourceDescriptorSize = resourceDescriptorString.getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET).length;
+		} catch (UnsupportedEncodingException e) {
+			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+		}
+
+		int dataLength;
+
+		dataLength =
+
+			+ Short.SIZE/8								//key length
+			+ Short.SIZE/8								//resource descriptor length
+			+ Integer.SIZE/8							//resource data length
+
+			+ key.toByteArray().length					//key
+			+ resourceDescriptorSize					//resource descriptor (String)
+			+ (resourceData != null ? resourceData.length : 0)		//resource data
+
+			+ Long.SIZE/8								//refresh time
+			+ Integer.SIZE/8							//replication spread nodes num
+
+			;
+
+		return dataLength;
+
+	}
+
+
+
+	protected HyCubeReplicateFetchReplyMessageData() {
+
+	}
+
+	public HyCubeReplicateFetchReplyMessageData(int resourcesNum, BigInteger[] keys, String[] resourceDescriptorStrings, byte[][] resourcesData, long[] refreshTimes, int[] replicationSpreadNodesNums) {
+		this.resourcesNum = resourcesNum;
+		this.keys = keys;
+		this.resourceDescriptorStrings = resourceDescriptorStrings;
+		this.resourcesData = resourcesData;
+		this.refreshTimes = refreshTimes;
+		this.replicationSpreadNodesNums = replicationSpreadNodesNums;
+
+	}
+
+
+	protected int resourcesNum;
+	protected BigInteger[] keys;
+	protected String[] resourceDescriptorStrings;
+	protected byte[][] resourcesData;
+	protected long[] refreshTimes;
+	protected int[] replicationSpreadNodesNums;
+
+
+
+
+	public int getResourcesNum() {
+		return resourcesNum;
+	}
+
+	public void setResourcesNum(int resourcesNum) {
+		this.resourcesNum = resourcesNum;
+	}
+
+	public BigInteger[] getKeys() {
+		return keys;
+	}
+
+	public void setKeys(BigInteger[] keys) {
+		this.keys = keys;
+	}
+
+	public String[] getResourceDescriptorStrings() {
+		return resourceDescriptorStrings;
+	}
+
+	public void setResourceDescriptorStrings(String[] resourceDescriptorStrings) {
+		this.resourceDescriptorStrings = resourceDescriptorStrings;
+	}
+
+	public byte[][] getResourcesData() {
+		return resourcesData;
+	}
+
+	public void setResourcesData(byte[][] resourcesData) {
+		this.resourcesData = resourcesData;
+	}
+
+	public long[] getRefreshTimes() {
+		return refreshTimes;
+	}
+
+	public void setRefreshTimes(long[] refreshTimes) {
+		this.refreshTimes = refreshTimes;
+	}
+
+	public int[] getReplicationSpreadNodesNums() {
+		return replicationSpreadNodesNums;
+	}
+
+	public void setReplicationSpreadNodesNums(int[] replicationSpreadNodesNums) {
+		this.replicationSpreadNodesNums = replicationSpreadNodesNums;
+	}
+
+
+
+
+	public byte[] getBytes() {
+
+		ByteBuffer b = ByteBuffer.allocate(calculateMessageDataLength());
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		b.putInt(resourcesNum);
+
+		for (int i = 0; i < resourcesNum; i++) {
+
+			byte[] keyB = keys[i].toByteArray();
+			if (keyB.length > Short.MAX_VALUE) {
+				throw new MessageByteConversionRuntimeException("The length of the key exceeds Short.MAX_VALUE.");
+			}
+
+			byte[] resourceDescriptorStringB;
+			try {
+				resourceDescriptorStringB = resourceDescriptorStrings[i].getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
+			} catch (UnsupportedEncodingException e) {
+				throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+			}
+			if (resourceDescriptorStringB.length > Short.MAX_VALUE) {
+				throw new MessageByteConversionRuntimeException("The length of the descriptor string byte representation length exceeds Short.MAX_VALUE.");
+			}
+
+			byte[] resourceData = (resourcesData[i] != null ? resourcesData[i] : new byte[0]);
+
+			b.putShort((short) keyB.length);
+			b.putShort((short) resourceDescriptorStringB.length);
+			b.putInt(resourceData.length);
+
+			b.put(keyB);
+			b.put(resourceDescriptorStringB);
+			b.put(resourceData);
+
+			b.putLong(refreshTimes[i]);
+			b.putInt(replicationSpreadNodesNums[i]);
+
+		}
+
+
+		byte[] bytes = b.array();
+		return bytes;
+
+	}
+
+
+
+	public static HyCubeReplicateFetchReplyMessageData fromBytes(byte[] bytes) throws MessageByteConversionException {
+
+		HyCubeReplicateFetchReplyMessageData msgData = new HyCubeReplicateFetchReplyMessageData();
+
+		if (bytes == null) {
+			throw new MessageByteConversionRuntimeException("Could not convert the byte array to the message object. The byte array passed to the method is null.");
+		}
+
+		ByteBuffer b = ByteBuffer.wrap(bytes);
+		b.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+
+
+		try {
+
+			int resourcesNum = b.getInt();
+			if (resourcesNum < 0 || resourcesNum > bytes.length) {
+				throw new MessageByteConversionException("Invalid resources number value.");
+			}
+			msgData.setResourcesNum(resourcesNum);
+
+			msgData.keys = new BigInteger[resourcesNum];
+			msgData.resourceDescriptorStrings = new String[resourcesNum];
+			msgData.resourcesData = new byte[resourcesNum][];
+			msgData.refreshTimes = new long[resourcesNum];
+			msgData.replicationSpreadNodesNums = new int[resourcesNum];
+
+			for (int i = 0; i < resourcesNum; i++) {
+
+				int keyLength = b.getShort();
+				if (keyLength <= 0) {
+					throw new MessageByteConversionException("Could not convert the byte array to the message data object. The key length is invalid.");
+				}
+
+				int resourceDescriptorLength = b.getShort();
+				if (resourceDescriptorLength < 0) {
+					throw new MessageByteConversionException("Could not convert the byte array to the message data object. The resource descriptor length is negative.");
+				}
+
+				int resourceDataLength = b.getInt();
+				if (resourceDataLength < 0 || resourceDataLength > bytes.length) {
+					throw new MessageByteConversionException("Could not convert the byte array to the message data object. The resource data length is invalid.");
+				}
+
+				//key
+				byte[] keyB = new byte[keyLength];
+				b.get(keyB);
+				msgData.keys[i] = new BigInteger(keyB);
+
+				//resource descriptor string:
+				byte[] resourceDescriptorStringB = new byte[resourceDescriptorLength];
+				b.get(resourceDescriptorStringB);
+				try {
+					msgData.resourceDescriptorStrings[i] = new String(resourceDescriptorStringB, MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
+				} catch (UnsupportedEncodingException e) {
+					throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+				}
+
+				//resource data:
+				byte[] resourceData = new byte[resourceDataLength];
+				b.get(resourceData);
+				msgData.resourcesData[i] = resourceData;
+
+				//refresh time
+				msgData.refreshTimes[i] = b.getLong();
+
+				//replication spread nodes num
+				msgData.replicationSpreadNodesNums[i] = b.getInt();
+
+			}
+
+		}
+		catch (BufferUnderflowException e) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		if (msgData.calculateMessageDataLength() != bytes.length) {
+			throw new MessageByteConversionException("The length of the byte array passed to the method is not equal to the expected message data length.");
+		}
+
+		return msgData;
+
+
+	}
+
+
+
+
+}
@@ -19,6 +19,24 @@ public class HyCubeReplicateMessageData {
 	
 	protected int calculateMessageDataLength() {
 		
+		int dataLength = calculateMessageDataHeaderLength();
+		
+		byte[][] resourceDescriptorsB = getResourceDescriptorsBytes();
+		
+		for (int i = 0; i < resourcesNum; i++) {
+			dataLength += calculateResourceDataLength(keys[i], resourceDescriptorsB[i]);
+		}
+
+		return dataLength;
+		
+	}
+	
+	
+	/**
+	 * Returns the length of the message data part not depending on the resources
+	 */
+	public static int calculateMessageDataHeaderLength() {
+		
 		int dataLength;
 		
 		dataLength = 
@@ -26,35 +44,49 @@ public class HyCubeReplicateMessageData {
 			+ Integer.SIZE								//resources number
 			
 			;
-				
-			for (int i = 0; i < resourcesNum; i++) {
-
-				int resourceDescriptorSize;
-				try {
-					resourceDescriptorSize = resourceDescriptorStrings[i].getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET).length;
-				} catch (UnsupportedEncodingException e) {
-					throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
-				}
-				
-				dataLength +=
-				
-				+ Short.SIZE/8								//key length
-				+ Short.SIZE/ 8								//resource descriptor length
-
+		
+		return dataLength;
+		
+	}
+	
+	
+	/**
+	 * Returns the length of the message data part describing one resource
+	 */
+	public static int calculateResourceDataLength(BigInteger key, String resourceDescriptorString) {
+		
+		try {
+			return calculateResourceDataLength(key, resourceDescriptorString.getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET));
+		} catch (UnsupportedEncodingException e) {
+			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+		}
+		
+	}
+	
+	
+	/**
+	 * Returns the length of the message data part describing one resource (for the encoded resource descriptor - string or binary form)
+	 */
+	public static int calculateResourceDataLength(BigInteger key, byte[] resourceDescriptorB) {
+		
+		int resourceDescriptorSize = resourceDescriptorB.length;
+		
+		int dataLength;
+		
+		dataLength =
+		
+			+ Short.SIZE/8								//key length
+			+ Short.SIZE/ 8								//resource descriptor length
 
-				+ (int) Math.ceil((keys[i].bitLength() + 1)/8) + 1	//key
-				+ resourceDescriptorSize							//resource descriptor (String)
-				+ Long.SIZE/8										//refresh time
-				
-				+ Integer.SIZE/8									//replication spread nodes num
-				
-				;
-				
-			}
 
+			+ (int) Math.ceil((key.bitLength() + 1)/8) + 1	//key
+			+ resourceDescriptorSize							//resource descriptor (String or binary form)
+			+ Long.SIZE/8										//refresh time
+			
+			+ Integer.SIZE/8									//replication spread nodes num
+			
 			;
-
-
+		
 		return dataLength;
 		
 	}
@@ -73,12 +105,26 @@ public class HyCubeReplicateMessageData {
 		this.replicationSpreadNodesNums = replicationSpreadNodesNums;
 		
 	
+	}
+	
+	public HyCubeReplicateMessageData(int resourcesNum, BigInteger[] keys, HyCubeResourceDescriptor[] resourceDescriptors, long[] refreshTimes, int[] replicationSpreadNodesNums, boolean binaryResourceDescriptors) {
+		this.resourcesNum = resourcesNum;
+		this.keys = keys;
+		this.resourceDescriptors = resourceDescriptors;
+		this.refreshTimes = refreshTimes;
+		this.replicationSpreadNodesNums = replicationSpreadNodesNums;
+		this.binaryResourceDescriptors = binaryResourceDescriptors;
+		
+	
 	}
 	
 
 	protected int resourcesNum;
 	protected BigInteger[] keys;
 	protected String[] resourceDescriptorStrings;
+	protected HyCubeResourceDescriptor[] resourceDescriptors;		//parsed once, when needed
+	protected byte[][] resourceDescriptorsB;						//encoded forms (as in the message)
+	protected boolean binaryResourceDescriptors;					//the descriptors are sent in the binary form
 	protected long[] refreshTimes;
 	int[] replicationSpreadNodesNums;
 	
@@ -102,11 +148,57 @@ public class HyCubeReplicateMessageData {
 	}
 	
 	public String[] getResourceDescriptorStrings() {
+		if (resourceDescriptorStrings == null) {
+			if (resourceDescriptors != null) {
+				resourceDescriptorStrings = new String[resourceDescriptors.length];
+				for (int i = 0; i < resourceDescriptors.length; i++) resourceDescriptorStrings[i] = resourceDescriptors[i].getDescriptorString();
+			}
+			else if (resourceDescriptorsB != null) {
+				//the binary forms are parsed in fromBytes
+				resourceDescriptorStrings = new String[resourceDescriptorsB.length];
+				for (int i = 0; i < resourceDescriptorsB.length; i++) resourceDescriptorStrings[i] = new String(resourceDescriptorsB[i], HyCubeResourceDescriptor.DESCRIPTOR_STRING_CHARSET);
+			}
+		}
 		return resourceDescriptorStrings;
 	}
 
 	public void setResourceDescriptorStrings(String[] resourceDescriptorStrings) {
 		this.resourceDescriptorStrings = resourceDescriptorStrings;
+		this.resourceDescriptors = null;
+		this.resourceDescriptorsB = null;
+	}
+	
+	public HyCubeResourceDescriptor[] getResourceDescriptors() {
+		if (resourceDescriptors == null) {
+			if (resourceDescriptorsB != null) {
+				resourceDescriptors = new HyCubeResourceDescriptor[resourceDescriptorsB.length];
+				for (int i = 0; i < resourceDescriptorsB.length; i++) resourceDescriptors[i] = HyCubeResourceDescriptor.fromEncodedDescriptor(resourceDescriptorsB[i]);
+			}
+			else if (resourceDescriptorStrings != null) {
+				resourceDescriptors = new HyCubeResourceDescriptor[resourceDescriptorStrings.length];
+				for (int i = 0; i < resourceDescriptorStrings.length; i++) resourceDescriptors[i] = new HyCubeResourceDescriptor(resourceDescriptorStrings[i]);
+			}
+		}
+		return resourceDescriptors;
+	}
+	
+	public void setResourceDescriptors(HyCubeResourceDescriptor[] resourceDescriptors) {
+		this.resourceDescriptors = resourceDescriptors;
+		this.resourceDescriptorStrings = null;
+		this.resourceDescriptorsB = null;
+	}
+	
+	public boolean isBinaryResourceDescriptors() {
+		return binaryResourceDescriptors;
+	}
+	
+	public void setBinaryResourceDescriptors(boolean binaryResourceDescriptors) {
+		if (binaryResourceDescriptors != this.binaryResourceDescriptors) {
+			//the descriptors will be encoded again
+			getResourceDescriptors();
+			resourceDescriptorsB = null;
+		}
+		this.binaryResourceDescriptors = binaryResourceDescriptors;
 	}
 	
 	public long[] getRefreshTimes() {
@@ -126,6 +218,28 @@ public class HyCubeReplicateMessageData {
 	}
 	
 	
+	protected byte[][] getResourceDescriptorsBytes() {
+		if (resourceDescriptorsB == null) {
+			HyCubeResourceDescriptor[] rds = resourceDescriptors;
+			if (rds == null && binaryResourceDescriptors) rds = getResourceDescriptors();
+			resourceDescriptorsB = new byte[resourcesNum][];
+			for (int i = 0; i < resourcesNum; i++) {
+				if (rds != null) {
+					resourceDescriptorsB[i] = rds[i].getEncodedDescriptor(binaryResourceDescriptors);
+				}
+				else {
+					try {
+						resourceDescriptorsB[i] = resourceDescriptorStrings[i].getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
+					} catch (UnsupportedEncodingException e) {
+						throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+					}
+				}
+			}
+		}
+		return resourceDescriptorsB;
+	}
+	
+	
 	
 	
 	public byte[] getBytes() {
@@ -136,6 +250,8 @@ public class HyCubeReplicateMessageData {
 		
 		b.putInt(resourcesNum);
 		
+		byte[][] resourceDescriptorsB = getResourceDescriptorsBytes();
+		
 		for (int i = 0; i < resourcesNum; i++) {
 		
 			
@@ -148,12 +264,7 @@ public class HyCubeReplicateMessageData {
 		
 		
 		
-			byte[] resourceDescriptorStringB;
-			try {
-				resourceDescriptorStringB = resourceDescriptorStrings[i].getBytes(MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
-			} catch (UnsupportedEncodingException e) {
-				throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
-			}
+			byte[] resourceDescriptorStringB = resourceDescriptorsB[i];
 			if (resourceDescriptorStringB.length > Short.MAX_VALUE) {
 				throw new MessageByteConversionRuntimeException("The length of the descriptor string byte representation length exceeds Short.MAX_VALUE.");
 			}
@@ -214,7 +325,8 @@ public class HyCubeReplicateMessageData {
 			
 			
 			msgData.keys = new BigInteger[resourcesNum];
-			msgData.resourceDescriptorStrings = new String[resourcesNum];
+			msgData.resourceDescriptorsB = new byte[resourcesNum][];
+			HyCubeResourceDescriptor[] resourceDescriptors = null;
 			msgData.refreshTimes = new long[resourcesNum];
 			msgData.replicationSpreadNodesNums = new int[resourcesNum];
 			
@@ -243,16 +355,18 @@ public class HyCubeReplicateMessageData {
 				
 				
 	
-				//resource descriptor string:
+				//resource descriptor (string or binary form - converted to the string/parsed when needed):
 				byte[] resourceDescriptorStringB = new byte[resourceDescriptorLength];
 				b.get(resourceDescriptorStringB);
-				String resourceDescriptorString;
-				try {
-					resourceDescriptorString = new String(resourceDescriptorStringB, MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
-				} catch (UnsupportedEncodingException e) {
-					throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+				msgData.resourceDescriptorsB[i] = resourceDescriptorStringB;
+				if (HyCubeResourceDescriptor.isBinaryDescriptor(resourceDescriptorStringB)) {
+					if (resourceDescriptors == null) resourceDescriptors = new HyCubeResourceDescriptor[resourcesNum];
+					try {
+						resourceDescriptors[i] = HyCubeResourceDescriptor.fromDescriptorBytes(resourceDescriptorStringB);
+					} catch (IllegalArgumentException e) {
+						throw new MessageByteConversionException("Could not convert the byte array to the message data object. The binary resource descriptor is invalid.", e);
+					}
 				}
-				msgData.resourceDescriptorStrings[i] = resourceDescriptorString;
 				
 			
 				
@@ -271,6 +385,15 @@ public class HyCubeReplicateMessageData {
 				
 			}
 			
+			if (resourceDescriptors != null) {
+				//parse the remaining (text) descriptors
+				msgData.binaryResourceDescriptors = true;
+				for (int i = 0; i < resourcesNum; i++) {
+					if (resourceDescriptors[i] == null) resourceDescriptors[i] = HyCubeResourceDescriptor.fromEncodedDescriptor(msgData.resourceDescriptorsB[i]);
+				}
+				msgData.resourceDescriptors = resourceDescriptors;
+			}
+			
 						
 		}
 		catch (BufferUnderflowException e) {
@@ -0,0 +1,126 @@
+package net.hycube.dht;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+
+import net.hycube.core.UnrecoverableRuntimeException;
+
+/**
+ * Digest (hash summary) of a set of resource replication entries, divided into ranges of the (hashed) key space.
+ * The digest of a range is the sum of 64-bit hashes of the entries (key, resource descriptor and refresh time) in the range, so it does not depend on the order of the entries.
+ * Nodes exchange the digests and send the resource descriptors only for the ranges whose digests differ.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeReplicationDigest {
+
+	public static final String RESOURCE_DESCRIPTOR_STRING_CHARSET = "UTF-8";
+
+	protected static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	protected static final long FNV_PRIME = 0x100000001b3L;
+
+
+	protected int rangesNum;
+	protected long[] digests;
+	protected int[] resourcesNums;
+
+
+	public HyCubeReplicationDigest(int rangesNum) {
+		if (rangesNum <= 0) throw new IllegalArgumentException("The ranges number should be a positive number.");
+		this.rangesNum = rangesNum;
+		this.digests = new long[rangesNum];
+		this.resourcesNums = new int[rangesNum];
+	}
+
+
+	public int getRangesNum() {
+		return rangesNum;
+	}
+
+	public long[] getDigests() {
+		return digests;
+	}
+
+	public int[] getResourcesNums() {
+		return resourcesNums;
+	}
+
+
+	/**
+	 * Adds the entry to the digest of its range
+	 * @return The index of the range of the key
+	 */
+	public int add(BigInteger key, String resourceDescriptorString, long refreshTime) {
+		int range = getRange(key, rangesNum);
+		digests[range] += getEntryHash(key, resourceDescriptorString, refreshTime);
+		resourcesNums[range]++;
+		return range;
+	}
+
+
+	/**
+	 * Returns the indexes of the ranges whose digests (or numbers of entries) differ from the specified digests
+	 */
+	public int[] getMismatchedRanges(long[] otherDigests, int[] otherResourcesNums) {
+		if (otherDigests.length != rangesNum || otherResourcesNums.length != rangesNum) throw new IllegalArgumentException("The numbers of ranges of the digests differ.");
+		int mismatchedNum = 0;
+		for (int i = 0; i < rangesNum; i++) {
+			if (digests[i] != otherDigests[i] || resourcesNums[i] != otherResourcesNums[i]) mismatchedNum++;
+		}
+		int[] mismatched = new int[mismatchedNum];
+		int index = 0;
+		for (int i = 0; i < rangesNum; i++) {
+			if (digests[i] != otherDigests[i] || resourcesNums[i] != otherResourcesNums[i]) mismatched[index++] = i;
+		}
+		return mismatched;
+	}
+
+
+	/**
+	 * Returns the index of the range of the key space to which the key belongs (the ranges are defined over hashed keys, so that they are equally loaded)
+	 */
+	public static int getRange(BigInteger key, int rangesNum) {
+		long h = mix(hash(FNV_OFFSET_BASIS, key.toByteArray()));
+		return (int) Long.remainderUnsigned(h, rangesNum);
+	}
+
+
+	public static long getEntryHash(BigInteger key, String resourceDescriptorString, long refreshTime) {
+		byte[] rdB;
+		try {
+			rdB = resourceDescriptorString.getBytes(RESOURCE_DESCRIPTOR_STRING_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new UnrecoverableRuntimeException("Invalid encoding specified for the conversion.");
+		}
+		long h = hash(FNV_OFFSET_BASIS, key.toByteArray());
+		h = hash(h, rdB);
+		for (int i = 0; i < Long.SIZE/8; i++) {
+			h ^= (refreshTime >>> (8 * i)) & 0xff;
+			h *= FNV_PRIME;
+		}
+		return mix(h);
+	}
+
+
+	protected static long hash(long h, byte[] bytes) {
+		//FNV-1a
+		for (int i = 0; i < bytes.length; i++) {
+			h ^= bytes[i] & 0xff;
+			h *= FNV_PRIME;
+		}
+		//separate the consecutive fields:
+		h ^= bytes.length;
+		h *= FNV_PRIME;
+		return h;
+	}
+
+	protected static long mix(long h) {
+		//finalizer spreading the bits (the digests of ranges are sums of the entry hashes)
+		h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+		return h ^ (h >>> 31);
+	}
+
+
+}
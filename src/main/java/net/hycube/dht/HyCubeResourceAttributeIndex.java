@@ -0,0 +1,132 @@
+package net.hycube.dht;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Secondary index of the resources stored for one key, used to find the resources matching the criteria without scanning the whole key slot.
+ * For every indexed field (the resource name, type and url, and the selected attributes), the ids of the resources (the key slots are organized by the resource ids)
+ * are kept by the values of the field. The resources with no value of an indexed attribute are kept under an empty value, as they match any value of the attribute specified in the criteria.
+ * The ids are counted (many resources with the same id may be stored under different urls). The candidates returned should still be checked against the criteria.
+ * The index is not thread-safe.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeResourceAttributeIndex {
+
+	protected static final String NO_VALUE = "";
+
+
+	protected String[] indexedFields;
+	protected boolean[] matchAnyValue;		//whether the resources with no value of the field match any criteria value (attributes)
+
+	//field index -> value -> resource id -> number of resources
+	protected ArrayList<HashMap<String, HashMap<String, Integer>>> index;
+
+
+	/**
+	 * @param indexedAttributes The attributes indexed in addition to the resource name, type and url
+	 */
+	public HyCubeResourceAttributeIndex(List<String> indexedAttributes) {
+
+		ArrayList<String> fields = new ArrayList<String>();
+		fields.add(HyCubeResourceDescriptor.KEY_RESOURCE_NAME);
+		fields.add(HyCubeResourceDescriptor.KEY_RESOURCE_TYPE);
+		fields.add(HyCubeResourceDescriptor.KEY_RESOURCE_URL);
+		int standardFieldsNum = fields.size();
+		if (indexedAttributes != null) {
+			for (String attribute : indexedAttributes) {
+				if (attribute == null || attribute.isEmpty() || attribute.equals(HyCubeResourceDescriptor.KEY_RESOURCE_ID) || fields.contains(attribute)) continue;
+				fields.add(attribute);
+			}
+		}
+
+		this.indexedFields = fields.toArray(new String[fields.size()]);
+		this.matchAnyValue = new boolean[indexedFields.length];
+		for (int i = standardFieldsNum; i < indexedFields.length; i++) matchAnyValue[i] = true;
+
+		this.index = new ArrayList<HashMap<String, HashMap<String, Integer>>>(indexedFields.length);
+		for (int i = 0; i < indexedFields.length; i++) index.add(new HashMap<String, HashMap<String, Integer>>());
+
+	}
+
+
+	public void add(HyCubeResourceDescriptor rd) {
+		String resourceId = rd.getResourceId();
+		for (int i = 0; i < indexedFields.length; i++) {
+			String value = getIndexedValue(rd, i);
+			HashMap<String, Integer> ids = index.get(i).get(value);
+			if (ids == null) {
+				ids = new HashMap<String, Integer>();
+				index.get(i).put(value, ids);
+			}
+			Integer count = ids.get(resourceId);
+			ids.put(resourceId, (count != null ? count + 1 : 1));
+		}
+	}
+
+
+	public void remove(HyCubeResourceDescriptor rd) {
+		String resourceId = rd.getResourceId();
+		for (int i = 0; i < indexedFields.length; i++) {
+			String value = getIndexedValue(rd, i);
+			HashMap<String, Integer> ids = index.get(i).get(value);
+			if (ids == null) continue;
+			Integer count = ids.get(resourceId);
+			if (count == null) continue;
+			if (count > 1) ids.put(resourceId, count - 1);
+			else {
+				ids.remove(resourceId);
+				if (ids.isEmpty()) index.get(i).remove(value);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the ids of the resources that may match the criteria (the smallest candidate set of the indexed fields specified in the criteria)
+	 * @return The candidate resource ids, or null if the criteria do not specify any indexed field
+	 */
+	public Collection<String> getCandidateResourceIds(HyCubeResourceDescriptor criteria) {
+
+		Collection<String> candidates = null;
+		int candidatesNum = Integer.MAX_VALUE;
+
+		for (int i = 0; i < indexedFields.length; i++) {
+			String value = criteria.getAttribute(indexedFields[i]);
+			if (value == null || value.isEmpty()) continue;
+
+			HashMap<String, Integer> ids = index.get(i).get(value);
+			HashMap<String, Integer> noValueIds = (matchAnyValue[i] ? index.get(i).get(NO_VALUE) : null);
+
+			int num = (ids != null ? ids.size() : 0) + (noValueIds != null ? noValueIds.size() : 0);
+			if (num >= candidatesNum) continue;
+
+			if (num == 0) return Collections.emptyList();
+			else if (noValueIds == null) candidates = ids.keySet();
+			else if (ids == null) candidates = noValueIds.keySet();
+			else {
+				HashSet<String> union = new HashSet<String>(ids.keySet());
+				union.addAll(noValueIds.keySet());
+				candidates = union;
+			}
+			candidatesNum = num;
+		}
+
+		return candidates;
+
+	}
+
+
+	protected String getIndexedValue(HyCubeResourceDescriptor rd, int field) {
+		String value = rd.getAttribute(indexedFields[field]);
+		return (value != null ? value : NO_VALUE);
+	}
+
+
+}
@@ -1,6 +1,8 @@
 package net.hycube.dht;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -31,6 +33,19 @@ public class HyCubeResourceDescriptor implements Serializable {
 	public static final String KEY_ATTRIBUTE_SIZE = "size";
 	
 	
+	public static final Charset DESCRIPTOR_STRING_CHARSET = Charset.forName("UTF-8");
+	
+	
+	//binary form of the descriptor: the marker byte (text descriptors never start with it), the resource id, name, type and url, the number of attributes and the attributes (key code and value),
+	//the strings are encoded as the UTF-8 byte length (varint, 0 - null) followed by the UTF-8 bytes, the key code is the index of the interned key + 1 (varint), or 0 followed by the key string
+	public static final byte BINARY_DESCRIPTOR_MARKER = 0;
+	
+	//attribute keys encoded by their codes in the binary form (the codes are part of the protocol - keys may only be appended)
+	protected static final String[] INTERNED_ATTRIBUTE_KEYS = new String[] {KEY_ATTRIBUTE_SIZE};
+	
+	protected static final Pattern KEY_VALUE_PATTERN = Pattern.compile("\\s*(\\S+)\\s*" + EQUALS + "\\s*(.*\\S+)\\s*");
+	
+	
 	protected String resourceId;
 	protected String resourceName;
 	protected String resourceType;
@@ -38,6 +53,11 @@ public class HyCubeResourceDescriptor implements Serializable {
 	
 	protected Map<String, String> attributes;
 	
+	//cached forms of the descriptor (reset whenever the descriptor is modified), volatile - descriptors decoded from messages are shared by the threads processing the messages:
+	protected transient volatile String descriptorString;
+	protected transient volatile byte[] descriptorStringBytes;
+	protected transient volatile byte[] descriptorBytes;
+	
 	
 	
 	public String getResourceId() {
@@ -47,6 +67,7 @@ public class HyCubeResourceDescriptor implements Serializable {
 
 	public void setResourceId(String resourceId) {
 		this.resourceId = resourceId;
+		clearCachedForms();
 	}
 
 
@@ -57,6 +78,7 @@ public class HyCubeResourceDescriptor implements Serializable {
 
 	public void setResourceName(String resourceName) {
 		this.resourceName = resourceName;
+		clearCachedForms();
 	}
 
 
@@ -67,6 +89,7 @@ public class HyCubeResourceDescriptor implements Serializable {
 
 	public void setResourceType(String resourceType) {
 		this.resourceType = resourceType;
+		clearCachedForms();
 	}
 
 
@@ -77,6 +100,7 @@ public class HyCubeResourceDescriptor implements Serializable {
 
 	public void setResourceUrl(String resourceUrl) {
 		this.resourceUrl = resourceUrl;
+		clearCachedForms();
 	}
 
 	
@@ -129,6 +153,7 @@ public class HyCubeResourceDescriptor implements Serializable {
 			if (value != null) attributes.put(key, value);
 			else attributes.remove(key);
 		}
+		clearCachedForms();
 	}
 	
 	public String getAttribute(String key) {
@@ -149,10 +174,21 @@ public class HyCubeResourceDescriptor implements Serializable {
 		else {
 			attributes.remove(key);
 		}
+		clearCachedForms();
+	}
+	
+	
+	protected void clearCachedForms() {
+		descriptorString = null;
+		descriptorStringBytes = null;
+		descriptorBytes = null;
 	}
 	
 	
 	public String getDescriptorString() {
+		String cached = descriptorString;
+		if (cached != null) return cached;
+		
 		StringBuilder sb = new StringBuilder();
 		
 		sb.append(OPEN_BRACKET).append(KEY_RESOURCE_ID).append(EQUALS).append((resourceId != null ? resourceId.trim() : "")).append(CLOSE_BRACKET);
@@ -170,11 +206,197 @@ public class HyCubeResourceDescriptor implements Serializable {
 		}
 		
 		
-		return sb.toString();
+		String str = sb.toString();
+		descriptorString = str;
+		return str;
 		
 	}
 	
 	
+	/**
+	 * Returns the UTF-8 representation of the descriptor string
+	 */
+	public byte[] getDescriptorStringBytes() {
+		byte[] bytes = descriptorStringBytes;
+		if (bytes == null) {
+			bytes = getDescriptorString().getBytes(DESCRIPTOR_STRING_CHARSET);
+			descriptorStringBytes = bytes;
+		}
+		return bytes;
+	}
+	
+	
+	/**
+	 * Returns the descriptor strings of the descriptors (null for null elements), or null if the array is null
+	 */
+	public static String[] toDescriptorStrings(HyCubeResourceDescriptor[] resourceDescriptors) {
+		if (resourceDescriptors == null) return null;
+		String[] descriptorStrings = new String[resourceDescriptors.length];
+		for (int i = 0; i < resourceDescriptors.length; i++) {
+			descriptorStrings[i] = (resourceDescriptors[i] != null ? resourceDescriptors[i].getDescriptorString() : null);
+		}
+		return descriptorStrings;
+	}
+	
+	
+	/**
+	 * Returns the binary form of the descriptor (the returned array should not be modified)
+	 */
+	public byte[] getDescriptorBytes() {
+		byte[] cached = descriptorBytes;
+		if (cached != null) return cached;
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+		out.write(BINARY_DESCRIPTOR_MARKER);
+		
+		writeString(out, (resourceId != null ? resourceId.trim() : null));
+		writeString(out, (resourceName != null ? resourceName.trim() : null));
+		writeString(out, (resourceType != null ? resourceType.trim() : null));
+		writeString(out, (resourceUrl != null ? resourceUrl.trim() : null));
+		
+		//attributes (the ones that would be lost in the text form are skipped)
+		int attributesNum = 0;
+		for (Entry<String, String> attr : attributes.entrySet()) {
+			if (isEncodedAttribute(attr.getKey(), attr.getValue())) attributesNum++;
+		}
+		writeVarInt(out, attributesNum);
+		for (Entry<String, String> attr : attributes.entrySet()) {
+			if (! isEncodedAttribute(attr.getKey(), attr.getValue())) continue;
+			int keyCode = 0;
+			for (int i = 0; i < INTERNED_ATTRIBUTE_KEYS.length; i++) {
+				if (INTERNED_ATTRIBUTE_KEYS[i].equals(attr.getKey())) {
+					keyCode = i + 1;
+					break;
+				}
+			}
+			writeVarInt(out, keyCode);
+			if (keyCode == 0) writeString(out, attr.getKey());
+			writeString(out, attr.getValue().trim());
+		}
+		
+		byte[] bytes = out.toByteArray();
+		descriptorBytes = bytes;
+		return bytes;
+		
+	}
+	
+	
+	/**
+	 * Returns the binary form of the descriptor, or the UTF-8 representation of the descriptor string
+	 */
+	public byte[] getEncodedDescriptor(boolean binary) {
+		if (binary) return getDescriptorBytes();
+		else return getDescriptorStringBytes();
+	}
+	
+	
+	public static boolean isBinaryDescriptor(byte[] bytes) {
+		return (bytes.length > 0 && bytes[0] == BINARY_DESCRIPTOR_MARKER);
+	}
+	
+	
+	/**
+	 * Creates the descriptor from its binary form, or from the UTF-8 representation of the descriptor string
+	 * @throws IllegalArgumentException if the binary form is malformed
+	 */
+	public static HyCubeResourceDescriptor fromEncodedDescriptor(byte[] bytes) {
+		if (isBinaryDescriptor(bytes)) return fromDescriptorBytes(bytes);
+		else return new HyCubeResourceDescriptor(new String(bytes, DESCRIPTOR_STRING_CHARSET));
+	}
+	
+	
+	/**
+	 * Creates the descriptor from its binary form
+	 * @throws IllegalArgumentException if the binary form is malformed
+	 */
+	public static HyCubeResourceDescriptor fromDescriptorBytes(byte[] bytes) {
+		
+		if (! isBinaryDescriptor(bytes)) {
+			throw new IllegalArgumentException("The byte array does not contain a binary resource descriptor.");
+		}
+		
+		HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor();
+		
+		int[] pos = new int[] {1};
+		
+		rd.resourceId = readString(bytes, pos);
+		rd.resourceName = readString(bytes, pos);
+		rd.resourceType = readString(bytes, pos);
+		rd.resourceUrl = readString(bytes, pos);
+		
+		int attributesNum = readVarInt(bytes, pos);
+		for (int i = 0; i < attributesNum; i++) {
+			int keyCode = readVarInt(bytes, pos);
+			String key;
+			if (keyCode == 0) key = readString(bytes, pos);
+			else if (keyCode <= INTERNED_ATTRIBUTE_KEYS.length) key = INTERNED_ATTRIBUTE_KEYS[keyCode - 1];
+			else throw new IllegalArgumentException("Invalid attribute key code in the binary resource descriptor.");
+			String value = readString(bytes, pos);
+			if (key != null && value != null) rd.attributes.put(key, value);
+		}
+		
+		if (pos[0] != bytes.length) {
+			throw new IllegalArgumentException("Invalid length of the binary resource descriptor.");
+		}
+		
+		rd.descriptorBytes = bytes;
+		
+		return rd;
+		
+	}
+	
+	
+	protected static boolean isEncodedAttribute(String key, String value) {
+		return (! key.isEmpty()) && value != null && (! value.trim().isEmpty());
+	}
+	
+	
+	protected static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+	
+	protected static void writeString(ByteArrayOutputStream out, String value) {
+		if (value == null || value.isEmpty()) {
+			writeVarInt(out, 0);
+			return;
+		}
+		byte[] valueB = value.getBytes(DESCRIPTOR_STRING_CHARSET);
+		writeVarInt(out, valueB.length);
+		out.write(valueB, 0, valueB.length);
+	}
+	
+	protected static int readVarInt(byte[] bytes, int[] pos) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (pos[0] >= bytes.length) {
+				throw new IllegalArgumentException("Unexpected end of the binary resource descriptor.");
+			}
+			byte b = bytes[pos[0]++];
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) throw new IllegalArgumentException("Invalid value in the binary resource descriptor.");
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Invalid value in the binary resource descriptor.");
+	}
+	
+	protected static String readString(byte[] bytes, int[] pos) {
+		int length = readVarInt(bytes, pos);
+		if (length == 0) return null;
+		if (length > bytes.length - pos[0]) {
+			throw new IllegalArgumentException("Unexpected end of the binary resource descriptor.");
+		}
+		String value = new String(bytes, pos[0], length, DESCRIPTOR_STRING_CHARSET);
+		pos[0] += length;
+		return value;
+	}
+	
+	
 	public static HyCubeResourceDescriptor parseDescriptor(String descriptor) {
 		return parseDescriptor(descriptor, null);
 	}
@@ -209,8 +431,7 @@ public class HyCubeResourceDescriptor implements Serializable {
 		int end = pos;
 		pos++;
 		
-		Pattern pattern = Pattern.compile("\\s*(\\S+)\\s*" + EQUALS + "\\s*(.*\\S+)\\s*");
-		Matcher matcher = pattern.matcher(descriptor.substring(start, end));
+		Matcher matcher = KEY_VALUE_PATTERN.matcher(descriptor.substring(start, end));
 
 		if (matcher.find()) {
 			String key = matcher.group(1);
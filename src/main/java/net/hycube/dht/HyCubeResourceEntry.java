@@ -1,6 +1,7 @@
 package net.hycube.dht;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 public class HyCubeResourceEntry {
 
@@ -52,6 +53,32 @@ public class HyCubeResourceEntry {
 	}
 	
 	
+	/**
+	 * Returns the resource data (between the position and the limit of the buffer returned). The buffer may be a view of the data kept by the storage manager, so it should not be modified
+	 */
+	public ByteBuffer getDataBuffer() {
+		byte[] data = resource.getData();
+		return (data != null ? ByteBuffer.wrap(data) : ByteBuffer.allocate(0));
+	}
+	
+	
+	/**
+	 * Returns the descriptor of the resource (without reading the data of the entries returned by the storage managers keeping the data outside of the heap)
+	 */
+	public HyCubeResourceDescriptor getResourceDescriptor() {
+		return resource.getResourceDescriptor();
+	}
+	
+	
+	/**
+	 * Releases the data views held by the entry returned by the storage manager (the storage may reuse the memory of the data afterwards).
+	 * Should be called when the data buffer of the entry is no longer used. The entries not released are released when they are garbage-collected
+	 */
+	public void release() {
+		
+	}
+	
+	
 	
 	public HyCubeResourceEntry(BigInteger key, HyCubeResource resource, long time) {
 		this.key = key;
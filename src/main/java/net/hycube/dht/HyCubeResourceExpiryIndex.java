@@ -0,0 +1,161 @@
+package net.hycube.dht;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of the stored resource entries ordered by their refresh times, used to discard outdated entries.
+ * The entries are kept in buckets covering bucketDuration ms of refresh times, kept in a sorted map. Adding an entry is O(log(number of buckets)),
+ * and entries replaced or deleted from the storage (marked as deleted) are removed from the index lazily (O(1)), when their buckets are processed.
+ * Outdated entries are polled in bounded slices, starting from the oldest bucket, so discarding does not have to process all outdated entries at once.
+ * The index is thread-safe. An entry may be occasionally returned more than once (if added concurrently with polling its bucket), so the storage should check
+ * whether the returned entries are still stored before removing them.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubeResourceExpiryIndex {
+
+	public static final long DEFAULT_BUCKET_DURATION = 1000;
+
+
+	protected final long bucketDuration;
+
+	protected final ConcurrentSkipListMap<Long, ConcurrentLinkedQueue<HyCubeResourceEntry>> buckets;
+
+
+	public HyCubeResourceExpiryIndex() {
+		this(DEFAULT_BUCKET_DURATION);
+	}
+
+	/**
+	 * @param bucketDuration The range of refresh times (ms) of the entries kept in one bucket
+	 */
+	public HyCubeResourceExpiryIndex(long bucketDuration) {
+		if (bucketDuration <= 0) throw new IllegalArgumentException("The bucket duration should be a positive number.");
+		this.bucketDuration = bucketDuration;
+		this.buckets = new ConcurrentSkipListMap<Long, ConcurrentLinkedQueue<HyCubeResourceEntry>>();
+	}
+
+
+	public long getBucketDuration() {
+		return bucketDuration;
+	}
+
+
+	/**
+	 * Adds the entry to the index (to the bucket of its refresh time). Entries replaced or deleted from the storage should be marked as deleted - they are removed from the index lazily
+	 * @param re
+	 */
+	public void add(HyCubeResourceEntry re) {
+
+		Long bucketKey = Math.floorDiv(re.getRefreshTime(), bucketDuration);
+
+		while (true) {
+			ConcurrentLinkedQueue<HyCubeResourceEntry> bucket = buckets.get(bucketKey);
+			if (bucket == null) {
+				ConcurrentLinkedQueue<HyCubeResourceEntry> newBucket = new ConcurrentLinkedQueue<HyCubeResourceEntry>();
+				bucket = buckets.putIfAbsent(bucketKey, newBucket);
+				if (bucket == null) bucket = newBucket;
+			}
+
+			bucket.add(re);
+
+			//if the bucket was removed in the meantime, the entry might have been missed by pollOutdated - add it again (to a new bucket)
+			if (buckets.get(bucketKey) == bucket) return;
+		}
+
+	}
+
+
+	/**
+	 * Removes up to maxEntriesNum outdated entries (refresh time <= discardTime) from the index and adds them to the list outdated.
+	 * Entries marked as deleted are removed from the index and are not returned. Every processed entry (outdated or deleted) counts towards maxEntriesNum
+	 * @param discardTime
+	 * @param maxEntriesNum The maximum number of entries processed, 0 - no limit
+	 * @param outdated The list to which the outdated entries are added
+	 * @return true if all outdated entries were removed from the index, false if the limit was reached
+	 */
+	public boolean pollOutdated(long discardTime, int maxEntriesNum, List<HyCubeResourceEntry> outdated) {
+
+		int processed = 0;
+
+		while (true) {
+
+			Map.Entry<Long, ConcurrentLinkedQueue<HyCubeResourceEntry>> first = buckets.firstEntry();
+			if (first == null) return true;
+
+			long bucketStart = first.getKey() * bucketDuration;
+			if (bucketStart > discardTime) return true;
+
+			ConcurrentLinkedQueue<HyCubeResourceEntry> bucket = first.getValue();
+
+			if (bucketStart + bucketDuration - 1 <= discardTime) {
+				//all entries of the bucket are outdated
+				HyCubeResourceEntry re;
+				while (maxEntriesNum <= 0 || processed < maxEntriesNum) {
+					re = bucket.poll();
+					if (re == null) break;
+					processed++;
+					if (! re.isDeleted()) outdated.add(re);
+				}
+				if (bucket.isEmpty()) {
+					removeBucket(first.getKey(), bucket, discardTime, outdated);
+				}
+				else {
+					//limit reached
+					return false;
+				}
+			}
+			else {
+				//the last bucket to be processed - only some entries may be outdated
+				Iterator<HyCubeResourceEntry> iter = bucket.iterator();
+				while (iter.hasNext()) {
+					if (maxEntriesNum > 0 && processed >= maxEntriesNum) return false;
+					HyCubeResourceEntry re = iter.next();
+					if (re.isDeleted()) {
+						iter.remove();
+						processed++;
+					}
+					else if (re.getRefreshTime() <= discardTime) {
+						iter.remove();
+						processed++;
+						outdated.add(re);
+					}
+				}
+				if (bucket.isEmpty()) {
+					removeBucket(first.getKey(), bucket, discardTime, outdated);
+				}
+				return true;
+			}
+
+		}
+
+	}
+
+
+	protected void removeBucket(Long bucketKey, ConcurrentLinkedQueue<HyCubeResourceEntry> bucket, long discardTime, List<HyCubeResourceEntry> outdated) {
+		if (buckets.remove(bucketKey, bucket)) {
+			//process the entries added to the bucket before it was removed (the threads adding them might not have noticed the removal):
+			HyCubeResourceEntry re;
+			while ((re = bucket.poll()) != null) {
+				if (re.isDeleted()) continue;
+				if (re.getRefreshTime() <= discardTime) outdated.add(re);
+				else add(re);
+			}
+		}
+	}
+
+
+	/**
+	 * Removes all entries from the index
+	 */
+	public void clear() {
+		buckets.clear();
+	}
+
+
+}
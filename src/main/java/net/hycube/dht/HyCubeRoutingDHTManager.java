@@ -1,12 +1,19 @@
 package net.hycube.dht;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Random;
 
+import net.hycube.common.CallbackFuture;
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.HyCubeNodeId;
 import net.hycube.core.HyCubeRoutingTable;
@@ -29,6 +36,7 @@ import net.hycube.messaging.messages.HyCubeMessage;
 import net.hycube.messaging.messages.HyCubeMessageFactory;
 import net.hycube.messaging.messages.HyCubeMessageType;
 import net.hycube.messaging.messages.Message;
+import net.hycube.messaging.messages.MessageByteConversionException;
 import net.hycube.messaging.processing.MessageSendProcessInfo;
 import net.hycube.messaging.processing.ProcessMessageException;
 import net.hycube.metric.Metric;
@@ -62,6 +70,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	protected static final String PROP_KEY_DELETE_REQUEST_TIMEOUT = "DeleteRequestTimeout";
 	
 	protected static final String PROP_KEY_RESOURCE_STORE_TIME = "ResourceStoreTime";
+	protected static final String PROP_KEY_DISCARD_OUTDATED_ENTRIES_SLICE_SIZE = "DiscardOutdatedEntriesSliceSize";
 	
 	protected static final String PROP_KEY_DHT_STORAGE_MANAGER = "DHTStorageManager";
 	
@@ -73,6 +82,9 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	protected static final String PROP_KEY_ANONYMOUS_REPLICATE = "AnonymousReplicate";
 	protected static final String PROP_KEY_MAX_REPLICATION_NS_NODES_NUM = "MaxReplicationNSNodesNum";
 	protected static final String PROP_KEY_MAX_REPLICATION_SPREAD_NODES_NUM = "MaxReplicationSpreadNodesNum";
+	protected static final String PROP_KEY_DIGEST_REPLICATE = "DigestReplicate";
+	protected static final String PROP_KEY_DIGEST_REPLICATION_RANGES_NUM = "DigestReplicationRangesNum";
+	protected static final String PROP_KEY_REPLICATION_BULK_FETCH = "ReplicationBulkFetch";
 	
 	protected static final String PROP_KEY_ASSUME_NS_ORDERED = "AssumeNsOrdered";
 	protected static final String PROP_KEY_DENSITY_CALCULATION_QUANTILE_FUNC_THRESHOLD = "DensityCalculationQuantileFuncThreshold";
@@ -98,11 +110,35 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	
 	protected static final String PROP_KEY_ESTIMATE_DENSITY_BASED_ON_LAST_NODE_ONLY = "EstimateDensityBasedOnLastNodeOnly";
 	
+	protected static final String PROP_KEY_GET_CACHE = "GetCache";
+	protected static final String PROP_KEY_GET_CACHE_SIZE = "GetCacheSize";
+	protected static final String PROP_KEY_GET_CACHE_MAX_ENTRY_TIME = "GetCacheMaxEntryTime";
+	
+	protected static final String PROP_KEY_PATH_CACHE = "PathCache";
+	protected static final String PROP_KEY_PATH_CACHE_SIZE = "PathCacheSize";
+	protected static final String PROP_KEY_PATH_CACHE_TIME = "PathCacheTime";
+	protected static final String PROP_KEY_PATH_CACHE_POPULARITY_THRESHOLD = "PathCachePopularityThreshold";
+	protected static final String PROP_KEY_PATH_CACHE_POPULARITY_WINDOW = "PathCachePopularityWindow";
+	
+	protected static final String PROP_KEY_BINARY_RESOURCE_DESCRIPTORS = "BinaryResourceDescriptors";
+	
 	
 	
 	
 	public static final boolean ANONYMOUS_REPLICATE_GENERATE_RANDOM_DIRECT_RECIPIENTS_ALL_NS = false;
 	
+	public static final int DEFAULT_DIGEST_REPLICATION_RANGES_NUM = 64;
+	
+	//the limit of the replication message data length used when the network adapter does not limit the message length
+	public static final int DEFAULT_REPLICATION_MESSAGE_DATA_LENGTH = 32768;
+	
+	public static final int DEFAULT_GET_CACHE_SIZE = 1000;
+	
+	public static final int DEFAULT_PATH_CACHE_SIZE = 1000;
+	public static final int DEFAULT_PATH_CACHE_TIME = 10000;
+	public static final int DEFAULT_PATH_CACHE_POPULARITY_THRESHOLD = 10;
+	public static final int DEFAULT_PATH_CACHE_POPULARITY_WINDOW = 10000;
+	
 	
 	
 	
@@ -150,6 +186,15 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	
 	
 	protected int resourceStoreTime;
+	protected int discardOutdatedEntriesSliceSize;
+	
+	//cache of the results of routed get requests (null if disabled):
+	protected HyCubeDHTGetCache getCache;
+	protected int getCacheMaxEntryTime;
+	
+	//path cache of popular resources, used to answer routed get requests (null if disabled):
+	protected HyCubeDHTPathCache pathCache;
+	protected int pathCacheTime;
 	
 	
 	protected boolean checkIfResourceReplicaBeforeStoring;
@@ -160,6 +205,13 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	protected boolean anonymousReplicate;
 	protected int maxReplicationNSNodesNum;
 	
+	protected boolean digestReplicate;
+	protected int digestReplicationRangesNum;
+	protected boolean replicationBulkFetch;
+	
+	//the resources requested with REPLICATE_FETCH messages (-> expiration time), in the order of sending; the replies not matching any of them are dropped
+	protected LinkedHashMap<ReplicationFetchKey, Long> pendingReplicationFetches;
+	
 	
 	protected int maxReplicationSpreadNodesNum;
 	
@@ -197,6 +249,10 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	protected boolean estimateDensityBasedOnLastNodeOnly;
 	
 	
+	//the resource descriptors are sent in the binary form in PUT, GET, GET_REPLY and REPLICATE messages (both forms are accepted when received)
+	protected boolean binaryResourceDescriptors;
+	
+	
 	
 	protected Random rand;
 	
@@ -275,6 +331,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		ongoingRefreshPutRequests = new HashMap<Integer, HyCubeRefreshPutRequestData>(HashMapUtils.getHashMapCapacityForElementsNum(GlobalConstants.INITIAL_DHT_REQUESTS_DATA_COLLECTION_SIZE, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
 		ongoingGetRequests = new HashMap<Integer, HyCubeGetRequestData>(HashMapUtils.getHashMapCapacityForElementsNum(GlobalConstants.INITIAL_DHT_REQUESTS_DATA_COLLECTION_SIZE, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
 		ongoingDeleteRequests = new HashMap<Integer, HyCubeDeleteRequestData>(HashMapUtils.getHashMapCapacityForElementsNum(GlobalConstants.INITIAL_DHT_REQUESTS_DATA_COLLECTION_SIZE, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
+		pendingReplicationFetches = new LinkedHashMap<ReplicationFetchKey, Long>();
 		
 		
 		nextPutCommandId = Integer.MIN_VALUE;
@@ -288,6 +345,13 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		
 		try {
 			resourceStoreTime = (Integer) properties.getProperty(PROP_KEY_RESOURCE_STORE_TIME, MappedType.INT);
+			
+			if (properties.containsKey(PROP_KEY_DISCARD_OUTDATED_ENTRIES_SLICE_SIZE)) {
+				discardOutdatedEntriesSliceSize = (Integer) properties.getProperty(PROP_KEY_DISCARD_OUTDATED_ENTRIES_SLICE_SIZE, MappedType.INT);
+				if (discardOutdatedEntriesSliceSize < 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_DISCARD_OUTDATED_ENTRIES_SLICE_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_DISCARD_OUTDATED_ENTRIES_SLICE_SIZE) + ".");
+			}
+			else discardOutdatedEntriesSliceSize = 0;
+			
 		} catch (NodePropertiesConversionException e) {
 			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize the DHT manager instance. Invalid parameter value: " + e.getKey() + ".", e);
 		}
@@ -332,6 +396,77 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 			
 			maxReplicationNSNodesNum = (Integer) properties.getProperty(PROP_KEY_MAX_REPLICATION_NS_NODES_NUM, MappedType.INT);
 			
+			if (properties.containsKey(PROP_KEY_DIGEST_REPLICATE)) {
+				digestReplicate = (Boolean) properties.getProperty(PROP_KEY_DIGEST_REPLICATE, MappedType.BOOLEAN);
+			}
+			else digestReplicate = false;
+			
+			if (properties.containsKey(PROP_KEY_DIGEST_REPLICATION_RANGES_NUM)) {
+				digestReplicationRangesNum = (Integer) properties.getProperty(PROP_KEY_DIGEST_REPLICATION_RANGES_NUM, MappedType.INT);
+				if (digestReplicationRangesNum <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_DIGEST_REPLICATION_RANGES_NUM), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_DIGEST_REPLICATION_RANGES_NUM) + ".");
+			}
+			else digestReplicationRangesNum = DEFAULT_DIGEST_REPLICATION_RANGES_NUM;
+			
+			if (properties.containsKey(PROP_KEY_REPLICATION_BULK_FETCH)) {
+				replicationBulkFetch = (Boolean) properties.getProperty(PROP_KEY_REPLICATION_BULK_FETCH, MappedType.BOOLEAN);
+			}
+			else replicationBulkFetch = false;
+			
+			boolean getCacheEnabled = false;
+			if (properties.containsKey(PROP_KEY_GET_CACHE)) {
+				getCacheEnabled = (Boolean) properties.getProperty(PROP_KEY_GET_CACHE, MappedType.BOOLEAN);
+			}
+			if (getCacheEnabled) {
+				int getCacheSize = DEFAULT_GET_CACHE_SIZE;
+				if (properties.containsKey(PROP_KEY_GET_CACHE_SIZE)) {
+					getCacheSize = (Integer) properties.getProperty(PROP_KEY_GET_CACHE_SIZE, MappedType.INT);
+					if (getCacheSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_GET_CACHE_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_GET_CACHE_SIZE) + ".");
+				}
+				getCache = new HyCubeDHTGetCache(getCacheSize);
+			}
+			else getCache = null;
+			
+			if (properties.containsKey(PROP_KEY_GET_CACHE_MAX_ENTRY_TIME)) {
+				getCacheMaxEntryTime = (Integer) properties.getProperty(PROP_KEY_GET_CACHE_MAX_ENTRY_TIME, MappedType.INT);
+				if (getCacheMaxEntryTime < 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_GET_CACHE_MAX_ENTRY_TIME), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_GET_CACHE_MAX_ENTRY_TIME) + ".");
+			}
+			else getCacheMaxEntryTime = 0;
+			
+			boolean pathCacheEnabled = false;
+			if (properties.containsKey(PROP_KEY_PATH_CACHE)) {
+				pathCacheEnabled = (Boolean) properties.getProperty(PROP_KEY_PATH_CACHE, MappedType.BOOLEAN);
+			}
+			if (pathCacheEnabled) {
+				int pathCacheSize = DEFAULT_PATH_CACHE_SIZE;
+				if (properties.containsKey(PROP_KEY_PATH_CACHE_SIZE)) {
+					pathCacheSize = (Integer) properties.getProperty(PROP_KEY_PATH_CACHE_SIZE, MappedType.INT);
+					if (pathCacheSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PATH_CACHE_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PATH_CACHE_SIZE) + ".");
+				}
+				pathCacheTime = DEFAULT_PATH_CACHE_TIME;
+				if (properties.containsKey(PROP_KEY_PATH_CACHE_TIME)) {
+					pathCacheTime = (Integer) properties.getProperty(PROP_KEY_PATH_CACHE_TIME, MappedType.INT);
+					if (pathCacheTime <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PATH_CACHE_TIME), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PATH_CACHE_TIME) + ".");
+				}
+				int pathCachePopularityThreshold = DEFAULT_PATH_CACHE_POPULARITY_THRESHOLD;
+				if (properties.containsKey(PROP_KEY_PATH_CACHE_POPULARITY_THRESHOLD)) {
+					pathCachePopularityThreshold = (Integer) properties.getProperty(PROP_KEY_PATH_CACHE_POPULARITY_THRESHOLD, MappedType.INT);
+					if (pathCachePopularityThreshold <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PATH_CACHE_POPULARITY_THRESHOLD), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PATH_CACHE_POPULARITY_THRESHOLD) + ".");
+				}
+				int pathCachePopularityWindow = DEFAULT_PATH_CACHE_POPULARITY_WINDOW;
+				if (properties.containsKey(PROP_KEY_PATH_CACHE_POPULARITY_WINDOW)) {
+					pathCachePopularityWindow = (Integer) properties.getProperty(PROP_KEY_PATH_CACHE_POPULARITY_WINDOW, MappedType.INT);
+					if (pathCachePopularityWindow <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PATH_CACHE_POPULARITY_WINDOW), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PATH_CACHE_POPULARITY_WINDOW) + ".");
+				}
+				//the fetch is retried (if the resources were not cached) after the get request timeout:
+				pathCache = new HyCubeDHTPathCache(pathCacheSize, pathCachePopularityThreshold, pathCachePopularityWindow, getRequestTimeout);
+			}
+			else pathCache = null;
+			
+			if (properties.containsKey(PROP_KEY_BINARY_RESOURCE_DESCRIPTORS)) {
+				binaryResourceDescriptors = (Boolean) properties.getProperty(PROP_KEY_BINARY_RESOURCE_DESCRIPTORS, MappedType.BOOLEAN);
+			}
+			else binaryResourceDescriptors = false;
+			
 			
 			maxReplicationSpreadNodesNum = (Integer) properties.getProperty(PROP_KEY_MAX_REPLICATION_SPREAD_NODES_NUM, MappedType.INT);
 			
@@ -611,6 +746,15 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		return result;
 		
 	}
+	
+	
+	/**
+	 * Returns the time (ms) for which the resource entry will remain stored (unless refreshed), based on its refresh time and the resource store time
+	 */
+	protected long getResourceValidityTime(HyCubeResourceEntry entry, long currTime) {
+		long validityTime = entry.getRefreshTime() + resourceStoreTime - currTime;
+		return (validityTime > 0 ? validityTime : 0);
+	}
 
 	
 	
@@ -758,11 +902,20 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	
 	
 	public void processPutRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, String resourceDescriptorString, byte[] resourceData, long refreshTime) throws ProcessMessageException {
+		processPutRequest(sender, msg, commandId, key, new HyCubeResourceDescriptor(resourceDescriptorString), resourceData, refreshTime);
+	}
+	
+	public void processPutRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, HyCubeResourceDescriptor resourceDescriptor, byte[] resourceData, long refreshTime) throws ProcessMessageException {
 
 		if (devLog.isDebugEnabled()) {
 			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Processing put request... " + commandId);
 		}
 		
+		if (pathCache != null) {
+			//the resources of the key cached in the path cache may be outdated after this put
+			pathCache.invalidate(key);
+		}
+		
 		
 		boolean sendResponse = true;
 		if (msg.isAnonymousRoute() && (!msg.isRegisterRoute())) sendResponse = false;
@@ -794,7 +947,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Adding the resource to the storage. " + commandId);			
 				}
 				
-				HyCubeResource r = new HyCubeResource(resourceDescriptorString, resourceData);
+				HyCubeResource r = new HyCubeResource(resourceDescriptor, resourceData);
 				
 				boolean status = putToStorage(key, sender.getNodeId(), r, refreshTime);
 				
@@ -1038,7 +1191,11 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	}
 	
 	
-	public void processGetRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, String criteriaString, boolean getFromClosestNode) throws ProcessMessageException {
+	public void processGetRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, String criteriaString, boolean getFromClosestNode, boolean allowPathCache, boolean returnValidityTimes) throws ProcessMessageException {
+		processGetRequest(sender, msg, commandId, key, new HyCubeResourceDescriptor(criteriaString), getFromClosestNode, allowPathCache, returnValidityTimes);
+	}
+	
+	public void processGetRequest(NodePointer sender, HyCubeMessage msg, int commandId, BigInteger key, HyCubeResourceDescriptor criteria, boolean getFromClosestNode, boolean allowPathCache, boolean returnValidityTimes) throws ProcessMessageException {
 
 		if (devLog.isDebugEnabled()) {
 			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Processing get request... " + commandId);
@@ -1066,78 +1223,127 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		
 		
 		if (ignoreExactGetRequests && msg.getRecipientId().equals(nodeAccessor.getNodeId())) {
-			sendGetResponse(commandId, sender, msg.isRegisterRoute(), (msg.isRegisterRoute() ? msg.getRouteId() : 0), anonymousResponse, new String[0], new byte[0][]);
+			sendGetResponse(commandId, sender, msg.isRegisterRoute(), (msg.isRegisterRoute() ? msg.getRouteId() : 0), anonymousResponse, new HyCubeResourceDescriptor[0], new byte[0][], (returnValidityTimes ? new long[0] : null));
 			return;
 		}
 		
 		
-		HyCubeResourceDescriptor criteria = new HyCubeResourceDescriptor(criteriaString);
-		
 		HyCubeResourceEntry[] res = getFromStorage(key, sender.getNodeId(), criteria);
+		try {
 		
 
-		//if isReplica and contains the resource (only if it is requested to find the first node containing the replica (not the closest one)) or the key=nodeId - message will not be routed)
-		if (!(getFromClosestNode) && isReplica(key, nodeAccessor.getNodeId(), resourceStoreNodesNum) && res != null && res.length > 0) {
+			//if isReplica and contains the resource (only if it is requested to find the first node containing the replica (not the closest one)) or the key=nodeId - message will not be routed)
+			if (!(getFromClosestNode) && isReplica(key, nodeAccessor.getNodeId(), resourceStoreNodesNum) && res != null && res.length > 0) {
 			
-			if (devLog.isDebugEnabled()) {
-				devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Resource found. Sending get reponse. " + commandId);
-			}
-			
-			String[] resourceDescriptorStrings = new String[res.length];
-			byte[][] resourcesData = new byte[res.length][];
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Resource found. Sending get reponse. " + commandId);
+				}
 			
-			for (int i = 0; i < res.length; i++) {
-				resourceDescriptorStrings[i] = res[i].getResource().getResourceDescriptor().getDescriptorString();
-				resourcesData[i] = res[i].getResource().getData();
-			}
+				HyCubeResourceDescriptor[] resourceDescriptors = new HyCubeResourceDescriptor[res.length];
+				ByteBuffer[] resourcesData = new ByteBuffer[res.length];
+				long[] validityTimes = (returnValidityTimes ? new long[res.length] : null);
 			
-			sendGetResponse(commandId, sender, msg.isRegisterRoute(), (msg.isRegisterRoute() ? msg.getRouteId() : 0), anonymousResponse, resourceDescriptorStrings, resourcesData);
+				long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+				for (int i = 0; i < res.length; i++) {
+					resourceDescriptors[i] = res[i].getResourceDescriptor();
+					resourcesData[i] = res[i].getDataBuffer();
+					if (returnValidityTimes) validityTimes[i] = getResourceValidityTime(res[i], currTime);
+				}
 			
-		}
-		else {
+				sendGetResponse(commandId, sender, msg.isRegisterRoute(), (msg.isRegisterRoute() ? msg.getRouteId() : 0), anonymousResponse, resourceDescriptors, resourcesData, validityTimes);
 			
-			if (devLog.isDebugEnabled()) {
-				devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Resource not found locally. Routing get request. " + commandId);
 			}
+			else {
 			
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Resource not found locally. Routing get request. " + commandId);
+				}
 			
-			boolean routed = false;
-			if (! msg.getRecipientId().equals(nodeAccessor.getNodeId())) {
-				MessageSendProcessInfo mspi = new MessageSendProcessInfo(msg, new Object[0]);
-				try {
-					routed = nodeAccessor.sendMessage(mspi, GlobalConstants.WAIT_ON_BKG_MSG_SEND);
-				} catch (NetworkAdapterException e) {
-					throw new ProcessMessageException("An exception has been thrown while routing the get message.", e);
+			
+				if (pathCache != null && allowPathCache && (!getFromClosestNode) && (! msg.getRecipientId().equals(nodeAccessor.getNodeId()))) {
+					String criteriaString = criteria.getDescriptorString();
+					long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+					HyCubeDHTGetCache.CacheEntry cached = pathCache.get(key, criteriaString, currTime);
+					if (cached != null) {
+						//answer from the path cache
+						if (devLog.isDebugEnabled()) {
+							devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Resource found in the path cache. Sending get reponse. " + commandId);
+						}
+						HyCubeResource[] cachedResources = cached.getResources();
+						HyCubeResourceDescriptor[] resourceDescriptors = new HyCubeResourceDescriptor[cachedResources.length];
+						byte[][] resourcesData = new byte[cachedResources.length][];
+						long[] validityTimes = (returnValidityTimes ? new long[cachedResources.length] : null);
+						for (int i = 0; i < cachedResources.length; i++) {
+							resourceDescriptors[i] = cachedResources[i].getResourceDescriptor();
+							resourcesData[i] = cachedResources[i].getData();
+							if (returnValidityTimes) validityTimes[i] = cached.getExpiryTime() - currTime;
+						}
+						sendGetResponse(commandId, sender, msg.isRegisterRoute(), (msg.isRegisterRoute() ? msg.getRouteId() : 0), anonymousResponse, resourceDescriptors, resourcesData, validityTimes);
+						return;
+					}
+					if (pathCache.recordRequest(key, criteriaString, currTime)) {
+						//the key is popular -> fetch the resources to the path cache
+						fetchToPathCache(key, criteria);
+					}
 				}
-			}
 			
-			if (! routed) {
-				//the message was not routed, returning the result found locally if any (even if the node is not a replica)
-				if (devLog.isDebugEnabled()) {
-					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Cannot route the get request. Sending the result that was found. " + commandId);
+			
+				boolean routed = false;
+				if (! msg.getRecipientId().equals(nodeAccessor.getNodeId())) {
+					MessageSendProcessInfo mspi = new MessageSendProcessInfo(msg, new Object[0]);
+					try {
+						routed = nodeAccessor.sendMessage(mspi, GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+					} catch (NetworkAdapterException e) {
+						throw new ProcessMessageException("An exception has been thrown while routing the get message.", e);
+					}
 				}
+			
+				if (! routed) {
+					//the message was not routed, returning the result found locally if any (even if the node is not a replica)
+					if (devLog.isDebugEnabled()) {
+						devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Cannot route the get request. Sending the result that was found. " + commandId);
+					}
 				
-				String[] resourceDescriptorStrings = new String[res.length];
-				byte[][] resourcesData = new byte[res.length][];
+					HyCubeResourceDescriptor[] resourceDescriptors = new HyCubeResourceDescriptor[res.length];
+					ByteBuffer[] resourcesData = new ByteBuffer[res.length];
+					long[] validityTimes = (returnValidityTimes ? new long[res.length] : null);
 				
-				for (int i = 0; i < res.length; i++) {
-					resourceDescriptorStrings[i] = res[i].getResource().getResourceDescriptor().getDescriptorString();
-					resourcesData[i] = res[i].getResource().getData();
-				}
+					long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+					for (int i = 0; i < res.length; i++) {
+						resourceDescriptors[i] = res[i].getResourceDescriptor();
+						resourcesData[i] = res[i].getDataBuffer();
+						if (returnValidityTimes) validityTimes[i] = getResourceValidityTime(res[i], currTime);
+					}
 				
-				sendGetResponse(commandId, sender, msg.isRegisterRoute(), (msg.isRegisterRoute() ? msg.getRouteId() : 0), anonymousResponse, resourceDescriptorStrings, resourcesData);
+					sendGetResponse(commandId, sender, msg.isRegisterRoute(), (msg.isRegisterRoute() ? msg.getRouteId() : 0), anonymousResponse, resourceDescriptors, resourcesData, validityTimes);
 				
-			}
-			//else do nothing - the message was routed further
+				}
+				//else do nothing - the message was routed further
 			
+			}
+		}
+		finally {
+			//the data views of the entries (written to the reply) are no longer used:
+			releaseResourceEntries(res);
 		}
 		
-		
+
 	}
 
 
 
-	public void processGetResponse(NodePointer sender, HyCubeMessage msg, int commandId, String[] resourceDescriptorStrings, byte[][] resourcesData) {
+	public void processGetResponse(NodePointer sender, HyCubeMessage msg, int commandId, String[] resourceDescriptorStrings, byte[][] resourcesData, long[] validityTimes) {
+		HyCubeResourceDescriptor[] resourceDescriptors = null;
+		if (resourceDescriptorStrings != null) {
+			resourceDescriptors = new HyCubeResourceDescriptor[resourceDescriptorStrings.length];
+			for (int i = 0; i < resourceDescriptorStrings.length; i++) {
+				resourceDescriptors[i] = new HyCubeResourceDescriptor(resourceDescriptorStrings[i]);
+			}
+		}
+		processGetResponse(sender, msg, commandId, resourceDescriptors, resourcesData, validityTimes);
+	}
+	
+	public void processGetResponse(NodePointer sender, HyCubeMessage msg, int commandId, HyCubeResourceDescriptor[] resourceDescriptors, byte[][] resourcesData, long[] validityTimes) {
 		
 		if (devLog.isDebugEnabled()) {
 			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Processing get response...");
@@ -1153,15 +1359,52 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 			return;
 		}
 		
-		if (resourceDescriptorStrings == null || resourcesData == null || resourceDescriptorStrings.length != resourcesData.length) {
+		if (resourceDescriptors == null || resourcesData == null || resourceDescriptors.length != resourcesData.length || (validityTimes != null && resourceDescriptors.length != validityTimes.length)) {
 			throw new UnrecoverableRuntimeException("Invalid resource descriptor/data passed.");
 		}
 		
 		
+		//the results are cached only if the validity times were returned (the nodes not supporting the field do not return them):
+		
+		if (rd.isPathCacheFetch()) {
+			if (pathCache != null && resourceDescriptors.length > 0 && validityTimes != null) {
+				long validityTime = pathCacheTime;
+				for (int i = 0; i < validityTimes.length; i++) {
+					if (validityTimes[i] < validityTime) validityTime = validityTimes[i];
+				}
+				if (validityTime > 0) {
+					HyCubeResource[] cachedResult = new HyCubeResource[resourceDescriptors.length];
+					for (int i = 0; i < cachedResult.length; i++) {
+						cachedResult[i] = new HyCubeResource(resourceDescriptors[i], resourcesData[i]);
+					}
+					pathCache.put(rd.getKey(), rd.getCriteria().getDescriptorString(), cachedResult, nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime() + validityTime, rd.getCacheGeneration());
+				}
+			}
+			return;
+		}
+		
+		
+		if (getCache != null && rd.isCacheResult() && resourceDescriptors.length > 0 && validityTimes != null) {
+			//cache the result until the first of the resources expires:
+			long validityTime = Long.MAX_VALUE;
+			for (int i = 0; i < validityTimes.length; i++) {
+				if (validityTimes[i] < validityTime) validityTime = validityTimes[i];
+			}
+			if (getCacheMaxEntryTime > 0 && getCacheMaxEntryTime < validityTime) validityTime = getCacheMaxEntryTime;
+			if (validityTime > 0) {
+				HyCubeResource[] cachedResult = new HyCubeResource[resourceDescriptors.length];
+				for (int i = 0; i < cachedResult.length; i++) {
+					cachedResult[i] = new HyCubeResource(resourceDescriptors[i], resourcesData[i]);
+				}
+				getCache.put(rd.getKey(), rd.getCriteria().getDescriptorString(), cachedResult, nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime() + validityTime, rd.getCacheGeneration());
+			}
+		}
+		
+		
 		if (rd.getGetCallback() != null) {
-			HyCubeResource[] getResult = new HyCubeResource[resourceDescriptorStrings.length];
+			HyCubeResource[] getResult = new HyCubeResource[resourceDescriptors.length];
 			for (int i = 0; i < getResult.length; i++) {
-				getResult[i] = new HyCubeResource(resourceDescriptorStrings[i], resourcesData[i]);
+				getResult[i] = new HyCubeResource(resourceDescriptors[i], resourcesData[i]);
 			}
 			
 			//create the event
@@ -1230,6 +1473,11 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Processing delete request...");
 		}
 		
+		if (pathCache != null) {
+			//the resources of the key cached in the path cache may be outdated after this delete
+			pathCache.invalidate(key);
+		}
+		
 		
 		boolean sendResponse = true;
 		if (msg.isAnonymousRoute() && (!msg.isRegisterRoute())) sendResponse = false;
@@ -1408,7 +1656,24 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	}
 	
 	
-	private void sendGetResponse(int commandId, NodePointer recipient, boolean registeredRoute, int routeId, boolean anonymousRoute, String[] resourceDescriptorStrings, byte[][] resourcesData) {
+	private void sendGetResponse(int commandId, NodePointer recipient, boolean registeredRoute, int routeId, boolean anonymousRoute, HyCubeResourceDescriptor[] resourceDescriptors, byte[][] resourcesData, long[] validityTimes) {
+		sendGetResponse(commandId, recipient, registeredRoute, routeId, anonymousRoute, new HyCubeGetReplyMessageData(commandId, resourceDescriptors, resourcesData, validityTimes, binaryResourceDescriptors));
+	}
+	
+	private void sendGetResponse(int commandId, NodePointer recipient, boolean registeredRoute, int routeId, boolean anonymousRoute, HyCubeResourceDescriptor[] resourceDescriptors, ByteBuffer[] resourcesData, long[] validityTimes) {
+		//the data of the resources (possibly views of the data kept by the storage manager) is written directly to the message
+		sendGetResponse(commandId, recipient, registeredRoute, routeId, anonymousRoute, new HyCubeGetReplyMessageData(commandId, resourceDescriptors, resourcesData, validityTimes, binaryResourceDescriptors));
+	}
+	
+	/**
+	 * Releases the data views held by the entries returned by the storage manager
+	 */
+	protected void releaseResourceEntries(HyCubeResourceEntry[] entries) {
+		if (entries == null) return;
+		for (HyCubeResourceEntry entry : entries) entry.release();
+	}
+	
+	private void sendGetResponse(int commandId, NodePointer recipient, boolean registeredRoute, int routeId, boolean anonymousRoute, HyCubeGetReplyMessageData msgData) {
 		
 		if (devLog.isDebugEnabled()) {
 			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending get response...");
@@ -1417,7 +1682,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		//prepare the message:
 		
 		int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
-		byte[] getReplyMessageData = (new HyCubeGetReplyMessageData(commandId, resourceDescriptorStrings, resourcesData)).getBytes(); 
+		byte[] getReplyMessageData = msgData.getBytes(); 
 		Message getReplyMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), false, registeredRoute, routeId, anonymousRoute, HyCubeMessageType.GET_REPLY, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, getReplyMessageData); 
 
 		
@@ -1523,6 +1788,14 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 			throw new IllegalArgumentException("Resource must be not null.");
 		}
 		
+		if (getCache != null) {
+			//the cached results of the key may be outdated after this operation
+			getCache.invalidate(key);
+		}
+		if (pathCache != null) {
+			pathCache.invalidate(key);
+		}
+		
 		int commandId = getNextPutCommandId();
 		
 		HyCubePutRequestData rd = new HyCubePutRequestData();
@@ -1530,6 +1803,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		rd.setCommandId(commandId);
 		rd.setPutCallback(putCallback);
 		rd.setPutCallbackArg(putCallbackArg);
+		if (putCallback instanceof CallbackFuture) ((CallbackFuture<?>) putCallback).setRequestId(commandId);
 		
 		HyCubePutRequestData prev = null;
 		synchronized (ongoingPutRequests) {
@@ -1582,7 +1856,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 			Event event = new Event(0, putRequestTimeoutEventType, processEventProxy, commandId);
 			Queue<Event> queue = nodeAccessor.getEventQueue(putRequestTimeoutEventType);
 			EventScheduler scheduler = nodeAccessor.getEventScheduler(); 
-			scheduler.scheduleEventWithDelay(event, queue, putRequestTimeout);
+			scheduler.scheduleEventWithDelay(event, queue, getAdaptiveRequestTimeout(recipient, exactPut, putRequestTimeout));
 		}
 		else {
 			//if the message was not sent, check self
@@ -1616,6 +1890,16 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		
 	}
 
+	/**
+	 * Returns the timeout of a request sent directly to the recipient, derived from the RTT estimate of the recipient (if the adaptive timeouts are enabled).
+	 * The routed requests (recipient not specified) and the requests that are not exact (the recipient routes them further towards the key) use the static timeouts.
+	 */
+	protected long getAdaptiveRequestTimeout(NodePointer recipient, boolean exact, int requestTimeout) {
+		if (recipient == null || (! exact)) return requestTimeout;
+		return nodeAccessor.getNodeParameterSet().getAdaptiveRequestTimeout(nodeAccessor.getNetworkAdapter().getRttEstimate(recipient.getNetworkNodePointer()), requestTimeout);
+	}
+	
+	
 	protected boolean sendPutRequest(int commandId, NodePointer recipient, boolean registerRoute, boolean anonymousRoute, BigInteger key, HyCubeResource resource, boolean exactPut, boolean secure, boolean skipRandomNextHops, long refreshTime) {
 		
 		if (devLog.isDebugEnabled()) {
@@ -1626,7 +1910,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		
 		//prepare the message:
 		int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
-		byte[] putMessageData = (new HyCubePutMessageData(commandId, key, resource.getResourceDescriptor().getDescriptorString(), resource.getData(), refreshTime)).getBytes(); 
+		byte[] putMessageData = (new HyCubePutMessageData(commandId, key, resource.getResourceDescriptor(), resource.getData(), refreshTime, binaryResourceDescriptors)).getBytes(); 
 		int routeId = 0;
 		if (registerRoute) routeId = ((HyCubeRoutingManager)(nodeAccessor.getRoutingManager())).getAndReserveNextRandomUnusedRouteId();
 		Message putMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), (exactPut ? recipient.getNodeId() : keyNodeId), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), registerRoute, false, routeId, anonymousRoute, HyCubeMessageType.PUT, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, secure, skipRandomNextHops, (short)0, (short)0, putMessageData); 
@@ -1727,6 +2011,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		rd.setCommandId(commandId);
 		rd.setRefreshPutCallback(refreshPutCallback);
 		rd.setRefreshPutCallbackArg(refreshPutCallbackArg);
+		if (refreshPutCallback instanceof CallbackFuture) ((CallbackFuture<?>) refreshPutCallback).setRequestId(commandId);
 		
 		HyCubeRefreshPutRequestData prev = null;
 		synchronized (ongoingRefreshPutRequests) {
@@ -1784,7 +2069,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 			Event event = new Event(0, refreshPutRequestTimeoutEventType, processEventProxy, commandId);
 			Queue<Event> queue = nodeAccessor.getEventQueue(refreshPutRequestTimeoutEventType);
 			EventScheduler scheduler = nodeAccessor.getEventScheduler(); 
-			scheduler.scheduleEventWithDelay(event, queue, refreshPutRequestTimeout);
+			scheduler.scheduleEventWithDelay(event, queue, getAdaptiveRequestTimeout(recipient, exactRefreshPut, refreshPutRequestTimeout));
 		}
 		else {
 			//if the message was not sent, check self
@@ -1932,6 +2217,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		rd.setCommandId(commandId);
 		rd.setGetCallback(getCallback);
 		rd.setGetCallbackArg(getCallbackArg);
+		if (getCallback instanceof CallbackFuture) ((CallbackFuture<?>) getCallback).setRequestId(commandId);
 		
 		HyCubeGetRequestData prev = null;
 		synchronized (ongoingGetRequests) {
@@ -1950,6 +2236,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		boolean skipRandomNextHops = false;
 		boolean registerRoute = false;
 		boolean anonymousRoute = false;
+		boolean allowPathCache = false;
 		
 		
 		exactGet = getGetParameterExactGet(parameters);		//while sending with this flag, the message recipient will be set to the exact node (not the lookup key), thus the message will not be routed further
@@ -1958,18 +2245,49 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		skipRandomNextHops = getGetParameterSkipRandomNextHops(parameters);
 		registerRoute = getGetParameterRegisterRoute(parameters);
 		anonymousRoute = getGetParameterAnonymousRoute(parameters);
+		allowPathCache = getGetParameterAllowPathCache(parameters);
 
 		
 		if (exactGet && recipient == null) {
 			throw new IllegalArgumentException("Recipient must be not null.");
 		}
 		
+		if (getCache != null && recipient == null && (!findClosestNode)) {
+			//routed get - return the cached result if present, otherwise cache the result returned
+			HyCubeResource[] cachedResult = getCache.get(key, criteria.getDescriptorString(), nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime());
+			if (cachedResult != null) {
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Resource found in the get cache. Returning. " + commandId);
+				}
+				synchronized (ongoingGetRequests) {
+					ongoingGetRequests.remove(commandId);
+				}
+				if (getCallback != null) {
+					//create the event
+					Event event = new GetCallbackEvent(this, getCallback, getCallbackArg, commandId, cachedResult);
+					//insert to the appropriate event queue
+					try {
+						nodeAccessor.getEventQueue(getCallbackEventType).put(event);
+					} catch (InterruptedException e) {
+						//this should never happen
+						throw new UnrecoverableRuntimeException("An exception was thrown while inserting an event to an event queue.");
+					}
+				}
+				return getCallback;
+			}
+			rd.setKey(key);
+			rd.setCriteria(criteria);
+			rd.setCacheResult(true);
+			//the result is not cached if the key is invalidated (by a local put or delete) before the result is returned:
+			rd.setCacheGeneration(getCache.getGeneration(key));
+		}
+		
 		if (findClosestNode) {
 			//route the message to the closest node possible and get the resource
 			boolean status = false;
 			if (recipient == null || (! recipient.getNodeId().equals(nodeAccessor.getNodeId())) || !exactGet) {
 				//don't send if EXACT recipient is specified and is self
-				status = sendGetRequest(commandId, recipient, registerRoute, anonymousRoute, key, criteria, exactGet, findClosestNode, secure, skipRandomNextHops);
+				status = sendGetRequest(commandId, recipient, registerRoute, anonymousRoute, key, criteria, exactGet, findClosestNode, allowPathCache, rd.isCacheResult(), secure, skipRandomNextHops);
 			}
 			if (status) {
 				//the get message was sent -> set the timeout event for the request:
@@ -1985,7 +2303,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 				Event event = new Event(0, getRequestTimeoutEventType, processEventProxy, commandId);
 				Queue<Event> queue = nodeAccessor.getEventQueue(getRequestTimeoutEventType);
 				EventScheduler scheduler = nodeAccessor.getEventScheduler(); 
-				scheduler.scheduleEventWithDelay(event, queue, getRequestTimeout);
+				scheduler.scheduleEventWithDelay(event, queue, getAdaptiveRequestTimeout(recipient, exactGet, getRequestTimeout));
 			}
 			else {
 				//if the message was not sent, check self
@@ -2060,6 +2378,10 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 							throw new UnrecoverableRuntimeException("An exception was thrown while inserting an event to an event queue.");
 						}
 					}
+					//remove the request
+					synchronized (ongoingGetRequests) {
+						ongoingGetRequests.remove(commandId);
+					}
 				}
 			}
 			if (!resourceFoundLocally) {
@@ -2070,7 +2392,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 				boolean status = false;
 				if (recipient == null || (! recipient.getNodeId().equals(nodeAccessor.getNodeId())) || !exactGet) {
 					//don't send if EXACT recipient is specified and is self
-					status = sendGetRequest(commandId, recipient, registerRoute, anonymousRoute, key, criteria, exactGet, findClosestNode, secure, skipRandomNextHops);
+					status = sendGetRequest(commandId, recipient, registerRoute, anonymousRoute, key, criteria, exactGet, findClosestNode, allowPathCache, rd.isCacheResult(), secure, skipRandomNextHops);
 				}
 				if (status) {
 					//the get message was sent -> set the timeout event for the request:
@@ -2086,7 +2408,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 					Event event = new Event(0, getRequestTimeoutEventType, processEventProxy, commandId);
 					Queue<Event> queue = nodeAccessor.getEventQueue(getRequestTimeoutEventType);
 					EventScheduler scheduler = nodeAccessor.getEventScheduler(); 
-					scheduler.scheduleEventWithDelay(event, queue, getRequestTimeout);
+					scheduler.scheduleEventWithDelay(event, queue, getAdaptiveRequestTimeout(recipient, exactGet, getRequestTimeout));
 				}
 				else {
 					//the message was not routed, returning the result found locally if any (even if the node is not a replica)
@@ -2109,6 +2431,10 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 							throw new UnrecoverableRuntimeException("An exception was thrown while inserting an event to an event queue.");
 						}
 					}
+					//remove the request
+					synchronized (ongoingGetRequests) {
+						ongoingGetRequests.remove(commandId);
+					}
 				}
 				
 			}
@@ -2118,11 +2444,67 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		return getCallback;
 		
 	}
+	
+	
+	/**
+	 * Routes a get request for a popular key, whose result is stored in the path cache (the request is not answered from the path caches of other nodes)
+	 */
+	protected void fetchToPathCache(BigInteger key, HyCubeResourceDescriptor criteria) {
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Fetching the resource to the path cache...");
+		}
+		
+		int commandId = getNextGetCommandId();
+		
+		HyCubeGetRequestData rd = new HyCubeGetRequestData();
+		rd.setCommandId(commandId);
+		rd.setKey(key);
+		rd.setCriteria(criteria);
+		rd.setPathCacheFetch(true);
+		rd.setCacheGeneration(pathCache.getGeneration(key));
+		
+		HyCubeGetRequestData prev = null;
+		synchronized (ongoingGetRequests) {
+			prev = ongoingGetRequests.remove(commandId);
+			ongoingGetRequests.put(commandId, rd);
+		}
+		
+		if (prev != null) {
+			//discard the previous request (practically impossible to happen that the previous request with the same id is still being processed)
+			discardGetRequest(prev);
+		}
+		
+		boolean status = sendGetRequest(commandId, null, false, false, key, criteria, false, false, false, true, false, false);
+		
+		if (status) {
+			//set the timeout event for the request:
+			ProcessEventProxy processEventProxy = new ProcessEventProxy() {
+				@Override
+				public void processEvent(Event event) throws EventProcessException {
+					if ( ! (event.getEventArg() instanceof Integer)) {
+						throw new EventProcessException("The event argument is expecte to be an instance of: " + Integer.class.getName());
+					}
+					getRequestTimedOut((Integer)event.getEventArg());
+				}
+			};
+			Event event = new Event(0, getRequestTimeoutEventType, processEventProxy, commandId);
+			Queue<Event> queue = nodeAccessor.getEventQueue(getRequestTimeoutEventType);
+			EventScheduler scheduler = nodeAccessor.getEventScheduler(); 
+			scheduler.scheduleEventWithDelay(event, queue, getRequestTimeout);
+		}
+		else {
+			synchronized (ongoingGetRequests) {
+				ongoingGetRequests.remove(commandId);
+			}
+		}
+		
+	}
 
 
 
 
-	protected boolean sendGetRequest(int commandId, NodePointer recipient, boolean registerRoute, boolean anonymousRoute, BigInteger key, HyCubeResourceDescriptor criteria, boolean exactGet, boolean getFromClosestNode, boolean secure, boolean skipRandomNextHops) {
+	protected boolean sendGetRequest(int commandId, NodePointer recipient, boolean registerRoute, boolean anonymousRoute, BigInteger key, HyCubeResourceDescriptor criteria, boolean exactGet, boolean getFromClosestNode, boolean allowPathCache, boolean returnValidityTimes, boolean secure, boolean skipRandomNextHops) {
 
 		if (devLog.isDebugEnabled()) {
 			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending get request");
@@ -2132,7 +2514,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		
 		//prepare the message:
 		int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
-		byte[] getMessageData = (new HyCubeGetMessageData(commandId, key, criteria.getDescriptorString(), getFromClosestNode)).getBytes();
+		byte[] getMessageData = (new HyCubeGetMessageData(commandId, key, criteria, getFromClosestNode, (allowPathCache && !exactGet), returnValidityTimes, binaryResourceDescriptors)).getBytes();
 		int routeId = 0;
 		if (registerRoute) routeId = ((HyCubeRoutingManager)(nodeAccessor.getRoutingManager())).getAndReserveNextRandomUnusedRouteId();
 		Message getMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), (exactGet ? recipient.getNodeId() : keyNodeId), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), registerRoute, false, routeId, anonymousRoute, HyCubeMessageType.GET, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, secure, skipRandomNextHops, (short)0, (short)0, getMessageData); 
@@ -2202,6 +2584,14 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 			throw new IllegalArgumentException("Criteria must be not null.");
 		}
 		
+		if (getCache != null) {
+			//the cached results of the key may be outdated after this operation
+			getCache.invalidate(key);
+		}
+		if (pathCache != null) {
+			pathCache.invalidate(key);
+		}
+		
 		int commandId = getNextDeleteCommandId();
 		
 		HyCubeDeleteRequestData rd = new HyCubeDeleteRequestData();
@@ -2209,6 +2599,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		rd.setCommandId(commandId);
 		rd.setDeleteCallback(deleteCallback);
 		rd.setDeleteCallbackArg(deleteCallbackArg);
+		if (deleteCallback instanceof CallbackFuture) ((CallbackFuture<?>) deleteCallback).setRequestId(commandId);
 		
 		HyCubeDeleteRequestData prev = null;
 		synchronized (ongoingDeleteRequests) {
@@ -2257,7 +2648,7 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		Event event = new Event(0, deleteRequestTimeoutEventType, processEventProxy, commandId);
 		Queue<Event> queue = nodeAccessor.getEventQueue(deleteRequestTimeoutEventType);
 		EventScheduler scheduler = nodeAccessor.getEventScheduler(); 
-		scheduler.scheduleEventWithDelay(event, queue, deleteRequestTimeout);
+		scheduler.scheduleEventWithDelay(event, queue, getAdaptiveRequestTimeout(recipient, exactDelete, deleteRequestTimeout));
 		
 		return deleteCallback;
 		
@@ -2295,191 +2686,1698 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 
 
 	
-	public void processDHT() {
-		
+	/**
+	 * The batch operations send the keys in the batch messages (PUT_BATCH, GET_BATCH, DELETE_BATCH) - the keys having the same next hop are sent to the next hop in one message,
+	 * and every node on the path splits the entries among the next hops of their keys (the routing state of every key is kept in the message).
+	 * The nodes processing the entries send the responses to the node that started the batch in the batch replies.
+	 * The batch messages are routed with the default routing only - the exact, secure, skip-random-next-hops, registered and anonymous requests,
+	 * as well as the requests of the nodes ensuring the anonymity of the Steinhaus point, are sent as single-key requests
+	 */
+	@Override
+	public BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg) {
+		return putAll(values, batchCallback, batchCallbackArg, null);
+	}
+
+	@Override
+	public BatchCallback putAll(Map<BigInteger, ?> values, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+
 		if (devLog.isDebugEnabled()) {
-			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Process DHT called...");
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "PUT ALL called...");
 		}
-		
-		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
-		long discardTime = currTime - resourceStoreTime;
-		
-		discardOutdatedEntries(discardTime);
-		
-	}
-	
-	
-	
-	
-	
-	
-	public void discardOutdatedEntries(long discardTime) {
-		dhtStorageManager.discardOutdatedEntries(discardTime);
-	}
-	
-	
-	
-	
-	
-	
-	public void replicate() {
-		
-		Map<BigInteger, HyCubeResourceReplicationEntry[]> replicationInfos = dhtStorageManager.getResourcesInfoForReplication();
-		
-		//send resource descriptors for all stored resources to the nodes in the neighborgood set, respecting the maximum number of the closest nodes defined
-		//smaller maximum number of nodes would descrease overall overhead, but may have negative influence on the replication efficiency - some nodes may be skipped with higher probability
-		int replicationNSNodesNum = routingTable.getNSSize();
-		if (replicationNSNodesNum > maxReplicationNSNodesNum) replicationNSNodesNum = maxReplicationNSNodesNum;  
-		
-		routingTable.getNsLock().readLock().lock();
-		
-		ArrayList<NodePointer> replicationNodes = new ArrayList<NodePointer>(maxReplicationNSNodesNum);
-		if (assumeNsOrdered) {
-			for (int i = 0; i < routingTable.getNeighborhoodSet().size() && i < maxReplicationNSNodesNum; i++) {
-				replicationNodes.add(routingTable.getNeighborhoodSet().get(i).getNode());
-			}
-			
-			//release the lock
-			routingTable.getNsLock().readLock().unlock();
-			
+
+		if (values == null) {
+			throw new IllegalArgumentException("Values must be not null.");
 		}
-		else {
-			int nsSize = routingTable.getNeighborhoodSet().size();
-			ArrayList<RoutingTableEntry> nsCopy = new ArrayList<RoutingTableEntry>(routingTable.getNeighborhoodSet());
-			
-			//release the lock
-			routingTable.getNsLock().readLock().unlock();
-			
-			
-			for (int i = 0; i < nsSize && i < maxReplicationNSNodesNum; i++) {
-				//find the closest node
-				RoutingTableEntry closest = null;
-				int closestIndex = 0;
-				for (int j = 0; j < nsCopy.size(); j++) {
-					if (closest == null || nsCopy.get(j).getDistance() < closest.getDistance()) {
-						closest = nsCopy.get(j);
-						closestIndex = j;
-					}
-				}
-				
-				replicationNodes.add(nsCopy.get(closestIndex).getNode());
-				
-				//remove
-				nsCopy.remove(closestIndex);
-				
+
+		if (! isBatchRoutingSupported(getPutParameterExactPut(parameters), getPutParameterSecureRouting(parameters), getPutParameterSkipRandomNextHops(parameters), getPutParameterRegisterRoute(parameters), getPutParameterAnonymousRoute(parameters))) {
+			//send the single-key requests
+			return HyCubeDHTManager.super.putAll(values, batchCallback, batchCallbackArg, parameters);
+		}
+
+		for (Map.Entry<BigInteger, ?> entry : values.entrySet()) {
+			if (entry.getKey() == null) {
+				throw new IllegalArgumentException("Key must be not null.");
+			}
+			if ( ! (entry.getValue() instanceof HyCubeResource)) {
+				throw new IllegalArgumentException("The value is expected to be an instance of: " + HyCubeResource.class.getName());
 			}
-			
 		}
-		
 
-		//send the replication info to the replication nodes
-		//data is not included in the message - the node would ask for the data if needed -> less overhead, as in most cases the data will already be replicated
-		
-		for (BigInteger key : replicationInfos.keySet()) {
+		//the individual requests return their results to the batch request (the key is passed as the callback argument)
+		DHTBatchRequest batchRequest = new DHTBatchRequest(batchCallback, batchCallbackArg, values.keySet());
+
+		long refreshTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+
+		List<BatchEntry> entries = new ArrayList<BatchEntry>(values.size());
+		for (Map.Entry<BigInteger, ?> entry : values.entrySet()) {
+			BigInteger key = entry.getKey();
+			HyCubeResource resource = (HyCubeResource) entry.getValue();
+			if (getCache != null) {
+				//the cached results of the key may be outdated after this operation
+				getCache.invalidate(key);
+			}
+			if (pathCache != null) {
+				pathCache.invalidate(key);
+			}
+			int commandId = registerPutRequest(batchRequest, key).getCommandId();
+			entries.add(createBatchEntry(commandId, key, new HyCubePutMessageData(commandId, key, resource.getResourceDescriptor(), resource.getData(), refreshTime, binaryResourceDescriptors)));
+		}
+
+		List<BatchEntry> localEntries = sendBatchRequests(HyCubeMessageType.PUT_BATCH, null, entries, putRequestTimeoutEventType, putRequestTimeout);
+
+		for (BatchEntry entry : localEntries) {
+			//the entry was not sent, check self
+			boolean putLocalStatus = false;
+			if (isReplica(entry.key, nodeAccessor.getNodeId(), resourceStoreNodesNum)) {
+				putLocalStatus = putToStorage(entry.key, nodeAccessor.getNodeId(), (HyCubeResource) values.get(entry.key), refreshTime);
+			}
+			processPutResponse(nodeAccessor.getNodePointer(), null, entry.commandId, putLocalStatus);
+		}
+
+		batchRequest.started();
+
+		return batchCallback;
+
+	}
+
+	@Override
+	public BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		return getAll(details, batchCallback, batchCallbackArg, null);
+	}
+
+	@Override
+	public BatchCallback getAll(Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "GET ALL called...");
+		}
+
+		if (details == null) {
+			throw new IllegalArgumentException("Details must be not null.");
+		}
+
+		if (! isBatchRoutingSupported(getGetParameterExactGet(parameters), getGetParameterSecureRouting(parameters), getGetParameterSkipRandomNextHops(parameters), getGetParameterRegisterRoute(parameters), getGetParameterAnonymousRoute(parameters))) {
+			//send the single-key requests
+			return HyCubeDHTManager.super.getAll(details, batchCallback, batchCallbackArg, parameters);
+		}
+
+		for (Map.Entry<BigInteger, ?> entry : details.entrySet()) {
+			if (entry.getKey() == null) {
+				throw new IllegalArgumentException("Key must be not null.");
+			}
+			if ( ! (entry.getValue() instanceof HyCubeResourceDescriptor)) {
+				throw new IllegalArgumentException("The detail is expected to be an instance of: " + HyCubeResourceDescriptor.class.getName());
+			}
+		}
+
+		boolean findClosestNode = getGetParameterFindClosestNode(parameters);
+		boolean allowPathCache = getGetParameterAllowPathCache(parameters);
+
+		DHTBatchRequest batchRequest = new DHTBatchRequest(batchCallback, batchCallbackArg, details.keySet());
+
+		List<BatchEntry> entries = new ArrayList<BatchEntry>(details.size());
+		for (Map.Entry<BigInteger, ?> entry : details.entrySet()) {
+
+			BigInteger key = entry.getKey();
+			HyCubeResourceDescriptor criteria = (HyCubeResourceDescriptor) entry.getValue();
+
+			HyCubeGetRequestData rd = registerGetRequest(batchRequest, key);
+
+			if (getCache != null && (!findClosestNode)) {
+				//return the cached result if present, otherwise cache the result returned
+				HyCubeResource[] cachedResult = getCache.get(key, criteria.getDescriptorString(), nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime());
+				if (cachedResult != null) {
+					returnLocalGetResult(rd, cachedResult);
+					continue;
+				}
+				rd.setKey(key);
+				rd.setCriteria(criteria);
+				rd.setCacheResult(true);
+				rd.setCacheGeneration(getCache.getGeneration(key));
+			}
+
+			if (!findClosestNode) {
+				//return the resource(s) found locally if this node is a replica
+				HyCubeResourceEntry[] res = getFromStorage(key, this.nodeAccessor.getNodeId(), criteria);
+				if (isReplica(key, nodeAccessor.getNodeId(), resourceStoreNodesNum) && res != null && res.length > 0) {
+					returnLocalGetResult(rd, getResources(res));
+					continue;
+				}
+			}
+
+			entries.add(createBatchEntry(rd.getCommandId(), key, new HyCubeGetMessageData(rd.getCommandId(), key, criteria, findClosestNode, allowPathCache, rd.isCacheResult(), binaryResourceDescriptors)));
+
+		}
+
+		List<BatchEntry> localEntries = sendBatchRequests(HyCubeMessageType.GET_BATCH, null, entries, getRequestTimeoutEventType, getRequestTimeout);
+
+		for (BatchEntry entry : localEntries) {
+			//the entry was not sent, returning the result found locally if any (even if the node is not a replica)
+			HyCubeGetRequestData rd;
+			synchronized (ongoingGetRequests) {
+				rd = ongoingGetRequests.get(entry.commandId);
+			}
+			if (rd == null) continue;
+			HyCubeResourceEntry[] res = getFromStorage(entry.key, this.nodeAccessor.getNodeId(), (HyCubeResourceDescriptor) details.get(entry.key));
+			returnLocalGetResult(rd, getResources(res));
+		}
+
+		batchRequest.started();
+
+		return batchCallback;
+
+	}
+
+	@Override
+	public BatchCallback deleteAll(NodePointer recipient, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg) {
+		return deleteAll(recipient, details, batchCallback, batchCallbackArg, null);
+	}
+
+	@Override
+	public BatchCallback deleteAll(NodePointer recipient, Map<BigInteger, ?> details, BatchCallback batchCallback, Object batchCallbackArg, Object[] parameters) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "DELETE ALL called...");
+		}
+
+		if (details == null) {
+			throw new IllegalArgumentException("Details must be not null.");
+		}
+
+		if (! isBatchRoutingSupported(getDeleteParameterExactDelete(parameters), getDeleteParameterSecureRouting(parameters), getDeleteParameterSkipRandomNextHops(parameters), getDeleteParameterRegisterRoute(parameters), getDeleteParameterAnonymousRoute(parameters))) {
+			//send the single-key requests
+			return HyCubeDHTManager.super.deleteAll(recipient, details, batchCallback, batchCallbackArg, parameters);
+		}
+
+		for (Map.Entry<BigInteger, ?> entry : details.entrySet()) {
+			if (entry.getKey() == null) {
+				throw new IllegalArgumentException("Key must be not null.");
+			}
+			if ( ! (entry.getValue() instanceof HyCubeResourceDescriptor)) {
+				throw new IllegalArgumentException("The detail is expected to be an instance of: " + HyCubeResourceDescriptor.class.getName());
+			}
+		}
+
+		if (recipient != null && recipient.getNodeId().equals(nodeAccessor.getNodeId())) {
+			//the entries are routed by this node
+			recipient = null;
+		}
+
+		DHTBatchRequest batchRequest = new DHTBatchRequest(batchCallback, batchCallbackArg, details.keySet());
+
+		List<BatchEntry> entries = new ArrayList<BatchEntry>(details.size());
+		for (Map.Entry<BigInteger, ?> entry : details.entrySet()) {
+			BigInteger key = entry.getKey();
+			HyCubeResourceDescriptor criteria = (HyCubeResourceDescriptor) entry.getValue();
+			if (getCache != null) {
+				//the cached results of the key may be outdated after this operation
+				getCache.invalidate(key);
+			}
+			if (pathCache != null) {
+				pathCache.invalidate(key);
+			}
+			int commandId = registerDeleteRequest(batchRequest, key).getCommandId();
+			entries.add(createBatchEntry(commandId, key, new HyCubeDeleteMessageData(commandId, key, criteria.getDescriptorString())));
+		}
+
+		//the entries are sent to the recipient (if specified), which routes them further:
+		List<BatchEntry> localEntries = sendBatchRequests(HyCubeMessageType.DELETE_BATCH, recipient, entries, deleteRequestTimeoutEventType, deleteRequestTimeout);
+
+		for (BatchEntry entry : localEntries) {
+			//the entry was not sent, delete the resource from the local storage
+			boolean status = deleteFromStorage(entry.key, nodeAccessor.getNodeId(), (HyCubeResourceDescriptor) details.get(entry.key));
+			processDeleteResponse(nodeAccessor.getNodePointer(), null, entry.commandId, status);
+		}
+
+		batchRequest.started();
+
+		return batchCallback;
+
+	}
+
+
+
+	/**
+	 * An entry of a batch message - the request of one key (the message data of the single-key request) and the routing state of the key
+	 */
+	protected static class BatchEntry {
+
+		protected int commandId;
+		protected BigInteger key;
+		protected Object requestData;
+		protected byte[] data;
+
+		protected boolean pmhApplied;
+		protected boolean steinhausTransformApplied;
+		protected HyCubeNodeId steinhausPoint;
+
+		protected NodePointer nextHop;
+		protected boolean sent;
+
+		protected BatchEntry(int commandId, BigInteger key, Object requestData, byte[] data, boolean pmhApplied, boolean steinhausTransformApplied, HyCubeNodeId steinhausPoint) {
+			this.commandId = commandId;
+			this.key = key;
+			this.requestData = requestData;
+			this.data = data;
+			this.pmhApplied = pmhApplied;
+			this.steinhausTransformApplied = steinhausTransformApplied;
+			this.steinhausPoint = steinhausPoint;
+		}
+
+	}
+
+
+	/**
+	 * Checks whether the keys of a batch may be sent in the batch messages (the batch messages are routed with the default routing only)
+	 */
+	protected boolean isBatchRoutingSupported(boolean exact, boolean secure, boolean skipRandomNextHops, boolean registerRoute, boolean anonymousRoute) {
+		if (exact || secure || skipRandomNextHops || registerRoute || anonymousRoute) return false;
+		if (! (nodeAccessor.getRoutingManager() instanceof HyCubeRoutingManager)) return false;
+		//the Steinhaus point of every key would have to be changed by the first node on the route:
+		return ! ((HyCubeRoutingManager) nodeAccessor.getRoutingManager()).isEnsureSteinhausPointAnonymity();
+	}
+
+
+	/**
+	 * Creates an entry of a batch started by this node - the routing state of the entry is the state set by the routing manager for the messages sent by this node
+	 */
+	protected BatchEntry createBatchEntry(int commandId, BigInteger key, Object requestData) {
+		byte[] data;
+		if (requestData instanceof HyCubePutMessageData) data = ((HyCubePutMessageData) requestData).getBytes();
+		else if (requestData instanceof HyCubeGetMessageData) data = ((HyCubeGetMessageData) requestData).getBytes();
+		else data = ((HyCubeDeleteMessageData) requestData).getBytes();
+		boolean steinhausTransformApplied = ((HyCubeRoutingManager) nodeAccessor.getRoutingManager()).isUseSteinhausTransform();
+		return new BatchEntry(commandId, key, requestData, data, false, steinhausTransformApplied, (HyCubeNodeId) nodeAccessor.getNodeId());
+	}
+
+
+	/**
+	 * Creates an entry of a received batch message
+	 */
+	protected BatchEntry createBatchEntry(HyCubeDHTBatchMessageData batchData, int index, int commandId, BigInteger key, Object requestData) {
+		BigInteger steinhausPoint = batchData.getSteinhausPoints()[index];
+		return new BatchEntry(commandId, key, requestData, batchData.getEntriesData()[index], batchData.getPMHApplied()[index], batchData.getSteinhausTransformApplied()[index],
+				(steinhausPoint != null ? (HyCubeNodeId) nodeAccessor.getNodeIdFactory().fromBigInteger(steinhausPoint) : null));
+	}
+
+
+	protected HyCubePutRequestData registerPutRequest(PutCallback putCallback, Object putCallbackArg) {
+
+		HyCubePutRequestData rd = new HyCubePutRequestData();
+		rd.setCommandId(getNextPutCommandId());
+		rd.setPutCallback(putCallback);
+		rd.setPutCallbackArg(putCallbackArg);
+
+		HyCubePutRequestData prev = null;
+		synchronized (ongoingPutRequests) {
+			prev = ongoingPutRequests.remove(rd.getCommandId());
+			ongoingPutRequests.put(rd.getCommandId(), rd);
+		}
+
+		if (prev != null) {
+			//discard the previous request (practically impossible to happen that the previous request with the same id is still being processed)
+			discardPutRequest(prev);
+		}
+
+		return rd;
+
+	}
+
+	protected HyCubeGetRequestData registerGetRequest(GetCallback getCallback, Object getCallbackArg) {
+
+		HyCubeGetRequestData rd = new HyCubeGetRequestData();
+		rd.setCommandId(getNextGetCommandId());
+		rd.setGetCallback(getCallback);
+		rd.setGetCallbackArg(getCallbackArg);
+
+		HyCubeGetRequestData prev = null;
+		synchronized (ongoingGetRequests) {
+			prev = ongoingGetRequests.remove(rd.getCommandId());
+			ongoingGetRequests.put(rd.getCommandId(), rd);
+		}
+
+		if (prev != null) {
+			//discard the previous request (practically impossible to happen that the previous request with the same id is still being processed)
+			discardGetRequest(prev);
+		}
+
+		return rd;
+
+	}
+
+	protected HyCubeDeleteRequestData registerDeleteRequest(DeleteCallback deleteCallback, Object deleteCallbackArg) {
+
+		HyCubeDeleteRequestData rd = new HyCubeDeleteRequestData();
+		rd.setCommandId(getNextDeleteCommandId());
+		rd.setDeleteCallback(deleteCallback);
+		rd.setDeleteCallbackArg(deleteCallbackArg);
+
+		HyCubeDeleteRequestData prev = null;
+		synchronized (ongoingDeleteRequests) {
+			prev = ongoingDeleteRequests.remove(rd.getCommandId());
+			ongoingDeleteRequests.put(rd.getCommandId(), rd);
+		}
+
+		if (prev != null) {
+			//discard the previous request (practically impossible to happen that the previous request with the same id is still being processed)
+			discardDeleteRequest(prev);
+		}
+
+		return rd;
+
+	}
+
+
+	/**
+	 * Returns the result of a get request found locally (or in the get cache) without sending the request
+	 */
+	protected void returnLocalGetResult(HyCubeGetRequestData rd, HyCubeResource[] getResult) {
+
+		synchronized (ongoingGetRequests) {
+			ongoingGetRequests.remove(rd.getCommandId());
+		}
+
+		if (rd.getGetCallback() != null) {
+			//create the event
+			Event event = new GetCallbackEvent(this, rd.getGetCallback(), rd.getGetCallbackArg(), rd.getCommandId(), getResult);
+			//insert to the appropriate event queue
+			try {
+				nodeAccessor.getEventQueue(getCallbackEventType).put(event);
+			} catch (InterruptedException e) {
+				//this should never happen
+				throw new UnrecoverableRuntimeException("An exception was thrown while inserting an event to an event queue.");
+			}
+		}
+
+	}
+
+	protected HyCubeResource[] getResources(HyCubeResourceEntry[] res) {
+		HyCubeResource[] resources = new HyCubeResource[res.length];
+		for (int i = 0; i < resources.length; i++) {
+			resources[i] = res[i].getResource();
+		}
+		return resources;
+	}
+
+
+	/**
+	 * Sends the entries of a batch started by this node and schedules the timeout of the requests sent (one timeout event for all entries).
+	 * If the recipient is specified, all entries are sent to the recipient, otherwise they are sent to the next hops of their keys.
+	 * Returns the entries that were not sent (the entries that should be processed by this node)
+	 */
+	protected List<BatchEntry> sendBatchRequests(final HyCubeMessageType type, NodePointer recipient, List<BatchEntry> entries, EventType timeoutEventType, long timeout) {
+
+		List<BatchEntry> localEntries = new ArrayList<BatchEntry>();
+
+		BigInteger originId = ((HyCubeNodeId) nodeAccessor.getNodeId()).getBigInteger();
+		byte[] originNetworkAddress = nodeAccessor.getNetworkAdapter().getPublicAddressBytes();
+
+		if (recipient != null) {
+			sendBatchEntries(type, originId, originNetworkAddress, recipient, entries, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, localEntries);
+		}
+		else {
+			for (List<BatchEntry> nextHopEntries : groupBatchEntries(entries, localEntries).values()) {
+				sendBatchEntries(type, originId, originNetworkAddress, nextHopEntries.get(0).nextHop, nextHopEntries, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, localEntries);
+			}
+		}
+
+		int sentNum = 0;
+		for (BatchEntry entry : entries) {
+			if (entry.sent) sentNum++;
+		}
+		if (sentNum == 0) return localEntries;
+
+		int[] commandIds = new int[sentNum];
+		int index = 0;
+		for (BatchEntry entry : entries) {
+			if (entry.sent) commandIds[index++] = entry.commandId;
+		}
+
+		//set the timeout event for the requests sent:
+		ProcessEventProxy processEventProxy = new ProcessEventProxy() {
+			@Override
+			public void processEvent(Event event) throws EventProcessException {
+				if ( ! (event.getEventArg() instanceof int[])) {
+					throw new EventProcessException("The event argument is expecte to be an instance of: " + int[].class.getName());
+				}
+				for (int commandId : (int[]) event.getEventArg()) {
+					switch (type) {
+						case PUT_BATCH:
+							putRequestTimedOut(commandId);
+							break;
+						case GET_BATCH:
+							getRequestTimedOut(commandId);
+							break;
+						case DELETE_BATCH:
+							deleteRequestTimedOut(commandId);
+							break;
+						default:
+							break;
+					}
+				}
+			}
+		};
+
+		Event event = new Event(0, timeoutEventType, processEventProxy, commandIds);
+		Queue<Event> queue = nodeAccessor.getEventQueue(timeoutEventType);
+		EventScheduler scheduler = nodeAccessor.getEventScheduler();
+		scheduler.scheduleEventWithDelay(event, queue, timeout);
+
+		return localEntries;
+
+	}
+
+
+	/**
+	 * Finds the next hops of the entries of a batch (the same way the routing manager finds the next hops of routed messages, using the routing state of every entry) and groups the entries by the next hops.
+	 * The entries that are not routed further (no next hop found, or this node is the next hop) are added to the local entries
+	 */
+	protected LinkedHashMap<NodeId, List<BatchEntry>> groupBatchEntries(List<BatchEntry> entries, List<BatchEntry> localEntries) {
+
+		HyCubeRoutingManager routingManager = (HyCubeRoutingManager) nodeAccessor.getRoutingManager();
+		NodeId nodeId = nodeAccessor.getNodeId();
+
+		//the message passed to the routing manager carries the recipient and the routing state of the entries:
+		HyCubeMessage routedMessage = (HyCubeMessage) messageFactory.newMessage(0, nodeId, nodeId, nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), false, false, 0, false, HyCubeMessageType.DATA, (short)0, (short)0, false, false, (short)0, (short)0, new byte[0]);
+
+		LinkedHashMap<NodeId, List<BatchEntry>> nextHopsEntries = new LinkedHashMap<NodeId, List<BatchEntry>>();
+
+		for (BatchEntry entry : entries) {
+
+			NodeId keyNodeId = nodeAccessor.getNodeIdFactory().fromBigInteger(entry.key);
+
+			NodePointer nextHop = null;
+			if (! NodeId.compareIds(nodeId, keyNodeId)) {
+				routedMessage.setRecipientId(keyNodeId);
+				routedMessage.setPMHApplied(entry.pmhApplied);
+				routedMessage.setSteinhausTransformApplied(entry.steinhausTransformApplied);
+				routedMessage.setSteinhausPoint(entry.steinhausPoint);
+				nextHop = routingManager.findNextHop(routedMessage);
+				entry.pmhApplied = routedMessage.isPMHApplied();
+				entry.steinhausTransformApplied = routedMessage.isSteinhausTransformApplied();
+				entry.steinhausPoint = routedMessage.getSteinhausPointId();
+			}
+
+			if (nextHop == null || nextHop.getNodeId().equals(nodeId)) {
+				localEntries.add(entry);
+				continue;
+			}
+
+			entry.nextHop = nextHop;
+			List<BatchEntry> nextHopEntries = nextHopsEntries.get(nextHop.getNodeId());
+			if (nextHopEntries == null) {
+				nextHopEntries = new ArrayList<BatchEntry>();
+				nextHopsEntries.put(nextHop.getNodeId(), nextHopEntries);
+			}
+			nextHopEntries.add(entry);
+
+		}
+
+		return nextHopsEntries;
+
+	}
+
+
+	/**
+	 * Sends the entries of a batch to the recipient, split into messages not exceeding the message data length limit. The entries of the messages that were not sent are added to the unsent entries
+	 */
+	protected void sendBatchEntries(HyCubeMessageType type, BigInteger originId, byte[] originNetworkAddress, NodePointer recipient, List<BatchEntry> entries, short ttl, short hopCount, List<BatchEntry> unsentEntries) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending " + type + " request...");
+		}
+
+		int dataLengthLimit = getReplicationMessageDataLengthLimit();
+		int headerLength = HyCubeDHTBatchMessageData.calculateMessageDataHeaderLength(originId, originNetworkAddress);
+
+		int batchStart = 0;
+		while (batchStart < entries.size()) {
+
+			//at least one entry is sent in every message
+			int batchEnd = batchStart + 1;
+			int dataLength = headerLength + calculateBatchEntryDataLength(entries.get(batchStart));
+			while (batchEnd < entries.size()) {
+				int entryDataLength = calculateBatchEntryDataLength(entries.get(batchEnd));
+				if (dataLength + entryDataLength > dataLengthLimit) break;
+				dataLength += entryDataLength;
+				batchEnd++;
+			}
+
+			int entriesNum = batchEnd - batchStart;
+			boolean[] pmhApplied = new boolean[entriesNum];
+			boolean[] steinhausTransformApplied = new boolean[entriesNum];
+			BigInteger[] steinhausPoints = new BigInteger[entriesNum];
+			byte[][] entriesData = new byte[entriesNum][];
+			for (int i = 0; i < entriesNum; i++) {
+				BatchEntry entry = entries.get(batchStart + i);
+				pmhApplied[i] = entry.pmhApplied;
+				steinhausTransformApplied[i] = entry.steinhausTransformApplied;
+				steinhausPoints[i] = (entry.steinhausPoint != null ? entry.steinhausPoint.getBigInteger() : null);
+				entriesData[i] = entry.data;
+			}
+
+			//prepare the message:
+			int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
+			byte[] batchMessageData = (new HyCubeDHTBatchMessageData(originId, originNetworkAddress, entriesNum, pmhApplied, steinhausTransformApplied, steinhausPoints, entriesData)).getBytes();
+			Message batchMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), false, false, 0, false, type, ttl, hopCount, false, false, (short)0, (short)0, batchMessageData);
+
+			//send the message to the recipient (the TTL is checked and the hop count is updated by the routing manager):
+			boolean sent;
+			try {
+				sent = nodeAccessor.sendMessage(new MessageSendProcessInfo(batchMessage, recipient.getNetworkNodePointer(), false), GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+			} catch (NetworkAdapterException e) {
+				throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a batch request to a node.", e);
+			} catch (ProcessMessageException e) {
+				throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a batch request to a node.", e);
+			}
+
+			for (int i = batchStart; i < batchEnd; i++) {
+				if (sent) entries.get(i).sent = true;
+				else unsentEntries.add(entries.get(i));
+			}
+
+			batchStart = batchEnd;
+
+		}
+
+	}
+
+	protected int calculateBatchEntryDataLength(BatchEntry entry) {
+		return HyCubeDHTBatchMessageData.calculateEntryDataLength(entry.data, (entry.steinhausPoint != null ? entry.steinhausPoint.getBigInteger() : null));
+	}
+
+
+	/**
+	 * Sends the responses to the entries of a batch to the node that started the batch, split into messages not exceeding the message data length limit
+	 */
+	protected void sendBatchReplies(HyCubeMessageType type, NodePointer recipient, List<byte[]> replies) {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending " + type + " response...");
+		}
+
+		int dataLengthLimit = getReplicationMessageDataLengthLimit();
+
+		int batchStart = 0;
+		while (batchStart < replies.size()) {
+
+			//at least one entry is sent in every message
+			int batchEnd = batchStart + 1;
+			int dataLength = HyCubeDHTBatchReplyMessageData.calculateMessageDataHeaderLength() + HyCubeDHTBatchReplyMessageData.calculateEntryDataLength(replies.get(batchStart));
+			while (batchEnd < replies.size()) {
+				int entryDataLength = HyCubeDHTBatchReplyMessageData.calculateEntryDataLength(replies.get(batchEnd));
+				if (dataLength + entryDataLength > dataLengthLimit) break;
+				dataLength += entryDataLength;
+				batchEnd++;
+			}
+
+			byte[][] entriesData = replies.subList(batchStart, batchEnd).toArray(new byte[batchEnd - batchStart][]);
+
+			//prepare the message:
+			int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
+			byte[] batchReplyMessageData = (new HyCubeDHTBatchReplyMessageData(entriesData.length, entriesData)).getBytes();
+			Message batchReplyMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), false, false, 0, false, type, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, batchReplyMessageData);
+
+			//send the message directly to the recipient:
+			try {
+				nodeAccessor.sendMessage(new MessageSendProcessInfo(batchReplyMessage, recipient.getNetworkNodePointer(), false), GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+			} catch (NetworkAdapterException e) {
+				throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a batch response to a node.", e);
+			} catch (ProcessMessageException e) {
+				throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a batch response to a node.", e);
+			}
+
+			batchStart = batchEnd;
+
+		}
+
+	}
+
+
+	/**
+	 * Sends the entries of a received batch message to the next hops of their keys. The entries that are not routed further are added to the local entries
+	 */
+	protected void routeBatchEntries(HyCubeMessage msg, NodePointer origin, HyCubeDHTBatchMessageData batchData, List<BatchEntry> entries, List<BatchEntry> localEntries) {
+		for (List<BatchEntry> nextHopEntries : groupBatchEntries(entries, localEntries).values()) {
+			sendBatchEntries((HyCubeMessageType) msg.getType(), batchData.getOriginId(), batchData.getOriginNetworkAddress(), nextHopEntries.get(0).nextHop, nextHopEntries, msg.getTtl(), msg.getHopCount(), localEntries);
+		}
+	}
+
+
+	public void processPutBatchRequest(NodePointer origin, HyCubeMessage msg, HyCubeDHTBatchMessageData batchData) throws ProcessMessageException {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Processing put batch request...");
+		}
+
+		List<BatchEntry> entries = new ArrayList<BatchEntry>(batchData.getEntriesNum());
+		for (int i = 0; i < batchData.getEntriesNum(); i++) {
+			HyCubePutMessageData putData;
+			try {
+				putData = HyCubePutMessageData.fromBytes(batchData.getEntriesData()[i]);
+			} catch (MessageByteConversionException e) {
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "An entry of the put batch request is corrupted. Skipping the entry.", e);
+				}
+				continue;
+			}
+			if (pathCache != null) {
+				//the resources of the key cached in the path cache may be outdated after this put
+				pathCache.invalidate(putData.getKey());
+			}
+			entries.add(createBatchEntry(batchData, i, putData.getCommandId(), putData.getKey(), putData));
+		}
+
+		List<BatchEntry> localEntries = new ArrayList<BatchEntry>();
+		routeBatchEntries(msg, origin, batchData, entries, localEntries);
+
+		if (localEntries.isEmpty()) return;
+
+		List<byte[]> replies = new ArrayList<byte[]>(localEntries.size());
+		for (BatchEntry entry : localEntries) {
+			HyCubePutMessageData putData = (HyCubePutMessageData) entry.requestData;
+			boolean status = false;
+			if (isReplica(entry.key, nodeAccessor.getNodeId(), resourceStoreNodesNum)) {
+				status = putToStorage(entry.key, origin.getNodeId(), new HyCubeResource(putData.getResourceDescriptor(), putData.getResourceData()), putData.getRefreshTime());
+			}
+			replies.add((new HyCubePutReplyMessageData(entry.commandId, status)).getBytes());
+		}
+
+		sendBatchReplies(HyCubeMessageType.PUT_BATCH_REPLY, origin, replies);
+
+	}
+
+
+	public void processGetBatchRequest(NodePointer origin, HyCubeMessage msg, HyCubeDHTBatchMessageData batchData) throws ProcessMessageException {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Processing get batch request...");
+		}
+
+		List<byte[]> replies = new ArrayList<byte[]>();
+
+		List<BatchEntry> entries = new ArrayList<BatchEntry>(batchData.getEntriesNum());
+		for (int i = 0; i < batchData.getEntriesNum(); i++) {
+
+			HyCubeGetMessageData getData;
+			try {
+				getData = HyCubeGetMessageData.fromBytes(batchData.getEntriesData()[i]);
+			} catch (MessageByteConversionException e) {
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "An entry of the get batch request is corrupted. Skipping the entry.", e);
+				}
+				continue;
+			}
+
+			BigInteger key = getData.getKey();
+			HyCubeResourceDescriptor criteria = getData.getCriteria();
+
+			//if isReplica and contains the resource (only if it is requested to find the first node containing the replica (not the closest one))
+			if (!(getData.isGetFromClosestNode()) && isReplica(key, nodeAccessor.getNodeId(), resourceStoreNodesNum)) {
+				HyCubeResourceEntry[] res = getFromStorage(key, origin.getNodeId(), criteria);
+				try {
+					if (res != null && res.length > 0) {
+						replies.add(createGetReplyData(getData.getCommandId(), res, getData.isReturnValidityTimes()));
+						continue;
+					}
+				}
+				finally {
+					releaseResourceEntries(res);
+				}
+			}
+
+			if (pathCache != null && getData.isAllowPathCache() && (!getData.isGetFromClosestNode()) && (! NodeId.compareIds(nodeAccessor.getNodeId(), nodeAccessor.getNodeIdFactory().fromBigInteger(key)))) {
+				String criteriaString = criteria.getDescriptorString();
+				long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+				HyCubeDHTGetCache.CacheEntry cached = pathCache.get(key, criteriaString, currTime);
+				if (cached != null) {
+					//answer from the path cache
+					HyCubeResource[] cachedResources = cached.getResources();
+					HyCubeResourceDescriptor[] resourceDescriptors = new HyCubeResourceDescriptor[cachedResources.length];
+					byte[][] resourcesData = new byte[cachedResources.length][];
+					long[] validityTimes = (getData.isReturnValidityTimes() ? new long[cachedResources.length] : null);
+					for (int j = 0; j < cachedResources.length; j++) {
+						resourceDescriptors[j] = cachedResources[j].getResourceDescriptor();
+						resourcesData[j] = cachedResources[j].getData();
+						if (getData.isReturnValidityTimes()) validityTimes[j] = cached.getExpiryTime() - currTime;
+					}
+					replies.add((new HyCubeGetReplyMessageData(getData.getCommandId(), resourceDescriptors, resourcesData, validityTimes, binaryResourceDescriptors)).getBytes());
+					continue;
+				}
+				if (pathCache.recordRequest(key, criteriaString, currTime)) {
+					//the key is popular -> fetch the resources to the path cache
+					fetchToPathCache(key, criteria);
+				}
+			}
+
+			entries.add(createBatchEntry(batchData, i, getData.getCommandId(), key, getData));
+
+		}
+
+		List<BatchEntry> localEntries = new ArrayList<BatchEntry>();
+		routeBatchEntries(msg, origin, batchData, entries, localEntries);
+
+		for (BatchEntry entry : localEntries) {
+			//the entry was not routed, returning the result found locally if any (even if the node is not a replica)
+			HyCubeGetMessageData getData = (HyCubeGetMessageData) entry.requestData;
+			HyCubeResourceEntry[] res = getFromStorage(entry.key, origin.getNodeId(), getData.getCriteria());
+			try {
+				replies.add(createGetReplyData(entry.commandId, res, getData.isReturnValidityTimes()));
+			}
+			finally {
+				releaseResourceEntries(res);
+			}
+		}
+
+		if (! replies.isEmpty()) {
+			sendBatchReplies(HyCubeMessageType.GET_BATCH_REPLY, origin, replies);
+		}
+
+	}
+
+	/**
+	 * Encodes the get response containing the resources found (the data of the entries is written directly to the response)
+	 */
+	protected byte[] createGetReplyData(int commandId, HyCubeResourceEntry[] res, boolean returnValidityTimes) {
+
+		HyCubeResourceDescriptor[] resourceDescriptors = new HyCubeResourceDescriptor[res.length];
+		ByteBuffer[] resourcesData = new ByteBuffer[res.length];
+		long[] validityTimes = (returnValidityTimes ? new long[res.length] : null);
+
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		for (int i = 0; i < res.length; i++) {
+			resourceDescriptors[i] = res[i].getResourceDescriptor();
+			resourcesData[i] = res[i].getDataBuffer();
+			if (returnValidityTimes) validityTimes[i] = getResourceValidityTime(res[i], currTime);
+		}
+
+		return (new HyCubeGetReplyMessageData(commandId, resourceDescriptors, resourcesData, validityTimes, binaryResourceDescriptors)).getBytes();
+
+	}
+
+
+	public void processDeleteBatchRequest(NodePointer origin, HyCubeMessage msg, HyCubeDHTBatchMessageData batchData) throws ProcessMessageException {
+
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Processing delete batch request...");
+		}
+
+		List<BatchEntry> entries = new ArrayList<BatchEntry>(batchData.getEntriesNum());
+		for (int i = 0; i < batchData.getEntriesNum(); i++) {
+			HyCubeDeleteMessageData deleteData;
+			try {
+				deleteData = HyCubeDeleteMessageData.fromBytes(batchData.getEntriesData()[i]);
+			} catch (MessageByteConversionException e) {
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "An entry of the delete batch request is corrupted. Skipping the entry.", e);
+				}
+				continue;
+			}
+			if (pathCache != null) {
+				//the resources of the key cached in the path cache may be outdated after this delete
+				pathCache.invalidate(deleteData.getKey());
+			}
+			entries.add(createBatchEntry(batchData, i, deleteData.getCommandId(), deleteData.getKey(), deleteData));
+		}
+
+		List<BatchEntry> localEntries = new ArrayList<BatchEntry>();
+		routeBatchEntries(msg, origin, batchData, entries, localEntries);
+
+		if (localEntries.isEmpty()) return;
+
+		List<byte[]> replies = new ArrayList<byte[]>(localEntries.size());
+		for (BatchEntry entry : localEntries) {
+			HyCubeDeleteMessageData deleteData = (HyCubeDeleteMessageData) entry.requestData;
+			boolean status = deleteFromStorage(entry.key, origin.getNodeId(), new HyCubeResourceDescriptor(deleteData.getResourceDescriptorString()));
+			replies.add((new HyCubeDeleteReplyMessageData(entry.commandId, status)).getBytes());
+		}
+
+		sendBatchReplies(HyCubeMessageType.DELETE_BATCH_REPLY, origin, replies);
+
+	}
+
+
+
+	/**
+	 * The cancel methods remove the ongoing requests with the specified callback object, without calling the callbacks.
+	 * Responses received later for the cancelled requests, as well as the request timeout events, are ignored.
+	 * The methods return the numbers of requests cancelled.
+	 */
+	@Override
+	public int cancelPut(PutCallback putCallback) {
+		int cancelled = 0;
+		synchronized (ongoingPutRequests) {
+			Iterator<HyCubePutRequestData> iter = ongoingPutRequests.values().iterator();
+			while (iter.hasNext()) {
+				if (iter.next().getPutCallback() == putCallback) {
+					iter.remove();
+					cancelled++;
+				}
+			}
+		}
+		return cancelled;
+	}
+	
+	@Override
+	public int cancelRefreshPut(RefreshPutCallback refreshPutCallback) {
+		int cancelled = 0;
+		synchronized (ongoingRefreshPutRequests) {
+			Iterator<HyCubeRefreshPutRequestData> iter = ongoingRefreshPutRequests.values().iterator();
+			while (iter.hasNext()) {
+				if (iter.next().getRefreshPutCallback() == refreshPutCallback) {
+					iter.remove();
+					cancelled++;
+				}
+			}
+		}
+		return cancelled;
+	}
+	
+	@Override
+	public int cancelGet(GetCallback getCallback) {
+		int cancelled = 0;
+		synchronized (ongoingGetRequests) {
+			Iterator<HyCubeGetRequestData> iter = ongoingGetRequests.values().iterator();
+			while (iter.hasNext()) {
+				if (iter.next().getGetCallback() == getCallback) {
+					iter.remove();
+					cancelled++;
+				}
+			}
+		}
+		return cancelled;
+	}
+	
+	@Override
+	public int cancelDelete(DeleteCallback deleteCallback) {
+		int cancelled = 0;
+		synchronized (ongoingDeleteRequests) {
+			Iterator<HyCubeDeleteRequestData> iter = ongoingDeleteRequests.values().iterator();
+			while (iter.hasNext()) {
+				if (iter.next().getDeleteCallback() == deleteCallback) {
+					iter.remove();
+					cancelled++;
+				}
+			}
+		}
+		return cancelled;
+	}
+	
+	
+	/**
+	 * The cancel methods remove the ongoing requests with the specified command ids (set to the futures returned by the asynchronous node operations), without calling the callbacks.
+	 * The methods return true if the requests were removed.
+	 */
+	@Override
+	public boolean cancelPut(int commandId) {
+		synchronized (ongoingPutRequests) {
+			return (ongoingPutRequests.remove(commandId) != null);
+		}
+	}
+	
+	@Override
+	public boolean cancelRefreshPut(int commandId) {
+		synchronized (ongoingRefreshPutRequests) {
+			return (ongoingRefreshPutRequests.remove(commandId) != null);
+		}
+	}
+	
+	@Override
+	public boolean cancelGet(int commandId) {
+		synchronized (ongoingGetRequests) {
+			return (ongoingGetRequests.remove(commandId) != null);
+		}
+	}
+	
+	@Override
+	public boolean cancelDelete(int commandId) {
+		synchronized (ongoingDeleteRequests) {
+			return (ongoingDeleteRequests.remove(commandId) != null);
+		}
+	}
+	
+	
+	
+	public void processDHT() {
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Process DHT called...");
+		}
+		
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		long discardTime = currTime - resourceStoreTime;
+		
+		//discards at most one slice of outdated entries, the remaining entries are discarded by the next calls
+		boolean completed = discardOutdatedEntries(discardTime, discardOutdatedEntriesSliceSize);
+		
+		if (! completed && devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "The number of outdated entries exceeded the slice size. The remaining entries will be discarded in the next slices.");
+		}
+		
+	}
+	
+	
+	
+	
+	
+	
+	public void discardOutdatedEntries(long discardTime) {
+		dhtStorageManager.discardOutdatedEntries(discardTime);
+	}
+	
+	public boolean discardOutdatedEntries(long discardTime, int maxEntriesNum) {
+		return dhtStorageManager.discardOutdatedEntries(discardTime, maxEntriesNum);
+	}
+	
+	
+	
+	
+	
+	
+	public void replicate() {
+		
+		Map<BigInteger, HyCubeResourceReplicationEntry[]> replicationInfos = dhtStorageManager.getResourcesInfoForReplication();
+		
+		//send resource descriptors for all stored resources to the nodes in the neighborgood set, respecting the maximum number of the closest nodes defined
+		//smaller maximum number of nodes would descrease overall overhead, but may have negative influence on the replication efficiency - some nodes may be skipped with higher probability
+		int replicationNSNodesNum = routingTable.getNSSize();
+		if (replicationNSNodesNum > maxReplicationNSNodesNum) replicationNSNodesNum = maxReplicationNSNodesNum;  
+		
+		routingTable.getNsLock().readLock().lock();
+		
+		ArrayList<NodePointer> replicationNodes = new ArrayList<NodePointer>(maxReplicationNSNodesNum);
+		if (assumeNsOrdered) {
+			for (int i = 0; i < routingTable.getNeighborhoodSet().size() && i < maxReplicationNSNodesNum; i++) {
+				replicationNodes.add(routingTable.getNeighborhoodSet().get(i).getNode());
+			}
+			
+			//release the lock
+			routingTable.getNsLock().readLock().unlock();
+			
+		}
+		else {
+			int nsSize = routingTable.getNeighborhoodSet().size();
+			ArrayList<RoutingTableEntry> nsCopy = new ArrayList<RoutingTableEntry>(routingTable.getNeighborhoodSet());
+			
+			//release the lock
+			routingTable.getNsLock().readLock().unlock();
+			
+			
+			for (int i = 0; i < nsSize && i < maxReplicationNSNodesNum; i++) {
+				//find the closest node
+				RoutingTableEntry closest = null;
+				int closestIndex = 0;
+				for (int j = 0; j < nsCopy.size(); j++) {
+					if (closest == null || nsCopy.get(j).getDistance() < closest.getDistance()) {
+						closest = nsCopy.get(j);
+						closestIndex = j;
+					}
+				}
+				
+				replicationNodes.add(nsCopy.get(closestIndex).getNode());
+				
+				//remove
+				nsCopy.remove(closestIndex);
+				
+			}
+			
+		}
+		
+
+		if (digestReplicate && (! anonymousReplicate)) {
+			//anti-entropy - send the digests of the resources to the replication nodes, the resource descriptors are sent only for the key ranges whose digests differ (processReplicateDigestReplyMessage)
+			//the digests require the sender to be known to the recipient, so they are not used with anonymous replication
+			replicateDigests(replicationInfos, replicationNodes);
+			return;
+		}
+		
+		
+		//send the replication info to the replication nodes
+		//data is not included in the message - the node would ask for the data if needed -> less overhead, as in most cases the data will already be replicated
+		
+		//the resource descriptors of many keys are packed into one message (up to the message data length limit - getReplicationMessageDataLengthLimit)
+		
+		int entriesNum = 0;
+		for (HyCubeResourceReplicationEntry[] replicationInfo : replicationInfos.values()) {
+			entriesNum += replicationInfo.length;
+		}
+		
+		BigInteger[] keys = new BigInteger[entriesNum];
+		HyCubeResourceDescriptor[] resourceDescriptors = new HyCubeResourceDescriptor[entriesNum];
+		long[] refreshTimes = new long[entriesNum];
+		int[] replicationSpreadNodesNums = new int[entriesNum];
+		
+		int index = 0;
+		for (HyCubeResourceReplicationEntry[] replicationInfo : replicationInfos.values()) {
+			for (int i = 0; i < replicationInfo.length && index < entriesNum; i++) {
+				keys[index] = replicationInfo[i].getKey();
+				resourceDescriptors[index] = replicationInfo[i].getResourceDescriptor();
+				refreshTimes[index] = replicationInfo[i].getRefreshTime();
+				replicationSpreadNodesNums[index] = replicationSpreadManager.getReplicationNodesNumForResource(replicationNodesNum, replicationInfo[i].getKey(), replicationInfo[i].getResourceDescriptor(), replicationInfo[i].getRefreshTime());
+				index++;
+			}
+		}
+		
+		sendReplicationInfoBatches(replicationNodes, keys, resourceDescriptors, refreshTimes, replicationSpreadNodesNums, replicationNodes);
+		
+		
+		
+	}
+	
+	
+	
+	/**
+	 * Sends the replication info to the recipients, packing the resource descriptors of many keys into one REPLICATE message.
+	 * The entries are split into consecutive batches, so that the data of every message does not exceed the limit returned by getReplicationMessageDataLengthLimit()
+	 */
+	protected void sendReplicationInfoBatches(List<NodePointer> recipients, BigInteger[] keys, HyCubeResourceDescriptor[] resourceDescriptors, long[] refreshTimes, int[] replicationSpreadNodesNums, ArrayList<NodePointer> replicationNodes) {
+		
+		if (!replicate) return;
+		
+		if (keys.length == 0 || recipients.isEmpty()) return;
+		
+		int dataLengthLimit = getReplicationMessageDataLengthLimit();
+		
+		int batchStart = 0;
+		while (batchStart < keys.length) {
+			
+			//at least one entry is sent in every message
+			int batchEnd = batchStart + 1;
+			int dataLength = HyCubeReplicateMessageData.calculateMessageDataHeaderLength() + HyCubeReplicateMessageData.calculateResourceDataLength(keys[batchStart], resourceDescriptors[batchStart].getEncodedDescriptor(binaryResourceDescriptors));
+			while (batchEnd < keys.length) {
+				int resourceDataLength = HyCubeReplicateMessageData.calculateResourceDataLength(keys[batchEnd], resourceDescriptors[batchEnd].getEncodedDescriptor(binaryResourceDescriptors));
+				if (dataLength + resourceDataLength > dataLengthLimit) break;
+				dataLength += resourceDataLength;
+				batchEnd++;
+			}
+			
+			BigInteger[] batchKeys;
+			HyCubeResourceDescriptor[] batchResourceDescriptors;
+			long[] batchRefreshTimes;
+			int[] batchReplicationSpreadNodesNums;
+			if (batchStart == 0 && batchEnd == keys.length) {
+				batchKeys = keys;
+				batchResourceDescriptors = resourceDescriptors;
+				batchRefreshTimes = refreshTimes;
+				batchReplicationSpreadNodesNums = replicationSpreadNodesNums;
+			}
+			else {
+				batchKeys = Arrays.copyOfRange(keys, batchStart, batchEnd);
+				batchResourceDescriptors = Arrays.copyOfRange(resourceDescriptors, batchStart, batchEnd);
+				batchRefreshTimes = Arrays.copyOfRange(refreshTimes, batchStart, batchEnd);
+				batchReplicationSpreadNodesNums = Arrays.copyOfRange(replicationSpreadNodesNums, batchStart, batchEnd);
+			}
+			
+			for (NodePointer recipient : recipients) {
+				sendReplicationInfo(recipient, batchKeys, batchResourceDescriptors, batchRefreshTimes, batchReplicationSpreadNodesNums, replicationNodes);
+			}
+			
+			batchStart = batchEnd;
+			
+		}
+		
+	}
+	
+	
+	/**
+	 * Returns the maximum length of the data of the messages packing many resources or keys (REPLICATE, REPLICATE_FETCH, REPLICATE_FETCH_REPLY and the batch messages).
+	 * When the network adapter fragments messages, the limit is the data length fitting one fragment, otherwise it is based on the maximum message length of the network adapter
+	 */
+	protected int getReplicationMessageDataLengthLimit() {
+		
+		int messageLength;
+		if (nodeAccessor.getNetworkAdapter().isFragmentMessages()) {
+			messageLength = nodeAccessor.getNetworkAdapter().getMessageFragmentLength();
+		}
+		else {
+			messageLength = nodeAccessor.getNetworkAdapter().getMaxMessageLength();
+		}
+		
+		if (messageLength <= 0) return DEFAULT_REPLICATION_MESSAGE_DATA_LENGTH;
+		
+		return Math.max(messageLength - messageFactory.getMessageHeaderLength(), 0);
+		
+	}
+	
+	
+	
+	protected void sendReplicationInfo(NodePointer recipient, BigInteger[] keys, HyCubeResourceDescriptor[] resourceDescriptors, long[] refreshTimes, int[] replicationSpreadNodesNums, ArrayList<NodePointer> replicationNodes) {
+
+		if (!replicate) return;
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending replication info...");
+		}
+		
+		//prepare the message:
+		
+		int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
+		byte[] replicateMessageData = (new HyCubeReplicateMessageData(resourceDescriptors.length, keys, resourceDescriptors, refreshTimes, replicationSpreadNodesNums, binaryResourceDescriptors)).getBytes();
+		Object[] routingParameters = null;
+		if (anonymousReplicate) {
+			routingParameters = HyCubeRoutingManager.createRoutingParameters(null, null, null, null, null, true);
+		}
+		else {
+			routingParameters = null;
+		}
+		Message replicateMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), HyCubeMessageType.REPLICATE, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, replicateMessageData); 
+
+		NetworkNodePointer directRecipient = null;
+		if (anonymousReplicate) {
+
+			//generate random next hop for the replication message
+			
+			if (ANONYMOUS_REPLICATE_GENERATE_RANDOM_DIRECT_RECIPIENTS_ALL_NS) {
+				//generate the random direct recipient among NS nodes
+				routingTable.getNsLock().readLock().lock();
+				int nsSize = routingTable.getNeighborhoodSet().size();
+				ArrayList<RoutingTableEntry> nsCopy = new ArrayList<RoutingTableEntry>(routingTable.getNeighborhoodSet());
+				routingTable.getNsLock().readLock().unlock();
+				int drnsIndex = rand.nextInt(nsSize);
+				directRecipient = nsCopy.get(drnsIndex).getNode().getNetworkNodePointer();
+			}
+			else {
+				//generate the random direct recipient from the replication nodes list
+				int drIndex = rand.nextInt(replicationNodes.size());
+				directRecipient = replicationNodes.get(drIndex).getNetworkNodePointer();
+			}
+
+			
+			
+			
+		}
+		else {
+			//send the message directly to the recipient:
+			directRecipient = recipient.getNetworkNodePointer();
+		}
+		
+		try {
+			nodeAccessor.sendMessage(new MessageSendProcessInfo(replicateMessage, directRecipient, false, routingParameters), GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+		} catch (NetworkAdapterException e) {
+			throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate message to a node.", e);
+		} catch (ProcessMessageException e) {
+			throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate message to a node.", e);
+		}
+		
+	}
+
+
+
+
+
+	protected void replicateDigests(Map<BigInteger, HyCubeResourceReplicationEntry[]> replicationInfos, ArrayList<NodePointer> replicationNodes) {
+		
+		if (!replicate) return;
+		
+		double density = estimateDensity();
+		
+		for (NodePointer recipient : replicationNodes) {
+			
+			//the digest covers the resources for which both nodes are replicas - such sets are expected to be equal when the nodes are in sync
+			HyCubeReplicationDigest digest = new HyCubeReplicationDigest(digestReplicationRangesNum);
+			
+			//the resources for which only the recipient is a replica (e.g. after the recipient joined the neighborhood) are sent directly, as in the regular replication
+			ArrayList<BigInteger> handoffKeys = new ArrayList<BigInteger>();
+			ArrayList<HyCubeResourceDescriptor> handoffResourceDescriptors = new ArrayList<HyCubeResourceDescriptor>();
+			ArrayList<Long> handoffRefreshTimes = new ArrayList<Long>();
+			ArrayList<Integer> handoffReplicationSpreadNodesNums = new ArrayList<Integer>();
+			
+			for (HyCubeResourceReplicationEntry[] replicationInfo : replicationInfos.values()) {
+				for (HyCubeResourceReplicationEntry entry : replicationInfo) {
+					int replicationSpreadNodesNum = replicationSpreadManager.getReplicationNodesNumForResource(replicationNodesNum, entry.getKey(), entry.getResourceDescriptor(), entry.getRefreshTime());
+					int k = Math.min(Math.max(replicationNodesNum, replicationSpreadNodesNum), maxReplicationSpreadNodesNum);
+					if (! isReplica(entry.getKey(), recipient.getNodeId(), k, density)) continue;
+					if (isReplica(entry.getKey(), nodeAccessor.getNodeId(), k, density)) {
+						digest.add(entry.getKey(), entry.getResourceDescriptor().getDescriptorString(), entry.getRefreshTime());
+					}
+					else {
+						handoffKeys.add(entry.getKey());
+						handoffResourceDescriptors.add(entry.getResourceDescriptor());
+						handoffRefreshTimes.add(entry.getRefreshTime());
+						handoffReplicationSpreadNodesNums.add(replicationSpreadNodesNum);
+					}
+				}
+			}
+			
+			sendReplicationDigest(recipient, density, digest);
+			
+			if (! handoffKeys.isEmpty()) {
+				int handoffNum = handoffKeys.size();
+				long[] refreshTimes = new long[handoffNum];
+				int[] replicationSpreadNodesNums = new int[handoffNum];
+				for (int i = 0; i < handoffNum; i++) {
+					refreshTimes[i] = handoffRefreshTimes.get(i);
+					replicationSpreadNodesNums[i] = handoffReplicationSpreadNodesNums.get(i);
+				}
+				sendReplicationInfoBatches(Collections.singletonList(recipient), handoffKeys.toArray(new BigInteger[handoffNum]), handoffResourceDescriptors.toArray(new HyCubeResourceDescriptor[handoffNum]), refreshTimes, replicationSpreadNodesNums, replicationNodes);
+			}
+			
+		}
+		
+	}
+	
+	
+	/**
+	 * Calculates the digest of the locally stored resources for which both this node and the specified node are replicas
+	 */
+	protected HyCubeReplicationDigest calculateReplicationDigest(Map<BigInteger, HyCubeResourceReplicationEntry[]> replicationInfos, NodeId nodeId, int rangesNum, double density) {
+		
+		HyCubeReplicationDigest digest = new HyCubeReplicationDigest(rangesNum);
+		
+		for (HyCubeResourceReplicationEntry[] replicationInfo : replicationInfos.values()) {
+			for (HyCubeResourceReplicationEntry entry : replicationInfo) {
+				int replicationSpreadNodesNum = replicationSpreadManager.getReplicationNodesNumForResource(replicationNodesNum, entry.getKey(), entry.getResourceDescriptor(), entry.getRefreshTime());
+				int k = Math.min(Math.max(replicationNodesNum, replicationSpreadNodesNum), maxReplicationSpreadNodesNum);
+				if (isReplica(entry.getKey(), nodeId, k, density) && isReplica(entry.getKey(), nodeAccessor.getNodeId(), k, density)) {
+					digest.add(entry.getKey(), entry.getResourceDescriptor().getDescriptorString(), entry.getRefreshTime());
+				}
+			}
+		}
+		
+		return digest;
+		
+	}
+	
+	
+	protected void sendReplicationDigest(NodePointer recipient, double density, HyCubeReplicationDigest digest) {
+		
+		if (!replicate) return;
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending replication digest...");
+		}
+		
+		int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
+		byte[] replicateDigestMessageData = (new HyCubeReplicateDigestMessageData(density, digest.getRangesNum(), digest.getDigests(), digest.getResourcesNums())).getBytes();
+		Message replicateDigestMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), HyCubeMessageType.REPLICATE_DIGEST, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, replicateDigestMessageData);
+		
+		try {
+			nodeAccessor.sendMessage(new MessageSendProcessInfo(replicateDigestMessage, recipient.getNetworkNodePointer(), false), GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+		} catch (NetworkAdapterException e) {
+			throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate digest message to a node.", e);
+		} catch (ProcessMessageException e) {
+			throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate digest message to a node.", e);
+		}
+		
+	}
+	
+	
+	protected void sendReplicationDigestReply(NodePointer recipient, double density, int rangesNum, int[] mismatchedRanges) {
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending replication digest reply...");
+		}
+		
+		int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
+		byte[] replicateDigestReplyMessageData = (new HyCubeReplicateDigestReplyMessageData(density, rangesNum, mismatchedRanges.length, mismatchedRanges)).getBytes();
+		Message replicateDigestReplyMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), HyCubeMessageType.REPLICATE_DIGEST_REPLY, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, replicateDigestReplyMessageData);
+		
+		try {
+			nodeAccessor.sendMessage(new MessageSendProcessInfo(replicateDigestReplyMessage, recipient.getNetworkNodePointer(), false), GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+		} catch (NetworkAdapterException e) {
+			throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate digest reply message to a node.", e);
+		} catch (ProcessMessageException e) {
+			throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate digest reply message to a node.", e);
+		}
+		
+	}
+	
+	
+	public void processReplicateDigestMessage(NodePointer sender, HyCubeMessage msg, double density, int rangesNum, long[] digests, int[] resourcesNums) throws ProcessMessageException {
+		
+		if (msg.getRecipientId().equals(nodeAccessor.getNodeId())) {
+			if (!replicate) return;
+			
+			//compare the digests with the digests of the local resources for which both nodes are replicas, and reply with the ranges that differ
+			//(the replicas are determined based on the density estimated by the sender, so that both nodes compare the same sets of resources):
+			Map<BigInteger, HyCubeResourceReplicationEntry[]> replicationInfos = dhtStorageManager.getResourcesInfoForReplication();
+			HyCubeReplicationDigest digest = calculateReplicationDigest(replicationInfos, sender.getNodeId(), rangesNum, density);
+			
+			int[] mismatchedRanges = digest.getMismatchedRanges(digests, resourcesNums);
+			
+			if (mismatchedRanges.length > 0) {
+				sendReplicationDigestReply(sender, density, rangesNum, mismatchedRanges);
+			}
+		}
+		else {
+			MessageSendProcessInfo mspi = new MessageSendProcessInfo(msg);
+			try {
+				nodeAccessor.sendMessage(mspi, GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+			} catch (NetworkAdapterException e) {
+				throw new ProcessMessageException("An exception has been thrown while routing the replicate digest message.", e);
+			}
+		}
+		
+	}
+	
+	
+	public void processReplicateDigestReplyMessage(NodePointer sender, HyCubeMessage msg, double density, int rangesNum, int[] mismatchedRanges) throws ProcessMessageException {
+		
+		if (msg.getRecipientId().equals(nodeAccessor.getNodeId())) {
+			if (!replicate) return;
+			
+			boolean[] mismatched = new boolean[rangesNum];
+			for (int range : mismatchedRanges) {
+				mismatched[range] = true;
+			}
 			
-			HyCubeResourceReplicationEntry[] replicationInfo = replicationInfos.get(key);
+			//send the resource descriptors of the resources (for which both nodes are replicas) in the ranges whose digests differ
+			//(based on the density for which the digests were compared - returned by the recipient of the digest):
+			Map<BigInteger, HyCubeResourceReplicationEntry[]> replicationInfos = dhtStorageManager.getResourcesInfoForReplication();
 			
-			BigInteger[] keys = new BigInteger[replicationInfo.length];
-			String[] resourceDescriptorStrings = new String[replicationInfo.length];
-			long[] refreshTimes = new long[replicationInfo.length];
-			int[] replicationSpreadNodesNums = new int[replicationInfo.length];
+			ArrayList<NodePointer> replicationNodes = new ArrayList<NodePointer>(1);
+			replicationNodes.add(sender);
 			
-			for (int i = 0; i < replicationInfo.length; i++) {
-				keys[i] = replicationInfo[i].getKey();
-				resourceDescriptorStrings[i] = replicationInfo[i].getResourceDescriptor().getDescriptorString();
-				refreshTimes[i] = replicationInfo[i].getRefreshTime();
-				replicationSpreadNodesNums[i] = replicationSpreadManager.getReplicationNodesNumForResource(replicationNodesNum, replicationInfo[i].getKey(), replicationInfo[i].getResourceDescriptor(), replicationInfo[i].getRefreshTime());
+			ArrayList<HyCubeResourceReplicationEntry> entries = new ArrayList<HyCubeResourceReplicationEntry>();
+			ArrayList<Integer> entriesReplicationSpreadNodesNums = new ArrayList<Integer>();
+			
+			for (BigInteger key : replicationInfos.keySet()) {
+				
+				if (! mismatched[HyCubeReplicationDigest.getRange(key, rangesNum)]) continue;
+				
+				HyCubeResourceReplicationEntry[] replicationInfo = replicationInfos.get(key);
+				
+				for (HyCubeResourceReplicationEntry entry : replicationInfo) {
+					int replicationSpreadNodesNum = replicationSpreadManager.getReplicationNodesNumForResource(replicationNodesNum, entry.getKey(), entry.getResourceDescriptor(), entry.getRefreshTime());
+					int k = Math.min(Math.max(replicationNodesNum, replicationSpreadNodesNum), maxReplicationSpreadNodesNum);
+					if (isReplica(entry.getKey(), sender.getNodeId(), k, density) && isReplica(entry.getKey(), nodeAccessor.getNodeId(), k, density)) {
+						entries.add(entry);
+						entriesReplicationSpreadNodesNums.add(replicationSpreadNodesNum);
+					}
+				}
+				
 			}
 			
-			for (NodePointer recipient : replicationNodes) {
-				sendReplicationInfo(recipient, keys, resourceDescriptorStrings, refreshTimes, replicationSpreadNodesNums, replicationNodes);
+			if (! entries.isEmpty()) {
+				
+				BigInteger[] keys = new BigInteger[entries.size()];
+				HyCubeResourceDescriptor[] resourceDescriptors = new HyCubeResourceDescriptor[entries.size()];
+				long[] refreshTimes = new long[entries.size()];
+				int[] replicationSpreadNodesNums = new int[entries.size()];
+				
+				for (int i = 0; i < entries.size(); i++) {
+					keys[i] = entries.get(i).getKey();
+					resourceDescriptors[i] = entries.get(i).getResourceDescriptor();
+					refreshTimes[i] = entries.get(i).getRefreshTime();
+					replicationSpreadNodesNums[i] = entriesReplicationSpreadNodesNums.get(i);
+				}
+				
+				sendReplicationInfoBatches(replicationNodes, keys, resourceDescriptors, refreshTimes, replicationSpreadNodesNums, replicationNodes);
+				
+			}
+		}
+		else {
+			MessageSendProcessInfo mspi = new MessageSendProcessInfo(msg);
+			try {
+				nodeAccessor.sendMessage(mspi, GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+			} catch (NetworkAdapterException e) {
+				throw new ProcessMessageException("An exception has been thrown while routing the replicate digest reply message.", e);
 			}
+		}
+		
+	}
+	
+	
+	
+	
+	
+	/**
+	 * Identifies a resource requested from a node with a REPLICATE_FETCH message - the node id hash, the key, and the resource id and url (only one resource is stored for the same resource id and url)
+	 */
+	protected static final class ReplicationFetchKey {
+		
+		protected final long nodeIdHash;
+		protected final BigInteger key;
+		protected final String resourceId;
+		protected final String resourceUrl;
 		
+		protected ReplicationFetchKey(long nodeIdHash, BigInteger key, HyCubeResourceDescriptor rd) {
+			this.nodeIdHash = nodeIdHash;
+			this.key = key;
+			this.resourceId = rd.getResourceId();
+			this.resourceUrl = rd.getResourceUrl();
 		}
 		
+		@Override
+		public int hashCode() {
+			int hash = (int) (nodeIdHash ^ (nodeIdHash >>> 32));
+			hash = hash * 31 + key.hashCode();
+			hash = hash * 31 + (resourceId != null ? resourceId.hashCode() : 0);
+			hash = hash * 31 + (resourceUrl != null ? resourceUrl.hashCode() : 0);
+			return hash;
+		}
 		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof ReplicationFetchKey)) return false;
+			ReplicationFetchKey other = (ReplicationFetchKey) obj;
+			return nodeIdHash == other.nodeIdHash && key.equals(other.key)
+					&& (resourceId == null ? other.resourceId == null : resourceId.equals(other.resourceId))
+					&& (resourceUrl == null ? other.resourceUrl == null : resourceUrl.equals(other.resourceUrl));
+		}
 		
 	}
 	
 	
+	/**
+	 * Removes the records of the fetched resources whose replies did not arrive within the get request timeout. Should be called with pendingReplicationFetches locked.
+	 * The records are ordered by their expiration times (the same timeout is used for all of them), so only the expired records at the head are visited.
+	 */
+	protected void discardExpiredReplicationFetches(long currTime) {
+		Iterator<Long> iter = pendingReplicationFetches.values().iterator();
+		while (iter.hasNext()) {
+			if (iter.next() > currTime) break;
+			iter.remove();
+		}
+	}
+	
 	
-	protected void sendReplicationInfo(NodePointer recipient, BigInteger[] keys, String[] resourceDescriptorStrings, long[] refreshTimes, int[] replicationSpreadNodesNums, ArrayList<NodePointer> replicationNodes) {
-
-		if (!replicate) return;
+	protected void sendReplicationFetch(NodePointer recipient, BigInteger[] keys, String[] resourceDescriptorStrings, int[] replicationSpreadNodesNums) {
 		
 		if (devLog.isDebugEnabled()) {
-			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending replication info...");
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending replication fetch request...");
 		}
 		
-		//prepare the message:
+		//record the requested resources, so that only the solicited replies are stored (for the same time as the replies for the get requests would be accepted):
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		synchronized (pendingReplicationFetches) {
+			discardExpiredReplicationFetches(currTime);
+			for (int i = 0; i < keys.length; i++) {
+				ReplicationFetchKey fetchKey = new ReplicationFetchKey(recipient.getNodeIdHash(), keys[i], new HyCubeResourceDescriptor(resourceDescriptorStrings[i]));
+				//re-insert, so that the records remain ordered by the expiration times:
+				pendingReplicationFetches.remove(fetchKey);
+				pendingReplicationFetches.put(fetchKey, currTime + getRequestTimeout);
+			}
+		}
 		
-		int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
-		byte[] replicateMessageData = (new HyCubeReplicateMessageData(resourceDescriptorStrings.length, keys, resourceDescriptorStrings, refreshTimes, replicationSpreadNodesNums)).getBytes();
-		Object[] routingParameters = null;
-		if (anonymousReplicate) {
-			routingParameters = HyCubeRoutingManager.createRoutingParameters(null, null, null, null, null, true);
+		int dataLengthLimit = getReplicationMessageDataLengthLimit();
+		
+		int batchStart = 0;
+		while (batchStart < keys.length) {
+			
+			//at least one resource is requested in every message
+			int batchEnd = batchStart + 1;
+			int dataLength = HyCubeReplicateFetchMessageData.calculateMessageDataHeaderLength() + HyCubeReplicateFetchMessageData.calculateResourceDataLength(keys[batchStart], resourceDescriptorStrings[batchStart]);
+			while (batchEnd < keys.length) {
+				int resourceDataLength = HyCubeReplicateFetchMessageData.calculateResourceDataLength(keys[batchEnd], resourceDescriptorStrings[batchEnd]);
+				if (dataLength + resourceDataLength > dataLengthLimit) break;
+				dataLength += resourceDataLength;
+				batchEnd++;
+			}
+			
+			int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
+			byte[] replicateFetchMessageData = (new HyCubeReplicateFetchMessageData(batchEnd - batchStart, Arrays.copyOfRange(keys, batchStart, batchEnd), Arrays.copyOfRange(resourceDescriptorStrings, batchStart, batchEnd), Arrays.copyOfRange(replicationSpreadNodesNums, batchStart, batchEnd))).getBytes();
+			Message replicateFetchMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), HyCubeMessageType.REPLICATE_FETCH, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, replicateFetchMessageData);
+			
+			try {
+				nodeAccessor.sendMessage(new MessageSendProcessInfo(replicateFetchMessage, recipient.getNetworkNodePointer(), false), GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+			} catch (NetworkAdapterException e) {
+				throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate fetch message to a node.", e);
+			} catch (ProcessMessageException e) {
+				throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate fetch message to a node.", e);
+			}
+			
+			batchStart = batchEnd;
+			
 		}
-		else {
-			routingParameters = null;
+		
+	}
+	
+	
+	protected void sendReplicationFetchReply(NodePointer recipient, BigInteger[] keys, String[] resourceDescriptorStrings, byte[][] resourcesData, long[] refreshTimes, int[] replicationSpreadNodesNums) {
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Sending replication fetch reply...");
 		}
-		Message replicateMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), HyCubeMessageType.REPLICATE, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, replicateMessageData); 
-
-		NetworkNodePointer directRecipient = null;
-		if (anonymousReplicate) {
-
-			//generate random next hop for the replication message
+		
+		int dataLengthLimit = getReplicationMessageDataLengthLimit();
+		
+		int batchStart = 0;
+		while (batchStart < keys.length) {
 			
-			if (ANONYMOUS_REPLICATE_GENERATE_RANDOM_DIRECT_RECIPIENTS_ALL_NS) {
-				//generate the random direct recipient among NS nodes
-				routingTable.getNsLock().readLock().lock();
-				int nsSize = routingTable.getNeighborhoodSet().size();
-				ArrayList<RoutingTableEntry> nsCopy = new ArrayList<RoutingTableEntry>(routingTable.getNeighborhoodSet());
-				routingTable.getNsLock().readLock().unlock();
-				int drnsIndex = rand.nextInt(nsSize);
-				directRecipient = nsCopy.get(drnsIndex).getNode().getNetworkNodePointer();
+			//at least one resource is sent in every message (larger resources are fragmented by the network adapter)
+			int batchEnd = batchStart + 1;
+			int dataLength = HyCubeReplicateFetchReplyMessageData.calculateMessageDataHeaderLength() + HyCubeReplicateFetchReplyMessageData.calculateResourceDataLength(keys[batchStart], resourceDescriptorStrings[batchStart], resourcesData[batchStart]);
+			while (batchEnd < keys.length) {
+				int resourceDataLength = HyCubeReplicateFetchReplyMessageData.calculateResourceDataLength(keys[batchEnd], resourceDescriptorStrings[batchEnd], resourcesData[batchEnd]);
+				if (dataLength + resourceDataLength > dataLengthLimit) break;
+				dataLength += resourceDataLength;
+				batchEnd++;
 			}
-			else {
-				//generate the random direct recipient from the replication nodes list
-				int drIndex = rand.nextInt(replicationNodes.size());
-				directRecipient = replicationNodes.get(drIndex).getNetworkNodePointer();
+			
+			int messageSerialNo = nodeAccessor.getNextMessageSerialNo();
+			byte[] replicateFetchReplyMessageData = (new HyCubeReplicateFetchReplyMessageData(batchEnd - batchStart, Arrays.copyOfRange(keys, batchStart, batchEnd), Arrays.copyOfRange(resourceDescriptorStrings, batchStart, batchEnd), Arrays.copyOfRange(resourcesData, batchStart, batchEnd), Arrays.copyOfRange(refreshTimes, batchStart, batchEnd), Arrays.copyOfRange(replicationSpreadNodesNums, batchStart, batchEnd))).getBytes();
+			Message replicateFetchReplyMessage = messageFactory.newMessage(messageSerialNo, nodeAccessor.getNodeId(), recipient.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), HyCubeMessageType.REPLICATE_FETCH_REPLY, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, replicateFetchReplyMessageData);
+			
+			try {
+				nodeAccessor.sendMessage(new MessageSendProcessInfo(replicateFetchReplyMessage, recipient.getNetworkNodePointer(), false), GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+			} catch (NetworkAdapterException e) {
+				throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate fetch reply message to a node.", e);
+			} catch (ProcessMessageException e) {
+				throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate fetch reply message to a node.", e);
 			}
-
 			
+			batchStart = batchEnd;
+			
+		}
+		
+	}
+	
+	
+	public void processReplicateFetchMessage(NodePointer sender, HyCubeMessage msg, int resourcesNum, BigInteger[] keys, String[] resourceDescriptorStrings, int[] replicationSpreadNodesNums) throws ProcessMessageException {
+		
+		if (msg.getRecipientId().equals(nodeAccessor.getNodeId())) {
+			if (!replicate) return;
+			
+			//return the requested resources that are stored locally (the resources deleted in the meantime are skipped)
+			ArrayList<BigInteger> replyKeys = new ArrayList<BigInteger>(resourcesNum);
+			ArrayList<String> replyResourceDescriptorStrings = new ArrayList<String>(resourcesNum);
+			ArrayList<byte[]> replyResourcesData = new ArrayList<byte[]>(resourcesNum);
+			ArrayList<Long> replyRefreshTimes = new ArrayList<Long>(resourcesNum);
+			ArrayList<Integer> replyReplicationSpreadNodesNums = new ArrayList<Integer>(resourcesNum);
 			
+			for (int i = 0; i < resourcesNum; i++) {
+				
+				HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor(resourceDescriptorStrings[i]);
+				
+				HyCubeResourceEntry[] localResources = getFromStorage(keys[i], sender.getNodeId(), rd);
+				
+				//only one entry should be returned - only one resource may be stored for the same resource id and resource url
+				if (localResources != null && localResources.length > 0) {
+					replyKeys.add(keys[i]);
+					replyResourceDescriptorStrings.add(localResources[0].getResource().getResourceDescriptor().getDescriptorString());
+					replyResourcesData.add(localResources[0].getResource().getData());
+					replyRefreshTimes.add(localResources[0].getRefreshTime());
+					replyReplicationSpreadNodesNums.add(replicationSpreadNodesNums[i]);
+				}
+				releaseResourceEntries(localResources);
+				
+			}
 			
+			if (! replyKeys.isEmpty()) {
+				int replyNum = replyKeys.size();
+				long[] refreshTimes = new long[replyNum];
+				int[] replyReplicationSpreadNodesNumsArray = new int[replyNum];
+				for (int i = 0; i < replyNum; i++) {
+					refreshTimes[i] = replyRefreshTimes.get(i);
+					replyReplicationSpreadNodesNumsArray[i] = replyReplicationSpreadNodesNums.get(i);
+				}
+				sendReplicationFetchReply(sender, replyKeys.toArray(new BigInteger[replyNum]), replyResourceDescriptorStrings.toArray(new String[replyNum]), replyResourcesData.toArray(new byte[replyNum][]), refreshTimes, replyReplicationSpreadNodesNumsArray);
+			}
 		}
 		else {
-			//send the message directly to the recipient:
-			directRecipient = recipient.getNetworkNodePointer();
+			MessageSendProcessInfo mspi = new MessageSendProcessInfo(msg);
+			try {
+				nodeAccessor.sendMessage(mspi, GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+			} catch (NetworkAdapterException e) {
+				throw new ProcessMessageException("An exception has been thrown while routing the replicate fetch message.", e);
+			}
 		}
 		
-		try {
-			nodeAccessor.sendMessage(new MessageSendProcessInfo(replicateMessage, directRecipient, false, routingParameters), GlobalConstants.WAIT_ON_BKG_MSG_SEND);
-		} catch (NetworkAdapterException e) {
-			throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate message to a node.", e);
-		} catch (ProcessMessageException e) {
-			throw new UnrecoverableRuntimeException("An exception has been thrown while trying to send a replicate message to a node.", e);
+	}
+	
+	
+	public void processReplicateFetchReplyMessage(NodePointer sender, HyCubeMessage msg, int resourcesNum, BigInteger[] keys, String[] resourceDescriptorStrings, byte[][] resourcesData, long[] refreshTimes, int[] replicationSpreadNodesNums) throws ProcessMessageException {
+		
+		if (msg.getRecipientId().equals(nodeAccessor.getNodeId())) {
+			if (!replicate) return;
+			
+			double density = estimateDensity();
+			
+			long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+			
+			for (int i = 0; i < resourcesNum; i++) {
+				
+				HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor(resourceDescriptorStrings[i]);
+				
+				//only the resources requested from the sender are accepted (once, and before the request expires), as the GET replies are accepted only for the ongoing get requests:
+				Long fetchExpirationTime;
+				synchronized (pendingReplicationFetches) {
+					fetchExpirationTime = pendingReplicationFetches.remove(new ReplicationFetchKey(sender.getNodeIdHash(), keys[i], rd));
+				}
+				if (fetchExpirationTime == null || fetchExpirationTime < currTime) {
+					if (devLog.isDebugEnabled()) {
+						devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Dropping the unsolicited replication fetch reply resource.");
+					}
+					continue;
+				}
+				
+				//the node may have stopped being a replica since the fetch request was sent
+				int k = Math.min(Math.max(replicationNodesNum, replicationSpreadNodesNums[i]), maxReplicationSpreadNodesNum);
+				if (checkIfResourceReplicaBeforeStoring && (! isReplica(keys[i], nodeAccessor.getNodeId(), k, density))) continue;
+				
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("N:" + nodeAccessor.getNodeId().hashCode() + ": " + "Replicating the resource to the local storage.");
+				}
+				
+				HyCubeResource r = new HyCubeResource(rd, resourcesData[i]);
+				putToStorage(keys[i], sender.getNodeId(), r, refreshTimes[i], true);
+				
+			}
+		}
+		else {
+			MessageSendProcessInfo mspi = new MessageSendProcessInfo(msg);
+			try {
+				nodeAccessor.sendMessage(mspi, GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+			} catch (NetworkAdapterException e) {
+				throw new ProcessMessageException("An exception has been thrown while routing the replicate fetch reply message.", e);
+			}
 		}
 		
 	}
-
-
-
-
-
+	
+	
+	
+	
+	
 	public void processReplicateMessage(NodePointer sender, HyCubeMessage msg, int resourcesNum, BigInteger[] keys, String[] resourceDescriptorStrings, long[] refreshTimes, int[] replicationSpreadNodesNums) throws ProcessMessageException {
+		HyCubeResourceDescriptor[] resourceDescriptors = new HyCubeResourceDescriptor[resourceDescriptorStrings.length];
+		for (int i = 0; i < resourceDescriptorStrings.length; i++) {
+			resourceDescriptors[i] = new HyCubeResourceDescriptor(resourceDescriptorStrings[i]);
+		}
+		processReplicateMessage(sender, msg, resourcesNum, keys, resourceDescriptors, refreshTimes, replicationSpreadNodesNums);
+	}
+	
+	public void processReplicateMessage(NodePointer sender, HyCubeMessage msg, int resourcesNum, BigInteger[] keys, HyCubeResourceDescriptor[] resourceDescriptors, long[] refreshTimes, int[] replicationSpreadNodesNums) throws ProcessMessageException {
 		
 		if (msg.getRecipientId().equals(nodeAccessor.getNodeId())) {
 			if (!replicate) return;
 			
+			//the missing resources are fetched from the sender in one exchange (REPLICATE_FETCH), unless the get requests are expected to be routed (registered/anonymous route)
+			boolean bulkFetch = replicationBulkFetch && (! replicationGetRegisterRoute) && (! replicationGetAnonymousRoute) && (! msg.isAnonymousRoute());
+			ArrayList<Integer> fetchIndexes = null;
+			if (bulkFetch) fetchIndexes = new ArrayList<Integer>();
+			
 			for (int i = 0; i < resourcesNum; i++) {
 				
 				//check if replica, if not -> do nothing
 				if (isReplica(keys[i], this.nodeAccessor.getNodeId(), Math.min(Math.max(replicationNodesNum, replicationSpreadNodesNums[i]), maxReplicationSpreadNodesNum))) {
 					
-					HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor(resourceDescriptorStrings[i]);
+					HyCubeResourceDescriptor rd = resourceDescriptors[i];
 					
 					HyCubeResourceEntry[] localResources = getFromStorage(keys[i], this.nodeAccessor.getNodeId(), rd);
+					releaseResourceEntries(localResources);
 			
 					//check if the resource is stored locally (getFromStorage should return just one entry - only one resource may be stored for the same resource id and resource url)
 					
@@ -2489,6 +4387,11 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 						//set null as sender when storing replicated data 
 						refreshPutToStorage(keys[i], sender.getNodeId(), rd, refreshTimes[i], true);
 						
+					}
+					else if (bulkFetch) {
+						
+						fetchIndexes.add(i);
+						
 					}
 					else {
 
@@ -2533,6 +4436,23 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 					//do nothing
 				}
 			}
+			
+			if (bulkFetch && (! fetchIndexes.isEmpty())) {
+				
+				int fetchNum = fetchIndexes.size();
+				BigInteger[] fetchKeys = new BigInteger[fetchNum];
+				String[] fetchResourceDescriptorStrings = new String[fetchNum];
+				int[] fetchReplicationSpreadNodesNums = new int[fetchNum];
+				for (int i = 0; i < fetchNum; i++) {
+					fetchKeys[i] = keys[fetchIndexes.get(i)];
+					fetchResourceDescriptorStrings[i] = resourceDescriptors[fetchIndexes.get(i)].getDescriptorString();
+					fetchReplicationSpreadNodesNums[i] = replicationSpreadNodesNums[fetchIndexes.get(i)];
+				}
+				
+				sendReplicationFetch(sender, fetchKeys, fetchResourceDescriptorStrings, fetchReplicationSpreadNodesNums);
+				
+			}
+			
 		}
 		else {
 			MessageSendProcessInfo mspi = new MessageSendProcessInfo(msg);
@@ -2558,6 +4478,16 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		
 		if (checkIfResourceReplicaBeforeStoring == false) return true;
 		
+		return isReplica(key, nodeId, k, estimateDensity());
+		
+	}
+	
+	
+	/**
+	 * Estimates the density of nodes (in the neighborhood of this node) based on the distances to the neighborhood set nodes
+	 */
+	protected double estimateDensity() {
+		
 		double density = 0;
 		
 		
@@ -2648,6 +4578,18 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		routingTable.getNsLock().readLock().unlock();
 		
 		
+		return density;
+		
+	}
+	
+	
+	/**
+	 * Checks whether the node should store a replica of the resource, based on the density estimated by estimateDensity()
+	 */
+	protected boolean isReplica(BigInteger key, NodeId nodeId, int k, double density) {
+		
+		if (checkIfResourceReplicaBeforeStoring == false) return true;
+		
 		double estDistK = Math.pow(((double)k)/((double)density), ((double)1) / ((double)routingTable.getDimensions()));
 
 		HyCubeNodeId keyNodeId = (HyCubeNodeId) nodeAccessor.getNodeIdFactory().fromBigInteger(key);
@@ -2669,8 +4611,38 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 	
 	
 	
+	public HyCubeDHTGetCache getGetCache() {
+		return getCache;
+	}
+	
+	public long getGetCacheHits() {
+		return (getCache != null ? getCache.getHits() : 0);
+	}
+	
+	public long getGetCacheMisses() {
+		return (getCache != null ? getCache.getMisses() : 0);
+	}
+	
+	public HyCubeDHTPathCache getPathCache() {
+		return pathCache;
+	}
+	
+	public long getPathCacheHits() {
+		return (pathCache != null ? pathCache.getHits() : 0);
+	}
+	
+	public long getPathCacheMisses() {
+		return (pathCache != null ? pathCache.getMisses() : 0);
+	}
+	
+	
+	
 	@Override
 	public void discard() {	
+		synchronized (pendingReplicationFetches) {
+			pendingReplicationFetches.clear();
+		}
+		dhtStorageManager.discard();
 	}
 
 
@@ -2758,6 +4730,11 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		return getParameters;
 	}
 	
+	public static Object[] createGetParameters(Boolean exactGet, Boolean findClosestNode, Boolean secureRouting, Boolean skipRandomNextHops, Boolean registerRoute, Boolean anonymousRoute, Boolean allowPathCache) {
+		Object[] getParameters = new Object[] {exactGet, findClosestNode, secureRouting, skipRandomNextHops, registerRoute, anonymousRoute, allowPathCache};
+		return getParameters;
+	}
+	
 	public static boolean getGetParameterExactGet(Object[] parameters) {
 		if (parameters == null) return false;
 		if (! (parameters.length > 0) || (!(parameters[0] instanceof Boolean))) return false;
@@ -2794,6 +4771,12 @@ public class HyCubeRoutingDHTManager implements HyCubeDHTManager, HyCubeDHTManag
 		return (Boolean)parameters[5];
 	}
 	
+	public static boolean getGetParameterAllowPathCache(Object[] parameters) {
+		if (parameters == null) return false;
+		if (! (parameters.length > 6) || (!(parameters[6] instanceof Boolean))) return false;
+		return (Boolean)parameters[6];
+	}
+	
 	
 
 
@@ -2,11 +2,12 @@ package net.hycube.dht;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 
 import net.hycube.configuration.GlobalConstants;
@@ -30,6 +31,13 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 	protected static final String PROP_KEY_MAX_RESOURCES_NUM = "MaxResourcesNum";
 	protected static final String PROP_KEY_MAX_KEY_SLOT_SIZE = "MaxKeySlotSize";
 	protected static final String PROP_KEY_MAX_RESOURCE_SLOT_SIZE = "MaxResourceSlotSize";
+	protected static final String PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION = "ExpiryIndexBucketDuration";
+	protected static final String PROP_KEY_INDEX_RESOURCES = "IndexResources";
+	protected static final String PROP_KEY_INDEX_MIN_KEY_SLOT_SIZE = "IndexMinKeySlotSize";
+	protected static final String PROP_KEY_INDEXED_ATTRIBUTES = "IndexedAttributes";
+	
+	
+	public static final int DEFAULT_INDEX_MIN_KEY_SLOT_SIZE = 8;
 	
 	
 	protected static final int INITIAL_HASH_TABLE_SIZE = 10;
@@ -44,14 +52,21 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 	
 	
 	protected HashMap<BigInteger, HashMap<String, HashMap<String, HyCubeResourceEntry>>> resources;
-	protected LinkedList<HyCubeResourceEntry> resourceEntries;	//ordered by refresh time
+	protected HyCubeResourceExpiryIndex resourceEntries;	//ordered by refresh time
 	protected int resourcesNum;
+	
+	//secondary indexes of the keys storing many resources (created when the number of resource ids stored for the key reaches indexMinKeySlotSize)
+	protected HashMap<BigInteger, HyCubeResourceAttributeIndex> resourceIndexes;
 
 	
 	protected boolean storeMultipleCopies;
 	protected int maxResourcesNum;
 	protected int maxKeySlotSize;
 	protected int maxResourceSlotSize;
+	protected long expiryIndexBucketDuration;
+	protected boolean indexResources;
+	protected int indexMinKeySlotSize;
+	protected List<String> indexedAttributes;
 	
 	
 	
@@ -68,7 +83,7 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 		int initialHashTableSize = INITIAL_HASH_TABLE_SIZE;
 		this.resources = new HashMap<BigInteger, HashMap<String, HashMap<String, HyCubeResourceEntry>>>(HashMapUtils.getHashMapCapacityForElementsNum(initialHashTableSize, GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR), GlobalConstants.DEFAULT_HASH_MAP_LOAD_FACTOR);
 		
-		this.resourceEntries = new LinkedList<HyCubeResourceEntry>();
+		this.resourceIndexes = new HashMap<BigInteger, HyCubeResourceAttributeIndex>();
 		
 		this.resourcesNum = 0;
 		
@@ -82,13 +97,106 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 			
 			maxResourceSlotSize = (Integer) properties.getProperty(PROP_KEY_MAX_RESOURCE_SLOT_SIZE, MappedType.INT);
 			
+			if (properties.containsKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION)) {
+				expiryIndexBucketDuration = (Long) properties.getProperty(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION, MappedType.LONG);
+				if (expiryIndexBucketDuration <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_EXPIRY_INDEX_BUCKET_DURATION) + ".");
+			}
+			else expiryIndexBucketDuration = HyCubeResourceExpiryIndex.DEFAULT_BUCKET_DURATION;
+			
+			if (properties.containsKey(PROP_KEY_INDEX_RESOURCES)) {
+				indexResources = (Boolean) properties.getProperty(PROP_KEY_INDEX_RESOURCES, MappedType.BOOLEAN);
+			}
+			else indexResources = false;
+			
+			if (properties.containsKey(PROP_KEY_INDEX_MIN_KEY_SLOT_SIZE)) {
+				indexMinKeySlotSize = (Integer) properties.getProperty(PROP_KEY_INDEX_MIN_KEY_SLOT_SIZE, MappedType.INT);
+				if (indexMinKeySlotSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_INDEX_MIN_KEY_SLOT_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_INDEX_MIN_KEY_SLOT_SIZE) + ".");
+			}
+			else indexMinKeySlotSize = DEFAULT_INDEX_MIN_KEY_SLOT_SIZE;
+			
+			if (properties.containsKey(PROP_KEY_INDEXED_ATTRIBUTES)) {
+				indexedAttributes = properties.getStringListProperty(PROP_KEY_INDEXED_ATTRIBUTES);
+			}
+			else indexedAttributes = Collections.emptyList();
+			
 			
 		} catch (NodePropertiesConversionException e) {
 			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize the DHT storage manager instance. Invalid parameter value: " + e.getKey() + ".", e);
 		}
 		
+		this.resourceEntries = new HyCubeResourceExpiryIndex(expiryIndexBucketDuration);
+		
+		
+	}
+	
+	
+	
+	/**
+	 * Creates the entry for the resource put to the storage
+	 * @return The entry created, or null if the resource cannot be stored
+	 */
+	protected HyCubeResourceEntry createResourceEntry(BigInteger key, HyCubeResource r, long refreshTime) {
+		return new HyCubeResourceEntry(key, r, refreshTime);
+	}
+	
+	/**
+	 * Creates the entry replacing the refreshed entry (the refreshed entry is marked as deleted, but its resource is kept)
+	 */
+	protected HyCubeResourceEntry createRefreshedResourceEntry(HyCubeResourceEntry re, long refreshTime) {
+		return new HyCubeResourceEntry(re.getKey(), re.getResource(), refreshTime);
+	}
+	
+	/**
+	 * Called for the entries that are no longer stored (replaced, deleted, discarded or not stored)
+	 */
+	protected void releaseResourceEntry(HyCubeResourceEntry re) {
+		
+	}
+	
+	/**
+	 * Adds the resource stored to the secondary index of the key (creating the index if the key slot reached the size limit)
+	 */
+	protected void indexResource(BigInteger key, HashMap<String, HashMap<String, HyCubeResourceEntry>> slot, HyCubeResourceDescriptor rd) {
+		
+		if (! indexResources) return;
+		
+		HyCubeResourceAttributeIndex index = resourceIndexes.get(key);
+		if (index != null) {
+			index.add(rd);
+		}
+		else if (slot.size() >= indexMinKeySlotSize) {
+			//index all resources of the key (including the one just stored)
+			index = new HyCubeResourceAttributeIndex(indexedAttributes);
+			for (HashMap<String, HyCubeResourceEntry> resSlot : slot.values()) {
+				for (HyCubeResourceEntry re : resSlot.values()) {
+					index.add(re.getResource().getResourceDescriptor());
+				}
+			}
+			resourceIndexes.put(key, index);
+		}
+		
+	}
+	
+	/**
+	 * Removes the resource no longer stored from the secondary index of the key (the index is removed with the key slot)
+	 */
+	protected void unindexResource(BigInteger key, HyCubeResourceDescriptor rd) {
+		
+		if (! indexResources) return;
+		
+		HyCubeResourceAttributeIndex index = resourceIndexes.get(key);
+		if (index != null) {
+			index.remove(rd);
+		}
 		
 	}
+	
+	/**
+	 * Creates the entry returned by getFromStorage for the stored entry
+	 */
+	protected HyCubeResourceEntry createResultEntry(HyCubeResourceEntry re) {
+		return re;
+	}
 
 
 	@Override
@@ -132,14 +240,35 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 		}
 		
 		
-		HashMap<String, HashMap<String, HyCubeResourceEntry>> slot;
-		HashMap<String, HyCubeResourceEntry> resSlot;
-		
 		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
 		if (refreshTime > currTime) refreshTime = currTime;
 		
 		
-		HyCubeResourceEntry re = new HyCubeResourceEntry(key, r, refreshTime);
+		HyCubeResourceEntry re = createResourceEntry(key, r, refreshTime);
+		if (re == null) {
+			return false;
+		}
+		
+		if (storeResourceEntry(key, r, re)) {
+			return true;
+		}
+		else {
+			//the entry was not stored
+			releaseResourceEntry(re);
+			return false;
+		}
+		
+	}
+	
+	
+	/**
+	 * Stores the resource entry (replacing the previous entry, if exists), according to the storage rules and limits
+	 * @return true if the entry was stored
+	 */
+	protected boolean storeResourceEntry(BigInteger key, HyCubeResource r, HyCubeResourceEntry re) {
+		
+		HashMap<String, HashMap<String, HyCubeResourceEntry>> slot;
+		HashMap<String, HyCubeResourceEntry> resSlot;
 		
 		synchronized (resources) {
 			
@@ -213,7 +342,9 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 				//resourceEntries.remove(previous);
 				
 				//mark as deleted and respect that flag
-				re.setDeleted(true);
+				previous.setDeleted(true);
+				unindexResource(key, previous.getResource().getResourceDescriptor());
+				releaseResourceEntry(previous);
 				
 				resourcesNum--;
 				
@@ -227,9 +358,10 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 				
 				//save the resource
 				resSlot.put(resourceUrl, re);
+				indexResource(key, slot, r.getResourceDescriptor());
 				
-				//insert the resource to the resources linked list ordered by the refresh time
-				resourceEntries.addLast(re);
+				//insert the resource to the expiry index ordered by the refresh time
+				resourceEntries.add(re);
 				resourcesNum++;
 				
 			}
@@ -328,11 +460,11 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 				resSlot.remove(rd.getResourceUrl());
 
 				
-				//insert the resource to the resources linked list ordered by the refresh time
+				//insert the resource to the expiry index ordered by the refresh time
 
-				HyCubeResourceEntry reRefreshed = new HyCubeResourceEntry(re.getKey(), re.getResource(), refreshTime);
+				HyCubeResourceEntry reRefreshed = createRefreshedResourceEntry(re, refreshTime);
 
-				resourceEntries.addLast(reRefreshed);
+				resourceEntries.add(reRefreshed);
 				
 				resSlot.put(rd.getResourceUrl(), reRefreshed);
 				
@@ -383,12 +515,35 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 		
 			HashMap<String, HashMap<String, HyCubeResourceEntry>> slot = resources.get(key);
 			if (slot != null) {
-				for (HashMap<String, HyCubeResourceEntry> resSlot : slot.values()) {
+				
+				//the resource slots to check: the one of the resource id specified in the criteria, the ones of the candidates found in the secondary index, or all
+				Collection<String> resourceIds = null;
+				if (criteria.getResourceId() != null && (! criteria.getResourceId().isEmpty())) {
+					resourceIds = Collections.singletonList(criteria.getResourceId());
+				}
+				else {
+					HyCubeResourceAttributeIndex index = resourceIndexes.get(key);
+					if (index != null) resourceIds = index.getCandidateResourceIds(criteria);
+				}
+				
+				Collection<HashMap<String, HyCubeResourceEntry>> resSlots;
+				if (resourceIds == null) {
+					resSlots = slot.values();
+				}
+				else {
+					resSlots = new ArrayList<HashMap<String, HyCubeResourceEntry>>(resourceIds.size());
+					for (String resourceId : resourceIds) {
+						HashMap<String, HyCubeResourceEntry> resSlot = slot.get(resourceId);
+						if (resSlot != null) resSlots.add(resSlot);
+					}
+				}
+				
+				for (HashMap<String, HyCubeResourceEntry> resSlot : resSlots) {
 					for (HyCubeResourceEntry re : resSlot.values()) {
 						HyCubeResourceDescriptor rd = re.getResource().getResourceDescriptor();
 						if (rd.matches(criteria)) {
 							if (dhtManager.getResourceAccessController().checkGetAccess((HyCubeNodeId) senderNodeId, rd)) {
-								res.add(re);
+								res.add(createResultEntry(re));
 							}
 						}
 					}
@@ -462,6 +617,8 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 					
 					//set deleted and respect that flag
 					re.setDeleted(true);
+					unindexResource(key, re.getResource().getResourceDescriptor());
+					releaseResourceEntry(re);
 					
 					resSlot.remove(resourceUrl);
 					
@@ -473,6 +630,7 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 					}
 					if (slot.isEmpty()) {
 						resources.remove(re.getKey());
+						resourceIndexes.remove(re.getKey());
 					}
 				
 					return true;
@@ -490,38 +648,46 @@ public class HyCubeSimpleDHTStorageManager implements HyCubeDHTStorageManager {
 	
 	
 	public void discardOutdatedEntries(long discardTime) {
+		discardOutdatedEntries(discardTime, 0);
+	}
+	
+	public boolean discardOutdatedEntries(long discardTime, int maxEntriesNum) {
 		
 		synchronized (resources) {
-			ListIterator<HyCubeResourceEntry> iter = resourceEntries.listIterator();
-			while (iter.hasNext()) {
-				HyCubeResourceEntry re = iter.next();
-				if (re.isDeleted()) {
-					//remove the item - was marked as deleted
-					iter.remove();
+			
+			//the entries marked as deleted are removed from the index and not returned
+			List<HyCubeResourceEntry> outdated = new ArrayList<HyCubeResourceEntry>();
+			boolean completed = resourceEntries.pollOutdated(discardTime, maxEntriesNum, outdated);
+			
+			for (HyCubeResourceEntry re : outdated) {
+				
+				HashMap<String, HashMap<String, HyCubeResourceEntry>> slot;
+				HashMap<String, HyCubeResourceEntry> resSlot;
+				
+				slot = resources.get(re.getKey());
+				if (slot == null) continue;
+				resSlot = slot.get(re.getResource().getResourceDescriptor().getResourceId());
+				if (resSlot == null) continue;
+				
+				//discard (if the entry is still stored)
+				if (resSlot.get(re.getResource().getResourceDescriptor().getResourceUrl()) != re) continue;
+				resSlot.remove(re.getResource().getResourceDescriptor().getResourceUrl());
+				re.setDeleted(true);
+				unindexResource(re.getKey(), re.getResource().getResourceDescriptor());
+				releaseResourceEntry(re);
+				resourcesNum--;
+				
+				if (resSlot.isEmpty()) {
+					slot.remove(re.getResource().getResourceDescriptor().getResourceId());
 				}
-				else if (re.getRefreshTime() <= discardTime) {
-					//discard
-					iter.remove();
-					resourcesNum--;
-
-
-					HashMap<String, HashMap<String, HyCubeResourceEntry>> slot;
-					HashMap<String, HyCubeResourceEntry> resSlot;
-					
-					slot = resources.get(re.getKey());
-					resSlot = slot.get(re.getResource().getResourceDescriptor().getResourceId());
-					resSlot.remove(re.getResource().getResourceDescriptor().getResourceUrl());
-					
-					if (resSlot.isEmpty()) {
-						slot.remove(re.getResource().getResourceDescriptor().getResourceId());
-					}
-					if (slot.isEmpty()) {
-						resources.remove(re.getKey());
-					}
+				if (slot.isEmpty()) {
+					resources.remove(re.getKey());
+					resourceIndexes.remove(re.getKey());
 				}
-				else break;
 			}
 			
+			return completed;
+			
 		}
 		
 	}
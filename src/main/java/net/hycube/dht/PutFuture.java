@@ -0,0 +1,36 @@
+package net.hycube.dht;
+
+import net.hycube.common.CallbackFuture;
+
+/**
+ * Put callback completing the future with the put result. Cancelling the future removes the request from the DHT manager.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class PutFuture extends CallbackFuture<Object> implements PutCallback {
+
+	protected DHTManager dhtManager;
+	
+	
+	public PutFuture(DHTManager dhtManager) {
+		this.dhtManager = dhtManager;
+	}
+	
+	
+	@Override
+	public void putReturned(Object callbackArg, Object putResult) {
+		complete(putResult);
+		
+	}
+
+	
+	@Override
+	protected void cancelRequest() {
+		if (isRequestIdSet()) dhtManager.cancelPut(getRequestId());
+		else dhtManager.cancelPut(this);
+		
+	}
+	
+	
+}
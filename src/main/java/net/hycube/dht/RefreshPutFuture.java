@@ -0,0 +1,36 @@
+package net.hycube.dht;
+
+import net.hycube.common.CallbackFuture;
+
+/**
+ * RefreshPut callback completing the future with the refresh put result. Cancelling the future removes the request from the DHT manager.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class RefreshPutFuture extends CallbackFuture<Object> implements RefreshPutCallback {
+
+	protected DHTManager dhtManager;
+	
+	
+	public RefreshPutFuture(DHTManager dhtManager) {
+		this.dhtManager = dhtManager;
+	}
+	
+	
+	@Override
+	public void refreshPutReturned(Object callbackArg, Object refreshPutResult) {
+		complete(refreshPutResult);
+		
+	}
+
+	
+	@Override
+	protected void cancelRequest() {
+		if (isRequestIdSet()) dhtManager.cancelRefreshPut(getRequestId());
+		else dhtManager.cancelRefreshPut(this);
+		
+	}
+	
+	
+}
@@ -12,14 +12,20 @@ public class DirectEnvironment extends Environment {
 	
 	
 	public static final String PROP_KEY_SCHEDULER_THREAD_POOL_SIZE = "SchedulerThreadPoolSize";
+	public static final String PROP_KEY_TIME_PROVIDER = "TimeProvider";
+	public static final String PROP_KEY_TIMING_WHEEL_TICK_DURATION = "TimingWheelTickDuration";
+	public static final String PROP_KEY_TIMING_WHEEL_SIZE = "TimingWheelSize";
 	
 	public static final boolean TRIM_PROP_VALUES = true;
 	
 	
 	public static final int DEFAULT_SCHEDULER_THREAD_POOL_SIZE = 1;
+	public static final TimeProviderType DEFAULT_TIME_PROVIDER = TimeProviderType.SYSTEM;
+	public static final int DEFAULT_TIMING_WHEEL_TICK_DURATION = (int) TimingWheelTimeProvider.DEFAULT_TICK_DURATION;
+	public static final int DEFAULT_TIMING_WHEEL_SIZE = TimingWheelTimeProvider.DEFAULT_WHEEL_SIZE;
 	
 	
-	protected SystemTimeProvider timeProvider;
+	protected TimeProvider timeProvider;
 	protected TimeProviderEventScheduler eventScheduler;
 	protected NodeProperties nodeProperties;
 	
@@ -53,6 +59,9 @@ public class DirectEnvironment extends Environment {
 
 		
 		int schedulerThreadPoolSize = DEFAULT_SCHEDULER_THREAD_POOL_SIZE;
+		TimeProviderType timeProviderType = DEFAULT_TIME_PROVIDER;
+		int timingWheelTickDuration = DEFAULT_TIMING_WHEEL_TICK_DURATION;
+		int timingWheelSize = DEFAULT_TIMING_WHEEL_SIZE;
 				
 
 		//read the properties for the environment itseld:
@@ -67,6 +76,21 @@ public class DirectEnvironment extends Environment {
 			if (environmentProperties.containsKey(PROP_KEY_SCHEDULER_THREAD_POOL_SIZE)) {
 				schedulerThreadPoolSize = (Integer) environmentProperties.getProperty(PROP_KEY_SCHEDULER_THREAD_POOL_SIZE, MappedType.INT);
 			}
+			
+			if (environmentProperties.containsKey(PROP_KEY_TIME_PROVIDER)) {
+				timeProviderType = (TimeProviderType) environmentProperties.getEnumProperty(PROP_KEY_TIME_PROVIDER, TimeProviderType.class);
+				if (timeProviderType == null) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, environmentProperties.getAbsoluteKey(PROP_KEY_TIME_PROVIDER), "Invalid parameter value: " + environmentProperties.getAbsoluteKey(PROP_KEY_TIME_PROVIDER) + ".");
+			}
+			
+			if (environmentProperties.containsKey(PROP_KEY_TIMING_WHEEL_TICK_DURATION)) {
+				timingWheelTickDuration = (Integer) environmentProperties.getProperty(PROP_KEY_TIMING_WHEEL_TICK_DURATION, MappedType.INT);
+				if (timingWheelTickDuration <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, environmentProperties.getAbsoluteKey(PROP_KEY_TIMING_WHEEL_TICK_DURATION), "Invalid parameter value: " + environmentProperties.getAbsoluteKey(PROP_KEY_TIMING_WHEEL_TICK_DURATION) + ".");
+			}
+			
+			if (environmentProperties.containsKey(PROP_KEY_TIMING_WHEEL_SIZE)) {
+				timingWheelSize = (Integer) environmentProperties.getProperty(PROP_KEY_TIMING_WHEEL_SIZE, MappedType.INT);
+				if (timingWheelSize <= 0 || timingWheelSize > (1 << 30)) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, environmentProperties.getAbsoluteKey(PROP_KEY_TIMING_WHEEL_SIZE), "Invalid parameter value: " + environmentProperties.getAbsoluteKey(PROP_KEY_TIMING_WHEEL_SIZE) + ".");
+			}
 				
 		} catch (NodePropertiesConversionException e) {
 			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize DirectEnvironment instance. Invalid parameter value: " + e.getKey() + ".", e);
@@ -76,7 +100,15 @@ public class DirectEnvironment extends Environment {
 			
 
 		
-		directEnvironment.timeProvider = new SystemTimeProvider(schedulerThreadPoolSize);
+		switch (timeProviderType) {
+			case TIMING_WHEEL:
+				directEnvironment.timeProvider = new TimingWheelTimeProvider(timingWheelTickDuration, timingWheelSize);
+				break;
+			case SYSTEM:
+			default:
+				directEnvironment.timeProvider = new SystemTimeProvider(schedulerThreadPoolSize);
+				break;
+		}
 		directEnvironment.eventScheduler = new TimeProviderEventScheduler(directEnvironment.timeProvider);
 
 		
@@ -0,0 +1,14 @@
+package net.hycube.environment;
+
+/**
+ * Time provider implementations that may be used by the environment.
+ * SYSTEM - SystemTimeProvider, the tasks are scheduled in a ScheduledThreadPoolExecutor.
+ * TIMING_WHEEL - TimingWheelTimeProvider, the tasks are scheduled in a hashed timing wheel (constant-time, lock-free scheduling).
+ *
+ * @author Artur Olszak
+ *
+ */
+public enum TimeProviderType {
+	SYSTEM,
+	TIMING_WHEEL,
+}
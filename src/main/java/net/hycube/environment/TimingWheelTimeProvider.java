@@ -0,0 +1,374 @@
+package net.hycube.environment;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.hycube.eventprocessing.Event;
+import net.hycube.eventprocessing.ScheduledEvent;
+import net.hycube.logging.LogHelper;
+
+/**
+ * Time provider scheduling the tasks in a hashed timing wheel.
+ * Scheduling a task is a constant-time, lock-free operation (the task is pushed to a stack of pending tasks, which is transferred to the wheel by the worker thread).
+ * The wheel is advanced every tickDuration ms by a single worker thread. Expired tasks are executed by the worker thread - expired scheduled events (ScheduledEvent)
+ * are inserted to their event queues in batches (one addAll call per queue per tick). The tasks are never executed before their execution time, and may be delayed by up to one tick.
+ * Tasks scheduled for more than one wheel revolution remain in their wheel bucket until their deadline tick is reached.
+ * Other (non-event) tasks are executed directly by the worker thread and should not block.
+ * Tasks scheduled with scheduleWithDelayCancellable may be cancelled in constant time (the cancelled entries are removed from the wheel when their bucket is expired).
+ *
+ * @author Artur Olszak
+ *
+ */
+public class TimingWheelTimeProvider implements TimeProvider {
+
+	private static org.apache.commons.logging.Log devLog = LogHelper.getDevLog(TimingWheelTimeProvider.class);
+
+
+	public static final long DEFAULT_TICK_DURATION = 10;
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	public static final String WORKER_THREAD_NAME = "hycube-timing-wheel";
+
+
+	/**
+	 * Handle of a task scheduled with scheduleWithDelayCancellable
+	 */
+	public interface Timeout {
+
+		public ScheduledTask getTask();
+
+		/**
+		 * Cancels the task. Returns true if the task was cancelled (it will not be executed), or false if it was already expired (executed or being executed) or cancelled
+		 * @return
+		 */
+		public boolean cancel();
+
+		public boolean isCancelled();
+
+	}
+
+
+	protected static final class WheelEntry implements Timeout {
+
+		protected final ScheduledTask task;
+		protected final long deadlineTick;
+		protected WheelEntry next;
+
+		//set when the entry is expired or cancelled (whichever happens first):
+		protected final AtomicBoolean done;
+		protected volatile boolean cancelled;
+
+		protected WheelEntry(ScheduledTask task, long deadlineTick) {
+			this.task = task;
+			this.deadlineTick = deadlineTick;
+			this.done = new AtomicBoolean(false);
+		}
+
+		@Override
+		public ScheduledTask getTask() {
+			return task;
+		}
+
+		@Override
+		public boolean cancel() {
+			if (done.compareAndSet(false, true)) {
+				cancelled = true;
+				return true;
+			}
+			else return false;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		//called by the worker thread - returns true if the task should be executed (it was not cancelled)
+		protected boolean expire() {
+			return done.compareAndSet(false, true);
+		}
+
+	}
+
+
+	protected final long tickDurationNanos;
+	protected final int wheelMask;
+	protected final WheelEntry[] wheel;
+	protected final WheelEntry[] wheelTails;
+	protected final long startTimeNanos;
+
+	//stack of the scheduled tasks not yet transferred to the wheel:
+	protected final AtomicReference<WheelEntry> pendingEntries;
+
+	protected final Thread workerThread;
+	protected volatile boolean discarded;
+
+	//accessed only by the worker thread:
+	protected long tick;
+	protected final Map<Queue<Event>, ArrayList<Event>> expiredEventsByQueue;
+
+
+
+	public TimingWheelTimeProvider() {
+		this(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * @param tickDuration The duration of one tick of the wheel (ms)
+	 * @param wheelSize The number of buckets of the wheel (rounded up to a power of 2)
+	 */
+	public TimingWheelTimeProvider(long tickDuration, int wheelSize) {
+		if (tickDuration <= 0) throw new IllegalArgumentException("The tick duration should be a positive number.");
+		if (wheelSize <= 0 || wheelSize > (1 << 30)) throw new IllegalArgumentException("The wheel size should be a positive number, not greater than 2^30.");
+
+		int size = (wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1);
+
+		this.tickDurationNanos = tickDuration * 1000000L;
+		this.wheelMask = size - 1;
+		this.wheel = new WheelEntry[size];
+		this.wheelTails = new WheelEntry[size];
+		this.pendingEntries = new AtomicReference<WheelEntry>();
+		this.expiredEventsByQueue = new IdentityHashMap<Queue<Event>, ArrayList<Event>>();
+
+		this.discarded = false;
+		this.tick = 0;
+		this.startTimeNanos = System.nanoTime();
+
+		this.workerThread = new Thread(new Runnable() {
+				public void run() {
+					processWheel();
+				}
+			}, WORKER_THREAD_NAME);
+		this.workerThread.start();
+
+	}
+
+
+	public boolean isDiscarded() {
+		return discarded;
+	}
+
+	public long getTickDuration() {
+		return tickDurationNanos / 1000000L;
+	}
+
+	public int getWheelSize() {
+		return wheel.length;
+	}
+
+
+	@Override
+	public long getCurrentTime() {
+
+		return System.currentTimeMillis();
+
+	}
+
+	@Override
+	public void schedule(ScheduledTask scheduledTask) {
+		schedule(scheduledTask, scheduledTask.getExecutionTime());
+
+	}
+
+	@Override
+	public void schedule(ScheduledTask scheduledTask, long executionTime) {
+
+		long currTime = System.currentTimeMillis();
+		long delay = executionTime - currTime;
+		if (delay < 0) delay = 0;
+
+		scheduleWithDelay(scheduledTask, delay);
+
+	}
+
+
+	@Override
+	public void scheduleWithDelay(ScheduledTask scheduledTask, long delay) {
+		scheduleWithDelayCancellable(scheduledTask, delay);
+
+	}
+
+
+	/**
+	 * Schedules the task to be executed after the delay (ms), and returns the handle that may be used to cancel the task
+	 */
+	public Timeout scheduleWithDelayCancellable(ScheduledTask scheduledTask, long delay) {
+		if (scheduledTask == null) throw new NullPointerException();
+		if (discarded) throw new RejectedExecutionException("The time provider has been discarded.");
+		if (delay < 0) delay = 0;
+
+		//the deadline is rounded up to the next tick, so that the task is never executed before the execution time
+		long deadlineNanos = System.nanoTime() - startTimeNanos + delay * 1000000L;
+		long deadlineTick = (deadlineNanos + tickDurationNanos - 1) / tickDurationNanos;
+
+		WheelEntry entry = new WheelEntry(scheduledTask, deadlineTick);
+		WheelEntry head;
+		do {
+			head = pendingEntries.get();
+			entry.next = head;
+		} while (! pendingEntries.compareAndSet(head, entry));
+
+		return entry;
+
+	}
+
+
+	@Override
+	public void discard() {
+		discarded = true;
+		workerThread.interrupt();
+
+	}
+
+
+
+	protected void processWheel() {
+
+		ArrayList<ScheduledTask> expiredTasks = new ArrayList<ScheduledTask>();
+
+		while (! discarded) {
+
+			//wait for the tick:
+			long sleepTimeNanos = startTimeNanos + tick * tickDurationNanos - System.nanoTime();
+			if (sleepTimeNanos > 0) {
+				try {
+					Thread.sleep(sleepTimeNanos / 1000000L, (int) (sleepTimeNanos % 1000000L));
+				} catch (InterruptedException e) {
+					//discarded, or spurious interrupt - check the discarded flag
+				}
+				continue;
+			}
+
+			//the bucket is expired first - its entries were scheduled before the pending ones (which keeps the tasks with equal deadlines in the order in which they were scheduled)
+			expireBucket(expiredTasks);
+
+			transferPendingEntries(expiredTasks);
+
+			runExpiredTasks(expiredTasks);
+			expiredTasks.clear();
+
+			tick++;
+
+		}
+
+	}
+
+
+	protected void transferPendingEntries(ArrayList<ScheduledTask> expiredTasks) {
+
+		WheelEntry entry = pendingEntries.getAndSet(null);
+
+		//reverse the stack, so that the tasks with equal deadlines are executed in the order in which they were scheduled
+		WheelEntry reversed = null;
+		while (entry != null) {
+			WheelEntry next = entry.next;
+			entry.next = reversed;
+			reversed = entry;
+			entry = next;
+		}
+
+		entry = reversed;
+		while (entry != null) {
+			WheelEntry next = entry.next;
+			if (entry.cancelled) {
+				//dropped
+			}
+			else if (entry.deadlineTick <= tick) {
+				if (entry.expire()) expiredTasks.add(entry.task);
+			}
+			else {
+				//append to the bucket:
+				int index = (int) (entry.deadlineTick & wheelMask);
+				entry.next = null;
+				if (wheelTails[index] == null) wheel[index] = entry;
+				else wheelTails[index].next = entry;
+				wheelTails[index] = entry;
+			}
+			entry = next;
+		}
+
+	}
+
+
+	protected void expireBucket(ArrayList<ScheduledTask> expiredTasks) {
+
+		int index = (int) (tick & wheelMask);
+
+		WheelEntry remaining = null;
+		WheelEntry remainingLast = null;
+
+		WheelEntry entry = wheel[index];
+		while (entry != null) {
+			WheelEntry next = entry.next;
+			if (entry.cancelled) {
+				//dropped
+			}
+			else if (entry.deadlineTick <= tick) {
+				if (entry.expire()) expiredTasks.add(entry.task);
+			}
+			else {
+				//later wheel revolution
+				entry.next = null;
+				if (remainingLast == null) remaining = entry;
+				else remainingLast.next = entry;
+				remainingLast = entry;
+			}
+			entry = next;
+		}
+
+		wheel[index] = remaining;
+		wheelTails[index] = remainingLast;
+
+	}
+
+
+	protected void runExpiredTasks(ArrayList<ScheduledTask> expiredTasks) {
+
+		if (expiredTasks.isEmpty()) return;
+
+		//group the scheduled events by the queues (ScheduledEvent.run() only inserts the event to the queue), and run other tasks directly:
+		for (ScheduledTask task : expiredTasks) {
+			if (task.getClass() == ScheduledEvent.class && ((ScheduledEvent) task).getQueue() != null) {
+				ScheduledEvent scheduledEvent = (ScheduledEvent) task;
+				ArrayList<Event> events = expiredEventsByQueue.get(scheduledEvent.getQueue());
+				if (events == null) {
+					events = new ArrayList<Event>();
+					expiredEventsByQueue.put(scheduledEvent.getQueue(), events);
+				}
+				events.add(scheduledEvent.getEvent());
+			}
+			else {
+				try {
+					task.run();
+				}
+				catch (RuntimeException e) {
+					if (devLog.isWarnEnabled()) {
+						devLog.warn("An exception was thrown while executing a scheduled task.", e);
+					}
+				}
+			}
+		}
+
+		//insert the events to the queues:
+		for (Map.Entry<Queue<Event>, ArrayList<Event>> queueEvents : expiredEventsByQueue.entrySet()) {
+			try {
+				if (queueEvents.getValue().size() == 1) queueEvents.getKey().add(queueEvents.getValue().get(0));
+				else queueEvents.getKey().addAll(queueEvents.getValue());
+			}
+			catch (RuntimeException e) {
+				if (devLog.isWarnEnabled()) {
+					devLog.warn("An exception was thrown while inserting scheduled events to an event queue.", e);
+				}
+			}
+		}
+		expiredEventsByQueue.clear();
+
+	}
+
+
+}
@@ -0,0 +1,123 @@
+package net.hycube.eventprocessing;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.hycube.logging.LogHelper;
+
+/**
+ * Creates the executors processing the event queues, as specified by ThreadPoolInfo objects.
+ * Virtual threads are created through reflection (Thread.ofVirtual(), Executors.newThreadPerTaskExecutor()), so that the library may still be compiled for and run on older JVMs.
+ * If virtual threads are not supported by the JVM, platform threads are used instead.
+ *
+ * @author Artur Olszak
+ *
+ */
+public final class EventProcessingExecutors {
+
+	private static org.apache.commons.logging.Log userLog = LogHelper.getUserLog();
+	private static org.apache.commons.logging.Log devLog = LogHelper.getDevLog(EventProcessingExecutors.class);
+
+	public static final String VIRTUAL_THREAD_NAME_PREFIX = "hycube-event-";
+
+
+	private static final Method VIRTUAL_THREAD_PER_TASK_EXECUTOR_METHOD;
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY;
+
+	static {
+		Method executorMethod = null;
+		ThreadFactory threadFactory = null;
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, VIRTUAL_THREAD_NAME_PREFIX, 0L);
+			threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			executorMethod = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+		}
+		catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException | InvocationTargetException | RuntimeException e) {
+			//not supported by the JVM (or a preview feature not enabled)
+			executorMethod = null;
+			threadFactory = null;
+		}
+		VIRTUAL_THREAD_PER_TASK_EXECUTOR_METHOD = executorMethod;
+		VIRTUAL_THREAD_FACTORY = threadFactory;
+	}
+
+
+	private EventProcessingExecutors() {
+	}
+
+
+	/**
+	 * Indicates whether virtual threads are supported by the JVM
+	 * @return
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+
+	/**
+	 * Creates the executor for the given thread pool info.
+	 * For platform threads, a fixed-size thread pool is created.
+	 * For virtual threads, a fixed-size pool of virtual threads is created, or, if the pool size is 0, every task is executed by a new virtual thread (no limit on the number of concurrently processed events).
+	 * The pool size 0 is rejected (EventQueueProcessorRuntimeException) if virtual threads are not requested or not supported by the JVM.
+	 * A pool size equal to 1 preserves the order of processing the events of the queue
+	 * @param threadPoolInfo
+	 * @return
+	 */
+	public static ExecutorService createExecutor(ThreadPoolInfo threadPoolInfo) {
+
+		int poolSize = threadPoolInfo.getPoolSize();
+		long keepAliveTimeSec = threadPoolInfo.getKeepAliveTimeSec();
+
+		ThreadFactory threadFactory = null;
+
+		if (threadPoolInfo.getVirtualThreads()) {
+			if (isVirtualThreadsSupported()) {
+				threadFactory = VIRTUAL_THREAD_FACTORY;
+				if (poolSize == 0) {
+					try {
+						return (ExecutorService) VIRTUAL_THREAD_PER_TASK_EXECUTOR_METHOD.invoke(null, threadFactory);
+					} catch (IllegalAccessException | InvocationTargetException e) {
+						throw new EventQueueProcessorRuntimeException("Could not create the virtual thread per task executor.", e);
+					}
+				}
+			}
+			else {
+				if (devLog.isWarnEnabled()) {
+					devLog.warn("Virtual threads are not supported by the JVM. The events will be processed by platform threads.");
+				}
+				if (userLog.isWarnEnabled()) {
+					userLog.warn("Virtual threads are not supported by the JVM. The events will be processed by platform threads.");
+				}
+			}
+		}
+
+		if (poolSize <= 0) {
+			//an unlimited number of platform threads is not allowed (rejected by the node services when the configuration is read):
+			throw new EventQueueProcessorRuntimeException("Invalid pool size: " + poolSize + ". An unlimited pool size is only supported for virtual threads.");
+		}
+
+		ThreadPoolExecutor tpe;
+		if (threadFactory != null) {
+			tpe = new ThreadPoolExecutor(poolSize, poolSize, keepAliveTimeSec, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+		}
+		else {
+			tpe = new ThreadPoolExecutor(poolSize, poolSize, keepAliveTimeSec, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		}
+		if (keepAliveTimeSec > 0) {
+			tpe.allowCoreThreadTimeOut(true);
+		}
+		return tpe;
+
+	}
+
+
+}
@@ -0,0 +1,53 @@
+package net.hycube.eventprocessing;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Creates event queues of the types specified for the node service queues (EventQueueType).
+ *
+ * @author Artur Olszak
+ *
+ */
+public final class EventQueueFactory {
+
+	private EventQueueFactory() {
+	}
+
+
+	/**
+	 * Creates a (non-notifying) event queue of the given type
+	 * @param queueType The queue type (LINKED if null)
+	 * @param capacity The capacity of the queue. Ignored for LINKED queues (unbounded)
+	 * @return
+	 */
+	public static <T> BlockingQueue<T> createQueue(EventQueueType queueType, int capacity) {
+		if (queueType == EventQueueType.LOCK_FREE_ARRAY) {
+			//the notifying queue without any listeners - insertions do not notify anything
+			return new NotifyingLockFreeArrayBlockingQueue<T>(capacity);
+		}
+		else {
+			return new LinkedBlockingQueue<T>();
+		}
+	}
+
+
+	/**
+	 * Creates a notifying event queue of the given type
+	 * @param queueType The queue type (LINKED if null)
+	 * @param capacity The capacity of the queue. Ignored for LINKED queues (unbounded)
+	 * @param insertNotifyLock The lock acquired when inserting elements and notifying the listeners (may be null)
+	 * @return
+	 */
+	public static <T> NotifyingBlockingQueue<T> createNotifyingQueue(EventQueueType queueType, int capacity, Lock insertNotifyLock) {
+		if (queueType == EventQueueType.LOCK_FREE_ARRAY) {
+			return new NotifyingLockFreeArrayBlockingQueue<T>(capacity, insertNotifyLock);
+		}
+		else {
+			return new NotifyingLinkedBlockingQueue<T>(insertNotifyLock);
+		}
+	}
+
+
+}
@@ -5,11 +5,19 @@ public class EventQueueProcessingInfo {
 	protected ThreadPoolInfo threadPoolInfo;
 	protected EventType[] eventTypes;
 	protected boolean wakeable;
+	protected EventQueueType queueType;
+	protected int queueCapacity;
 
 	public EventQueueProcessingInfo(ThreadPoolInfo threadPoolInfo, EventType[] eventTypes, boolean wakeable) {
+		this(threadPoolInfo, eventTypes, wakeable, EventQueueType.LINKED, 0);
+	}
+	
+	public EventQueueProcessingInfo(ThreadPoolInfo threadPoolInfo, EventType[] eventTypes, boolean wakeable, EventQueueType queueType, int queueCapacity) {
 		this.threadPoolInfo = threadPoolInfo;
 		this.eventTypes = eventTypes;
 		this.wakeable = wakeable;
+		this.queueType = queueType;
+		this.queueCapacity = queueCapacity;
 	}
 	
 	public ThreadPoolInfo getThreadPoolInfo() {
@@ -36,4 +44,20 @@ public class EventQueueProcessingInfo {
 		this.wakeable = wakeable;
 	}
 	
+	public EventQueueType getQueueType() {
+		return queueType;
+	}
+	
+	public void setQueueType(EventQueueType queueType) {
+		this.queueType = queueType;
+	}
+	
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+	
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+	
 }
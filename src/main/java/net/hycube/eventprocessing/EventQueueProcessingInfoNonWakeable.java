@@ -5,10 +5,18 @@ public class EventQueueProcessingInfoNonWakeable {
 	protected ThreadPoolInfo threadPoolInfo;
 	protected EventType[] eventTypes;
 	protected boolean wakeable;
+	protected EventQueueType queueType;
+	protected int queueCapacity;
 
 	public EventQueueProcessingInfoNonWakeable(ThreadPoolInfo threadPoolInfo, EventType[] eventTypes) {
+		this(threadPoolInfo, eventTypes, EventQueueType.LINKED, 0);
+	}
+	
+	public EventQueueProcessingInfoNonWakeable(ThreadPoolInfo threadPoolInfo, EventType[] eventTypes, EventQueueType queueType, int queueCapacity) {
 		this.threadPoolInfo = threadPoolInfo;
 		this.eventTypes = eventTypes;
+		this.queueType = queueType;
+		this.queueCapacity = queueCapacity;
 	}
 	
 	public ThreadPoolInfo getThreadPoolInfo() {
@@ -28,4 +36,20 @@ public class EventQueueProcessingInfoNonWakeable {
 		this.eventTypes = eventTypes;
 	}
 	
+	public EventQueueType getQueueType() {
+		return queueType;
+	}
+	
+	public void setQueueType(EventQueueType queueType) {
+		this.queueType = queueType;
+	}
+	
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+	
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+	
 }
\ No newline at end of file
@@ -9,9 +9,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -48,6 +46,7 @@ public class EventQueueSchedulerProcessor implements EventScheduler, EventQueueP
 		protected HashMap<Wakeable, Integer> nonWakeablesAfter;
 		protected Lock lock;
 		protected int availableProcessingResources;
+		protected boolean unlimitedProcessingResources;
 		
 		protected LinkedList<ScheduledEvent> scheduledEvents;
 		protected LinkedList<Thread> threadsSleepingSorted;
@@ -76,6 +75,9 @@ public class EventQueueSchedulerProcessor implements EventScheduler, EventQueueP
 			this.nonWakeablesAfter = new HashMap<Wakeable, Integer>();
 			this.availableProcessingResources = availableProcessingResources;
 			
+			//0 available processing resources - no limit on the number of threads processing the events (virtual threads)
+			this.unlimitedProcessingResources = (availableProcessingResources == 0);
+			
 			this.lock = new ReentrantLock(true);
 			
 			scheduledEvents = new LinkedList<ScheduledEvent>();
@@ -313,6 +315,11 @@ public class EventQueueSchedulerProcessor implements EventScheduler, EventQueueP
 				devLog.debug("Wakeup called.");
 			}
 			
+			if (unlimitedProcessingResources) {
+				//a new thread is always available to process the events, so the wakeables never have to be woken up to release the threads
+				return;
+			}
+			
 			lock.lock();
 			try {
 				if (!wakeables.isEmpty()) {
@@ -396,6 +403,16 @@ public class EventQueueSchedulerProcessor implements EventScheduler, EventQueueP
 				
 				boolean maxTime = false;
 				
+				if (unlimitedProcessingResources) {
+					//the events are not waiting for the processing threads, but this is the only thread waiting on the queue -> wake up at the first scheduled event execution time
+					if (schedIter.hasNext()) {
+						wakeupTime = schedIter.next().getExecutionTime();
+					}
+					else {
+						maxTime = true;
+					}
+				}
+				
 				for (int i = 1; i <= availableProcessingResources; i++) {
 					
 					if (!schedIter.hasNext()) {
@@ -692,6 +709,9 @@ public class EventQueueSchedulerProcessor implements EventScheduler, EventQueueP
 			if (eventQueuesProcessingInfo[i].getThreadPoolInfo().getPoolSize() < 0) {
 				throw new IllegalArgumentException("threadPoolInfos[" + i + "].poolSize is less than 0.");
 			}
+			if (eventQueuesProcessingInfo[i].getThreadPoolInfo().getPoolSize() == 0 && (! eventQueuesProcessingInfo[i].getThreadPoolInfo().getVirtualThreads())) {
+				throw new IllegalArgumentException("threadPoolInfos[" + i + "].poolSize is 0. An unlimited pool size is allowed only for virtual threads.");
+			}
 			if (eventQueuesProcessingInfo[i].getThreadPoolInfo().getKeepAliveTimeSec() < 0) {
 				throw new IllegalArgumentException("threadPoolInfos[" + i + "].keepAliveTimeSec is less than 0."); 
 			}
@@ -752,7 +772,7 @@ public class EventQueueSchedulerProcessor implements EventScheduler, EventQueueP
 	}
 	
 	
-	public WakeableManager getWakeableManagerByQueue(LinkedBlockingQueue<Event> queue) {
+	public WakeableManager getWakeableManagerByQueue(BlockingQueue<Event> queue) {
 		if (initialized) return queueProcessorRunnablesByQueue.get(queue);
 		else return null;
 	}
@@ -797,11 +817,8 @@ public class EventQueueSchedulerProcessor implements EventScheduler, EventQueueP
 		this.threadPools = new ExecutorService[queues.length];
 		this.futures = new Future[queues.length][];
 		for (int i = 0; i < queues.length; i++) {
-			ThreadPoolExecutor tpe = new ThreadPoolExecutor(threadPoolInfos[i].getPoolSize(), threadPoolInfos[i].getPoolSize(), threadPoolInfos[i].getKeepAliveTimeSec(), TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
-			if (threadPoolInfos[i].getKeepAliveTimeSec() > 0) {
-				tpe.allowCoreThreadTimeOut(true);
-			}
-			this.threadPools[i] = tpe;
+			//platform or virtual threads, depending on the thread pool info:
+			this.threadPools[i] = EventProcessingExecutors.createExecutor(threadPoolInfos[i]);
 			
 			//for (int j = 0; j < threadPoolInfos[i].getPoolSize(); j++) {
 				this.threadPools[i].submit(queueProcessorRunnables[i]);
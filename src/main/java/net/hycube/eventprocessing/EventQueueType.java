@@ -0,0 +1,16 @@
+package net.hycube.eventprocessing;
+
+/**
+ * Event queue implementations that may be used by the node services.
+ * LINKED - unbounded linked queue (LinkedBlockingQueue / NotifyingLinkedBlockingQueue), every insertion allocates a node and takes a lock.
+ * LOCK_FREE_ARRAY - bounded, array-backed lock-free queue (NotifyingLockFreeArrayBlockingQueue), insertions and removals do not allocate and do not block (unless the queue is full/empty and the caller waits).
+ * When a LOCK_FREE_ARRAY queue is full, the received and pushed messages are dropped (offer), and the other events are appended to the overflow list of the queue (put/add), so that they are not lost.
+ * The capacity of the LINKED queues is not limited (QueueCapacity should be 0).
+ *
+ * @author Artur Olszak
+ *
+ */
+public enum EventQueueType {
+	LINKED,
+	LOCK_FREE_ARRAY,
+}
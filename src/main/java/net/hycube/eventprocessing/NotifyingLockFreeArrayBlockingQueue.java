@@ -0,0 +1,677 @@
+package net.hycube.eventprocessing;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, array-backed, lock-free multi-producer multi-consumer notifying blocking queue.
+ * Every slot of the ring buffer has a sequence number telling whether the slot may be written (for the given enqueue position) or read (for the given dequeue position),
+ * and producers and consumers claim positions with CAS operations, so inserting and removing elements does not allocate any objects and does not take any locks.
+ * The lock (and the conditions) are used only by threads waiting for the queue to become non-empty (take, poll with timeout) or non-full (offer with timeout),
+ * and a waiting thread is signaled only if any thread is actually waiting.
+ * The capacity is rounded up to the nearest power of 2 (not less than 2).
+ * Back-pressure: offer() returns false (and offer with timeout waits) when the queue is full, so the producers that may drop the elements (received and pushed messages) should use offer() and drop (log) the elements not accepted.
+ * put(), add() and addAll() never fail and never wait - when the queue is full, the elements are appended to an unbounded overflow list (taken by the consumers after the elements in the ring buffer),
+ * so that the events that must not be lost (timeouts, callbacks, message receiver events) are accepted, and the processing threads inserting events to their own queue (or to the queue of the thread waiting for them) are never blocked.
+ * While the overflow list is not empty, all inserted elements are appended to it (and offer() fails), so that the order of insertion is preserved.
+ * remove(Object) marks the element in the ring buffer as removed (the slot is released when a consumer reaches it), and the iterator returns a weakly consistent snapshot of the queue (not supporting remove()).
+ *
+ * @author Artur Olszak
+ *
+ */
+public class NotifyingLockFreeArrayBlockingQueue<T> extends AbstractQueue<T> implements NotifyingBlockingQueue<T> {
+
+	public static final int MAX_CAPACITY = 1 << 30;
+
+
+	protected final int capacity;
+	protected final int mask;
+	protected final AtomicReferenceArray<Object> elements;
+	protected final AtomicLongArray sequences;
+
+	//marks the elements removed with remove(Object) (skipped by the consumers):
+	protected static final Object REMOVED = new Object();
+
+	//elements added when the ring buffer was full:
+	protected final ConcurrentLinkedQueue<T> overflow;
+	protected final AtomicInteger overflowSize;
+
+	//next enqueue and dequeue positions:
+	protected final AtomicLong tail;
+	protected final AtomicLong head;
+
+	//used only by the threads waiting for elements/free space:
+	protected final ReentrantLock waitLock;
+	protected final Condition notEmpty;
+	protected final Condition notFull;
+	protected final AtomicInteger waitingConsumers;
+	protected final AtomicInteger waitingProducers;
+
+	protected final Object listenersLock = new Object();
+	protected volatile NotifyingQueueListener<T>[] listeners;
+	protected Lock insertNotifyLock;
+
+
+	public NotifyingLockFreeArrayBlockingQueue(int capacity) {
+		this(capacity, (Lock)null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public NotifyingLockFreeArrayBlockingQueue(int capacity, Lock insertNotifyLock) {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) throw new IllegalArgumentException("The capacity should be a positive number not greater than " + MAX_CAPACITY + ".");
+
+		//at least 2 slots - with one slot, the sequence of a written slot would be equal to the sequence of a free slot for the next position:
+		this.capacity = (capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1);
+		this.mask = this.capacity - 1;
+		this.elements = new AtomicReferenceArray<Object>(this.capacity);
+		this.sequences = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; i++) {
+			sequences.set(i, i);
+		}
+
+		this.tail = new AtomicLong(0);
+		this.head = new AtomicLong(0);
+
+		this.overflow = new ConcurrentLinkedQueue<T>();
+		this.overflowSize = new AtomicInteger(0);
+
+		this.waitLock = new ReentrantLock();
+		this.notEmpty = waitLock.newCondition();
+		this.notFull = waitLock.newCondition();
+		this.waitingConsumers = new AtomicInteger(0);
+		this.waitingProducers = new AtomicInteger(0);
+
+		this.listeners = (NotifyingQueueListener<T>[]) new NotifyingQueueListener<?>[0];
+		this.insertNotifyLock = insertNotifyLock;
+
+	}
+
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+
+
+
+	//Lock-free insertion and removal:
+
+	/**
+	 * Inserts the element to the queue if there is free space, without waiting and without notifying the listeners
+	 * @param e
+	 * @return true if the element was inserted, false if the queue is full
+	 */
+	protected boolean enqueue(T e) {
+		if (e == null) throw new NullPointerException();
+		long pos = tail.get();
+		for (;;) {
+			int index = (int) pos & mask;
+			long dif = sequences.get(index) - pos;
+			if (dif == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					elements.set(index, e);
+					//volatile write - also orders the write before reading the number of waiting consumers:
+					sequences.set(index, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			}
+			else if (dif < 0) {
+				//the slot still holds an element inserted capacity positions earlier -> full
+				return false;
+			}
+			else pos = tail.get();
+		}
+	}
+
+	/**
+	 * Inserts the element to the ring buffer if there is free space and the overflow list is empty, or appends it to the overflow list.
+	 * Never fails and never waits, does not notify the listeners
+	 */
+	protected void enqueueOrOverflow(T e) {
+		if (e == null) throw new NullPointerException();
+		if (overflowSize.get() == 0 && enqueue(e)) return;
+		overflowSize.incrementAndGet();
+		overflow.add(e);
+	}
+
+	/**
+	 * Removes the head of the ring buffer (skipping the elements marked as removed), without waiting
+	 * @return the removed element, or null if the ring buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	protected T dequeueFromRing() {
+		long pos = head.get();
+		for (;;) {
+			int index = (int) pos & mask;
+			long dif = sequences.get(index) - (pos + 1);
+			if (dif == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					//getAndSet - a concurrent remove(Object) either marks the element before it is taken, or fails:
+					Object e = elements.getAndSet(index, null);
+					sequences.set(index, pos + capacity);
+					if (e != REMOVED) return (T) e;
+					//the slot of the removed element was released:
+					signalNotFull();
+				}
+				pos = head.get();
+			}
+			else if (dif < 0) {
+				//the slot was not written yet -> empty
+				return null;
+			}
+			else pos = head.get();
+		}
+	}
+
+	/**
+	 * Removes the head of the queue (the ring buffer, then the overflow list), without waiting
+	 * @return the removed element, or null if the queue is empty
+	 */
+	protected T dequeue() {
+		T e = dequeueFromRing();
+		//the overflow list holds the elements inserted after the elements in the ring buffer - it is polled only if no elements were inserted to the ring buffer
+		//(dequeueFromRing returns null also if the head slot was claimed by a producer, but not written yet):
+		if (e == null && overflowSize.get() > 0 && tail.get() == head.get()) {
+			e = overflow.poll();
+			if (e != null) overflowSize.decrementAndGet();
+		}
+		return e;
+	}
+
+
+	protected void signalNotEmpty() {
+		if (waitingConsumers.get() > 0) {
+			waitLock.lock();
+			try {
+				notEmpty.signal();
+			}
+			finally {
+				waitLock.unlock();
+			}
+		}
+	}
+
+	protected void signalNotFull() {
+		if (waitingProducers.get() > 0) {
+			waitLock.lock();
+			try {
+				notFull.signal();
+			}
+			finally {
+				waitLock.unlock();
+			}
+		}
+	}
+
+
+	/**
+	 * Waits until the queue is not full (or the timeout elapses)
+	 * @param timed
+	 * @param nanos the maximum waiting time (if timed is true)
+	 * @return the remaining waiting time (if timed is true)
+	 * @throws InterruptedException
+	 */
+	protected long awaitNotFull(boolean timed, long nanos) throws InterruptedException {
+		waitLock.lockInterruptibly();
+		try {
+			waitingProducers.incrementAndGet();
+			try {
+				//the inserted elements are appended to the overflow list until it is empty:
+				while (overflowSize.get() > 0 || ringSize() >= capacity) {
+					if (timed) {
+						if (nanos <= 0) return nanos;
+						nanos = notFull.awaitNanos(nanos);
+					}
+					else notFull.await();
+				}
+				return nanos;
+			}
+			finally {
+				waitingProducers.decrementAndGet();
+			}
+		}
+		finally {
+			waitLock.unlock();
+		}
+	}
+
+
+	protected boolean enqueueAndSignal(T e) {
+		if (overflowSize.get() == 0 && enqueue(e)) {
+			signalNotEmpty();
+			return true;
+		}
+		else return false;
+	}
+
+	protected void enqueueOrOverflowAndSignal(T e) {
+		enqueueOrOverflow(e);
+		signalNotEmpty();
+	}
+
+	protected T dequeueAndSignal() {
+		T e = dequeue();
+		if (e != null) signalNotFull();
+		return e;
+	}
+
+
+	protected boolean offer(T e, boolean timed, long nanos, boolean notify) throws InterruptedException {
+		if (e == null) throw new NullPointerException();
+		for (;;) {
+			if (notify && insertNotifyLock != null) insertNotifyLock.lock();
+			try {
+				if (enqueueAndSignal(e)) {
+					if (notify) notifyListeners(e);
+					return true;
+				}
+			}
+			finally {
+				if (notify && insertNotifyLock != null) insertNotifyLock.unlock();
+			}
+			//wait without holding the insert notify lock:
+			if (timed && nanos <= 0) return false;
+			nanos = awaitNotFull(timed, nanos);
+		}
+	}
+
+
+
+
+	//Override the members that insert elements:
+
+	@Override
+	public void put(T e) throws InterruptedException {
+		put(e, true);
+	}
+
+	@Override
+	public boolean offer(T e, long timeout, TimeUnit unit) throws InterruptedException {
+		return offer(e, timeout, unit, true);
+	}
+
+	@Override
+	public boolean offer(T e) {
+		return offer(e, true);
+	}
+
+	@Override
+	public boolean add(T e) {
+		return add(e, true);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		return addAll(c, true);
+	}
+
+
+
+
+	//Implement NotifyingBlockingQueue members:
+
+	/**
+	 * Inserts the element, appending it to the overflow list if the queue is full. Never waits (the processing threads put events to their own queues)
+	 */
+	@Override
+	public void put(T e, boolean notify) throws InterruptedException {
+		add(e, notify);
+	}
+
+	@Override
+	public boolean offer(T e, long timeout, TimeUnit unit, boolean notify) throws InterruptedException {
+		return offer(e, true, unit.toNanos(timeout), notify);
+	}
+
+	@Override
+	public boolean offer(T e, boolean notify) {
+		if (e == null) throw new NullPointerException();
+		if (!notify) return enqueueAndSignal(e);
+		else {
+			if (insertNotifyLock != null) insertNotifyLock.lock();
+			try {
+				boolean success = enqueueAndSignal(e);
+				if (success) notifyListeners(e);
+				return success;
+			}
+			finally {
+				if (insertNotifyLock != null) insertNotifyLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Inserts the element, appending it to the overflow list if the queue is full. Never fails and never waits
+	 */
+	@Override
+	public boolean add(T e, boolean notify) {
+		if (e == null) throw new NullPointerException();
+		if (!notify) enqueueOrOverflowAndSignal(e);
+		else {
+			if (insertNotifyLock != null) insertNotifyLock.lock();
+			try {
+				enqueueOrOverflowAndSignal(e);
+				notifyListeners(e);
+			}
+			finally {
+				if (insertNotifyLock != null) insertNotifyLock.unlock();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Inserts the elements, appending them to the overflow list if the queue is full. Never fails and never waits
+	 */
+	@Override
+	public boolean addAll(Collection<? extends T> c, boolean notify) {
+		if (c == null) throw new NullPointerException();
+		if (c == this) throw new IllegalArgumentException();
+		if (c.isEmpty()) return false;
+		if (!notify) {
+			for (T e : c) {
+				enqueueOrOverflowAndSignal(e);
+			}
+		}
+		else {
+			if (insertNotifyLock != null) insertNotifyLock.lock();
+			try {
+				for (T e : c) {
+					enqueueOrOverflowAndSignal(e);
+				}
+				notifyListeners(c);
+			}
+			finally {
+				if (insertNotifyLock != null) insertNotifyLock.unlock();
+			}
+		}
+		return true;
+	}
+
+
+
+
+	//Removal:
+
+	@Override
+	public T poll() {
+		return dequeueAndSignal();
+	}
+
+	@Override
+	public T take() throws InterruptedException {
+		T e = dequeueAndSignal();
+		if (e != null) return e;
+		waitLock.lockInterruptibly();
+		try {
+			//the counter is incremented before polling again - a producer inserting an element after that will signal this thread:
+			waitingConsumers.incrementAndGet();
+			try {
+				while ((e = dequeue()) == null) {
+					notEmpty.await();
+				}
+			}
+			finally {
+				waitingConsumers.decrementAndGet();
+			}
+		}
+		finally {
+			waitLock.unlock();
+		}
+		signalNotFull();
+		return e;
+	}
+
+	@Override
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		T e = dequeueAndSignal();
+		if (e != null) return e;
+		long nanos = unit.toNanos(timeout);
+		if (nanos <= 0) return null;
+		waitLock.lockInterruptibly();
+		try {
+			waitingConsumers.incrementAndGet();
+			try {
+				while ((e = dequeue()) == null) {
+					if (nanos <= 0) return null;
+					nanos = notEmpty.awaitNanos(nanos);
+				}
+			}
+			finally {
+				waitingConsumers.decrementAndGet();
+			}
+		}
+		finally {
+			waitLock.unlock();
+		}
+		signalNotFull();
+		return e;
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c, int maxElements) {
+		if (c == null) throw new NullPointerException();
+		if (c == this) throw new IllegalArgumentException();
+		int n = 0;
+		T e;
+		while (n < maxElements && (e = dequeue()) != null) {
+			c.add(e);
+			n++;
+		}
+		if (n > 0) signalNotFull();
+		return n;
+	}
+
+	/**
+	 * Removes at most maxElements elements from the queue and stores them in the array (starting at index 0), without waiting.
+	 * Does not allocate any objects
+	 * @param array
+	 * @param maxElements
+	 * @return the number of elements removed
+	 */
+	public int drainTo(T[] array, int maxElements) {
+		int max = Math.min(maxElements, array.length);
+		int n = 0;
+		T e;
+		while (n < max && (e = dequeue()) != null) {
+			array[n] = e;
+			n++;
+		}
+		if (n > 0) signalNotFull();
+		return n;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T peek() {
+		for (;;) {
+			long currentHead = head.get();
+			long currentTail = tail.get();
+			long pos = currentHead;
+			for (; pos < currentTail; pos++) {
+				Object e = elementAt((int) pos & mask, pos);
+				if (e == null) break;
+				if (e != REMOVED) return (T) e;
+			}
+			if (pos == currentTail) return overflow.peek();
+			//the element was taken (retry) or not written yet (empty):
+			if (head.get() == currentHead) return null;
+		}
+	}
+
+	/**
+	 * Removes a single instance of the element. The element in the ring buffer is marked as removed and its slot is released when a consumer reaches it
+	 */
+	@Override
+	public boolean remove(Object o) {
+		if (o == null) return false;
+		long currentTail = tail.get();
+		for (long pos = head.get(); pos < currentTail; pos++) {
+			int index = (int) pos & mask;
+			Object e = elementAt(index, pos);
+			if (e != null && e != REMOVED && o.equals(e)) {
+				//fails if the element was taken by a consumer in the meantime:
+				if (elements.compareAndSet(index, e, REMOVED)) return true;
+			}
+		}
+		if (overflow.remove(o)) {
+			overflowSize.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+
+
+
+	//Size and iteration:
+
+	/**
+	 * The number of the elements in the ring buffer (including the elements marked as removed, until the consumers reach them) and in the overflow list
+	 */
+	@Override
+	public int size() {
+		return ringSize() + overflowSize.get();
+	}
+
+	protected int ringSize() {
+		for (;;) {
+			long before = head.get();
+			long currentTail = tail.get();
+			long after = head.get();
+			if (before == after) {
+				long size = currentTail - after;
+				if (size < 0) return 0;
+				if (size > capacity) return capacity;
+				return (int) size;
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Math.max(capacity - size(), 0);
+	}
+
+	/**
+	 * Returns the element at the position (may be REMOVED), or null if the slot does not hold the element of the position
+	 */
+	protected Object elementAt(int index, long pos) {
+		if (sequences.get(index) != pos + 1) return null;
+		Object e = elements.get(index);
+		//make sure the element was not removed (and replaced) while reading it:
+		if (sequences.get(index) != pos + 1) return null;
+		return e;
+	}
+
+	/**
+	 * Returns a weakly consistent snapshot of the queue elements. The iterator does not support removing elements
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Iterator<T> iterator() {
+		List<T> snapshot = new ArrayList<T>(size());
+		long currentTail = tail.get();
+		for (long pos = head.get(); pos < currentTail; pos++) {
+			Object e = elementAt((int) pos & mask, pos);
+			if (e != null && e != REMOVED) snapshot.add((T) e);
+		}
+		snapshot.addAll(overflow);
+		return Collections.unmodifiableList(snapshot).iterator();
+	}
+
+
+
+
+	//Implement NotifyingQueue members
+
+	@Override
+	public boolean addListener(NotifyingQueueListener<T> listener) {
+		synchronized (listenersLock) {
+			if (!Arrays.asList(listeners).contains(listener)) {
+				NotifyingQueueListener<T>[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+				newListeners[listeners.length] = listener;
+				listeners = newListeners;
+				return true;
+			}
+			else return false;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean removeListener(NotifyingQueueListener<T> listener) {
+		synchronized (listenersLock) {
+			List<NotifyingQueueListener<T>> listenersList = new ArrayList<NotifyingQueueListener<T>>(Arrays.asList(listeners));
+			boolean removed = listenersList.remove(listener);
+			if (removed) listeners = listenersList.toArray((NotifyingQueueListener<T>[]) new NotifyingQueueListener<?>[listenersList.size()]);
+			return removed;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void removeAllListeners() {
+		synchronized (listenersLock) {
+			listeners = (NotifyingQueueListener<T>[]) new NotifyingQueueListener<?>[0];
+		}
+	}
+
+	@Override
+	public List<NotifyingQueueListener<T>> getListeners() {
+		return new ArrayList<NotifyingQueueListener<T>>(Arrays.asList(listeners));
+	}
+
+	@Override
+	public void discard() {
+		removeAllListeners();
+	}
+
+
+	protected void notifyListeners(T e) {
+		//the listeners array is replaced (not modified) when the listeners change - no copying needed:
+		NotifyingQueueListener<T>[] currentListeners = listeners;
+		for (int i = 0; i < currentListeners.length; i++) {
+			currentListeners[i].itemInserted(e);
+		}
+	}
+
+	protected void notifyListeners(Collection<? extends T> c) {
+		NotifyingQueueListener<T>[] currentListeners = listeners;
+		for (int i = 0; i < currentListeners.length; i++) {
+			currentListeners[i].itemsInserted(c);
+		}
+	}
+
+	@Override
+	public void setInsertNotifyLock(Lock insertNotifyLock) {
+		this.insertNotifyLock = insertNotifyLock;
+	}
+
+
+}
@@ -4,9 +4,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import net.hycube.logging.LogHelper;
@@ -198,11 +196,8 @@ public class ThreadPoolEventQueueProcessor implements EventQueueProcessor {
 		this.threadPools = new ExecutorService[queues.length];
 		this.futures = new Future[queues.length][];
 		for (int i = 0; i < queues.length; i++) {
-			ThreadPoolExecutor tpe = new ThreadPoolExecutor(threadPoolInfos[i].getPoolSize(), threadPoolInfos[i].getPoolSize(), threadPoolInfos[i].getKeepAliveTimeSec(), TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
-			if (threadPoolInfos[i].getKeepAliveTimeSec() > 0) {
-				tpe.allowCoreThreadTimeOut(true);
-			}
-			this.threadPools[i] = tpe;
+			//platform or virtual threads, depending on the thread pool info:
+			this.threadPools[i] = EventProcessingExecutors.createExecutor(threadPoolInfos[i]);
 			
 			//for (int j = 0; j < threadPoolInfos[i].getPoolSize(); j++) {
 				this.threadPools[i].submit(queueProcessorRunnables[i]);
@@ -343,6 +338,9 @@ public class ThreadPoolEventQueueProcessor implements EventQueueProcessor {
 			if (threadPoolInfos[i].getPoolSize() < 0) {
 				throw new IllegalArgumentException("threadPoolInfos[" + i + "].poolSize is less than 0.");
 			}
+			if (threadPoolInfos[i].getPoolSize() == 0 && (! threadPoolInfos[i].getVirtualThreads())) {
+				throw new IllegalArgumentException("threadPoolInfos[" + i + "].poolSize is 0. An unlimited pool size is allowed only for virtual threads.");
+			}
 			if (threadPoolInfos[i].getKeepAliveTimeSec() < 0) {
 				throw new IllegalArgumentException("threadPoolInfos[" + i + "].keepAliveTimeSec is less than 0."); 
 			}
@@ -4,14 +4,25 @@ public class ThreadPoolInfo {
 	
 	protected int poolSize;
 	protected long keepAliveTimeSec;
+	protected boolean virtualThreads;
 	
 	public ThreadPoolInfo(int poolSize) {
 		this(poolSize, 0);
 	}
 	
 	public ThreadPoolInfo(int poolSize, long keepAliveTimeSec) {
+		this(poolSize, keepAliveTimeSec, false);
+	}
+	
+	/**
+	 * @param poolSize The maximum number of threads processing the queue events concurrently. If virtualThreads is true, 0 means no limit
+	 * @param keepAliveTimeSec The idle threads keep alive time (0 - the core threads are not terminated)
+	 * @param virtualThreads Indicates whether the events should be processed by virtual threads (if supported by the JVM)
+	 */
+	public ThreadPoolInfo(int poolSize, long keepAliveTimeSec, boolean virtualThreads) {
 		this.poolSize = poolSize;
 		this.keepAliveTimeSec = keepAliveTimeSec;
+		this.virtualThreads = virtualThreads;
 	}
 	
 	public int getPoolSize() {
@@ -22,5 +33,9 @@ public class ThreadPoolInfo {
 		return keepAliveTimeSec;
 	}
 	
+	public boolean getVirtualThreads() {
+		return virtualThreads;
+	}
+	
 	
 }
@@ -0,0 +1,33 @@
+package net.hycube.join;
+
+import net.hycube.common.CallbackFuture;
+
+/**
+ * Join callback completing the future when the join procedure finishes.
+ * The join managers do not keep the callbacks of the join procedures in a pending requests collection, so cancelling the future only completes it (the join procedure itself is not stopped).
+ *
+ * @author Artur Olszak
+ *
+ */
+public class JoinFuture extends CallbackFuture<Void> implements JoinCallback {
+
+	
+	public JoinFuture() {
+		
+	}
+	
+	
+	@Override
+	public void joinReturned(Object callbackArg) {
+		complete(null);
+		
+	}
+
+	
+	@Override
+	protected void cancelRequest() {
+		
+	}
+	
+	
+}
@@ -1,10 +1,12 @@
 package net.hycube.lookup;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.ListIterator;
 import java.util.Map.Entry;
 import java.util.Queue;
 
+import net.hycube.common.CallbackFuture;
 import net.hycube.common.EntryPoint;
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.HyCubeNodeId;
@@ -219,6 +221,7 @@ public class HyCubeLookupManager implements LookupManager {
 			
 			//registerLookupCallback
 			lookupData.setLookupCallback(lookupCallback);
+			if (lookupCallback instanceof CallbackFuture) ((CallbackFuture<?>) lookupCallback).setRequestId(lookupId);
 			lookupData.setCallbackArg(callbackArg);
 			
 			
@@ -288,6 +291,44 @@ public class HyCubeLookupManager implements LookupManager {
 
 
 
+	/**
+	 * Cancels the ongoing lookups with the specified callback object. The lookups data are removed, and the callbacks are not called.
+	 * Responses received later for the cancelled lookups are ignored.
+	 * @return The number of lookups cancelled
+	 */
+	@Override
+	public int cancelLookup(LookupCallback lookupCallback) {
+		int cancelled = 0;
+		synchronized (lookupManagerLock) {
+			Iterator<Entry<Integer, HyCubeLookupData>> iter = lookupsData.entrySet().iterator();
+			while (iter.hasNext()) {
+				HyCubeLookupData lookupData = iter.next().getValue();
+				if (lookupData.lookupCallback == lookupCallback) {
+					iter.remove();
+					lookupData.discard();
+					cancelled++;
+				}
+			}
+		}
+		return cancelled;
+	}
+	
+	
+	/**
+	 * Cancels the ongoing lookup with the specified id (set to the futures returned by the asynchronous node operations). The callback is not called.
+	 * @return true if the lookup was cancelled
+	 */
+	@Override
+	public boolean cancelLookup(int lookupId) {
+		HyCubeLookupData lookupData;
+		synchronized (lookupManagerLock) {
+			lookupData = lookupsData.remove(lookupId);
+			if (lookupData != null) lookupData.discard();
+		}
+		return (lookupData != null);
+	}
+	
+	
 
 	public void discard() {
 		synchronized (lookupManagerLock) {
@@ -842,7 +883,9 @@ public class HyCubeLookupManager implements LookupManager {
 		
 		
 		//schedule the request time out event
-		scheduleRequestTimeout(lookupId, recipient.getNodeIdHash(), lookupParameters.finalLookup);
+		//(the timeout is derived from the RTT estimate of the recipient, if the adaptive timeouts are enabled)
+		long timeout = nodeAccessor.getNodeParameterSet().getAdaptiveRequestTimeout(nodeAccessor.getNetworkAdapter().getRttEstimate(recipient.getNetworkNodePointer()), requestTimeout);
+		scheduleRequestTimeout(lookupId, recipient.getNodeIdHash(), lookupParameters.finalLookup, timeout);
 		
 		
 	}
@@ -870,13 +913,13 @@ public class HyCubeLookupManager implements LookupManager {
 	}
 	
 	
-	protected void scheduleRequestTimeout(int lookupId, long nodeIdHash, boolean finalLookup) {
-		enqueueLookupRequestTimeoutEvent(lookupId, nodeIdHash, finalLookup);
+	protected void scheduleRequestTimeout(int lookupId, long nodeIdHash, boolean finalLookup, long timeout) {
+		enqueueLookupRequestTimeoutEvent(lookupId, nodeIdHash, finalLookup, timeout);
 		
 		
 	}
 	
-	protected void enqueueLookupRequestTimeoutEvent(int lookupId, long nodeIdHash, boolean finalLookup) {
+	protected void enqueueLookupRequestTimeoutEvent(int lookupId, long nodeIdHash, boolean finalLookup, long timeout) {
 		
 		//create the event:
 		Event event = new LookupRequestTimeoutEvent(this, lookupRequestTimeoutEventProxy, lookupId, nodeIdHash, finalLookup);
@@ -884,7 +927,7 @@ public class HyCubeLookupManager implements LookupManager {
 		//schedule the event:
 		Queue<Event> queue = nodeAccessor.getEventQueue(lookupRequestTimeoutEventType);
 		EventScheduler scheduler = nodeAccessor.getEventScheduler();
-		scheduler.scheduleEventWithDelay(event, queue, requestTimeout);
+		scheduler.scheduleEventWithDelay(event, queue, timeout);
 		
 		
 	}
@@ -0,0 +1,37 @@
+package net.hycube.lookup;
+
+import net.hycube.common.CallbackFuture;
+import net.hycube.core.NodePointer;
+
+/**
+ * Lookup callback completing the future with the lookup result. Cancelling the future removes the lookup from the lookup manager.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class LookupFuture extends CallbackFuture<NodePointer> implements LookupCallback {
+
+	protected LookupManager lookupManager;
+	
+	
+	public LookupFuture(LookupManager lookupManager) {
+		this.lookupManager = lookupManager;
+	}
+	
+	
+	@Override
+	public void lookupReturned(int lookupId, Object callbackArg, NodePointer result) {
+		complete(result);
+		
+	}
+
+	
+	@Override
+	protected void cancelRequest() {
+		if (isRequestIdSet()) lookupManager.cancelLookup(getRequestId());
+		else lookupManager.cancelLookup(this);
+		
+	}
+	
+	
+}
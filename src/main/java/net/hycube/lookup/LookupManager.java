@@ -15,6 +15,10 @@ public interface LookupManager {
 	
 	public LookupCallback lookup(NodeId lookupNodeId, LookupCallback lookupCallback, Object callbackArg, Object[] parameters);
 	
+	public int cancelLookup(LookupCallback lookupCallback);
+	
+	public boolean cancelLookup(int lookupId);
+	
 	public EventType getLookupCallbackEventType();
 	
 	public EventType getLookupRequestTimeoutEventType();
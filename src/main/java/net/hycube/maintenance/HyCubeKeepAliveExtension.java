@@ -27,6 +27,7 @@ public class HyCubeKeepAliveExtension implements Extension {
 	public static final String PROP_KEY_PING_RESPONSE_INDICATOR_DEACTIVATE_THRESHOLD = "PingResponseIndicatorDeactivateThreshold";
 	public static final String PROP_KEY_PING_RESPONSE_INDICATOR_REMOVE_THRESHOLD = "PingResponseIndicatorRemoveThreshold";
 	public static final String PROP_KEY_PING_RESPONSE_INDICATOR_RETENTION_TIME = "PingResponseIndicatorRetentionTime";
+	public static final String PROP_KEY_RTT_RTE_KEY = "RttRteKey";
 
 	
 	//maximum ping interval (ms):
@@ -65,6 +66,7 @@ public class HyCubeKeepAliveExtension implements Extension {
 	protected double pingResponseIndicatorDeactivateThreshold;
 	protected double pingResponseIndicatorRemoveThreshold;
 	protected int pingResponseIndicatorRetentionTime;
+	protected String rttRteKey;
 	
 
 	
@@ -150,6 +152,14 @@ public class HyCubeKeepAliveExtension implements Extension {
 		this.pingResponseIndicatorRetentionTime = pingResponseIndicatorRetentionTime;
 	}
 	
+	public String getRttRteKey() {
+		return rttRteKey;
+	}
+	
+	public void setRttRteKey(String rttRteKey) {
+		this.rttRteKey = rttRteKey;
+	}
+	
 	
 	
 	
@@ -185,6 +195,15 @@ public class HyCubeKeepAliveExtension implements Extension {
 			this.pingResponseIndicatorDeactivateThreshold = (Double) properties.getProperty(PROP_KEY_PING_RESPONSE_INDICATOR_DEACTIVATE_THRESHOLD, MappedType.DOUBLE);
 			this.pingResponseIndicatorRemoveThreshold = (Double) properties.getProperty(PROP_KEY_PING_RESPONSE_INDICATOR_REMOVE_THRESHOLD, MappedType.DOUBLE);
 			this.pingResponseIndicatorRetentionTime = (Integer) properties.getProperty(PROP_KEY_PING_RESPONSE_INDICATOR_RETENTION_TIME, MappedType.INT);
+			
+			//the RTT estimates (measured by ping-pong exchanges) are stored in the routing table entries if the key is specified
+			if (properties.containsKey(PROP_KEY_RTT_RTE_KEY)) {
+				this.rttRteKey = properties.getProperty(PROP_KEY_RTT_RTE_KEY);
+				if (rttRteKey == null || rttRteKey.trim().isEmpty()) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_RTT_RTE_KEY), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_RTT_RTE_KEY));
+			}
+			else {
+				this.rttRteKey = null;
+			}
 		
 		} catch (NodePropertiesConversionException e) {
 			throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, e.getKey(), "An error occured while reading a parameter. The property could not be converted: " + e.getKey(), e);
@@ -128,7 +128,10 @@ public class HyCubeMessageSendProcessorPing implements MessageSendProcessor {
     	
     	HyCubePongProcessInfo pongPr = new HyCubePongProcessInfo(np.getNodeId(), nodeIdHash, np.getNetworkNodePointer().getAddressBytes());
     	pongPr.setPingSerialNo(pmspi.getMsg().getSerialNo());
-    	pongPr.setDiscardTimestamp(nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime() + keepAliveExtension.getPongTimeout());
+    	long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+    	pongPr.setSendTimestamp(currTime);
+    	pongPr.setSendTimeNanos(System.nanoTime());
+    	pongPr.setDiscardTimestamp(currTime + keepAliveExtension.getPongTimeout());
     	
     	synchronized (keepAliveExtension.getPongAwaitingLock()) {
     		keepAliveExtension.getPongAwaitingMap().put(pmspi.getMsg().getSerialNo(), pongPr);
@@ -7,6 +7,7 @@ import net.hycube.backgroundprocessing.AbstractBackgroundProcess;
 import net.hycube.backgroundprocessing.BackgroundProcessException;
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.HyCubeRoutingTable;
+import net.hycube.core.HyCubeSnapshotRoutingTable;
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeAccessor;
 import net.hycube.core.RoutingTableEntry;
@@ -99,9 +100,14 @@ public class HyCubePingBackgroundProcess extends AbstractBackgroundProcess {
     	int neighborsCount;
     	
     	
-    	routingTable.lockRoutingTableForRead();
-    	rteList = routingTable.getAllRoutingTableEntries();
-    	routingTable.unlockRoutingTableForRead();
+    	if (routingTable instanceof HyCubeSnapshotRoutingTable) {
+    		rteList = ((HyCubeSnapshotRoutingTable)routingTable).getSnapshot().getAllRoutingTableEntries();
+    	}
+    	else {
+	    	routingTable.lockRoutingTableForRead();
+	    	rteList = routingTable.getAllRoutingTableEntries();
+	    	routingTable.unlockRoutingTableForRead();
+    	}
     	
     	neighborsCount = rteList.size();
     	
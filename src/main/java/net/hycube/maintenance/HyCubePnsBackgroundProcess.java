@@ -1,10 +1,25 @@
 package net.hycube.maintenance;
 
+import java.util.List;
+
 import net.hycube.backgroundprocessing.AbstractBackgroundProcess;
+import net.hycube.backgroundprocessing.BackgroundProcessException;
+import net.hycube.configuration.GlobalConstants;
+import net.hycube.core.HyCubeRoutingTable;
+import net.hycube.core.HyCubeRoutingTableSlotInfo;
+import net.hycube.core.HyCubeSnapshotRoutingTable;
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeAccessor;
+import net.hycube.core.NodePointer;
+import net.hycube.core.RoutingTableEntry;
 import net.hycube.environment.NodeProperties;
 import net.hycube.logging.LogHelper;
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.HyCubeMessageFactory;
+import net.hycube.messaging.messages.HyCubeMessageType;
+import net.hycube.messaging.processing.ProcessMessageException;
+import net.hycube.transport.NetworkAdapterException;
+import net.hycube.transport.RttEstimate;
 
 public class HyCubePnsBackgroundProcess extends AbstractBackgroundProcess {
 
@@ -15,9 +30,13 @@ public class HyCubePnsBackgroundProcess extends AbstractBackgroundProcess {
 	protected static final String PROP_KEY_PNS_EXTENSION_KEY = "PnsExtensionKey";
 	
 	
+	protected HyCubeRoutingTable routingTable;
+	
 	protected String pnsExtensionKey;
 	protected HyCubePnsExtension pnsExtension;
 	
+	protected HyCubeMessageFactory messageFactory;
+	
 	
 	
 	
@@ -35,6 +54,14 @@ public class HyCubePnsBackgroundProcess extends AbstractBackgroundProcess {
 		super.initialize(nodeAccessor, properties);
 
 		
+		if (!(nodeAccessor.getRoutingTable() instanceof HyCubeRoutingTable)) {
+			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "The routing table is expected to be an instance of: " + HyCubeRoutingTable.class.getName());
+		}
+		this.routingTable = (HyCubeRoutingTable) nodeAccessor.getRoutingTable();
+
+		this.messageFactory = (HyCubeMessageFactory) nodeAccessor.getMessageFactory();
+		
+		
 		this.pnsExtensionKey = properties.getProperty(PROP_KEY_PNS_EXTENSION_KEY);
 		if (pnsExtensionKey == null || pnsExtensionKey.trim().isEmpty()) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PNS_EXTENSION_KEY), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PNS_EXTENSION_KEY));
 		try {
@@ -49,17 +76,66 @@ public class HyCubePnsBackgroundProcess extends AbstractBackgroundProcess {
 
 	
 	@Override
-	public void doProcess() {
+	public void doProcess() throws BackgroundProcessException {
 		
-		processPns();
+		try {
+			processPns();
+		} catch (Exception e) {
+			throw new BackgroundProcessException("An exception thrown while processing PNS.", e);
+		}
 		
 	}
 	
 	
-	public void processPns() {
+	/*
+	 * Pings the queued candidate nodes (the RTT is measured when the pong is received) and updates the RTT estimates stored in the routing table entries
+	 * (the estimates of the nodes may be created by the data message acks, after the routing table entries were created)
+	 */
+	public void processPns() throws NetworkAdapterException, ProcessMessageException {
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("Processing PNS.");
+		}
 		
+		List<NodePointer> candidates = pnsExtension.pollProbeQueue();
+		for (NodePointer candidate : candidates) {
+			if (nodeAccessor.getNetworkAdapter().getRttEstimate(candidate.getNetworkNodePointer()) != null) continue;
+			probeNode(candidate);
+		}
+		
+		
+		List<RoutingTableEntry> rteList;
+		if (routingTable instanceof HyCubeSnapshotRoutingTable) {
+			rteList = ((HyCubeSnapshotRoutingTable)routingTable).getSnapshot().getAllRoutingTableEntries();
+		}
+		else {
+			routingTable.lockRoutingTableForRead();
+			rteList = routingTable.getAllRoutingTableEntries();
+			routingTable.unlockRoutingTableForRead();
+		}
+		
+		for (RoutingTableEntry rte : rteList) {
+			if (rte.isDiscarded() || rte.getData(pnsExtension.getRttRteKey()) != null) continue;
+			RttEstimate rttEstimate = nodeAccessor.getNetworkAdapter().getRttEstimate(rte.getNode().getNetworkNodePointer());
+			if (rttEstimate == null) continue;
+			
+			HyCubeRoutingTableSlotInfo slotInfo = (HyCubeRoutingTableSlotInfo) rte.getOuterRef();
+			routingTable.getLockByRtType(slotInfo.getType()).writeLock().lock();
+			rte.setData(pnsExtension.getRttRteKey(), rttEstimate);
+			routingTable.getLockByRtType(slotInfo.getType()).writeLock().unlock();
+		}
 		
 	}
 	
+	
+	protected void probeNode(NodePointer node) throws NetworkAdapterException, ProcessMessageException {
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("Pinging PNS candidate node: " + node.getNodeId().toHexString());
+		}
+		HyCubeMessage pingMsg = messageFactory.newMessage(nodeAccessor.getNextMessageSerialNo(), nodeAccessor.getNodeId(), node.getNodeId(), nodeAccessor.getNetworkAdapter().getPublicAddressBytes(), HyCubeMessageType.PING, nodeAccessor.getNodeParameterSet().getMessageTTL(), (short)0, false, false, (short)0, (short)0, null); 
+		HyCubePingMessageSendProcessInfo pmspi = new HyCubePingMessageSendProcessInfo(HyCubeMessageType.PING, pingMsg, node.getNetworkNodePointer(), node, true);
+		nodeAccessor.sendMessage(pmspi, GlobalConstants.WAIT_ON_BKG_MSG_SEND);
+	}
+	
 		
 }
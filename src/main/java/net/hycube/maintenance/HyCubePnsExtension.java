@@ -1,24 +1,116 @@
 package net.hycube.maintenance;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
 import net.hycube.common.EntryPoint;
+import net.hycube.core.InitializationException;
 import net.hycube.core.NodeAccessor;
+import net.hycube.core.NodePointer;
 import net.hycube.environment.NodeProperties;
+import net.hycube.environment.NodePropertiesConversionException;
 import net.hycube.extensions.Extension;
+import net.hycube.utils.ObjectToStringConverter.MappedType;
 
+/**
+ * Proximity neighbor selection extension. The proximity of the nodes is the smoothed RTT measured by the network adapter (the samples are taken from the ping-pong exchanges and the data message acks).
+ * The RT node selector queues the candidate nodes whose RTT is not known yet (the slot is full and the candidate could replace one of the slot nodes),
+ * and the PNS background process pings them, so that the RTT is known the next time the candidate is proposed.
+ */
 public class HyCubePnsExtension implements Extension {
 
+	public static final String PROP_KEY_RTT_RTE_KEY = "RttRteKey";
+	public static final String PROP_KEY_PROXIMITY_REPLACE_RATIO = "ProximityReplaceRatio";
+	public static final String PROP_KEY_PROBE_CANDIDATES = "ProbeCandidates";
+	public static final String PROP_KEY_MAX_PROBED_CANDIDATES = "MaxProbedCandidates";
+
+
+	protected NodeAccessor nodeAccessor;
+
+	protected String rttRteKey;
+	protected double proximityReplaceRatio;
+	protected boolean probeCandidates;
+	protected int maxProbedCandidates;
+
+	//candidates to be pinged (node id hash -> node), in the order of queueing:
+	protected LinkedHashMap<Long, NodePointer> probeQueue;
+
+
+
+	public String getRttRteKey() {
+		return rttRteKey;
+	}
+
+	public double getProximityReplaceRatio() {
+		return proximityReplaceRatio;
+	}
+
+	public boolean isProbeCandidates() {
+		return probeCandidates;
+	}
+
+	public int getMaxProbedCandidates() {
+		return maxProbedCandidates;
+	}
+
+
+
 	@Override
-	public void initialize(NodeAccessor nodeAccessor, NodeProperties properties) {
-		
-		
+	public void initialize(NodeAccessor nodeAccessor, NodeProperties properties) throws InitializationException {
+
+		this.nodeAccessor = nodeAccessor;
+
+		try {
+			this.rttRteKey = properties.getProperty(PROP_KEY_RTT_RTE_KEY);
+			if (rttRteKey == null || rttRteKey.trim().isEmpty()) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_RTT_RTE_KEY), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_RTT_RTE_KEY) + ".");
+
+			this.proximityReplaceRatio = (Double) properties.getProperty(PROP_KEY_PROXIMITY_REPLACE_RATIO, MappedType.DOUBLE);
+			if (proximityReplaceRatio <= 0 || proximityReplaceRatio > 1) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PROXIMITY_REPLACE_RATIO), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PROXIMITY_REPLACE_RATIO) + ".");
+
+			this.probeCandidates = (Boolean) properties.getProperty(PROP_KEY_PROBE_CANDIDATES, MappedType.BOOLEAN);
+
+			this.maxProbedCandidates = (Integer) properties.getProperty(PROP_KEY_MAX_PROBED_CANDIDATES, MappedType.INT);
+			if (maxProbedCandidates < 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_MAX_PROBED_CANDIDATES), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_MAX_PROBED_CANDIDATES) + ".");
+
+		} catch (NodePropertiesConversionException e) {
+			throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, e.getKey(), "An error occured while reading a parameter. The property could not be converted: " + e.getKey(), e);
+		}
+
+		this.probeQueue = new LinkedHashMap<Long, NodePointer>();
+
 	}
-	
+
 	@Override
 	public void postInitialize() {
-		
+
 	}
-	
-	
+
+
+	/**
+	 * Queues the node to be pinged by the PNS background process (the number of queued nodes is limited by MaxProbedCandidates)
+	 */
+	public void queueProbe(NodePointer node) {
+		if (! probeCandidates) return;
+		synchronized (probeQueue) {
+			if (probeQueue.size() < maxProbedCandidates && (! probeQueue.containsKey(node.getNodeIdHash()))) {
+				probeQueue.put(node.getNodeIdHash(), node);
+			}
+		}
+	}
+
+	/**
+	 * Returns the queued nodes and clears the queue
+	 */
+	public List<NodePointer> pollProbeQueue() {
+		synchronized (probeQueue) {
+			List<NodePointer> nodes = new ArrayList<NodePointer>(probeQueue.values());
+			probeQueue.clear();
+			return nodes;
+		}
+	}
+
+
 	@Override
 	public EntryPoint getExtensionEntryPoint() {
 		return null;
@@ -26,8 +118,12 @@ public class HyCubePnsExtension implements Extension {
 
 	@Override
 	public void discard() {
-
+		if (probeQueue != null) {
+			synchronized (probeQueue) {
+				probeQueue.clear();
+			}
+		}
 	}
 
-	
+
 }
@@ -7,6 +7,9 @@ import net.hycube.messaging.messages.Message;
 public class HyCubePongProcessInfo {
 	
 	protected int pingSerialNo;
+	protected long sendTimestamp;
+	//System.nanoTime() at the time of sending (the RTT samples are measured with sub-millisecond precision):
+	protected long sendTimeNanos;
 	protected long discardTimestamp;
 	
 	protected NodeId nodeId;
@@ -31,6 +34,22 @@ public class HyCubePongProcessInfo {
 		this.pingSerialNo = pingSerialNo;
 	}
 
+	public long getSendTimestamp() {
+		return sendTimestamp;
+	}
+	
+	public void setSendTimestamp(long sendTimestamp) {
+		this.sendTimestamp = sendTimestamp;
+	}
+
+	public long getSendTimeNanos() {
+		return sendTimeNanos;
+	}
+	
+	public void setSendTimeNanos(long sendTimeNanos) {
+		this.sendTimeNanos = sendTimeNanos;
+	}
+
 	public long getDiscardTimestamp() {
 		return discardTimestamp;
 	}
@@ -25,6 +25,7 @@ import net.hycube.messaging.processing.ProcessMessageException;
 import net.hycube.messaging.processing.ReceivedMessageProcessor;
 import net.hycube.transport.NetworkAdapterException;
 import net.hycube.transport.NetworkNodePointer;
+import net.hycube.transport.RttEstimate;
 
 public class HyCubeReceivedMessageProcessorPing implements ReceivedMessageProcessor {
 
@@ -203,12 +204,17 @@ public class HyCubeReceivedMessageProcessorPing implements ReceivedMessageProces
 				if (Arrays.equals(pongPr.getNodeNetworkAddress(), msg.getSenderNetworkAddress())
 						&& NodeId.compareIds(pongPr.getNodeId(), msg.getSenderId())) {
 					
+					//RTT sample (every ping message has its own serial number, so the samples are not ambiguous):
+					double rtt = (System.nanoTime() - pongPr.getSendTimeNanos()) / 1000000.0;
+					NetworkNodePointer pongSender = nodeAccessor.getNetworkAdapter().createNetworkNodePointer(pongPr.getNodeNetworkAddress());
+					RttEstimate rttEstimate = nodeAccessor.getNetworkAdapter().addRttSample(pongSender, rtt);
+					
 					routingTable.lockRoutingTableForRead();
 					List<RoutingTableEntry> rtes = nodeAccessor.getRoutingTable().getRoutingTableEntriesByNodeIdHash(pongPr.getNodeIdHash());
 					routingTable.unlockRoutingTableForRead();
 					
 					for (RoutingTableEntry rte : rtes) {
-						if (rte != null && rte.getNode().getNetworkNodePointer().getAddressString().equals(pongPr.getNodeNetworkAddress())) {
+						if (rte != null && Arrays.equals(rte.getNode().getNetworkNodePointer().getAddressBytes(), pongPr.getNodeNetworkAddress())) {
 							
 							HyCubeRoutingTableSlotInfo slotInfo = (HyCubeRoutingTableSlotInfo) rte.getOuterRef();
 		    				
@@ -219,6 +225,10 @@ public class HyCubeReceivedMessageProcessorPing implements ReceivedMessageProces
 							rtePingResponseIndicator = rtePingResponseIndicator * (1 - keepAliveExtension.getPingResponseIndicatorUpdateCoefficient()) + keepAliveExtension.getMaxPingResponseIndicatorValue() * keepAliveExtension.getPingResponseIndicatorUpdateCoefficient();
 							rte.setData(keepAliveExtension.getPingResponseIndicatorRteKey(), rtePingResponseIndicator);
 							
+							if (keepAliveExtension.getRttRteKey() != null) {
+								rte.setData(keepAliveExtension.getRttRteKey(), rttEstimate);
+							}
+							
 							//release the write lock
 	    					routingTable.getLockByRtType(slotInfo.getType()).writeLock().unlock();
 	    					
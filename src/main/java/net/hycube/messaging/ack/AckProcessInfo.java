@@ -10,6 +10,9 @@ public class AckProcessInfo {
 	private static org.apache.commons.logging.Log devLog = LogHelper.getDevLog(AckProcessInfo.class);
 	
 	protected int msgSerialNo;
+	protected long sendTimestamp;
+	//System.nanoTime() at the time of sending (the RTT samples are measured with sub-millisecond precision):
+	protected long sendTimeNanos;
 	protected long discardTimestamp;
 	protected Message message;
 	
@@ -28,6 +31,22 @@ public class AckProcessInfo {
 	protected int sendCounter;
 	
 	
+	public long getSendTimestamp() {
+		return sendTimestamp;
+	}
+	
+	public void setSendTimestamp(long sendTimestamp) {
+		this.sendTimestamp = sendTimestamp;
+	}
+	
+	public long getSendTimeNanos() {
+		return sendTimeNanos;
+	}
+	
+	public void setSendTimeNanos(long sendTimeNanos) {
+		this.sendTimeNanos = sendTimeNanos;
+	}
+	
 	public long getDiscardTimestamp() {
 		return discardTimestamp;
 	}
@@ -1,7 +1,5 @@
 package net.hycube.messaging.ack;
 
-import java.util.HashMap;
-
 import net.hycube.common.EntryPoint;
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeAccessor;
@@ -48,13 +46,8 @@ public class HyCubeAckExtension implements Extension {
 	
 	
 	
-	public HashMap<Integer, AckProcessInfo> getAckAwaitingMap() {
-		return ackManager.getAckAwaitingMap();
-	}
-
-	
-	public Object getAckAwaitingLock() {
-		return ackManager.getAckAwaitingLock();
+	public HyCubePendingAckTable getPendingAckTable() {
+		return ackManager.getPendingAckTable();
 	}
 	
 	
@@ -1,8 +1,10 @@
 package net.hycube.messaging.ack;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
 import net.hycube.backgroundprocessing.BackgroundProcessException;
@@ -26,6 +28,8 @@ import net.hycube.messaging.processing.MessageSendProcessInfo;
 import net.hycube.messaging.processing.ProcessMessageException;
 import net.hycube.routing.HyCubeRoutingManager;
 import net.hycube.transport.NetworkAdapterException;
+import net.hycube.transport.NetworkNodePointer;
+import net.hycube.transport.RttEstimate;
 import net.hycube.utils.ObjectToStringConverter.MappedType;
 
 public class HyCubeAckManager {
@@ -37,14 +41,22 @@ public class HyCubeAckManager {
 	protected static final String PROP_KEY_APPLY_SECURE_ROUTING_AFTER_NOT_DELIVERED_COUNT = "ApplySecureRoutingAfterNotDeliveredCount";
 	protected static final String PROP_KEY_APPLY_SKIPPING_NEXT_HOPS_AFTER_NOT_DELIVERED_COUNT = "ApplySkippingNextHopsAfterNotDeliveredCount";
 	protected static final String PROP_KEY_VALIDATE_ACK_SENDER = "ValidateAckSender";
+	protected static final String PROP_KEY_RTT_ESTIMATES_CACHE_SIZE = "RttEstimatesCacheSize";
+	protected static final String PROP_KEY_PENDING_ACK_TABLE_SHARDS_NUM = "PendingAckTableShardsNum";
+	protected static final String PROP_KEY_PENDING_ACK_WHEEL_TICK_DURATION = "PendingAckWheelTickDuration";
+	protected static final String PROP_KEY_PENDING_ACK_WHEEL_SIZE = "PendingAckWheelSize";
 	
+	protected static final int DEFAULT_RTT_ESTIMATES_CACHE_SIZE = 1024;
+	protected static final int DEFAULT_PENDING_ACK_TABLE_SHARDS_NUM = 16;
+	protected static final int DEFAULT_PENDING_ACK_WHEEL_TICK_DURATION = 50;
+	protected static final int DEFAULT_PENDING_ACK_WHEEL_SIZE = 256;
 	
 	
-	protected NodeAccessor nodeAccessor;
 	
-	protected final Object ackAwaitingLock = new Object();
+	protected NodeAccessor nodeAccessor;
 	
-	protected HashMap<Integer, AckProcessInfo> ackAwaitingMap;
+	//messages awaiting acks (message serial number -> ack process info), sharded and indexed by the discard timestamps:
+	protected HyCubePendingAckTable pendingAckTable;
 	
 	
 	protected int applySecureRoutingAfterNotDeliveredCount;
@@ -52,15 +64,47 @@ public class HyCubeAckManager {
 	
 	protected boolean validateAckSender;
 	
+	//end-to-end RTT estimates of the messages (id hash of the node that acknowledged the messages and direct recipient address -> estimate), access ordered and bounded:
+	protected LinkedHashMap<RecipientKey, RttEstimate> recipientRttEstimates;
 	
 	
-	
-	public Object getAckAwaitingLock() {
-		return ackAwaitingLock;
+	/**
+	 * The key of the end-to-end RTT estimates - the id hash of the node reached by the messages and the address of the direct recipient (null for the routed messages).
+	 * The messages sent directly to a node are routed further by that node if it is not the recipient, so their RTT is not the RTT of the direct recipient.
+	 * The samples are recorded for the node that acknowledged the message, not for the recipient id of the message - the recipient id may be any key (e.g. a DHT key), and it would be used only once.
+	 */
+	protected static final class RecipientKey {
+		
+		protected final long recipientIdHash;
+		protected final String directRecipientAddress;
+		
+		protected RecipientKey(long recipientIdHash, String directRecipientAddress) {
+			this.recipientIdHash = recipientIdHash;
+			this.directRecipientAddress = directRecipientAddress;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (int) (recipientIdHash ^ (recipientIdHash >>> 32)) * 31 + (directRecipientAddress != null ? directRecipientAddress.hashCode() : 0);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof RecipientKey)) return false;
+			RecipientKey other = (RecipientKey) obj;
+			if (recipientIdHash != other.recipientIdHash) return false;
+			if (directRecipientAddress == null) return other.directRecipientAddress == null;
+			else return directRecipientAddress.equals(other.directRecipientAddress);
+		}
+		
 	}
 	
-	public HashMap<Integer, AckProcessInfo> getAckAwaitingMap() {
-		return ackAwaitingMap;
+	
+	
+	
+	public HyCubePendingAckTable getPendingAckTable() {
+		return pendingAckTable;
 	}
 	
 	
@@ -74,8 +118,6 @@ public class HyCubeAckManager {
 		
 		this.nodeAccessor = nodeAccessor;
 		
-		this.ackAwaitingMap = new HashMap<Integer, AckProcessInfo>();
-		
 		try {
 			if (properties.containsKey(PROP_KEY_APPLY_SECURE_ROUTING_AFTER_NOT_DELIVERED_COUNT)) {
 				this.applySecureRoutingAfterNotDeliveredCount = (Integer) properties.getProperty(PROP_KEY_APPLY_SECURE_ROUTING_AFTER_NOT_DELIVERED_COUNT, MappedType.INT);
@@ -94,6 +136,51 @@ public class HyCubeAckManager {
 			
 			this.validateAckSender = (Boolean) properties.getProperty(PROP_KEY_VALIDATE_ACK_SENDER, MappedType.BOOLEAN);
 			
+			final int rttEstimatesCacheSize;
+			if (properties.containsKey(PROP_KEY_RTT_ESTIMATES_CACHE_SIZE)) {
+				rttEstimatesCacheSize = (Integer) properties.getProperty(PROP_KEY_RTT_ESTIMATES_CACHE_SIZE, MappedType.INT);
+				if (rttEstimatesCacheSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_RTT_ESTIMATES_CACHE_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_RTT_ESTIMATES_CACHE_SIZE) + ".");
+			}
+			else {
+				rttEstimatesCacheSize = DEFAULT_RTT_ESTIMATES_CACHE_SIZE;
+			}
+			this.recipientRttEstimates = new LinkedHashMap<RecipientKey, RttEstimate>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<RecipientKey, RttEstimate> eldest) {
+					return size() > rttEstimatesCacheSize;
+				}
+			};
+			
+			int pendingAckTableShardsNum;
+			if (properties.containsKey(PROP_KEY_PENDING_ACK_TABLE_SHARDS_NUM)) {
+				pendingAckTableShardsNum = (Integer) properties.getProperty(PROP_KEY_PENDING_ACK_TABLE_SHARDS_NUM, MappedType.INT);
+				if (pendingAckTableShardsNum <= 0 || pendingAckTableShardsNum > (1 << 16)) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PENDING_ACK_TABLE_SHARDS_NUM), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PENDING_ACK_TABLE_SHARDS_NUM) + ".");
+			}
+			else {
+				pendingAckTableShardsNum = DEFAULT_PENDING_ACK_TABLE_SHARDS_NUM;
+			}
+			
+			int pendingAckWheelTickDuration;
+			if (properties.containsKey(PROP_KEY_PENDING_ACK_WHEEL_TICK_DURATION)) {
+				pendingAckWheelTickDuration = (Integer) properties.getProperty(PROP_KEY_PENDING_ACK_WHEEL_TICK_DURATION, MappedType.INT);
+				if (pendingAckWheelTickDuration <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PENDING_ACK_WHEEL_TICK_DURATION), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PENDING_ACK_WHEEL_TICK_DURATION) + ".");
+			}
+			else {
+				pendingAckWheelTickDuration = DEFAULT_PENDING_ACK_WHEEL_TICK_DURATION;
+			}
+			
+			int pendingAckWheelSize;
+			if (properties.containsKey(PROP_KEY_PENDING_ACK_WHEEL_SIZE)) {
+				pendingAckWheelSize = (Integer) properties.getProperty(PROP_KEY_PENDING_ACK_WHEEL_SIZE, MappedType.INT);
+				if (pendingAckWheelSize <= 0 || pendingAckWheelSize > (1 << 20)) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PENDING_ACK_WHEEL_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PENDING_ACK_WHEEL_SIZE) + ".");
+			}
+			else {
+				pendingAckWheelSize = DEFAULT_PENDING_ACK_WHEEL_SIZE;
+			}
+			
+			this.pendingAckTable = new HyCubePendingAckTable(pendingAckTableShardsNum, pendingAckWheelTickDuration, pendingAckWheelSize, nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime());
+			
 			
 		} catch (NodePropertiesConversionException e) {
 			throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, e.getKey(), "An error occured while reading a node parameter. The property could not be converted: " + e.getKey(), e);
@@ -123,11 +210,16 @@ public class HyCubeAckManager {
 		
 		
     	if (nodeAccessor.getNodeParameterSet().isMessageAckEnabled()) {
-    		synchronized (ackAwaitingLock) {    			
-   				dmspi.getAckProcessInfo().setDiscardTimestamp(nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime() + dmspi.getAckProcessInfo().getAckTimeout());
-   				ackAwaitingMap.put(dmspi.getMsg().getSerialNo(), dmspi.getAckProcessInfo());
-   				
-    		}		    	
+    		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+    		AckProcessInfo ackPr = dmspi.getAckProcessInfo();
+    		if (nodeAccessor.getNodeParameterSet().isAdaptiveTimeouts()) {
+    			ackPr.setAckTimeout((int) getAckTimeout(ackPr));
+    		}
+    		ackPr.setSendTimestamp(currTime);
+    		ackPr.setSendTimeNanos(System.nanoTime());
+    		ackPr.setDiscardTimestamp(currTime + ackPr.getAckTimeout());
+    		//replaces the ack process info of the previous send attempt (the same serial number):
+    		pendingAckTable.put(ackPr);
     	}
     	
 	}
@@ -210,21 +302,21 @@ public class HyCubeAckManager {
 		}
 		
 		
-		synchronized(ackAwaitingLock) {
-			if (ackAwaitingMap.containsKey(ackData.getAckSerialNo())) {
-				AckProcessInfo ackPr = ackAwaitingMap.get(ackData.getAckSerialNo());
-				synchronized (ackPr) {
-					if (validateAckSender == false || NodeId.compareIds(ackPr.getMessage().getRecipientId(), msg.getSenderId())) {
-						if (! ackPr.isProcessed()) {
-							if (devLog.isDebugEnabled()) {
-								devLog.debug("Processing ACK");
-							}
-							ackPr.process(msg);
-							ackAwaitingMap.remove(ackData.getAckSerialNo());
-							if (ackPr.getAckCallback() != null) {
-								BlockingQueue<Event> processAckCallbackEventQueue = nodeAccessor.getEventQueue(EventCategory.processAckCallbackEvent);
-								processAckCallbackEventQueue.add(new MessageAckCallbackEvent(nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime(), nodeAccessor.getProcessEventProxy(), MessageAckCallbackType.DELIVERED, ackPr.getAckCallback(), ackPr.getAckCallbackArg()));
-							}
+		//only the shard of the serial number is locked (for the lookup and the removal), the processing is synchronized on the ack process info:
+		AckProcessInfo ackPr = pendingAckTable.get(ackData.getAckSerialNo());
+		if (ackPr != null) {
+			synchronized (ackPr) {
+				if (validateAckSender == false || NodeId.compareIds(ackPr.getMessage().getRecipientId(), msg.getSenderId())) {
+					if (! ackPr.isProcessed()) {
+						if (devLog.isDebugEnabled()) {
+							devLog.debug("Processing ACK");
+						}
+						ackPr.process(msg);
+						pendingAckTable.remove(ackPr);
+						sampleRtt(ackPr, msg);
+						if (ackPr.getAckCallback() != null) {
+							BlockingQueue<Event> processAckCallbackEventQueue = nodeAccessor.getEventQueue(EventCategory.processAckCallbackEvent);
+							processAckCallbackEventQueue.add(new MessageAckCallbackEvent(nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime(), nodeAccessor.getProcessEventProxy(), MessageAckCallbackType.DELIVERED, ackPr.getAckCallback(), ackPr.getAckCallbackArg()));
 						}
 					}
 				}
@@ -235,6 +327,56 @@ public class HyCubeAckManager {
 	
 	
 	
+	protected RecipientKey getRecipientKey(AckProcessInfo ackPr) {
+		return getRecipientKey(ackPr.getMessage().getRecipientId(), ackPr);
+	}
+	
+	protected RecipientKey getRecipientKey(NodeId nodeId, AckProcessInfo ackPr) {
+		return new RecipientKey(nodeId.calculateHash(), (ackPr.getDirectRecipient() != null ? ackPr.getDirectRecipient().getAddressString() : null));
+	}
+	
+	
+	/**
+	 * Adds the RTT sample of the message, if the message was not resent (Karn's algorithm), to the end-to-end estimate of the node that acknowledged the message (and the direct recipient) kept by the ack manager.
+	 * If the ack was sent directly by the direct recipient (the direct recipient is the recipient of the message), the sample is also added to the RTT estimate kept by the network adapter
+	 */
+	protected void sampleRtt(AckProcessInfo ackPr, HyCubeMessage ackMsg) {
+		if (ackPr.getSendCounter() != 1) return;
+		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
+		double rtt = (System.nanoTime() - ackPr.getSendTimeNanos()) / 1000000.0;
+		NetworkNodePointer directRecipient = ackPr.getDirectRecipient();
+		if (directRecipient != null && ackMsg.getHopCount() == 1 && Arrays.equals(directRecipient.getAddressBytes(), ackMsg.getSenderNetworkAddress())) {
+			nodeAccessor.getNetworkAdapter().addRttSample(directRecipient, rtt);
+		}
+		//the estimate of the node that acknowledged the message (if the recipient id is a node id, the messages are acknowledged by that node):
+		RecipientKey recipientKey = getRecipientKey(ackMsg.getSenderId(), ackPr);
+		RttEstimate rttEstimate;
+		synchronized (recipientRttEstimates) {
+			rttEstimate = recipientRttEstimates.get(recipientKey);
+			if (rttEstimate == null) {
+				rttEstimate = new RttEstimate();
+				recipientRttEstimates.put(recipientKey, rttEstimate);
+			}
+		}
+		rttEstimate.addSample(rtt, currTime);
+	}
+	
+	
+	/**
+	 * Returns the ack timeout of the message: the retransmission timeout calculated from the end-to-end RTT estimate of the recipient (reached through the same direct recipient),
+	 * or the static ack timeout if the RTT was not measured, backed off exponentially for the resent messages.
+	 * The RTT estimate of the direct recipient kept by the network adapter is not used, as the direct recipient may route the message further
+	 */
+	public long getAckTimeout(AckProcessInfo ackPr) {
+		RttEstimate rttEstimate;
+		synchronized (recipientRttEstimates) {
+			rttEstimate = recipientRttEstimates.get(getRecipientKey(ackPr));
+		}
+		return nodeAccessor.getNodeParameterSet().getAdaptiveTimeout(rttEstimate, nodeAccessor.getNodeParameterSet().getAckTimeout(), Math.max(ackPr.getSendCounter(), 1));
+	}
+	
+	
+	
 	public void processAwaitingAcks() throws BackgroundProcessException {
 		
 		if (devLog.isDebugEnabled()) {
@@ -242,28 +384,26 @@ public class HyCubeAckManager {
 		}
 		
     	long currTimestamp = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
-    	List<Integer> ackPrToRemove = null;
-    	List<AckProcessInfo> ackPrAwaitingList = null;
     	
 
-    	//check map
+    	//get the entries whose discard timestamps passed (only the wheel buckets of the elapsed ticks are visited)
     	
-    	synchronized (ackAwaitingLock) {
-	    	ackPrToRemove = new ArrayList<Integer>(ackAwaitingMap.size());
-	    	ackPrAwaitingList = new ArrayList<AckProcessInfo>(ackAwaitingMap.size());
-	    	ackPrAwaitingList.addAll(ackAwaitingMap.values());
-    	}
+    	List<AckProcessInfo> ackPrExpiredList = new ArrayList<AckProcessInfo>();
+    	pendingAckTable.pollExpired(currTimestamp, ackPrExpiredList);
 	    
-    	for (AckProcessInfo ackPr : ackPrAwaitingList) {
+    	for (AckProcessInfo ackPr : ackPrExpiredList) {
 	    	synchronized (ackPr) {
 	    		if (! ackPr.isProcessed()) {	//for thread safety check if processed (another thread could have processed it meanwhile)
 			   		if (ackPr.getDiscardTimestamp() <= currTimestamp) {
 			   			ackPr.discard();	//will decrease the remaining send attempts number
 			   			ackPr.setProcessed();
 			   			
+			   			//remove from the pending ack table (if the message is resent, the new ack process info will be added before sending)
+			   			pendingAckTable.remove(ackPr);
+			   			
 			   			if (ackPr.getSendAttempts() > 0) {
 
-			   				//resend, (don't remove from ackResendAwaitingMap -> the element will be replaced by the new one)
+			   				//resend
 			   				if (applySecureRoutingAfterNotDeliveredCount != 0 && ackPr.getSendCounter() >= applySecureRoutingAfterNotDeliveredCount) {
 			   					ackPr.getMessage().setSecureRoutingApplied(true);
 			   				}
@@ -278,7 +418,6 @@ public class HyCubeAckManager {
 			   				
 			   				try {
 			   					nodeAccessor.resendMessage(ackPr);
-								//the ackProcessInfo will be replaced by the new one before resending -> no need to remove this one (will not be processed again, -> setProcessed() called)
 							} catch (Exception e) {
 								throw new BackgroundProcessException("An exception thrown while resending a message.", e);
 							}
@@ -293,9 +432,6 @@ public class HyCubeAckManager {
 			   				
 			   				//do not retry sending
 			   				
-				   			//remove from ackResendAwaitingMap
-			   				ackPrToRemove.add(ackPr.getMessageSerialNo());
-			   				
 			   				if (ackPr.getAckCallback() != null) {
 					    		//don't callback immediately, let the user callback code be executed by a designated thread, add to the queue
 						   		BlockingQueue<Event> processAckCallbackEventQueue = nodeAccessor.getEventQueue(EventCategory.processAckCallbackEvent);
@@ -308,11 +444,6 @@ public class HyCubeAckManager {
 
 	    	}
 	    }
-    	synchronized (ackAwaitingLock) {
-		    for (int msgSerialNo : ackPrToRemove) {
-		    	ackAwaitingMap.remove(msgSerialNo);
-		    }
-    	}
     	
     	
     	
@@ -0,0 +1,192 @@
+package net.hycube.messaging.ack;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Table of the messages awaiting acks, keyed by the message serial numbers.
+ * The table is divided into shards (by the serial numbers), each guarded by its own lock, so that the acks received and the messages sent contend only within a shard.
+ * Every shard indexes its entries by the deadlines (discard timestamps) in a hashed timing wheel - the buckets of the wheel correspond to the ticks of tickDuration ms.
+ * Polling the expired entries visits only the buckets of the ticks elapsed since the previous poll, so only the entries that are due are touched (and the entries scheduled
+ * for the next revolutions of the wheel sharing the buckets). The entries are never returned before their deadline, and may be returned up to one tick later.
+ * Removing an entry (when the ack is received) does not touch the wheel - the wheel entry is dropped when its bucket is visited (it is returned only if it is still the wheel entry
+ * of the message serial number, so the entries removed, replaced, or put again with another discard timestamp are not returned for their previous deadlines).
+ *
+ * @author Artur Olszak
+ *
+ */
+public class HyCubePendingAckTable {
+
+	protected static final class WheelEntry {
+
+		protected final AckProcessInfo ackPr;
+		protected final long deadlineTick;
+		protected WheelEntry next;
+
+		protected WheelEntry(AckProcessInfo ackPr, long deadlineTick) {
+			this.ackPr = ackPr;
+			this.deadlineTick = deadlineTick;
+		}
+
+	}
+
+
+	protected static final class Shard {
+
+		//message serial number -> the wheel entry of the pending ack:
+		protected final HashMap<Integer, WheelEntry> pendingAcks;
+		protected final WheelEntry[] wheel;
+		protected long lastProcessedTick;
+
+		protected Shard(int wheelSize, long currentTick) {
+			this.pendingAcks = new HashMap<Integer, WheelEntry>();
+			this.wheel = new WheelEntry[wheelSize];
+			this.lastProcessedTick = currentTick;
+		}
+
+	}
+
+
+	protected final Shard[] shards;
+	protected final int shardMask;
+	protected final long tickDuration;
+	protected final int wheelMask;
+
+
+	/**
+	 * @param shardsNum The number of shards (rounded up to a power of 2)
+	 * @param tickDuration The duration of one tick of the wheel (ms)
+	 * @param wheelSize The number of buckets of the wheel (rounded up to a power of 2)
+	 * @param currentTime The current time (ms)
+	 */
+	public HyCubePendingAckTable(int shardsNum, long tickDuration, int wheelSize, long currentTime) {
+		if (shardsNum <= 0 || shardsNum > (1 << 16)) throw new IllegalArgumentException("The number of shards should be a positive number, not greater than 2^16.");
+		if (tickDuration <= 0) throw new IllegalArgumentException("The tick duration should be a positive number.");
+		if (wheelSize <= 0 || wheelSize > (1 << 20)) throw new IllegalArgumentException("The wheel size should be a positive number, not greater than 2^20.");
+
+		int shardsCount = (shardsNum == 1 ? 1 : Integer.highestOneBit(shardsNum - 1) << 1);
+		int wheelBuckets = (wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1);
+
+		this.shardMask = shardsCount - 1;
+		this.tickDuration = tickDuration;
+		this.wheelMask = wheelBuckets - 1;
+
+		long currentTick = currentTime / tickDuration;
+		this.shards = new Shard[shardsCount];
+		for (int i = 0; i < shardsCount; i++) shards[i] = new Shard(wheelBuckets, currentTick);
+
+	}
+
+
+	protected Shard getShard(int msgSerialNo) {
+		return shards[msgSerialNo & shardMask];
+	}
+
+
+	/**
+	 * Adds the entry (replacing the entry for the same message serial number) and schedules it for its discard timestamp
+	 */
+	public void put(AckProcessInfo ackPr) {
+		Shard shard = getShard(ackPr.getMessageSerialNo());
+		//the deadline tick is rounded up, so that the entry is never returned before its discard timestamp:
+		long deadlineTick = (ackPr.getDiscardTimestamp() + tickDuration - 1) / tickDuration;
+		synchronized (shard) {
+			//the ticks already processed will not be visited again (until the next revolution):
+			if (deadlineTick <= shard.lastProcessedTick) deadlineTick = shard.lastProcessedTick + 1;
+			int bucket = (int) (deadlineTick & wheelMask);
+			WheelEntry entry = new WheelEntry(ackPr, deadlineTick);
+			shard.pendingAcks.put(ackPr.getMessageSerialNo(), entry);
+			entry.next = shard.wheel[bucket];
+			shard.wheel[bucket] = entry;
+		}
+	}
+
+
+	public AckProcessInfo get(int msgSerialNo) {
+		Shard shard = getShard(msgSerialNo);
+		synchronized (shard) {
+			WheelEntry entry = shard.pendingAcks.get(msgSerialNo);
+			return (entry != null ? entry.ackPr : null);
+		}
+	}
+
+
+	/**
+	 * Removes the entry, if the message serial number is still mapped to it
+	 * @return true if the entry was removed
+	 */
+	public boolean remove(AckProcessInfo ackPr) {
+		Shard shard = getShard(ackPr.getMessageSerialNo());
+		synchronized (shard) {
+			WheelEntry entry = shard.pendingAcks.get(ackPr.getMessageSerialNo());
+			if (entry != null && entry.ackPr == ackPr) {
+				shard.pendingAcks.remove(ackPr.getMessageSerialNo());
+				return true;
+			}
+			else return false;
+		}
+	}
+
+
+	/**
+	 * Adds the entries whose discard timestamps passed to the list. The entries remain in the table (they should be removed or replaced by the caller), but are not returned again.
+	 */
+	public void pollExpired(long currentTime, List<AckProcessInfo> expired) {
+
+		long currentTick = currentTime / tickDuration;
+
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				if (currentTick <= shard.lastProcessedTick) continue;
+
+				long fromTick = shard.lastProcessedTick + 1;
+				if (currentTick - fromTick > wheelMask) fromTick = currentTick - wheelMask;		//more than one revolution elapsed - visit every bucket once
+
+				for (long tick = fromTick; tick <= currentTick; tick++) {
+					int bucket = (int) (tick & wheelMask);
+					WheelEntry prev = null;
+					WheelEntry entry = shard.wheel[bucket];
+					while (entry != null) {
+						WheelEntry next = entry.next;
+						if (entry.deadlineTick <= currentTick) {
+							//unlink the entry:
+							if (prev == null) shard.wheel[bucket] = next;
+							else prev.next = next;
+							if (shard.pendingAcks.get(entry.ackPr.getMessageSerialNo()) == entry) {
+								expired.add(entry.ackPr);
+							}
+						}
+						else prev = entry;
+						entry = next;
+					}
+				}
+
+				shard.lastProcessedTick = currentTick;
+			}
+		}
+
+	}
+
+
+	public int size() {
+		int size = 0;
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				size += shard.pendingAcks.size();
+			}
+		}
+		return size;
+	}
+
+
+	public void clear() {
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				shard.pendingAcks.clear();
+				for (int i = 0; i < shard.wheel.length; i++) shard.wheel[i] = null;
+			}
+		}
+	}
+
+
+}
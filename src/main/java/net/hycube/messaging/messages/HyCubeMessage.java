@@ -46,6 +46,16 @@ public class HyCubeMessage implements Message {
 	public static final short MSG_CODE_REFRESH_PUT = 			21;
 	public static final short MSG_CODE_REFRESH_PUT_REPLY =		22;
 	public static final short MSG_CODE_REPLICATE =				23;
+	public static final short MSG_CODE_REPLICATE_DIGEST =		24;
+	public static final short MSG_CODE_REPLICATE_DIGEST_REPLY =	25;
+	public static final short MSG_CODE_REPLICATE_FETCH =			26;
+	public static final short MSG_CODE_REPLICATE_FETCH_REPLY =	27;
+	public static final short MSG_CODE_PUT_BATCH =				28;
+	public static final short MSG_CODE_PUT_BATCH_REPLY =			29;
+	public static final short MSG_CODE_GET_BATCH =				30;
+	public static final short MSG_CODE_GET_BATCH_REPLY =			31;
+	public static final short MSG_CODE_DELETE_BATCH =			32;
+	public static final short MSG_CODE_DELETE_BATCH_REPLY =		33;
 	
 	
 	
@@ -124,6 +134,23 @@ public class HyCubeMessage implements Message {
 	protected byte[][] headerExtensions;
 	
 	
+	//fields of messages created with fromBuffer (views of the message bytes) that are decoded when they are first accessed:
+	protected static final int LAZY_FIELD_SENDER_ID = 1;
+	protected static final int LAZY_FIELD_RECIPIENT_ID = 1 << 1;
+	protected static final int LAZY_FIELD_STEINHAUS_POINT_ID = 1 << 2;
+	protected static final int LAZY_FIELD_SENDER_NETWORK_ADDRESS = 1 << 3;
+	protected static final int LAZY_FIELD_HEADER_EXTENSIONS = 1 << 4;
+	protected static final int LAZY_FIELD_DATA = 1 << 5;
+	protected static final int LAZY_FIELDS_ALL = LAZY_FIELD_SENDER_ID | LAZY_FIELD_RECIPIENT_ID | LAZY_FIELD_STEINHAUS_POINT_ID | LAZY_FIELD_SENDER_NETWORK_ADDRESS | LAZY_FIELD_HEADER_EXTENSIONS | LAZY_FIELD_DATA;
+	
+	//message bytes (read-only, position 0 is the beginning of the message, the limit is the message length) - the source of the fields not decoded yet:
+	protected ByteBuffer messageBuffer;
+	
+	//fields not decoded yet (bit mask of LAZY_FIELD_... values), 0 for messages not created with fromBuffer
+	//volatile - the getters check it without locking: a field value is always set before its bit is cleared, so a cleared bit guarantees that the value is visible:
+	protected volatile int lazyFields;
+	
+	
 	
 	
 	
@@ -287,6 +314,127 @@ public class HyCubeMessage implements Message {
 	protected static int getCRCPosition() {
 		return crcPosition;
 	}
+	
+	
+	protected static final int senderIdPosition =
+			crcPosition
+			+ 4											//CRC32 -> 4 bytes
+			+ Integer.SIZE / 8							//message serial number
+			+ Short.SIZE / 8							//ttl
+			+ Short.SIZE / 8							//hop count
+			+ Short.SIZE / 8							//source HyCube port
+			+ Short.SIZE / 8							//destination HyCube port
+			;
+	
+	protected int getLazyFieldPosition(int field) {
+		int nodeIdByteLength = HyCubeNodeId.getByteLength(nodeIdDimensions, nodeIdDigitsCount);
+		switch (field) {
+			case LAZY_FIELD_SENDER_ID:
+				return senderIdPosition;
+			case LAZY_FIELD_RECIPIENT_ID:
+				return senderIdPosition + nodeIdByteLength;
+			case LAZY_FIELD_STEINHAUS_POINT_ID:
+				return senderIdPosition + 2 * nodeIdByteLength;
+			case LAZY_FIELD_SENDER_NETWORK_ADDRESS:
+				return senderIdPosition + 3 * nodeIdByteLength;
+			case LAZY_FIELD_HEADER_EXTENSIONS:
+				return senderIdPosition + 3 * nodeIdByteLength + networkAddressByteLength + Integer.SIZE / 8 + MSG_HEADER_OPTIONS_LENGTH;
+			case LAZY_FIELD_DATA:
+				return getHeaderLength();
+			default:
+				throw new IllegalArgumentException("Invalid field specified.");
+		}
+	}
+	
+	
+	//decodes the field from the message buffer (if it was not decoded yet)
+	protected synchronized void decodeLazyField(int field) {
+		
+		if ((lazyFields & field) == 0) return;
+		
+		int position = getLazyFieldPosition(field);
+		
+		switch (field) {
+			case LAZY_FIELD_SENDER_ID:
+				senderId = decodeNodeId(position);
+				break;
+			case LAZY_FIELD_RECIPIENT_ID:
+				recipientId = decodeNodeId(position);
+				break;
+			case LAZY_FIELD_STEINHAUS_POINT_ID:
+				steinhausPointId = decodeNodeId(position);
+				break;
+			case LAZY_FIELD_SENDER_NETWORK_ADDRESS:
+				senderNetworkAddress = getMessageBufferBytes(position, networkAddressByteLength);
+				break;
+			case LAZY_FIELD_HEADER_EXTENSIONS:
+				byte[][] extensions = new byte[headerExtensionsCount][];
+				for (int i = 0; i < headerExtensionsCount; i++) {
+					extensions[i] = getMessageBufferBytes(position, headerExtensionLengths[i]);
+					position += headerExtensionLengths[i];
+				}
+				headerExtensions = extensions;
+				break;
+			case LAZY_FIELD_DATA:
+				data = getMessageBufferBytes(position, messageBuffer.limit() - position);
+				break;
+			default:
+				throw new IllegalArgumentException("Invalid field specified.");
+		}
+		
+		//the bit is cleared after the decoded value is set (published by the volatile write):
+		lazyFields = lazyFields & (~field);
+		
+	}
+	
+	//decodes all fields not decoded yet and releases the message buffer
+	protected synchronized void decodeLazyFields() {
+		for (int field = 1; field <= LAZY_FIELDS_ALL; field = field << 1) {
+			decodeLazyField(field);
+		}
+		messageBuffer = null;
+	}
+	
+	//marks the field as decoded (the field value is set and should not be decoded from the message buffer)
+	//should be called after the field value is set, by the thread holding the lock of the message object (so that the value is not overwritten by a concurrent decodeLazyField call)
+	protected synchronized void clearLazyField(int field) {
+		lazyFields = lazyFields & (~field);
+	}
+	
+	protected HyCubeNodeId decodeNodeId(int position) {
+		try {
+			return HyCubeNodeId.fromBytes(getMessageBufferBytes(position, HyCubeNodeId.getByteLength(nodeIdDimensions, nodeIdDigitsCount)), nodeIdDimensions, nodeIdDigitsCount, MESSAGE_BYTE_ORDER);
+		} catch (NodeIdByteConversionException e) {
+			throw new MessageByteConversionRuntimeException("Error while converting the message bytes to message object. Could not convert the byte representation of the node id.", e);
+		}
+	}
+	
+	protected byte[] getMessageBufferBytes(int position, int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer b = messageBuffer.duplicate();
+		b.position(position);
+		b.get(bytes);
+		return bytes;
+	}
+	
+	//puts the bytes of the message buffer to the buffer b (without decoding)
+	protected void putMessageBufferBytes(ByteBuffer b, int position, int length) {
+		ByteBuffer src = messageBuffer.duplicate();
+		src.limit(position + length);
+		src.position(position);
+		b.put(src);
+	}
+	
+	protected int getDataLength() {
+		if ((lazyFields & LAZY_FIELD_DATA) != 0) {
+			synchronized (this) {
+				if ((lazyFields & LAZY_FIELD_DATA) != 0) return messageBuffer.limit() - getHeaderLength();
+			}
+		}
+		byte[] data = this.data;
+		if (data != null) return data.length;
+		else return 0;
+	}
 
 	
 	
@@ -301,11 +449,18 @@ public class HyCubeMessage implements Message {
 	}
 	
 	public HyCubeNodeId getSenderId() {
+		if ((lazyFields & LAZY_FIELD_SENDER_ID) != 0) decodeLazyField(LAZY_FIELD_SENDER_ID);
 		return senderId;
 	}
 
 	public void setSenderId(HyCubeNodeId senderId) {
-		this.senderId = senderId;
+		if (lazyFields != 0) {
+			synchronized (this) {
+				this.senderId = senderId;
+				clearLazyField(LAZY_FIELD_SENDER_ID);
+			}
+		}
+		else this.senderId = senderId;
 	}
 	
 
@@ -319,11 +474,18 @@ public class HyCubeMessage implements Message {
 	}
 
 	public HyCubeNodeId getRecipientId() {
+		if ((lazyFields & LAZY_FIELD_RECIPIENT_ID) != 0) decodeLazyField(LAZY_FIELD_RECIPIENT_ID);
 		return recipientId;
 	}
 
 	public void setRecipientId(HyCubeNodeId recipientId) {
-		this.recipientId = recipientId;
+		if (lazyFields != 0) {
+			synchronized (this) {
+				this.recipientId = recipientId;
+				clearLazyField(LAZY_FIELD_RECIPIENT_ID);
+			}
+		}
+		else this.recipientId = recipientId;
 	}
 
 	@Override
@@ -338,19 +500,33 @@ public class HyCubeMessage implements Message {
 
 	
 	public HyCubeNodeId getSteinhausPointId() {
+		if ((lazyFields & LAZY_FIELD_STEINHAUS_POINT_ID) != 0) decodeLazyField(LAZY_FIELD_STEINHAUS_POINT_ID);
 		return steinhausPointId;
 	}
 
 	public void setSteinhausPoint(HyCubeNodeId steinhausPointId) {
-		this.steinhausPointId = steinhausPointId;
+		if (lazyFields != 0) {
+			synchronized (this) {
+				this.steinhausPointId = steinhausPointId;
+				clearLazyField(LAZY_FIELD_STEINHAUS_POINT_ID);
+			}
+		}
+		else this.steinhausPointId = steinhausPointId;
 	}
 	
 	public byte[] getSenderNetworkAddress() {
+		if ((lazyFields & LAZY_FIELD_SENDER_NETWORK_ADDRESS) != 0) decodeLazyField(LAZY_FIELD_SENDER_NETWORK_ADDRESS);
 		return senderNetworkAddress;
 	}
 
 	public void setSenderNetworkAddress(byte[] senderNetworkAddress) {
-		this.senderNetworkAddress = senderNetworkAddress;
+		if (lazyFields != 0) {
+			synchronized (this) {
+				this.senderNetworkAddress = senderNetworkAddress;
+				clearLazyField(LAZY_FIELD_SENDER_NETWORK_ADDRESS);
+			}
+		}
+		else this.senderNetworkAddress = senderNetworkAddress;
 	}
 	
 	public boolean isRegisterRoute() {
@@ -442,6 +618,7 @@ public class HyCubeMessage implements Message {
 	public String getSerialNoAndSenderString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append(serialNo);
+		HyCubeNodeId senderId = getSenderId();
 		if (senderId != null) {
 			sb.append(" (").append(HexFormatter.getHex(senderId.getBytes(ByteOrder.BIG_ENDIAN))).append(")");
 		}
@@ -488,6 +665,7 @@ public class HyCubeMessage implements Message {
 	
 
 	public byte[] getHeaderExtension(int index) {
+		if ((lazyFields & LAZY_FIELD_HEADER_EXTENSIONS) != 0) decodeLazyField(LAZY_FIELD_HEADER_EXTENSIONS);
 		return headerExtensions[index];
 	}
 	
@@ -495,16 +673,24 @@ public class HyCubeMessage implements Message {
 		if (data != null && data.length != headerExtensionLengths[index]) {
 			throw new IllegalArgumentException("Incorrect header extension data length.");
 		}
+		if ((lazyFields & LAZY_FIELD_HEADER_EXTENSIONS) != 0) decodeLazyField(LAZY_FIELD_HEADER_EXTENSIONS);
 		this.headerExtensions[index] = data;
 	}
 	
 	
 	public byte[] getData() {
+		if ((lazyFields & LAZY_FIELD_DATA) != 0) decodeLazyField(LAZY_FIELD_DATA);
 		return data;
 	}
 
 	public void setData(byte[] data) {
-		this.data = data;
+		if (lazyFields != 0) {
+			synchronized (this) {
+				this.data = data;
+				clearLazyField(LAZY_FIELD_DATA);
+			}
+		}
+		else this.data = data;
 	}
 	
 	public int getCRC32() {
@@ -532,89 +718,13 @@ public class HyCubeMessage implements Message {
 		
 		if (!checkMessageFieldsSet()) return 0;
 		
-		int length = getHeaderLength();
-		if (data != null) length += data.length;
+		int length = getByteLength();
 		
 		ByteBuffer b = ByteBuffer.allocate(length);
 		b.order(MESSAGE_BYTE_ORDER);
 		
-		//header:
-		b.putShort(GlobalConstants.PROTOCOL_VERSION);								//version
-		b.putShort((short) 0);														//reserved - should be 0
-		b.putShort(type.getCode());													//message type
-		b.putShort(extType);														//extended message type
-		b.putInt(length);															//message length
-		b.putInt(0);																//zero crc32
-		b.putInt(serialNo);															//message serial number
-		b.putShort(ttl);															//ttl
-		b.putShort(hopCount);														//hop count
-		b.putShort(sourcePort);														//source HyCube port
-		b.putShort(destinationPort);												//destination HyCube port
-//		b.putShort((short)this.nodeIdDimensions);									//dimensions
-//		b.putShort((short)this.nodeIdDigitsCount);									//levels
-		b.put(senderId.getBytes(MESSAGE_BYTE_ORDER));				//senderId
-		b.put(recipientId.getBytes(MESSAGE_BYTE_ORDER));			//recipientId
-		b.put(steinhausPointId.getBytes(MESSAGE_BYTE_ORDER));		//steinhausPointId
-		b.put(senderNetworkAddress);								//sender network address
-		b.putInt(routeId);											//routeId
-		
-		//options:
-		byte[] options = new byte[MSG_HEADER_OPTIONS_LENGTH];
-		
-		//set prefix mismatch heuristic enabled option
-		int pmhByte = MSG_OPTION_NUM_PMH / 8;
-		int pmhBit = MSG_OPTION_NUM_PMH % 8;
-		if (pmhApplied) options[pmhByte] = (byte) (options[pmhByte] | (1 << (7-pmhBit)));
-		
-		//set steinhaus transform enabled option
-		int stByte = MSG_OPTION_NUM_STEINHAUS_TRANSFORM / 8;
-		int stBit = MSG_OPTION_NUM_STEINHAUS_TRANSFORM % 8;
-		if (steinhausTransformApplied) options[stByte] = (byte) (options[stByte] | (1 << (7-stBit)));
-		
-		//set secure routing option
-		int srByte = MSG_OPTION_NUM_SECURE_ROUTING / 8;
-		int srBit = MSG_OPTION_NUM_SECURE_ROUTING % 8;
-		if (secureRoutingApplied) options[srByte] = (byte) (options[srByte] | (1 << (7-srBit)));
-		
-		//set secure routing option
-		int skipRandomNumOfNodesByte = MSG_OPTION_NUM_SKIP_RANDOM_NUM_OF_NODES / 8;
-		int skipRandomNumOfNodesBit = MSG_OPTION_NUM_SKIP_RANDOM_NUM_OF_NODES % 8;
-		if (skipRandomNumOfNodesApplied) options[skipRandomNumOfNodesByte] = (byte) (options[skipRandomNumOfNodesByte] | (1 << (7-skipRandomNumOfNodesBit)));
-		
-		
-		//register route:
-		int registerRouteByte = MSG_OPTION_NUM_REGISTER_ROUTE / 8;
-		int registerRouteBit = MSG_OPTION_NUM_REGISTER_ROUTE % 8;
-		if (registerRoute) options[registerRouteByte] = (byte) (options[registerRouteByte] | (1 << (7-registerRouteBit)));
-		
-		//route back
-		int routeBackByte = MSG_OPTION_NUM_ROUTE_BACK / 8;
-		int routeBackBit = MSG_OPTION_NUM_ROUTE_BACK % 8;
-		if (routeBack) options[routeBackByte] = (byte) (options[routeBackByte] | (1 << (7-routeBackBit)));
-		
-		//anonymous route:
-		int anonymousRouteByte = MSG_OPTION_NUM_ANONYMOUS_ROUTE / 8;
-		int anonymousRouteBit = MSG_OPTION_NUM_ANONYMOUS_ROUTE % 8;
-		if (anonymousRoute) options[anonymousRouteByte] = (byte) (options[anonymousRouteByte] | (1 << (7-anonymousRouteBit)));
-		
-		
-		b.put(options);
-		
-		
-		//header extensions
-		for (int i = 0; i < headerExtensionsCount; i++) {
-			if (headerExtensions[i] != null) {
-				b.put(headerExtensions[i]);
-			}
-			else {
-				b.put(new byte[headerExtensionLengths[i]]);
-			}
-		}
-		
-		
-		
-		//data
-		if (data != null) b.put(data);
+		//message with zero crc32:
+		putMessage(b, length);
 		
 		//calculate CRC32
 		byte[] bytes = b.array();
@@ -824,9 +934,7 @@ public class HyCubeMessage implements Message {
 	
 	public int getByteLength() {
 		int headerLength = getHeaderLength();
-		int dataLength;
-		if (data != null) dataLength = data.length;
-		else dataLength = 0;
+		int dataLength = getDataLength();
 		
 		return headerLength + dataLength;
 				
@@ -841,22 +949,72 @@ public class HyCubeMessage implements Message {
 	//converts the message to byte array (the parameter specifies if the checksum should be recalculated or taken from the message object as it is)
 	public byte[] getBytes(boolean recalculateCRC) {
 
+		ByteBuffer b = ByteBuffer.allocate(getByteLength());
+		
+		writeTo(b, recalculateCRC);
+		
+		//return the message byte array
+		return b.array();
+		
+	}
+	
+	
+	//writes the message to the buffer as it is (without recalculating the checksum)
+	public void writeTo(ByteBuffer buffer) {
+		writeTo(buffer, false);
+	}
+	
+	//writes the message to the buffer, starting at the current position of the buffer (the parameter specifies if the checksum should be recalculated or taken from the message object as it is)
+	//the buffer's byte order is set to MESSAGE_BYTE_ORDER, and its position is advanced by the length of the message; if the buffer has not enough space remaining, nothing is written and the exception is thrown
+	public void writeTo(ByteBuffer buffer, boolean recalculateCRC) {
+
 		if (!checkMessageFieldsSet()) {
 			throw new MessageByteConversionRuntimeException("The message cannot be converted to a byte array. All message fields should be set.");
 		}
 		
-		if (recipientId.getDimensions() != nodeIdDimensions || recipientId.getDigitsCount() != nodeIdDigitsCount || steinhausPointId.getDimensions() != nodeIdDimensions || steinhausPointId.getDigitsCount() != nodeIdDigitsCount) {
+		//the fields not decoded yet (copied from the message buffer) have the valid lengths
+		if (((lazyFields & LAZY_FIELD_RECIPIENT_ID) == 0 && (recipientId.getDimensions() != nodeIdDimensions || recipientId.getDigitsCount() != nodeIdDigitsCount)) || ((lazyFields & LAZY_FIELD_STEINHAUS_POINT_ID) == 0 && (steinhausPointId.getDimensions() != nodeIdDimensions || steinhausPointId.getDigitsCount() != nodeIdDigitsCount))) {
 			throw new MessageByteConversionRuntimeException("The message cannot be converted to a byte array. SenderId, RecipientId, SteinhausPointId should have the same number of dimensions and digit count.");
 		}
-		if (senderNetworkAddress.length != networkAddressByteLength) {
+		if ((lazyFields & LAZY_FIELD_SENDER_NETWORK_ADDRESS) == 0 && senderNetworkAddress.length != networkAddressByteLength) {
 			throw new MessageByteConversionRuntimeException("Invalid network address byte length.");
 		}
 		
-		int length = getHeaderLength();
-		if (data != null) length += data.length;
+		int length = getByteLength();
 		
-		ByteBuffer b = ByteBuffer.allocate(length);
-		b.order(MESSAGE_BYTE_ORDER);
+		if (buffer.remaining() < length) {
+			throw new MessageByteConversionRuntimeException("The message cannot be written to the buffer. Insufficient buffer space remaining.");
+		}
+		
+		int messagePosition = buffer.position();
+		
+		buffer.order(MESSAGE_BYTE_ORDER);
+		
+		//message with zero crc32:
+		putMessage(buffer, length);
+		
+		//crc:
+		if (recalculateCRC) {
+			
+			//calculate CRC32
+			
+			ByteBuffer crcBuffer = buffer.duplicate();
+			crcBuffer.position(messagePosition);
+			crcBuffer.limit(messagePosition + length);
+			int crc = CRC32Helper.calculateCRC32(crcBuffer);
+			crc32 = crc;
+			
+		}
+		
+		buffer.putInt(messagePosition + getCRCPosition(), crc32);
+		
+	}
+	
+	
+	//puts the message (with zero crc32) to the buffer at its current position, the fields not decoded yet are copied from the message buffer
+	protected void putMessage(ByteBuffer b, int length) {
+		
+		int lazyFields = this.lazyFields;
 		
 		//header:
 		b.putShort(GlobalConstants.PROTOCOL_VERSION);								//version
@@ -872,94 +1030,61 @@ public class HyCubeMessage implements Message {
 		b.putShort(destinationPort);												//destination port
 //		b.putShort((short)nodeIdDimensions);										//dimensions
 //		b.putShort((short)nodeIdDigitsCount);										//levels
-		b.put(senderId.getBytes(MESSAGE_BYTE_ORDER));				//senderId
-		b.put(recipientId.getBytes(MESSAGE_BYTE_ORDER));			//recipientId
-		b.put(steinhausPointId.getBytes(MESSAGE_BYTE_ORDER));		//steinhausPointId
-		b.put(senderNetworkAddress);								//sender network address
+		int nodeIdByteLength = HyCubeNodeId.getByteLength(nodeIdDimensions, nodeIdDigitsCount);
+		if ((lazyFields & LAZY_FIELD_SENDER_ID) != 0) putMessageBufferBytes(b, getLazyFieldPosition(LAZY_FIELD_SENDER_ID), nodeIdByteLength);
+		else senderId.writeTo(b, MESSAGE_BYTE_ORDER);																				//senderId
+		if ((lazyFields & LAZY_FIELD_RECIPIENT_ID) != 0) putMessageBufferBytes(b, getLazyFieldPosition(LAZY_FIELD_RECIPIENT_ID), nodeIdByteLength);
+		else recipientId.writeTo(b, MESSAGE_BYTE_ORDER);																			//recipientId
+		if ((lazyFields & LAZY_FIELD_STEINHAUS_POINT_ID) != 0) putMessageBufferBytes(b, getLazyFieldPosition(LAZY_FIELD_STEINHAUS_POINT_ID), nodeIdByteLength);
+		else steinhausPointId.writeTo(b, MESSAGE_BYTE_ORDER);																		//steinhausPointId
+		if ((lazyFields & LAZY_FIELD_SENDER_NETWORK_ADDRESS) != 0) putMessageBufferBytes(b, getLazyFieldPosition(LAZY_FIELD_SENDER_NETWORK_ADDRESS), networkAddressByteLength);
+		else b.put(senderNetworkAddress);																							//sender network address
 		b.putInt(routeId);											//routeId
 
 		//options:
-		byte[] options = new byte[MSG_HEADER_OPTIONS_LENGTH];
-				
-		//set prefix mismatch heuristic enabled option
-		int pmhByte = MSG_OPTION_NUM_PMH / 8;
-		int pmhBit = MSG_OPTION_NUM_PMH % 8;
-		if (pmhApplied) options[pmhByte] = (byte) (options[pmhByte] | (1 << (7-pmhBit)));
-		
-		//set steinhaus transform enabled option
-		int stByte = MSG_OPTION_NUM_STEINHAUS_TRANSFORM / 8;
-		int stBit = MSG_OPTION_NUM_STEINHAUS_TRANSFORM % 8;
-		if (steinhausTransformApplied) options[stByte] = (byte) (options[stByte] | (1 << (7-stBit)));
-		
-		//set secure routing option
-		int srByte = MSG_OPTION_NUM_SECURE_ROUTING / 8;
-		int srBit = MSG_OPTION_NUM_SECURE_ROUTING % 8;
-		if (secureRoutingApplied) options[srByte] = (byte) (options[srByte] | (1 << (7-srBit)));
-		
-		//set secure routing option
-		int skipRandomNumOfNodesByte = MSG_OPTION_NUM_SKIP_RANDOM_NUM_OF_NODES / 8;
-		int skipRandomNumOfNodesBit = MSG_OPTION_NUM_SKIP_RANDOM_NUM_OF_NODES % 8;
-		if (skipRandomNumOfNodesApplied) options[skipRandomNumOfNodesByte] = (byte) (options[skipRandomNumOfNodesByte] | (1 << (7-skipRandomNumOfNodesBit)));
-		
-		
-		//register route:
-		int registerRouteByte = MSG_OPTION_NUM_REGISTER_ROUTE / 8;
-		int registerRouteBit = MSG_OPTION_NUM_REGISTER_ROUTE % 8;
-		if (registerRoute) options[registerRouteByte] = (byte) (options[registerRouteByte] | (1 << (7-registerRouteBit)));
-		
-		//route back
-		int routeBackByte = MSG_OPTION_NUM_ROUTE_BACK / 8;
-		int routeBackBit = MSG_OPTION_NUM_ROUTE_BACK % 8;
-		if (routeBack) options[routeBackByte] = (byte) (options[routeBackByte] | (1 << (7-routeBackBit)));
-
-		//register route:
-		int anonymousRouteByte = MSG_OPTION_NUM_ANONYMOUS_ROUTE / 8;
-		int anonymousRouteBit = MSG_OPTION_NUM_ANONYMOUS_ROUTE % 8;
-		if (anonymousRoute) options[anonymousRouteByte] = (byte) (options[anonymousRouteByte] | (1 << (7-anonymousRouteBit)));
-
-		
-		b.put(options);
-		
+		int options = 0;
+		if (pmhApplied) options = options | getOptionMask(MSG_OPTION_NUM_PMH);											//prefix mismatch heuristic enabled option
+		if (steinhausTransformApplied) options = options | getOptionMask(MSG_OPTION_NUM_STEINHAUS_TRANSFORM);				//steinhaus transform enabled option
+		if (secureRoutingApplied) options = options | getOptionMask(MSG_OPTION_NUM_SECURE_ROUTING);						//secure routing option
+		if (skipRandomNumOfNodesApplied) options = options | getOptionMask(MSG_OPTION_NUM_SKIP_RANDOM_NUM_OF_NODES);		//skip random number of nodes option
+		if (registerRoute) options = options | getOptionMask(MSG_OPTION_NUM_REGISTER_ROUTE);								//register route
+		if (routeBack) options = options | getOptionMask(MSG_OPTION_NUM_ROUTE_BACK);										//route back
+		if (anonymousRoute) options = options | getOptionMask(MSG_OPTION_NUM_ANONYMOUS_ROUTE);							//anonymous route
+		
+		for (int i = 0; i < MSG_HEADER_OPTIONS_LENGTH; i++) {
+			b.put((byte) (options >>> (8 * (MSG_HEADER_OPTIONS_LENGTH - 1 - i))));
+		}
 		
-
 		
 		//header extensions
-		for (int i = 0; i < headerExtensionsCount; i++) {
-			if (headerExtensions[i] != null) {
-				b.put(headerExtensions[i]);
-			}
-			else {
-				b.put(new byte[headerExtensionLengths[i]]);
+		if ((lazyFields & LAZY_FIELD_HEADER_EXTENSIONS) != 0) {
+			int headerExtensionsLength = 0;
+			for (int i = 0; i < headerExtensionsCount; i++) headerExtensionsLength += headerExtensionLengths[i];
+			putMessageBufferBytes(b, getLazyFieldPosition(LAZY_FIELD_HEADER_EXTENSIONS), headerExtensionsLength);
+		}
+		else {
+			for (int i = 0; i < headerExtensionsCount; i++) {
+				if (headerExtensions[i] != null) {
+					b.put(headerExtensions[i]);
+				}
+				else {
+					for (int j = 0; j < headerExtensionLengths[i]; j++) b.put((byte) 0);
+				}
 			}
 		}
-
-		
 		
 		
 		//data
-		if (data != null) b.put(data);
-		
-		
-		
-		//crc:
-		if (recalculateCRC) {
-			
-			//calculate CRC32
-			
-			byte[] bytes = b.array();
-			int crc = CRC32Helper.calculateCRC32(bytes);
-			crc32 = crc;
-			
-		}
-
-		b.position(getCRCPosition());
-		b.putInt(crc32);
-				
-				
-		//return the message byte array
-		return b.array();
+		if ((lazyFields & LAZY_FIELD_DATA) != 0) putMessageBufferBytes(b, getLazyFieldPosition(LAZY_FIELD_DATA), messageBuffer.limit() - getLazyFieldPosition(LAZY_FIELD_DATA));
+		else if (data != null) b.put(data);
 		
 	}
+	
+	
+	//returns the mask of the option bit within the options field (the options bytes taken as a big endian number), bits are numbered from the most significant bit of the first options byte
+	protected static int getOptionMask(int optionNum) {
+		return 1 << (8 * MSG_HEADER_OPTIONS_LENGTH - 1 - optionNum);
+	}
 
 	
 	
@@ -976,6 +1101,38 @@ public class HyCubeMessage implements Message {
 			throw new MessageByteConversionException("Error while converting a byte array to message object. Input byte array is null or empty.");
 		}
 		
+		HyCubeMessage msg = fromBuffer(ByteBuffer.wrap(byteArray), dimensions, digitsCount, networkAddressByteLength, headerExtensionLengths);
+		
+		//decode all fields, the message object should not refer to the byte array:
+		try {
+			msg.decodeLazyFields();
+		}
+		catch (MessageByteConversionRuntimeException e) {
+			throw new MessageByteConversionException("Error while converting a byte array to message object.", e);
+		}
+		
+		return msg;
+		
+	}
+	
+	
+	//creates the message object being a view of the message bytes (starting at the current position of the buffer; the position is advanced by the length of the message)
+	//only the fixed-length header fields and the options are decoded immediately. Node ids, sender network address, header extensions and data are decoded when they are first accessed,
+	//and the bytes of the fields that were not accessed are copied directly from the buffer when the message is converted to bytes (e.g. when a message is routed to the next hop, only the recipient id is decoded)
+	//the message refers to the buffer content, which should not be modified afterwards
+	public static HyCubeMessage fromBuffer(ByteBuffer buffer, int dimensions, int digitsCount, int networkAddressByteLength, int[] headerExtensionLengths) throws MessageByteConversionException {
+		
+		if (dimensions <= 0 || dimensions > HyCubeNodeId.MAX_NODE_ID_DIMENSIONS) {
+			throw new IllegalArgumentException("Error while converting the message bytes to message object. Not allowed dimensions count.");
+		}
+		if (digitsCount <= 0 || digitsCount > HyCubeNodeId.MAX_NODE_ID_LEVELS) {
+			throw new IllegalArgumentException("Error while converting the message bytes to message object. Not allowed levels count.");
+		}
+		
+		if (buffer == null || ! buffer.hasRemaining()) {
+			throw new MessageByteConversionException("Error while converting the message bytes to message object. Input buffer is null or empty.");
+		}
+		
 		HyCubeMessage msg = new HyCubeMessage();
 
 		msg.nodeIdDimensions = dimensions;
@@ -991,34 +1148,44 @@ public class HyCubeMessage implements Message {
 			msg.headerExtensionsCount = 0;
 			msg.headerExtensionLengths = new int[0];
 		}
-
-
 		
-		ByteBuffer b = ByteBuffer.wrap(byteArray);
+		for (int i = 0; i < msg.headerExtensionsCount; i++) {
+			if (msg.headerExtensionLengths[i] < 0) {
+				throw new MessageByteConversionException("Could not convert the message bytes to the message object. The header extension length is negative.");
+			}
+		}
+		
+		
+		ByteBuffer b = buffer.slice();
 		b.order(MESSAGE_BYTE_ORDER);
 		
+		int length;
 		
 		try {
 			//header:
 			short version = b.getShort();
 			if (version != GlobalConstants.PROTOCOL_VERSION) {
-				throw new MessageByteConversionException("Error while converting a byte array to message object. Incompatible protocol version.");
+				throw new MessageByteConversionException("Error while converting the message bytes to message object. Incompatible protocol version.");
 			}
 			
-			b.getShort();	//ship two bytes (reserved)
+			b.getShort();	//skip two bytes (reserved)
 			
 			msg.type = HyCubeMessageType.fromCode(b.getShort());
 			if (msg.type == null) {
-				throw new MessageByteConversionException("Error while converting a byte array to message object. Incorrect message type.");
+				throw new MessageByteConversionException("Error while converting the message bytes to message object. Incorrect message type.");
 			}
 	
 			msg.extType = b.getShort();
 			
 			
-			int length = b.getInt();
-			if (length > byteArray.length) {
-				throw new MessageByteConversionException("Error while converting a byte array to message object. The message length from the message header is not equal to the byte array length.");
+			length = b.getInt();
+			if (length > b.limit()) {
+				throw new MessageByteConversionException("Error while converting the message bytes to message object. The message length from the message header exceeds the number of bytes remaining in the buffer.");
+			}
+			if (length < msg.getHeaderLength()) {
+				throw new MessageByteConversionException("Error while converting the message bytes to message object. Message corrupted. Unexpected end of message found.");
 			}
+			b.limit(length);
 			
 			msg.crc32 = b.getInt();
 			
@@ -1030,143 +1197,55 @@ public class HyCubeMessage implements Message {
 			msg.sourcePort = b.getShort();
 			msg.destinationPort = b.getShort();
 			
-//			int dimensions = b.getShort();
-//			int digitsCount = b.getShort();
-//			if (dimensions <= 0 || dimensions > HyCubeNodeId.MAX_NODE_ID_DIMENSIONS) {
-//				throw new IllegalArgumentException("Error while converting a byte array to message object. Not allowed dimensions count.");
-//			}
-//			if (digitsCount <= 0 || digitsCount > HyCubeNodeId.MAX_NODE_ID_LEVELS) {
-//				throw new IllegalArgumentException("Error while converting a byte array to message object. Not allowed levels count.");
-//			}
-			
-			int idByteLength = HyCubeNodeId.getByteLength(dimensions, digitsCount);
-			byte[] senderIdB = new byte[idByteLength];
-			byte[] recipientIdB = new byte[idByteLength];
-			byte[] steinhausPointIdB = new byte[idByteLength];
-			b.get(senderIdB);
-			b.get(recipientIdB);
-			b.get(steinhausPointIdB);
-			try {
-				msg.senderId = HyCubeNodeId.fromBytes(senderIdB, dimensions, digitsCount, MESSAGE_BYTE_ORDER);
-			} catch (NodeIdByteConversionException e) {
-				throw new MessageByteConversionException("Error while converting a byte array to message object. Could not convert the byte representation of senderId.", e);
-			}
-			try {
-				msg.recipientId = HyCubeNodeId.fromBytes(recipientIdB, dimensions, digitsCount, MESSAGE_BYTE_ORDER);
-			} catch (NodeIdByteConversionException e) {
-				throw new MessageByteConversionException("Error while converting a byte array to message object. Could not convert the byte representation of recipientId.", e);
-			}
-			try {
-				msg.steinhausPointId = HyCubeNodeId.fromBytes(steinhausPointIdB, dimensions, digitsCount, MESSAGE_BYTE_ORDER);
-			} catch (NodeIdByteConversionException e) {
-				throw new MessageByteConversionException("Error while converting a byte array to message object. Could not convert the byte representation of steinhausPointId.", e);
-			}
-			
-			
-			
-			//sender network address:
-			byte[] senderNetworkAddress = new byte[msg.networkAddressByteLength];
-			b.get(senderNetworkAddress);
-			msg.senderNetworkAddress = senderNetworkAddress;
-			
 			
+			//node ids and sender network address are decoded when needed:
+			b.position(msg.getLazyFieldPosition(LAZY_FIELD_SENDER_NETWORK_ADDRESS) + msg.networkAddressByteLength);
 			
 			
 			//route id:
 			msg.routeId = b.getInt();
 			
 			
-
-			
-			//options
-			byte[] options = new byte[MSG_HEADER_OPTIONS_LENGTH];
-			b.get(options);
-			
-			//set prefix mismatch heuristic enabled option
-			int pmhByte = MSG_OPTION_NUM_PMH / 8;
-			int pmhBit = MSG_OPTION_NUM_PMH % 8;
-			if ((options[pmhByte] & (1 << (7-pmhBit))) != 0) msg.pmhApplied = true;
-			else msg.pmhApplied = false;
-			
-			//set steinhaus transform enabled option
-			int stByte = MSG_OPTION_NUM_STEINHAUS_TRANSFORM / 8;
-			int stBit = MSG_OPTION_NUM_STEINHAUS_TRANSFORM % 8;
-			if ((options[stByte] & (1 << (7-stBit))) != 0) msg.steinhausTransformApplied = true;
-			else msg.steinhausTransformApplied = false;
-
-			//set secure routing option
-			int srByte = MSG_OPTION_NUM_SECURE_ROUTING / 8;
-			int srBit = MSG_OPTION_NUM_SECURE_ROUTING % 8;
-			if ((options[srByte] & (1 << (7-srBit))) != 0) msg.secureRoutingApplied = true;
-			else msg.secureRoutingApplied = false;
-			
-			//set skipRandomNumOfNodes option
-			int skipRandomNumOfNodesByte = MSG_OPTION_NUM_SKIP_RANDOM_NUM_OF_NODES / 8;
-			int skipRandomNumOfNodesBit = MSG_OPTION_NUM_SKIP_RANDOM_NUM_OF_NODES % 8;
-			if ((options[skipRandomNumOfNodesByte] & (1 << (7-skipRandomNumOfNodesBit))) != 0) msg.skipRandomNumOfNodesApplied = true;
-			else msg.skipRandomNumOfNodesApplied = false;
-			
-			//set record route option
-			int registerRouteByte = MSG_OPTION_NUM_REGISTER_ROUTE / 8;
-			int registerRouteBit = MSG_OPTION_NUM_REGISTER_ROUTE % 8;
-			if ((options[registerRouteByte] & (1 << (7-registerRouteBit))) != 0) msg.registerRoute = true;
-			else msg.registerRoute = false;
-			
-			//set route back option
-			int routeBackByte = MSG_OPTION_NUM_ROUTE_BACK / 8;
-			int routeBackBit = MSG_OPTION_NUM_ROUTE_BACK % 8;
-			if ((options[routeBackByte] & (1 << (7-routeBackBit))) != 0) msg.routeBack = true;
-			else msg.routeBack = false;
-			
-			//set anonymous route option
-			int anonymousRouteByte = MSG_OPTION_NUM_ANONYMOUS_ROUTE / 8;
-			int anonymousRouteBit = MSG_OPTION_NUM_ANONYMOUS_ROUTE % 8;
-			if ((options[anonymousRouteByte] & (1 << (7-anonymousRouteBit))) != 0) msg.anonymousRoute = true;
-			else msg.anonymousRoute = false;
-			
-			
-			
-			
-			//header extensions
-			msg.headerExtensions = new byte[msg.headerExtensionsCount][];
-			for (int i = 0; i < msg.headerExtensionsCount; i++) {
-				int headerExtensionLength = msg.headerExtensionLengths[i];
-
-				if (headerExtensionLength < 0) {
-					throw new MessageByteConversionException("Could not convert the byte array to the message object. The header extensions count is negative.");
-				}
-				
-				byte[] headerExtension = new byte[headerExtensionLength];
-				b.get(headerExtension);
-				
-				msg.headerExtensions[i] = headerExtension;
-				
+			//options:
+			int options = 0;
+			for (int i = 0; i < MSG_HEADER_OPTIONS_LENGTH; i++) {
+				options = (options << 8) | (b.get() & 0xFF);
 			}
-
 			
+			msg.pmhApplied = ((options & getOptionMask(MSG_OPTION_NUM_PMH)) != 0);
+			msg.steinhausTransformApplied = ((options & getOptionMask(MSG_OPTION_NUM_STEINHAUS_TRANSFORM)) != 0);
+			msg.secureRoutingApplied = ((options & getOptionMask(MSG_OPTION_NUM_SECURE_ROUTING)) != 0);
+			msg.skipRandomNumOfNodesApplied = ((options & getOptionMask(MSG_OPTION_NUM_SKIP_RANDOM_NUM_OF_NODES)) != 0);
+			msg.registerRoute = ((options & getOptionMask(MSG_OPTION_NUM_REGISTER_ROUTE)) != 0);
+			msg.routeBack = ((options & getOptionMask(MSG_OPTION_NUM_ROUTE_BACK)) != 0);
+			msg.anonymousRoute = ((options & getOptionMask(MSG_OPTION_NUM_ANONYMOUS_ROUTE)) != 0);
 			
-			//data:
-			int headerLength =  msg.getHeaderLength();
-			byte[] data = Arrays.copyOfRange(byteArray, headerLength, length);
-			msg.data = data;
 			
+			//header extensions and data are decoded when needed
 			
 		}
 		catch (BufferUnderflowException e) {
-			throw new MessageByteConversionException("Error while converting a byte array to message object. Message corrupted. Unexpected end of message found.");
+			throw new MessageByteConversionException("Error while converting the message bytes to message object. Message corrupted. Unexpected end of message found.");
 		}
 		
+		msg.messageBuffer = b.asReadOnlyBuffer();
+		msg.messageBuffer.order(MESSAGE_BYTE_ORDER);
+		msg.lazyFields = LAZY_FIELDS_ALL;
+		
+		buffer.position(buffer.position() + length);
+		
 		return msg;
 		
 	}
 	
 	
 	public boolean checkMessageFieldsSet() {
-		if (senderId == null) return false;
-		if (recipientId == null) return false;
-		if (steinhausPointId == null) return false;
+		//the fields not decoded yet are set (the bits are checked before the values - a value is set before its bit is cleared)
+		if ((lazyFields & LAZY_FIELD_SENDER_ID) == 0 && senderId == null) return false;
+		if ((lazyFields & LAZY_FIELD_RECIPIENT_ID) == 0 && recipientId == null) return false;
+		if ((lazyFields & LAZY_FIELD_STEINHAUS_POINT_ID) == 0 && steinhausPointId == null) return false;
 		if (type == null) return false;
-		if (senderNetworkAddress == null) return false;
+		if ((lazyFields & LAZY_FIELD_SENDER_NETWORK_ADDRESS) == 0 && senderNetworkAddress == null) return false;
 		
 		return true;
 	}
@@ -1189,28 +1268,29 @@ public class HyCubeMessage implements Message {
     		throw new MessageErrorException("CRC32 validation error. Message #" + getSerialNoAndSenderString());
     	}
 
-    	if (nodeIdDimensions != getSenderId().getDimensions()) {
+    	//the node ids not decoded yet (decoded from the message bytes when needed) will have the dimensions and levels count of the message - they are not decoded here 
+    	if ((lazyFields & LAZY_FIELD_SENDER_ID) == 0 && nodeIdDimensions != senderId.getDimensions()) {
     		//sender id dimensions count invalid
     		throw new MessageErrorException("Sender id dimensions count invalid. Message #" + getSerialNoAndSenderString());
     	}
-    	if (nodeIdDigitsCount != getSenderId().getDigitsCount()) {
+    	if ((lazyFields & LAZY_FIELD_SENDER_ID) == 0 && nodeIdDigitsCount != senderId.getDigitsCount()) {
     		//sender id levels count invalid
     		throw new MessageErrorException("Sender id levels count invalid. Message #" + getSerialNoAndSenderString());
     	}
-    	if (nodeIdDimensions != getRecipientId().getDimensions()) {
+    	if ((lazyFields & LAZY_FIELD_RECIPIENT_ID) == 0 && nodeIdDimensions != recipientId.getDimensions()) {
     		//recipient id dimensions count invalid
     		throw new MessageErrorException("Recipient id dimensions count invalid. Message #" + getSerialNoAndSenderString());
     	}
-    	if (nodeIdDigitsCount != getRecipientId().getDigitsCount()) {
+    	if ((lazyFields & LAZY_FIELD_RECIPIENT_ID) == 0 && nodeIdDigitsCount != recipientId.getDigitsCount()) {
     		//recipient id levels count invalid
     		throw new MessageErrorException("Recipient id levels count invalid. Message #" + getSerialNoAndSenderString());
     	}
-    	if (getSteinhausPointId() != null) {
-	    	if (nodeIdDimensions != getSteinhausPointId().getDimensions()) {
+    	if ((lazyFields & LAZY_FIELD_STEINHAUS_POINT_ID) == 0 && steinhausPointId != null) {
+	    	if (nodeIdDimensions != steinhausPointId.getDimensions()) {
 	    		//steinhaus point id dimensions count invalid
 	    		throw new MessageErrorException("Steinhaus point id dimensions count invalid. Message #" + getSerialNoAndSenderString());
 	    	}
-	    	if (nodeIdDigitsCount != getSteinhausPointId().getDigitsCount()) {
+	    	if (nodeIdDigitsCount != steinhausPointId.getDigitsCount()) {
 	    		//steinhaus point id levels count invalid
 	    		throw new MessageErrorException("Steinthaus point id levels count invalid. Message #" + getSerialNoAndSenderString());
 	    	}
@@ -1231,6 +1311,10 @@ public class HyCubeMessage implements Message {
 
 		HyCubeMessage cloned = new HyCubeMessage();
 		
+		//the fields not decoded yet are decoded by the clone from the same (read-only) message buffer:
+		cloned.lazyFields = this.lazyFields;
+		cloned.messageBuffer = this.messageBuffer;
+		
 		
 		cloned.serialNo = this.serialNo;
 		
@@ -1263,9 +1347,11 @@ public class HyCubeMessage implements Message {
 
 		cloned.headerExtensionLengths = this.headerExtensionLengths;
 		cloned.headerExtensionsCount = this.headerExtensionsCount;
-		cloned.headerExtensions = new byte[cloned.headerExtensionsCount][];
-		for (int i = 0; i < cloned.headerExtensionsCount; i++) {
-			cloned.headerExtensions[i] = this.headerExtensions[i];
+		if ((cloned.lazyFields & LAZY_FIELD_HEADER_EXTENSIONS) == 0) {
+			cloned.headerExtensions = new byte[cloned.headerExtensionsCount][];
+			for (int i = 0; i < cloned.headerExtensionsCount; i++) {
+				cloned.headerExtensions[i] = this.headerExtensions[i];
+			}
 		}
 
 	    
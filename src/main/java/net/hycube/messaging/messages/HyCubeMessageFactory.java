@@ -1,6 +1,7 @@
 package net.hycube.messaging.messages;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.HyCubeNodeId;
@@ -157,6 +158,11 @@ public class HyCubeMessageFactory implements MessageFactory {
 	public HyCubeMessage fromBytes(byte[] byteArray) throws MessageByteConversionException {
 		return HyCubeMessage.fromBytes(byteArray, nodeIdFactory.getDimensions(), nodeIdFactory.getDigitsCount(), networkAddressByteLength, headerExtensionLengths);
 	}
+	
+	@Override
+	public HyCubeMessage fromBuffer(ByteBuffer buffer) throws MessageByteConversionException {
+		return HyCubeMessage.fromBuffer(buffer, nodeIdFactory.getDimensions(), nodeIdFactory.getDigitsCount(), networkAddressByteLength, headerExtensionLengths);
+	}
 
 	@Override
 	public int calculateCRC32FromMessageBytes(byte[] messageBytes) throws MessageErrorException {
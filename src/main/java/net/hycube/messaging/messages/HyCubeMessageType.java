@@ -136,6 +136,56 @@ public enum HyCubeMessageType {
      */
     REPLICATE(HyCubeMessage.MSG_CODE_REPLICATE, true),
     
+    /*
+     * Replicate digest
+     */
+    REPLICATE_DIGEST(HyCubeMessage.MSG_CODE_REPLICATE_DIGEST, true),
+    
+    /*
+     * Replicate digest reply
+     */
+    REPLICATE_DIGEST_REPLY(HyCubeMessage.MSG_CODE_REPLICATE_DIGEST_REPLY, true),
+    
+    /*
+     * Replicate fetch
+     */
+    REPLICATE_FETCH(HyCubeMessage.MSG_CODE_REPLICATE_FETCH, true),
+    
+    /*
+     * Replicate fetch reply
+     */
+    REPLICATE_FETCH_REPLY(HyCubeMessage.MSG_CODE_REPLICATE_FETCH_REPLY, true),
+    
+    /*
+     * Put batch (put requests of many keys)
+     */
+    PUT_BATCH(HyCubeMessage.MSG_CODE_PUT_BATCH, true),
+    
+    /*
+     * Put batch reply
+     */
+    PUT_BATCH_REPLY(HyCubeMessage.MSG_CODE_PUT_BATCH_REPLY, true),
+    
+    /*
+     * Get batch (get requests of many keys)
+     */
+    GET_BATCH(HyCubeMessage.MSG_CODE_GET_BATCH, true),
+    
+    /*
+     * Get batch reply
+     */
+    GET_BATCH_REPLY(HyCubeMessage.MSG_CODE_GET_BATCH_REPLY, true),
+    
+    /*
+     * Delete batch (delete requests of many keys)
+     */
+    DELETE_BATCH(HyCubeMessage.MSG_CODE_DELETE_BATCH, true),
+    
+    /*
+     * Delete batch reply
+     */
+    DELETE_BATCH_REPLY(HyCubeMessage.MSG_CODE_DELETE_BATCH_REPLY, true),
+    
     ;
     
 
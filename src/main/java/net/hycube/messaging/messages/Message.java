@@ -1,5 +1,7 @@
 package net.hycube.messaging.messages;
 
+import java.nio.ByteBuffer;
+
 import net.hycube.core.NodeId;
 
 public interface Message extends Cloneable {
@@ -49,6 +51,10 @@ public interface Message extends Cloneable {
 	
 	public byte[] getBytes(boolean recalculateCRC);
 	
+	public void writeTo(ByteBuffer buffer);
+	
+	public void writeTo(ByteBuffer buffer, boolean recalculateCRC);
+	
 	public int getByteLength();
 	
 	public boolean checkMessageFieldsSet();
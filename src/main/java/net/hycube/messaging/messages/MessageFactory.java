@@ -1,5 +1,7 @@
 package net.hycube.messaging.messages;
 
+import java.nio.ByteBuffer;
+
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeId;
 import net.hycube.environment.NodeProperties;
@@ -11,6 +13,16 @@ public interface MessageFactory {
 	public Message newDataMessage(int messageSerialNo, NodeId senderId, NodeId recipientId, byte[] senderNetworkAddress, short ttl, short hopCount, short sourcePort, short destinationPort, byte[] data);
 	public Message fromBytes(byte[] byteArray) throws MessageByteConversionException;
 	
+	//creates the message from the remaining bytes of the buffer (the buffer position is not modified), by default the bytes are copied and converted by fromBytes
+	public default Message fromBuffer(ByteBuffer buffer) throws MessageByteConversionException {
+		if (buffer == null) return fromBytes(null);
+		ByteBuffer b = buffer.duplicate();
+		byte[] byteArray = new byte[b.remaining()];
+		b.get(byteArray);
+		return fromBytes(byteArray);
+	}
+	
+	
 	public int calculateCRC32FromMessageBytes(byte[] messageByte) throws MessageErrorException;
 	public int calculateCRC32FromMessageBytesInPlace(byte[] messageBytes) throws MessageErrorException;
 	public int getCRC32FromMessageBytes(byte[] messageBytes) throws MessageErrorException;
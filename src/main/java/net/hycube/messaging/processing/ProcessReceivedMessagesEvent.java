@@ -0,0 +1,37 @@
+package net.hycube.messaging.processing;
+
+import net.hycube.eventprocessing.Event;
+import net.hycube.eventprocessing.EventCategory;
+import net.hycube.eventprocessing.ProcessEventProxy;
+import net.hycube.messaging.messages.Message;
+import net.hycube.transport.NetworkNodePointer;
+
+/**
+ * Event processing a batch of received messages (received by the message receiver at once).
+ * The messages are processed in the order in which they were received, and the event is of the same category as the event processing a single received message
+ * 
+ * @author Artur Olszak
+ *
+ */
+public class ProcessReceivedMessagesEvent extends Event {
+
+	public ProcessReceivedMessagesEvent(long timestamp, ProcessEventProxy processEventProxy,
+			Message[] messages, NetworkNodePointer[] directSenders) {
+		super(timestamp, EventCategory.processReceivedMessageEvent, processEventProxy, createProcessReceivedMessagesEventArg(messages, directSenders));
+	}
+	
+	
+	public static Object[] createProcessReceivedMessagesEventArg(Message[] messages, NetworkNodePointer[] directSenders) {
+		Object[] arg = new Object[] {messages, directSenders};
+		return arg;
+	}
+	
+	public Message[] getMessages() {
+		return (Message[]) this.eventArgs[0];
+	}
+	
+	public NetworkNodePointer[] getDirectSenders() {
+		return (NetworkNodePointer[]) this.eventArgs[1];
+	}
+	
+}
@@ -11,6 +11,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.HyCubeNodeId;
 import net.hycube.core.HyCubeRoutingTable;
+import net.hycube.core.HyCubeRoutingTableSnapshot;
+import net.hycube.core.HyCubeSnapshotRoutingTable;
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeAccessor;
 import net.hycube.core.NodeId;
@@ -234,6 +236,17 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 	
 	public NodePointer[] findNextHops(HyCubeNodeId recipientId, HyCubeNextHopSelectionParameters parameters, int numNextHops) {
 		
+		if (routingTable instanceof HyCubeSnapshotRoutingTable) {
+			//operate on one immutable snapshot of the routing tables (no locking and no copying):
+			HyCubeRoutingTableSnapshot snapshot = ((HyCubeSnapshotRoutingTable)routingTable).getSnapshot();
+			if (useSecureRouting && parameters.isSecureRoutingApplied()) {
+				return findNextHops(snapshot.getSecRoutingTable1(), snapshot.getSecRoutingTable2(), snapshot.getNeighborhoodSet(), null, null, null, recipientId, parameters, numNextHops);
+			}
+			else {
+				return findNextHops(snapshot.getRoutingTable1(), snapshot.getRoutingTable2(), snapshot.getNeighborhoodSet(), null, null, null, recipientId, parameters, numNextHops);
+			}
+		}
+		
 		HyCubeRoutingTable rt = (HyCubeRoutingTable)routingTable;
 		
 		if (useSecureRouting && parameters.isSecureRoutingApplied()) {
@@ -248,6 +261,11 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 
 	
 	
+	/**
+	 * Finds next hops in the given routing tables.
+	 * If the locks are null, the routing tables are treated as immutable (snapshot) and are read without locking and copying.
+	 * Otherwise, the neighborhood set and routing table slots are copied under the read locks before being processed.
+	 */
 	protected NodePointer[] findNextHops(List<RoutingTableEntry>[][] rt1, List<RoutingTableEntry>[][] rt2, List<RoutingTableEntry> ns, ReentrantReadWriteLock rt1Lock, ReentrantReadWriteLock rt2Lock, ReentrantReadWriteLock nsLock, HyCubeNodeId recipientId, HyCubeNextHopSelectionParameters parameters, int numNextHops) {
 		
 		NodePointer[] bestNodes = null;
@@ -273,20 +291,28 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 		
     	
     	
-        //acquire the ns lock:
-        nsLock.readLock().lock();
-        
-        //copy the ns:
-        ArrayList<RoutingTableEntry> nsCopy = new ArrayList<RoutingTableEntry>(ns);
-        
-        //release the ns lock
-        nsLock.readLock().unlock();
+        List<RoutingTableEntry> nsCopy;
+        if (nsLock != null) {
+	        //acquire the ns lock:
+	        nsLock.readLock().lock();
+	        
+	        //copy the ns:
+	        nsCopy = new ArrayList<RoutingTableEntry>(ns);
+	        
+	        //release the ns lock
+	        nsLock.readLock().unlock();
+        }
+        else {
+        	//the ns (snapshot) is immutable:
+        	nsCopy = ns;
+        }
 		
 		
         
         
         //temporary routing table slot copy
-        ArrayList<RoutingTableEntry> tmpRtSlotCopy = new ArrayList<RoutingTableEntry>(routingTable.getRoutingTableSlotSize());
+        ArrayList<RoutingTableEntry> tmpRtSlotCopy = (rt1Lock != null || rt2Lock != null) ? new ArrayList<RoutingTableEntry>(routingTable.getRoutingTableSlotSize()) : null;
+        List<RoutingTableEntry> rtSlot;
         
         
     	
@@ -455,17 +481,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 	        			devLog.trace("Checking RT1 for a node with a closer prefix...");
 	        		}
 	        		
-	        		//acquire the lock
-	            	rt1Lock.readLock().lock();
-	            	
-	            	//copy the rt slot (synchronized with any modifications) and then operate on the copy
-	            	tmpRtSlotCopy.clear();
-	            	tmpRtSlotCopy.addAll(rt1[rt1level][rt1hypercube]);
-	            	
-	            	//release the lock
-	   	            rt1Lock.readLock().unlock();
+	        		//get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+	        		rtSlot = getRoutingTableSlot(rt1, rt1level, rt1hypercube, rt1Lock, tmpRtSlotCopy);
 	   	            
-		            for (RoutingTableEntry rte : tmpRtSlotCopy) {
+		            for (RoutingTableEntry rte : rtSlot) {
 		            	
 		            	if (! rte.isEnabled()) continue;
 		            	
@@ -494,17 +513,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 	        			for (int hypercube = 0; hypercube < ((long)1 << dimensions); hypercube++) {
 	        				if (hypercube != rt1hypercube) {
 	        					
-	        					//acquire the lock
-	        	            	rt1Lock.readLock().lock();
-	        	            	
-	        	            	//copy the rt slot (synchronized with any modifications) and then operate on the copy
-	        	            	tmpRtSlotCopy.clear();
-	        	            	tmpRtSlotCopy.addAll(rt1[rt1level][hypercube]);
-	        	            	
-	        	            	//release the lock
-	        	   	            rt1Lock.readLock().unlock();
+	        					//get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+	        					rtSlot = getRoutingTableSlot(rt1, rt1level, hypercube, rt1Lock, tmpRtSlotCopy);
 	        	   	            
-			    	            for (RoutingTableEntry rte : tmpRtSlotCopy) {
+			    	            for (RoutingTableEntry rte : rtSlot) {
 			    	            	
 			    	            	if (! rte.isEnabled()) continue;
 			    	            	
@@ -596,17 +608,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 	                        //---------------------------
 	                        //sibling hypercube from RT2:
 	                        
-	                        //acquire the lock
-	        	            rt2Lock.readLock().lock();
-	        	            
-	        	            //copy the rt slot (synchronized with any modifications) and then operate on the copy
-	        	            tmpRtSlotCopy.clear();
-	        	            tmpRtSlotCopy.addAll(rt2[level][dim]);
-	        	            
-	        	            //release the lock
-	        	   	        rt2Lock.readLock().unlock();
+	                        //get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+	                        rtSlot = getRoutingTableSlot(rt2, level, dim, rt2Lock, tmpRtSlotCopy);
 	                        
-	                        for (RoutingTableEntry rte : tmpRtSlotCopy) {
+	                        for (RoutingTableEntry rte : rtSlot) {
 	                        
 	                            if (! rte.isEnabled()) continue;
 	                        	
@@ -657,17 +662,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 	                        
                             int hypercube = rt1HypercubePrefix.getDigitAsInt(levels - 1 - level);
 	
-	                        //acquire the lock
-	        	            rt1Lock.readLock().lock();
-	        	            
-	        	            //copy the rt slot (synchronized with any modifications) and then operate on the copy
-	        	            tmpRtSlotCopy.clear();
-	        	            tmpRtSlotCopy.addAll(rt1[level][hypercube]);
-	        	            
-	        	            //release the lock
-	        	   	        rt1Lock.readLock().unlock();
+	                        //get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+	                        rtSlot = getRoutingTableSlot(rt1, level, hypercube, rt1Lock, tmpRtSlotCopy);
 	        	   	        
-	                        for (RoutingTableEntry rte : tmpRtSlotCopy) {
+	                        for (RoutingTableEntry rte : rtSlot) {
     	
 	                            if (! rte.isEnabled()) continue;
 	                            
@@ -792,17 +790,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 	      					
 		        			if (level == rt1level && hypercube == rt1hypercube) continue;	//was already checked
 	        				
-	       					//acquire the lock
-	       	            	rt1Lock.readLock().lock();
-	       	            	
-	       	            	//copy the rt slot (synchronized with any modifications) and then operate on the copy
-	       	            	tmpRtSlotCopy.clear();
-	       	            	tmpRtSlotCopy.addAll(rt1[level][hypercube]);
-	       	            	
-	       	            	//release the lock
-	       	   	            rt1Lock.readLock().unlock();
+	       					//get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+	       					rtSlot = getRoutingTableSlot(rt1, level, hypercube, rt1Lock, tmpRtSlotCopy);
 	       	   	            
-		    	            for (RoutingTableEntry rte : tmpRtSlotCopy) {
+		    	            for (RoutingTableEntry rte : rtSlot) {
 			    	           	
 			    	           	if (! rte.isEnabled()) continue;
 			    	           	
@@ -859,17 +850,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 		                for (int ii = 0; ii < dimensions; ii++)
 		                {
 
-		                	//acquire the lock
-        	            	rt2Lock.readLock().lock();
-        	            	
-        	            	//copy the rt slot (synchronized with any modifications) and then operate on the copy
-        	            	tmpRtSlotCopy.clear();
-        	            	tmpRtSlotCopy.addAll(rt2[i][ii]);
-        	            	
-        	            	//release the lock
-        	   	            rt2Lock.readLock().unlock();
+		                	//get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+		                	rtSlot = getRoutingTableSlot(rt2, i, ii, rt2Lock, tmpRtSlotCopy);
 		                	
-		                	for (RoutingTableEntry rte : tmpRtSlotCopy) {
+		                	for (RoutingTableEntry rte : rtSlot) {
 		                		
 		                		if (! rte.isEnabled()) continue;
 		                		
@@ -1074,17 +1058,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
                         //---------------------------
                         //sibling hypercube from RT2:                        	
                         
-                        //acquire the lock
-                        rt2Lock.readLock().lock();
-
-                        //copy the rt slot (synchronized with any modifications) and then operate on the copy
-                        tmpRtSlotCopy.clear();
-                        tmpRtSlotCopy.addAll(rt2[level][dim]);
+                        //get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+                        rtSlot = getRoutingTableSlot(rt2, level, dim, rt2Lock, tmpRtSlotCopy);
 
-                        //release the lock
-                        rt2Lock.readLock().unlock();
-
-                        for (RoutingTableEntry rte : tmpRtSlotCopy) {
+                        for (RoutingTableEntry rte : rtSlot) {
 
                         	if (! rte.isEnabled()) continue;
 
@@ -1121,17 +1098,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
                         
                         int hypercube = rt1HypercubePrefix.getDigitAsInt(levels - 1 - level);
 
-                        //acquire the lock
-                        rt1Lock.readLock().lock();
-
-                        //copy the rt slot (synchronized with any modifications) and then operate on the copy
-                        tmpRtSlotCopy.clear();
-                        tmpRtSlotCopy.addAll(rt1[level][hypercube]);
-
-                        //release the lock
-                        rt1Lock.readLock().unlock();
+                        //get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+                        rtSlot = getRoutingTableSlot(rt1, level, hypercube, rt1Lock, tmpRtSlotCopy);
 
-                        for (RoutingTableEntry rte : tmpRtSlotCopy) {
+                        for (RoutingTableEntry rte : rtSlot) {
 
                         	if (! rte.isEnabled()) continue;
 
@@ -1204,17 +1174,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 	        	for (int i = 0; i < levels; i++) {
 	                for (int ii = 0; ii < Integer.rotateLeft(2, dimensions); ii++) {
 	                	
-	                	//acquire the lock
-       	            	rt1Lock.readLock().lock();
-    	            	
-        	            //copy the rt slot (synchronized with any modifications) and then operate on the copy
-        	            tmpRtSlotCopy.clear();
-        	            tmpRtSlotCopy.addAll(rt1[i][ii]);
-        	            
-        	            //release the lock
-        	   	        rt1Lock.readLock().unlock();
+	                	//get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+	                	rtSlot = getRoutingTableSlot(rt1, i, ii, rt1Lock, tmpRtSlotCopy);
 		                	
-		                for (RoutingTableEntry rte : tmpRtSlotCopy) {
+		                for (RoutingTableEntry rte : rtSlot) {
 		                	
 		                	if (! rte.isEnabled()) continue;
 		                	
@@ -1254,17 +1217,10 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 		            for (int ii = 0; ii < dimensions; ii++)
 		            {
 	                	
-	                	//acquire the lock
-    	            	rt2Lock.readLock().lock();
-    	            	
-    	            	//copy the rt slot (synchronized with any modifications) and then operate on the copy
-    	            	tmpRtSlotCopy.clear();
-    	            	tmpRtSlotCopy.addAll(rt2[i][ii]);
-    	            	
-    	            	//release the lock
-    	   	            rt2Lock.readLock().unlock();
+	                	//get the rt slot (the slot of the snapshot, or a copy made under the read lock) and then operate on it
+	                	rtSlot = getRoutingTableSlot(rt2, i, ii, rt2Lock, tmpRtSlotCopy);
 	                	
-	                	for (RoutingTableEntry rte : tmpRtSlotCopy) {
+	                	for (RoutingTableEntry rte : rtSlot) {
 	                		
 	                		if (! rte.isEnabled()) continue;
 	                		
@@ -1437,6 +1393,28 @@ public class HyCubeNextHopSelector extends NextHopSelector {
 
 		
 	}
+	
+	
+	/**
+	 * Returns the routing table slot to be processed. If the lock is null, the routing table is immutable (snapshot) and the slot is returned directly.
+	 * Otherwise, the slot is copied to tmpRtSlotCopy under the read lock (synchronized with any modifications) and the copy is returned.
+	 */
+	protected List<RoutingTableEntry> getRoutingTableSlot(List<RoutingTableEntry>[][] rt, int level, int slot, ReentrantReadWriteLock lock, ArrayList<RoutingTableEntry> tmpRtSlotCopy) {
+		if (lock == null) return rt[level][slot];
+		
+		//acquire the lock
+		lock.readLock().lock();
+		
+		//copy the rt slot
+		tmpRtSlotCopy.clear();
+		tmpRtSlotCopy.addAll(rt[level][slot]);
+		
+		//release the lock
+		lock.readLock().unlock();
+		
+		return tmpRtSlotCopy;
+		
+	}
 
 
 	
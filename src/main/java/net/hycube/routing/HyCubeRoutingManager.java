@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Random;
 
@@ -11,6 +12,7 @@ import net.hycube.common.EntryPoint;
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.HyCubeNodeId;
 import net.hycube.core.HyCubeRoutingTable;
+import net.hycube.core.HyCubeSnapshotRoutingTable;
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeAccessor;
 import net.hycube.core.NodeId;
@@ -336,14 +338,21 @@ public class HyCubeRoutingManager implements RoutingManager {
 				
 				HyCubeRoutingTable rt = (HyCubeRoutingTable)nodeAccessor.getRoutingTable();
 				
-				//acquire the ns lock:
-		        rt.getNsLock().readLock().lock();
-		        
-		        //copy the ns:
-		        ArrayList<RoutingTableEntry> nsCopy = new ArrayList<RoutingTableEntry>(rt.getNeighborhoodSet());
-		        
-		        //release the ns lock
-		        rt.getNsLock().readLock().unlock();
+				List<RoutingTableEntry> nsCopy;
+				if (rt instanceof HyCubeSnapshotRoutingTable) {
+					//the ns of the snapshot is immutable:
+					nsCopy = ((HyCubeSnapshotRoutingTable)rt).getSnapshot().getNeighborhoodSet();
+				}
+				else {
+					//acquire the ns lock:
+			        rt.getNsLock().readLock().lock();
+			        
+			        //copy the ns:
+			        nsCopy = new ArrayList<RoutingTableEntry>(rt.getNeighborhoodSet());
+			        
+			        //release the ns lock
+			        rt.getNsLock().readLock().unlock();
+				}
 				
 				for (RoutingTableEntry rte : nsCopy) {
 					double distRteDest = HyCubeNodeId.calculateDistance((HyCubeNodeId) rte.getNode().getNodeId(), msg.getRecipientId(), Metric.EUCLIDEAN);
@@ -600,7 +609,16 @@ public class HyCubeRoutingManager implements RoutingManager {
 	}
 
 
-	
+
+	public boolean isUseSteinhausTransform() {
+		return useSteinhausTransform;
+	}
+
+	public boolean isEnsureSteinhausPointAnonymity() {
+		return ensureSteinhausPointAnonymity;
+	}
+
+
 	public int getAndReserveNextRandomUnusedRouteId() {
 		long currTime = nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime();
 		return getAndReserveNextRandomUnusedRouteId(currTime);
@@ -11,20 +11,34 @@ import net.hycube.core.NodeId;
 import net.hycube.core.NodePointer;
 import net.hycube.core.RoutingTableEntry;
 import net.hycube.environment.NodeProperties;
+import net.hycube.maintenance.HyCubePnsExtension;
+import net.hycube.transport.NetworkAdapter;
+import net.hycube.transport.RttEstimate;
 
 public class HyCubePnsRTNodeSelector extends HyCubeRTNodeSelector {
 
-
+	protected static final String PROP_KEY_PNS_EXTENSION_KEY = "PnsExtensionKey";
+	
+	
+	protected String pnsExtensionKey;
+	protected HyCubePnsExtension pnsExtension;
+	
+	
+	
 	@Override
 	public void initialize(NodeId nodeId, NodeAccessor nodeAccessor, NodeProperties properties) throws InitializationException {
 		super.initialize(nodeId, nodeAccessor, properties);
 		
 		//parameters
-//		try {
-			
-//		} catch (NodePropertiesConversionException e) {
-//			throw new InitializationException(InitializationException.Error.NODE_INITIALIZATION_ERROR, null, "Unable to initialize rt node selector instance. Invalid parameter value: " + e.getKey() + ".", e);
-//		}
+		pnsExtensionKey = properties.getProperty(PROP_KEY_PNS_EXTENSION_KEY);
+		if (pnsExtensionKey == null || pnsExtensionKey.trim().isEmpty()) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PNS_EXTENSION_KEY), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PNS_EXTENSION_KEY));
+		
+		try {
+			this.pnsExtension = (HyCubePnsExtension) nodeAccessor.getExtension(this.pnsExtensionKey);
+			if (this.pnsExtension == null) throw new InitializationException(InitializationException.Error.MISSING_EXTENSION_ERROR, this.pnsExtensionKey, "The PnsExtension is missing at the specified key: " + this.pnsExtensionKey + ".");
+		} catch (ClassCastException e) {
+			throw new InitializationException(InitializationException.Error.MISSING_EXTENSION_ERROR, this.pnsExtensionKey, "The PnsExtension is missing at the specified key: " + this.pnsExtensionKey + ".");
+		}
 		
 	}
 	
@@ -36,35 +50,46 @@ public class HyCubePnsRTNodeSelector extends HyCubeRTNodeSelector {
 			int routingTableSlotSize,
 			double dist, long currTimestamp) {
 		
+		NetworkAdapter networkAdapter = nodeAccessor.getNetworkAdapter();
+		RttEstimate newRttEstimate = networkAdapter.getRttEstimate(newNode.getNetworkNodePointer());
+		
 		if (routingTableSlot.size() < routingTableSlotSize) {
 			HyCubeRoutingTableSlotInfo slotInfo = new HyCubeRoutingTableSlotInfo(rtType, rtMap, routingTableSlot);
 			RoutingTableEntry rte = initializeRoutingTableEntry(newNode, dist, currTimestamp, slotInfo);
-        	//rte.setData(PNS_DATA...)
+			if (newRttEstimate != null) rte.setData(pnsExtension.getRttRteKey(), newRttEstimate);
         	rtMap.put(newNode.getNodeIdHash(), rte);
+        	routingTableSlot.add(rte);
         	return;
 		}
 		else {
-			int worstNodeIndex = -1;
 			
-			//find worst node:
-	        double worstFun = 0;
+			//the smoothed RTTs are compared (sub-millisecond precision), not the proximities rounded to milliseconds, so that the nodes in the local network may be distinguished:
+			if (newRttEstimate == null || (! newRttEstimate.isMeasured())) {
+				//the RTT will be measured, and the node may replace a slot node the next time it is proposed
+				pnsExtension.queueProbe(newNode);
+				return;
+			}
+			double newRtt = newRttEstimate.getSmoothedRtt();
+			
+			//find the node with the highest RTT (the nodes not measured yet are not replaced - they are pinged by the keep-alive mechanism):
+			int worstNodeIndex = -1;
+	        double worstRtt = 0;
 	        for (int i = 0; i < routingTableSlot.size(); i++) {
-	        	//RoutingTableEntry neigh = routingTableSlot.get(i);
-	        	//PNS_DATA = neigh.getData(...);
-	        	//...
-	            double fun = 0;		//calculate delay!!!???
-	            if (worstNodeIndex == -1 || fun > worstFun) {
-	                worstFun = fun;
+	        	RttEstimate rttEstimate = networkAdapter.getRttEstimate(routingTableSlot.get(i).getNode().getNetworkNodePointer());
+	        	if (rttEstimate == null || (! rttEstimate.isMeasured())) continue;
+	        	double rtt = rttEstimate.getSmoothedRtt();
+	            if (worstNodeIndex == -1 || rtt > worstRtt) {
+	                worstRtt = rtt;
 	                worstNodeIndex = i;
 	            }
 	        }
 	
-	        //check if new node is better than current node in rt
-	        double newFun = 0;		//calculate delay!!!
-	        if (newFun < worstFun) {
+	        //check if new node is closer than the worst node in the slot (by the replace ratio, to avoid replacing the nodes with similar RTTs):
+	        if (worstNodeIndex != -1 && newRtt < worstRtt * pnsExtension.getProximityReplaceRatio()) {
 	        	//replace the worst node with the new node:
 	        	HyCubeRoutingTableSlotInfo slotInfo = new HyCubeRoutingTableSlotInfo(rtType, rtMap, routingTableSlot);
 	        	RoutingTableEntry rte = initializeRoutingTableEntry(newNode, dist, currTimestamp, slotInfo);
+	        	rte.setData(pnsExtension.getRttRteKey(), newRttEstimate);
 	        	rtMap.remove(routingTableSlot.get(worstNodeIndex).getNodeIdHash());
 	        	routingTableSlot.set(worstNodeIndex, rte);
 	        	rtMap.put(newNode.getNodeIdHash(), rte);
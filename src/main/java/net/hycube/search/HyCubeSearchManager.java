@@ -1,11 +1,13 @@
 package net.hycube.search;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.Map.Entry;
 import java.util.Queue;
 
+import net.hycube.common.CallbackFuture;
 import net.hycube.common.EntryPoint;
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.HyCubeNodeId;
@@ -289,6 +291,7 @@ public class HyCubeSearchManager implements SearchManager {
 			
 			//registerSearchCallback
 			searchData.setSearchCallback(searchCallback);
+			if (searchCallback instanceof CallbackFuture) ((CallbackFuture<?>) searchCallback).setRequestId(searchId);
 			searchData.setCallbackArg(callbackArg);
 			
 			
@@ -351,6 +354,44 @@ public class HyCubeSearchManager implements SearchManager {
 
 
 
+	/**
+	 * Cancels the ongoing searches with the specified callback object. The searches data are removed, and the callbacks are not called.
+	 * Responses received later for the cancelled searches are ignored.
+	 * @return The number of searches cancelled
+	 */
+	@Override
+	public int cancelSearch(SearchCallback searchCallback) {
+		int cancelled = 0;
+		synchronized (searchManagerLock) {
+			Iterator<Entry<Integer, HyCubeSearchData>> iter = searchesData.entrySet().iterator();
+			while (iter.hasNext()) {
+				HyCubeSearchData searchData = iter.next().getValue();
+				if (searchData.searchCallback == searchCallback) {
+					iter.remove();
+					searchData.discard();
+					cancelled++;
+				}
+			}
+		}
+		return cancelled;
+	}
+	
+	
+	/**
+	 * Cancels the ongoing search with the specified id (set to the futures returned by the asynchronous node operations). The callback is not called.
+	 * @return true if the search was cancelled
+	 */
+	@Override
+	public boolean cancelSearch(int searchId) {
+		HyCubeSearchData searchData;
+		synchronized (searchManagerLock) {
+			searchData = searchesData.remove(searchId);
+			if (searchData != null) searchData.discard();
+		}
+		return (searchData != null);
+	}
+	
+	
 
 	public void discard() {
 		synchronized (searchManagerLock) {
@@ -803,7 +844,9 @@ public class HyCubeSearchManager implements SearchManager {
 		
 		
 		//schedule the request time out event
-		scheduleRequestTimeout(searchId, recipient.getNodeIdHash(), searchParameters.finalSearch);
+		//(the timeout is derived from the RTT estimate of the recipient, if the adaptive timeouts are enabled)
+		long timeout = nodeAccessor.getNodeParameterSet().getAdaptiveRequestTimeout(nodeAccessor.getNetworkAdapter().getRttEstimate(recipient.getNetworkNodePointer()), requestTimeout);
+		scheduleRequestTimeout(searchId, recipient.getNodeIdHash(), searchParameters.finalSearch, timeout);
 		
 		
 	}
@@ -831,13 +874,13 @@ public class HyCubeSearchManager implements SearchManager {
 	}
 	
 	
-	protected void scheduleRequestTimeout(int searchId, long nodeIdHash, boolean finalSearch) {
-		enqueueSearchRequestTimeoutEvent(searchId, nodeIdHash, finalSearch);
+	protected void scheduleRequestTimeout(int searchId, long nodeIdHash, boolean finalSearch, long timeout) {
+		enqueueSearchRequestTimeoutEvent(searchId, nodeIdHash, finalSearch, timeout);
 		
 		
 	}
 	
-	protected void enqueueSearchRequestTimeoutEvent(int searchId, long nodeIdHash, boolean finalSearch) {
+	protected void enqueueSearchRequestTimeoutEvent(int searchId, long nodeIdHash, boolean finalSearch, long timeout) {
 		
 		//create the event:
 		Event event = new SearchRequestTimeoutEvent(this, searchRequestTimeoutEventProxy, searchId, nodeIdHash, finalSearch);
@@ -845,7 +888,7 @@ public class HyCubeSearchManager implements SearchManager {
 		//schedule the event:
 		Queue<Event> queue = nodeAccessor.getEventQueue(searchRequestTimeoutEventType);
 		EventScheduler scheduler = nodeAccessor.getEventScheduler();
-		scheduler.scheduleEventWithDelay(event, queue, requestTimeout);
+		scheduler.scheduleEventWithDelay(event, queue, timeout);
 		
 		
 	}
@@ -0,0 +1,37 @@
+package net.hycube.search;
+
+import net.hycube.common.CallbackFuture;
+import net.hycube.core.NodePointer;
+
+/**
+ * Search callback completing the future with the search result. Cancelling the future removes the search from the search manager.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class SearchFuture extends CallbackFuture<NodePointer[]> implements SearchCallback {
+
+	protected SearchManager searchManager;
+	
+	
+	public SearchFuture(SearchManager searchManager) {
+		this.searchManager = searchManager;
+	}
+	
+	
+	@Override
+	public void searchReturned(int searchId, Object callbackArg, NodePointer[] result) {
+		complete(result);
+		
+	}
+
+	
+	@Override
+	protected void cancelRequest() {
+		if (isRequestIdSet()) searchManager.cancelSearch(getRequestId());
+		else searchManager.cancelSearch(this);
+		
+	}
+	
+	
+}
@@ -28,6 +28,10 @@ public interface SearchManager {
 	
 	public SearchCallback search(NodeId seachNodeId, NodePointer[] initialNodes, short k, boolean ignoreTargetNode, SearchCallback searchCallback, Object callbackArg, Object[]  parameters);
 	
+	public int cancelSearch(SearchCallback searchCallback);
+	
+	public boolean cancelSearch(int searchId);
+	
 	public EventType getSearchCallbackEventType();
 	
 	public EventType getSearchRequestTimeoutEventType();
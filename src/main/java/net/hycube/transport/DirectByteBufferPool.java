@@ -0,0 +1,88 @@
+package net.hycube.transport;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct (off-heap) byte buffers of the same capacity.
+ * Buffers are allocated when needed, and at most poolSize released buffers are retained for reuse (the remaining ones are left for the garbage collector).
+ * The pool is thread-safe. Buffers are reused in the LIFO order, so that the most recently used (cached) buffers are returned first.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class DirectByteBufferPool {
+
+	protected final int bufferSize;
+	protected final int poolSize;
+
+	protected final ConcurrentLinkedDeque<ByteBuffer> buffers;
+	protected final AtomicInteger pooledBuffersCount;
+
+
+	public DirectByteBufferPool(int bufferSize, int poolSize) {
+		if (bufferSize <= 0) throw new IllegalArgumentException("The buffer size should be a positive number.");
+		if (poolSize < 0) throw new IllegalArgumentException("The pool size should be a non-negative number.");
+
+		this.bufferSize = bufferSize;
+		this.poolSize = poolSize;
+
+		this.buffers = new ConcurrentLinkedDeque<ByteBuffer>();
+		this.pooledBuffersCount = new AtomicInteger(0);
+
+	}
+
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+
+	/**
+	 * Returns a cleared buffer from the pool, or a newly allocated buffer if the pool is empty
+	 * @return
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.pollFirst();
+		if (buffer != null) {
+			pooledBuffersCount.decrementAndGet();
+			buffer.clear();
+		}
+		else {
+			buffer = ByteBuffer.allocateDirect(bufferSize);
+		}
+		return buffer;
+	}
+
+
+	/**
+	 * Returns the buffer (acquired from this pool) to the pool. The buffer should not be used by the caller after it is released
+	 * @param buffer
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.capacity() != bufferSize || ! buffer.isDirect()) return;
+		if (pooledBuffersCount.incrementAndGet() <= poolSize) {
+			buffers.offerFirst(buffer);
+		}
+		else {
+			pooledBuffersCount.decrementAndGet();
+		}
+	}
+
+
+	/**
+	 * Removes all buffers from the pool
+	 */
+	public void clear() {
+		while (buffers.pollFirst() != null) {
+			pooledBuffersCount.decrementAndGet();
+		}
+	}
+
+
+}
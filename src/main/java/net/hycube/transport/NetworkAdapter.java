@@ -14,6 +14,9 @@ import net.hycube.messaging.messages.Message;
  */
 public interface NetworkAdapter {
 
+	public static final long PROXIMITY_UNKNOWN = -1;
+	
+	
 	public boolean isInitialized();
 	
 	
@@ -48,6 +51,13 @@ public interface NetworkAdapter {
 	
 	public void messageReceived(Message msg, NetworkNodePointer directSender);
 	
+	//passes the first count received messages to the node as one batch, the arrays are not retained by the network adapter, by default the messages are passed to messageReceived one by one
+	public default void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders, int count) {
+		for (int i = 0; i < count; i++) {
+			messageReceived(msgs[i], directSenders[i]);
+		}
+	}
+	
 
 	
 	public int getMaxMessageLength();
@@ -76,7 +86,18 @@ public interface NetworkAdapter {
 	
 	
 	
+	//returns the smoothed RTT of the node (milliseconds), or PROXIMITY_UNKNOWN if the RTT was not measured
 	public long getProximity(NetworkNodePointer np);
 	
+	//returns the RTT estimate of the node, or null if the RTT was not measured (by default the RTT is not measured by the network adapter)
+	public default RttEstimate getRttEstimate(NetworkNodePointer np) {
+		return null;
+	}
+	
+	//records the RTT sample (milliseconds, sub-millisecond precision) of the node (should not be called for the retransmitted requests), returns the updated estimate (by default the sample is ignored and null is returned)
+	public default RttEstimate addRttSample(NetworkNodePointer np, double rtt) {
+		return null;
+	}
+	
 
 }
@@ -0,0 +1,75 @@
+package net.hycube.transport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The RTT estimates of the network nodes, kept by the network adapters and used as the network proximity measure.
+ * The table is bounded - the estimates of the nodes least recently sampled or queried are removed. The table is thread-safe.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class NetworkProximityTable {
+
+	protected LinkedHashMap<String, RttEstimate> estimates;
+
+
+	public NetworkProximityTable(final int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("The capacity should be a positive number.");
+		this.estimates = new LinkedHashMap<String, RttEstimate>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, RttEstimate> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+
+	/**
+	 * Adds the RTT sample (milliseconds) of the node
+	 * @return The updated estimate of the node
+	 */
+	public RttEstimate addSample(NetworkNodePointer np, double rtt, long currentTime) {
+		RttEstimate estimate;
+		synchronized (estimates) {
+			estimate = estimates.get(np.getAddressString());
+			if (estimate == null) {
+				estimate = new RttEstimate();
+				estimates.put(np.getAddressString(), estimate);
+			}
+		}
+		estimate.addSample(rtt, currentTime);
+		return estimate;
+	}
+
+
+	/**
+	 * @return The RTT estimate of the node, or null if no samples were taken
+	 */
+	public RttEstimate getEstimate(NetworkNodePointer np) {
+		synchronized (estimates) {
+			return estimates.get(np.getAddressString());
+		}
+	}
+
+
+	/**
+	 * @return The smoothed RTT of the node (rounded to milliseconds), or NetworkAdapter.PROXIMITY_UNKNOWN if no samples were taken
+	 */
+	public long getProximity(NetworkNodePointer np) {
+		RttEstimate estimate = getEstimate(np);
+		if (estimate == null || (! estimate.isMeasured())) return NetworkAdapter.PROXIMITY_UNKNOWN;
+		return Math.round(estimate.getSmoothedRtt());
+	}
+
+
+	public void clear() {
+		synchronized (estimates) {
+			estimates.clear();
+		}
+	}
+
+
+}
@@ -5,6 +5,22 @@ import net.hycube.messaging.messages.Message;
 public interface ReceivedMessageProcessProxy {
 	
 	public void messageReceived(Message msg, NetworkNodePointer directSender);
+	
+	//the arrays (of the same length) are passed to the proxy and should not be modified by the caller afterwards, by default the messages are passed to messageReceived one by one
+	public default void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders) {
+		for (int i = 0; i < msgs.length; i++) {
+			messageReceived(msgs[i], directSenders[i]);
+		}
+	}
+	
+	//the message received by the receiving channel with the index specified (the network adapters receiving with multiple channels), by default the channel index is ignored
+	public default void messageReceived(Message msg, NetworkNodePointer directSender, int channelIndex) {
+		messageReceived(msg, directSender);
+	}
+	
+	public default void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders, int channelIndex) {
+		messagesReceived(msgs, directSenders);
+	}
 
 	
 }
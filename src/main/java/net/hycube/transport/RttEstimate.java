@@ -0,0 +1,94 @@
+package net.hycube.transport;
+
+/**
+ * Smoothed round-trip time estimate of a network node (Jacobson's algorithm, RFC 6298).
+ * Every new sample R updates the variance RTTVAR = (1 - beta) * RTTVAR + beta * |SRTT - R| and the smoothed RTT SRTT = (1 - alpha) * SRTT + alpha * R (alpha = 1/8, beta = 1/4).
+ * The first sample initializes SRTT = R and RTTVAR = R / 2. The samples of retransmitted requests should not be added (Karn's algorithm), as they are ambiguous.
+ * The samples are expressed in milliseconds with sub-millisecond precision (measured with System.nanoTime()), so that the RTTs of the nodes in the local network are not rounded to 0 and may be compared.
+ *
+ * @author Artur Olszak
+ *
+ */
+public class RttEstimate {
+
+	public static final double ALPHA = 0.125;
+	public static final double BETA = 0.25;
+	public static final int K = 4;
+	
+	//clock granularity G (ms):
+	public static final long CLOCK_GRANULARITY = 10;
+
+
+	protected double srtt;
+	protected double rttVar;
+	protected int samplesNum;
+	protected long lastSampleTime;
+
+
+	public RttEstimate() {
+		this.samplesNum = 0;
+	}
+
+
+	/**
+	 * Adds the RTT sample (in milliseconds)
+	 */
+	public synchronized void addSample(double rtt, long currentTime) {
+		if (rtt < 0) rtt = 0;
+		if (samplesNum == 0) {
+			srtt = rtt;
+			rttVar = rtt / 2.0;
+		}
+		else {
+			rttVar = (1 - BETA) * rttVar + BETA * Math.abs(srtt - rtt);
+			srtt = (1 - ALPHA) * srtt + ALPHA * rtt;
+		}
+		if (samplesNum < Integer.MAX_VALUE) samplesNum++;
+		lastSampleTime = currentTime;
+	}
+
+
+	public synchronized boolean isMeasured() {
+		return samplesNum > 0;
+	}
+
+	/**
+	 * The smoothed RTT (SRTT), in milliseconds
+	 */
+	public synchronized double getSmoothedRtt() {
+		return srtt;
+	}
+
+	/**
+	 * The RTT variation (RTTVAR), in milliseconds
+	 */
+	public synchronized double getRttVariance() {
+		return rttVar;
+	}
+
+	public synchronized int getSamplesNum() {
+		return samplesNum;
+	}
+
+	public synchronized long getLastSampleTime() {
+		return lastSampleTime;
+	}
+
+	/**
+	 * The retransmission timeout SRTT + max(G, K * RTTVAR), limited to the range [minTimeout, maxTimeout]
+	 */
+	public synchronized long getTimeout(long minTimeout, long maxTimeout) {
+		long timeout = (long) Math.ceil(srtt + Math.max(CLOCK_GRANULARITY, K * rttVar));
+		if (timeout < minTimeout) timeout = minTimeout;
+		if (timeout > maxTimeout) timeout = maxTimeout;
+		return timeout;
+	}
+
+
+	@Override
+	public synchronized String toString() {
+		return "srtt: " + srtt + ", rttvar: " + rttVar + ", samples: " + samplesNum;
+	}
+
+
+}
@@ -42,6 +42,9 @@ public class UDPNetworkAdapter implements NetworkAdapter {
 	protected static final String PROP_KEY_THROW_WHEN_MAX_MESSAGE_LENGTH_EXCEEDED = "ThrowWhenMaxMessageLengthExceeded";
 	protected static final String PROP_KEY_FRAGMENT_MESSAGES = "FragmentMessages";
 	protected static final String PROP_KEY_MESSAGE_FRAGMENTER = "MessageFragmenter";
+	protected static final String PROP_KEY_PROXIMITY_TABLE_SIZE = "ProximityTableSize";
+	
+	protected static final int DEFAULT_PROXIMITY_TABLE_SIZE = 1024;
 	
 
 	
@@ -71,6 +74,8 @@ public class UDPNetworkAdapter implements NetworkAdapter {
 	protected boolean fragmentMessages;
 	protected MessageFragmenter messageFragmenter;
 	
+	protected NetworkProximityTable proximityTable;
+	
 	
 	public boolean isInitialized() {
 		return initialized;
@@ -183,6 +188,16 @@ public class UDPNetworkAdapter implements NetworkAdapter {
 				
 				this.fragmentMessages = (Boolean) properties.getProperty(PROP_KEY_FRAGMENT_MESSAGES, MappedType.BOOLEAN);
 				
+				int proximityTableSize;
+				if (properties.containsKey(PROP_KEY_PROXIMITY_TABLE_SIZE)) {
+					proximityTableSize = (Integer) properties.getProperty(PROP_KEY_PROXIMITY_TABLE_SIZE, MappedType.INT);
+					if (proximityTableSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PROXIMITY_TABLE_SIZE), "An exception was thrown while initializing the network adapter. Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PROXIMITY_TABLE_SIZE));
+				}
+				else {
+					proximityTableSize = DEFAULT_PROXIMITY_TABLE_SIZE;
+				}
+				this.proximityTable = new NetworkProximityTable(proximityTableSize);
+				
 				
 				
 				if (this.fragmentMessages) {
@@ -409,6 +424,16 @@ public class UDPNetworkAdapter implements NetworkAdapter {
 	
 	
 	
+	@Override
+	public void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders, int count) {
+		//messages are received one at a time by the receivers of this network adapter - the batch is passed message by message
+		for (int i = 0; i < count; i++) {
+			messageReceived(msgs[i], directSenders[i]);
+		}
+	}
+	
+	
+	
 	public void processReceivedMessage(Message msg, NetworkNodePointer directSender) {
 		
 		if (maxMessageLength > 0 && msg.getByteLength() > maxMessageLength) {
@@ -519,10 +544,24 @@ public class UDPNetworkAdapter implements NetworkAdapter {
 	public long getProximity(NetworkNodePointer np) {
 		if (!(np instanceof UDPNodePointer)) throw new IllegalArgumentException("The parameter specified should be an instance of UDPNodePointer.");
 		
-		//!!!
-		//ping the node...
+		return proximityTable.getProximity(np);
+		
+	}
+	
+	@Override
+	public RttEstimate getRttEstimate(NetworkNodePointer np) {
+		if (!(np instanceof UDPNodePointer)) throw new IllegalArgumentException("The parameter specified should be an instance of UDPNodePointer.");
+		
+		return proximityTable.getEstimate(np);
+		
+	}
+	
+	@Override
+	public RttEstimate addRttSample(NetworkNodePointer np, double rtt) {
+		if (!(np instanceof UDPNodePointer)) throw new IllegalArgumentException("The parameter specified should be an instance of UDPNodePointer.");
+		
+		return proximityTable.addSample(np, rtt, nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime());
 		
-		return 0;
 	}
 
 	
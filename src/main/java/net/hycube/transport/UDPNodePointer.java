@@ -50,6 +50,30 @@ public class UDPNodePointer implements NetworkNodePointer, Serializable {
 		
 	}
 	
+	public UDPNodePointer(InetSocketAddress inetSocketAddress) {
+		
+		if (inetSocketAddress == null || inetSocketAddress.getAddress() == null || ! (inetSocketAddress.getAddress() instanceof Inet4Address)) {
+			//as we want the constant IP address byte length of 4 bytes, only IP4 is supported by this NodePointer class
+			throw new IllegalArgumentException("The input address is invalid.");
+		}
+		
+		this.inetSocketAddress = inetSocketAddress;
+		
+		ip = inetSocketAddress.getAddress().getHostAddress();
+		port = inetSocketAddress.getPort();
+		
+		String portString = Integer.toString(port);
+		addressString = new StringBuilder(ip.length() + portString.length() + 1).append(ip).append(":").append(portString).toString();
+		
+		ByteBuffer b = ByteBuffer.allocate(ADDRESS_BYTE_LENGTH);
+		b.order(ByteOrder.BIG_ENDIAN);
+		b.put(inetSocketAddress.getAddress().getAddress());
+		b.putInt(port);
+		addressBytes = b.array();
+		
+	}
+	
+	
 	public UDPNodePointer(byte[] addressBytes) {
 		
 		inetSocketAddress = validateNetworkAddress(addressBytes);
@@ -1,8 +1,6 @@
 package net.hycube.transport;
 
 import java.io.IOException;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
@@ -12,9 +10,12 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
 import net.hycube.configuration.GlobalConstants;
@@ -22,6 +23,7 @@ import net.hycube.core.InitializationException;
 import net.hycube.core.NodeParameterSet;
 import net.hycube.environment.Environment;
 import net.hycube.environment.NodeProperties;
+import net.hycube.environment.NodePropertiesConversionException;
 import net.hycube.eventprocessing.Event;
 import net.hycube.eventprocessing.EventCategory;
 import net.hycube.logging.LogHelper;
@@ -30,6 +32,7 @@ import net.hycube.messaging.messages.MessageByteConversionException;
 import net.hycube.messaging.messages.MessageFactory;
 import net.hycube.utils.ClassInstanceLoadException;
 import net.hycube.utils.ClassInstanceLoader;
+import net.hycube.utils.ObjectToStringConverter.MappedType;
 
 public class UDPSelectorMessageReceiver implements MessageReceiver {
 
@@ -39,21 +42,33 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 	
 	public static final int RECEIVE_BUFFER_SIZE = 65535;
 	public static final int SELECTOR_SELECT_TIMEOUT = 1000;
+	public static final int SENDER_NODE_POINTERS_CACHE_SIZE = 1024;
+	
+	protected static final String PROP_KEY_RECEIVE_BATCH_SIZE = "ReceiveBatchSize";
+	protected static final String PROP_KEY_RECEIVE_BUFFERS_COUNT = "ReceiveBuffersCount";
 	
 	protected NodeProperties properties;
 	protected Selector selector;
 	protected HashMap<String, NetworkAdapter> networkAdapters;
 	protected List<DatagramChannel> channels;
 	protected List<String> addresses;
-	protected HashMap<String, SelectionKey> selectionKeys;
+	protected HashMap<DatagramChannel, SelectionKey> selectionKeys;
 	protected BlockingQueue<Event> receiveEventQueue;
 	protected int currentSocketIndex = 0;
 	protected Object selectLock = new Object();
 	protected boolean initialized = false;
 	protected Environment environment;
 	protected MessageFactory messageFactory;
-	byte[] byteArray = new byte[RECEIVE_BUFFER_SIZE];
-    protected ByteBuffer buff = ByteBuffer.wrap(byteArray);
+	
+	//receive buffers (reused cyclically), the datagrams received in one batch, and the messages of the batch:
+	protected int receiveBatchSize;
+	protected ByteBuffer[] receiveBuffers;
+	protected InetSocketAddress[] receiveSenderAddresses;
+	protected Message[] receivedMessages;
+	protected NetworkNodePointer[] receivedMessagesSenders;
+    
+    //sender network node pointers (recently used), accessed only by the thread holding selectLock:
+    protected LinkedHashMap<InetSocketAddress, NetworkNodePointer> senderNodePointers;
     
     protected boolean hold = false;
     protected boolean wasHeld = false;
@@ -96,7 +111,14 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 		this.networkAdapters = new HashMap<String, NetworkAdapter>();
 		this.addresses = new ArrayList<String>();
 		this.channels = new ArrayList<DatagramChannel>();
-		this.selectionKeys = new HashMap<String, SelectionKey>();
+		this.selectionKeys = new HashMap<DatagramChannel, SelectionKey>();
+		this.senderNodePointers = new LinkedHashMap<InetSocketAddress, NetworkNodePointer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 2466404926811386475L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<InetSocketAddress, NetworkNodePointer> eldest) {
+				return size() > SENDER_NODE_POINTERS_CACHE_SIZE;
+			}
+		};
 		
 		this.receiveEventQueue = receiveEventQueue;
 		
@@ -118,6 +140,29 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 		}
 		
 		
+		//Receive batches:
+		try {
+			receiveBatchSize = (Integer) properties.getProperty(PROP_KEY_RECEIVE_BATCH_SIZE, MappedType.INT);
+			if (receiveBatchSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_RECEIVE_BATCH_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_RECEIVE_BATCH_SIZE));
+			
+			int receiveBuffersCount = (Integer) properties.getProperty(PROP_KEY_RECEIVE_BUFFERS_COUNT, MappedType.INT);
+			if (receiveBuffersCount <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_RECEIVE_BUFFERS_COUNT), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_RECEIVE_BUFFERS_COUNT));
+			//more buffers than datagrams in one batch would never be used:
+			if (receiveBuffersCount > receiveBatchSize) receiveBuffersCount = receiveBatchSize;
+			
+			receiveBuffers = new ByteBuffer[receiveBuffersCount];
+			for (int i = 0; i < receiveBuffersCount; i++) {
+				receiveBuffers[i] = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+			}
+			receiveSenderAddresses = new InetSocketAddress[receiveBuffersCount];
+			receivedMessages = new Message[receiveBatchSize];
+			receivedMessagesSenders = new NetworkNodePointer[receiveBatchSize];
+			
+		} catch (NodePropertiesConversionException e) {
+			throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, e.getKey(), "Invalid parameter value: " + e.getKey(), e);
+		}
+		
+		
 		this.hold = false;
 		this.wasHeld = false;
 		
@@ -161,13 +206,15 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 			}
 			
 			this.networkAdapters.put(networkAdapter.getPublicAddressString(), networkAdapter);
-			DatagramChannel channel = networkAdapter.getChannel();
-			this.channels.add(channel);
 			this.addresses.add(networkAdapter.getPublicAddressString());
 			
 			try {
-				SelectionKey selKey = channel.register(selector, SelectionKey.OP_READ);
-				this.selectionKeys.put(networkAdapter.getPublicAddressString(), selKey);
+				//all channels of the network adapter are processed by the selector:
+				for (DatagramChannel channel : networkAdapter.getChannels()) {
+					this.channels.add(channel);
+					SelectionKey selKey = channel.register(selector, SelectionKey.OP_READ, networkAdapter);
+					this.selectionKeys.put(channel, selKey);
+				}
 			} catch (ClosedChannelException e) {
 				throw new MessageReceiverException("An exception thrown while registering the channel with the selector.", e);
 			} finally {
@@ -212,11 +259,13 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 			}
 			
 			this.networkAdapters.remove(networkAdapter.getPublicAddressString());
-			this.channels.remove(networkAdapter.getChannel());
 			this.addresses.remove(networkAdapter.getPublicAddressString());
 			
 			try {
-				this.selectionKeys.get(networkAdapter.getPublicAddressString()).cancel();
+				for (DatagramChannel channel : networkAdapter.getChannels()) {
+					this.channels.remove(channel);
+					this.selectionKeys.remove(channel).cancel();
+				}
 				//this.selector.keys().remove(this.selectionKeys.get(networkAdapter.getPublicAddressString()));
 			} finally {
 				
@@ -272,12 +321,6 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 			do {
 				Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
 	            while (selectedKeys.hasNext()) {
-	            	SocketAddress sa = null;
-	            	Message msg = null;
-	            	DatagramSocket socket = null;
-	            	String address = null;
-	            	String senderAddress = null;
-	
 	                SelectionKey key = selectedKeys.next();
 	                selectedKeys.remove();
 	 
@@ -287,93 +330,16 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 	
 	                if (key.isReadable()) {
 	                	
-	                	if (devLog.isDebugEnabled()) {
-	    					devLog.debug("Receiving packet from the socket...");
-	    				}
-	                	
-	                	DatagramChannel chan = (DatagramChannel)key.channel();
-	                	socket = chan.socket();
-	                	
-	                	InetAddress socketLocalAddress = socket.getLocalAddress();
-	                	int socketLocalPort = socket.getLocalPort();
-	                		                	
-	                	if (socketLocalAddress == null || socketLocalPort == -1) {
+	                	//the network adapter is attached to the selection key when the channel is registered:
+	                	UDPSelectorNetworkAdapter networkAdapter = (UDPSelectorNetworkAdapter) key.attachment();
+	                	if (networkAdapter == null) {
+	                		devLog.debug("Message receiver received a message for the network address for which the networkAdapter was not registered.");
 	                		continue;
 	                	}
 	                	
-	                	address = new StringBuilder().append(socketLocalAddress.getHostAddress()).append(":").append(socketLocalPort).toString();
-	                	
-	                	
-	                	buff.rewind();
-	                    try {
-							sa = chan.receive(buff);
-	                    } catch (ClosedByInterruptException e) {
-	                    	//do nothing
-	                    	continue;
-						} catch (IOException e) {
-							throw new MessageReceiverException("An exception thrown during channel.receive() call.", e);
-						}
-	                    if (sa == null) {
-	                    	continue;
-	                    }
-	                    
-	                    InetSocketAddress isa = (InetSocketAddress) sa;
-	                    
-	                    senderAddress =  new StringBuilder().append(isa.getAddress().getHostAddress()).append(":").append(isa.getPort()).toString();
-	                    
-	                    
-	            		if (devLog.isDebugEnabled()) {
-	            			devLog.debug("Packet was received from the socket...");
-	            		}	
-	                    
-	                    if (devLog.isDebugEnabled()) {
-	                    	devLog.debug("Converting received packet to a message object...");
-	    				}
-	                    
-	                    try {
-							msg = messageFactory.fromBytes(buff.array());
-						} catch (MessageByteConversionException e) {
-							if (msgLog.isDebugEnabled()) {
-								msgLog.debug("Invalid message - could not convert to the Message object. Message discarded.", e);
-							}
-							if (devLog.isDebugEnabled()) {
-								devLog.debug("Invalid message - could not convert to the Message object. Message discarded.", e);
-							}
-							//the message is invalid, discard -> do nothing
-							continue;
-						}
-	                }
-	                
-	                if (msg != null) {
-	                	
-		                NetworkAdapter networkAdapter;
-		       			
-		       			//enqueue the message:
-		       			networkAdapter = networkAdapters.get(address);
-
-		       			if (networkAdapter == null) {
-		       				devLog.debug("Message receiver received a message for the network address for which the networkAdapter was not registered.");
-		       				//throw new MessageReceiverException("Message receiver received a message for the network address for which the networkAdapter was not registered.");
-		       				continue;
-		       			}
-		       			
-		       			if (devLog.isDebugEnabled()) {
-		       				devLog.debug("Received message: " + msg.getSerialNoAndSenderString());
-		       			}
-		       			if (msgLog.isDebugEnabled()) {
-		       				msgLog.debug("Received message: " + msg.getSerialNoAndSenderString());
-		       			}
-		       			
-	                	if (devLog.isDebugEnabled()) {
-	                		devLog.debug("Passing the received message to the network adapter.");
-	    				}
-	                	
-	                	NetworkNodePointer senderNodePointer = networkAdapter.createNetworkNodePointer(senderAddress);
+	                	receiveMessages((DatagramChannel)key.channel(), networkAdapter);
 	                	
-		       			networkAdapters.get(address).messageReceived(msg, senderNodePointer);
-		       			
 	                }
-	                
 	            }
 	            
 	            try {
@@ -397,6 +363,143 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 		
 	}
 
+	/**
+	 * Receives up to receiveBatchSize datagrams immediately available from the channel and passes them to the network adapter (as one batch).
+	 * The datagrams are received into the receive buffers, and whenever all the buffers are filled (or no more datagrams are available), the received datagrams are converted to message objects
+	 */
+	protected void receiveMessages(DatagramChannel chan, UDPSelectorNetworkAdapter networkAdapter) throws MessageReceiverException {
+		
+		int messagesCount = 0;
+		int pendingCount = 0;
+		
+		for (int i = 0; i < receiveBatchSize; i++) {
+			
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("Receiving packet from the socket...");
+			}
+			
+			ByteBuffer buff = receiveBuffers[pendingCount];
+			buff.clear();
+			
+			SocketAddress sa;
+			try {
+				sa = chan.receive(buff);
+			} catch (ClosedByInterruptException e) {
+				//do nothing
+				break;
+			} catch (IOException e) {
+				throw new MessageReceiverException("An exception thrown during channel.receive() call.", e);
+			}
+			if (sa == null) {
+				break;
+			}
+			
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("Packet was received from the socket...");
+			}
+			
+			buff.flip();
+			receiveSenderAddresses[pendingCount] = (InetSocketAddress) sa;
+			pendingCount++;
+			
+			if (pendingCount == receiveBuffers.length) {
+				messagesCount = convertReceivedDatagrams(networkAdapter, pendingCount, messagesCount);
+				pendingCount = 0;
+			}
+			
+		}
+		
+		if (pendingCount > 0) {
+			messagesCount = convertReceivedDatagrams(networkAdapter, pendingCount, messagesCount);
+		}
+		
+		if (messagesCount == 0) {
+			return;
+		}
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("Passing the received messages (" + messagesCount + ") to the network adapter.");
+		}
+		
+		//enqueue the messages:
+		try {
+			if (messagesCount == 1) {
+				networkAdapter.messageReceived(receivedMessages[0], receivedMessagesSenders[0], networkAdapter.getChannelIndex(chan));
+			}
+			else {
+				networkAdapter.messagesReceived(receivedMessages, receivedMessagesSenders, messagesCount, networkAdapter.getChannelIndex(chan));
+			}
+		}
+		finally {
+			Arrays.fill(receivedMessages, 0, messagesCount, null);
+			Arrays.fill(receivedMessagesSenders, 0, messagesCount, null);
+		}
+		
+	}
+	
+	
+	/**
+	 * Converts the datagrams stored in the first pendingCount receive buffers to message objects, stored in receivedMessages (starting at the index messagesCount). Invalid messages are discarded.
+	 * Returns the number of messages in receivedMessages after the conversion
+	 */
+	protected int convertReceivedDatagrams(UDPSelectorNetworkAdapter networkAdapter, int pendingCount, int messagesCount) {
+		
+		for (int i = 0; i < pendingCount; i++) {
+			
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("Converting received packet to a message object...");
+			}
+			
+			//the message object is a view of the received bytes (decoded lazily), so it needs its own copy of the datagram (exact length), outliving the receive buffer:
+			ByteBuffer buff = receiveBuffers[i];
+			ByteBuffer messageBuffer = ByteBuffer.allocate(buff.remaining());
+			messageBuffer.put(buff);
+			messageBuffer.flip();
+			
+			Message msg;
+			try {
+				msg = messageFactory.fromBuffer(messageBuffer);
+			} catch (MessageByteConversionException e) {
+				if (msgLog.isDebugEnabled()) {
+					msgLog.debug("Invalid message - could not convert to the Message object. Message discarded.", e);
+				}
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("Invalid message - could not convert to the Message object. Message discarded.", e);
+				}
+				//the message is invalid, discard -> do nothing
+				continue;
+			}
+			
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("Received message: " + msg.getSerialNoAndSenderString());
+			}
+			if (msgLog.isDebugEnabled()) {
+				msgLog.debug("Received message: " + msg.getSerialNoAndSenderString());
+			}
+			
+			receivedMessages[messagesCount] = msg;
+			receivedMessagesSenders[messagesCount] = getSenderNodePointer(networkAdapter, receiveSenderAddresses[i]);
+			messagesCount++;
+			
+		}
+		
+		return messagesCount;
+		
+	}
+	
+	
+	/**
+	 * Returns the network node pointer of the sender. The pointers are cached (by the socket address), so that the addresses of the nodes that send messages frequently are not converted for every message
+	 */
+	protected NetworkNodePointer getSenderNodePointer(UDPSelectorNetworkAdapter networkAdapter, InetSocketAddress senderAddress) {
+		NetworkNodePointer senderNodePointer = senderNodePointers.get(senderAddress);
+		if (senderNodePointer == null) {
+			senderNodePointer = networkAdapter.createNetworkNodePointer(senderAddress);
+			senderNodePointers.put(senderAddress, senderNodePointer);
+		}
+		return senderNodePointer;
+	}
+	
 	public void startMessageReceiver() {
 		enqueueMessageReceiverEvent();
 	}
@@ -447,6 +550,11 @@ public class UDPSelectorMessageReceiver implements MessageReceiver {
 			channels = null;
 			addresses = null;
 			selectionKeys = null;
+			senderNodePointers = null;
+			receiveBuffers = null;
+			receiveSenderAddresses = null;
+			receivedMessages = null;
+			receivedMessagesSenders = null;
 			receiveEventQueue = null;
 			currentSocketIndex = 0;
 			environment = null;
@@ -7,9 +7,12 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
 
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.InitializationException;
@@ -45,6 +48,17 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 	protected static final String PROP_KEY_THROW_WHEN_MAX_MESSAGE_LENGTH_EXCEEDED = "ThrowWhenMaxMessageLengthExceeded";
 	protected static final String PROP_KEY_FRAGMENT_MESSAGES = "FragmentMessages";
 	protected static final String PROP_KEY_MESSAGE_FRAGMENTER = "MessageFragmenter";
+	protected static final String PROP_KEY_SEND_BUFFER_POOL_SIZE = "SendBufferPoolSize";
+	protected static final String PROP_KEY_RECEIVE_CHANNELS_COUNT = "ReceiveChannelsCount";
+	protected static final String PROP_KEY_PROXIMITY_TABLE_SIZE = "ProximityTableSize";
+	
+	protected static final int DEFAULT_PROXIMITY_TABLE_SIZE = 1024;
+	
+	//maximal length of the UDP datagram payload (IPv4)
+	public static final int MAX_DATAGRAM_LENGTH = 65507;
+	
+	//SO_REUSEPORT socket option (available since Java 9, and only on some platforms), null if not available:
+	protected static final SocketOption<Boolean> SO_REUSEPORT = getReusePortSocketOption();
 	
 	
 	
@@ -64,6 +78,8 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 	
 	protected InetSocketAddress socketAddress;
 	protected DatagramChannel channel;
+	protected DatagramChannel[] channels;
+	protected int receiveChannelsCount;
 	protected Node node;
 	protected NodeProperties properties;
 	protected NodeAccessor nodeAccessor;
@@ -74,6 +90,11 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 	protected boolean fragmentMessages;
 	protected MessageFragmenter messageFragmenter;
 	
+	protected int sendBufferPoolSize;
+	protected DirectByteBufferPool sendBufferPool;
+	
+	protected NetworkProximityTable proximityTable;
+	
 	
 	public boolean isInitialized() {
 		return initialized;
@@ -114,10 +135,34 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 		return node;
 	}
 	
+	/**
+	 * Returns the channel used for sending messages (also the first of the receiving channels)
+	 * @return
+	 */
 	public DatagramChannel getChannel() {
 		return channel;
 	}
 	
+	/**
+	 * Returns the channels bound to the network address of the adapter (more than one channel if the receive channels sharding is enabled)
+	 * @return
+	 */
+	public DatagramChannel[] getChannels() {
+		return channels;
+	}
+	
+	/**
+	 * Returns the index of the receiving channel (the received messages are passed to the node with the index of the channel), or -1 if the channel is not bound by the adapter
+	 */
+	public int getChannelIndex(DatagramChannel channel) {
+		DatagramChannel[] channels = this.channels;
+		if (channels == null) return -1;
+		for (int i = 0; i < channels.length; i++) {
+			if (channels[i] == channel) return i;
+		}
+		return -1;
+	}
+	
 	
 	@Override
 	public void initialize(String networkAddress, ReceivedMessageProcessProxy receivedMessageProcessProxy, NodeAccessor nodeAccessor, NodeProperties properties) throws InitializationException {
@@ -176,9 +221,41 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 			
 			this.socketAddress = socketAddress;
 			
+			try {
+				this.receiveChannelsCount = (Integer) properties.getProperty(PROP_KEY_RECEIVE_CHANNELS_COUNT, MappedType.INT);
+				if (this.receiveChannelsCount <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_RECEIVE_CHANNELS_COUNT), "An exception was thrown while initializing the network adapter. Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_RECEIVE_CHANNELS_COUNT));
+			} catch (NodePropertiesConversionException e) {
+				throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, e.getKey(), "An exception was thrown while initializing the network adapter. Invalid parameter value: " + e.getKey());
+			}
+			
 			channel = DatagramChannel.open();
+			
+			//multiple channels are bound to the same address only if SO_REUSEPORT is supported (the datagrams are then distributed among the channels by the OS):
+			if (receiveChannelsCount > 1 && (SO_REUSEPORT == null || ! channel.supportedOptions().contains(SO_REUSEPORT))) {
+				if (userLog.isWarnEnabled()) {
+					userLog.warn("SO_REUSEPORT is not supported. The network adapter will use one channel.");
+				}
+				if (devLog.isWarnEnabled()) {
+					devLog.warn("SO_REUSEPORT is not supported. The network adapter will use one channel.");
+				}
+				receiveChannelsCount = 1;
+			}
+			
+			channels = new DatagramChannel[receiveChannelsCount];
+			channels[0] = channel;
+			if (receiveChannelsCount > 1) {
+				channel.setOption(SO_REUSEPORT, true);
+			}
             channel.socket().bind(socketAddress);
             channel.configureBlocking(false);
+            
+            //the remaining channels are bound to the port of the first one (the port might have been chosen by the OS):
+            for (int i = 1; i < receiveChannelsCount; i++) {
+            	channels[i] = DatagramChannel.open();
+            	channels[i].setOption(SO_REUSEPORT, true);
+            	channels[i].socket().bind(new InetSocketAddress(socketAddress.getAddress(), channel.socket().getLocalPort()));
+            	channels[i].configureBlocking(false);
+            }
 
             
             try {
@@ -193,6 +270,27 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 				
 				this.fragmentMessages = (Boolean) properties.getProperty(PROP_KEY_FRAGMENT_MESSAGES, MappedType.BOOLEAN);
 				
+				int proximityTableSize;
+				if (properties.containsKey(PROP_KEY_PROXIMITY_TABLE_SIZE)) {
+					proximityTableSize = (Integer) properties.getProperty(PROP_KEY_PROXIMITY_TABLE_SIZE, MappedType.INT);
+					if (proximityTableSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_PROXIMITY_TABLE_SIZE), "An exception was thrown while initializing the network adapter. Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_PROXIMITY_TABLE_SIZE));
+				}
+				else {
+					proximityTableSize = DEFAULT_PROXIMITY_TABLE_SIZE;
+				}
+				this.proximityTable = new NetworkProximityTable(proximityTableSize);
+				
+				this.sendBufferPoolSize = (Integer) properties.getProperty(PROP_KEY_SEND_BUFFER_POOL_SIZE, MappedType.INT);
+				if (this.sendBufferPoolSize < 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_SEND_BUFFER_POOL_SIZE), "An exception was thrown while initializing the network adapter. Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_SEND_BUFFER_POOL_SIZE));
+				
+				//messages are written directly to pooled direct buffers (large enough to hold any message allowed to be sent), unless the pool is disabled:
+				if (this.sendBufferPoolSize > 0) {
+					this.sendBufferPool = new DirectByteBufferPool((this.maxMessageLength > 0 ? this.maxMessageLength : MAX_DATAGRAM_LENGTH), this.sendBufferPoolSize);
+				}
+				else {
+					this.sendBufferPool = null;
+				}
+				
 				
 				
 				if (this.fragmentMessages) {
@@ -219,9 +317,11 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 			}
             
 
-            channel.socket().setSendBufferSize(this.osSendBufferSize);
-            channel.socket().setReceiveBufferSize(this.osReceiveBufferSize);
-            channel.socket().setSoTimeout(receiveTimeout);
+            for (DatagramChannel ch : channels) {
+	            ch.socket().setSendBufferSize(this.osSendBufferSize);
+	            ch.socket().setReceiveBufferSize(this.osReceiveBufferSize);
+	            ch.socket().setSoTimeout(receiveTimeout);
+            }
             
             
 			this.initialized = true;
@@ -369,8 +469,28 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 		
 		InetSocketAddress inetAddr = udpNodePointer.getInetSocketAddress();	//new InetSocketAddress(udpNodePointer.getIP(), udpNodePointer.getPort());  
 
-		byte[] byteArray = msg.getBytes();
-		ByteBuffer byteBuffer = ByteBuffer.wrap(byteArray);
+		//the message is written directly to a pooled direct buffer (no intermediate byte arrays and no copying to a temporary direct buffer by the channel),
+		//messages not fitting in the pooled buffers are converted to byte arrays:
+		DirectByteBufferPool pool = sendBufferPool;
+		ByteBuffer byteBuffer;
+		boolean pooled;
+		if (pool != null && msg.getByteLength() <= pool.getBufferSize()) {
+			byteBuffer = pool.acquire();
+			try {
+				msg.writeTo(byteBuffer);
+			}
+			catch (RuntimeException e) {
+				pool.release(byteBuffer);
+				throw e;
+			}
+			byteBuffer.flip();
+			pooled = true;
+		}
+		else {
+			byte[] byteArray = msg.getBytes();
+			byteBuffer = ByteBuffer.wrap(byteArray);
+			pooled = false;
+		}
 		
         try {
 			channel.send(byteBuffer, inetAddr);
@@ -378,6 +498,8 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 			//do nothing, the channel was closed
 		} catch (IOException e) {
 			throw new NetworkAdapterException("An exception thrown while sending the message.", e);
+		} finally {
+			if (pooled) pool.release(byteBuffer);
 		}
         
 	}
@@ -386,6 +508,69 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 	
 	@Override
 	public void messageReceived(Message msg, NetworkNodePointer directSender) {
+		messageReceived(msg, directSender, 0);
+	}
+	
+	/**
+	 * Processes the message received by the receiving channel with the index specified (the node may process the messages received by every channel in a separate queue)
+	 */
+	public void messageReceived(Message msg, NetworkNodePointer directSender, int channelIndex) {
+		
+		Message received = reassembleReceivedMessage(msg);
+		
+		if (received != null) {
+			processReceivedMessage(received, directSender, channelIndex);
+		}
+		
+	}
+	
+	
+	@Override
+	public void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders, int count) {
+		messagesReceived(msgs, directSenders, count, 0);
+	}
+	
+	/**
+	 * Processes the messages received by the receiving channel with the index specified (the node may process the messages received by every channel in a separate queue)
+	 */
+	public void messagesReceived(Message[] msgs, NetworkNodePointer[] directSenders, int count, int channelIndex) {
+		
+		Message[] batch = new Message[count];
+		NetworkNodePointer[] batchSenders = new NetworkNodePointer[count];
+		int batchSize = 0;
+		
+		for (int i = 0; i < count; i++) {
+			Message received = reassembleReceivedMessage(msgs[i]);
+			if (received != null && checkReceivedMessageLength(received)) {
+				batch[batchSize] = received;
+				batchSenders[batchSize] = directSenders[i];
+				batchSize++;
+			}
+		}
+		
+		if (batchSize == 0) return;
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("Passing " + batchSize + " received messages to the node.");
+		}
+		if (batchSize == 1) {
+			receivedMessageProcessProxy.messageReceived(batch[0], batchSenders[0], channelIndex);
+		}
+		else if (batchSize == count) {
+			receivedMessageProcessProxy.messagesReceived(batch, batchSenders, channelIndex);
+		}
+		else {
+			receivedMessageProcessProxy.messagesReceived(Arrays.copyOf(batch, batchSize), Arrays.copyOf(batchSenders, batchSize), channelIndex);
+		}
+		
+	}
+	
+	
+	/**
+	 * Returns the message that should be processed by the node (the message itself or the message reassembled from the fragments, if fragmentation is enabled),
+	 * or null if the message should not be processed (yet)
+	 */
+	protected Message reassembleReceivedMessage(Message msg) {
 		
 		if (fragmentMessages) {
 			Message reassembled = null;
@@ -399,7 +584,7 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 				if (msgLog.isInfoEnabled()) {
 					msgLog.info("An exception has been thrown while reassembling the received message #" + msg.getSerialNoAndSenderString() + ". The message will be dropped.", e);
 				}
-				return;
+				return null;
 			}
 			catch (MessageFragmentationRuntimeException e) {
 				if (devLog.isDebugEnabled()) {
@@ -408,15 +593,13 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 				if (msgLog.isInfoEnabled()) {
 					msgLog.info("An exception has been thrown while reassembling the received message #" + msg.getSerialNoAndSenderString() + ". The message will be dropped.", e);
 				}
-				return;
+				return null;
 			}
 			
-			if (reassembled != null) {
-				processReceivedMessage(reassembled, directSender);
-			}
+			return reassembled;
 		}
 		else {
-			processReceivedMessage(msg, directSender);
+			return msg;
 		}
 		
 	}
@@ -424,6 +607,23 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 	
 	
 	public void processReceivedMessage(Message msg, NetworkNodePointer directSender) {
+		processReceivedMessage(msg, directSender, 0);
+	}
+	
+	public void processReceivedMessage(Message msg, NetworkNodePointer directSender, int channelIndex) {
+		
+		if (! checkReceivedMessageLength(msg)) {
+			return;
+		}
+		
+		if (devLog.isDebugEnabled()) {
+			devLog.debug("Passing the received message to the node.");
+		}
+		receivedMessageProcessProxy.messageReceived(msg, directSender, channelIndex);
+	}
+	
+	
+	protected boolean checkReceivedMessageLength(Message msg) {
 		
 		if (maxMessageLength > 0 && msg.getByteLength() > maxMessageLength) {
 			if (devLog.isDebugEnabled()) {
@@ -433,18 +633,17 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 				msgLog.info("The received message #" + msg.getSerialNoAndSenderString() + " exceeds the maximal allowed length and will be dropepd.");
 			}
 
-			return;
+			return false;
 			
 		}
 		
-		if (devLog.isDebugEnabled()) {
-			devLog.debug("Passing the received message to the node.");
-		}
-		receivedMessageProcessProxy.messageReceived(msg, directSender);
+		return true;
+		
 	}
 	
 	
 	
+	
 	protected Message[] fragmentMessage(Message msg) throws MessageFragmentationException {
 		if (messageFragmenter != null) {
 			return messageFragmenter.fragmentMessage(msg);
@@ -500,6 +699,10 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 		return new UDPNodePointer(addressBytes);
 	}
 	
+	public UDPNodePointer createNetworkNodePointer(InetSocketAddress inetSocketAddress) {
+		return new UDPNodePointer(inetSocketAddress);
+	}
+	
 	@Override
 	public InetSocketAddress validateNetworkAddress(String networkAddress) {
 		return UDPNodePointer.validateNetworkAddress(networkAddress);
@@ -530,7 +733,23 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 	public long getProximity(NetworkNodePointer np) {
 		if (!(np instanceof UDPNodePointer)) throw new IllegalArgumentException("The parameter specified should be an instance of UDPNodePointer.");
 		
-		return 0;
+		return proximityTable.getProximity(np);
+		
+	}
+	
+	@Override
+	public RttEstimate getRttEstimate(NetworkNodePointer np) {
+		if (!(np instanceof UDPNodePointer)) throw new IllegalArgumentException("The parameter specified should be an instance of UDPNodePointer.");
+		
+		return proximityTable.getEstimate(np);
+		
+	}
+	
+	@Override
+	public RttEstimate addRttSample(NetworkNodePointer np, double rtt) {
+		if (!(np instanceof UDPNodePointer)) throw new IllegalArgumentException("The parameter specified should be an instance of UDPNodePointer.");
+		
+		return proximityTable.addSample(np, rtt, nodeAccessor.getEnvironment().getTimeProvider().getCurrentTime());
 		
 	}
 
@@ -548,11 +767,18 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 		socketAddress = null;
 		node = null;
 		try {
-			channel.close();
+			for (DatagramChannel ch : channels) {
+				ch.close();
+			}
 		} catch (IOException e) {
 			throw new NetworkAdapterException("An exception thrown while clising the channel.", e);
 		}
 		channel = null;
+		channels = null;
+		
+		if (sendBufferPool != null) {
+			sendBufferPool.clear();
+		}
 
 		if (userLog.isInfoEnabled()) {
 			userLog.info("Discarded the network adapter.");
@@ -566,4 +792,16 @@ public class UDPSelectorNetworkAdapter implements NetworkAdapter {
 	
 	
 
+	
+	@SuppressWarnings("unchecked")
+	protected static SocketOption<Boolean> getReusePortSocketOption() {
+		try {
+			return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+		} catch (Exception e) {
+			//not available in this Java version
+			return null;
+		}
+	}
+	
+	
 }
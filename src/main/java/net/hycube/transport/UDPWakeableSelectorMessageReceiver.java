@@ -1,8 +1,6 @@
 package net.hycube.transport;
 
 import java.io.IOException;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
@@ -12,19 +10,27 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.hycube.configuration.GlobalConstants;
 import net.hycube.core.InitializationException;
 import net.hycube.core.NodeParameterSet;
 import net.hycube.environment.Environment;
 import net.hycube.environment.NodeProperties;
+import net.hycube.environment.NodePropertiesConversionException;
 import net.hycube.eventprocessing.Event;
 import net.hycube.eventprocessing.EventCategory;
+import net.hycube.eventprocessing.EventProcessException;
 import net.hycube.eventprocessing.NotifyingBlockingQueue;
+import net.hycube.eventprocessing.ProcessEventProxy;
+import net.hycube.eventprocessing.Wakeable;
 import net.hycube.eventprocessing.WakeableManager;
 import net.hycube.logging.LogHelper;
 import net.hycube.messaging.messages.Message;
@@ -32,43 +38,572 @@ import net.hycube.messaging.messages.MessageByteConversionException;
 import net.hycube.messaging.messages.MessageFactory;
 import net.hycube.utils.ClassInstanceLoadException;
 import net.hycube.utils.ClassInstanceLoader;
+import net.hycube.utils.ObjectToStringConverter.MappedType;
 
 public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiver {
-
+	
 	private static org.apache.commons.logging.Log userLog = LogHelper.getUserLog();
-	private static org.apache.commons.logging.Log devLog = LogHelper.getDevLog(UDPMessageReceiver.class); 
+	private static org.apache.commons.logging.Log devLog = LogHelper.getDevLog(UDPMessageReceiver.class);
 	private static org.apache.commons.logging.Log msgLog = LogHelper.getMessagesLog();
 	
 	public static final int RECEIVE_BUFFER_SIZE = 65535;
 	public static final int SELECTOR_SELECT_TIMEOUT = 1000;
+	public static final int SENDER_NODE_POINTERS_CACHE_SIZE = 1024;
+	
+	protected static final String PROP_KEY_RECEIVE_BATCH_SIZE = "ReceiveBatchSize";
+	protected static final String PROP_KEY_RECEIVE_BUFFERS_COUNT = "ReceiveBuffersCount";
+	protected static final String PROP_KEY_SELECTORS_COUNT = "SelectorsCount";
+	
+	
+	/**
+	 * Selector with a subset of the registered channels. Every selector is processed by its own receive events (by one thread at a time),
+	 * so the channels assigned to different selectors may be processed simultaneously by different threads.
+	 * Every selector is a separate Wakeable object and has its own receive buffers.
+	 */
+	protected class ReceiverSelector implements Wakeable {
+		
+		protected Selector selector;
+		protected HashMap<DatagramChannel, SelectionKey> selectionKeys;
+		protected Object selectLock = new Object();
+		protected boolean wakeable;
+		protected boolean wokenUp;		//set when the selector is woken up, until the thread processing the receive event of the selector returns from select() (accessed under the wakeable manager lock)
+		protected volatile boolean selecting;		//set while a thread waits for messages (or processes them) in receiveMessage() or receiveMessageExternally()
+		
+		//receive buffers (reused cyclically), the datagrams received in one batch, and the messages of the batch:
+		protected ByteBuffer[] receiveBuffers;
+		protected InetSocketAddress[] receiveSenderAddresses;
+		protected Message[] receivedMessages;
+		protected NetworkNodePointer[] receivedMessagesSenders;
+		
+		//sender network node pointers (recently used), accessed only by the thread holding selectLock:
+		protected LinkedHashMap<InetSocketAddress, NetworkNodePointer> senderNodePointers;
+		
+		protected boolean hold = false;
+		protected boolean wasHeld = false;
+		protected int wasHeldNum = 0;
+		protected Object holdLock = new Object();
+		
+		protected ProcessEventProxy processEventProxy;
+		
+		
+		protected ReceiverSelector(int receiveBuffersCount) throws MessageReceiverException {
+			
+			try {
+				selector = Selector.open();
+			} catch (IOException e) {
+				throw new MessageReceiverException("An exception thrown while opening the Selector.", e);
+			}
+			
+			selectionKeys = new HashMap<DatagramChannel, SelectionKey>();
+			
+			receiveBuffers = new ByteBuffer[receiveBuffersCount];
+			for (int i = 0; i < receiveBuffersCount; i++) {
+				receiveBuffers[i] = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+			}
+			receiveSenderAddresses = new InetSocketAddress[receiveBuffersCount];
+			receivedMessages = new Message[receiveBatchSize];
+			receivedMessagesSenders = new NetworkNodePointer[receiveBatchSize];
+			
+			senderNodePointers = new LinkedHashMap<InetSocketAddress, NetworkNodePointer>(16, 0.75f, true) {
+				private static final long serialVersionUID = 2466404926811386475L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<InetSocketAddress, NetworkNodePointer> eldest) {
+					return size() > SENDER_NODE_POINTERS_CACHE_SIZE;
+				}
+			};
+			
+			processEventProxy = new ProcessEventProxy() {
+				@Override
+				public void processEvent(Event event) throws EventProcessException {
+					try {
+						receiveMessage();
+					} catch (MessageReceiverException e) {
+						throw new EventProcessException("An exception thrown while receiving message from the MessageReceiver.", e);
+					}
+				}
+			};
+			
+		}
+		
+		
+		protected void registerChannel(DatagramChannel channel, UDPSelectorNetworkAdapter networkAdapter) throws MessageReceiverException {
+			hold();	//after hold() call, no new selections will be made
+			wakeup();	//wake up the current selection
+			synchronized(selectLock) {	//waits for the current receive to finish and does not allow select meanwhile
+				unhold();	//hold is no longer needed, selectLock is acquired
+				
+				try {
+					SelectionKey selKey = channel.register(selector, SelectionKey.OP_READ, networkAdapter);
+					selectionKeys.put(channel, selKey);
+				} catch (ClosedChannelException e) {
+					throw new MessageReceiverException("An exception thrown while registering the channel with the selector.", e);
+				}
+			}
+		}
+		
+		protected void unregisterChannel(DatagramChannel channel) {
+			hold();	//after hold() call, no new selections will be made
+			wakeup();	//wake up the current selection
+			synchronized(selectLock) {	//waits for the current receive to finish and does not allow select meanwhile
+				unhold();	//hold is no longer needed, selectLock is acquired
+				
+				SelectionKey selKey = selectionKeys.remove(channel);
+				if (selKey != null) {
+					selKey.cancel();
+				}
+			}
+		}
+		
+		
+		//waits for messages on the selector and then retrieves all the messages that are immediately available from the sockets
+		protected void receiveMessage() throws MessageReceiverException {
+			
+			if (devLog.isTraceEnabled()) {
+				devLog.trace("receiveMessage() called.");
+			}
+			
+			if (!initialized) throw new MessageReceiverRuntimeException("The message receiver is not initialized.");
+			
+			synchronized(selectLock) {
+				
+				//check again if initialized (discarding synchronizes on selectLock)
+				if (!isInitialized()) return;
+				
+				if (checkHoldAndSetHeld()) {
+					//return, new events will not be enqueued, the following unhold() call will enqueue the messagereceiver again
+					return;
+				}
+				
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("Checking for messages - calling select().");
+				}
+				
+				selecting = true;
+				
+				try {
+					long selTimeout = wakeableManager.getNextMaxSleepTime();
+					if (selTimeout > SELECTOR_SELECT_TIMEOUT) selTimeout = SELECTOR_SELECT_TIMEOUT;
+					selector.select(selTimeout);
+				} catch (IOException e) {
+					selecting = false;
+					throw new MessageReceiverException("An exception thrown during the select() call.", e);
+				} finally {
+					//as this thread is not going to wait any more, unregister the Wakeable object from the WakeableManager
+					if (wakeableManager != null) {
+						wakeableManager.getWakeableManagerLock().lock();
+						try {
+							this.wakeable = false;
+							this.wokenUp = false;
+							wakeableManager.removeWakeable(this);
+						}
+						finally {
+							wakeableManager.getWakeableManagerLock().unlock();
+						}
+					}
+				}
+				
+				try {
+					processSelectedKeys();
+				}
+				finally {
+					selecting = false;
+				}
+				
+				
+				enqueueMessageReceiverEvent();
+				
+			}
+			
+		}
+		
+		
+		//called by the threads other than the ones processing the receive events of the selector (the receive event of the selector is not enqueued, and the selector is not registered as wakeable):
+		//waits for messages on the selector (if wait is set and no receive event of the selector is pending) and then retrieves all the messages that are immediately available from the sockets
+		//the selector is skipped if another thread is receiving messages from it (that thread will retrieve them)
+		protected void receiveMessageExternally(boolean wait) throws MessageReceiverException {
+			
+			if (selecting) return;
+			
+			if (!initialized) throw new MessageReceiverRuntimeException("The message receiver is not initialized.");
+			
+			synchronized(selectLock) {
+				
+				//check again if initialized (discarding synchronizes on selectLock)
+				if (!isInitialized()) return;
+				
+				synchronized(holdLock) {
+					//the selector is being modified (the receive events are re-enqueued by unhold())
+					if (hold) return;
+				}
+				
+				//the selectors processed by the receive events are not waited on (the waiting would delay the receive events)
+				if (wait && wakeableManager != null) {
+					wakeableManager.getWakeableManagerLock().lock();
+					try {
+						if (wakeable || wokenUp) wait = false;
+					}
+					finally {
+						wakeableManager.getWakeableManagerLock().unlock();
+					}
+				}
+				
+				selecting = true;
+				
+				try {
+					if (wait) {
+						long selTimeout = SELECTOR_SELECT_TIMEOUT;
+						if (wakeableManager != null) {
+							selTimeout = Math.min(wakeableManager.getNextMaxSleepTime(), SELECTOR_SELECT_TIMEOUT);
+						}
+						selector.select(selTimeout);
+					}
+					else selector.selectNow();
+					processSelectedKeys();
+				} catch (IOException e) {
+					throw new MessageReceiverException("An exception thrown during the select() call.", e);
+				} finally {
+					selecting = false;
+					//the select() and selectNow() calls clear the wakeup status of the selector - if the selector was woken up for the thread processing its receive event, the wakeup status is restored for the next select() call of that thread
+					if (wakeableManager != null) {
+						wakeableManager.getWakeableManagerLock().lock();
+						try {
+							if (wokenUp) selector.wakeup();
+						}
+						finally {
+							wakeableManager.getWakeableManagerLock().unlock();
+						}
+					}
+				}
+				
+			}
+			
+		}
+		
+		
+		//should be called by the thread holding selectLock
+		protected void processSelectedKeys() throws MessageReceiverException {
+			
+			//will also get all immediately available messages, the selectNow() call will also clear the wakup status for the selector (if it happened after the select() call, it would affect the next select())
+			int selectedAfter;
+			do {
+				Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+		        while (selectedKeys.hasNext()) {
+		            SelectionKey key = selectedKeys.next();
+		            selectedKeys.remove();
+		            
+		            if (!key.isValid()) {
+		            	continue;
+		            }
+		            
+		            if (key.isReadable()) {
+		            	
+		            	//the network adapter is attached to the selection key when the channel is registered:
+		            	UDPSelectorNetworkAdapter networkAdapter = (UDPSelectorNetworkAdapter) key.attachment();
+		            	if (networkAdapter == null) {
+		            		devLog.debug("Message receiver received a message for the network address for which the networkAdapter was not registered.");
+		            		continue;
+		            	}
+		            	
+		            	receiveMessages((DatagramChannel)key.channel(), networkAdapter);
+		            	
+		            }
+		        }
+		        try {
+		        	//the selectNow() call will also clear the wakeup flag of the selector, which would affect the next select call if wakeup() was called after the previous select() call
+					selectedAfter = selector.selectNow();
+				} catch (IOException e) {
+					throw new MessageReceiverException("An exception thrown during the selectNow() call.", e);
+				}
+			} while (selectedAfter > 0);
+			
+		}
+		
+		
+		/**
+		 * Receives up to receiveBatchSize datagrams immediately available from the channel and passes them to the network adapter (as one batch).
+		 * The datagrams are received into the receive buffers, and whenever all the buffers are filled (or no more datagrams are available), the received datagrams are converted to message objects
+		 */
+		protected void receiveMessages(DatagramChannel chan, UDPSelectorNetworkAdapter networkAdapter) throws MessageReceiverException {
+			
+			int messagesCount = 0;
+			int pendingCount = 0;
+			
+			for (int i = 0; i < receiveBatchSize; i++) {
+				
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("Receiving packet from the socket...");
+				}
+				
+				ByteBuffer buff = receiveBuffers[pendingCount];
+				buff.clear();
+				
+				SocketAddress sa;
+				try {
+					sa = chan.receive(buff);
+				} catch (ClosedByInterruptException e) {
+					//do nothing
+					break;
+				} catch (IOException e) {
+					throw new MessageReceiverException("An exception thrown during channel.receive() call.", e);
+				}
+				if (sa == null) {
+					break;
+				}
+				
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("Packet was received from the socket...");
+				}
+				
+				buff.flip();
+				receiveSenderAddresses[pendingCount] = (InetSocketAddress) sa;
+				pendingCount++;
+				
+				if (pendingCount == receiveBuffers.length) {
+					messagesCount = convertReceivedDatagrams(networkAdapter, pendingCount, messagesCount);
+					pendingCount = 0;
+				}
+				
+			}
+			
+			if (pendingCount > 0) {
+				messagesCount = convertReceivedDatagrams(networkAdapter, pendingCount, messagesCount);
+			}
+			
+			if (messagesCount == 0) {
+				return;
+			}
+			
+			if (devLog.isDebugEnabled()) {
+				devLog.debug("Passing the received messages (" + messagesCount + ") to the network adapter.");
+			}
+			
+			//enqueue the messages:
+			try {
+				if (messagesCount == 1) {
+					networkAdapter.messageReceived(receivedMessages[0], receivedMessagesSenders[0], networkAdapter.getChannelIndex(chan));
+				}
+				else {
+					networkAdapter.messagesReceived(receivedMessages, receivedMessagesSenders, messagesCount, networkAdapter.getChannelIndex(chan));
+				}
+			}
+			finally {
+				Arrays.fill(receivedMessages, 0, messagesCount, null);
+				Arrays.fill(receivedMessagesSenders, 0, messagesCount, null);
+			}
+			
+		}
+		
+		
+		/**
+		 * Converts the datagrams stored in the first pendingCount receive buffers to message objects, stored in receivedMessages (starting at the index messagesCount). Invalid messages are discarded.
+		 * Returns the number of messages in receivedMessages after the conversion
+		 */
+		protected int convertReceivedDatagrams(UDPSelectorNetworkAdapter networkAdapter, int pendingCount, int messagesCount) {
+			
+			for (int i = 0; i < pendingCount; i++) {
+				
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("Converting received packet to a message object...");
+				}
+				
+				//the message object is a view of the received bytes (decoded lazily), so it needs its own copy of the datagram (exact length), outliving the receive buffer:
+				ByteBuffer buff = receiveBuffers[i];
+				ByteBuffer messageBuffer = ByteBuffer.allocate(buff.remaining());
+				messageBuffer.put(buff);
+				messageBuffer.flip();
+				
+				Message msg;
+				try {
+					msg = messageFactory.fromBuffer(messageBuffer);
+				} catch (MessageByteConversionException e) {
+					if (msgLog.isDebugEnabled()) {
+						msgLog.debug("Invalid message - could not convert to the Message object. Message discarded.", e);
+					}
+					if (devLog.isDebugEnabled()) {
+						devLog.debug("Invalid message - could not convert to the Message object. Message discarded.", e);
+					}
+					//the message is invalid, discard -> do nothing
+					continue;
+				}
+				
+				if (devLog.isDebugEnabled()) {
+					devLog.debug("Received message: " + msg.getSerialNoAndSenderString());
+				}
+				if (msgLog.isDebugEnabled()) {
+					msgLog.debug("Received message: " + msg.getSerialNoAndSenderString());
+				}
+				
+				receivedMessages[messagesCount] = msg;
+				receivedMessagesSenders[messagesCount] = getSenderNodePointer(networkAdapter, receiveSenderAddresses[i]);
+				messagesCount++;
+				
+			}
+			
+			return messagesCount;
+			
+		}
+		
+		
+		/**
+		 * Returns the network node pointer of the sender. The pointers are cached (by the socket address), so that the addresses of the nodes that send messages frequently are not converted for every message
+		 */
+		protected NetworkNodePointer getSenderNodePointer(UDPSelectorNetworkAdapter networkAdapter, InetSocketAddress senderAddress) {
+			NetworkNodePointer senderNodePointer = senderNodePointers.get(senderAddress);
+			if (senderNodePointer == null) {
+				senderNodePointer = networkAdapter.createNetworkNodePointer(senderAddress);
+				senderNodePointers.put(senderAddress, senderNodePointer);
+			}
+			return senderNodePointer;
+		}
+		
+		
+		protected void enqueueMessageReceiverEvent() {
+			
+			//add new message receiver event to the queue and register the wakeable object for the message reveiver and set the receiver as wakeable
+			//the operations above should be synchronized on the wakeable manager lock, to avoid situations when another thread calls the WakeupManager.wakeup method when the event is enqueued and not yet registered
+			//the queue implementation should synchronize on the wakeable manager lock the operation of getting the object from the queue and calling the wakeable manager. in such a case, it ensures those to be relatively atomic
+			
+			if (wakeableManager != null) {
+				wakeableManager.getWakeableManagerLock().lock();
+				try {
+					//add the event to the queue
+					boolean enqueued = false;
+					while (!enqueued) {
+						try {
+							//enqueue without notifying (otherwise message receiver would wake up itself; it would also be possible that enqueuing other message receivers would wake up this one)
+							receiveEventQueue.put(new Event(environment.getTimeProvider().getCurrentTime(), EventCategory.receiveMessageEvent, processEventProxy, null), false);
+							enqueued = true;
+						} catch (InterruptedException e) {
+							//do nothing, the put will be retried (enqueued is still false)
+						}
+					}
+					
+					//register the wakeable object
+					wakeableManager.addWakeable(this);
+					
+					//set the object wakeable
+					this.wakeable = true;
+					
+				}
+				finally {
+					wakeableManager.getWakeableManagerLock().unlock();
+				}
+			}
+		}
+		
+		
+		//should be called by the thread holding selectLock
+		protected void close() throws MessageReceiverException {
+			
+			wakeable = false;
+			
+			try {
+				selector.close();
+			} catch (IOException e) {
+				throw new MessageReceiverException("An exception thrown while closing the selector.", e);
+			}
+			selector = null;
+			
+			selectionKeys = null;
+			senderNodePointers = null;
+			receiveBuffers = null;
+			receiveSenderAddresses = null;
+			receivedMessages = null;
+			receivedMessagesSenders = null;
+			
+			processEventProxy = null;
+			
+		}
+		
+		
+		@Override
+		public void wakeup() {
+			if (wakeableManager != null) {
+				wakeableManager.getWakeableManagerLock().lock();
+				try {
+					if (wakeable) {
+						selector.wakeup();
+						this.wokenUp = true;
+					}
+					this.wakeable = false;
+					wakeableManager.removeWakeable(this);
+				}
+				finally {
+					wakeableManager.getWakeableManagerLock().unlock();
+				}
+			}
+			
+		}
+	    
+	    
+	    protected void hold() {
+	    	synchronized(holdLock) {
+	    		hold = true;
+	    	}
+	    }
+	    
+	    protected void unhold() {
+	    	synchronized(holdLock) {
+	    		hold = false;
+	    		if (wasHeld) {
+	    			wasHeld = false;
+	    			while (wasHeldNum > 0) {
+	    				enqueueMessageReceiverEvent();
+	    				wasHeldNum--;
+	    			}
+	    		}
+	    	}
+	    }
+	    
+	    protected boolean checkHoldAndSetHeld() {
+	    	synchronized(holdLock) {
+	    		if (hold) {
+	    			wasHeld = true;
+	    			wasHeldNum++;
+	    			//remove wakeable and set not wakeable (this will not block on select)
+	    			if (wakeableManager != null) {
+						wakeableManager.getWakeableManagerLock().lock();
+						try {
+							this.wakeable = false;
+							wakeableManager.removeWakeable(this);
+						}
+						finally {
+							wakeableManager.getWakeableManagerLock().unlock();
+						}
+					}
+	    			return true;
+	    		}
+	    		else return false;
+	    	}
+	    }
+		
+	}
+	
+	
 	
 	protected NodeProperties properties;
-	protected Selector selector;
 	protected HashMap<String, NetworkAdapter> networkAdapters;
 	protected List<DatagramChannel> channels;
 	protected List<String> addresses;
-	protected HashMap<String, SelectionKey> selectionKeys;
 	protected NotifyingBlockingQueue<Event> receiveEventQueue;
-	protected Object selectLock = new Object();
-	protected boolean initialized = false;
+	protected volatile boolean initialized = false;
 	protected WakeableManager wakeableManager;
-	protected boolean wakeable;
 	protected Environment environment;
 	protected MessageFactory messageFactory;
-	protected byte[] byteArray = new byte[RECEIVE_BUFFER_SIZE];
-    protected ByteBuffer buff = ByteBuffer.wrap(byteArray);
-    
-    protected boolean hold = false;
-    protected boolean wasHeld = false;
-    protected int wasHeldNum = 0;
-    protected Object holdLock = new Object();
-    
-    protected MessageReceiverProcessEventProxy messageReceiverProcessEventProxy;
+	protected int receiveBatchSize;
+	
+	//the channels are assigned to the selectors in the round robin manner:
+	protected ReceiverSelector[] selectors;
+	
+	//the selector on which the next receiveMessage() call waits for messages:
+	protected AtomicInteger nextReceiveSelectorIndex = new AtomicInteger();
+	protected int nextSelectorIndex;
+	
 	
 	public boolean isInitialized() {
 		return initialized;
 	}
-	
+    
     @Override
     public synchronized void initialize(Environment environment, BlockingQueue<Event> receiveEventQueue, NodeProperties properties) throws MessageReceiverException, InitializationException {
     	initialize(environment, (NotifyingBlockingQueue<Event>) receiveEventQueue, (WakeableManager)null, properties);
@@ -95,16 +630,9 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		
 		this.properties = properties;
 		
-		try {
-			selector = Selector.open();
-		} catch (IOException e) {
-			throw new MessageReceiverException("An exception thrown while opening the Selector.", e);
-		}
-		
 		this.networkAdapters = new HashMap<String, NetworkAdapter>();
 		this.addresses = new ArrayList<String>();
 		this.channels = new ArrayList<DatagramChannel>();
-		this.selectionKeys = new HashMap<String, SelectionKey>();
 		
 		this.wakeableManager = wakeableManager;
 		
@@ -112,7 +640,7 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		
 		this.environment = environment;
 		
-
+		
 		
 		//Message factory:
 		try {
@@ -120,7 +648,7 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 			if (messageFactoryKey == null || messageFactoryKey.trim().isEmpty()) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(NodeParameterSet.PROP_KEY_MESSAGE_FACTORY), "Invalid parameter value: " + properties.getAbsoluteKey(NodeParameterSet.PROP_KEY_MESSAGE_FACTORY));
 			NodeProperties messageFactoryProperties = properties.getNestedProperty(NodeParameterSet.PROP_KEY_MESSAGE_FACTORY, messageFactoryKey);
 			String messageFactoryClass = messageFactoryProperties.getProperty(GlobalConstants.PROP_KEY_CLASS);
-
+			
 			messageFactory = (MessageFactory) ClassInstanceLoader.newInstance(messageFactoryClass, MessageFactory.class);
 			messageFactory.initialize(messageFactoryProperties);
 		} catch (ClassInstanceLoadException e) {
@@ -128,7 +656,29 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		}
 		
 		
-		this.messageReceiverProcessEventProxy = new MessageReceiverProcessEventProxy(this);
+		//Receive batches and selectors:
+		try {
+			receiveBatchSize = (Integer) properties.getProperty(PROP_KEY_RECEIVE_BATCH_SIZE, MappedType.INT);
+			if (receiveBatchSize <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_RECEIVE_BATCH_SIZE), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_RECEIVE_BATCH_SIZE));
+			
+			int receiveBuffersCount = (Integer) properties.getProperty(PROP_KEY_RECEIVE_BUFFERS_COUNT, MappedType.INT);
+			if (receiveBuffersCount <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_RECEIVE_BUFFERS_COUNT), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_RECEIVE_BUFFERS_COUNT));
+			//more buffers than datagrams in one batch would never be used:
+			if (receiveBuffersCount > receiveBatchSize) receiveBuffersCount = receiveBatchSize;
+			
+			int selectorsCount = (Integer) properties.getProperty(PROP_KEY_SELECTORS_COUNT, MappedType.INT);
+			if (selectorsCount <= 0) throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, properties.getAbsoluteKey(PROP_KEY_SELECTORS_COUNT), "Invalid parameter value: " + properties.getAbsoluteKey(PROP_KEY_SELECTORS_COUNT));
+			
+			selectors = new ReceiverSelector[selectorsCount];
+			for (int i = 0; i < selectorsCount; i++) {
+				selectors[i] = new ReceiverSelector(receiveBuffersCount);
+			}
+			nextSelectorIndex = 0;
+			
+		} catch (NodePropertiesConversionException e) {
+			throw new InitializationException(InitializationException.Error.INVALID_PARAMETER_VALUE, e.getKey(), "Invalid parameter value: " + e.getKey(), e);
+		}
+		
 		
 		this.initialized = true;
 		
@@ -158,26 +708,18 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		
 		if (!initialized) throw new MessageReceiverRuntimeException("The message receiver is not initialized.");
 		
-		hold();	//after hold() call, no new selections will be made
-		wakeup();	//wake up the current selection
-		synchronized(selectLock) {	//waits for the current receive to finish and does not allow select meanwhile
-			unhold();	//hold is no longer needed, selectLock is acquired
-			
-			if (networkAdapters.containsKey(networkAdapter.getPublicAddressString())) {
-				throw new MessageReceiverRuntimeException("The message receiver already registered a network adapter with the same network address.");
-			}
-			
-			this.networkAdapters.put(networkAdapter.getPublicAddressString(), networkAdapter);
-			DatagramChannel channel = networkAdapter.getChannel();
+		if (networkAdapters.containsKey(networkAdapter.getPublicAddressString())) {
+			throw new MessageReceiverRuntimeException("The message receiver already registered a network adapter with the same network address.");
+		}
+		
+		this.networkAdapters.put(networkAdapter.getPublicAddressString(), networkAdapter);
+		this.addresses.add(networkAdapter.getPublicAddressString());
+		
+		//the channels of the network adapter (more than one if the adapter shards the receiving channels) are distributed among the selectors:
+		for (DatagramChannel channel : networkAdapter.getChannels()) {
 			this.channels.add(channel);
-			this.addresses.add(networkAdapter.getPublicAddressString());
-			
-			try {
-				SelectionKey selKey = channel.register(selector, SelectionKey.OP_READ);
-				this.selectionKeys.put(networkAdapter.getPublicAddressString(), selKey);
-			} catch (ClosedChannelException e) {
-				throw new MessageReceiverException("An exception thrown while registering the channel with the selector.", e);
-			}
+			selectors[nextSelectorIndex].registerChannel(channel, networkAdapter);
+			nextSelectorIndex = (nextSelectorIndex + 1) % selectors.length;
 		}
 		
 		if (userLog.isInfoEnabled()) {
@@ -188,7 +730,7 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		}
 		
 	}
-
+	
 	
 	@Override
 	public synchronized void unregisterNetworkAdapter(NetworkAdapter networkAdapter) {
@@ -207,25 +749,18 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		
 		if (!initialized) throw new MessageReceiverRuntimeException("The message receiver is not initialized.");
 		
-		hold();	//after hold() call, no new selections will be made
-		wakeup();	//wake up the current selection
-		synchronized(selectLock) {	//waits for the current receive to finish and does not allow select meanwhile
-			unhold();	//hold is no longer needed, selectLock is acquired
-			
-			if (! this.networkAdapters.containsKey(networkAdapter.getPublicAddressString())) {
-				//do nothing - this network adapter is not registered for this instance of network receiver
-				return;
-			}
-			
-			this.networkAdapters.remove(networkAdapter.getPublicAddressString());
-			this.channels.remove(networkAdapter.getChannel());
-			this.addresses.remove(networkAdapter.getPublicAddressString());
-			
-			try {
-				this.selectionKeys.get(networkAdapter.getPublicAddressString()).cancel();
-				//this.selector.keys().remove(this.selectionKeys.get(networkAdapter.getPublicAddressString()));
-			} finally {
-				
+		if (! this.networkAdapters.containsKey(networkAdapter.getPublicAddressString())) {
+			//do nothing - this network adapter is not registered for this instance of network receiver
+			return;
+		}
+		
+		this.networkAdapters.remove(networkAdapter.getPublicAddressString());
+		this.addresses.remove(networkAdapter.getPublicAddressString());
+		
+		for (DatagramChannel channel : networkAdapter.getChannels()) {
+			this.channels.remove(channel);
+			for (ReceiverSelector receiverSelector : selectors) {
+				receiverSelector.unregisterChannel(channel);
 			}
 		}
 		
@@ -238,225 +773,46 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		}
 		
 	}
-
+	
 	
 	
 	@Override
-	//waits for messages on a selector and then retrieves all the messages that are immediately available from the socket
+	//waits for messages on one of the selectors (the consecutive calls wait on the consecutive selectors) and retrieves all the messages that are immediately available from its sockets,
+	//and then retrieves the messages immediately available from the sockets of the other selectors
+	//the receive events enqueued by the receiver (startMessageReceiver) process their own selectors independently - this method does not enqueue receive events, and does not wait on the selectors processed by the receive events
 	public void receiveMessage() throws MessageReceiverException {
 		
-		if (devLog.isTraceEnabled()) {
-			devLog.trace("receiveMessage() called.");
-		}
+		int index = (nextReceiveSelectorIndex.getAndIncrement() & Integer.MAX_VALUE) % selectors.length;
 		
-		if (!initialized) throw new MessageReceiverRuntimeException("The message receiver is not initialized.");
+		selectors[index].receiveMessageExternally(true);
 		
-		synchronized(selectLock) {
-			
-			//check again if initialized (initialization synchronizes on selectLock)
-			if (!isInitialized()) return;
-			
-			if (checkHoldAndSetHeld()) {
-				//return, new events will not be enqueued, the following unhold() call will enqueue the messagereceiver again
-				return;
-			}
-			
-			if (devLog.isDebugEnabled()) {
-				devLog.debug("Checking for messages - calling select().");
-			}
-			
-			try {
-				long selTimeout = wakeableManager.getNextMaxSleepTime();
-				if (selTimeout > SELECTOR_SELECT_TIMEOUT) selTimeout = SELECTOR_SELECT_TIMEOUT;
-				selector.select(selTimeout);
-			} catch (IOException e) {
-				throw new MessageReceiverException("An exception thrown during the select() call.", e);
-			} finally {
-				//as this thread is not going to wait any more, unregister the Wakeable object from the WakeableManager
-				if (wakeableManager != null) {
-					wakeableManager.getWakeableManagerLock().lock();
-					try {
-						this.wakeable = false;
-						wakeableManager.removeWakeable(this);
-					}
-					finally {
-						wakeableManager.getWakeableManagerLock().unlock();
-					}
-				}
-			}
-		
-			//will also get all immediately available messages, the selectNow() call will also clear the wakup status for the selector (if it happened after the select() call, it would affect the next select())
-			int selectedAfter;
-			do {
-				Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
-	            while (selectedKeys.hasNext()) {
-	            	SocketAddress sa = null;
-	            	Message msg = null;
-	            	DatagramSocket socket = null;
-	            	String address = null;
-	            	String senderAddress = null;
-	            	
-	                SelectionKey key = selectedKeys.next();
-	                selectedKeys.remove();
-	 
-	                if (!key.isValid()) {
-	                	continue;
-	                }
-	
-	                if (key.isReadable()) {
-	                	
-	                	if (devLog.isDebugEnabled()) {
-	    					devLog.debug("Receiving packet from the socket...");
-	    				}
-	                	
-	                	DatagramChannel chan = (DatagramChannel)key.channel();
-	                	socket = chan.socket();
-
-	                	InetAddress socketLocalAddress = socket.getLocalAddress();
-	                	int socketLocalPort = socket.getLocalPort();
-	                	
-	                	if (socketLocalAddress == null || socketLocalPort == -1) {
-	                		continue;
-	                	}
-	                	
-	                	address = new StringBuilder().append(socketLocalAddress.getHostAddress()).append(":").append(socketLocalPort).toString();
-	                	
-	                	buff.rewind();
-	                    try {
-							sa = chan.receive(buff);
-	                    } catch (ClosedByInterruptException e) {
-	                    	//do nothing
-	                    	continue;
-						} catch (IOException e) {
-							throw new MessageReceiverException("An exception thrown during channel.receive() call.", e);
-						}
-	                    if (sa == null) {
-	                    	continue;
-	                    }
-	                    
-	                    InetSocketAddress isa = (InetSocketAddress) sa;
-	                    
-	                    senderAddress =  new StringBuilder().append(isa.getAddress().getHostAddress()).append(":").append(isa.getPort()).toString();
-	                    
-	                    
-	            		if (devLog.isDebugEnabled()) {
-	            			devLog.debug("Packet was received from the socket...");
-	            		}	
-	                    
-	                    if (devLog.isDebugEnabled()) {
-	    					devLog.debug("Converting received packet to a message object...");
-	    				}
-	                    
-	                    try {
-							msg = messageFactory.fromBytes(buff.array());
-						} catch (MessageByteConversionException e) {
-							if (msgLog.isDebugEnabled()) {
-								msgLog.debug("Invalid message - could not convert to the Message object. Message discarded.", e);
-							}
-							if (devLog.isDebugEnabled()) {
-								devLog.debug("Invalid message - could not convert to the Message object. Message discarded.", e);
-							}
-							//the message is invalid, discard -> do nothing
-							continue;
-						}
-	                }
-	                
-	                if (msg != null) {
-	                	
-		                NetworkAdapter networkAdapter;
-	       				//enqueue the message:
-	       				networkAdapter = networkAdapters.get(address);
-		       			if (networkAdapter == null) {
-		       				devLog.debug("Message receiver received a message for the network address for which the networkAdapter was not registered.");
-		       				//throw new MessageReceiverException("Message receiver received a message for the network address for which the networkAdapter was not registered.");
-		       				continue;
-		       			}
-	       			
-		       			if (devLog.isDebugEnabled()) {
-		       				devLog.debug("Received message: " + msg.getSerialNoAndSenderString());
-		       			}
-		       			if (msgLog.isDebugEnabled()) {
-		       				msgLog.debug("Received message: " + msg.getSerialNoAndSenderString());
-		       			}
-		       			
-	                	if (devLog.isDebugEnabled()) {
-	    					devLog.debug("Passing the received message to the network adapter.");
-	    				}
-	                	
-	                	NetworkNodePointer senderNodePointer = networkAdapter.createNetworkNodePointer(senderAddress);
-	                	
-		       			networkAdapters.get(address).messageReceived(msg, senderNodePointer);
-		       			
-	                }
-	            }
-	            try {
-	            	//the selectNow() call will also clear the wakeup flag of the selector, which would affect the next select call if wakeup() was called after the previous select() call
-					selectedAfter = selector.selectNow();
-					//!!!clear the selected keys if we want only to get one message at a time
-					//Iterator<SelectionKey> selectedKeysAfter = selector.selectedKeys().iterator();
-		            //while (selectedKeysAfter.hasNext()) {
-		            //	selectedKeysAfter.remove();
-		            //}
-					//selectedAfter = 0;
-				} catch (IOException e) {
-					throw new MessageReceiverException("An exception thrown during the selectNow() call.", e);
-				} 
-			} while (selectedAfter > 0);
-		
-			
-			enqueueMessageReceiverEvent();
-			
+		for (int i = 1; i < selectors.length; i++) {
+			selectors[(index + i) % selectors.length].receiveMessageExternally(false);
 		}
 		
 	}
-
+	
+	
+	//enqueues the receive event for every selector
 	public void startMessageReceiver() {
-		enqueueMessageReceiverEvent();
+		for (ReceiverSelector receiverSelector : selectors) {
+			receiverSelector.enqueueMessageReceiverEvent();
+		}
 	}
 	
+	//enqueues numEventsToEnqueue receive events for every selector
 	public void startMessageReceiver(int numEventsToEnqueue) {
 		if (numEventsToEnqueue <= 0) {
 			throw new IllegalArgumentException("Illegal number of events to be enqueued.");
 		}
-		for (int i = 0; i < numEventsToEnqueue; i++) {
-			enqueueMessageReceiverEvent();
-		}
-	}
-	
-	protected void enqueueMessageReceiverEvent() {
-		
-		//add new message receiver event to the queue and register the wakeable object for the message reveiver and set the receiver as wakeable
-		//the operations above should be synchronized on the wakeable manager lock, to avoid situations when another thread calls the WakeupManager.wakeup method when the event is enqueued and not yet registered
-		//the queue implementation should synchronize on the wakeable manager lock the operation of getting the object from the queue and calling the wakeable manager. in such a case, it ensures those to be relatively atomic
-		
-		if (wakeableManager != null) {
-			wakeableManager.getWakeableManagerLock().lock();
-			try {
-				//add the event to the queue
-				boolean enqueued = false;
-				while (!enqueued) {
-					try {
-						//enqueue without notifying (otherwise message receiver would wake up itself; it would also be possible that enqueuing other message receivers would wake up this one)
-						this.receiveEventQueue.put(new Event(environment.getTimeProvider().getCurrentTime(), EventCategory.receiveMessageEvent, messageReceiverProcessEventProxy, null), false);
-						enqueued = true;
-					} catch (InterruptedException e) {
-						//do nothing, the put will be retried (enqueued is still false) 
-					}
-				}
-				
-				//register the wakeable object
-				wakeableManager.addWakeable(this);
-				
-				//set the object wakeable
-				this.wakeable = true;
-				
-			}
-			finally {
-				wakeableManager.getWakeableManagerLock().unlock();
+		for (ReceiverSelector receiverSelector : selectors) {
+			for (int i = 0; i < numEventsToEnqueue; i++) {
+				receiverSelector.enqueueMessageReceiverEvent();
 			}
 		}
 	}
 	
+	
 	@Override
 	public synchronized void discard() throws MessageReceiverException {
 		
@@ -466,33 +822,13 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		
 		this.initialized = false;
 		
-		hold();	//after hold() call, no new selections will be made
-		wakeup();	//wake up the current selection
-		synchronized(selectLock) {	//waits for the current receive to finish and does not allow select meanwhile
-			//unhold();	//hold is no longer needed, selectLock is acquired
-		
-			networkAdapters = null;
-			channels = null;
-			addresses = null;
-			selectionKeys = null;
-			receiveEventQueue = null;
-			wakeableManager = null;
-			wakeable = false;
-			environment = null;
-	
-			try {
-				selector.close();
-			} catch (IOException e) {
-				throw new MessageReceiverException("An exception thrown while closing the selector.", e);
-			}
-			selector = null;
-			
-			messageReceiverProcessEventProxy = null;
-			
-			properties = null;
-			
+		for (ReceiverSelector receiverSelector : selectors) {
+			receiverSelector.hold();	//after hold() call, no new selections will be made
+			receiverSelector.wakeup();	//wake up the current selection
 		}
 		
+		discardSelectors(0);
+		
 		if (userLog.isInfoEnabled()) {
 			userLog.info("Discarded the message receiver.");
 		}
@@ -501,64 +837,39 @@ public class UDPWakeableSelectorMessageReceiver implements WakeableMessageReceiv
 		}
 		
 	}
-
-	@Override
-	public void wakeup() {
-		if (wakeableManager != null) {
-			wakeableManager.getWakeableManagerLock().lock();
-			try {
-				if (wakeable) selector.wakeup();
-				this.wakeable = false;
-				wakeableManager.removeWakeable(this);
-			}
-			finally {
-				wakeableManager.getWakeableManagerLock().unlock();
+	
+	
+	//acquires the select locks of the selectors (starting at the index) - waits for the current receives to finish and does not allow select meanwhile, and discards the receiver
+	protected void discardSelectors(int index) throws MessageReceiverException {
+		
+		if (index < selectors.length) {
+			synchronized(selectors[index].selectLock) {
+				discardSelectors(index + 1);
+				selectors[index].close();
 			}
+			return;
 		}
 		
+		//all select locks are acquired:
+		
+		networkAdapters = null;
+		channels = null;
+		addresses = null;
+		receiveEventQueue = null;
+		wakeableManager = null;
+		environment = null;
+		
+		properties = null;
+		
 	}
 	
 	
-    protected void hold() {
-    	synchronized(holdLock) {
-    		hold = true;
-    	}
-    }
-	
-    protected void unhold() {
-    	synchronized(holdLock) {
-    		hold = false;
-    		if (wasHeld) {
-    			wasHeld = false;	
-    			while (wasHeldNum > 0) {
-    				enqueueMessageReceiverEvent();
-    				wasHeldNum--;
-    			}
-    		}
-    	}
-    }
-    
-    protected boolean checkHoldAndSetHeld() {
-    	synchronized(holdLock) {
-    		if (hold) {
-    			wasHeld = true;
-    			wasHeldNum++;
-    			//remove wakeable and set not wakeable (this will not block on select)
-    			if (wakeableManager != null) {
-					wakeableManager.getWakeableManagerLock().lock();
-					try {
-						this.wakeable = false;
-						wakeableManager.removeWakeable(this);
-					}
-					finally {
-						wakeableManager.getWakeableManagerLock().unlock();
-					}
-				}
-    			return true;
-    		}
-    		else return false;
-    	}
-    }
-    
+	//wakes up all selectors
+	@Override
+	public void wakeup() {
+		for (ReceiverSelector receiverSelector : selectors) {
+			receiverSelector.wakeup();
+		}
+	}
 
 }
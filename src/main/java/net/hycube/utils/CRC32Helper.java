@@ -1,5 +1,6 @@
 package net.hycube.utils;
 
+import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 
 public class CRC32Helper {
@@ -12,5 +13,14 @@ public class CRC32Helper {
 		
 	}
 	
+	//calculates the CRC32 of the remaining bytes of the buffer (the buffer's position is advanced to its limit)
+	public static int calculateCRC32(ByteBuffer byteBuffer) {
+		CRC32 crc32 = new CRC32();
+		crc32.reset();
+		crc32.update(byteBuffer);
+		return (int)crc32.getValue();
+		
+	}
+	
 	
 }
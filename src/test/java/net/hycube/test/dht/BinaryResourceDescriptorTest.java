@@ -0,0 +1,157 @@
+package net.hycube.test.dht;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import net.hycube.dht.HyCubePutMessageData;
+import net.hycube.dht.HyCubeResourceDescriptor;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BinaryResourceDescriptorTest {
+
+	protected static final String CHARACTERS = "abcXYZ019 _-./:ąó中";
+
+
+	protected static String randomValue(Random random) {
+		int length = random.nextInt(12);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) sb.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+		//the text form trims the values:
+		return sb.toString().trim();
+	}
+
+	protected static HyCubeResourceDescriptor randomDescriptor(Random random) {
+		HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor(randomValue(random), randomValue(random), randomValue(random), randomValue(random));
+		if (random.nextBoolean()) rd.setAttribute("size", Integer.toString(random.nextInt(1000000)));
+		int attributesNum = random.nextInt(3);
+		for (int i = 0; i < attributesNum; i++) {
+			rd.setAttribute("attr" + random.nextInt(5), "v" + randomValue(random));
+		}
+		return rd;
+	}
+
+
+	@Test
+	public void createDescriptor_toBinaryAndParse_expectSame() {
+		//Arrange
+		HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor("res01Id", "Resource 01", "type01", "http://12.13.14.15:9987/a/b");
+		rd.setAttribute("size", "123456");
+		rd.setAttribute("owner", "ą中");
+
+		//Act
+		byte[] bytes = rd.getDescriptorBytes();
+		HyCubeResourceDescriptor parsed = HyCubeResourceDescriptor.fromDescriptorBytes(bytes);
+
+		//Assert
+		assertThat(HyCubeResourceDescriptor.isBinaryDescriptor(bytes), is(true));
+		assertThat(parsed.getResourceId(), is("res01Id"));
+		assertThat(parsed.getResourceName(), is("Resource 01"));
+		assertThat(parsed.getResourceType(), is("type01"));
+		assertThat(parsed.getResourceUrl(), is("http://12.13.14.15:9987/a/b"));
+		assertThat(parsed.getAttribute("size"), is("123456"));
+		assertThat(parsed.getAttribute("owner"), is("ą中"));
+		assertThat(parsed.getDescriptorString(), is(rd.getDescriptorString()));
+		assertThat(parsed.getDescriptorBytes(), is(bytes));
+		assertThat(bytes.length, lessThan(rd.getDescriptorStringBytes().length));
+	}
+
+
+	@Test
+	public void randomDescriptors_textAndBinaryForms_expectEquivalent() throws MessageByteConversionException {
+		Random random = new Random(1);
+		for (int i = 0; i < 2000; i++) {
+			//Arrange
+			HyCubeResourceDescriptor rd = randomDescriptor(random);
+			HyCubeResourceDescriptor criteria = new HyCubeResourceDescriptor(random.nextBoolean() ? rd.getResourceId() : null, null, null, null);
+
+			//Act
+			HyCubeResourceDescriptor fromText = HyCubeResourceDescriptor.fromEncodedDescriptor(rd.getEncodedDescriptor(false));
+			HyCubeResourceDescriptor fromBinary = HyCubeResourceDescriptor.fromEncodedDescriptor(rd.getEncodedDescriptor(true));
+			HyCubePutMessageData textMsg = HyCubePutMessageData.fromBytes(new HyCubePutMessageData(i, BigInteger.valueOf(i), rd, new byte[] {1}, 100, false).getBytes());
+			HyCubePutMessageData binaryMsg = HyCubePutMessageData.fromBytes(new HyCubePutMessageData(i, BigInteger.valueOf(i), rd, new byte[] {1}, 100, true).getBytes());
+
+			//Assert
+			assertThat("descriptor " + i, fromText.getDescriptorString(), is(rd.getDescriptorString()));
+			assertThat("descriptor " + i, fromBinary.getDescriptorString(), is(rd.getDescriptorString()));
+			assertThat("descriptor " + i, fromBinary.getDescriptorBytes(), is(fromText.getDescriptorBytes()));
+			assertThat("descriptor " + i, fromBinary.matches(criteria), is(fromText.matches(criteria)));
+			assertThat("descriptor " + i, binaryMsg.isBinaryResourceDescriptor(), is(true));
+			assertThat("descriptor " + i, textMsg.isBinaryResourceDescriptor(), is(false));
+			assertThat("descriptor " + i, binaryMsg.getResourceDescriptor().getDescriptorString(), is(textMsg.getResourceDescriptor().getDescriptorString()));
+			assertThat("descriptor " + i, binaryMsg.getResourceDescriptorString(), is(rd.getDescriptorString()));
+		}
+	}
+
+
+	@Test
+	public void truncatedBinaryDescriptor_expectIllegalArgumentException() {
+		//Arrange
+		HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor("res01Id", "Resource 01", "type01", "url");
+		rd.setAttribute("size", "10");
+		rd.setAttribute("owner", "o");
+		byte[] bytes = rd.getDescriptorBytes();
+
+		//Act & Assert
+		for (int length = 1; length < bytes.length; length++) {
+			try {
+				HyCubeResourceDescriptor.fromDescriptorBytes(Arrays.copyOf(bytes, length));
+				fail("The descriptor truncated to " + length + " bytes was parsed.");
+			}
+			catch (IllegalArgumentException e) {
+			}
+		}
+		//trailing bytes:
+		try {
+			HyCubeResourceDescriptor.fromDescriptorBytes(Arrays.copyOf(bytes, bytes.length + 1));
+			fail("The descriptor followed by a trailing byte was parsed.");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+
+
+	@Test
+	public void garbageBinaryDescriptor_expectIllegalArgumentExceptionOrValidDescriptor() {
+		Random random = new Random(2);
+		byte[] marker = new HyCubeResourceDescriptor("a", null, null, null).getDescriptorBytes();
+		for (int i = 0; i < 20000; i++) {
+			//Arrange
+			byte[] bytes = new byte[1 + random.nextInt(24)];
+			random.nextBytes(bytes);
+			bytes[0] = marker[0];
+
+			//Act & Assert
+			//the parser may only fail with IllegalArgumentException, and a successfully parsed descriptor is consistent with its forms:
+			try {
+				HyCubeResourceDescriptor rd = HyCubeResourceDescriptor.fromDescriptorBytes(bytes);
+				HyCubeResourceDescriptor reparsed = HyCubeResourceDescriptor.parseDescriptor(rd.getDescriptorString());
+				assertThat(reparsed.getResourceId(), is(rd.getResourceId() != null ? rd.getResourceId().trim() : null));
+			}
+			catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+
+	@Test(expected = MessageByteConversionException.class)
+	public void putMessageWithMalformedBinaryDescriptor_expectMessageByteConversionException() throws MessageByteConversionException {
+		//Arrange
+		BigInteger key = BigInteger.valueOf(1);
+		HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor("res01Id", null, null, null);
+		byte[] bytes = new HyCubePutMessageData(1, key, rd, new byte[] {1}, 100, true).getBytes();
+		//the length of the resource id (following the marker byte of the descriptor) exceeds the descriptor length:
+		int descriptorOffset = 4 + 2 + 2 + 4 + key.toByteArray().length;
+		bytes[descriptorOffset + 1] = 0x7F;
+
+		//Act
+		HyCubePutMessageData.fromBytes(bytes);
+	}
+
+}
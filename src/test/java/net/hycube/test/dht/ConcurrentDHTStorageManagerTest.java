@@ -0,0 +1,199 @@
+package net.hycube.test.dht;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeAccessor;
+import net.hycube.dht.HyCubeConcurrentDHTStorageManager;
+import net.hycube.dht.HyCubeResource;
+import net.hycube.dht.HyCubeResourceDescriptor;
+import net.hycube.dht.HyCubeSimpleDHTStorageManager;
+import net.hycube.environment.DirectEnvironment;
+import net.hycube.environment.FileNodePropertiesReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ConcurrentDHTStorageManagerTest {
+
+	protected static final String SIMPLE_KEY = "HyCubeSimpleDHTStorageManager";
+	protected static final String CONCURRENT_KEY = "HyCubeConcurrentDHTStorageManager";
+
+	protected DirectEnvironment environment;
+
+
+	@Before
+	public void setUp() throws InitializationException {
+		environment = DirectEnvironment.initialize();
+	}
+
+	@After
+	public void tearDown() {
+		environment.discard();
+	}
+
+
+	@Test
+	public void randomOperations_singleCopy_sameResultsAsSimpleManager() throws Exception {
+		compareWithSimpleManager(false, 1);
+	}
+
+	@Test
+	public void randomOperations_multipleCopies_sameResultsAsSimpleManager() throws Exception {
+		compareWithSimpleManager(true, 2);
+	}
+
+
+	/**
+	 * Executes the same random sequence of puts, refreshes, deletes, gets and discards on both managers (with low limits, so that they are often reached),
+	 * and compares the results of every operation
+	 */
+	protected void compareWithSimpleManager(boolean storeMultipleCopies, long seed) throws Exception {
+		//Arrange
+		FileNodePropertiesReader reader = DHTStorageTestSupport.loadProperties();
+		for (String key : new String[] {SIMPLE_KEY, CONCURRENT_KEY}) {
+			DHTStorageTestSupport.setStorageManagerProperty(reader, key, "MaxResourcesNum", "60");
+			DHTStorageTestSupport.setStorageManagerProperty(reader, key, "MaxKeySlotSize", "3");
+			DHTStorageTestSupport.setStorageManagerProperty(reader, key, "MaxResourceSlotSize", "2");
+			DHTStorageTestSupport.setStorageManagerProperty(reader, key, "StoreMultipleCopies", Boolean.toString(storeMultipleCopies));
+		}
+		Random random = new Random(seed);
+		HyCubeNodeId nodeId = DHTStorageTestSupport.randomNodeId(random);
+		HyCubeNodeId senderId = DHTStorageTestSupport.randomNodeId(random);
+		NodeAccessor nodeAccessor = DHTStorageTestSupport.createNodeAccessor(nodeId, environment);
+		HyCubeSimpleDHTStorageManager simple = DHTStorageTestSupport.createStorageManager(new HyCubeSimpleDHTStorageManager(), SIMPLE_KEY, reader, nodeAccessor);
+		HyCubeConcurrentDHTStorageManager concurrent = DHTStorageTestSupport.createStorageManager(new HyCubeConcurrentDHTStorageManager(), CONCURRENT_KEY, reader, nodeAccessor);
+
+		BigInteger[] keys = new BigInteger[8];
+		for (int i = 0; i < keys.length; i++) keys[i] = BigInteger.valueOf(i * 1000 + 7);
+
+		//Act & Assert
+		long time = 1000000;
+		for (int step = 0; step < 50000; step++) {
+			BigInteger key = keys[random.nextInt(keys.length)];
+			String resourceId = "r" + random.nextInt(5);
+			HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor(resourceId, "n", "t", "u" + random.nextInt(4));
+			int op = random.nextInt(10);
+			time += random.nextInt(3);
+			Object expected;
+			Object actual;
+			if (op < 4) {
+				HyCubeResource r = new HyCubeResource(rd, new byte[] {(byte) step});
+				long refreshTime = time - random.nextInt(50);
+				expected = simple.putToStorage(key, senderId, r, refreshTime);
+				actual = concurrent.putToStorage(key, senderId, r, refreshTime);
+			}
+			else if (op < 6) {
+				long refreshTime = time - random.nextInt(20);
+				expected = simple.refreshPutToStorage(key, senderId, rd, refreshTime);
+				actual = concurrent.refreshPutToStorage(key, senderId, rd, refreshTime);
+			}
+			else if (op < 7) {
+				expected = simple.deleteFromStorage(key, senderId, rd);
+				actual = concurrent.deleteFromStorage(key, senderId, rd);
+			}
+			else if (op < 9) {
+				HyCubeResourceDescriptor criteria = new HyCubeResourceDescriptor(random.nextBoolean() ? resourceId : null, null, null, null);
+				expected = DHTStorageTestSupport.toSortedString(simple.getFromStorage(key, senderId, criteria));
+				actual = DHTStorageTestSupport.toSortedString(concurrent.getFromStorage(key, senderId, criteria));
+			}
+			else {
+				long discardTime = time - 100;
+				simple.discardOutdatedEntries(discardTime);
+				concurrent.discardOutdatedEntries(discardTime);
+				expected = DHTStorageTestSupport.toSortedString(simple.getResourcesInfoForReplication());
+				actual = DHTStorageTestSupport.toSortedString(concurrent.getResourcesInfoForReplication());
+			}
+			assertThat("step " + step + ", operation " + op, actual, is(expected));
+		}
+		assertThat(DHTStorageTestSupport.toSortedString(concurrent.getResourcesInfoForReplication()), is(DHTStorageTestSupport.toSortedString(simple.getResourcesInfoForReplication())));
+
+		simple.discard();
+		concurrent.discard();
+	}
+
+
+	@Test
+	public void concurrentOperations_resourcesLimitConsistent() throws Exception {
+		//Arrange
+		final int maxResourcesNum = 500;
+		FileNodePropertiesReader reader = DHTStorageTestSupport.loadProperties();
+		DHTStorageTestSupport.setStorageManagerProperty(reader, CONCURRENT_KEY, "MaxResourcesNum", Integer.toString(maxResourcesNum));
+		DHTStorageTestSupport.setStorageManagerProperty(reader, CONCURRENT_KEY, "LockStripesNum", "4");
+		Random random = new Random(3);
+		HyCubeNodeId nodeId = DHTStorageTestSupport.randomNodeId(random);
+		final HyCubeNodeId senderId = DHTStorageTestSupport.randomNodeId(random);
+		final HyCubeConcurrentDHTStorageManager storage = DHTStorageTestSupport.createStorageManager(new HyCubeConcurrentDHTStorageManager(), CONCURRENT_KEY, reader, DHTStorageTestSupport.createNodeAccessor(nodeId, environment));
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		//Act
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final int seed = t;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						Random rnd = new Random(seed);
+						for (int i = 0; i < 100000; i++) {
+							BigInteger key = BigInteger.valueOf(rnd.nextInt(200));
+							HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor("r" + rnd.nextInt(12), "n", "t", "u" + rnd.nextInt(12));
+							int op = rnd.nextInt(10);
+							long now = System.currentTimeMillis();
+							if (op < 5) storage.putToStorage(key, senderId, new HyCubeResource(rd, new byte[1]), now - rnd.nextInt(30));
+							else if (op < 7) storage.refreshPutToStorage(key, senderId, rd, now);
+							else if (op < 8) storage.deleteFromStorage(key, senderId, rd);
+							else storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor(null, null, null, null));
+						}
+					}
+					catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			});
+		}
+		threads.add(new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < 1000; i++) {
+						storage.discardOutdatedEntries(System.currentTimeMillis() - 15, 5);
+						storage.getResourcesInfoForReplication();
+					}
+				}
+				catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}
+		});
+		for (Thread t : threads) t.start();
+		for (Thread t : threads) t.join();
+
+		//Assert
+		assertThat(failure.get(), is(nullValue()));
+		assertThat(DHTStorageTestSupport.countEntries(storage.getResourcesInfoForReplication()), lessThanOrEqualTo(maxResourcesNum));
+
+		//after discarding all entries (in slices), exactly maxResourcesNum resources may be stored again (the counter of the stored resources is consistent):
+		while (! storage.discardOutdatedEntries(Long.MAX_VALUE - 1, 7));
+		assertThat(DHTStorageTestSupport.countEntries(storage.getResourcesInfoForReplication()), is(0));
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < maxResourcesNum; i++) {
+			HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor("r" + i, "n", "t", "u");
+			assertThat(storage.putToStorage(BigInteger.valueOf(i), senderId, new HyCubeResource(rd, new byte[1]), now), is(true));
+		}
+		assertThat(storage.putToStorage(BigInteger.valueOf(maxResourcesNum), senderId, new HyCubeResource(new HyCubeResourceDescriptor("rx", "n", "t", "u"), new byte[1]), now), is(false));
+
+		storage.discard();
+	}
+
+}
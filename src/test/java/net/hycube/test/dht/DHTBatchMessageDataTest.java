@@ -0,0 +1,60 @@
+package net.hycube.test.dht;
+
+import java.math.BigInteger;
+
+import net.hycube.dht.HyCubeDHTBatchMessageData;
+import net.hycube.dht.HyCubeDHTBatchReplyMessageData;
+import net.hycube.dht.HyCubeDeleteMessageData;
+import net.hycube.dht.HyCubePutReplyMessageData;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DHTBatchMessageDataTest {
+
+	@Test
+	public void messageData_serializeAndParse_expectSameEntriesAndRoutingState() throws MessageByteConversionException {
+		//Arrange
+		BigInteger originId = BigInteger.ONE.shiftLeft(127).add(BigInteger.valueOf(12345));
+		byte[] originNetworkAddress = new byte[] {127, 0, 0, 1, 0x1f, (byte) 0x90};
+		byte[][] entriesData = new byte[][] {
+				new HyCubeDeleteMessageData(1, BigInteger.valueOf(10), "<resourceId=r1>").getBytes(),
+				new HyCubeDeleteMessageData(2, BigInteger.valueOf(20), "<resourceId=r2>").getBytes(),
+				new byte[0],
+		};
+		BigInteger[] steinhausPoints = new BigInteger[] {originId, null, BigInteger.valueOf(7)};
+
+		//Act
+		byte[] bytes = new HyCubeDHTBatchMessageData(originId, originNetworkAddress, 3, new boolean[] {false, true, true}, new boolean[] {true, false, true}, steinhausPoints, entriesData).getBytes();
+		HyCubeDHTBatchMessageData parsed = HyCubeDHTBatchMessageData.fromBytes(bytes);
+		HyCubeDHTBatchReplyMessageData parsedReply = HyCubeDHTBatchReplyMessageData.fromBytes(new HyCubeDHTBatchReplyMessageData(2, new byte[][] {new HyCubePutReplyMessageData(1, true).getBytes(), new HyCubePutReplyMessageData(2, false).getBytes()}).getBytes());
+
+		//Assert
+		assertThat(parsed.getOriginId(), is(originId));
+		assertThat(parsed.getOriginNetworkAddress(), is(originNetworkAddress));
+		assertThat(parsed.getEntriesNum(), is(3));
+		assertThat(parsed.getPMHApplied(), is(new boolean[] {false, true, true}));
+		assertThat(parsed.getSteinhausTransformApplied(), is(new boolean[] {true, false, true}));
+		assertThat(parsed.getSteinhausPoints()[0], is(originId));
+		assertThat(parsed.getSteinhausPoints()[1], is(nullValue()));
+		assertThat(parsed.getSteinhausPoints()[2], is(BigInteger.valueOf(7)));
+		assertThat(parsed.getEntriesData(), is(entriesData));
+		assertThat(HyCubeDeleteMessageData.fromBytes(parsed.getEntriesData()[1]).getKey(), is(BigInteger.valueOf(20)));
+		assertThat(parsedReply.getEntriesNum(), is(2));
+		assertThat(HyCubePutReplyMessageData.fromBytes(parsedReply.getEntriesData()[0]).getPutStatus(), is(true));
+		assertThat(HyCubePutReplyMessageData.fromBytes(parsedReply.getEntriesData()[1]).getCommandId(), is(2));
+		try {
+			byte[] truncated = new byte[bytes.length - 1];
+			System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+			HyCubeDHTBatchMessageData.fromBytes(truncated);
+			fail("The truncated batch message data was parsed.");
+		}
+		catch (MessageByteConversionException e) {
+		}
+	}
+
+}
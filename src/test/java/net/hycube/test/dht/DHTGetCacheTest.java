@@ -0,0 +1,75 @@
+package net.hycube.test.dht;
+
+import java.math.BigInteger;
+
+import net.hycube.dht.HyCubeDHTGetCache;
+import net.hycube.dht.HyCubeResource;
+import net.hycube.dht.HyCubeResourceDescriptor;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DHTGetCacheTest {
+
+	protected static final String CRITERIA = "<resourceId=r1>";
+	protected static final long EXPIRY_TIME = 1000;
+
+
+	protected static HyCubeResource[] result(String url) {
+		return new HyCubeResource[] {new HyCubeResource(new HyCubeResourceDescriptor("r1", "n", "t", url), new byte[] {1})};
+	}
+
+
+	@Test
+	public void put_keyInvalidatedAfterRequestSent_expectReplyNotCached() {
+		//Arrange
+		HyCubeDHTGetCache cache = new HyCubeDHTGetCache(10);
+		BigInteger key = BigInteger.valueOf(1);
+		BigInteger otherKey = BigInteger.valueOf(2);
+		long generation = cache.getGeneration(key);
+		long otherGeneration = cache.getGeneration(otherKey);
+
+		//Act
+		//a local put or delete of the key before the reply is received:
+		cache.invalidate(key);
+		boolean cached = cache.put(key, CRITERIA, result("u1"), EXPIRY_TIME, generation);
+		//the invalidation of another key does not affect the reply:
+		boolean otherCached = cache.put(otherKey, CRITERIA, result("u1"), EXPIRY_TIME, otherGeneration);
+
+		//Assert
+		assertThat(cached, is(false));
+		assertThat(cache.get(key, CRITERIA, 0), is(nullValue()));
+		assertThat(otherCached, is(true));
+		assertThat(cache.get(otherKey, CRITERIA, 0), is(notNullValue()));
+		//the replies to the requests sent after the invalidation are cached:
+		assertThat(cache.put(key, CRITERIA, result("u2"), EXPIRY_TIME, cache.getGeneration(key)), is(true));
+		assertThat(cache.get(key, CRITERIA, 0)[0].getResourceDescriptor().getResourceUrl(), is("u2"));
+	}
+
+
+	@Test
+	public void put_invalidationGenerationsOfManyKeys_expectStaleRepliesNotCached() {
+		//Arrange
+		//the generations of at most 2 keys are kept:
+		HyCubeDHTGetCache cache = new HyCubeDHTGetCache(2);
+		BigInteger key = BigInteger.valueOf(1);
+		long generation = cache.getGeneration(key);
+
+		//Act
+		cache.invalidate(key);
+		for (int i = 2; i < 10; i++) cache.invalidate(BigInteger.valueOf(i));
+
+		//Assert
+		//the generation of the key was removed - the reply sent before any of the invalidations removed is not cached:
+		assertThat(cache.put(key, CRITERIA, result("u1"), EXPIRY_TIME, generation), is(false));
+		assertThat(cache.put(key, CRITERIA, result("u1"), EXPIRY_TIME, cache.getGeneration(key)), is(true));
+		//clearing the cache invalidates all keys:
+		long beforeClear = cache.getGeneration(BigInteger.valueOf(20));
+		cache.clear();
+		assertThat(cache.put(BigInteger.valueOf(20), CRITERIA, result("u1"), EXPIRY_TIME, beforeClear), is(false));
+	}
+
+}
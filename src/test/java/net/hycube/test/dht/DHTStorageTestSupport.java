@@ -0,0 +1,133 @@
+package net.hycube.test.dht;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeAccessor;
+import net.hycube.dht.HyCubeDHTManager;
+import net.hycube.dht.HyCubeDHTStorageManager;
+import net.hycube.dht.HyCubeResourceAccessController;
+import net.hycube.dht.HyCubeResourceEntry;
+import net.hycube.dht.HyCubeResourceReplicationEntry;
+import net.hycube.dht.HyCubeSimpleResourceAccessController;
+import net.hycube.environment.Environment;
+import net.hycube.environment.FileNodePropertiesReader;
+import net.hycube.environment.NodePropertiesInitializationException;
+
+/**
+ * Helper methods shared by the DHT storage manager tests - loads the default configuration and creates the storage managers
+ * with a minimal node accessor (no node is started).
+ *
+ * @author Artur Olszak
+ *
+ */
+final class DHTStorageTestSupport {
+
+	static final String STORAGE_MANAGER_PROPS_PREFIX = "node.main.DHTStorageManager";
+
+
+	private DHTStorageTestSupport() {
+	}
+
+
+	static FileNodePropertiesReader loadProperties() throws NodePropertiesInitializationException {
+		return FileNodePropertiesReader.loadProperties();
+	}
+
+	static void setStorageManagerProperty(FileNodePropertiesReader reader, String storageManagerKey, String name, String value) {
+		reader.setProperty(STORAGE_MANAGER_PROPS_PREFIX + "[" + storageManagerKey + "]." + name, value);
+	}
+
+	static HyCubeNodeId randomNodeId(Random random) {
+		return HyCubeNodeId.fromBigInteger(new BigInteger(4 * 32, random), 4, 32);
+	}
+
+
+	/**
+	 * Creates and initializes the storage manager defined under the given key of the DHTStorageManager property
+	 */
+	static <T extends HyCubeDHTStorageManager> T createStorageManager(T storageManager, String storageManagerKey, FileNodePropertiesReader reader, NodeAccessor nodeAccessor) throws InitializationException, NodePropertiesInitializationException {
+		storageManager.initialize(nodeAccessor, reader.getNodeProperties().getNestedProperty("DHTStorageManager", storageManagerKey));
+		return storageManager;
+	}
+
+
+	/**
+	 * Creates a node accessor exposing only the node id, the environment and a DHT manager allowing all operations on resources.
+	 * Calls to any other methods return null.
+	 */
+	static NodeAccessor createNodeAccessor(final HyCubeNodeId nodeId, final Environment environment) {
+
+		final HyCubeResourceAccessController resourceAccessController = new HyCubeSimpleResourceAccessController();
+
+		final HyCubeDHTManager dhtManager = (HyCubeDHTManager) Proxy.newProxyInstance(HyCubeDHTManager.class.getClassLoader(), new Class<?>[] {HyCubeDHTManager.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getResourceAccessController")) return resourceAccessController;
+				return null;
+			}
+		});
+
+		NodeAccessor nodeAccessor = (NodeAccessor) Proxy.newProxyInstance(NodeAccessor.class.getClassLoader(), new Class<?>[] {NodeAccessor.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getNodeId")) return nodeId;
+				else if (method.getName().equals("getEnvironment")) return environment;
+				else if (method.getName().equals("getDHTManager")) return dhtManager;
+				return null;
+			}
+		});
+
+		resourceAccessController.initialize(nodeAccessor, null);
+
+		return nodeAccessor;
+
+	}
+
+
+	/**
+	 * Returns a comparable representation (sorted descriptors and refresh times) of the entries
+	 */
+	static String toSortedString(HyCubeResourceEntry[] entries) {
+		List<String> list = new ArrayList<String>(entries.length);
+		for (HyCubeResourceEntry e : entries) {
+			list.add(e.getResource().getResourceDescriptor().getDescriptorString() + "@" + e.getRefreshTime());
+		}
+		Collections.sort(list);
+		return list.toString();
+	}
+
+	/**
+	 * Returns a comparable representation (sorted keys, descriptors and refresh times) of the replication information
+	 */
+	static String toSortedString(Map<BigInteger, HyCubeResourceReplicationEntry[]> resourcesInfo) {
+		TreeMap<BigInteger, List<String>> sorted = new TreeMap<BigInteger, List<String>>();
+		for (Map.Entry<BigInteger, HyCubeResourceReplicationEntry[]> entry : resourcesInfo.entrySet()) {
+			List<String> list = new ArrayList<String>();
+			for (HyCubeResourceReplicationEntry re : entry.getValue()) {
+				list.add(re.getResourceDescriptor().getDescriptorString() + "@" + re.getRefreshTime());
+			}
+			Collections.sort(list);
+			if (! list.isEmpty()) sorted.put(entry.getKey(), list);
+		}
+		return sorted.toString();
+	}
+
+	static int countEntries(Map<BigInteger, HyCubeResourceReplicationEntry[]> resourcesInfo) {
+		int count = 0;
+		for (HyCubeResourceReplicationEntry[] entries : resourcesInfo.values()) count += entries.length;
+		return count;
+	}
+
+
+}
@@ -0,0 +1,54 @@
+package net.hycube.test.dht;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+import net.hycube.dht.HyCubeGetReplyMessageData;
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class GetReplyMessageDataTest {
+
+	@Test
+	public void replyWithoutValidityTimes_expectPreviousFormat() throws MessageByteConversionException, UnsupportedEncodingException {
+		//Arrange
+		String rds = "resourceId=r1,resourceUrl=u1";
+		byte[] data = new byte[] {1, 2, 3};
+		HyCubeGetReplyMessageData msgData = new HyCubeGetReplyMessageData(7, new String[] {rds}, new byte[][] {data}, null);
+
+		//Act
+		byte[] bytes = msgData.getBytes();
+		HyCubeGetReplyMessageData parsed = HyCubeGetReplyMessageData.fromBytes(bytes);
+
+		//Assert
+		byte[] rdsB = rds.getBytes(HyCubeGetReplyMessageData.MSG_RESOURCE_DESCRIPTOR_STRING_CHARSET);
+		ByteBuffer expected = ByteBuffer.allocate(4 + 4 + 2 + 4 + rdsB.length + data.length);
+		expected.order(HyCubeMessage.MESSAGE_BYTE_ORDER);
+		expected.putInt(7).putInt(1).putShort((short) rdsB.length).putInt(data.length).put(rdsB).put(data);
+		assertThat(bytes, is(expected.array()));
+		assertThat(parsed.getValidityTimes(), is(nullValue()));
+		assertThat(parsed.getResourceDescriptorStrings()[0], is(rds));
+		assertThat(parsed.getResourcesData()[0], is(data));
+	}
+
+	@Test
+	public void replyWithValidityTimes_serializeAndParse_expectSame() throws MessageByteConversionException {
+		//Arrange
+		HyCubeGetReplyMessageData msgData = new HyCubeGetReplyMessageData(7, new String[] {"resourceId=r1", "resourceId=r2"}, new byte[][] {{1}, {2, 3}}, new long[] {1000, 25});
+
+		//Act
+		HyCubeGetReplyMessageData parsed = HyCubeGetReplyMessageData.fromBytes(msgData.getBytes());
+
+		//Assert
+		assertThat(parsed.getCommandId(), is(7));
+		assertThat(parsed.getResourceDescriptorStrings().length, is(2));
+		assertThat(parsed.getValidityTimes(), is(new long[] {1000, 25}));
+		assertThat(parsed.getResourcesData()[1], is(new byte[] {2, 3}));
+	}
+
+}
@@ -0,0 +1,304 @@
+package net.hycube.test.dht;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.dht.HyCubeMappedDHTStorageManager;
+import net.hycube.dht.HyCubeResource;
+import net.hycube.dht.HyCubeResourceDescriptor;
+import net.hycube.dht.HyCubeResourceEntry;
+import net.hycube.environment.DirectEnvironment;
+import net.hycube.environment.FileNodePropertiesReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class MappedDHTStorageManagerTest {
+
+	protected static final String MAPPED_KEY = "HyCubeMappedDHTStorageManager";
+
+	@Rule
+	public TemporaryFolder storageFolder = new TemporaryFolder();
+
+	protected DirectEnvironment environment;
+	protected HyCubeNodeId nodeId;
+	protected HyCubeNodeId senderId;
+	protected long baseTime;
+
+
+	@Before
+	public void setUp() throws InitializationException {
+		environment = DirectEnvironment.initialize();
+		Random random = new Random(5);
+		nodeId = DHTStorageTestSupport.randomNodeId(random);
+		senderId = DHTStorageTestSupport.randomNodeId(random);
+		//the refresh times are in the past (the storage manager does not accept refresh times later than the current time):
+		baseTime = System.currentTimeMillis() - 1000000;
+	}
+
+	@After
+	public void tearDown() {
+		environment.discard();
+	}
+
+
+	protected HyCubeMappedDHTStorageManager openStorage(int segmentSize) throws Exception {
+		return openStorage(segmentSize, true);
+	}
+
+	protected HyCubeMappedDHTStorageManager openStorage(int segmentSize, boolean storeMultipleCopies) throws Exception {
+		FileNodePropertiesReader reader = DHTStorageTestSupport.loadProperties();
+		DHTStorageTestSupport.setStorageManagerProperty(reader, MAPPED_KEY, "StorageDirectory", storageFolder.getRoot().getPath());
+		DHTStorageTestSupport.setStorageManagerProperty(reader, MAPPED_KEY, "StoreMultipleCopies", Boolean.toString(storeMultipleCopies));
+		DHTStorageTestSupport.setStorageManagerProperty(reader, MAPPED_KEY, "SegmentSize", Integer.toString(segmentSize));
+		DHTStorageTestSupport.setStorageManagerProperty(reader, MAPPED_KEY, "CompactionThreshold", "0.5");
+		return DHTStorageTestSupport.createStorageManager(new HyCubeMappedDHTStorageManager(), MAPPED_KEY, reader, DHTStorageTestSupport.createNodeAccessor(nodeId, environment));
+	}
+
+	protected File getNodeStorageDirectory() {
+		return new File(storageFolder.getRoot(), nodeId.toHexString());
+	}
+
+	protected static HyCubeResourceDescriptor descriptor(String resourceId, String resourceUrl) {
+		return new HyCubeResourceDescriptor(resourceId, "n", "t", resourceUrl);
+	}
+
+	/**
+	 * Returns the descriptors, refresh times and data of all stored resources of the key, sorted
+	 */
+	protected String getContents(HyCubeMappedDHTStorageManager storage, BigInteger key) {
+		HyCubeResourceEntry[] entries = storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor(null, null, null, null));
+		String[] contents = new String[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			contents[i] = entries[i].getResource().getResourceDescriptor().getDescriptorString() + "@" + entries[i].getRefreshTime() + "=" + Arrays.toString(entries[i].getResource().getData());
+		}
+		Arrays.sort(contents);
+		return Arrays.toString(contents);
+	}
+
+
+	@Test
+	public void reopen_afterPutReplaceDeleteRefresh_expectSameContents() throws Exception {
+		//Arrange
+		HyCubeMappedDHTStorageManager storage = openStorage(HyCubeMappedDHTStorageManager.DEFAULT_SEGMENT_SIZE);
+		BigInteger key1 = BigInteger.valueOf(1001);
+		BigInteger key2 = BigInteger.valueOf(2002);
+		storage.putToStorage(key1, senderId, new HyCubeResource(descriptor("r1", "u1"), new byte[] {1}), baseTime);
+		storage.putToStorage(key1, senderId, new HyCubeResource(descriptor("r1", "u2"), new byte[] {2}), baseTime);
+		storage.putToStorage(key2, senderId, new HyCubeResource(descriptor("r2", "u1"), new byte[] {3}), baseTime);
+		//replace (the same resource id and url):
+		storage.putToStorage(key1, senderId, new HyCubeResource(descriptor("r1", "u1"), new byte[] {4, 4}), baseTime + 1);
+		//delete:
+		assertThat(storage.deleteFromStorage(key1, senderId, descriptor("r1", "u2")), is(true));
+		//refresh (the refresh time is updated in place):
+		assertThat(storage.refreshPutToStorage(key2, senderId, descriptor("r2", "u1"), baseTime + 5), is(true));
+		String contents1 = getContents(storage, key1);
+		String contents2 = getContents(storage, key2);
+		String replicationInfo = DHTStorageTestSupport.toSortedString(storage.getResourcesInfoForReplication());
+
+		//Act
+		storage.discard();
+		storage = openStorage(HyCubeMappedDHTStorageManager.DEFAULT_SEGMENT_SIZE);
+
+		//Assert
+		assertThat(contents1, is("[" + descriptor("r1", "u1").getDescriptorString() + "@" + (baseTime + 1) + "=[4, 4]]"));
+		assertThat(contents2, is("[" + descriptor("r2", "u1").getDescriptorString() + "@" + (baseTime + 5) + "=[3]]"));
+		assertThat(getContents(storage, key1), is(contents1));
+		assertThat(getContents(storage, key2), is(contents2));
+		assertThat(DHTStorageTestSupport.toSortedString(storage.getResourcesInfoForReplication()), is(replicationInfo));
+
+		storage.discard();
+	}
+
+
+	@Test
+	public void reopen_lastSegmentTruncatedMidRecord_expectTornRecordDropped() throws Exception {
+		//Arrange
+		HyCubeMappedDHTStorageManager storage = openStorage(HyCubeMappedDHTStorageManager.DEFAULT_SEGMENT_SIZE);
+		BigInteger key = BigInteger.valueOf(1001);
+		for (int i = 0; i < 5; i++) {
+			storage.putToStorage(key, senderId, new HyCubeResource(descriptor("r" + i, "u"), new byte[] {(byte) i, (byte) i, (byte) i}), baseTime + i);
+		}
+		storage.discard();
+		assertThat(getNodeStorageDirectory().listFiles().length, is(1));
+		File segmentFile = getNodeStorageDirectory().listFiles()[0];
+
+		//Act
+		//find the last record (records are prefixed by their lengths, the segment header has 8 bytes, and a zero length ends the records) and cut the file in its middle:
+		RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+		try {
+			long position = 8;
+			long lastRecordPosition = -1;
+			int lastRecordLength = 0;
+			while (true) {
+				file.seek(position);
+				int length = file.readInt();
+				if (length == 0) break;
+				lastRecordPosition = position;
+				lastRecordLength = length;
+				position += length;
+			}
+			file.setLength(lastRecordPosition + lastRecordLength / 2);
+		}
+		finally {
+			file.close();
+		}
+		storage = openStorage(HyCubeMappedDHTStorageManager.DEFAULT_SEGMENT_SIZE);
+
+		//Assert
+		HyCubeResourceEntry[] entries = storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor(null, null, null, null));
+		assertThat(entries.length, is(4));
+		assertThat(storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor("r4", null, null, null)).length, is(0));
+		for (int i = 0; i < 4; i++) {
+			HyCubeResourceEntry[] e = storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor("r" + i, null, null, null));
+			assertThat(e.length, is(1));
+			assertThat(e[0].getResource().getData(), is(new byte[] {(byte) i, (byte) i, (byte) i}));
+		}
+
+		//the storage remains writable, and the records written after the torn record are restored:
+		assertThat(storage.putToStorage(key, senderId, new HyCubeResource(descriptor("r5", "u"), new byte[] {5}), baseTime + 5), is(true));
+		String contents = getContents(storage, key);
+		storage.discard();
+		storage = openStorage(HyCubeMappedDHTStorageManager.DEFAULT_SEGMENT_SIZE);
+		assertThat(getContents(storage, key), is(contents));
+
+		storage.discard();
+	}
+
+
+	@Test
+	public void compaction_tombstonesAndLiveRecordsAcrossSegments_expectContentsPreservedAfterReopen() throws Exception {
+		//Arrange
+		//small segments, so that the records (and the tombstones of the records in older segments) are spread across many segments:
+		final int segmentSize = 512;
+		HyCubeMappedDHTStorageManager storage = openStorage(segmentSize);
+		Random random = new Random(11);
+		BigInteger[] keys = new BigInteger[4];
+		for (int i = 0; i < keys.length; i++) keys[i] = BigInteger.valueOf(i * 1000 + 7);
+		//the expected contents (the limits are not reached):
+		Map<BigInteger, TreeMap<String, String>> expected = new HashMap<BigInteger, TreeMap<String, String>>();
+		for (BigInteger key : keys) expected.put(key, new TreeMap<String, String>());
+		int maxSegmentsNum = 0;
+		int compactionsNum = 0;
+
+		//Act & Assert
+		for (int step = 0; step < 3000; step++) {
+			BigInteger key = keys[random.nextInt(keys.length)];
+			HyCubeResourceDescriptor rd = descriptor("r" + random.nextInt(3), "u" + random.nextInt(3));
+			long time = baseTime + step;
+			int op = random.nextInt(10);
+			if (op < 5) {
+				byte[] data = new byte[1 + random.nextInt(40)];
+				random.nextBytes(data);
+				assertThat(storage.putToStorage(key, senderId, new HyCubeResource(rd, data), time), is(true));
+				expected.get(key).put(rd.getDescriptorString(), "@" + time + "=" + Arrays.toString(data));
+			}
+			else if (op < 8) {
+				boolean stored = expected.get(key).remove(rd.getDescriptorString()) != null;
+				assertThat(storage.deleteFromStorage(key, senderId, rd), is(stored));
+			}
+			else {
+				String contents = expected.get(key).get(rd.getDescriptorString());
+				if (contents != null) {
+					storage.refreshPutToStorage(key, senderId, rd, time);
+					expected.get(key).put(rd.getDescriptorString(), "@" + time + contents.substring(contents.indexOf('=')));
+				}
+			}
+
+			if (step % 20 == 0) {
+				//no entries are outdated - only the segments are compacted:
+				int segmentsNum = storage.getSegmentsNum();
+				maxSegmentsNum = Math.max(maxSegmentsNum, segmentsNum);
+				storage.discardOutdatedEntries(0);
+				if (storage.getSegmentsNum() < segmentsNum) compactionsNum++;
+			}
+
+			if (step % 500 == 499) {
+				storage.discard();
+				storage = openStorage(segmentSize);
+			}
+
+			if (step % 100 == 99) {
+				for (BigInteger k : keys) {
+					String[] contents = new String[expected.get(k).size()];
+					int i = 0;
+					for (Map.Entry<String, String> e : expected.get(k).entrySet()) contents[i++] = e.getKey() + e.getValue();
+					Arrays.sort(contents);
+					assertThat("step " + step, getContents(storage, k), is(Arrays.toString(contents)));
+				}
+			}
+		}
+
+		assertThat(maxSegmentsNum, greaterThan(10));
+		assertThat(compactionsNum, greaterThan(0));
+		//the compaction keeps the number of segments proportional to the live data (not to the number of records written):
+		assertThat(storage.getSegmentsNum(), lessThan(maxSegmentsNum));
+
+		storage.discard();
+	}
+
+
+
+	@Test
+	public void compaction_resourceReplacedByAnotherUrlAndDeleted_expectReplacedRecordNotRestoredAfterReopen() throws Exception {
+		//Arrange
+		//one copy of every resource id is stored - a put with another url replaces the stored resource:
+		final int segmentSize = 512;
+		HyCubeMappedDHTStorageManager storage = openStorage(segmentSize, false);
+		BigInteger key = BigInteger.valueOf(1001);
+		BigInteger fillerKey = BigInteger.valueOf(2002);
+		int fillersNum = 0;
+		//segment 1: A and a record that stays stored (so that the segment is not compacted):
+		storage.putToStorage(key, senderId, new HyCubeResource(descriptor("r1", "uA"), new byte[] {1}), baseTime);
+		storage.putToStorage(key, senderId, new HyCubeResource(descriptor("r2", "u"), new byte[] {2}), baseTime);
+		int segmentsNum = storage.getSegmentsNum();
+		while (storage.getSegmentsNum() == segmentsNum) {
+			storage.putToStorage(fillerKey, senderId, new HyCubeResource(descriptor("f" + fillersNum++, "u"), new byte[40]), baseTime);
+		}
+		//segment 2: B replaces A, B is deleted:
+		File[] segmentFiles = getNodeStorageDirectory().listFiles();
+		Arrays.sort(segmentFiles);
+		File segment2File = segmentFiles[segmentFiles.length - 1];
+		storage.putToStorage(key, senderId, new HyCubeResource(descriptor("r1", "uB"), new byte[] {3}), baseTime + 1);
+		assertThat(getContents(storage, key), is("[" + descriptor("r1", "uB").getDescriptorString() + "@" + (baseTime + 1) + "=[3], " + descriptor("r2", "u").getDescriptorString() + "@" + baseTime + "=[2]]"));
+		assertThat(storage.deleteFromStorage(key, senderId, descriptor("r1", "uB")), is(true));
+		//seal segment 2, and delete all records stored in it (the fillers), so that it is compacted:
+		int firstSegment2Filler = fillersNum;
+		segmentsNum = storage.getSegmentsNum();
+		while (storage.getSegmentsNum() == segmentsNum) {
+			storage.putToStorage(fillerKey, senderId, new HyCubeResource(descriptor("f" + fillersNum++, "u"), new byte[40]), baseTime);
+		}
+		for (int i = firstSegment2Filler; i < fillersNum; i++) storage.deleteFromStorage(fillerKey, senderId, descriptor("f" + i, "u"));
+		String expected = "[" + descriptor("r2", "u").getDescriptorString() + "@" + baseTime + "=[2]]";
+		assertThat(getContents(storage, key), is(expected));
+
+		//Act
+		storage.discardOutdatedEntries(0);
+		boolean segment2Compacted = (! segment2File.exists());
+		storage.discard();
+		storage = openStorage(segmentSize, false);
+
+		//Assert
+		assertThat(segment2Compacted, is(true));
+		//A is not restored from segment 1:
+		assertThat(getContents(storage, key), is(expected));
+
+		storage.discard();
+	}
+
+}
@@ -0,0 +1,291 @@
+package net.hycube.test.dht;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeAccessor;
+import net.hycube.dht.HyCubeOffHeapDHTStorageManager;
+import net.hycube.dht.HyCubeResource;
+import net.hycube.dht.HyCubeResourceDescriptor;
+import net.hycube.dht.HyCubeResourceEntry;
+import net.hycube.dht.HyCubeSimpleDHTStorageManager;
+import net.hycube.environment.DirectEnvironment;
+import net.hycube.environment.FileNodePropertiesReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OffHeapDHTStorageManagerTest {
+
+	protected static final String SIMPLE_KEY = "HyCubeSimpleDHTStorageManager";
+	protected static final String OFF_HEAP_KEY = "HyCubeOffHeapDHTStorageManager";
+
+	protected DirectEnvironment environment;
+	protected HyCubeNodeId nodeId;
+	protected HyCubeNodeId senderId;
+
+
+	@Before
+	public void setUp() throws InitializationException {
+		environment = DirectEnvironment.initialize();
+		Random random = new Random(7);
+		nodeId = DHTStorageTestSupport.randomNodeId(random);
+		senderId = DHTStorageTestSupport.randomNodeId(random);
+	}
+
+	@After
+	public void tearDown() {
+		environment.discard();
+	}
+
+
+	protected HyCubeOffHeapDHTStorageManager createStorage(FileNodePropertiesReader reader) throws Exception {
+		DHTStorageTestSupport.setStorageManagerProperty(reader, OFF_HEAP_KEY, "ArenaSize", "8192");
+		DHTStorageTestSupport.setStorageManagerProperty(reader, OFF_HEAP_KEY, "SlabSize", "4096");
+		DHTStorageTestSupport.setStorageManagerProperty(reader, OFF_HEAP_KEY, "MinChunkSize", "64");
+		return DHTStorageTestSupport.createStorageManager(new HyCubeOffHeapDHTStorageManager(), OFF_HEAP_KEY, reader, DHTStorageTestSupport.createNodeAccessor(nodeId, environment));
+	}
+
+	protected static HyCubeResource resource(String resourceId, byte[] data) {
+		return new HyCubeResource(new HyCubeResourceDescriptor(resourceId, "n", "t", "u"), data);
+	}
+
+	protected static byte[] bufferToArray(ByteBuffer b) {
+		byte[] data = new byte[b.remaining()];
+		b.get(data);
+		return data;
+	}
+
+	protected static byte[] filled(int length, int value) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) data[i] = (byte) value;
+		return data;
+	}
+
+
+	@Test
+	public void replaceAndDelete_returnedEntriesPinChunksUntilReleased() throws Exception {
+		//Arrange
+		//one arena (two slabs of 4096 bytes, the chunks of the largest class take whole slabs):
+		FileNodePropertiesReader reader = DHTStorageTestSupport.loadProperties();
+		DHTStorageTestSupport.setStorageManagerProperty(reader, OFF_HEAP_KEY, "MaxOffHeapSize", "8192");
+		HyCubeOffHeapDHTStorageManager storage = createStorage(reader);
+		BigInteger key = BigInteger.valueOf(1);
+		long now = System.currentTimeMillis();
+		assertThat(storage.putToStorage(key, senderId, resource("r1", filled(4096, 1)), now), is(true));
+		assertThat(storage.putToStorage(key, senderId, resource("r2", filled(4096, 2)), now), is(true));
+		assertThat(storage.putToStorage(key, senderId, resource("r3", filled(4096, 3)), now), is(false));
+		HyCubeResourceEntry[] before = storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor("r1", null, null, null));
+
+		//Act
+		//all chunks are used, so the puts succeed only if the chunks of the deleted and replaced entries are reused
+		//(the chunk of the new data is allocated before the chunk of the replaced entry is released):
+		boolean deleted = storage.deleteFromStorage(key, senderId, new HyCubeResourceDescriptor("r2", "n", "t", "u"));
+		boolean replaced = storage.putToStorage(key, senderId, resource("r1", filled(4096, 4)), now);
+		//the chunk of the replaced entry is pinned by the entry returned before:
+		boolean storedWhilePinned = storage.putToStorage(key, senderId, resource("r3", filled(4096, 5)), now);
+		ByteBuffer view = before[0].getDataBuffer();
+		byte[] viewData = bufferToArray(before[0].getDataBuffer());
+		before[0].release();
+		before[0].release();
+		boolean storedAfterRelease = storage.putToStorage(key, senderId, resource("r3", filled(4096, 5)), now);
+		HyCubeResourceEntry[] after = storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor("r1", null, null, null));
+
+		//Assert
+		assertThat(deleted, is(true));
+		assertThat(replaced, is(true));
+		assertThat(storedWhilePinned, is(false));
+		assertThat(storedAfterRelease, is(true));
+		//the entry returned exposes a view of the chunk (no copy), valid until the entry is released:
+		assertThat(before.length, is(1));
+		assertThat(view.isReadOnly(), is(true));
+		assertThat(view.isDirect(), is(true));
+		assertThat(viewData, is(filled(4096, 1)));
+		//the chunk was reused after the entry had been released:
+		assertThat(bufferToArray(view), is(filled(4096, 5)));
+		try {
+			before[0].getDataBuffer();
+			fail("The data of the released entry was returned.");
+		}
+		catch (IllegalStateException e) {
+		}
+		assertThat(after[0].getResource().getData(), is(filled(4096, 4)));
+		//the data copied to the heap remains valid after the entry is released:
+		after[0].release();
+		assertThat(bufferToArray(after[0].getDataBuffer()), is(filled(4096, 4)));
+		assertThat(storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor("r3", null, null, null))[0].getResource().getData(), is(filled(4096, 5)));
+		assertThat(storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor("r2", null, null, null)).length, is(0));
+		assertThat(storage.getOffHeapSize(), is(8192L));
+
+		storage.discard();
+	}
+
+
+	@Test
+	public void entryNotReleased_expectChunkFreedAfterEntryGarbageCollected() throws Exception {
+		//Arrange
+		FileNodePropertiesReader reader = DHTStorageTestSupport.loadProperties();
+		DHTStorageTestSupport.setStorageManagerProperty(reader, OFF_HEAP_KEY, "MaxOffHeapSize", "8192");
+		HyCubeOffHeapDHTStorageManager storage = createStorage(reader);
+		BigInteger key = BigInteger.valueOf(1);
+		long now = System.currentTimeMillis();
+		assertThat(storage.putToStorage(key, senderId, resource("r1", filled(4096, 1)), now), is(true));
+		assertThat(storage.putToStorage(key, senderId, resource("r2", filled(4096, 2)), now), is(true));
+		assertThat(storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor("r1", null, null, null)).length, is(1));
+		assertThat(storage.deleteFromStorage(key, senderId, new HyCubeResourceDescriptor("r1", "n", "t", "u")), is(true));
+
+		//Act
+		//the entry returned is not referenced (and not released) - its pin is released after it is garbage-collected:
+		boolean stored = false;
+		for (int i = 0; i < 50 && ! stored; i++) {
+			System.gc();
+			Thread.sleep(20);
+			stored = storage.putToStorage(key, senderId, resource("r3", filled(4096, 3)), now);
+		}
+
+		//Assert
+		assertThat(stored, is(true));
+
+		storage.discard();
+	}
+
+
+	@Test
+	public void largeData_expectStoredInDedicatedBuffers() throws Exception {
+		//Arrange
+		HyCubeOffHeapDHTStorageManager storage = createStorage(DHTStorageTestSupport.loadProperties());
+		BigInteger key = BigInteger.valueOf(1);
+		long now = System.currentTimeMillis();
+		byte[] large = new byte[10000];
+		new Random(1).nextBytes(large);
+
+		//Act
+		boolean stored = storage.putToStorage(key, senderId, resource("r1", large), now);
+		HyCubeResourceEntry[] entries = storage.getFromStorage(key, senderId, new HyCubeResourceDescriptor("r1", null, null, null));
+		long offHeapSize = storage.getOffHeapSize();
+		storage.deleteFromStorage(key, senderId, new HyCubeResourceDescriptor("r1", "n", "t", "u"));
+
+		//Assert
+		assertThat(stored, is(true));
+		assertThat(offHeapSize, is(10000L));
+		assertThat(bufferToArray(entries[0].getDataBuffer()), is(large));
+		assertThat(entries[0].getDataBuffer().isReadOnly(), is(true));
+		assertThat(entries[0].getResource().getData(), is(large));
+		//the buffer of the deleted entry is not counted, but the returned view remains valid:
+		assertThat(storage.getOffHeapSize(), is(0L));
+		assertThat(bufferToArray(entries[0].getDataBuffer()), is(large));
+
+		storage.discard();
+	}
+
+
+	@Test
+	public void maxOffHeapSizeReached_expectPutRejected() throws Exception {
+		//Arrange
+		FileNodePropertiesReader reader = DHTStorageTestSupport.loadProperties();
+		DHTStorageTestSupport.setStorageManagerProperty(reader, OFF_HEAP_KEY, "MaxOffHeapSize", "16384");
+		HyCubeOffHeapDHTStorageManager storage = createStorage(reader);
+		BigInteger key = BigInteger.valueOf(1);
+		long now = System.currentTimeMillis();
+
+		//Act & Assert
+		//a large buffer fits within the limit only if no arenas are allocated:
+		assertThat(storage.putToStorage(key, senderId, resource("large", new byte[16384]), now), is(true));
+		assertThat(storage.putToStorage(key, senderId, resource("small", new byte[10]), now), is(false));
+		assertThat(storage.deleteFromStorage(key, senderId, new HyCubeResourceDescriptor("large", "n", "t", "u")), is(true));
+		//two arenas (four slabs of 4096 bytes, the chunks of the largest class take whole slabs):
+		int storedNum = 0;
+		for (int i = 0; i < 200; i++) {
+			if (storage.putToStorage(BigInteger.valueOf(i), senderId, resource("r", new byte[4096]), now)) storedNum++;
+		}
+		assertThat(storedNum, is(4));
+		assertThat(storage.getOffHeapSize(), is(16384L));
+		assertThat(storage.putToStorage(key, senderId, resource("large", new byte[5000]), now), is(false));
+		//the freed chunks are reused:
+		assertThat(storage.deleteFromStorage(BigInteger.valueOf(0), senderId, new HyCubeResourceDescriptor("r", "n", "t", "u")), is(true));
+		assertThat(storage.putToStorage(BigInteger.valueOf(300), senderId, resource("r", new byte[4096]), now), is(true));
+
+		storage.discard();
+	}
+
+
+	@Test
+	public void randomOperations_sameResultsAsSimpleManager() throws Exception {
+		//Arrange
+		FileNodePropertiesReader reader = DHTStorageTestSupport.loadProperties();
+		for (String key : new String[] {SIMPLE_KEY, OFF_HEAP_KEY}) {
+			DHTStorageTestSupport.setStorageManagerProperty(reader, key, "MaxResourcesNum", "60");
+			DHTStorageTestSupport.setStorageManagerProperty(reader, key, "MaxKeySlotSize", "3");
+			DHTStorageTestSupport.setStorageManagerProperty(reader, key, "MaxResourceSlotSize", "2");
+		}
+		NodeAccessor nodeAccessor = DHTStorageTestSupport.createNodeAccessor(nodeId, environment);
+		HyCubeSimpleDHTStorageManager simple = DHTStorageTestSupport.createStorageManager(new HyCubeSimpleDHTStorageManager(), SIMPLE_KEY, reader, nodeAccessor);
+		HyCubeOffHeapDHTStorageManager offHeap = createStorage(reader);
+		Random random = new Random(3);
+		BigInteger[] keys = new BigInteger[8];
+		for (int i = 0; i < keys.length; i++) keys[i] = BigInteger.valueOf(i * 1000 + 7);
+
+		//Act & Assert
+		long time = 1000000;
+		for (int step = 0; step < 20000; step++) {
+			BigInteger key = keys[random.nextInt(keys.length)];
+			String resourceId = "r" + random.nextInt(5);
+			HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor(resourceId, "n", "t", "u" + random.nextInt(4));
+			int op = random.nextInt(10);
+			time += random.nextInt(3);
+			Object expected;
+			Object actual;
+			if (op < 4) {
+				//small and large (dedicated buffers) data:
+				byte[] data = new byte[random.nextInt(10) == 0 ? 4096 + random.nextInt(2000) : random.nextInt(300)];
+				random.nextBytes(data);
+				HyCubeResource r = new HyCubeResource(rd, data);
+				expected = simple.putToStorage(key, senderId, r, time);
+				actual = offHeap.putToStorage(key, senderId, r, time);
+			}
+			else if (op < 6) {
+				expected = simple.refreshPutToStorage(key, senderId, rd, time);
+				actual = offHeap.refreshPutToStorage(key, senderId, rd, time);
+			}
+			else if (op < 7) {
+				expected = simple.deleteFromStorage(key, senderId, rd);
+				actual = offHeap.deleteFromStorage(key, senderId, rd);
+			}
+			else if (op < 9) {
+				HyCubeResourceDescriptor criteria = new HyCubeResourceDescriptor(random.nextBoolean() ? resourceId : null, null, null, null);
+				expected = toSortedStringWithData(simple.getFromStorage(key, senderId, criteria));
+				actual = toSortedStringWithData(offHeap.getFromStorage(key, senderId, criteria));
+			}
+			else {
+				long discardTime = time - 100;
+				simple.discardOutdatedEntries(discardTime);
+				offHeap.discardOutdatedEntries(discardTime);
+				expected = DHTStorageTestSupport.toSortedString(simple.getResourcesInfoForReplication());
+				actual = DHTStorageTestSupport.toSortedString(offHeap.getResourcesInfoForReplication());
+			}
+			assertThat("step " + step + ", operation " + op, actual, is(expected));
+		}
+
+		simple.discard();
+		offHeap.discard();
+	}
+
+
+	protected static String toSortedStringWithData(HyCubeResourceEntry[] entries) {
+		String[] contents = new String[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			contents[i] = entries[i].getResource().getResourceDescriptor().getDescriptorString() + "@" + entries[i].getRefreshTime() + "=" + Arrays.hashCode(bufferToArray(entries[i].getDataBuffer()));
+		}
+		Arrays.sort(contents);
+		return Arrays.toString(contents);
+	}
+
+}
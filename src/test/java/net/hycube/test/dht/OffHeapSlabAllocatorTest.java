@@ -0,0 +1,151 @@
+package net.hycube.test.dht;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.hycube.dht.HyCubeOffHeapSlabAllocator;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapSlabAllocatorTest {
+
+	@Test
+	public void allocate_expectSmallestSufficientSizeClass() {
+		//Arrange
+		HyCubeOffHeapSlabAllocator allocator = new HyCubeOffHeapSlabAllocator(64 * 1024, 4096, 64, 1.25, 0);
+
+		//Act & Assert
+		assertThat(allocator.getMaxChunkSize(), is(4096));
+		int previousChunkSize = 0;
+		for (int length = 1; length <= 4096; length++) {
+			long address = allocator.allocate(length);
+			int chunkSize = allocator.getChunkSize(address);
+			assertThat(chunkSize, greaterThanOrEqualTo(length));
+			assertThat(chunkSize % 8 == 0 || chunkSize == 4096, is(true));
+			//the class sizes grow by at most the growth factor (rounded up to a multiple of 8), so the chunk is never much larger than the length:
+			if (length > 64) assertThat((double) chunkSize, lessThan(length * 1.25 + 8));
+			assertThat(chunkSize, greaterThanOrEqualTo(previousChunkSize));
+			previousChunkSize = chunkSize;
+			allocator.free(address);
+		}
+		assertThat(allocator.getChunkSize(allocator.allocate(1)), is(64));
+	}
+
+
+	@Test
+	public void freeAndAllocate_sameClass_expectChunkReused() {
+		//Arrange
+		HyCubeOffHeapSlabAllocator allocator = new HyCubeOffHeapSlabAllocator(64 * 1024, 4096, 64, 1.25, 0);
+		long a1 = allocator.allocate(100);
+		long a2 = allocator.allocate(100);
+		long allocatedSize = allocator.getAllocatedSize();
+
+		//Act
+		allocator.free(a1);
+		long a3 = allocator.allocate(allocator.getChunkSize(a1));
+		long a4 = allocator.allocate(1000);
+
+		//Assert
+		assertThat(a2, is(not(a1)));
+		assertThat(a3, is(a1));
+		assertThat(a4, is(not(a1)));
+		assertThat(a4, is(not(a2)));
+		assertThat(allocator.getAllocatedSize(), is(allocatedSize));
+	}
+
+
+	@Test
+	public void randomAllocations_expectDataOfLiveChunksPreserved() {
+		//Arrange
+		Random random = new Random(1);
+		HyCubeOffHeapSlabAllocator allocator = new HyCubeOffHeapSlabAllocator(64 * 1024, 8192, 16, 1.5, 0);
+		Map<Long, byte[]> live = new HashMap<Long, byte[]>();
+
+		//Act & Assert
+		for (int i = 0; i < 5000; i++) {
+			if (live.isEmpty() || random.nextInt(3) != 0) {
+				byte[] data = new byte[random.nextInt(allocator.getMaxChunkSize() + 1)];
+				random.nextBytes(data);
+				long address = allocator.allocate(data.length);
+				assertThat(live.containsKey(address), is(false));
+				allocator.write(address, data);
+				live.put(address, data);
+			}
+			else {
+				long address = live.keySet().iterator().next();
+				byte[] data = live.remove(address);
+				assertThat(allocator.read(address, data.length), is(data));
+				allocator.free(address);
+			}
+		}
+		for (Map.Entry<Long, byte[]> e : live.entrySet()) {
+			assertThat(allocator.read(e.getKey(), e.getValue().length), is(e.getValue()));
+			byte[] viewed = new byte[e.getValue().length];
+			allocator.view(e.getKey(), e.getValue().length).get(viewed);
+			assertThat(viewed, is(e.getValue()));
+		}
+	}
+
+
+	@Test
+	public void maxSizeReached_expectNoAddressUntilChunksFreed() {
+		//Arrange
+		//two arenas of two slabs each:
+		HyCubeOffHeapSlabAllocator allocator = new HyCubeOffHeapSlabAllocator(8192, 4096, 64, 2, 2 * 8192);
+		Set<Long> addresses = new HashSet<Long>();
+
+		//Act
+		long address;
+		while ((address = allocator.allocate(1024)) != HyCubeOffHeapSlabAllocator.NO_ADDRESS) {
+			assertThat(addresses.add(address), is(true));
+		}
+
+		//Assert
+		assertThat(allocator.getAllocatedSize(), is(2L * 8192));
+		assertThat(addresses.size(), is(4 * (4096 / allocator.getChunkSize(addresses.iterator().next()))));
+		//other classes cannot get new slabs either:
+		assertThat(allocator.allocate(64), is(HyCubeOffHeapSlabAllocator.NO_ADDRESS));
+		//freed chunks are reused within the limit:
+		long freed = addresses.iterator().next();
+		allocator.free(freed);
+		assertThat(allocator.allocate(1000), is(freed));
+		assertThat(allocator.getAllocatedSize(), is(2L * 8192));
+	}
+
+
+	@Test
+	public void reservedSize_expectCountedTowardsMaxSize() {
+		//Arrange
+		HyCubeOffHeapSlabAllocator allocator = new HyCubeOffHeapSlabAllocator(8192, 4096, 64, 2, 2 * 8192);
+
+		//Act
+		allocator.setReservedSize(8193);
+
+		//Assert
+		//no arena fits within the limit:
+		int allocatedNum = 0;
+		while (allocator.allocate(4096) != HyCubeOffHeapSlabAllocator.NO_ADDRESS) allocatedNum++;
+		assertThat(allocatedNum, is(0));
+		//one arena (two slabs) fits within the limit:
+		allocator.setReservedSize(8192);
+		while (allocator.allocate(4096) != HyCubeOffHeapSlabAllocator.NO_ADDRESS) allocatedNum++;
+		assertThat(allocatedNum, is(2));
+		assertThat(allocator.getAllocatedSize(), is(8192L));
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void allocate_lengthExceedsMaxChunkSize_expectIllegalArgumentException() {
+		HyCubeOffHeapSlabAllocator allocator = new HyCubeOffHeapSlabAllocator(8192, 4096, 64, 2, 0);
+		allocator.allocate(4097);
+	}
+
+}
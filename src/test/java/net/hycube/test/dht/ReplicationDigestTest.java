@@ -0,0 +1,150 @@
+package net.hycube.test.dht;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.hycube.dht.HyCubeReplicateDigestMessageData;
+import net.hycube.dht.HyCubeReplicateDigestReplyMessageData;
+import net.hycube.dht.HyCubeReplicationDigest;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ReplicationDigestTest {
+
+	protected static final int RANGES_NUM = 16;
+
+
+	protected static class Entry {
+		protected BigInteger key;
+		protected String rds;
+		protected long refreshTime;
+
+		protected Entry(BigInteger key, String rds, long refreshTime) {
+			this.key = key;
+			this.rds = rds;
+			this.refreshTime = refreshTime;
+		}
+	}
+
+
+	protected static List<Entry> createEntries(Random random, int entriesNum) {
+		List<Entry> entries = new ArrayList<Entry>(entriesNum);
+		for (int i = 0; i < entriesNum; i++) {
+			entries.add(new Entry(new BigInteger(128, random), "<resourceId=r" + i + "><resourceUrl=u" + i + ">", random.nextInt(1000000)));
+		}
+		return entries;
+	}
+
+	protected static HyCubeReplicationDigest digest(List<Entry> entries) {
+		HyCubeReplicationDigest digest = new HyCubeReplicationDigest(RANGES_NUM);
+		for (Entry e : entries) digest.add(e.key, e.rds, e.refreshTime);
+		return digest;
+	}
+
+
+	@Test
+	public void getMismatchedRanges_sameEntriesInAnotherOrder_expectNoMismatches() {
+		//Arrange
+		List<Entry> entries = createEntries(new Random(1), 200);
+		List<Entry> shuffled = new ArrayList<Entry>(entries);
+		Collections.shuffle(shuffled, new Random(2));
+
+		//Act
+		HyCubeReplicationDigest d1 = digest(entries);
+		HyCubeReplicationDigest d2 = digest(shuffled);
+
+		//Assert
+		assertThat(d1.getMismatchedRanges(d2.getDigests(), d2.getResourcesNums()).length, is(0));
+		assertThat(d1.getDigests(), is(d2.getDigests()));
+	}
+
+
+	@Test
+	public void getMismatchedRanges_entriesDiffer_expectOnlyRangesOfChangedKeys() {
+		//Arrange
+		List<Entry> entries = createEntries(new Random(3), 200);
+		List<Entry> other = new ArrayList<Entry>(entries);
+		Entry refreshed = entries.get(10);
+		Entry missing = entries.get(20);
+		other.set(10, new Entry(refreshed.key, refreshed.rds, refreshed.refreshTime + 1));
+		other.remove(20);
+		int refreshedRange = HyCubeReplicationDigest.getRange(refreshed.key, RANGES_NUM);
+		int missingRange = HyCubeReplicationDigest.getRange(missing.key, RANGES_NUM);
+
+		//Act
+		HyCubeReplicationDigest d1 = digest(entries);
+		HyCubeReplicationDigest d2 = digest(other);
+		int[] mismatched = d1.getMismatchedRanges(d2.getDigests(), d2.getResourcesNums());
+
+		//Assert
+		if (refreshedRange == missingRange) {
+			assertThat(mismatched, is(new int[] {refreshedRange}));
+		}
+		else {
+			assertThat(mismatched, is(new int[] {Math.min(refreshedRange, missingRange), Math.max(refreshedRange, missingRange)}));
+		}
+		assertThat(d1.getResourcesNums()[missingRange] - d2.getResourcesNums()[missingRange], is(1));
+	}
+
+
+	@Test
+	public void getRange_expectDeterministicAndKeysSpreadEvenlyOverRanges() {
+		//Arrange
+		Random random = new Random(4);
+		int keysNum = 16000;
+		int[] counts = new int[RANGES_NUM];
+
+		//Act
+		for (int i = 0; i < keysNum; i++) {
+			//the node ids of the nodes close to each other share the most significant bits - the ranges are defined over hashed keys:
+			BigInteger key = BigInteger.ONE.shiftLeft(127).add(BigInteger.valueOf(i));
+			int range = HyCubeReplicationDigest.getRange(key, RANGES_NUM);
+			assertThat(range >= 0 && range < RANGES_NUM, is(true));
+			assertThat(HyCubeReplicationDigest.getRange(new BigInteger(key.toByteArray()), RANGES_NUM), is(range));
+			counts[range]++;
+		}
+
+		//Assert
+		int expected = keysNum / RANGES_NUM;
+		for (int count : counts) {
+			assertThat(count, is(greaterThan(expected * 8 / 10)));
+			assertThat(count, is(lessThan(expected * 12 / 10)));
+		}
+		assertThat(HyCubeReplicationDigest.getRange(new BigInteger(128, random), 1), is(0));
+	}
+
+
+	@Test
+	public void messageData_serializeAndParse_expectSameDigestsAndDensity() throws MessageByteConversionException {
+		//Arrange
+		HyCubeReplicationDigest digest = digest(createEntries(new Random(5), 50));
+		double density = 1.25e-9;
+
+		//Act
+		HyCubeReplicateDigestMessageData parsed = HyCubeReplicateDigestMessageData.fromBytes(new HyCubeReplicateDigestMessageData(density, RANGES_NUM, digest.getDigests(), digest.getResourcesNums()).getBytes());
+		HyCubeReplicateDigestReplyMessageData parsedReply = HyCubeReplicateDigestReplyMessageData.fromBytes(new HyCubeReplicateDigestReplyMessageData(density, RANGES_NUM, 2, new int[] {3, 15}).getBytes());
+
+		//Assert
+		assertThat(parsed.getDensity(), is(density));
+		assertThat(parsed.getRangesNum(), is(RANGES_NUM));
+		assertThat(digest.getMismatchedRanges(parsed.getDigests(), parsed.getResourcesNums()).length, is(0));
+		assertThat(parsedReply.getDensity(), is(density));
+		assertThat(parsedReply.getMismatchedRanges(), is(new int[] {3, 15}));
+		try {
+			HyCubeReplicateDigestMessageData.fromBytes(new HyCubeReplicateDigestMessageData(Double.NaN, RANGES_NUM, digest.getDigests(), digest.getResourcesNums()).getBytes());
+			fail("The digest with an invalid density was parsed.");
+		}
+		catch (MessageByteConversionException e) {
+		}
+	}
+
+}
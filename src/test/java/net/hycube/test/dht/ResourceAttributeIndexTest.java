@@ -0,0 +1,204 @@
+package net.hycube.test.dht;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.InitializationException;
+import net.hycube.core.NodeAccessor;
+import net.hycube.dht.HyCubeResource;
+import net.hycube.dht.HyCubeResourceAttributeIndex;
+import net.hycube.dht.HyCubeResourceDescriptor;
+import net.hycube.dht.HyCubeSimpleDHTStorageManager;
+import net.hycube.environment.DirectEnvironment;
+import net.hycube.environment.FileNodePropertiesReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ResourceAttributeIndexTest {
+
+	protected static final String SIMPLE_KEY = "HyCubeSimpleDHTStorageManager";
+
+	protected DirectEnvironment environment;
+
+
+	@Before
+	public void setUp() throws InitializationException {
+		environment = DirectEnvironment.initialize();
+	}
+
+	@After
+	public void tearDown() {
+		environment.discard();
+	}
+
+
+	/**
+	 * Random descriptor with few distinct values of every field (so that the values are shared by many resources), some of the fields and the attribute not set
+	 */
+	protected static HyCubeResourceDescriptor randomDescriptor(Random random) {
+		HyCubeResourceDescriptor rd = new HyCubeResourceDescriptor("r" + random.nextInt(12), randomValue(random, "n"), randomValue(random, "t"), "u" + random.nextInt(3));
+		if (random.nextBoolean()) rd.setAttribute("size", Integer.toString(random.nextInt(3)));
+		if (random.nextBoolean()) rd.setAttribute("owner", "o" + random.nextInt(2));
+		return rd;
+	}
+
+	protected static HyCubeResourceDescriptor randomCriteria(Random random) {
+		HyCubeResourceDescriptor criteria = new HyCubeResourceDescriptor(random.nextInt(4) == 0 ? "r" + random.nextInt(12) : null, randomValue(random, "n"), randomValue(random, "t"), random.nextBoolean() ? "u" + random.nextInt(3) : null);
+		if (random.nextBoolean()) criteria.setAttribute("size", Integer.toString(random.nextInt(3)));
+		if (random.nextInt(4) == 0) criteria.setAttribute("owner", "o" + random.nextInt(2));
+		return criteria;
+	}
+
+	protected static String randomValue(Random random, String prefix) {
+		return random.nextBoolean() ? prefix + random.nextInt(3) : null;
+	}
+
+
+	@Test
+	public void randomAddsAndRemoves_candidatesContainAllMatchingResources() {
+		//Arrange
+		Random random = new Random(1);
+		HyCubeResourceAttributeIndex index = new HyCubeResourceAttributeIndex(Arrays.asList("size"));
+		//the indexed descriptors - the full-scan oracle:
+		List<HyCubeResourceDescriptor> indexed = new ArrayList<HyCubeResourceDescriptor>();
+
+		//Act & Assert
+		for (int step = 0; step < 20000; step++) {
+			//the number of indexed resources grows to about 200, and then oscillates:
+			if (indexed.isEmpty() || (indexed.size() < 200 && random.nextInt(3) != 0)) {
+				HyCubeResourceDescriptor rd = randomDescriptor(random);
+				index.add(rd);
+				indexed.add(rd);
+			}
+			else {
+				HyCubeResourceDescriptor rd = indexed.remove(random.nextInt(indexed.size()));
+				index.remove(rd);
+			}
+
+			HyCubeResourceDescriptor criteria = randomCriteria(random);
+			Collection<String> candidates = index.getCandidateResourceIds(criteria);
+
+			Set<String> matchingIds = new HashSet<String>();
+			Set<String> indexedIds = new HashSet<String>();
+			for (HyCubeResourceDescriptor rd : indexed) {
+				indexedIds.add(rd.getResourceId());
+				if (rd.matches(criteria)) matchingIds.add(rd.getResourceId());
+			}
+
+			if (criteria.getResourceName() == null && criteria.getResourceType() == null && criteria.getResourceUrl() == null && criteria.getAttribute("size") == null) {
+				//no indexed field specified (the owner attribute is not indexed):
+				assertThat("step " + step, candidates, is(nullValue()));
+			}
+			else {
+				//every matching resource is a candidate, and the removed resources are not:
+				assertThat("step " + step, candidates.containsAll(matchingIds), is(true));
+				assertThat("step " + step, indexedIds.containsAll(candidates), is(true));
+				//the candidates are unique:
+				assertThat("step " + step, new HashSet<String>(candidates).size(), is(candidates.size()));
+			}
+		}
+	}
+
+
+	@Test
+	public void removeAll_expectNoCandidates() {
+		//Arrange
+		HyCubeResourceAttributeIndex index = new HyCubeResourceAttributeIndex(Arrays.asList("size"));
+		HyCubeResourceDescriptor rd1 = new HyCubeResourceDescriptor("r1", "n", "t", "u1");
+		HyCubeResourceDescriptor rd2 = new HyCubeResourceDescriptor("r1", "n", "t", "u2");
+		rd2.setAttribute("size", "10");
+
+		//Act
+		index.add(rd1);
+		index.add(rd2);
+		index.remove(rd1);
+		Collection<String> afterFirstRemoval = new ArrayList<String>(index.getCandidateResourceIds(new HyCubeResourceDescriptor(null, "n", null, null)));
+		index.remove(rd2);
+
+		//Assert
+		//the ids are counted - the id remains a candidate until all its resources are removed:
+		assertThat(afterFirstRemoval, is((Collection<String>) Arrays.asList("r1")));
+		assertThat(index.getCandidateResourceIds(new HyCubeResourceDescriptor(null, "n", null, null)).isEmpty(), is(true));
+		assertThat(index.getCandidateResourceIds(new HyCubeResourceDescriptor(null, null, "t", null)).isEmpty(), is(true));
+		HyCubeResourceDescriptor sizeCriteria = new HyCubeResourceDescriptor(null, null, null, null);
+		sizeCriteria.setAttribute("size", "10");
+		assertThat(index.getCandidateResourceIds(sizeCriteria).isEmpty(), is(true));
+	}
+
+
+	@Test
+	public void indexedStorageManager_sameResultsAsFullScan() throws Exception {
+		//Arrange
+		Random random = new Random(2);
+		HyCubeNodeId nodeId = DHTStorageTestSupport.randomNodeId(random);
+		HyCubeNodeId senderId = DHTStorageTestSupport.randomNodeId(random);
+		NodeAccessor nodeAccessor = DHTStorageTestSupport.createNodeAccessor(nodeId, environment);
+		FileNodePropertiesReader reader = DHTStorageTestSupport.loadProperties();
+		DHTStorageTestSupport.setStorageManagerProperty(reader, SIMPLE_KEY, "MaxResourcesNum", "1000");
+		DHTStorageTestSupport.setStorageManagerProperty(reader, SIMPLE_KEY, "MaxKeySlotSize", "100");
+		DHTStorageTestSupport.setStorageManagerProperty(reader, SIMPLE_KEY, "MaxResourceSlotSize", "3");
+		DHTStorageTestSupport.setStorageManagerProperty(reader, SIMPLE_KEY, "IndexResources", "false");
+		HyCubeSimpleDHTStorageManager fullScan = DHTStorageTestSupport.createStorageManager(new HyCubeSimpleDHTStorageManager(), SIMPLE_KEY, reader, nodeAccessor);
+		//the keys are indexed when they hold at least two resource ids (the indexes are created and dropped during the test):
+		DHTStorageTestSupport.setStorageManagerProperty(reader, SIMPLE_KEY, "IndexResources", "true");
+		DHTStorageTestSupport.setStorageManagerProperty(reader, SIMPLE_KEY, "IndexMinKeySlotSize", "2");
+		DHTStorageTestSupport.setStorageManagerProperty(reader, SIMPLE_KEY, "IndexedAttributes", "size");
+		HyCubeSimpleDHTStorageManager indexed = DHTStorageTestSupport.createStorageManager(new HyCubeSimpleDHTStorageManager(), SIMPLE_KEY, reader, nodeAccessor);
+		BigInteger[] keys = new BigInteger[4];
+		for (int i = 0; i < keys.length; i++) keys[i] = BigInteger.valueOf(i * 1000 + 7);
+
+		//Act & Assert
+		long time = 1000000;
+		for (int step = 0; step < 30000; step++) {
+			BigInteger key = keys[random.nextInt(keys.length)];
+			HyCubeResourceDescriptor rd = randomDescriptor(random);
+			int op = random.nextInt(10);
+			time += random.nextInt(3);
+			Object expected;
+			Object actual;
+			if (op < 4) {
+				HyCubeResource r = new HyCubeResource(rd, new byte[] {(byte) step});
+				long refreshTime = time - random.nextInt(50);
+				expected = fullScan.putToStorage(key, senderId, r, refreshTime);
+				actual = indexed.putToStorage(key, senderId, r, refreshTime);
+			}
+			else if (op < 5) {
+				expected = fullScan.refreshPutToStorage(key, senderId, rd, time);
+				actual = indexed.refreshPutToStorage(key, senderId, rd, time);
+			}
+			else if (op < 6) {
+				expected = fullScan.deleteFromStorage(key, senderId, rd);
+				actual = indexed.deleteFromStorage(key, senderId, rd);
+			}
+			else if (op < 9) {
+				HyCubeResourceDescriptor criteria = randomCriteria(random);
+				expected = DHTStorageTestSupport.toSortedString(fullScan.getFromStorage(key, senderId, criteria));
+				actual = DHTStorageTestSupport.toSortedString(indexed.getFromStorage(key, senderId, criteria));
+			}
+			else {
+				long discardTime = time - 100;
+				fullScan.discardOutdatedEntries(discardTime);
+				indexed.discardOutdatedEntries(discardTime);
+				expected = DHTStorageTestSupport.toSortedString(fullScan.getResourcesInfoForReplication());
+				actual = DHTStorageTestSupport.toSortedString(indexed.getResourcesInfoForReplication());
+			}
+			assertThat("step " + step + ", operation " + op, actual, is(expected));
+		}
+
+		fullScan.discard();
+		indexed.discard();
+	}
+
+}
@@ -0,0 +1,239 @@
+package net.hycube.test.environment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import net.hycube.environment.ScheduledTask;
+import net.hycube.environment.TimingWheelTimeProvider;
+import net.hycube.eventprocessing.Event;
+import net.hycube.eventprocessing.EventCategory;
+import net.hycube.eventprocessing.ScheduledEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TimingWheelTimeProviderTest {
+
+	protected static final long TIMEOUT = 10000;
+
+	protected TimingWheelTimeProvider timeProvider;
+
+
+	protected static class RecordingTask implements ScheduledTask {
+
+		protected final int index;
+		protected final long scheduleTimeNanos;
+		protected final long delay;
+		protected final ConcurrentLinkedQueue<RecordingTask> executed;
+		protected final CountDownLatch latch;
+		protected volatile long executionTimeNanos;
+
+		protected RecordingTask(int index, long delay, ConcurrentLinkedQueue<RecordingTask> executed, CountDownLatch latch) {
+			this.index = index;
+			this.scheduleTimeNanos = System.nanoTime();
+			this.delay = delay;
+			this.executed = executed;
+			this.latch = latch;
+		}
+
+		@Override
+		public long getExecutionTime() {
+			return 0;
+		}
+
+		@Override
+		public void setExecutionTime(long executionTime) {
+		}
+
+		@Override
+		public void run() {
+			executionTimeNanos = System.nanoTime();
+			executed.add(this);
+			if (latch != null) latch.countDown();
+		}
+
+	}
+
+
+	@Before
+	public void setUp() {
+		//1 ms ticks and 8 buckets, so that most of the delays span multiple wheel revolutions:
+		timeProvider = new TimingWheelTimeProvider(1, 8);
+	}
+
+	@After
+	public void tearDown() {
+		timeProvider.discard();
+	}
+
+
+	@Test
+	public void create_wheelSizeRoundedUpToPowerOf2() {
+		TimingWheelTimeProvider tp = new TimingWheelTimeProvider(5, 100);
+		try {
+			assertThat(tp.getWheelSize(), is(128));
+			assertThat(tp.getTickDuration(), is(5L));
+		}
+		finally {
+			tp.discard();
+		}
+	}
+
+
+	@Test
+	public void scheduleWithDelay_expectExecutedInDeadlineOrderAndNotEarly() throws InterruptedException {
+		//Arrange
+		final int tasksNum = 100;
+		ConcurrentLinkedQueue<RecordingTask> executed = new ConcurrentLinkedQueue<RecordingTask>();
+		CountDownLatch latch = new CountDownLatch(tasksNum);
+
+		//Act
+		//the delays of the consecutive groups differ by much more than the time of scheduling all tasks:
+		for (int i = 0; i < tasksNum; i++) {
+			long delay = ((i * 7) % 10) * 15;
+			timeProvider.scheduleWithDelay(new RecordingTask(i, delay, executed, latch), delay);
+		}
+
+		//Assert
+		assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+		List<RecordingTask> order = new ArrayList<RecordingTask>(executed);
+		assertThat(order.size(), is(tasksNum));
+		for (int i = 0; i < tasksNum; i++) {
+			RecordingTask task = order.get(i);
+			//never executed before the execution time:
+			assertThat(task.executionTimeNanos - task.scheduleTimeNanos, greaterThanOrEqualTo(task.delay * 1000000L));
+			if (i > 0) {
+				RecordingTask previous = order.get(i - 1);
+				//ordered by the delays, and the tasks with equal delays are executed in the order in which they were scheduled:
+				assertThat(task.delay, greaterThanOrEqualTo(previous.delay));
+				if (task.delay == previous.delay) assertThat(task.index, greaterThanOrEqualTo(previous.index));
+			}
+		}
+	}
+
+
+	@Test
+	public void scheduleEvents_expectInsertedToQueuesInSchedulingOrder() throws InterruptedException {
+		//Arrange
+		LinkedBlockingQueue<Event> queue1 = new LinkedBlockingQueue<Event>();
+		LinkedBlockingQueue<Event> queue2 = new LinkedBlockingQueue<Event>();
+		List<Event> events = new ArrayList<Event>();
+		for (int i = 0; i < 20; i++) events.add(new Event(0, EventCategory.undefinedEvent, null, new Object[] {i}));
+
+		//Act
+		for (int i = 0; i < events.size(); i++) {
+			timeProvider.scheduleWithDelay(new ScheduledEvent(events.get(i), i % 2 == 0 ? queue1 : queue2), 20);
+		}
+
+		//Assert
+		for (int i = 0; i < events.size(); i++) {
+			Event e = (i % 2 == 0 ? queue1 : queue2).poll(TIMEOUT, TimeUnit.MILLISECONDS);
+			assertThat(e == events.get(i), is(true));
+		}
+	}
+
+
+	@Test
+	public void cancel_beforeDeadline_expectNotExecuted() throws InterruptedException {
+		//Arrange
+		final int tasksNum = 100;
+		ConcurrentLinkedQueue<RecordingTask> executed = new ConcurrentLinkedQueue<RecordingTask>();
+		CountDownLatch latch = new CountDownLatch(tasksNum / 2);
+		List<TimingWheelTimeProvider.Timeout> timeouts = new ArrayList<TimingWheelTimeProvider.Timeout>();
+		for (int i = 0; i < tasksNum; i++) {
+			timeouts.add(timeProvider.scheduleWithDelayCancellable(new RecordingTask(i, 50, executed, latch), 50));
+		}
+
+		//Act
+		//cancel every other task (some of them are already in the wheel, some may still be pending):
+		List<Boolean> cancelled = new ArrayList<Boolean>();
+		for (int i = 0; i < tasksNum; i += 2) cancelled.add(timeouts.get(i).cancel());
+
+		//Assert
+		assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+		//wait for one more wheel revolution - the cancelled tasks would be expired by then:
+		Thread.sleep(50);
+		for (boolean c : cancelled) assertThat(c, is(true));
+		assertThat(executed.size(), is(tasksNum / 2));
+		for (RecordingTask task : executed) assertThat(task.index % 2, is(1));
+		for (int i = 0; i < tasksNum; i++) {
+			assertThat(timeouts.get(i).isCancelled(), is(i % 2 == 0));
+			//cancelling again, or cancelling an executed task, fails:
+			assertThat(timeouts.get(i).cancel(), is(false));
+		}
+	}
+
+
+	@Test
+	public void cancel_concurrentWithExpiry_expectExecutedIffNotCancelled() throws InterruptedException {
+		//Arrange
+		final int tasksNum = 2000;
+		final AtomicIntegerArray runs = new AtomicIntegerArray(tasksNum);
+		final AtomicInteger executedNum = new AtomicInteger();
+		List<TimingWheelTimeProvider.Timeout> timeouts = new ArrayList<TimingWheelTimeProvider.Timeout>();
+		boolean[] cancelled = new boolean[tasksNum];
+
+		//Act
+		for (int i = 0; i < tasksNum; i++) {
+			final int index = i;
+			ScheduledTask task = new RecordingTask(i, 0, null, null) {
+				@Override
+				public void run() {
+					runs.incrementAndGet(index);
+					executedNum.incrementAndGet();
+				}
+			};
+			timeouts.add(timeProvider.scheduleWithDelayCancellable(task, i % 3));
+			if (i % 5 == 0) Thread.yield();
+			cancelled[i] = timeouts.get(i).cancel();
+		}
+		int expectedNum = 0;
+		for (int i = 0; i < tasksNum; i++) {
+			if (! cancelled[i]) expectedNum++;
+		}
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (executedNum.get() < expectedNum && System.currentTimeMillis() < deadline) Thread.sleep(5);
+		Thread.sleep(50);
+
+		//Assert
+		for (int i = 0; i < tasksNum; i++) {
+			assertThat("task " + i, runs.get(i), is(cancelled[i] ? 0 : 1));
+			assertThat("task " + i, timeouts.get(i).isCancelled(), is(cancelled[i]));
+		}
+	}
+
+
+	@Test(expected = RejectedExecutionException.class)
+	public void schedule_afterDiscard_expectRejectedExecutionException() {
+		timeProvider.discard();
+		timeProvider.scheduleWithDelay(new RecordingTask(0, 0, new ConcurrentLinkedQueue<RecordingTask>(), null), 0);
+	}
+
+
+	@Test
+	public void discard_expectPendingTasksNotExecuted() throws InterruptedException {
+		//Arrange
+		ConcurrentLinkedQueue<RecordingTask> executed = new ConcurrentLinkedQueue<RecordingTask>();
+		for (int i = 0; i < 10; i++) timeProvider.scheduleWithDelay(new RecordingTask(i, 50, executed, null), 50);
+
+		//Act
+		timeProvider.discard();
+		Thread.sleep(150);
+
+		//Assert
+		assertThat(timeProvider.isDiscarded(), is(true));
+		assertThat(executed.isEmpty(), is(true));
+	}
+
+}
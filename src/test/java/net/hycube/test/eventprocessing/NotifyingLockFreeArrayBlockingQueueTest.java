@@ -0,0 +1,257 @@
+package net.hycube.test.eventprocessing;
+
+import net.hycube.eventprocessing.NotifyingLockFreeArrayBlockingQueue;
+import net.hycube.eventprocessing.NotifyingQueueListener;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class NotifyingLockFreeArrayBlockingQueueTest {
+
+	@Test
+	public void capacity_roundedUpToPowerOf2() {
+		assertThat(new NotifyingLockFreeArrayBlockingQueue<Integer>(1).getCapacity(), is(2));
+		assertThat(new NotifyingLockFreeArrayBlockingQueue<Integer>(2).getCapacity(), is(2));
+		assertThat(new NotifyingLockFreeArrayBlockingQueue<Integer>(5).getCapacity(), is(8));
+		assertThat(new NotifyingLockFreeArrayBlockingQueue<Integer>(1024).getCapacity(), is(1024));
+	}
+
+	@Test
+	public void offer_full_returnsFalse() throws InterruptedException {
+		NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(4);
+		for (int i = 0; i < 4; i++) {
+			assertThat(queue.offer(i), is(true));
+		}
+		assertThat(queue.offer(4), is(false));
+		assertThat(queue.offer(4, 10, TimeUnit.MILLISECONDS), is(false));
+		assertThat(queue.size(), is(4));
+		assertThat(queue.remainingCapacity(), is(0));
+		assertThat(queue.poll(), is(0));
+		assertThat(queue.offer(4), is(true));
+	}
+
+	@Test
+	public void add_full_overflowsInOrder() {
+		NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(4);
+		for (int i = 0; i < 10; i++) {
+			assertThat(queue.add(i), is(true));
+		}
+		assertThat(queue.size(), is(10));
+		//while the overflow list is not empty, offer fails even if there is space in the ring buffer:
+		assertThat(queue.poll(), is(0));
+		assertThat(queue.offer(100), is(false));
+		assertThat(queue.add(10), is(true));
+		queue.addAll(Arrays.asList(11, 12));
+		for (int i = 1; i <= 12; i++) {
+			assertThat(queue.peek(), is(i));
+			assertThat(queue.poll(), is(i));
+		}
+		assertThat(queue.poll(), is(nullValue()));
+		assertThat(queue.offer(13), is(true));
+	}
+
+	@Test
+	public void wraparound_preservesFifoOrder() {
+		NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(8);
+		int next = 0;
+		int expected = 0;
+		//many revolutions of the ring buffer with varying fill levels:
+		for (int round = 0; round < 1000; round++) {
+			int toInsert = round % 9;
+			for (int i = 0; i < toInsert; i++) {
+				if (queue.offer(next)) next++;
+			}
+			int toRemove = (round * 7) % 9;
+			for (int i = 0; i < toRemove; i++) {
+				Integer e = queue.poll();
+				if (e == null) break;
+				assertThat(e, is(expected++));
+			}
+		}
+		Integer e;
+		while ((e = queue.poll()) != null) {
+			assertThat(e, is(expected++));
+		}
+		assertThat(expected, is(next));
+	}
+
+	@Test
+	public void remove_middleElement_skippedByConsumers() {
+		NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(4);
+		for (int i = 0; i < 6; i++) {
+			queue.add(i);
+		}
+		assertThat(queue.remove((Object) 1), is(true));
+		assertThat(queue.remove((Object) 5), is(true));
+		assertThat(queue.remove((Object) 5), is(false));
+		assertThat(queue.remove((Object) 42), is(false));
+		assertThat(queue.contains(1), is(false));
+		assertThat(queue.contains(2), is(true));
+
+		List<Integer> drained = new ArrayList<Integer>();
+		queue.drainTo(drained);
+		assertThat(drained, is(Arrays.asList(0, 2, 3, 4)));
+		assertThat(queue.isEmpty(), is(true));
+
+		//the slots of the removed elements are reused:
+		for (int i = 0; i < 4; i++) {
+			assertThat(queue.offer(i), is(true));
+		}
+	}
+
+	@Test
+	public void remove_head_peekSkipsRemoved() {
+		NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(4);
+		queue.add(0);
+		queue.add(1);
+		queue.remove((Object) 0);
+		assertThat(queue.peek(), is(1));
+		assertThat(queue.poll(), is(1));
+		assertThat(queue.peek(), is(nullValue()));
+		assertThat(queue.poll(), is(nullValue()));
+	}
+
+	@Test
+	public void addAndAddAll_notifyListeners() {
+		NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(2);
+		final AtomicInteger notified = new AtomicInteger();
+		queue.addListener(new NotifyingQueueListener<Integer>() {
+			@Override
+			public void itemInserted(Integer item) {
+				notified.incrementAndGet();
+			}
+			@Override
+			public void itemsInserted(Collection<? extends Integer> items) {
+				notified.addAndGet(items.size());
+			}
+		});
+		queue.add(0);
+		queue.offer(1);
+		queue.offer(2);
+		queue.addAll(Arrays.asList(3, 4, 5));
+		assertThat(notified.get(), is(5));
+	}
+
+	@Test
+	public void put_full_overflowsWithoutWaiting() throws InterruptedException {
+		NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(2);
+		for (int i = 0; i < 5; i++) {
+			queue.put(i);
+		}
+		assertThat(queue.size(), is(5));
+		for (int i = 0; i < 5; i++) {
+			assertThat(queue.take(), is(i));
+		}
+	}
+
+	@Test
+	public void offerWithTimeout_full_waitsForConsumer() throws InterruptedException {
+		final NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(2);
+		queue.offer(0);
+		queue.offer(1);
+		final CountDownLatch inserted = new CountDownLatch(1);
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					if (queue.offer(2, 10, TimeUnit.SECONDS)) inserted.countDown();
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		producer.start();
+		assertThat(inserted.await(100, TimeUnit.MILLISECONDS), is(false));
+		assertThat(queue.take(), is(0));
+		assertThat(inserted.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(queue.take(), is(1));
+		assertThat(queue.take(), is(2));
+		producer.join();
+	}
+
+	@Test
+	public void mpmcStress_everyElementConsumedOnce() throws InterruptedException {
+		final int producersNum = 4;
+		final int consumersNum = 4;
+		final int elementsPerProducer = 100000;
+		final NotifyingLockFreeArrayBlockingQueue<Integer> queue = new NotifyingLockFreeArrayBlockingQueue<Integer>(64);
+		final AtomicIntegerArray consumed = new AtomicIntegerArray(producersNum * elementsPerProducer);
+		final AtomicInteger consumedNum = new AtomicInteger();
+		final int[][] lastConsumedByProducer = new int[consumersNum][producersNum];
+		final AtomicInteger orderViolations = new AtomicInteger();
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int p = 0; p < producersNum; p++) {
+			final int producer = p;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < elementsPerProducer; i++) {
+							int e = producer * elementsPerProducer + i;
+							//mix the waiting, the non-waiting and the overflowing insertions:
+							if (i % 3 == 0) queue.put(e);
+							else if (i % 3 == 1) {
+								while (!queue.offer(e)) Thread.yield();
+							}
+							else queue.add(e);
+						}
+					} catch (InterruptedException ex) {
+					}
+				}
+			});
+		}
+		for (int c = 0; c < consumersNum; c++) {
+			final int consumer = c;
+			for (int p = 0; p < producersNum; p++) lastConsumedByProducer[consumer][p] = -1;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						Integer[] batch = new Integer[16];
+						while (consumedNum.get() < producersNum * elementsPerProducer) {
+							int n;
+							if (consumer % 2 == 0) {
+								Integer e = queue.poll(10, TimeUnit.MILLISECONDS);
+								if (e == null) continue;
+								batch[0] = e;
+								n = 1;
+							}
+							else n = queue.drainTo(batch, batch.length);
+							for (int i = 0; i < n; i++) {
+								int e = batch[i];
+								consumed.incrementAndGet(e);
+								//the elements of every producer are consumed by every consumer in the order of insertion:
+								int producer = e / elementsPerProducer;
+								if (e <= lastConsumedByProducer[consumer][producer]) orderViolations.incrementAndGet();
+								lastConsumedByProducer[consumer][producer] = e;
+							}
+							consumedNum.addAndGet(n);
+						}
+					} catch (InterruptedException ex) {
+					}
+				}
+			});
+		}
+		for (Thread t : threads) t.start();
+		for (Thread t : threads) t.join(60000);
+
+		assertThat(consumedNum.get(), is(producersNum * elementsPerProducer));
+		for (int i = 0; i < consumed.length(); i++) {
+			assertThat(consumed.get(i), is(1));
+		}
+		assertThat(orderViolations.get(), is(0));
+		assertThat(queue.isEmpty(), is(true));
+	}
+
+}
@@ -0,0 +1,164 @@
+package net.hycube.test.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.HyCubeMessageType;
+import net.hycube.messaging.messages.MessageByteConversionException;
+import net.hycube.messaging.messages.MessageByteConversionRuntimeException;
+import net.hycube.messaging.messages.MessageErrorException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MessageWriteToTest {
+
+	protected static final int DIMENSIONS = 4;
+	protected static final int DIGITS_COUNT = 32;
+	protected static final int NETWORK_ADDRESS_BYTE_LENGTH = 6;
+	protected static final int[] HEADER_EXTENSION_LENGTHS = new int[] {3, 5};
+
+
+	protected static HyCubeMessage createMessage(Random random, int dataLength) {
+		byte[] senderNetworkAddress = new byte[NETWORK_ADDRESS_BYTE_LENGTH];
+		random.nextBytes(senderNetworkAddress);
+		byte[] data = new byte[dataLength];
+		random.nextBytes(data);
+		HyCubeMessage msg = new HyCubeMessage(random.nextInt(), DIMENSIONS, DIGITS_COUNT,
+				HyCubeNodeId.generateRandomNodeId(DIMENSIONS, DIGITS_COUNT), HyCubeNodeId.generateRandomNodeId(DIMENSIONS, DIGITS_COUNT), HyCubeNodeId.generateRandomNodeId(DIMENSIONS, DIGITS_COUNT),
+				senderNetworkAddress, HyCubeMessageType.DATA, (short) 32, (short) random.nextInt(10), random.nextBoolean(), random.nextBoolean(), random.nextBoolean(), random.nextBoolean(),
+				(short) 1, (short) 2, NETWORK_ADDRESS_BYTE_LENGTH, HEADER_EXTENSION_LENGTHS, data);
+		//the first header extension is set, the second one is not set (written as zeros):
+		byte[] extension = new byte[HEADER_EXTENSION_LENGTHS[0]];
+		random.nextBytes(extension);
+		msg.setHeaderExtension(0, extension);
+		return msg;
+	}
+
+
+	@Test
+	public void writeTo_heapAndDirectBuffers_expectSameBytesAsGetBytes() throws MessageErrorException {
+		Random random = new Random(1);
+		for (int i = 0; i < 200; i++) {
+			//Arrange
+			HyCubeMessage msg = createMessage(random, random.nextInt(2000));
+			byte[] expected = msg.getBytes(true);
+			int offset = random.nextInt(16);
+			ByteBuffer heap = ByteBuffer.allocate(offset + expected.length + 16);
+			ByteBuffer direct = ByteBuffer.allocateDirect(offset + expected.length + 16);
+			heap.position(offset);
+			direct.position(offset);
+
+			//Act
+			msg.writeTo(heap);
+			msg.writeTo(direct);
+
+			//Assert
+			//the messages are written at the buffer positions, and the positions are advanced by the message lengths:
+			assertThat(heap.position(), is(offset + expected.length));
+			assertThat(direct.position(), is(offset + expected.length));
+			assertThat(Arrays.copyOfRange(heap.array(), offset, offset + expected.length), is(expected));
+			byte[] written = new byte[expected.length];
+			direct.position(offset);
+			direct.get(written);
+			assertThat(written, is(expected));
+			//the bytes before the message are not modified:
+			for (int j = 0; j < offset; j++) assertThat(heap.get(j), is((byte) 0));
+			assertThat(HyCubeMessage.validateCRC32FromMessageBytes(expected), is(true));
+		}
+	}
+
+
+	@Test
+	public void writeTo_recalculateCRC_expectValidChecksum() throws MessageErrorException {
+		//Arrange
+		HyCubeMessage msg = createMessage(new Random(2), 100);
+		msg.getBytes(true);
+		msg.setTtl((short) 5);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(msg.getByteLength());
+
+		//Act
+		msg.writeTo(buffer, true);
+
+		//Assert
+		byte[] written = new byte[buffer.capacity()];
+		buffer.flip();
+		buffer.get(written);
+		assertThat(HyCubeMessage.validateCRC32FromMessageBytes(written), is(true));
+		assertThat(msg.validateCRC32(msg.getCRC32()), is(true));
+		assertThat(written, is(msg.getBytes()));
+	}
+
+
+	@Test
+	public void writeTo_insufficientSpace_expectExceptionAndBufferNotModified() {
+		//Arrange
+		HyCubeMessage msg = createMessage(new Random(3), 100);
+		ByteBuffer buffer = ByteBuffer.allocate(msg.getByteLength() - 1);
+		buffer.position(0);
+
+		//Act & Assert
+		try {
+			msg.writeTo(buffer, true);
+			fail("The message was written to a buffer with insufficient space remaining.");
+		}
+		catch (MessageByteConversionRuntimeException e) {
+		}
+		assertThat(buffer.position(), is(0));
+		assertThat(buffer.array(), is(new byte[msg.getByteLength() - 1]));
+	}
+
+
+	@Test
+	public void writeTo_lazilyDecodedMessage_expectSameBytesAsReceived() throws MessageByteConversionException {
+		Random random = new Random(4);
+		for (int i = 0; i < 100; i++) {
+			//Arrange
+			byte[] bytes = createMessage(random, random.nextInt(500)).getBytes(true);
+			//a received message (the fields are decoded from the message buffer when they are accessed):
+			HyCubeMessage received = HyCubeMessage.fromBuffer(ByteBuffer.wrap(bytes), DIMENSIONS, DIGITS_COUNT, NETWORK_ADDRESS_BYTE_LENGTH, HEADER_EXTENSION_LENGTHS);
+			//some fields are decoded (or set) before the message is written:
+			if (random.nextBoolean()) received.getSenderId();
+			if (random.nextBoolean()) received.getHeaderExtension(0);
+			if (random.nextBoolean()) received.getData();
+			short hopCount = (short) (received.getHopCount() + 1);
+			received.setHopCount(hopCount);
+			HyCubeMessage decoded = HyCubeMessage.fromBytes(bytes, DIMENSIONS, DIGITS_COUNT, NETWORK_ADDRESS_BYTE_LENGTH, HEADER_EXTENSION_LENGTHS);
+			decoded.setHopCount(hopCount);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+
+			//Act
+			received.writeTo(buffer, true);
+
+			//Assert
+			byte[] written = new byte[bytes.length];
+			buffer.flip();
+			buffer.get(written);
+			assertThat(written, is(decoded.getBytes(true)));
+		}
+	}
+
+
+	@Test
+	public void fromBuffer_messageLengthAndRemainingBytes_expectTruncatedRejectedAndTrailingBytesIgnored() throws MessageByteConversionException {
+		//Arrange
+		byte[] bytes = createMessage(new Random(5), 100).getBytes(true);
+		byte[] withTrailingBytes = Arrays.copyOf(bytes, bytes.length + 10);
+
+		//Act & Assert
+		try {
+			HyCubeMessage.fromBuffer(ByteBuffer.wrap(bytes, 0, bytes.length - 1), DIMENSIONS, DIGITS_COUNT, NETWORK_ADDRESS_BYTE_LENGTH, HEADER_EXTENSION_LENGTHS);
+			fail("A message longer than the bytes remaining in the buffer was decoded.");
+		}
+		catch (MessageByteConversionException e) {
+		}
+		HyCubeMessage msg = HyCubeMessage.fromBuffer(ByteBuffer.wrap(withTrailingBytes), DIMENSIONS, DIGITS_COUNT, NETWORK_ADDRESS_BYTE_LENGTH, HEADER_EXTENSION_LENGTHS);
+		assertThat(msg.getBytes(), is(bytes));
+	}
+
+}
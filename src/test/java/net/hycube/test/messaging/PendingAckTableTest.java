@@ -0,0 +1,234 @@
+package net.hycube.test.messaging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.messaging.ack.AckProcessInfo;
+import net.hycube.messaging.ack.HyCubePendingAckTable;
+import net.hycube.messaging.messages.HyCubeMessage;
+import net.hycube.messaging.messages.HyCubeMessageType;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PendingAckTableTest {
+
+	protected static final HyCubeNodeId NODE_ID = HyCubeNodeId.generateRandomNodeId(4, 32);
+
+	//10 ms ticks, 8 buckets (one revolution of the wheel = 80 ms):
+	protected static final long TICK_DURATION = 10;
+	protected static final int WHEEL_SIZE = 8;
+
+
+	protected static AckProcessInfo ackProcessInfo(int msgSerialNo, long discardTimestamp) {
+		HyCubeMessage msg = new HyCubeMessage(msgSerialNo, NODE_ID, NODE_ID, NODE_ID, new byte[6], HyCubeMessageType.DATA, (short) 32, (short) 0, false, false, false, false, (short) 0, (short) 0, 6, new int[0]);
+		AckProcessInfo ackPr = new AckProcessInfo(msg, null, null, null, null);
+		ackPr.setDiscardTimestamp(discardTimestamp);
+		return ackPr;
+	}
+
+	protected static List<AckProcessInfo> poll(HyCubePendingAckTable table, long currentTime) {
+		List<AckProcessInfo> expired = new ArrayList<AckProcessInfo>();
+		table.pollExpired(currentTime, expired);
+		return expired;
+	}
+
+
+	@Test
+	public void pollExpired_expectEntriesReturnedOnceAtTheirDeadlineTicks() {
+		//Arrange
+		HyCubePendingAckTable table = new HyCubePendingAckTable(4, TICK_DURATION, WHEEL_SIZE, 1000);
+		AckProcessInfo a1 = ackProcessInfo(1, 1001);
+		AckProcessInfo a2 = ackProcessInfo(2, 1010);
+		AckProcessInfo a3 = ackProcessInfo(3, 1025);
+		table.put(a1);
+		table.put(a2);
+		table.put(a3);
+
+		//Act & Assert
+		//not returned before the deadline (rounded up to the tick):
+		assertThat(poll(table, 1009).isEmpty(), is(true));
+		List<AckProcessInfo> expired = poll(table, 1010);
+		assertThat(expired.size(), is(2));
+		assertThat(expired.contains(a1), is(true));
+		assertThat(expired.contains(a2), is(true));
+		//returned once, but remain in the table until they are removed:
+		assertThat(poll(table, 1020).isEmpty(), is(true));
+		assertThat(table.size(), is(3));
+		assertThat(table.get(1), is(sameInstance(a1)));
+		assertThat(poll(table, 1029).isEmpty(), is(true));
+		assertThat(poll(table, 1030), is((List<AckProcessInfo>) Collections.singletonList(a3)));
+	}
+
+
+	@Test
+	public void pollExpired_deadlinesBeyondOneRevolution_expectNotReturnedEarly() {
+		//Arrange
+		HyCubePendingAckTable table = new HyCubePendingAckTable(1, TICK_DURATION, WHEEL_SIZE, 0);
+		//the same bucket in three consecutive revolutions:
+		AckProcessInfo a1 = ackProcessInfo(1, 30);
+		AckProcessInfo a2 = ackProcessInfo(2, 30 + 80);
+		AckProcessInfo a3 = ackProcessInfo(3, 30 + 160);
+		table.put(a3);
+		table.put(a2);
+		table.put(a1);
+
+		//Act & Assert
+		assertThat(poll(table, 30), is((List<AckProcessInfo>) Collections.singletonList(a1)));
+		assertThat(poll(table, 109).isEmpty(), is(true));
+		assertThat(poll(table, 110), is((List<AckProcessInfo>) Collections.singletonList(a2)));
+		//more than one revolution elapsed since the previous poll - every bucket is visited:
+		assertThat(poll(table, 1000), is((List<AckProcessInfo>) Collections.singletonList(a3)));
+	}
+
+
+	@Test
+	public void put_deadlineInProcessedTick_expectReturnedByNextPoll() {
+		//Arrange
+		HyCubePendingAckTable table = new HyCubePendingAckTable(2, TICK_DURATION, WHEEL_SIZE, 0);
+		poll(table, 50);
+		AckProcessInfo a1 = ackProcessInfo(1, 20);
+
+		//Act
+		table.put(a1);
+
+		//Assert
+		assertThat(poll(table, 59).isEmpty(), is(true));
+		assertThat(poll(table, 60), is((List<AckProcessInfo>) Collections.singletonList(a1)));
+	}
+
+
+	@Test
+	public void replaceAndRemove_expectOnlyCurrentEntriesReturned() {
+		//Arrange
+		HyCubePendingAckTable table = new HyCubePendingAckTable(4, TICK_DURATION, WHEEL_SIZE, 0);
+		AckProcessInfo replaced = ackProcessInfo(1, 20);
+		AckProcessInfo replacing = ackProcessInfo(1, 40);
+		AckProcessInfo removed = ackProcessInfo(2, 20);
+		AckProcessInfo rescheduled = ackProcessInfo(3, 20);
+		table.put(replaced);
+		table.put(removed);
+		table.put(rescheduled);
+
+		//Act
+		table.put(replacing);
+		boolean removedResult = table.remove(removed);
+		//removing the replaced entry does not remove the replacing entry:
+		boolean replacedRemovedResult = table.remove(replaced);
+		//the same entry put again with a later discard timestamp:
+		rescheduled.setDiscardTimestamp(50);
+		table.put(rescheduled);
+
+		//Assert
+		assertThat(removedResult, is(true));
+		assertThat(replacedRemovedResult, is(false));
+		assertThat(table.get(1), is(sameInstance(replacing)));
+		assertThat(table.get(2), is(nullValue()));
+		assertThat(table.size(), is(2));
+		assertThat(poll(table, 39).isEmpty(), is(true));
+		assertThat(poll(table, 40), is((List<AckProcessInfo>) Collections.singletonList(replacing)));
+		assertThat(poll(table, 49).isEmpty(), is(true));
+		assertThat(poll(table, 50), is((List<AckProcessInfo>) Collections.singletonList(rescheduled)));
+	}
+
+
+	@Test
+	public void serialNumbersWrapAround_expectDistinctEntries() {
+		//Arrange
+		HyCubePendingAckTable table = new HyCubePendingAckTable(8, TICK_DURATION, WHEEL_SIZE, 0);
+		int[] serialNos = new int[] {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1, 0, 1};
+		List<AckProcessInfo> entries = new ArrayList<AckProcessInfo>();
+		for (int serialNo : serialNos) entries.add(ackProcessInfo(serialNo, 10));
+
+		//Act
+		for (AckProcessInfo ackPr : entries) table.put(ackPr);
+
+		//Assert
+		assertThat(table.size(), is(serialNos.length));
+		for (int i = 0; i < serialNos.length; i++) assertThat(table.get(serialNos[i]), is(sameInstance(entries.get(i))));
+		List<AckProcessInfo> expired = poll(table, 10);
+		assertThat(expired.size(), is(serialNos.length));
+		assertThat(expired.containsAll(entries), is(true));
+		assertThat(table.remove(entries.get(1)), is(true));
+		assertThat(table.get(Integer.MIN_VALUE), is(nullValue()));
+		assertThat(table.get(Integer.MAX_VALUE), is(sameInstance(entries.get(0))));
+	}
+
+
+	@Test
+	public void randomOperations_sameResultsAsOracle() {
+		//Arrange
+		Random random = new Random(1);
+		long time = 1000;
+		HyCubePendingAckTable table = new HyCubePendingAckTable(4, TICK_DURATION, WHEEL_SIZE, time);
+		//the oracle - the entries in the table, and the deadline ticks of the entries not returned yet:
+		Map<Integer, AckProcessInfo> entries = new HashMap<Integer, AckProcessInfo>();
+		Map<AckProcessInfo, Long> scheduled = new IdentityHashMap<AckProcessInfo, Long>();
+		long lastPolledTick = time / TICK_DURATION;
+
+		//Act & Assert
+		for (int step = 0; step < 50000; step++) {
+			//serial numbers around the wrap of int:
+			int serialNo = Integer.MAX_VALUE - 20 + random.nextInt(40);
+			int op = random.nextInt(10);
+			if (op < 3) {
+				//put a new entry (replacing the entry of the serial number), sometimes with the deadline in the processed ticks:
+				AckProcessInfo ackPr = ackProcessInfo(serialNo, time - 20 + random.nextInt(250));
+				AckProcessInfo previous = entries.put(serialNo, ackPr);
+				if (previous != null) scheduled.remove(previous);
+				table.put(ackPr);
+				scheduled.put(ackPr, Math.max((ackPr.getDiscardTimestamp() + TICK_DURATION - 1) / TICK_DURATION, lastPolledTick + 1));
+			}
+			else if (op < 4) {
+				//put the entry again with another discard timestamp (as the ack manager does when the message is resent):
+				AckProcessInfo ackPr = entries.get(serialNo);
+				if (ackPr == null) continue;
+				ackPr.setDiscardTimestamp(time + random.nextInt(250));
+				table.put(ackPr);
+				scheduled.put(ackPr, Math.max((ackPr.getDiscardTimestamp() + TICK_DURATION - 1) / TICK_DURATION, lastPolledTick + 1));
+			}
+			else if (op < 6) {
+				AckProcessInfo ackPr = (random.nextBoolean() ? entries.get(serialNo) : ackProcessInfo(serialNo, time));
+				if (ackPr == null) continue;
+				boolean expected = (entries.get(serialNo) == ackPr);
+				if (expected) {
+					entries.remove(serialNo);
+					scheduled.remove(ackPr);
+				}
+				assertThat("step " + step, table.remove(ackPr), is(expected));
+			}
+			else {
+				//sometimes more than one revolution of the wheel elapses:
+				time += (random.nextInt(10) == 0 ? random.nextInt(300) : random.nextInt(25));
+				long currentTick = time / TICK_DURATION;
+				Set<AckProcessInfo> expected = Collections.newSetFromMap(new IdentityHashMap<AckProcessInfo, Boolean>());
+				if (currentTick > lastPolledTick) {
+					for (Map.Entry<AckProcessInfo, Long> e : scheduled.entrySet()) {
+						if (e.getValue() <= currentTick) expected.add(e.getKey());
+					}
+					for (AckProcessInfo ackPr : expected) scheduled.remove(ackPr);
+					lastPolledTick = currentTick;
+				}
+				List<AckProcessInfo> expired = poll(table, time);
+				Set<AckProcessInfo> actual = Collections.newSetFromMap(new IdentityHashMap<AckProcessInfo, Boolean>());
+				actual.addAll(expired);
+				assertThat("step " + step, expired.size(), is(actual.size()));
+				assertThat("step " + step, actual, is(expected));
+				for (AckProcessInfo ackPr : expired) assertThat("step " + step, ackPr.getDiscardTimestamp() <= time, is(true));
+			}
+			assertThat("step " + step, table.size(), is(entries.size()));
+			assertThat("step " + step, table.get(serialNo), is(entries.get(serialNo)));
+		}
+	}
+
+}
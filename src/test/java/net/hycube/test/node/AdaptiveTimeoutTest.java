@@ -0,0 +1,85 @@
+package net.hycube.test.node;
+
+import net.hycube.core.NodeParameterSet;
+import net.hycube.transport.RttEstimate;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AdaptiveTimeoutTest {
+
+	protected static final long DEFAULT_TIMEOUT = 5000;
+
+	protected NodeParameterSet parameters;
+	protected RttEstimate rttEstimate;
+
+
+	@Before
+	public void setUp() {
+		parameters = new NodeParameterSet();
+		parameters.setAdaptiveTimeouts(true);
+		parameters.setMinAdaptiveTimeout(100);
+		parameters.setMaxAdaptiveTimeout(1000);
+		parameters.setTimeoutBackoffFactor(2);
+		parameters.setResendIfNoAck(true);
+		parameters.setSendRetries(2);
+		parameters.setRequestProcessingAllowance(50);
+		//RTO = SRTT + 4 * RTTVAR = 40 + 4 * 20 = 120:
+		rttEstimate = new RttEstimate();
+		rttEstimate.addSample(40, 0);
+	}
+
+
+	@Test
+	public void getAdaptiveTimeout_expectBackedOffForConsecutiveAttemptsUpToMaxTimeout() {
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, DEFAULT_TIMEOUT, 1), is(120L));
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, DEFAULT_TIMEOUT), is(120L));
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, DEFAULT_TIMEOUT, 2), is(240L));
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, DEFAULT_TIMEOUT, 3), is(480L));
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, DEFAULT_TIMEOUT, 4), is(960L));
+		//limited to max(MaxAdaptiveTimeout, default timeout):
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, DEFAULT_TIMEOUT, 5), is(1920L));
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, 500, 5), is(1000L));
+	}
+
+
+	@Test
+	public void getAdaptiveTimeout_notMeasuredOrDisabled_expectDefaultTimeoutBackedOffOnlyIfEnabled() {
+		//Arrange
+		RttEstimate notMeasured = new RttEstimate();
+
+		//Act & Assert
+		assertThat(parameters.getAdaptiveTimeout(null, 300, 1), is(300L));
+		assertThat(parameters.getAdaptiveTimeout(notMeasured, 300, 2), is(600L));
+		parameters.setAdaptiveTimeouts(false);
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, 300, 1), is(300L));
+		assertThat(parameters.getAdaptiveTimeout(rttEstimate, 300, 3), is(300L));
+	}
+
+
+	@Test
+	public void getAdaptiveRequestTimeout_expectRetransmissionScheduleAndProcessingAllowance() {
+		//Act & Assert
+		//three send attempts: 120 + 240 + 480, and the processing allowance:
+		assertThat(parameters.getSendAttempts(), is(3));
+		assertThat(parameters.getAdaptiveRequestTimeout(rttEstimate, DEFAULT_TIMEOUT), is(120L + 240L + 480L + 50L));
+		//not longer than the default timeout:
+		assertThat(parameters.getAdaptiveRequestTimeout(rttEstimate, 600), is(600L));
+		//one send attempt if the messages are not resent:
+		parameters.setResendIfNoAck(false);
+		assertThat(parameters.getSendAttempts(), is(1));
+		assertThat(parameters.getAdaptiveRequestTimeout(rttEstimate, DEFAULT_TIMEOUT), is(120L + 50L));
+	}
+
+
+	@Test
+	public void getAdaptiveRequestTimeout_notMeasuredOrDisabled_expectDefaultTimeout() {
+		assertThat(parameters.getAdaptiveRequestTimeout(null, DEFAULT_TIMEOUT), is(DEFAULT_TIMEOUT));
+		assertThat(parameters.getAdaptiveRequestTimeout(new RttEstimate(), DEFAULT_TIMEOUT), is(DEFAULT_TIMEOUT));
+		parameters.setAdaptiveTimeouts(false);
+		assertThat(parameters.getAdaptiveRequestTimeout(rttEstimate, DEFAULT_TIMEOUT), is(DEFAULT_TIMEOUT));
+	}
+
+}
@@ -0,0 +1,139 @@
+package net.hycube.test.node;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.hycube.common.CallbackFuture;
+import net.hycube.dht.DHTManager;
+import net.hycube.dht.GetFuture;
+import net.hycube.environment.TimingWheelTimeProvider;
+import net.hycube.eventprocessing.Event;
+import net.hycube.eventprocessing.EventCategory;
+import net.hycube.eventprocessing.EventType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CallbackFutureTest {
+
+	protected static final long WAIT_TIMEOUT = 10000;
+	protected static final EventType EVENT_TYPE = new EventType(EventCategory.extEvent, "CallbackFutureTest");
+
+	protected TimingWheelTimeProvider timeProvider;
+	protected LinkedBlockingQueue<Event> queue;
+
+
+	protected static class TestFuture extends CallbackFuture<Object> {
+		protected volatile int cancelRequestCalls;
+		protected volatile Thread cancelRequestThread;
+
+		@Override
+		protected void cancelRequest() {
+			cancelRequestCalls++;
+			cancelRequestThread = Thread.currentThread();
+		}
+	}
+
+
+	@Before
+	public void setUp() {
+		timeProvider = new TimingWheelTimeProvider(1, 64);
+		queue = new LinkedBlockingQueue<Event>();
+	}
+
+	@After
+	public void tearDown() {
+		timeProvider.discard();
+	}
+
+
+	@Test
+	public void scheduleTimeout_notCompleted_expectTimeoutEventCompletingFutureWhenProcessed() throws Exception {
+		//Arrange
+		TestFuture future = new TestFuture();
+
+		//Act
+		future.scheduleTimeout(timeProvider, queue, EVENT_TYPE, 20);
+		Event event = queue.poll(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+
+		//Assert
+		assertThat(event, is(notNullValue()));
+		assertThat(event.getEventType(), is(EVENT_TYPE));
+		//the future is not completed by the thread of the time provider:
+		assertThat(future.isDone(), is(false));
+		event.process();
+		assertThat(future.isCompletedExceptionally(), is(true));
+		assertThat(future.cancelRequestCalls, is(1));
+		assertThat(future.cancelRequestThread, is(Thread.currentThread()));
+		try {
+			future.get();
+			fail("The future timed out, but the result was returned.");
+		}
+		catch (ExecutionException e) {
+			assertThat(e.getCause(), is(instanceOf(TimeoutException.class)));
+		}
+	}
+
+
+	@Test
+	public void scheduleTimeout_completedBeforeTimeout_expectTimeoutCancelled() throws Exception {
+		//Arrange
+		TestFuture future = new TestFuture();
+		TestFuture completedBeforeScheduling = new TestFuture();
+		completedBeforeScheduling.complete("r2");
+
+		//Act
+		future.scheduleTimeout(timeProvider, queue, EVENT_TYPE, 20);
+		completedBeforeScheduling.scheduleTimeout(timeProvider, queue, EVENT_TYPE, 20);
+		future.complete("r1");
+
+		//Assert
+		assertThat(queue.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+		assertThat(future.get(), is((Object) "r1"));
+		assertThat(completedBeforeScheduling.get(), is((Object) "r2"));
+		assertThat(future.cancelRequestCalls, is(0));
+		assertThat(completedBeforeScheduling.cancelRequestCalls, is(0));
+	}
+
+
+	@Test
+	public void cancel_requestIdSet_expectRequestCancelledById() {
+		//Arrange
+		final List<String> calls = new ArrayList<String>();
+		DHTManager dhtManager = (DHTManager) Proxy.newProxyInstance(DHTManager.class.getClassLoader(), new Class<?>[] {DHTManager.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				calls.add(method.getName() + "(" + args[0].getClass().getSimpleName() + ")");
+				if (method.getReturnType() == boolean.class) return true;
+				return 1;
+			}
+		});
+		GetFuture withId = new GetFuture(dhtManager);
+		GetFuture withoutId = new GetFuture(dhtManager);
+		withId.setRequestId(5);
+
+		//Act
+		withId.cancel(false);
+		withoutId.cancel(false);
+
+		//Assert
+		assertThat(calls.size(), is(2));
+		assertThat(calls.get(0), is("cancelGet(Integer)"));
+		assertThat(calls.get(1), is("cancelGet(GetFuture)"));
+	}
+
+}
@@ -2,11 +2,14 @@ package net.hycube.test.node;
 
 import net.hycube.core.HyCubeNodeId;
 import net.hycube.core.NodeIdByteConversionException;
+import net.hycube.metric.Metric;
+import org.hamcrest.Matcher;
 import org.junit.Test;
 
 import java.math.BigInteger;
 import java.nio.ByteOrder;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -80,6 +83,12 @@ public class NodeIdTest {
 		testAddSubBit(4, 32, 10);
 	}
 
+	@Test
+	public void testDistance() {
+		testDistance(4, 8, 10);
+		testDistance(3, 33, 10);
+	}
+
 	private void testAddSubBit(int dimensions, int levels, int iterations) {
 		for (int i = 0; i < iterations; i++) {
 			HyCubeNodeId id1 = HyCubeNodeId.generateRandomNodeId(dimensions, levels);
@@ -95,6 +104,86 @@ public class NodeIdTest {
 		}
 	}
 
+	private void testDistance(int dimensions, int levels, int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			HyCubeNodeId id1 = HyCubeNodeId.generateRandomNodeId(dimensions, levels);
+			HyCubeNodeId id2 = HyCubeNodeId.generateRandomNodeId(dimensions, levels);
+			HyCubeNodeId id3 = HyCubeNodeId.generateRandomNodeId(dimensions, levels);
+			for (Metric metric : Metric.values()) {
+				assertThat(HyCubeNodeId.calculateDistance(id1, id2, metric), isDistance(calculateReferenceDistance(id1, id2, metric)));
+				assertThat(HyCubeNodeId.calculateDistance(id2, id1, metric), isDistance(calculateReferenceDistance(id1, id2, metric)));
+				assertThat(HyCubeNodeId.calculateDistance(id1, id1, metric), is(0.0));
+				double distXY = calculateReferenceDistance(id1, id2, metric);
+				assertThat(HyCubeNodeId.calculateSteinhausDistance(id1, id2, id3, metric), isDistance(2 * distXY / (calculateReferenceDistance(id3, id1, metric) + calculateReferenceDistance(id3, id2, metric) + distXY)));
+			}
+
+			//the cached coordinates should follow modifications of the ID:
+			HyCubeNodeId.calculateDistance(id1, id2, Metric.EUCLIDEAN);
+			id1.setId(id3.getId());
+			for (Metric metric : Metric.values()) {
+				assertThat(HyCubeNodeId.calculateDistance(id1, id2, metric), isDistance(calculateReferenceDistance(id3, id2, metric)));
+			}
+			for (int dim = 0; dim < dimensions; dim++) {
+				assertThat(HyCubeNodeId.calculateDistanceInDimension(id2, id2.addBitInDimension(dim, levels - 1), dim), is(1.0));
+				assertThat(HyCubeNodeId.calculateDistance(id2, id2.addBitInDimension(dim, 0), Metric.MANHATTAN), is(HyCubeNodeId.quickPow2(levels - 1)));
+			}
+		}
+	}
+
+	private Matcher<Double> isDistance(double expected) {
+		//the values are rounded to double precision at different stages of the calculation:
+		return closeTo(expected, expected * 1e-12);
+	}
+
+	private double calculateReferenceDistance(HyCubeNodeId id1, HyCubeNodeId id2, Metric metric) {
+		int dimensions = id1.getDimensions();
+		int levels = id1.getDigitsCount();
+		if (metric == Metric.RING) {
+			return calculateReferenceDistanceInDimension(getRingNumber(id1), getRingNumber(id2), dimensions * levels);
+		}
+		double dist = 0;
+		for (int dim = 0; dim < dimensions; dim++) {
+			double distDim = calculateReferenceDistanceInDimension(getCoordinate(id1, dim), getCoordinate(id2, dim), levels);
+			switch (metric) {
+				case MANHATTAN:
+					dist += distDim;
+					break;
+				case CHEBYSHEV:
+					dist = Math.max(dist, distDim);
+					break;
+				default:
+					dist += distDim * distDim;
+					break;
+			}
+		}
+		if (metric == Metric.EUCLIDEAN) return Math.sqrt(dist);
+		else return dist;
+	}
+
+	private double calculateReferenceDistanceInDimension(BigInteger num1, BigInteger num2, int bits) {
+		BigInteger diff = num1.subtract(num2).abs();
+		return diff.min(BigInteger.ONE.shiftLeft(bits).subtract(diff)).doubleValue();
+	}
+
+	private BigInteger getRingNumber(HyCubeNodeId id) {
+		BigInteger num = BigInteger.ZERO;
+		for (int i = 0; i < id.getNumBits(); i++) {
+			num = num.shiftLeft(1);
+			if (id.get(i)) num = num.setBit(0);
+		}
+		return num;
+	}
+
+	private BigInteger getCoordinate(HyCubeNodeId id, int dim) {
+		//the bits of the coordinate in dimension dim are the bits at positions dimensions * digit + dim
+		BigInteger coord = BigInteger.ZERO;
+		for (int digit = 0; digit < id.getDigitsCount(); digit++) {
+			coord = coord.shiftLeft(1);
+			if (id.get(id.getDimensions() * digit + dim)) coord = coord.setBit(0);
+		}
+		return coord;
+	}
+
 	private void testSubNodeId(int dimensions, int levels, int iterations) {
 		for (int i = 0; i < iterations; i++) {
 			HyCubeNodeId id1 = HyCubeNodeId.generateRandomNodeId(dimensions, levels);
@@ -0,0 +1,179 @@
+package net.hycube.test.node;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import net.hycube.core.HyCubeNodeId;
+import net.hycube.core.HyCubeRoutingTableSlotInfo;
+import net.hycube.core.HyCubeRoutingTableType;
+import net.hycube.core.NodeAccessor;
+import net.hycube.core.NodePointer;
+import net.hycube.core.RoutingTableEntry;
+import net.hycube.maintenance.HyCubePnsExtension;
+import net.hycube.rtnodeselection.HyCubePnsRTNodeSelector;
+import net.hycube.transport.NetworkAdapter;
+import net.hycube.transport.NetworkProximityTable;
+import net.hycube.transport.UDPNodePointer;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PnsRTNodeSelectorTest {
+
+	protected static final String RTT_RTE_KEY = "Rtt";
+	protected static final int SLOT_SIZE = 2;
+
+	protected NetworkProximityTable proximityTable;
+	protected HyCubePnsRTNodeSelector selector;
+	protected List<RoutingTableEntry> slot;
+	protected HashMap<Long, RoutingTableEntry> rtMap;
+	protected int nextPort;
+
+
+	protected static class TestPnsExtension extends HyCubePnsExtension {
+		protected TestPnsExtension(double proximityReplaceRatio) {
+			this.rttRteKey = RTT_RTE_KEY;
+			this.proximityReplaceRatio = proximityReplaceRatio;
+			this.probeCandidates = false;
+		}
+	}
+
+	protected static class TestPnsRTNodeSelector extends HyCubePnsRTNodeSelector {
+		protected TestPnsRTNodeSelector(NodeAccessor nodeAccessor, HyCubePnsExtension pnsExtension) {
+			this.nodeAccessor = nodeAccessor;
+			this.pnsExtension = pnsExtension;
+		}
+	}
+
+
+	@Before
+	public void setUp() {
+		proximityTable = new NetworkProximityTable(100);
+		final NetworkAdapter networkAdapter = (NetworkAdapter) Proxy.newProxyInstance(NetworkAdapter.class.getClassLoader(), new Class<?>[] {NetworkAdapter.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getRttEstimate")) return proximityTable.getEstimate((UDPNodePointer) args[0]);
+				else if (method.getName().equals("getProximity")) return proximityTable.getProximity((UDPNodePointer) args[0]);
+				return null;
+			}
+		});
+		NodeAccessor nodeAccessor = (NodeAccessor) Proxy.newProxyInstance(NodeAccessor.class.getClassLoader(), new Class<?>[] {NodeAccessor.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getNetworkAdapter")) return networkAdapter;
+				return null;
+			}
+		});
+		//the candidate replaces the slot node if its RTT is lower than half of the highest RTT in the slot:
+		selector = new TestPnsRTNodeSelector(nodeAccessor, new TestPnsExtension(0.5));
+		slot = new ArrayList<RoutingTableEntry>();
+		rtMap = new HashMap<Long, RoutingTableEntry>();
+		nextPort = 5000;
+	}
+
+
+	protected NodePointer createNode(double rtt) {
+		NodePointer np = new NodePointer();
+		np.setNodeId(HyCubeNodeId.generateRandomNodeId(4, 32));
+		np.setNetworkNodePointer(new UDPNodePointer("127.0.0.1:" + (nextPort++)));
+		if (rtt >= 0) proximityTable.addSample(np.getNetworkNodePointer(), rtt, 0);
+		return np;
+	}
+
+	protected void processNode(NodePointer np) {
+		selector.processNode(np, slot, rtMap, HyCubeRoutingTableType.RT1, 0, 0, SLOT_SIZE, 1, 0);
+	}
+
+	protected void assertSlotNodes(NodePointer... nodes) {
+		assertThat(slot.size(), is(nodes.length));
+		assertThat(rtMap.size(), is(nodes.length));
+		for (int i = 0; i < nodes.length; i++) {
+			assertThat(slot.get(i).getNode(), is(sameInstance(nodes[i])));
+			assertThat(rtMap.get(nodes[i].getNodeIdHash()), is(sameInstance(slot.get(i))));
+			assertThat(((HyCubeRoutingTableSlotInfo) slot.get(i).getOuterRef()).getSlot(), is(sameInstance(slot)));
+		}
+	}
+
+
+	@Test
+	public void processNode_slotNotFull_expectAddedWithRttEstimate() {
+		//Arrange
+		NodePointer measured = createNode(3);
+		NodePointer notMeasured = createNode(-1);
+
+		//Act
+		processNode(measured);
+		processNode(notMeasured);
+
+		//Assert
+		assertSlotNodes(measured, notMeasured);
+		assertThat(slot.get(0).getData(RTT_RTE_KEY), is(sameInstance((Object) proximityTable.getEstimate(measured.getNetworkNodePointer()))));
+		assertThat(slot.get(1).getData(RTT_RTE_KEY), is((Object) null));
+	}
+
+
+	@Test
+	public void processNode_slotFull_expectWorstNodeReplacedOnlyBelowReplaceRatio() {
+		//Arrange
+		NodePointer n1 = createNode(8);
+		NodePointer n2 = createNode(5);
+		processNode(n1);
+		processNode(n2);
+
+		//Act & Assert
+		//4 is not lower than 8 * 0.5:
+		processNode(createNode(4));
+		assertSlotNodes(n1, n2);
+		//the RTT of the candidate is not known:
+		processNode(createNode(-1));
+		assertSlotNodes(n1, n2);
+		//3.9 < 8 * 0.5 - the node with the highest RTT is replaced:
+		NodePointer n3 = createNode(3.9);
+		processNode(n3);
+		assertSlotNodes(n3, n2);
+		assertThat(rtMap.containsKey(n1.getNodeIdHash()), is(false));
+		assertThat(slot.get(0).getData(RTT_RTE_KEY), is(sameInstance((Object) proximityTable.getEstimate(n3.getNetworkNodePointer()))));
+	}
+
+
+	@Test
+	public void processNode_subMillisecondRtts_expectCompared() {
+		//Arrange
+		//local network RTTs (rounded to milliseconds, all of them would be equal to 0):
+		NodePointer n1 = createNode(0.4);
+		NodePointer n2 = createNode(0.3);
+		processNode(n1);
+		processNode(n2);
+
+		//Act & Assert
+		processNode(createNode(0.2));
+		assertSlotNodes(n1, n2);
+		NodePointer n3 = createNode(0.15);
+		processNode(n3);
+		assertSlotNodes(n3, n2);
+	}
+
+
+	@Test
+	public void processNode_slotNodesNotMeasured_expectNotReplaced() {
+		//Arrange
+		NodePointer n1 = createNode(-1);
+		NodePointer n2 = createNode(-1);
+		processNode(n1);
+		processNode(n2);
+
+		//Act
+		processNode(createNode(0.01));
+
+		//Assert
+		assertSlotNodes(n1, n2);
+	}
+
+}
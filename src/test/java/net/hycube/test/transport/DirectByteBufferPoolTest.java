@@ -0,0 +1,176 @@
+package net.hycube.test.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.hycube.transport.DirectByteBufferPool;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DirectByteBufferPoolTest {
+
+	@Test
+	public void acquire_emptyPool_expectNewDirectBuffer() {
+		//Arrange
+		DirectByteBufferPool pool = new DirectByteBufferPool(1024, 4);
+
+		//Act
+		ByteBuffer buffer = pool.acquire();
+
+		//Assert
+		assertThat(buffer.isDirect(), is(true));
+		assertThat(buffer.capacity(), is(1024));
+		assertThat(buffer.position(), is(0));
+		assertThat(buffer.limit(), is(1024));
+	}
+
+
+	@Test
+	public void releaseAndAcquire_expectBufferReusedInLifoOrderAndCleared() {
+		//Arrange
+		DirectByteBufferPool pool = new DirectByteBufferPool(1024, 4);
+		ByteBuffer b1 = pool.acquire();
+		ByteBuffer b2 = pool.acquire();
+		b1.putInt(1).flip();
+		b2.position(100).limit(200);
+
+		//Act
+		pool.release(b1);
+		pool.release(b2);
+		ByteBuffer a1 = pool.acquire();
+		ByteBuffer a2 = pool.acquire();
+		ByteBuffer a3 = pool.acquire();
+
+		//Assert
+		//the most recently released buffer is returned first:
+		assertThat(a1, is(sameInstance(b2)));
+		assertThat(a2, is(sameInstance(b1)));
+		assertThat(a3, is(not(sameInstance(b1))));
+		assertThat(a3, is(not(sameInstance(b2))));
+		//the reused buffers are cleared:
+		assertThat(a1.position(), is(0));
+		assertThat(a1.limit(), is(1024));
+		assertThat(a2.position(), is(0));
+		assertThat(a2.limit(), is(1024));
+	}
+
+
+	@Test
+	public void release_poolFull_expectAtMostPoolSizeBuffersRetained() {
+		//Arrange
+		DirectByteBufferPool pool = new DirectByteBufferPool(64, 2);
+		List<ByteBuffer> acquired = new ArrayList<ByteBuffer>();
+		for (int i = 0; i < 5; i++) acquired.add(pool.acquire());
+
+		//Act
+		for (ByteBuffer b : acquired) pool.release(b);
+		Set<ByteBuffer> reacquired = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+		for (int i = 0; i < 5; i++) reacquired.add(pool.acquire());
+
+		//Assert
+		//the buffers released to the full pool are dropped - only the two first released buffers are reused, the remaining ones are newly allocated:
+		int reusedNum = 0;
+		for (ByteBuffer b : acquired) {
+			if (reacquired.contains(b)) reusedNum++;
+		}
+		assertThat(reusedNum, is(2));
+		assertThat(reacquired.contains(acquired.get(0)), is(true));
+		assertThat(reacquired.contains(acquired.get(1)), is(true));
+	}
+
+
+	@Test
+	public void release_foreignBuffers_expectNotPooled() {
+		//Arrange
+		DirectByteBufferPool pool = new DirectByteBufferPool(64, 4);
+		ByteBuffer heap = ByteBuffer.allocate(64);
+		ByteBuffer otherSize = ByteBuffer.allocateDirect(128);
+
+		//Act
+		pool.release(null);
+		pool.release(heap);
+		pool.release(otherSize);
+		ByteBuffer acquired = pool.acquire();
+
+		//Assert
+		assertThat(acquired, is(not(sameInstance(heap))));
+		assertThat(acquired, is(not(sameInstance(otherSize))));
+		assertThat(acquired.isDirect(), is(true));
+		assertThat(acquired.capacity(), is(64));
+	}
+
+
+	@Test
+	public void clear_expectPooledBuffersDropped() {
+		//Arrange
+		DirectByteBufferPool pool = new DirectByteBufferPool(64, 4);
+		ByteBuffer b = pool.acquire();
+		pool.release(b);
+
+		//Act
+		pool.clear();
+
+		//Assert
+		assertThat(pool.acquire(), is(not(sameInstance(b))));
+		//the pool accepts poolSize buffers again:
+		Set<ByteBuffer> acquired = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+		for (int i = 0; i < 4; i++) acquired.add(pool.acquire());
+		for (ByteBuffer a : acquired) pool.release(a);
+		for (int i = 0; i < 4; i++) assertThat(acquired.contains(pool.acquire()), is(true));
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nonPositiveBufferSize_expectIllegalArgumentException() {
+		new DirectByteBufferPool(0, 4);
+	}
+
+
+	@Test
+	public void concurrentAcquireAndRelease_expectBufferNeverShared() throws InterruptedException {
+		//Arrange
+		final DirectByteBufferPool pool = new DirectByteBufferPool(16, 4);
+		final Set<ByteBuffer> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>()));
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		//Act
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final int threadIndex = t;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 50000; i++) {
+							ByteBuffer b = pool.acquire();
+							if (! inUse.add(b)) throw new AssertionError("The buffer was acquired by two threads.");
+							b.putInt(0, threadIndex);
+							if (b.getInt(0) != threadIndex) throw new AssertionError("The buffer was modified by another thread.");
+							inUse.remove(b);
+							pool.release(b);
+						}
+					}
+					catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			});
+		}
+		for (Thread t : threads) t.start();
+		for (Thread t : threads) t.join();
+
+		//Assert
+		assertThat(failure.get(), is(nullValue()));
+	}
+
+}
@@ -0,0 +1,124 @@
+package net.hycube.test.transport;
+
+import net.hycube.transport.NetworkAdapter;
+import net.hycube.transport.NetworkProximityTable;
+import net.hycube.transport.RttEstimate;
+import net.hycube.transport.UDPNodePointer;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RttEstimateTest {
+
+	protected static final double EPSILON = 1e-9;
+
+
+	@Test
+	public void addSample_expectSmoothedAsInRfc6298() {
+		//Arrange
+		RttEstimate estimate = new RttEstimate();
+
+		//Act & Assert
+		assertThat(estimate.isMeasured(), is(false));
+		//the first sample: SRTT = R, RTTVAR = R / 2
+		estimate.addSample(100, 1000);
+		assertThat(estimate.isMeasured(), is(true));
+		assertThat(estimate.getSmoothedRtt(), closeTo(100, EPSILON));
+		assertThat(estimate.getRttVariance(), closeTo(50, EPSILON));
+		//RTTVAR = 3/4 * 50 + 1/4 * |100 - 200|, SRTT = 7/8 * 100 + 1/8 * 200
+		estimate.addSample(200, 2000);
+		assertThat(estimate.getRttVariance(), closeTo(62.5, EPSILON));
+		assertThat(estimate.getSmoothedRtt(), closeTo(112.5, EPSILON));
+		//RTTVAR = 3/4 * 62.5 + 1/4 * |112.5 - 112.5|, SRTT unchanged
+		estimate.addSample(112.5, 3000);
+		assertThat(estimate.getRttVariance(), closeTo(46.875, EPSILON));
+		assertThat(estimate.getSmoothedRtt(), closeTo(112.5, EPSILON));
+		assertThat(estimate.getSamplesNum(), is(3));
+		assertThat(estimate.getLastSampleTime(), is(3000L));
+	}
+
+
+	@Test
+	public void addSample_manyEqualSamples_expectConvergedToSample() {
+		//Arrange
+		RttEstimate estimate = new RttEstimate();
+		estimate.addSample(500, 0);
+
+		//Act
+		for (int i = 0; i < 200; i++) estimate.addSample(20, i);
+
+		//Assert
+		assertThat(estimate.getSmoothedRtt(), closeTo(20, 1e-6));
+		assertThat(estimate.getRttVariance(), closeTo(0, 1e-6));
+	}
+
+
+	@Test
+	public void addSample_subMillisecondSamples_expectNotRoundedAndNegativeSamplesTreatedAsZero() {
+		//Arrange
+		RttEstimate estimate = new RttEstimate();
+		RttEstimate negative = new RttEstimate();
+
+		//Act
+		estimate.addSample(0.25, 0);
+		estimate.addSample(0.5, 0);
+		negative.addSample(-3, 0);
+
+		//Assert
+		assertThat(estimate.getSmoothedRtt(), closeTo(0.875 * 0.25 + 0.125 * 0.5, EPSILON));
+		assertThat(negative.getSmoothedRtt(), closeTo(0, EPSILON));
+		assertThat(negative.getRttVariance(), closeTo(0, EPSILON));
+	}
+
+
+	@Test
+	public void getTimeout_expectSrttPlusVarianceTermLimitedToRange() {
+		//Arrange
+		RttEstimate estimate = new RttEstimate();
+		RttEstimate lowVariance = new RttEstimate();
+		estimate.addSample(100, 0);
+		estimate.addSample(200, 0);
+		for (int i = 0; i < 100; i++) lowVariance.addSample(50, 0);
+
+		//Act & Assert
+		//SRTT + 4 * RTTVAR = 112.5 + 4 * 62.5:
+		assertThat(estimate.getTimeout(0, 10000), is(363L));
+		assertThat(estimate.getTimeout(400, 10000), is(400L));
+		assertThat(estimate.getTimeout(0, 300), is(300L));
+		//the variance term is not lower than the clock granularity:
+		assertThat(lowVariance.getTimeout(0, 10000), is(50L + RttEstimate.CLOCK_GRANULARITY));
+		//rounded up:
+		RttEstimate subMillisecond = new RttEstimate();
+		subMillisecond.addSample(0.3, 0);
+		assertThat(subMillisecond.getTimeout(0, 10000), is(11L));
+	}
+
+
+	@Test
+	public void proximityTable_expectEstimatesPerAddressAndProximityRoundedToMilliseconds() {
+		//Arrange
+		NetworkProximityTable table = new NetworkProximityTable(2);
+		UDPNodePointer np1 = new UDPNodePointer("127.0.0.1:5001");
+		UDPNodePointer np2 = new UDPNodePointer("127.0.0.1:5002");
+		UDPNodePointer np3 = new UDPNodePointer("127.0.0.1:5003");
+
+		//Act
+		table.addSample(np1, 0.4, 0);
+		table.addSample(new UDPNodePointer("127.0.0.1:5001"), 0.4, 0);
+		table.addSample(np2, 2.6, 0);
+		//the least recently used estimate (np1) is removed:
+		table.getEstimate(np2);
+		table.addSample(np3, 1, 0);
+
+		//Assert
+		assertThat(table.getEstimate(np1), is(nullValue()));
+		assertThat(table.getProximity(np1), is(NetworkAdapter.PROXIMITY_UNKNOWN));
+		assertThat(table.getEstimate(np2).getSmoothedRtt(), closeTo(2.6, EPSILON));
+		assertThat(table.getProximity(np2), is(3L));
+		assertThat(table.getEstimate(np3).getSamplesNum(), is(1));
+	}
+
+}